@@ -343,6 +343,14 @@ public class ARQ
      */
     public static final Symbol optimization = SystemARQ.allocSymbol("optimization") ;
 
+    /**
+     *  Context key (global context only) controlling whether query executions built
+     *  from a query string use the {@link org.apache.jena.sparql.engine.QueryCache}
+     *  of parsed and optimized queries.
+     *  Default: false.
+     */
+    public static final Symbol queryCache = SystemARQ.allocSymbol("queryCache") ;
+
     /**
      *  Context key controlling whether the main query engine flattens simple paths
      *  (e.g. <tt>?x :p/:q ?z =&gt; ?x :p ?.0 . ?.0 ?q ?z</tt>)
@@ -466,6 +474,35 @@ public class ARQ
      */
     public static final Symbol optIndexJoinStrategy = SystemARQ.allocSymbol("optIndexJoinStrategy");
 
+    /**
+     * Context key controlling whether an index left join (OPTIONAL executed by substitution)
+     * observes its probe cost at runtime and switches to a hash left join when probing
+     * turns out to be expensive.
+     * <p>By default, adaptive execution is enabled.
+     * @see #adaptiveJoinProbes
+     * @see #adaptiveJoinProbeCost
+     * @see #adaptiveJoinHashRows
+     */
+    public static final Symbol optAdaptiveJoin = SystemARQ.allocSymbol("optAdaptiveJoin");
+
+    /**
+     * Context key for the number of index probes an adaptive join makes
+     * before deciding whether to switch strategy. Default: 1000.
+     */
+    public static final Symbol adaptiveJoinProbes = SystemARQ.allocSymbol("adaptiveJoinProbes");
+
+    /**
+     * Context key for the average cost of one index probe, in nanoseconds, above which
+     * an adaptive join tries to switch to a hash join. Default: 20000 (20 microseconds).
+     */
+    public static final Symbol adaptiveJoinProbeCost = SystemARQ.allocSymbol("adaptiveJoinProbeCost");
+
+    /**
+     * Context key for the maximum number of rows an adaptive join will hold in a hash table.
+     * If the right hand side is larger, the join goes back to index probing. Default: 100000.
+     */
+    public static final Symbol adaptiveJoinHashRows = SystemARQ.allocSymbol("adaptiveJoinHashRows");
+
     /**
      * Context key controlling whether the standard optimizer applies optimizations where by some
      * assignments may be eliminated/inlined into the operators where their values are used only once
@@ -69,6 +69,17 @@ public class DatasetFactory {
 		return wrap(DatasetGraphFactory.createTxnMem());
 	}
 
+	/**
+	 * Create an in-memory, transactional {@link Dataset} that stores tuples as node ids
+	 * in copy-on-write B+Trees.
+	 *
+	 * @see DatasetGraphFactory#createTxnMemIds
+	 * @return a transactional, in-memory, modifiable Dataset
+	 */
+	public static Dataset createTxnMemIds() {
+		return wrap(DatasetGraphFactory.createTxnMemIds());
+	}
+
 	/**
 	 * Create a general-purpose  {@link Dataset}.<br/>
 	 * Any graphs needed are in-memory unless explicitly added with {@link Dataset#addNamedModel}.
@@ -21,6 +21,7 @@ package org.apache.jena.riot;
 import com.github.jsonldjava.core.JsonLdOptions;
 import org.apache.jena.atlas.web.ContentType;
 import org.apache.jena.riot.lang.JsonLDReader;
+import org.apache.jena.riot.system.JsonLDContextCache;
 import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.sparql.util.Context;
 
@@ -71,4 +72,14 @@ public class JsonLDReadContext extends Context {
     public void setOptions(JsonLdOptions opts) {
         set(JsonLDReader.JSONLD_OPTIONS, opts);
     }
+
+    /**
+     * Set the {@link JsonLDContextCache} used for remote contexts by the JSON-LD 1.1
+     * and streaming JSON-LD readers. If not set, the global one is used.
+     *
+     * @param cache the cache and registry of context documents
+     */
+    public void setContextCache(JsonLDContextCache cache) {
+        set(JsonLDContextCache.symContextCache, cache);
+    }
 }
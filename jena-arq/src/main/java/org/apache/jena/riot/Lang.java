@@ -62,6 +62,12 @@ public class Lang
 
     public static Lang JSONLD11 ;
 
+    /** Streaming reader for expanded or flattened JSON-LD. */
+    public static Lang JSONLD_STREAM ;
+
+    /** Newline delimited JSON-LD. */
+    public static Lang NDJSONLD ;
+
     /**
      * <a href="http://www.w3.org/TR/rdf-json/">RDF/JSON</a>.
      *  This is not <a href="http://www.w3.org/TR/json-ld/">JSON-LD</a>.
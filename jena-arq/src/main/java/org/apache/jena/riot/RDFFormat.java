@@ -31,6 +31,11 @@ public class RDFFormat {
     public static final RDFFormatVariant BLOCKS         = new RDFFormatVariant("blocks") ;
     /** Print out one per line */
     public static final RDFFormatVariant FLAT           = new RDFFormatVariant("flat") ;
+    /**
+     * Pretty printing for large graphs: subjects in index order, with nesting
+     * found by index lookups, in bounded memory.
+     */
+    public static final RDFFormatVariant INDEXED        = new RDFFormatVariant("indexed") ;
 
     /** Use ASCII output (N-triples, N-Quads) */
     public static final RDFFormatVariant ASCII          = new RDFFormatVariant("ascii") ;
@@ -49,6 +54,8 @@ public class RDFFormat {
     public static final RDFFormat        TURTLE_BLOCKS  = new RDFFormat(Lang.TURTLE, BLOCKS) ;
     /** Turtle - one line per triple  */
     public static final RDFFormat        TURTLE_FLAT    = new RDFFormat(Lang.TURTLE, FLAT) ;
+    /** Turtle - pretty form for large graphs, with nested blank nodes and lists, in bounded memory */
+    public static final RDFFormat        TURTLE_INDEXED = new RDFFormat(Lang.TURTLE, INDEXED) ;
 
     /** N-Triples in UTF-8 */
     public static final RDFFormat        NTRIPLES_UTF8  = new RDFFormat(Lang.NTRIPLES, UTF8) ;
@@ -76,6 +83,8 @@ public class RDFFormat {
     public static final RDFFormat        TRIG_BLOCKS    = new RDFFormat(Lang.TRIG, BLOCKS) ;
     /** TriG - one line per triple  */
     public static final RDFFormat        TRIG_FLAT      = new RDFFormat(Lang.TRIG, FLAT) ;
+    /** TriG - pretty form for large datasets, with nested blank nodes and lists, in bounded memory */
+    public static final RDFFormat        TRIG_INDEXED   = new RDFFormat(Lang.TRIG, INDEXED) ;
 
     /** SHACL Compact Syntax */
     public static final RDFFormat        SHACLC         = new RDFFormat(Lang.SHACLC);
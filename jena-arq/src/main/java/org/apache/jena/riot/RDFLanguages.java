@@ -119,6 +119,25 @@ public class RDFLanguages
                                                      .addFileExtensions("jsonld10")
                                                      .build();
 
+    /*
+     * Streaming JSON-LD reader for expanded or flattened JSON-LD with a static context.
+     * Requires an explicit language name
+     * {@code RDFParser.forceLang(Lang.JSONLD_STREAM)...}
+     * or use of the file extension {@code .jsonlds}
+     */
+    public static final String strLangJSONLD_STREAM = "JSON-LD-STREAM";
+    public static final Lang JSONLD_STREAM  = LangBuilder.create(strLangJSONLD_STREAM, "x/ld-json-stream")
+                                                     .addAltNames("JSONLDSTREAM")
+                                                     .addFileExtensions("jsonlds")
+                                                     .build();
+
+    /** Newline delimited JSON-LD: one JSON-LD document, usually a node object, per line. */
+    public static final String strLangNDJSONLD  = "NDJSON-LD";
+    public static final Lang NDJSONLD   = LangBuilder.create(strLangNDJSONLD, "application/x-ld+ndjson")
+                                                     .addAltNames("NDJSONLD")
+                                                     .addFileExtensions("ndjsonld")
+                                                     .build();
+
     /** <a href="http://www.w3.org/TR/rdf-json/">RDF/JSON</a>.  This is not <a href="http://www.w3.org/TR/json-ld/">JSON-LD</a>. */
     public static final Lang RDFJSON    = LangBuilder.create(strLangRDFJSON, contentTypeRDFJSON)
                                                      .addAltNames("RDFJSON")
@@ -209,6 +228,8 @@ public class RDFLanguages
         Lang.JSONLD     = RDFLanguages.JSONLD;
         //Lang.JSONLD10   = RDFLanguages.JSONLD10;
         Lang.JSONLD11   = RDFLanguages.JSONLD11;
+        Lang.JSONLD_STREAM = RDFLanguages.JSONLD_STREAM;
+        Lang.NDJSONLD   = RDFLanguages.NDJSONLD;
         Lang.RDFJSON    = RDFLanguages.RDFJSON;
         Lang.NQUADS     = RDFLanguages.NQUADS;
         Lang.NQ         = RDFLanguages.NQ;
@@ -240,6 +261,8 @@ public class RDFLanguages
         register(JSONLD);
         register(JSONLD10);
         register(JSONLD11);
+        register(JSONLD_STREAM);
+        register(NDJSONLD);
         register(RDFJSON);
         register(TRIG);
         register(NQUADS);
@@ -77,6 +77,7 @@ public class RDFParserRegistry
         // Others
         ReaderRIOTFactory parserFactoryRDFXML    = ReaderRIOTRDFXML.factory;
         ReaderRIOTFactory parserFactoryJsonLD    = new ReaderRIOTFactoryJSONLD();
+        ReaderRIOTFactory parserFactoryJsonLDStream = LangJSONLDStream.factory;
         ReaderRIOTFactory parserFactoryProtobuf  = ReaderRDFProtobuf.factory;
         ReaderRIOTFactory parserFactoryThrift    = ReaderRDFThrift.factory;
         ReaderRIOTFactory parserFactoryTriX      = ReaderTriX.factory;
@@ -88,12 +89,16 @@ public class RDFParserRegistry
         registerLangTriples(RDFJSON,    parserFactory);
         registerLangTriples(RDFXML,     parserFactoryRDFXML);
         registerLangTriples(JSONLD,     parserFactoryJsonLD);
+        registerLangTriples(JSONLD_STREAM, parserFactoryJsonLDStream);
+        registerLangTriples(NDJSONLD,   parserFactoryJsonLDStream);
         registerLangTriples(RDFPROTO,   parserFactoryProtobuf);
         registerLangTriples(RDFTHRIFT,  parserFactoryTriX);
         registerLangTriples(TRIX,       parserFactoryTriX);
         registerLangTriples(RDFNULL,    parserFactoryRDFNULL);
 
         registerLangQuads(JSONLD,       parserFactoryJsonLD);
+        registerLangQuads(JSONLD_STREAM, parserFactoryJsonLDStream);
+        registerLangQuads(NDJSONLD,     parserFactoryJsonLDStream);
         registerLangQuads(NQUADS,       parserFactory);
         registerLangQuads(TRIG,         parserFactory);
         registerLangQuads(RDFPROTO,     parserFactoryProtobuf);
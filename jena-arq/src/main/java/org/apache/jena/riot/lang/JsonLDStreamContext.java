@@ -0,0 +1,490 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.apache.jena.atlas.json.JsonArray;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.atlas.json.JsonValue;
+import org.apache.jena.irix.IRIException;
+import org.apache.jena.irix.IRIx;
+
+/**
+ * The active context of {@link LangJSONLDStream}: term definitions, {@code @vocab},
+ * {@code @base} and the default language.
+ * <p>
+ * This covers the context features used by expanded, flattened and simply compacted
+ * JSON-LD. Anything else (scoped contexts, {@code @reverse}, {@code @nest},
+ * {@code @import}, maps, ...) is recorded as unsupported, either for a term or for the
+ * whole context, and a node object that uses it is passed to the full JSON-LD
+ * processor.
+ * <p>
+ * A context is immutable; {@link #extend} returns a new context.
+ */
+class JsonLDStreamContext {
+
+    /** Thrown when the streaming reader meets a construct it does not handle. */
+    static class Unsupported extends RuntimeException {
+        Unsupported(String msg) { super(msg, null, false, false); }
+    }
+
+    static final Set<String> keywords = Set.of(
+        "@base", "@container", "@context", "@direction", "@graph", "@id", "@import", "@included",
+        "@index", "@json", "@language", "@list", "@nest", "@none", "@prefix", "@propagate",
+        "@protected", "@reverse", "@set", "@type", "@value", "@version", "@vocab");
+
+    private static final Pattern keywordForm = Pattern.compile("^@[a-zA-Z]+$");
+    private static final Pattern schemeForm  = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*:");
+
+    /** A term definition. */
+    static class TermDef {
+        // Expanded IRI, blank node, keyword (an alias), or null (the term is ignored).
+        final String iri;
+        // "@id", "@vocab", a datatype IRI or null.
+        final String type;
+        // Set when the definition has "@language" (which may be null for "no language").
+        final boolean hasLanguage;
+        final String language;
+        final boolean list;
+        final boolean prefix;
+        final boolean unsupported;
+
+        TermDef(String iri, String type, boolean hasLanguage, String language, boolean list, boolean prefix) {
+            this(iri, type, hasLanguage, language, list, prefix, false);
+        }
+
+        private TermDef(String iri, String type, boolean hasLanguage, String language, boolean list, boolean prefix, boolean unsupported) {
+            this.iri = iri;
+            this.type = type;
+            this.hasLanguage = hasLanguage;
+            this.language = language;
+            this.list = list;
+            this.prefix = prefix;
+            this.unsupported = unsupported;
+        }
+
+        static final TermDef UNSUPPORTED = new TermDef(null, null, false, null, false, false, true);
+    }
+
+    private final Map<String, TermDef> terms;
+    private final String documentBase;
+    private final String base;
+    private final String vocab;
+    private final String language;
+    private final boolean unsupported;
+    // Context definitions, with remote contexts inlined, for the full JSON-LD processor.
+    private final JsonArray raw;
+
+    /** An empty context. */
+    static JsonLDStreamContext create(String baseURI) {
+        return new JsonLDStreamContext(Map.of(), baseURI, baseURI, null, null, false, new JsonArray());
+    }
+
+    private JsonLDStreamContext(Map<String, TermDef> terms, String documentBase, String base, String vocab, String language,
+                                boolean unsupported, JsonArray raw) {
+        this.terms = terms;
+        this.documentBase = documentBase;
+        this.base = base;
+        this.vocab = vocab;
+        this.language = language;
+        this.unsupported = unsupported;
+        this.raw = raw;
+    }
+
+    /** The context uses features that the streaming reader does not handle. */
+    boolean isUnsupported() { return unsupported; }
+
+    /** The default language, or null. */
+    String language() { return language; }
+
+    /** The context definitions, with any remote contexts inlined, as a JSON array. */
+    JsonArray raw() { return raw; }
+
+    /** The term definition for a term, or null. */
+    TermDef term(String term) {
+        TermDef def = terms.get(term);
+        if ( def != null && def.unsupported )
+            throw new Unsupported("Term: "+term);
+        return def;
+    }
+
+    /**
+     * Return the keyword for a key that is a keyword, or an alias of a keyword, else null.
+     */
+    String keyword(String key) {
+        if ( key.startsWith("@") )
+            return keywords.contains(key) ? key : null;
+        TermDef def = term(key);
+        if ( def != null && def.iri != null && keywords.contains(def.iri) )
+            return def.iri;
+        return null;
+    }
+
+    /** Does a string have the form of a keyword but is not one? */
+    static boolean isKeywordForm(String string) {
+        return keywordForm.matcher(string).matches();
+    }
+
+    static boolean isAbsolute(String iri) {
+        return schemeForm.matcher(iri).find();
+    }
+
+    static boolean isBlankNode(String string) {
+        return string.startsWith("_:");
+    }
+
+    /**
+     * IRI expansion (JSON-LD 1.1 API, section 5.2). Returns an absolute IRI, a blank
+     * node identifier, a keyword or null if the value does not expand.
+     */
+    String expandIRI(String value, boolean vocabRelative, boolean documentRelative) {
+        return expandIRI(value, vocabRelative, documentRelative, terms, null, null);
+    }
+
+    private String expandIRI(String value, boolean vocabRelative, boolean documentRelative,
+                             Map<String, TermDef> defs, JsonObject local, Map<String, Boolean> defined) {
+        if ( value == null || keywords.contains(value) )
+            return value;
+        if ( isKeywordForm(value) )
+            return null;
+        if ( local != null && local.hasKey(value) && !Boolean.TRUE.equals(defined.get(value)) )
+            createTermDefinition(defs, local, value, defined);
+        if ( vocabRelative && defs.containsKey(value) ) {
+            TermDef def = defs.get(value);
+            if ( def.unsupported )
+                throw new Unsupported("Term: "+value);
+            return def.iri;
+        }
+        int idx = value.indexOf(':', 1);
+        if ( idx > 0 ) {
+            String prefix = value.substring(0, idx);
+            String suffix = value.substring(idx+1);
+            if ( prefix.equals("_") || suffix.startsWith("//") )
+                return value;
+            if ( local != null && local.hasKey(prefix) && !Boolean.TRUE.equals(defined.get(prefix)) )
+                createTermDefinition(defs, local, prefix, defined);
+            TermDef def = defs.get(prefix);
+            if ( def != null ) {
+                if ( def.unsupported )
+                    throw new Unsupported("Term: "+prefix);
+                if ( def.iri != null && def.prefix )
+                    return def.iri+suffix;
+            }
+            if ( isAbsolute(value) )
+                return value;
+        }
+        if ( vocabRelative && vocab != null )
+            return vocab+value;
+        if ( documentRelative )
+            return resolve(base, value);
+        return value;
+    }
+
+    private static String resolve(String base, String value) {
+        if ( base == null )
+            return value;
+        try {
+            return IRIx.create(base).resolve(value).str();
+        } catch (IRIException ex) {
+            throw new Unsupported("Bad IRI: "+value);
+        }
+    }
+
+    /**
+     * Process a local context (JSON-LD 1.1 API, section 4.1) and return the new active context.
+     * The function {@code loader} returns the document for a remote context.
+     * If the local context can not be processed, the new context is marked as unsupported.
+     */
+    JsonLDStreamContext extend(JsonValue localContext, Function<String, JsonValue> loader) {
+        try {
+            return new Builder(this).process(localContext, loader, 0).build();
+        } catch (Unsupported ex) {
+            JsonArray r = new JsonArray();
+            r.addAll(raw);
+            r.add(localContext);
+            return new JsonLDStreamContext(terms, documentBase, base, vocab, language, true, r);
+        }
+    }
+
+    // Mutable state during context processing.
+    private static class Builder {
+        Map<String, TermDef> terms;
+        String documentBase;
+        String base;
+        String vocab;
+        String language;
+        boolean unsupported;
+        JsonArray raw;
+
+        Builder(JsonLDStreamContext cxt) {
+            reset(cxt);
+        }
+
+        private void reset(JsonLDStreamContext cxt) {
+            terms = new HashMap<>(cxt.terms);
+            documentBase = cxt.documentBase;
+            base = cxt.base;
+            vocab = cxt.vocab;
+            language = cxt.language;
+            unsupported = cxt.unsupported;
+            raw = new JsonArray();
+            raw.addAll(cxt.raw);
+        }
+
+        JsonLDStreamContext build() {
+            return new JsonLDStreamContext(Collections.unmodifiableMap(terms), documentBase, base, vocab, language, unsupported, raw);
+        }
+
+        Builder process(JsonValue localContext, Function<String, JsonValue> loader, int depth) {
+            if ( depth > 10 )
+                throw new Unsupported("Context nesting");
+            if ( localContext.isArray() ) {
+                for ( JsonValue v : localContext.getAsArray() )
+                    process(v, loader, depth);
+                return this;
+            }
+            if ( localContext.isNull() ) {
+                reset(JsonLDStreamContext.create(documentBase));
+                raw.add(localContext);
+                return this;
+            }
+            if ( localContext.isString() ) {
+                String url = resolve(base, localContext.getAsString().value());
+                JsonValue document = loader.apply(url);
+                if ( document == null || ! document.isObject() || ! document.getAsObject().hasKey("@context") )
+                    throw new Unsupported("Remote context: "+url);
+                // Remote contexts do not set the base.
+                String b = base;
+                process(document.getAsObject().get("@context"), loader, depth+1);
+                base = b;
+                return this;
+            }
+            if ( ! localContext.isObject() ) {
+                unsupported = true;
+                return this;
+            }
+            JsonObject local = localContext.getAsObject();
+            raw.add(local);
+            Map<String, Boolean> defined = new HashMap<>();
+            for ( String key : local.keys() ) {
+                JsonValue v = local.get(key);
+                switch (key) {
+                    case "@version": case "@protected":
+                        break;
+                    case "@base":
+                        if ( depth > 0 )
+                            break;
+                        if ( v.isNull() )
+                            base = null;
+                        else if ( v.isString() )
+                            base = resolve(base, v.getAsString().value());
+                        else
+                            unsupported = true;
+                        break;
+                    case "@vocab":
+                        if ( v.isNull() )
+                            vocab = null;
+                        else if ( v.isString() && ! isBlankNode(v.getAsString().value()) )
+                            vocab = context().expandIRI(v.getAsString().value(), true, true, terms, local, defined);
+                        else
+                            unsupported = true;
+                        break;
+                    case "@language":
+                        if ( v.isNull() )
+                            language = null;
+                        else if ( v.isString() )
+                            language = v.getAsString().value();
+                        else
+                            unsupported = true;
+                        break;
+                    case "@direction":
+                        if ( ! v.isNull() )
+                            unsupported = true;
+                        break;
+                    default:
+                        if ( key.startsWith("@") )
+                            // "@import", "@propagate", ...
+                            unsupported = true;
+                }
+            }
+            for ( String key : local.keys() ) {
+                if ( key.startsWith("@") )
+                    continue;
+                if ( ! Boolean.TRUE.equals(defined.get(key)) )
+                    context().createTermDefinition(terms, local, key, defined);
+            }
+            return this;
+        }
+
+        // A view of the current state for IRI expansion, sharing the term map.
+        private JsonLDStreamContext context() {
+            return new JsonLDStreamContext(terms, documentBase, base, vocab, language, unsupported, raw);
+        }
+    }
+
+    // JSON-LD 1.1 API, section 4.2, for the supported subset.
+    private void createTermDefinition(Map<String, TermDef> defs, JsonObject local, String term, Map<String, Boolean> defined) {
+        Boolean b = defined.get(term);
+        if ( b != null ) {
+            if ( ! b )
+                // Cyclic definition.
+                defs.put(term, TermDef.UNSUPPORTED);
+            return;
+        }
+        defined.put(term, false);
+        defs.remove(term);
+        try {
+            TermDef def = termDefinition(defs, local, term, local.get(term), defined);
+            defs.put(term, def);
+        } catch (Unsupported ex) {
+            defs.put(term, TermDef.UNSUPPORTED);
+        }
+        defined.put(term, true);
+    }
+
+    private static final String genDelims = ":/?#[]@";
+
+    private TermDef termDefinition(Map<String, TermDef> defs, JsonObject local, String term, JsonValue value, Map<String, Boolean> defined) {
+        if ( isKeywordForm(term) )
+            throw new Unsupported("Keyword-like term: "+term);
+        if ( value.isNull() )
+            return new TermDef(null, null, false, null, false, false);
+        if ( value.isString() ) {
+            String iri = expandTermIRI(defs, local, term, value.getAsString().value(), defined);
+            boolean prefix = iri != null && ! keywords.contains(iri) && term.indexOf(':') < 0 && term.indexOf('/') < 0
+                             && ( isBlankNode(iri) || genDelims.indexOf(iri.charAt(iri.length()-1)) >= 0 );
+            return new TermDef(iri, null, false, null, false, prefix);
+        }
+        if ( ! value.isObject() )
+            throw new Unsupported("Term definition: "+term);
+        JsonObject obj = value.getAsObject();
+        String iri = null;
+        String type = null;
+        boolean hasLanguage = false;
+        String lang = null;
+        boolean list = false;
+        boolean prefix = false;
+        for ( String key : obj.keys() ) {
+            JsonValue v = obj.get(key);
+            switch (key) {
+                case "@id":
+                case "@protected":
+                    break;
+                case "@type": {
+                    if ( ! v.isString() )
+                        throw new Unsupported("@type: "+term);
+                    type = expandIRI(v.getAsString().value(), true, false, defs, local, defined);
+                    if ( type == null || ( ! type.equals("@id") && ! type.equals("@vocab") && ! isAbsolute(type) ) )
+                        throw new Unsupported("@type: "+term);
+                    break;
+                }
+                case "@language":
+                    hasLanguage = true;
+                    if ( v.isString() )
+                        lang = v.getAsString().value();
+                    else if ( ! v.isNull() )
+                        throw new Unsupported("@language: "+term);
+                    break;
+                case "@container": {
+                    JsonValue c = v;
+                    if ( c.isArray() && c.getAsArray().size() == 1 )
+                        c = c.getAsArray().get(0);
+                    if ( c.isNull() )
+                        break;
+                    if ( ! c.isString() )
+                        throw new Unsupported("@container: "+term);
+                    String container = c.getAsString().value();
+                    if ( container.equals("@list") )
+                        list = true;
+                    else if ( ! container.equals("@set") )
+                        throw new Unsupported("@container: "+term);
+                    break;
+                }
+                case "@prefix":
+                    if ( ! v.isBoolean() )
+                        throw new Unsupported("@prefix: "+term);
+                    prefix = v.getAsBoolean().value();
+                    break;
+                default:
+                    // @context, @reverse, @nest, @index, @direction, ...
+                    throw new Unsupported(key+": "+term);
+            }
+        }
+        JsonValue id = obj.get("@id");
+        if ( id != null && id.isNull() )
+            iri = null;
+        else if ( id != null ) {
+            if ( ! id.isString() )
+                throw new Unsupported("@id: "+term);
+            iri = expandTermIRI(defs, local, term, id.getAsString().value(), defined);
+        } else if ( term.indexOf(':', 1) > 0 ) {
+            iri = expandIRI(term, true, false, defs, local, defined);
+        } else if ( vocab != null ) {
+            iri = vocab+term;
+        } else
+            throw new Unsupported("No IRI mapping: "+term);
+        if ( iri != null && keywords.contains(iri) )
+            // Expanded definition of a keyword alias.
+            throw new Unsupported("Keyword alias: "+term);
+        return new TermDef(iri, type, hasLanguage, lang, list, prefix);
+    }
+
+    private String expandTermIRI(Map<String, TermDef> defs, JsonObject local, String term, String value, Map<String, Boolean> defined) {
+        if ( keywords.contains(value) ) {
+            if ( value.equals("@context") )
+                throw new Unsupported("Alias of @context");
+            return value;
+        }
+        if ( isKeywordForm(value) )
+            return null;
+        String iri = expandIRI(value, true, false, defs, local, defined);
+        if ( iri == null || ! ( keywords.contains(iri) || isBlankNode(iri) || isAbsolute(iri) ) )
+            throw new Unsupported("Bad IRI mapping: "+term);
+        return iri;
+    }
+
+    /**
+     * Apply an action to the simple term definitions of a local context that look like
+     * namespaces, that is, the IRI ends in "#", "/" or ":". {@code @vocab} becomes prefix "".
+     */
+    static void prefixes(JsonValue localContext, BiConsumer<String, String> action) {
+        if ( localContext.isArray() ) {
+            localContext.getAsArray().forEach(v -> prefixes(v, action));
+            return;
+        }
+        if ( ! localContext.isObject() )
+            return;
+        localContext.getAsObject().forEach((k, v) -> {
+            if ( ! v.isString() )
+                return;
+            String prefix = k;
+            if ( k.equals("@vocab") )
+                prefix = "";
+            else if ( k.startsWith("@") )
+                return;
+            String uri = v.getAsString().value();
+            if ( uri.endsWith("#") || uri.endsWith("/") || uri.endsWith(":") )
+                action.accept(prefix, uri);
+        });
+    }
+}
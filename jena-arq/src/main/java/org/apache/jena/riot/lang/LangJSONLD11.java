@@ -20,13 +20,21 @@ package org.apache.jena.riot.lang;
 
 import java.io.InputStream;
 import java.io.Reader;
+import java.net.URI;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiConsumer;
 
 import com.apicatalog.jsonld.JsonLd;
+import com.apicatalog.jsonld.JsonLdError;
+import com.apicatalog.jsonld.JsonLdErrorCode;
 import com.apicatalog.jsonld.document.Document;
 import com.apicatalog.jsonld.document.JsonDocument;
+import com.apicatalog.jsonld.http.media.MediaType;
 import com.apicatalog.jsonld.lang.Keywords;
+import com.apicatalog.jsonld.loader.DocumentLoader;
+import com.apicatalog.jsonld.loader.DocumentLoaderOptions;
+import com.apicatalog.jsonld.loader.SchemeRouter;
 import com.apicatalog.rdf.RdfDataset;
 
 import jakarta.json.JsonObject;
@@ -38,12 +46,16 @@ import org.apache.jena.atlas.web.ContentType;
 import org.apache.jena.riot.ReaderRIOT;
 import org.apache.jena.riot.RiotException;
 import org.apache.jena.riot.system.JenaTitanium;
+import org.apache.jena.riot.system.JsonLDContextCache;
 import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.riot.system.SysJSONLD11;
 import org.apache.jena.sparql.util.Context;
 
 /**
  * JSON-LD 1.1 {@link ReaderRIOT}.
+ * <p>
+ * Remote contexts are loaded through the {@link JsonLDContextCache} for the
+ * {@link Context} of the parse, so they are fetched once and can be mapped to local copies.
  */
 public class LangJSONLD11 implements ReaderRIOT {
     public LangJSONLD11() {}
@@ -72,7 +84,8 @@ public class LangJSONLD11 implements ReaderRIOT {
 
     private void read(Document document, StreamRDF output, Context context) throws Exception {
         // JSON-LD to RDF
-        RdfDataset dataset = JsonLd.toRdf(document).get();
+        DocumentLoader loader = new CachingDocumentLoader(JsonLDContextCache.get(context), context);
+        RdfDataset dataset = JsonLd.toRdf(document).loader(loader).get();
         extractPrefixes(document, output::prefix);
         JenaTitanium.convert(dataset, output);
     }
@@ -141,4 +154,114 @@ public class LangJSONLD11 implements ReaderRIOT {
             }
         });
     }
+
+    /**
+     * Titanium {@link DocumentLoader} that uses a {@link JsonLDContextCache}: registered
+     * URLs are read from their local copy, others with the Titanium default loader.
+     * Cached documents are shared between parses, so each call returns a
+     * {@link LoadedDocument} with its own URLs.
+     */
+    private static class CachingDocumentLoader implements DocumentLoader {
+        private static final DocumentLoader dftLoader = SchemeRouter.defaultInstance();
+        private final JsonLDContextCache cache;
+        private final Context context;
+
+        CachingDocumentLoader(JsonLDContextCache cache, Context context) {
+            this.cache = cache;
+            this.context = context;
+        }
+
+        @Override
+        public Document loadDocument(URI url, DocumentLoaderOptions options) throws JsonLdError {
+            String str = url.toString();
+            try {
+                Document document;
+                if ( ! cache.mapURL(str).equals(str) )
+                    // A local copy is a JSON document, whatever the options.
+                    document = cache.load(str, Document.class, in -> {
+                        try {
+                            return JsonDocument.of(in);
+                        } catch (JsonLdError ex) {
+                            throw new RiotException(ex.getMessage(), ex);
+                        }
+                    }, context);
+                else
+                    // The options change what is loaded (e.g. the scripts of an HTML document).
+                    document = cache.get(key(str, options), Document.class, () -> {
+                        try {
+                            return dftLoader.loadDocument(url, options);
+                        } catch (JsonLdError ex) {
+                            throw new RiotException(ex.getMessage(), ex);
+                        }
+                    });
+                return new LoadedDocument(document, url);
+            } catch (RiotException ex) {
+                if ( ex.getCause() instanceof JsonLdError )
+                    throw (JsonLdError)ex.getCause();
+                throw new JsonLdError(JsonLdErrorCode.LOADING_DOCUMENT_FAILED, ex.getMessage());
+            }
+        }
+
+        private static String key(String url, DocumentLoaderOptions options) {
+            if ( options == null )
+                return url;
+            return url+" "+options.isExtractAllScripts()+" "+options.getProfile()+" "+options.getRequestProfile();
+        }
+    }
+
+    /**
+     * A document from the cache, as loaded by one call of {@link CachingDocumentLoader}.
+     * The content is shared; the document URL and context URL are not.
+     */
+    private static class LoadedDocument implements Document {
+        private final Document document;
+        private URI documentUrl;
+        private URI contextUrl;
+
+        LoadedDocument(Document document, URI documentUrl) {
+            this.document = document;
+            this.documentUrl = documentUrl;
+            this.contextUrl = document.getContextUrl();
+        }
+
+        @Override
+        public MediaType getContentType() {
+            return document.getContentType();
+        }
+
+        @Override
+        public URI getContextUrl() {
+            return contextUrl;
+        }
+
+        @Override
+        public void setContextUrl(URI contextUrl) {
+            this.contextUrl = contextUrl;
+        }
+
+        @Override
+        public URI getDocumentUrl() {
+            return documentUrl;
+        }
+
+        @Override
+        public void setDocumentUrl(URI documentUrl) {
+            this.documentUrl = documentUrl;
+        }
+
+        @Override
+        public Optional<String> getProfile() {
+            return document.getProfile();
+        }
+
+        @Override
+        public Optional<JsonStructure> getJsonContent() {
+            return document.getJsonContent();
+        }
+
+        @Override
+        public Optional<RdfDataset> getRdfContent() {
+            return document.getRdfContent();
+        }
+    }
 }
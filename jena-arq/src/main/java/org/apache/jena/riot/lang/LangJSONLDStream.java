@@ -0,0 +1,836 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.*;
+import java.util.function.Consumer;
+
+import org.apache.jena.atlas.io.PeekReader;
+import org.apache.jena.atlas.json.*;
+import org.apache.jena.atlas.json.io.JSONHandler;
+import org.apache.jena.atlas.json.io.JSONMaker;
+import org.apache.jena.atlas.json.io.parser.JSONP;
+import org.apache.jena.atlas.json.io.parser.TokenizerJSON;
+import org.apache.jena.atlas.web.ContentType;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.*;
+import org.apache.jena.riot.lang.JsonLDStreamContext.TermDef;
+import org.apache.jena.riot.lang.JsonLDStreamContext.Unsupported;
+import org.apache.jena.riot.system.*;
+import org.apache.jena.riot.system.stream.StreamManager;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.vocabulary.RDF;
+
+import com.github.jsonldjava.utils.JsonUtils;
+
+/**
+ * Streaming JSON-LD {@link ReaderRIOT} for large documents.
+ * <p>
+ * The reader works on the JSON parser events and emits triples and quads as each
+ * node object is completed, so memory use depends on the size of a node object, not
+ * the size of the document. It handles expanded and flattened JSON-LD, and compacted
+ * JSON-LD with a context that only defines terms, prefixes, type coercion,
+ * languages and {@code @list}/{@code @set} containers. The contents of a top-level
+ * {@code @graph} array, of a top-level array and of a {@code @graph} array of a node
+ * object with an {@code @id}, are streamed.
+ * <p>
+ * A node object that uses anything else (scoped contexts, {@code @reverse},
+ * {@code @nest}, {@code @included}, {@code @json}, {@code @direction}, ...) is passed
+ * to the full JSON-LD 1.1 processor ({@link Lang#JSONLD11}), with the active context.
+ * Blank node labels are shared with the rest of the document.
+ * <p>
+ * The streaming order imposes some restrictions: a top-level {@code @context} must come
+ * before {@code @graph}, and a streamed top-level {@code @graph} must be the last entry
+ * of the top-level object. This is the layout written by JSON-LD serializers. Other
+ * layouts are an error.
+ * <p>
+ * For {@link Lang#NDJSONLD}, each line is a separate JSON-LD document, usually a single
+ * node object. Blank node labels are scoped to the whole input.
+ * <p>
+ * An initial context can be given in the {@link Context} with {@link JsonLDReader#JSONLD_CONTEXT}.
+ * The value is a JSON string, a {@link JsonValue}, or the JSON-LD java form of JSON
+ * (a {@link Map}), either the context itself or an object with an {@code "@context"} entry.
+ * Remote contexts are loaded with the {@link StreamManager}, and they, and the results of
+ * processing top-level contexts, are kept in the {@link JsonLDContextCache}.
+ */
+public class LangJSONLDStream implements ReaderRIOT {
+
+    public static ReaderRIOTFactory factory = (Lang language, ParserProfile profile) -> new LangJSONLDStream(language, profile);
+
+    // IRI scheme used to pass blank node labels through the full JSON-LD processor.
+    private static final String bnodeMarker = "urn:x-jena-jsonld-stream:bnode:";
+
+    private static final String xsdInteger = XSDDatatype.XSDinteger.getURI();
+    private static final String xsdDouble  = XSDDatatype.XSDdouble.getURI();
+    private static final String xsdBoolean = XSDDatatype.XSDboolean.getURI();
+    private static final BigDecimal maxInteger = new BigDecimal("1E21");
+
+    private final Lang lang;
+    private final ParserProfile profile;
+
+    public LangJSONLDStream(Lang lang, ParserProfile profile) {
+        this.lang = lang;
+        this.profile = profile;
+    }
+
+    @Override
+    public void read(InputStream in, String baseURI, ContentType ct, StreamRDF output, Context context) {
+        read(PeekReader.makeUTF8(in), baseURI, output, context);
+    }
+
+    @Override
+    public void read(Reader in, String baseURI, ContentType ct, StreamRDF output, Context context) {
+        read(PeekReader.make(in), baseURI, output, context);
+    }
+
+    private void read(PeekReader reader, String baseURI, StreamRDF output, Context context) {
+        TokenizerJSON tokenizer = new TokenizerJSON(reader);
+        Parser parser = new Parser(baseURI, output, context);
+        JSONP jsonp = new JSONP(tokenizer, parser);
+        try {
+            if ( Lang.NDJSONLD.equals(lang) ) {
+                while ( tokenizer.hasNext() )
+                    jsonp.parseAny();
+            } else {
+                jsonp.parseAny();
+                if ( tokenizer.hasNext() )
+                    throw new RiotException("JSON-LD: Content after the end of the document");
+            }
+        } catch (JsonException ex) {
+            throw new RiotException(ex.getMessage(), ex);
+        }
+    }
+
+    private enum Event { START_OBJECT, FINISH_OBJECT, START_PAIR, KEY_PAIR, FINISH_PAIR, START_ARRAY, ELEMENT, FINISH_ARRAY,
+                         STRING, INTEGER, DECIMAL, DOUBLE, BOOLEAN, NULL }
+
+    /**
+     * The state for one parse. Containers that are streamed are tracked by a stack of
+     * frames; everything else is built as a {@link JsonValue} by a {@link JSONMaker}.
+     */
+    private class Parser implements JSONHandler {
+        private final String baseURI;
+        private final StreamRDF output;
+        private final Context context;
+        private final JsonLDStreamContext initialContext;
+        private final JsonLDContextCache contextCache;
+        // Last top-level @context, for NDJSON-LD where it is usually the same on every line.
+        private JsonValue lastTopLocal = null;
+        private JsonLDStreamContext lastTopContext = null;
+        private final DecimalFormat doubleFormat = new DecimalFormat("0.0##############E0", new DecimalFormatSymbols(Locale.ENGLISH));
+
+        private final Deque<Frame> stack = new ArrayDeque<>();
+        private JSONMaker maker = null;
+        private int makerDepth = 0;
+        private Consumer<JsonValue> makerAction = null;
+
+        Parser(String baseURI, StreamRDF output, Context context) {
+            this.baseURI = baseURI;
+            this.output = output;
+            this.context = context;
+            this.contextCache = JsonLDContextCache.get(context);
+            JsonLDStreamContext cxt = JsonLDStreamContext.create(baseURI);
+            JsonValue initial = initialContext(context);
+            if ( initial != null ) {
+                cxt = extendCached(cxt, initial);
+                JsonLDStreamContext.prefixes(initial, output::prefix);
+            }
+            this.initialContext = cxt;
+        }
+
+        // ---- Events
+
+        private void event(Event ev, String image, long line, long col) {
+            if ( maker != null ) {
+                feed(ev, image, line, col);
+                return;
+            }
+            if ( stack.isEmpty() ) {
+                // Start of a document.
+                switch (ev) {
+                    case START_OBJECT:
+                        stack.push(new NodeFrame(true, initialContext, null));
+                        return;
+                    case START_ARRAY:
+                        stack.push(new ArrayFrame(initialContext, null));
+                        return;
+                    default:
+                        throw new RiotException("JSON-LD: Not a JSON object or array ["+line+", "+col+"]");
+                }
+            }
+            stack.peek().event(ev, image, line, col);
+        }
+
+        // Build the next JSON value and then call the action.
+        private void materialize(Consumer<JsonValue> action, Event ev, String image, long line, long col) {
+            maker = new JSONMaker();
+            makerDepth = 0;
+            makerAction = action;
+            feed(ev, image, line, col);
+        }
+
+        private void feed(Event ev, String image, long line, long col) {
+            switch (ev) {
+                case START_OBJECT:  makerDepth++; maker.startObject(line, col);   break;
+                case FINISH_OBJECT: makerDepth--; maker.finishObject(line, col);  break;
+                case START_ARRAY:   makerDepth++; maker.startArray(line, col);    break;
+                case FINISH_ARRAY:  makerDepth--; maker.finishArray(line, col);   break;
+                case START_PAIR:    maker.startPair(line, col);  return;
+                case KEY_PAIR:      maker.keyPair(line, col);    return;
+                case FINISH_PAIR:   maker.finishPair(line, col); return;
+                case ELEMENT:       maker.element(line, col);    return;
+                case STRING:        maker.valueString(image, line, col);  break;
+                case INTEGER:       maker.valueInteger(image, line, col); break;
+                case DECIMAL:       maker.valueDecimal(image, line, col); break;
+                case DOUBLE:        maker.valueDouble(image, line, col);  break;
+                case BOOLEAN:       maker.valueBoolean(Boolean.parseBoolean(image), line, col); break;
+                case NULL:          maker.valueNull(line, col); break;
+            }
+            if ( makerDepth > 0 )
+                return;
+            JsonValue value = maker.jsonValue();
+            Consumer<JsonValue> action = makerAction;
+            maker = null;
+            makerAction = null;
+            action.accept(value);
+        }
+
+        private abstract class Frame {
+            final JsonLDStreamContext cxt;
+            final Node graph;
+            Frame(JsonLDStreamContext cxt, Node graph) {
+                this.cxt = cxt;
+                this.graph = graph;
+            }
+            abstract void event(Event ev, String image, long line, long col);
+        }
+
+        /** A streamed array of node objects: top-level or the value of {@code @graph}. */
+        private class ArrayFrame extends Frame {
+            ArrayFrame(JsonLDStreamContext cxt, Node graph) {
+                super(cxt, graph);
+            }
+
+            @Override
+            void event(Event ev, String image, long line, long col) {
+                switch (ev) {
+                    case START_OBJECT:
+                        stack.push(new NodeFrame(false, cxt, graph));
+                        return;
+                    case ELEMENT:
+                        return;
+                    case FINISH_ARRAY:
+                        stack.pop();
+                        return;
+                    default:
+                        materialize(v -> element(v, graph, cxt), ev, image, line, col);
+                }
+            }
+        }
+
+        /**
+         * A JSON object: the top-level object or an element of a streamed array.
+         * Entries are built as JSON values, except a {@code @graph} that can be streamed.
+         */
+        private class NodeFrame extends Frame {
+            private final boolean top;
+            private JsonLDStreamContext frameCxt;
+            private final JsonObject entries = new JsonObject();
+            private String key = null;
+            private boolean inValue = false;
+            // Set by the key "@graph" if the value can be streamed.
+            private boolean graphPending = false;
+            private Node graphName = null;
+            private boolean streamed = false;
+
+            NodeFrame(boolean top, JsonLDStreamContext cxt, Node graph) {
+                super(cxt, graph);
+                this.top = top;
+                this.frameCxt = cxt;
+            }
+
+            @Override
+            void event(Event ev, String image, long line, long col) {
+                switch (ev) {
+                    case START_PAIR:
+                        return;
+                    case KEY_PAIR:
+                        startValue(line, col);
+                        inValue = true;
+                        return;
+                    case FINISH_PAIR:
+                        key = null;
+                        inValue = false;
+                        graphPending = false;
+                        return;
+                    case FINISH_OBJECT:
+                        stack.pop();
+                        finish();
+                        return;
+                    default:
+                }
+                if ( inValue ) {
+                    if ( graphPending && ev == Event.START_ARRAY ) {
+                        streamed = true;
+                        stack.push(new ArrayFrame(frameCxt, graphName));
+                        return;
+                    }
+                    String k = key;
+                    materialize(v -> entry(k, v), ev, image, line, col);
+                    return;
+                }
+                if ( ev == Event.STRING && key == null ) {
+                    key = image;
+                    return;
+                }
+                throw new RiotException("JSON-LD: Unexpected JSON ["+line+", "+col+"]");
+            }
+
+            // The key has been read; decide how to handle the value.
+            private void startValue(long line, long col) {
+                if ( key.equals("@context") ) {
+                    if ( streamed )
+                        throw new RiotException("JSON-LD stream: @context after a streamed @graph ["+line+", "+col+"]");
+                    return;
+                }
+                String kw = keyword(frameCxt, key);
+                if ( "@graph".equals(kw) && ! streamed ) {
+                    if ( top && entries.isEmpty() ) {
+                        // The default graph.
+                        graphName = null;
+                        graphPending = true;
+                        return;
+                    }
+                    JsonValue id = idEntry(entries, frameCxt);
+                    if ( id != null && ! frameCxt.isUnsupported() ) {
+                        try {
+                            graphName = subject(id, frameCxt);
+                            graphPending = true;
+                        } catch (Unsupported ex) {}
+                    }
+                    return;
+                }
+                if ( streamed && top && graphName == null )
+                    throw new RiotException("JSON-LD stream: Key after a streamed top-level @graph: "+key+" ["+line+", "+col+"]");
+            }
+
+            private void entry(String k, JsonValue value) {
+                if ( k.equals("@context") ) {
+                    frameCxt = top ? topContext(frameCxt, value) : frameCxt.extend(value, Parser.this::loadContext);
+                    return;
+                }
+                entries.put(k, value);
+            }
+
+            private void finish() {
+                if ( streamed ) {
+                    // Default graph: nothing else. Named graph: the node object itself.
+                    if ( graphName != null )
+                        element(entries, graph, frameCxt);
+                    return;
+                }
+                if ( top ) {
+                    topObject(entries, frameCxt);
+                    return;
+                }
+                element(entries, graph, frameCxt);
+            }
+        }
+
+        // ---- JSONHandler
+
+        @Override public void startParse(long currLine, long currCol)                     {}
+        @Override public void finishParse(long currLine, long currCol)                    {}
+        @Override public void startObject(long currLine, long currCol)                    { event(Event.START_OBJECT, null, currLine, currCol); }
+        @Override public void finishObject(long currLine, long currCol)                   { event(Event.FINISH_OBJECT, null, currLine, currCol); }
+        @Override public void startPair(long currLine, long currCol)                      { event(Event.START_PAIR, null, currLine, currCol); }
+        @Override public void keyPair(long currLine, long currCol)                        { event(Event.KEY_PAIR, null, currLine, currCol); }
+        @Override public void finishPair(long currLine, long currCol)                     { event(Event.FINISH_PAIR, null, currLine, currCol); }
+        @Override public void startArray(long currLine, long currCol)                     { event(Event.START_ARRAY, null, currLine, currCol); }
+        @Override public void element(long currLine, long currCol)                        { event(Event.ELEMENT, null, currLine, currCol); }
+        @Override public void finishArray(long currLine, long currCol)                    { event(Event.FINISH_ARRAY, null, currLine, currCol); }
+        @Override public void valueString(String image, long currLine, long currCol)      { event(Event.STRING, image, currLine, currCol); }
+        @Override public void valueInteger(String image, long currLine, long currCol)     { event(Event.INTEGER, image, currLine, currCol); }
+        @Override public void valueDouble(String image, long currLine, long currCol)      { event(Event.DOUBLE, image, currLine, currCol); }
+        @Override public void valueDecimal(String image, long currLine, long currCol)     { event(Event.DECIMAL, image, currLine, currCol); }
+        @Override public void valueBoolean(boolean b, long currLine, long currCol)        { event(Event.BOOLEAN, Boolean.toString(b), currLine, currCol); }
+        @Override public void valueNull(long currLine, long currCol)                      { event(Event.NULL, null, currLine, currCol); }
+
+        // ---- Contexts
+
+        private JsonValue initialContext(Context context) {
+            Object x = ( context == null ) ? null : context.get(JsonLDReader.JSONLD_CONTEXT);
+            if ( x == null )
+                return null;
+            JsonValue v;
+            if ( x instanceof JsonValue )
+                v = (JsonValue)x;
+            else if ( x instanceof String )
+                v = JSON.parseAny((String)x);
+            else
+                // As for JsonLDReader: JSON-LD java objects (Map, List).
+                v = JSON.parseAny(JsonUtils.toString(x));
+            if ( v.isObject() && v.getAsObject().hasKey("@context") )
+                v = v.getAsObject().get("@context");
+            return v;
+        }
+
+        private JsonLDStreamContext topContext(JsonLDStreamContext cxt, JsonValue local) {
+            if ( cxt == initialContext && lastTopLocal != null && lastTopLocal.equals(local) )
+                return lastTopContext;
+            JsonLDStreamContext c = extendCached(cxt, local);
+            JsonLDStreamContext.prefixes(local, output::prefix);
+            if ( cxt == initialContext ) {
+                lastTopLocal = local;
+                lastTopContext = c;
+            }
+            return c;
+        }
+
+        // Processed contexts are shared between parses.
+        private JsonLDStreamContext extendCached(JsonLDStreamContext cxt, JsonValue local) {
+            String key = baseURI+"\n"+JSON.toStringFlat(cxt.raw())+"\n"+JSON.toStringFlat(local);
+            return contextCache.get(key, JsonLDStreamContext.class, () -> cxt.extend(local, this::loadContext));
+        }
+
+        private JsonValue loadContext(String url) {
+            return contextCache.load(url, JsonValue.class, JSON::parseAny, context);
+        }
+
+        // ---- Conversion of a JSON-LD element to RDF
+
+        /** A top-level object: a node object, or a graph of node objects in the default graph. */
+        private void topObject(JsonObject obj, JsonLDStreamContext cxt) {
+            if ( obj.isEmpty() )
+                return;
+            if ( obj.size() == 1 ) {
+                String k = obj.keys().iterator().next();
+                if ( "@graph".equals(keyword(cxt, k)) ) {
+                    element(obj.get(k), null, cxt);
+                    return;
+                }
+            }
+            element(obj, null, cxt);
+        }
+
+        /**
+         * Emit the RDF for an element of a graph. Each node object is converted, or, if that
+         * is not possible, passed to the full JSON-LD processor.
+         */
+        private void element(JsonValue value, Node graph, JsonLDStreamContext cxt) {
+            if ( value.isArray() ) {
+                value.getAsArray().forEach(v -> element(v, graph, cxt));
+                return;
+            }
+            if ( ! value.isObject() )
+                return;
+            List<Quad> acc = new ArrayList<>();
+            try {
+                graphElement(value.getAsObject(), graph, cxt, acc);
+            } catch (Unsupported ex) {
+                fallback(value, graph, cxt);
+                return;
+            }
+            for ( Quad q : acc ) {
+                if ( q.isDefaultGraph() )
+                    output.triple(q.asTriple());
+                else
+                    output.quad(q);
+            }
+        }
+
+        private void graphElement(JsonObject obj, Node graph, JsonLDStreamContext cxt, List<Quad> acc) {
+            if ( cxt.isUnsupported() )
+                throw new Unsupported("Context");
+            for ( String k : obj.keys() ) {
+                String kw = cxt.keyword(k);
+                if ( kw == null )
+                    continue;
+                switch (kw) {
+                    case "@value": case "@list":
+                        // Free-floating values and lists.
+                        return;
+                    case "@set":
+                        for ( JsonValue v : asList(obj.get(k)) ) {
+                            if ( v.isObject() )
+                                graphElement(v.getAsObject(), graph, cxt, acc);
+                        }
+                        return;
+                    default:
+                }
+            }
+            node(obj, graph, cxt, acc);
+        }
+
+        /** A node object: return the subject. */
+        private Node node(JsonObject obj, Node graph, JsonLDStreamContext cxt, List<Quad> acc) {
+            JsonValue local = obj.get("@context");
+            if ( local != null ) {
+                cxt = cxt.extend(local, this::loadContext);
+                if ( cxt.isUnsupported() )
+                    throw new Unsupported("Context");
+            }
+            JsonValue id = null;
+            JsonValue types = null;
+            JsonValue graphValue = null;
+            List<String> properties = new ArrayList<>();
+            for ( String k : obj.keys() ) {
+                if ( k.equals("@context") )
+                    continue;
+                String kw = cxt.keyword(k);
+                if ( kw == null ) {
+                    // Keyword-like keys are ignored.
+                    if ( ! k.startsWith("@") )
+                        properties.add(k);
+                    continue;
+                }
+                switch (kw) {
+                    case "@id":     id = obj.get(k); break;
+                    case "@type":   types = obj.get(k); break;
+                    case "@graph":  graphValue = obj.get(k); break;
+                    case "@index":  break;
+                    default:
+                        throw new Unsupported(kw);
+                }
+            }
+            Node subject = ( id == null ) ? profile.createBlankNode(null, -1, -1) : subject(id, cxt);
+            if ( types != null ) {
+                for ( JsonValue t : asList(types) ) {
+                    if ( ! t.isString() )
+                        throw new Unsupported("@type");
+                    Node type = resource(cxt.expandIRI(t.getAsString().value(), true, true));
+                    if ( type != null )
+                        add(acc, graph, subject, RDF.Nodes.type, type);
+                }
+            }
+            for ( String k : properties ) {
+                String iri = cxt.expandIRI(k, true, false);
+                // Keys that do not expand to an IRI are dropped.
+                if ( iri == null || JsonLDStreamContext.isBlankNode(iri) || ! JsonLDStreamContext.isAbsolute(iri) )
+                    continue;
+                TermDef def = cxt.term(k);
+                Node property = profile.createURI(iri, -1, -1);
+                JsonValue value = obj.get(k);
+                if ( def != null && def.list ) {
+                    JsonValue listObj = listObject(value, cxt);
+                    JsonValue items = ( listObj != null ) ? listObj : value;
+                    add(acc, graph, subject, property, list(items, def, graph, cxt, acc));
+                    continue;
+                }
+                objects(value, def, graph, cxt, acc, o -> add(acc, graph, subject, property, o));
+            }
+            if ( graphValue != null ) {
+                for ( JsonValue v : asList(graphValue) ) {
+                    if ( v.isObject() )
+                        graphElement(v.getAsObject(), subject, cxt, acc);
+                }
+            }
+            return subject;
+        }
+
+        private void objects(JsonValue value, TermDef def, Node graph, JsonLDStreamContext cxt, List<Quad> acc, Consumer<Node> action) {
+            if ( value.isArray() ) {
+                for ( JsonValue v : value.getAsArray() )
+                    objects(v, def, graph, cxt, acc, action);
+                return;
+            }
+            if ( value.isNull() )
+                return;
+            String type = ( def == null ) ? null : def.type;
+            if ( value.isString() ) {
+                String str = value.getAsString().value();
+                Node n;
+                if ( "@id".equals(type) )
+                    n = resource(cxt.expandIRI(str, false, true));
+                else if ( "@vocab".equals(type) )
+                    n = resource(cxt.expandIRI(str, true, true));
+                else if ( type != null )
+                    n = profile.createTypedLiteral(str, NodeFactory.getType(type), -1, -1);
+                else {
+                    String langTag = ( def != null && def.hasLanguage ) ? def.language : cxt.language();
+                    n = ( langTag == null )
+                        ? profile.createStringLiteral(str, -1, -1)
+                        : profile.createLangLiteral(str, langTag, -1, -1);
+                }
+                if ( n != null )
+                    action.accept(n);
+                return;
+            }
+            if ( value.isNumber() || value.isBoolean() ) {
+                String datatype = ( type == null || type.startsWith("@") ) ? null : type;
+                action.accept(nativeLiteral(value, datatype));
+                return;
+            }
+            JsonObject obj = value.getAsObject();
+            Map<String, JsonValue> keywords = new HashMap<>();
+            boolean others = false;
+            for ( String k : obj.keys() ) {
+                String kw = cxt.keyword(k);
+                if ( kw != null )
+                    keywords.put(kw, obj.get(k));
+                else
+                    others = true;
+            }
+            if ( keywords.containsKey("@value") ) {
+                if ( others )
+                    throw new Unsupported("Value object");
+                action.accept(valueObject(keywords, cxt));
+                return;
+            }
+            if ( keywords.containsKey("@list") ) {
+                if ( others )
+                    throw new Unsupported("List object");
+                action.accept(list(keywords.get("@list"), def, graph, cxt, acc));
+                return;
+            }
+            if ( keywords.containsKey("@set") ) {
+                if ( others )
+                    throw new Unsupported("Set object");
+                objects(keywords.get("@set"), def, graph, cxt, acc, action);
+                return;
+            }
+            action.accept(node(obj, graph, cxt, acc));
+        }
+
+        private Node valueObject(Map<String, JsonValue> keywords, JsonLDStreamContext cxt) {
+            for ( String kw : keywords.keySet() ) {
+                switch (kw) {
+                    case "@value": case "@type": case "@language": case "@index":
+                        break;
+                    default:
+                        throw new Unsupported(kw);
+                }
+            }
+            JsonValue value = keywords.get("@value");
+            JsonValue type = keywords.get("@type");
+            JsonValue langTag = keywords.get("@language");
+            if ( type != null && langTag != null )
+                throw new Unsupported("@type and @language");
+            String datatype = null;
+            if ( type != null ) {
+                if ( ! type.isString() )
+                    throw new Unsupported("@type");
+                datatype = cxt.expandIRI(type.getAsString().value(), true, true);
+                if ( datatype == null || ! JsonLDStreamContext.isAbsolute(datatype) )
+                    throw new Unsupported("@type");
+            }
+            if ( langTag != null && ! langTag.isString() )
+                throw new Unsupported("@language");
+            if ( value.isString() ) {
+                String str = value.getAsString().value();
+                if ( langTag != null )
+                    return profile.createLangLiteral(str, langTag.getAsString().value(), -1, -1);
+                if ( datatype != null )
+                    return profile.createTypedLiteral(str, NodeFactory.getType(datatype), -1, -1);
+                return profile.createStringLiteral(str, -1, -1);
+            }
+            if ( langTag == null && ( value.isNumber() || value.isBoolean() ) )
+                return nativeLiteral(value, datatype);
+            // @value null is invalid in a property value (it is dropped by expansion).
+            throw new Unsupported("@value");
+        }
+
+        // JSON-LD 1.1 API, section 8.6, step 10.
+        private Node nativeLiteral(JsonValue value, String datatype) {
+            if ( value.isBoolean() ) {
+                String lex = Boolean.toString(value.getAsBoolean().value());
+                return profile.createTypedLiteral(lex, NodeFactory.getType(datatype == null ? xsdBoolean : datatype), -1, -1);
+            }
+            BigDecimal number = (BigDecimal)value.getAsNumber().value();
+            boolean integral = number.signum() == 0 || number.stripTrailingZeros().scale() <= 0;
+            if ( integral && number.abs().compareTo(maxInteger) < 0 && ! xsdDouble.equals(datatype) ) {
+                String lex = number.toBigIntegerExact().toString();
+                return profile.createTypedLiteral(lex, NodeFactory.getType(datatype == null ? xsdInteger : datatype), -1, -1);
+            }
+            String lex = doubleFormat.format(number.doubleValue());
+            return profile.createTypedLiteral(lex, NodeFactory.getType(datatype == null ? xsdDouble : datatype), -1, -1);
+        }
+
+        private Node list(JsonValue items, TermDef def, Node graph, JsonLDStreamContext cxt, List<Quad> acc) {
+            List<Node> nodes = new ArrayList<>();
+            for ( JsonValue item : asList(items) ) {
+                if ( item.isArray() )
+                    // List of lists (JSON-LD 1.1)
+                    nodes.add(list(item, def, graph, cxt, acc));
+                else
+                    objects(item, def, graph, cxt, acc, nodes::add);
+            }
+            Node head = RDF.Nodes.nil;
+            for ( int i = nodes.size()-1 ; i >= 0 ; i-- ) {
+                Node cell = profile.createBlankNode(null, -1, -1);
+                add(acc, graph, cell, RDF.Nodes.first, nodes.get(i));
+                add(acc, graph, cell, RDF.Nodes.rest, head);
+                head = cell;
+            }
+            return head;
+        }
+
+        // The value of "@list" if the value is a list object.
+        private JsonValue listObject(JsonValue value, JsonLDStreamContext cxt) {
+            if ( ! value.isObject() )
+                return null;
+            for ( String k : value.getAsObject().keys() ) {
+                if ( "@list".equals(cxt.keyword(k)) )
+                    return value.getAsObject().get(k);
+            }
+            return null;
+        }
+
+        private Node subject(JsonValue id, JsonLDStreamContext cxt) {
+            if ( ! id.isString() )
+                throw new Unsupported("@id");
+            Node n = resource(cxt.expandIRI(id.getAsString().value(), false, true));
+            if ( n == null )
+                throw new Unsupported("@id");
+            return n;
+        }
+
+        /** IRI or blank node for an expanded IRI. */
+        private Node resource(String iri) {
+            if ( iri == null || JsonLDStreamContext.keywords.contains(iri) )
+                return null;
+            if ( JsonLDStreamContext.isBlankNode(iri) )
+                return profile.createBlankNode(null, iri.substring(2), -1, -1);
+            if ( ! JsonLDStreamContext.isAbsolute(iri) )
+                // Relative IRI and no base.
+                throw new Unsupported("Relative IRI: "+iri);
+            return profile.createURI(iri, -1, -1);
+        }
+
+        private void add(List<Quad> acc, Node graph, Node s, Node p, Node o) {
+            Node g = ( graph == null ) ? Quad.defaultGraphNodeGenerated : graph;
+            acc.add(profile.createQuad(g, s, p, o, -1, -1));
+        }
+
+        // ---- Fallback to the full JSON-LD processor.
+
+        private void fallback(JsonValue element, Node graph, JsonLDStreamContext cxt) {
+            ReaderRIOTFactory f = RDFParserRegistry.getFactory(Lang.JSONLD11);
+            if ( f == null )
+                throw new RiotException("JSON-LD stream: No JSON-LD 1.1 parser for constructs that can not be streamed");
+            JsonObject document = new JsonObject();
+            if ( ! cxt.raw().isEmpty() )
+                document.put("@context", cxt.raw());
+            JsonArray array = new JsonArray();
+            array.add(encodeBlankNodes(element));
+            document.put("@graph", array);
+            // A new profile each time so that blank nodes are not shared between calls.
+            ReaderRIOT reader = f.create(Lang.JSONLD11, RiotLib.dftProfile());
+            reader.read(new StringReader(JSON.toStringFlat(document)), baseURI, null, new StreamFallback(graph), context);
+        }
+
+        /** Replace blank node identifiers so that they pass through the full processor unchanged. */
+        private JsonValue encodeBlankNodes(JsonValue value) {
+            if ( value.isString() ) {
+                String str = value.getAsString().value();
+                return JsonLDStreamContext.isBlankNode(str) ? new JsonString(bnodeMarker+str.substring(2)) : value;
+            }
+            if ( value.isArray() ) {
+                JsonArray array = new JsonArray();
+                value.getAsArray().forEach(v -> array.add(encodeBlankNodes(v)));
+                return array;
+            }
+            if ( value.isObject() ) {
+                JsonObject obj = new JsonObject();
+                value.getAsObject().forEach((k, v) -> obj.put(k, k.equals("@context") ? v : encodeBlankNodes(v)));
+                return obj;
+            }
+            return value;
+        }
+
+        /** Output of the full processor: restore blank nodes and put the default graph in the current graph. */
+        private class StreamFallback extends StreamRDFBase {
+            private final Node graph;
+
+            StreamFallback(Node graph) {
+                this.graph = graph;
+            }
+
+            @Override
+            public void triple(Triple triple) {
+                emit(graph, triple.getSubject(), triple.getPredicate(), triple.getObject());
+            }
+
+            @Override
+            public void quad(Quad quad) {
+                Node g = quad.isDefaultGraph() ? graph : decode(quad.getGraph());
+                emit(g, quad.getSubject(), quad.getPredicate(), quad.getObject());
+            }
+
+            private void emit(Node g, Node s, Node p, Node o) {
+                p = decode(p);
+                if ( p.isBlank() )
+                    return;
+                s = decode(s);
+                o = decode(o);
+                if ( g == null )
+                    output.triple(Triple.create(s, p, o));
+                else
+                    output.quad(Quad.create(g, s, p, o));
+            }
+
+            private Node decode(Node n) {
+                if ( n.isURI() && n.getURI().startsWith(bnodeMarker) )
+                    return profile.createBlankNode(null, n.getURI().substring(bnodeMarker.length()), -1, -1);
+                if ( n.isLiteral() && n.getLiteralLexicalForm().startsWith(bnodeMarker) ) {
+                    String lex = "_:"+n.getLiteralLexicalForm().substring(bnodeMarker.length());
+                    String langTag = n.getLiteralLanguage();
+                    return langTag.isEmpty()
+                        ? NodeFactory.createLiteral(lex, n.getLiteralDatatype())
+                        : NodeFactory.createLiteral(lex, langTag);
+                }
+                return n;
+            }
+        }
+    }
+
+    // ---- Helpers
+
+    private static List<JsonValue> asList(JsonValue value) {
+        return value.isArray() ? value.getAsArray() : List.of(value);
+    }
+
+    /** The keyword, or alias of a keyword, for a key, or null. */
+    private static String keyword(JsonLDStreamContext cxt, String key) {
+        try {
+            return cxt.keyword(key);
+        } catch (Unsupported ex) {
+            return null;
+        }
+    }
+
+    /** The value of the {@code @id} entry. */
+    private static JsonValue idEntry(JsonObject obj, JsonLDStreamContext cxt) {
+        for ( String k : obj.keys() ) {
+            if ( "@id".equals(keyword(cxt, k)) )
+                return obj.get(k);
+        }
+        return null;
+    }
+}
@@ -27,18 +27,31 @@ import org.apache.jena.riot.protobuf.wire.PB_RDF.*;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 
-/** Converted from Bindings to SPARQL result set encoded in Protobuf */
+/**
+ * Converted from Bindings to SPARQL result set encoded in Protobuf.
+ * <p>
+ * Optionally, a value that is the same as the value of the variable in the previous row
+ * is written as {@code REPEAT}.
+ */
 public class Binding2Protobuf implements AutoCloseable {
     private final RDF_DataTuple.Builder row = RDF_DataTuple.newBuilder();
     private final RDF_Term.Builder term = RDF_Term.newBuilder();
     private final Collection<Var> vars ;
     private final OutputStream out ;
     private final boolean encodeValues ;
+    // Previous row, for REPEAT. Null if not encoding repeats.
+    private final Node[] lastRow ;
 
     public Binding2Protobuf(OutputStream out, Collection<Var> vars, boolean encodeValues) {
+        this(out, vars, encodeValues, false) ;
+    }
+
+    public Binding2Protobuf(OutputStream out, Collection<Var> vars, boolean encodeValues, boolean encodeRepeats) {
         this.out = out ;
         this.vars = vars ;
         this.encodeValues = encodeValues ;
+        // Repeats need the same variables, in the same order, in every row.
+        this.lastRow = ( encodeRepeats && vars != null ) ? new Node[vars.size()] : null ;
         varsRow() ;
     }
 
@@ -58,12 +71,17 @@ public class Binding2Protobuf implements AutoCloseable {
         Iterator<Var> vIter = (vars == null ? null : vars.iterator()) ;
         if ( vIter == null )
             vIter = binding.vars() ;
-        vIter.forEachRemaining(v -> {
+        for ( int i = 0 ; vIter.hasNext() ; i++ ) {
+            Var v = vIter.next();
             term.clear();
             Node n = binding.get(v) ;
-            RDF_Term rt = ProtobufConvert.toProtobuf(n, term, encodeValues);
+            RDF_Term rt = ( lastRow != null && n != null && n.equals(lastRow[i]) )
+                ? ProtobufConvert.REPEAT
+                : ProtobufConvert.toProtobuf(n, term, encodeValues);
+            if ( lastRow != null )
+                lastRow[i] = n ;
             row.addRow(rt);
-        }) ;
+        }
         PBufRDF.writeDelimitedTo(row.build(), out);
     }
 
@@ -34,13 +34,18 @@ import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.engine.binding.BindingBuilder;
 
-/** Converted from SPARQL result set encoded in Thrift to Bindings */
+/**
+ * Converted from SPARQL result set encoded in Protobuf to Bindings.
+ * A {@code REPEAT} is the value of the variable in the previous row.
+ */
 public class Protobuf2Binding extends IteratorSlotted<Binding> implements Iterator<Binding> {
 
     private List<Var> vars = new ArrayList<>() ;
     private List<String> varNames = new ArrayList<>() ;
     private InputStream input ;
     private BindingBuilder b = Binding.builder() ;
+    // Previous row, for REPEAT.
+    private Node[] lastRow ;
 
     public Protobuf2Binding(InputStream input) {
         this.input = input ;
@@ -53,6 +58,7 @@ public class Protobuf2Binding extends IteratorSlotted<Binding> implements Iterat
             if ( vrow != null )
                 vrow.getVarsList().forEach(rv->varNames.add(rv.getName()));
             vars = Var.varList(varNames) ;
+            lastRow = new Node[vars.size()] ;
         } catch (IOException ex) { IO.exception(ex); }
     }
 
@@ -74,9 +80,18 @@ public class Protobuf2Binding extends IteratorSlotted<Binding> implements Iterat
                 // Old school
                 Var v = vars.get(i) ;
                 RDF_Term rt = row.get(i) ;
-                if ( rt.hasUndefined() )
+                if ( rt.hasUndefined() ) {
+                    lastRow[i] = null ;
                     continue ;
-                Node n = ProtobufConvert.convert(rt) ;
+                }
+                Node n ;
+                if ( rt.hasRepeat() ) {
+                    n = lastRow[i] ;
+                    if ( n == null )
+                        throw new RiotProtobufException("REPEAT without a previous value for "+v) ;
+                } else
+                    n = ProtobufConvert.convert(rt) ;
+                lastRow[i] = n ;
                 b.add(v, n) ;
             }
         } catch (IOException ex) { IO.exception(ex); }
@@ -18,16 +18,20 @@
 
 package org.apache.jena.riot.protobuf;
 
+import org.apache.jena.graph.Node ;
 import org.apache.jena.graph.Triple ;
 import org.apache.jena.riot.protobuf.wire.PB_RDF.RDF_IRI;
 import org.apache.jena.riot.protobuf.wire.PB_RDF.RDF_PrefixDecl;
 import org.apache.jena.riot.protobuf.wire.PB_RDF.RDF_Quad;
+import org.apache.jena.riot.protobuf.wire.PB_RDF.RDF_Term;
 import org.apache.jena.riot.protobuf.wire.PB_RDF.RDF_Triple;
 import org.apache.jena.riot.system.PrefixMap ;
 import org.apache.jena.riot.system.StreamRDF ;
 import org.apache.jena.sparql.core.Quad ;
 
 /** Protobuf RDF (wire format items) to StreamRDF terms (Jena java objects)
+ * <p>
+ * A {@code REPEAT} term is the term in the same position of the previous triple or quad.
  *
  * @see StreamRDF2Protobuf for the reverse process.
  */
@@ -37,6 +41,12 @@ public class Protobuf2StreamRDF implements VisitorStreamRowProtoRDF {
     private final StreamRDF dest ;
     private final PrefixMap pmap ;
 
+    // Previous row, for REPEAT.
+    private Node lastSubject   = null ;
+    private Node lastPredicate = null ;
+    private Node lastObject    = null ;
+    private Node lastGraph     = null ;
+
     public Protobuf2StreamRDF(PrefixMap pmap, StreamRDF stream) {
         this.pmap = pmap ;
         this.dest = stream ;
@@ -44,16 +54,36 @@ public class Protobuf2StreamRDF implements VisitorStreamRowProtoRDF {
 
     @Override
     public void visit(RDF_Triple rt) {
-        Triple t = ProtobufConvert.convert(rt, pmap) ;
+        lastSubject = convert(rt.getS(), lastSubject) ;
+        lastPredicate = convert(rt.getP(), lastPredicate) ;
+        lastObject = convert(rt.getO(), lastObject) ;
+        Triple t = Triple.create(lastSubject, lastPredicate, lastObject) ;
         dest.triple(t) ;
     }
 
     @Override
     public void visit(RDF_Quad rq) {
-        Quad q = ProtobufConvert.convert(rq, pmap) ;
+        Node g = null ;
+        if ( rq.hasG() ) {
+            lastGraph = convert(rq.getG(), lastGraph) ;
+            g = lastGraph ;
+        }
+        lastSubject = convert(rq.getS(), lastSubject) ;
+        lastPredicate = convert(rq.getP(), lastPredicate) ;
+        lastObject = convert(rq.getO(), lastObject) ;
+        Quad q = Quad.create(g, lastSubject, lastPredicate, lastObject) ;
         dest.quad(q) ;
     }
 
+    private Node convert(RDF_Term term, Node previous) {
+        if ( term.hasRepeat() ) {
+            if ( previous == null )
+                throw new RiotProtobufException("REPEAT without a previous term") ;
+            return previous ;
+        }
+        return ProtobufConvert.convert(term, pmap) ;
+    }
+
     @Override
     public void visit(RDF_PrefixDecl prefixDecl) {
         String prefix = prefixDecl.getPrefix() ;
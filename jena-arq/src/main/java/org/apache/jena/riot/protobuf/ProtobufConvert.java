@@ -118,6 +118,10 @@ public class ProtobufConvert
     private static RDF_ANY rdfANY = RDF_ANY.newBuilder().build();
     private static RDF_Term ANY = RDF_Term.newBuilder().setAny(rdfANY).build();
 
+    private static RDF_REPEAT rdfREPEAT = RDF_REPEAT.newBuilder().build();
+    /** The term 'REPEAT' : the same term as in the same position of the previous row. */
+    static final RDF_Term REPEAT = RDF_Term.newBuilder().setRepeat(rdfREPEAT).build();
+
     private static String dtXSDString = XSDDatatype.XSDstring.getURI();
 
     private static final PrefixMap emptyPrefixMap = PrefixMapFactory.emptyPrefixMap() ;
@@ -183,7 +187,8 @@ public class ProtobufConvert
             case ANY :
                 return Node.ANY ;
             case REPEAT :
-                throw new RiotProtobufException("REPEAT not implemented") ;
+                // Resolved by the stream and result set decoders.
+                throw new RiotProtobufException("REPEAT without a previous row") ;
             case UNDEFINED :
                 return null;
             case VALINTEGER : {
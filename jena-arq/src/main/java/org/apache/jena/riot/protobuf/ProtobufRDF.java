@@ -82,9 +82,19 @@ public class ProtobufRDF {
      * The output stream is written with "writeDelimitedTo".
      */
     public static StreamRDF streamToOutputStream(OutputStream output, boolean withValues) {
+        return streamToOutputStream(output, withValues, false);
+    }
+
+    /**
+     * An {@link StreamRDF} that writes to an output stream.
+     * The output stream is written with "writeDelimitedTo".
+     * If {@code withRepeats} is true, a term that is the same as in the previous triple or quad
+     * is written as {@code REPEAT}.
+     */
+    public static StreamRDF streamToOutputStream(OutputStream output, boolean withValues, boolean withRepeats) {
         output = IO.ensureBuffered(output);
         try {
-            return StreamRDF2Protobuf.createDelimited(output, withValues);
+            return StreamRDF2Protobuf.createDelimited(output, withValues, withRepeats);
         } finally { IO.flush(output); }
     }
 
@@ -152,10 +162,19 @@ public class ProtobufRDF {
      * Write a {@link ResultSet} to an output stream (with delimiters per row)
      */
     public static void writeResultSet(OutputStream out, ResultSet resultSet, boolean withValues) {
+        writeResultSet(out, resultSet, withValues, false);
+    }
+
+    /**
+     * Write a {@link ResultSet} to an output stream (with delimiters per row).
+     * If {@code withRepeats} is true, a value that is the same as the value of the variable
+     * in the previous row is written as {@code REPEAT}.
+     */
+    public static void writeResultSet(OutputStream out, ResultSet resultSet, boolean withValues, boolean withRepeats) {
         out = IO.ensureBuffered(out);
         try {
             List<Var> vars = Var.varList(resultSet.getResultVars()) ;
-            try ( Binding2Protobuf b2p = new Binding2Protobuf(out, vars, false) ) {
+            try ( Binding2Protobuf b2p = new Binding2Protobuf(out, vars, withValues, withRepeats) ) {
                 for ( ; resultSet.hasNext() ; ) {
                     Binding b = resultSet.nextBinding();
                     b2p.output(b);
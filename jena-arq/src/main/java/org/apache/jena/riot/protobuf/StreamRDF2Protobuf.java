@@ -23,6 +23,7 @@ import java.io.OutputStream;
 import java.util.function.Consumer;
 
 import org.apache.jena.atlas.io.IO;
+import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.riot.protobuf.wire.PB_RDF.*;
 import org.apache.jena.riot.system.PrefixMap;
@@ -31,28 +32,41 @@ import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.sparql.core.Quad;
 
 /** Encode StreamRDF in RDF_StreamRow and send to a handler.
+ * <p>
+ * Optionally, a term that is the same as the term in the same position of the
+ * previous triple or quad is written as {@code REPEAT}. Decoders before Jena 4.3.0
+ * do not accept {@code REPEAT} so this is not the default.
  *
  * @see Protobuf2StreamRDF for the reverse process.
  */
 public class StreamRDF2Protobuf implements StreamRDF, AutoCloseable
 {
-    // No REPEAT support.
-
    // OutputStream + delimited.
     private PrefixMap pmap = PrefixMapFactory.create();
     private final boolean encodeValues;
+    private final boolean encodeRepeats;
     private final Consumer<RDF_StreamRow> rowHandler;
     private final Runnable andFinally;
 
+    // Previous row, for REPEAT.
+    private Node lastSubject   = null;
+    private Node lastPredicate = null;
+    private Node lastObject    = null;
+    private Node lastGraph     = null;
+
     public static StreamRDF createDelimited(OutputStream outputStream, boolean withValues) {
+        return createDelimited(outputStream, withValues, false);
+    }
+
+    public static StreamRDF createDelimited(OutputStream outputStream, boolean withValues, boolean withRepeats) {
         Consumer<RDF_StreamRow> output = sr->PBufRDF.writeDelimitedTo(sr, outputStream);
-        return new StreamRDF2Protobuf(output, withValues, ()->IO.flush(outputStream));
+        return new StreamRDF2Protobuf(output, withValues, withRepeats, ()->IO.flush(outputStream));
     }
 
     public static void writeBlk(OutputStream outputStream, Consumer<StreamRDF> stream, boolean withValues) {
         RDF_Stream.Builder builder = RDF_Stream.newBuilder();
         Consumer<RDF_StreamRow> output = sr->builder.addRow(sr);
-        StreamRDF2Protobuf processor = new StreamRDF2Protobuf(output, withValues, ()->IO.flush(outputStream));
+        StreamRDF2Protobuf processor = new StreamRDF2Protobuf(output, withValues, false, ()->IO.flush(outputStream));
         stream.accept(processor);
         RDF_Stream pbStream = builder.build();
         try {
@@ -61,9 +75,10 @@ public class StreamRDF2Protobuf implements StreamRDF, AutoCloseable
     }
 
 
-    private StreamRDF2Protobuf(Consumer<RDF_StreamRow> rowHandler, boolean encodeValues, Runnable atEnd) {
+    private StreamRDF2Protobuf(Consumer<RDF_StreamRow> rowHandler, boolean encodeValues, boolean encodeRepeats, Runnable atEnd) {
         this.pmap = PrefixMapFactory.create();
         this.encodeValues = encodeValues;
+        this.encodeRepeats = encodeRepeats;
         this.rowHandler = rowHandler;
         this.andFinally = atEnd;
     }
@@ -111,7 +126,9 @@ public class StreamRDF2Protobuf implements StreamRDF, AutoCloseable
     @Override
     public void triple(Triple triple) {
         streamRowBuilder.clear();
-        RDF_Triple triplePB = PBufRDF.rdfTriple(triple, tripleBuilder, termBuilder);
+        RDF_Triple triplePB = encodeRepeats
+            ? rdfTriple(triple)
+            : PBufRDF.rdfTriple(triple, tripleBuilder, termBuilder);
         streamRowBuilder.setTriple(triplePB);
         rowHandler.accept(streamRowBuilder.build());
     }
@@ -119,8 +136,42 @@ public class StreamRDF2Protobuf implements StreamRDF, AutoCloseable
     @Override
     public void quad(Quad quad) {
         streamRowBuilder.clear();
-        RDF_Quad quadPB = PBufRDF.rdfQuad(quad, quadBuilder, termBuilder);
+        RDF_Quad quadPB = encodeRepeats
+            ? rdfQuad(quad)
+            : PBufRDF.rdfQuad(quad, quadBuilder, termBuilder);
         streamRowBuilder.setQuad(quadPB);
         rowHandler.accept(streamRowBuilder.build());
     }
+
+    private RDF_Triple rdfTriple(Triple triple) {
+        tripleBuilder.clear();
+        tripleBuilder.setS(rdfTerm(triple.getSubject(), lastSubject));
+        tripleBuilder.setP(rdfTerm(triple.getPredicate(), lastPredicate));
+        tripleBuilder.setO(rdfTerm(triple.getObject(), lastObject));
+        lastSubject = triple.getSubject();
+        lastPredicate = triple.getPredicate();
+        lastObject = triple.getObject();
+        return tripleBuilder.build();
+    }
+
+    private RDF_Quad rdfQuad(Quad quad) {
+        quadBuilder.clear();
+        if ( quad.getGraph() != null ) {
+            quadBuilder.setG(rdfTerm(quad.getGraph(), lastGraph));
+            lastGraph = quad.getGraph();
+        }
+        quadBuilder.setS(rdfTerm(quad.getSubject(), lastSubject));
+        quadBuilder.setP(rdfTerm(quad.getPredicate(), lastPredicate));
+        quadBuilder.setO(rdfTerm(quad.getObject(), lastObject));
+        lastSubject = quad.getSubject();
+        lastPredicate = quad.getPredicate();
+        lastObject = quad.getObject();
+        return quadBuilder.build();
+    }
+
+    private RDF_Term rdfTerm(Node node, Node previous) {
+        if ( node.equals(previous) )
+            return ProtobufConvert.REPEAT;
+        return PBufRDF.rdfTerm(node, termBuilder);
+    }
 }
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Objects;
 
 import org.apache.jena.atlas.io.AWriter;
+import org.apache.jena.atlas.io.BufferedOutputUTF8;
 import org.apache.jena.atlas.io.IO;
 import org.apache.jena.graph.Node;
 import org.apache.jena.query.ResultSet;
@@ -49,7 +50,9 @@ public class ResultSetWriterCSV implements ResultSetWriter {
 
     @Override
     public void write(OutputStream out, ResultSet resultSet, Context context) {
-        output(IO.wrapUTF8(out), resultSet);
+        try ( BufferedOutputUTF8 output = new BufferedOutputUTF8(out) ) {
+            output(output, resultSet);
+        }
     }
 
     @Override
@@ -109,16 +112,81 @@ public class ResultSetWriterCSV implements ResultSetWriter {
         } finally { out.flush(); }
     }
 
-    private static void output(AWriter w, Node n, NodeToLabelMap bnodes) {
-        // String str = FmtUtils.stringForNode(n) ;
-        String str = "?";
+    // Direct to UTF-8 bytes.
+    private static void output(BufferedOutputUTF8 out, ResultSet resultSet) {
+        NodeToLabelMap bnodes = new NodeToLabelMap();
+        TermBytesCache terms = new TermBytesCache(out, n->writeCSV(out, termString(n, bnodes)));
+
+        List<String> varNames = resultSet.getResultVars();
+        List<Var> vars = new ArrayList<>(varNames.size());
+        for ( String v : varNames ) {
+            if ( ! vars.isEmpty() )
+                out.write(',');
+            writeCSV(out, v);
+            vars.add(Var.alloc(v));
+        }
+        out.write(NL);
+
+        for ( ; resultSet.hasNext() ; ) {
+            Binding b = resultSet.nextBinding();
+            boolean first = true;
+            for ( Var v : vars ) {
+                if ( ! first )
+                    out.write(',');
+                first = false;
+                Node n = b.get(v);
+                if ( n != null )
+                    terms.write(n);
+            }
+            out.write(NL);
+        }
+    }
+
+    private static String termString(Node n, NodeToLabelMap bnodes) {
         if ( n.isLiteral() )
-            str = n.getLiteralLexicalForm();
-        else if ( n.isURI() )
-            str = n.getURI();
-        else if ( n.isBlank() )
-            str = bnodes.asString(n);
+            return n.getLiteralLexicalForm();
+        if ( n.isURI() )
+            return n.getURI();
+        if ( n.isBlank() )
+            return bnodes.asString(n);
+        return "?";
+    }
 
+    // As csvSafe, written to the output.
+    private static void writeCSV(BufferedOutputUTF8 out, String str) {
+        if ( str.isEmpty() ) {
+            out.write("\"\"");
+            return;
+        }
+        int len = str.length();
+        boolean quote = false;
+        for ( int i = 0 ; i < len ; i++ ) {
+            char ch = str.charAt(i);
+            if ( ch == '"' || ch == ',' || ch == '\r' || ch == '\n' ) {
+                quote = true;
+                break;
+            }
+        }
+        if ( ! quote ) {
+            out.write(str);
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        for ( int i = 0 ; i < len ; i++ ) {
+            if ( str.charAt(i) == '"' ) {
+                // Write up to and including the quote, then start again at the quote.
+                out.write(str, start, i+1);
+                start = i;
+            }
+        }
+        out.write(str, start, len);
+        out.write('"');
+    }
+
+    private static void output(AWriter w, Node n, NodeToLabelMap bnodes) {
+        // String str = FmtUtils.stringForNode(n) ;
+        String str = termString(n, bnodes);
         str = csvSafe(str);
         w.write(str);
         w.flush();
@@ -22,12 +22,14 @@ import static org.apache.jena.riot.resultset.rw.JSONResultsKW.*;
 
 import java.io.OutputStream;
 import java.io.Writer;
-import java.util.Iterator;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Objects;
 
+import org.apache.jena.atlas.io.BufferedOutputUTF8;
 import org.apache.jena.atlas.io.IO;
-import org.apache.jena.atlas.io.IndentedWriter;
 import org.apache.jena.atlas.json.io.JSWriter;
+import org.apache.jena.atlas.lib.Bytes;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
@@ -82,328 +84,269 @@ public class ResultSetWriterJSON implements ResultSetWriter {
 
     @Override
     public void write(OutputStream outStream, ResultSet resultSet, Context context) {
-        IndentedWriter out = new IndentedWriter(outStream);
-        try {
+        try ( BufferedOutputUTF8 out = new BufferedOutputUTF8(outStream) ) {
             ResultSetWriterTableJSON x = new ResultSetWriterTableJSON(out, context);
             x.write(resultSet);
         }
-        finally {
-            IO.flush(out);
-        }
     }
 
     // Create once per write call.
     // This holds the state of the writing of one ResultSet.
+    // The layout is fixed; the output is encoded directly into UTF-8 bytes.
     static class ResultSetWriterTableJSON {
-        private final NodeToLabel    labels;
-        private final  IndentedWriter out;
-        /** Control whether the type/literal/fileds all go on one line. */
-        private static final boolean MultiLineValues   = false;
-        /** Control whether variables in header are one per line (minor). */
-        private static final boolean MultiLineVarNames = false;
+        private final NodeToLabel        labels;
+        private final BufferedOutputUTF8 out;
+        private final TermBytesCache     terms;
 
         private static final int MainIndent = 2 ;
         private static final int VarIndent = 2 ;
-        private static final int OuterIndent = Math.min(2, MainIndent);
-
-        private ResultSetWriterTableJSON(OutputStream outStream, Context context) {
-            this(new IndentedWriter(outStream), context);
-        }
-
-        private ResultSetWriterTableJSON(IndentedWriter indentedOut, Context context) {
-            out = indentedOut;
-            out.setUnitIndent(MainIndent);
+        // Indent of a row, and of the variables in a row.
+        private static final int RowIndent = 3*MainIndent ;
+        private static final int RowVarIndent = RowIndent+VarIndent ;
 
+        private ResultSetWriterTableJSON(BufferedOutputUTF8 out, Context context) {
+            this.out = out;
             boolean outputGraphBNodeLabels = (context != null) && context.isTrue(ARQ.outputGraphBNodeLabels);
             labels = outputGraphBNodeLabels
                 ? SyntaxLabels.createNodeToLabelAsGiven()
                     : SyntaxLabels.createNodeToLabel();
+            // Terms other than triple terms are written on one line.
+            terms = new TermBytesCache(out, this::writeValueOneLine);
         }
 
         private void write(ResultSet resultSet) {
-            print(out, "{");
-            out.incIndent(OuterIndent);
-            //incIndent(out);
-            writeHeader(resultSet);
-            println(out, " ,");
-            writeRows(out, resultSet);
-            out.decIndent(OuterIndent);
-            println(out, "}");      // top level {}
+            List<Var> vars = Var.varList(resultSet.getResultVars());
+            writeHeader(vars);
+            writeRows(resultSet, vars);
+            println("}");      // top level {}
         }
 
+        private void writeHeader(List<Var> vars) {
+            print("{ ");
+            println(quoteName(kHead), ": {");
+            indent(2*MainIndent);
+            print(quoteName(kVars), ": [ ");
+            boolean first = true;
+            for ( Var var : vars ) {
+                if ( ! first )
+                    print(" , ");
+                first = false;
+                print("\"", var.getVarName(), "\"");
+            }
+            println(" ]");
+            indent(MainIndent);
+            println("} ,");
+        }
 
-        private void writeRows(IndentedWriter out2, ResultSet resultSet) {
-            println(out, quoteName(kResults), ": {");
-            incIndent(out);
-            println(out, quoteName(kBindings), ": [");
-            incIndent(out);
-
+        private void writeRows(ResultSet resultSet, List<Var> vars) {
+            indent(MainIndent);
+            println(quoteName(kResults), ": {");
+            indent(2*MainIndent);
+            println(quoteName(kBindings), ": [");
             boolean firstRow = true;
             for ( ; resultSet.hasNext() ; ) {
                 Binding binding = resultSet.nextBinding();
                 if ( !firstRow )
-                    println(out, " ,");
-                writeRow(out, resultSet, binding);
+                    println(" ,");
+                writeRow(vars, binding);
                 firstRow = false;
             }
-            println(out);
-            decIndent(out);
-            println(out, "]");      // bindings
-            decIndent(out);
-            println(out, "}");      // results
-            //decIndent(out);
-        }
-
-        // Write policy - write objects, leave point of output just after the closing "}"
-
-        private void writeHeader(ResultSet rs) {
-            println(out, quoteName(kHead),": {");
-            incIndent(out);
-            writeHeaderLink(out, rs);
-            writeHeaderVars(out, rs);
-            decIndent(out);
-            print(out, "}");
-        }
-
-        private static void writeHeaderLink(IndentedWriter out, ResultSet rs) {
-            // ---- link
-            // out.println("\"link\": [] ,") ;
-        }
-
-        //  "var": [  ... ]
-        private static void writeHeaderVars(IndentedWriter out, ResultSet rs) {
-            // On one line.
-            print(out, quoteName(kVars), ": [ ");
-            if ( MultiLineVarNames )
-                println(out);
-            incIndent(out);
-            for ( Iterator<String> iter = rs.getResultVars().iterator() ; iter.hasNext() ; ) {
-                String varname = iter.next();
-                print(out, "\"", varname, "\"");
-                if ( iter.hasNext() )
-                    print(out, " , ");
-                if ( MultiLineVarNames )
-                    println(out);
-            }
-            decIndent(out);
-            println(out, " ]");
+            if ( firstRow )
+                // No rows: an indented blank line.
+                indent(RowIndent);
+            println();
+            indent(2*MainIndent);
+            println("]");      // bindings
+            indent(MainIndent);
+            println("}");      // results
         }
 
-        private void writeRow(IndentedWriter out, ResultSet resultSet, Binding binding) {
-            print(out, "{ ");
-            //incIndent(out);
-            out.incIndent(VarIndent);
+        private void writeRow(List<Var> vars, Binding binding) {
+            indent(RowIndent);
+            print("{ ");
             boolean firstInRow = true;
             // Print in the order seen in the header.
-            for ( Iterator<String> iter = resultSet.getResultVars().iterator() ; iter.hasNext() ; ) {
-                Var var = Var.alloc(iter.next());
+            for ( Var var : vars ) {
                 Node value = binding.get(var);
                 if ( value == null )
                     continue;
                 if ( ! firstInRow )
-                    print(out, " ,");
-                writeVarValue(out, var, value, firstInRow);
+                    print(" ,");
                 firstInRow = false;
+                println();
+                indent(RowVarIndent);
+                // Do not use quoteName - varName may not be JSON-safe as a bare name.
+                writeQuoted(var.getVarName());
+                print(": ");
+                writeValue(value, RowVarIndent);
+                // No newline - allow for " ,"
             }
-
-            if ( false ) {
-                // Print "missing" variables.
-                // If the header is right, this should not be necessary.
-                for ( Iterator<Var> vars = binding.vars() ; vars.hasNext() ; ) {
-                    Var var = vars.next();
-                    if ( ! resultSet.getResultVars().contains(var.getName()) ) {
-                        Node value = binding.get(var);
-                        if ( ! firstInRow )
-                            println(out, " ,");
-                        writeVarValue(out, var, value, firstInRow);
-                        firstInRow = false;
-                    }
-                }
-            }
-            println(out);
-            out.decIndent(VarIndent);
-            //decIndent(out);
-            print(out, "}");
+            println();
+            indent(RowIndent);
+            print("}");
         }
 
-        /* Write one JSON member (key, value pair in a JSON object)
-         * i.e.    "var": { ... term ... }
-         * Separating comma handled by caller writeRow
-         */
-        private void writeVarValue(IndentedWriter out, Var var, Node value, boolean firstInRow) {
-            if ( value == null )
-                // Skip if no value.
-                return;
-            println(out);
-            // Do not use quoteName - varName may not be JSON-safe as a bare name.
-            print(out, quote(var.getVarName()), ": ");
-            writeValue(out, value, MultiLineValues);
-            // No newline - allow for " ,"
+        // Write a term, starting at the current point of a line at the given indent.
+        private void writeValue(Node value, int indent) {
+            if ( value.isNodeTriple() )
+                writeValueNodeTriple(value, indent);
+            else
+                terms.write(value);
         }
 
-        private void writeValue(IndentedWriter out, Node value, boolean multiLine) {
-            if ( multiLine || value.isNodeTriple() )
-                println(out, "{");
-            else
-                print(out, "{ ");
-            incIndent(out);
-            // Explicit unbound
-            // if ( value == null )
-            //     writeValueUnbound(out) ;
-            // else
+        // { "type": ... , "value": ... }
+        private void writeValueOneLine(Node value) {
+            print("{ ");
             if ( value.isLiteral() )
-                writeValueLiteral(out, value, multiLine);
+                writeValueLiteral(value);
             else if ( value.isURI() )
-                writeValueURI(out, value, multiLine);
+                writeValueURI(value);
             else if ( value.isBlank() )
-                writeValueBlankNode(out, value, multiLine);
-            else if ( value.isNodeTriple() )
-                writeValueNodeTriple(out, value, multiLine);
+                writeValueBlankNode(value);
             else if ( value.isNodeGraph() )
-                writeValueNodeGraph(out, value, multiLine);
+                throw new UnsupportedOperationException("Graph terms");
             else
                 Log.warn(ResultSetWriterJSON.class, "Unknown RDFNode type in result set: " + value.getClass());
-            if ( multiLine || value.isNodeTriple()) // OR triple
-                println(out) ;
-            else
-                print(out, " ");
-            decIndent(out);
-            print(out, "}");
-        }
-
-        // On entry to writeTerm : ready to start the "type" field.
-
-        private void writeValueUnbound(IndentedWriter out, boolean multiLine) {
-            print(out, quoteName(kType), ": ", quote(kUnbound), " , ") ;
-            if ( MultiLineValues )
-                println(out) ;
-            print(out, quoteName(kValue), ": null") ;
+            print(" }");
         }
 
-        private void writeValueLiteral(IndentedWriter out, Node literal, boolean multiLine) {
+        private void writeValueLiteral(Node literal) {
             String datatype = literal.getLiteralDatatypeURI();
             String lang = literal.getLiteralLanguage();
 
+            print(quoteName(kType), ": ", quote(kLiteral), " , ");
             if ( Util.isSimpleString(literal) || Util.isLangString(literal) ) {
-                print(out, quoteName(kType), ": ", quote(kLiteral), " , ");
-                if ( multiLine )
-                    println(out);
-
                 if ( lang != null && !lang.equals("") ) {
-                    print(out, quoteName(kXmlLang), ": ", quote(lang), " , ");
-                    if ( multiLine )
-                        println(out);
+                    print(quoteName(kXmlLang), ": ");
+                    writeQuoted(lang);
+                    print(" , ");
                 }
             } else {
-                print(out, quoteName(kType), ": ", quote(kLiteral), " , ");
-                if ( MultiLineValues )
-                    println(out);
-
-                print(out, quoteName(kDatatype), ": ", quote(datatype), " , ");
-                if ( multiLine )
-                    println(out);
+                print(quoteName(kDatatype), ": ");
+                writeQuoted(datatype);
+                print(" , ");
             }
-
-            print(out, quoteName(kValue), ": ", quote(literal.getLiteralLexicalForm()));
+            print(quoteName(kValue), ": ");
+            writeQuoted(literal.getLiteralLexicalForm());
         }
 
-        private void writeValueBlankNode(IndentedWriter out, Node resource, boolean multiLine) {
+        private void writeValueBlankNode(Node resource) {
             String label = labels.get(null, resource);
             // Comes with leading "_:"
-            label = label.substring(2);
-
-            print(out, quoteName(kType), ": ", quote(kBnode), " , ");
-            if ( multiLine )
-                println(out);
-            print(out, quoteName(kValue), ": ", quote(label));
+            print(quoteName(kType), ": ", quote(kBnode), " , ");
+            print(quoteName(kValue), ": ");
+            writeQuoted(label, 2);
         }
 
-        private void writeValueURI(IndentedWriter out, Node resource, boolean multiLine) {
-            print(out, quoteName(kType), ": ", quote(kUri), " , ");
-            if ( multiLine )
-                println(out);
-            print(out, quoteName(kValue), ": ", quote(resource.getURI()));
-            return;
+        private void writeValueURI(Node resource) {
+            print(quoteName(kType), ": ", quote(kUri), " , ");
+            print(quoteName(kValue), ": ");
+            writeQuoted(resource.getURI());
         }
 
-        private void writeValueNodeTriple(IndentedWriter out, Node value, boolean multiLine) {
+        // Triple terms are written over several lines.
+        private void writeValueNodeTriple(Node value, int indent) {
             Triple triple = value.getTriple();
-            print(out, quoteName(kType), ": ", quote(kTriple), " , ");
-            println(out);
-
-            //if ( multiLineValues )
-            // println(out);
-            print(out, quoteName(kValue), ": ");
-
-            // Allow for different multiline choice for triple components
-            boolean multiLineInnerValue = multiLine;
-
-            // Start of triple object.
-            // ----
-            println(out, "{");
-            incIndent(out);
-
-            // ---
-            print(out, quoteName(kSubject), ": ");
-            print(out, " ");
-
-            writeValue(out, triple.getSubject(), multiLineInnerValue);
-            println(out, " ,");
-
-            print(out, quoteName(kPredicate), ": ");
-            writeValue(out, triple.getPredicate(), multiLineInnerValue);
-            println(out, " ,");
-
-            print(out, quoteName(kObject), ": ");
-            print(out, "  ");
-            writeValue(out, triple.getObject(), multiLineInnerValue);
-            // End of triple object.
-            decIndent(out);
-            println(out);
-            print(out, "}");
-            // ----
-            return;
+            int indent1 = indent+MainIndent;
+            int indent2 = indent1+MainIndent;
+            println("{");
+            indent(indent1);
+            println(quoteName(kType), ": ", quote(kTriple), " , ");
+            indent(indent1);
+            println(quoteName(kValue), ": {");
+
+            indent(indent2);
+            print(quoteName(kSubject), ":  ");
+            writeValue(triple.getSubject(), indent2);
+            println(" ,");
+
+            indent(indent2);
+            print(quoteName(kPredicate), ": ");
+            writeValue(triple.getPredicate(), indent2);
+            println(" ,");
+
+            indent(indent2);
+            print(quoteName(kObject), ":   ");
+            writeValue(triple.getObject(), indent2);
+            println();
+            indent(indent1);
+            println("}");
+            indent(indent);
+            print("}");
         }
 
-        private void writeValueNodeGraph(IndentedWriter out, Node value, boolean multiLine) {
-            throw new UnsupportedOperationException("Graph terms");
+        // Quote a name (known to be JSON-safe)
+        private static String quoteName(String string) {
+            return quote(string);
         }
 
+        // Quote a string known to be JSON-safe.
         private static String quote(String string) {
-            // Scope for efficiency improvement.
-            return JSWriter.outputQuotedString(string);
+            return "\""+string+"\"";
         }
 
-        // Quote a name (known to be JSON-safe)
-        // Never the RHS of a member entry (for example "false")
-        // Some (the Java JSON code for one) JSON parsers accept an unquoted
-        // string as a name of a name/value pair.
-
-        private static String quoteName(String string) {
-            // All calls to quoteName are builtin keywords which are already safe.
-            // but need the "" added.
-            //return "\""+string+"\"";
-            return quote(string);
+        // Output a JSON string with escaping, as JSWriter.outputQuotedString.
+        private void writeQuoted(String string) {
+            writeQuoted(string, 0);
         }
 
-        // Intercept all operations - development assistance.
+        private void writeQuoted(String string, int start) {
+            out.write('"');
+            int len = string.length();
+            // Start of the current run of characters that do not need escaping.
+            int run = start;
+            for ( int i = start ; i < len ; i++ ) {
+                char ch = string.charAt(i);
+                String esc;
+                switch (ch) {
+                    case '"' :  esc = "\\\""; break;
+                    case '\\' : esc = "\\\\"; break;
+                    case '/' :
+                        // Avoid </ which confuses if it's in HTML
+                        esc = ( i > 0 && string.charAt(i - 1) == '<' ) ? "\\/" : null;
+                        break;
+                    case '\b' : esc = "\\b"; break;
+                    case '\f' : esc = "\\f"; break;
+                    case '\n' : esc = "\\n"; break;
+                    case '\r' : esc = "\\r"; break;
+                    case '\t' : esc = "\\t"; break;
+                    default :
+                        esc = null;
+                        if ( ch < ' ' || (ch >= '\u007F' && ch <= '\u009F') || (ch >= '\u2000' && ch < '\u2100') ) {
+                            out.write(string, run, i);
+                            run = i+1;
+                            writeUnicodeEscape(ch);
+                        }
+                }
+                if ( esc != null ) {
+                    out.write(string, run, i);
+                    run = i+1;
+                    out.write(esc);
+                }
+            }
+            out.write(string, run, len);
+            out.write('"');
+        }
 
-        private static void incIndent(IndentedWriter out) {
-            out.incIndent();
+        private void writeUnicodeEscape(char ch) {
+            out.write('\\');
+            out.write('u');
+            for ( int shift = 12 ; shift >= 0 ; shift -= 4 )
+                out.write(Bytes.hexDigitsUC[(ch >> shift) & 0xF]);
         }
 
-        private static void decIndent(IndentedWriter out) {
-            out.decIndent();
+        private void indent(int n) {
+            out.pad(' ', n);
         }
 
-        private static void print(IndentedWriter out, String... strings) {
+        private void print(String... strings) {
             for ( String s : strings )
-                out.print(s);
+                out.write(s);
         }
 
-        private static void println(IndentedWriter out, String... strings) {
-            print(out, strings);
-            out.println();
+        private void println(String... strings) {
+            print(strings);
+            out.write('\n');
         }
     }
 }
@@ -23,8 +23,10 @@ import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 import org.apache.jena.atlas.io.AWriter;
+import org.apache.jena.atlas.io.BufferedOutputUTF8;
 import org.apache.jena.atlas.io.IO;
 import org.apache.jena.graph.Node;
 import org.apache.jena.query.ResultSet;
@@ -50,12 +52,20 @@ public class ResultSetWriterTSV implements ResultSetWriter {
 
     @Override
     public void write(OutputStream out, ResultSet resultSet, Context context) {
-        output(IO.wrapUTF8(out), resultSet);
+        // Direct to UTF-8 bytes, with repeated terms from the cache.
+        try ( BufferedOutputUTF8 output = new BufferedOutputUTF8(out) ) {
+            AWriter w = output.asAWriter();
+            NodeFormatter formatter = createNodeFormatter();
+            TermBytesCache terms = new TermBytesCache(output, n->formatter.format(w, n));
+            output(w, resultSet, terms::write);
+        }
     }
 
     @Override
     public void write(Writer out, ResultSet resultSet, Context context) {
-        output(IO.wrap(out), resultSet);
+        AWriter w = IO.wrap(out);
+        NodeFormatter formatter = createNodeFormatter();
+        output(w, resultSet, n->formatter.format(w, n));
     }
 
     @Override
@@ -71,9 +81,8 @@ public class ResultSetWriterTSV implements ResultSetWriter {
             out.flush();
     }
 
-    private static void output(AWriter out, ResultSet resultSet) {
+    private static void output(AWriter out, ResultSet resultSet, Consumer<Node> termWriter) {
         try {
-            NodeFormatter formatter = createNodeFormatter();
             String sep = null;
             List<String> varNames = resultSet.getResultVars();
             List<Var> vars = new ArrayList<>(varNames.size());
@@ -103,7 +112,7 @@ public class ResultSetWriterTSV implements ResultSetWriter {
                     Node n = b.get(v);
                     if ( n != null ) {
                         // This will not include a raw tab.
-                        formatter.format(out, n);
+                        termWriter.accept(n);
                     }
                 }
                 out.write(NL);
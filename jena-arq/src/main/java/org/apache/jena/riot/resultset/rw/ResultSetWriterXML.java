@@ -20,16 +20,18 @@ package org.apache.jena.riot.resultset.rw;
 
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Objects;
 
+import org.apache.jena.atlas.io.BufferedOutputUTF8;
 import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.atlas.lib.Bytes;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.query.ARQ;
-import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.ResultSet;
-import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.impl.Util;
 import org.apache.jena.riot.out.NodeToLabel;
 import org.apache.jena.riot.resultset.ResultSetLang;
@@ -37,9 +39,9 @@ import org.apache.jena.riot.resultset.ResultSetWriter;
 import org.apache.jena.riot.resultset.ResultSetWriterFactory;
 import org.apache.jena.riot.system.SyntaxLabels;
 import org.apache.jena.sparql.SystemARQ;
-import org.apache.jena.sparql.resultset.ResultSetApply;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.resultset.ResultSetException;
-import org.apache.jena.sparql.resultset.ResultSetProcessor;
 import org.apache.jena.sparql.util.Context;
 import org.apache.jena.sparql.util.Symbol;
 
@@ -73,13 +75,14 @@ public class ResultSetWriterXML implements ResultSetWriter {
 
     @Override
     public void write(OutputStream outStream, ResultSet resultSet, Context context) {
-        XMLOutputResultSet xOut = new XMLOutputResultSet(outStream, context);
-        if ( context != null && context.isDefined(xmlInstruction) )
-            xOut.setXmlInst(context.isTrue(xmlInstruction));
-        if ( context != null && context.isDefined(xmlStylesheet) )
-            xOut.setStylesheetURL((String)(context.get(xmlStylesheet)));
-        ResultSetApply a = new ResultSetApply(resultSet, xOut);
-        a.apply();
+        try ( BufferedOutputUTF8 out = new BufferedOutputUTF8(outStream) ) {
+            XMLOutputResultSet xOut = new XMLOutputResultSet(out, context);
+            if ( context != null && context.isDefined(xmlInstruction) )
+                xOut.setXmlInst(context.isTrue(xmlInstruction));
+            if ( context != null && context.isDefined(xmlStylesheet) )
+                xOut.setStylesheetURL((String)(context.get(xmlStylesheet)));
+            xOut.write(resultSet);
+        }
     }
 
     private class XMLOutputASK implements XMLResults {
@@ -131,292 +134,224 @@ public class ResultSetWriterXML implements ResultSetWriter {
         }
     }
 
-    private static class XMLOutputResultSet implements ResultSetProcessor, XMLResults
+    // Results are encoded directly into UTF-8 bytes.
+    // The layout is fixed; a term and its indentation are written together.
+    private static class XMLOutputResultSet implements XMLResults
     {
-        private static boolean outputExplicitUnbound = false ;
-
-        private int index = 0 ;                     // First index is 1
         private String stylesheetURL = null ;
         private boolean xmlInst = true ;
 
-        private final IndentedWriter  out ;
-        private int bNodeCounter = 0 ;
+        private final BufferedOutputUTF8 out ;
         private final NodeToLabel bNodeMap;
+        private final TermBytesCache terms;
 
-        private XMLOutputResultSet(OutputStream outStream, Context context) {
-            this(new IndentedWriter(outStream), context);
-        }
+        // Indentation of the elements of a result.
+        private static final int SolutionIndent = 2*INDENT;
+        private static final int BindingIndent = 3*INDENT;
+        private static final int ValueIndent = 4*INDENT;
 
-        private XMLOutputResultSet(IndentedWriter indentedOut, Context context) {
-            out = indentedOut;
+        private XMLOutputResultSet(BufferedOutputUTF8 out, Context context) {
+            this.out = out;
             boolean outputGraphBNodeLabels = (context != null) && context.isTrue(ARQ.outputGraphBNodeLabels);
             bNodeMap = outputGraphBNodeLabels
                 ? SyntaxLabels.createNodeToLabelAsGiven()
                 : SyntaxLabels.createNodeToLabel();
+            // Terms other than triple terms are one line; the cache starts after the indent.
+            terms = new TermBytesCache(out, this::printTerm);
+        }
+
+        private void write(ResultSet rs) {
+            List<Var> vars = Var.varList(rs.getResultVars());
+            start(vars);
+            for ( ; rs.hasNext() ; ) {
+                Binding binding = rs.nextBinding();
+                indent(SolutionIndent);
+                println("<", dfSolution, ">");
+                for ( Var var : vars ) {
+                    Node value = binding.get(var);
+                    if ( value == null )
+                        continue;
+                    indent(BindingIndent);
+                    print("<", dfBinding, " name=\"", var.getVarName());
+                    println("\">");
+                    printBindingValue(value, ValueIndent);
+                    indent(BindingIndent);
+                    println("</", dfBinding, ">");
+                }
+                indent(SolutionIndent);
+                println("</", dfSolution, ">");
+            }
+            finish();
         }
 
-        @Override
-        public void start(ResultSet rs) {
+        private void start(List<Var> vars) {
             if ( xmlInst )
-                out.println("<?xml version=\"1.0\"?>");
+                println("<?xml version=\"1.0\"?>");
 
-            if ( stylesheetURL != null ) {
-                out.print("<?xml-stylesheet type=\"text/xsl\" href=\"");
-                out.print(stylesheetURL);
-                out.println("\"?>");
-            }
+            if ( stylesheetURL != null )
+                println("<?xml-stylesheet type=\"text/xsl\" href=\"", stylesheetURL, "\"?>");
 
             // ---- Root
-            out.print("<");
-            out.print(dfRootTag);
-            out.print(" xmlns=\"");
-            out.print(dfNamespace);
-            out.println("\">");
+            println("<", dfRootTag, " xmlns=\"", dfNamespace, "\">");
 
             // ---- Header
-
-            out.incIndent(INDENT);
-            out.print("<");
-            out.print(dfHead);
-            out.println(">");
-
-            if ( false ) {
-                String link = "UNSET";
-                out.print("<link href=\"");
-                out.print(link);
-                out.println("\"/>");
+            indent(INDENT);
+            println("<", dfHead, ">");
+            for ( Var v : vars ) {
+                indent(2*INDENT);
+                print("<", dfVariable, " ", dfAttrVarName, "=\"", v.getVarName());
+                println("\"/>");
             }
-
-            for ( String n : rs.getResultVars() ) {
-                out.incIndent(INDENT);
-                out.print("<");
-                out.print(dfVariable);
-                out.print(" ");
-                out.print(dfAttrVarName);
-                out.print("=\"");
-                out.print(n);
-                out.print("\"");
-                out.println("/>");
-                out.decIndent(INDENT);
-            }
-            out.print("</");
-            out.print(dfHead);
-            out.println(">");
-            out.decIndent(INDENT);
+            indent(INDENT);
+            println("</", dfHead, ">");
 
             // Start results proper
-            out.incIndent(INDENT);
-            out.print("<");
-            out.print(dfResults);
-            out.println(">");
-            out.incIndent(INDENT);
+            indent(INDENT);
+            println("<", dfResults, ">");
         }
 
-        @Override
-        public void finish(ResultSet rs) {
-            out.decIndent(INDENT);
-            out.print("</");
-            out.print(dfResults);
-            out.println(">");
-            out.decIndent(INDENT);
-            out.print("</");
-            out.print(dfRootTag);
-            out.println(">");
-            out.flush();
+        private void finish() {
+            indent(INDENT);
+            println("</", dfResults, ">");
+            println("</", dfRootTag, ">");
         }
 
-        @Override
-        public void start(QuerySolution qs) {
-            out.print("<");
-            out.print(dfSolution);
-            out.println(">");
-            index++;
-            out.incIndent(INDENT);
-        }
-
-        @Override
-        public void finish(QuerySolution qs) {
-            out.decIndent(INDENT);
-            out.print("</");
-            out.print(dfSolution);
-            out.println(">");
-        }
-
-        @Override
-        public void binding(String varName, RDFNode rdfNode) {
-            if ( rdfNode == null && !outputExplicitUnbound )
+        private void printBindingValue(Node node, int indent) {
+            if ( node.isNodeTriple() ) {
+                printTripleTerm(node, indent);
                 return;
-
-            out.print("<");
-            out.print(dfBinding);
-            out.print(" name=\"");
-            out.print(varName);
-            out.println("\">");
-            out.incIndent(INDENT);
-            printBindingValue(rdfNode);
-            out.decIndent(INDENT);
-            out.print("</");
-            out.print(dfBinding);
-            out.println(">");
-        }
-
-        private void printBindingValue(RDFNode rdfNode) {
-            if ( rdfNode == null ) {
-                // Unbound
-                out.print("<");
-                out.print(dfUnbound);
-                out.println("/>");
+            }
+            if ( node.isNodeGraph() )
+                throw new UnsupportedOperationException("Graph terms");
+            if ( ! node.isLiteral() && ! node.isURI() && ! node.isBlank() ) {
+                Log.warn(this, "Unknown RDFNode type in result set: " + node);
                 return;
             }
-
-            Node node = rdfNode.asNode();
-            printBindingValue(node);
+            indent(indent);
+            terms.write(node);
         }
 
-        private void printBindingValue(Node node) {
-            if ( node == null )
-                return;
-
-            if ( node.isLiteral() ) {
+        // One line, including the newline.
+        private void printTerm(Node node) {
+            if ( node.isLiteral() )
                 printLiteral(node);
-                return;
-            }
-
-            if ( node.isURI() ) {
+            else if ( node.isURI() )
                 printURI(node);
-                return;
-            }
-
-            if ( node.isBlank() ) {
+            else
                 printBlankNode(node);
-                return;
-            }
-            if ( node.isNodeTriple() ) {
-                printTripleTerm(node);
-                return;
-            }
-
-            if ( node.isNodeGraph() )
-                throw new UnsupportedOperationException("Graph terms");
-
-            Log.warn(this, "Unknown RDFNode type in result set: " + node);
         }
 
         private void printURI(Node nodeURI) {
             String uri = nodeURI.getURI();
-            out.print("<");
-            out.print(dfURI);
-            out.print(">");
-            out.print(xml_escape(uri));
-            out.print("</");
-            out.print(dfURI);
-            out.println(">");
+            print("<", dfURI, ">");
+            xml_escape(uri, 0);
+            println("</", dfURI, ">");
         }
 
         private void printBlankNode(Node node) {
             String label = bNodeMap.get(null, node);
             // Comes with leading "_:"
-            label = label.substring(2);
-            out.print("<");
-            out.print(dfBNode);
-            out.print(">");
-            out.print(xml_escape(label));
-            out.print("</");
-            out.print(dfBNode);
-            out.println(">");
+            print("<", dfBNode, ">");
+            xml_escape(label, 2);
+            println("</", dfBNode, ">");
         }
 
         private void printLiteral(Node literal) {
-            out.print("<");
-            out.print(dfLiteral);
+            print("<", dfLiteral);
 
             if ( Util.isLangString(literal) ) {
                 String lang = literal.getLiteralLanguage();
-                out.print(" xml:lang=\"");
-                out.print(lang);
-                out.print("\"");
+                print(" xml:lang=\"", lang, "\"");
             } else if ( !Util.isSimpleString(literal) ) {
                 // Datatype
                 // (RDF 1.1) not xsd:string nor rdf:langString.
                 // (RDF 1.0) any datatype.
                 String datatype = literal.getLiteralDatatypeURI();
-                out.print(" ");
-                out.print(dfAttrDatatype);
-                out.print("=\"");
-                out.print(datatype);
-                out.print("\"");
+                print(" ", dfAttrDatatype, "=\"", datatype, "\"");
             }
 
-            out.print(">");
-            out.print(xml_escape(literal.getLiteralLexicalForm()));
-            out.print("</");
-            out.print(dfLiteral);
-            out.println(">");
+            print(">");
+            xml_escape(literal.getLiteralLexicalForm(), 0);
+            println("</", dfLiteral, ">");
         }
 
-        private void printTripleTerm(Node node) {
+        private void printTripleTerm(Node node, int indent) {
             Triple triple = node.getTriple();
-            openTag(dfTriple);
+            int indent1 = indent+INDENT;
+            int indent2 = indent1+INDENT;
+            openTag(dfTriple, indent);
 
             // Subject
-            openTag(dfSubject);
-            printBindingValue(triple.getSubject());
-            closeTag(dfSubject);
+            openTag(dfSubject, indent1);
+            printBindingValue(triple.getSubject(), indent2);
+            closeTag(dfSubject, indent1);
             // Predicate
-            openTag(dfPredicate);
-            printBindingValue(triple.getPredicate());
-            closeTag(dfPredicate);
+            openTag(dfPredicate, indent1);
+            printBindingValue(triple.getPredicate(), indent2);
+            closeTag(dfPredicate, indent1);
             // Object
-            openTag(dfObject);
-            printBindingValue(triple.getObject());
-            closeTag(dfObject);
+            openTag(dfObject, indent1);
+            printBindingValue(triple.getObject(), indent2);
+            closeTag(dfObject, indent1);
 
-            closeTag(dfTriple);
+            closeTag(dfTriple, indent);
         }
 
-        private void openTag(String name) {
-            out.print("<");
-            out.print(name);
-            out.println(">");
-            out.incIndent();
+        private void openTag(String name, int indent) {
+            indent(indent);
+            println("<", name, ">");
         }
-        private void closeTag(String name) {
-            out.decIndent();
-            out.print("</");
-            out.print(name);
-            out.println(">");
-        }
-
-        private static String xml_escape(String string) {
-            final StringBuilder sb = new StringBuilder(string);
 
-            int offset = 0;
-            String replacement;
-            char found;
-            for (int i = 0; i < string.length(); i++) {
-                found = string.charAt(i);
+        private void closeTag(String name, int indent) {
+            indent(indent);
+            println("</", name, ">");
+        }
 
+        private void xml_escape(String string, int start) {
+            // Start of the current run of characters that do not need escaping.
+            int run = start;
+            int len = string.length();
+            for (int i = start; i < len; i++) {
+                char found = string.charAt(i);
                 if ( found < ' ' ) {
                     // Strictly error in XML 1.0
-                    replacement = String.format("&#x%04X;", (int)found);
-                } else {
-                    switch (found) {
-                        case '&' : replacement = "&amp;"; break;
-                        case '<' : replacement = "&lt;"; break;
-                        case '>' : replacement = "&gt;"; break;
-                        case '\r': replacement = "&#x0D;"; break;
-                        case '\n': replacement = "&#x0A;"; break;
-                        default  : replacement = null;
-                    }
+                    // Includes \r and \n. "&#x%04X;"
+                    out.write(string, run, i);
+                    out.write("&#x00");
+                    out.write(Bytes.hexDigitsUC[found >> 4]);
+                    out.write(Bytes.hexDigitsUC[found & 0xF]);
+                    out.write(';');
+                    run = i+1;
+                    continue;
                 }
-
-                if (replacement != null) {
-                    sb.replace(offset + i, offset + i + 1, replacement);
-                    offset += replacement.length() - 1; // account for added chars
+                String replacement;
+                switch (found) {
+                    case '&' : replacement = "&amp;"; break;
+                    case '<' : replacement = "&lt;"; break;
+                    case '>' : replacement = "&gt;"; break;
+                    default  : replacement = null;
+                }
+                if ( replacement != null ) {
+                    out.write(string, run, i);
+                    out.write(replacement);
+                    run = i+1;
                 }
             }
+            out.write(string, run, len);
+        }
+
+        private void indent(int n) {
+            out.pad(' ', n);
+        }
+
+        private void print(String... strings) {
+            for ( String s : strings )
+                out.write(s);
+        }
 
-            return sb.toString();
+        private void println(String... strings) {
+            print(strings);
+            out.write('\n');
         }
 
         /** @return Returns the stylesheetURL. */
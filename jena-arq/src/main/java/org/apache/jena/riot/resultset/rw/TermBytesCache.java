@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.resultset.rw;
+
+import java.util.function.Consumer;
+
+import org.apache.jena.atlas.io.BufferedOutputUTF8;
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.atlas.lib.CacheFactory;
+import org.apache.jena.graph.Node;
+
+/**
+ * Cache of the encoded bytes of RDF terms for the writing of one result set.
+ * Terms that occur repeatedly in the results are copied from the cache instead of
+ * being formatted and escaped again.
+ */
+class TermBytesCache {
+    private static final int CacheSize = 5000;
+    // Longer terms are rarely repeated and are not worth the copy.
+    private static final int MaxTermBytes = 256;
+
+    private final Cache<Node, byte[]> cache = CacheFactory.createSimpleCache(CacheSize);
+    private final BufferedOutputUTF8 out;
+    private final Consumer<Node> encoder;
+
+    /**
+     * The {@code encoder} writes a term to {@code out}. It must write the same bytes
+     * for the same term wherever the term occurs in the output.
+     */
+    TermBytesCache(BufferedOutputUTF8 out, Consumer<Node> encoder) {
+        this.out = out;
+        this.encoder = encoder;
+    }
+
+    void write(Node node) {
+        byte[] bytes = cache.getIfPresent(node);
+        if ( bytes != null ) {
+            out.write(bytes);
+            return;
+        }
+        long mark = out.position();
+        encoder.accept(node);
+        if ( out.position() - mark > MaxTermBytes )
+            return;
+        bytes = out.bytesFrom(mark);
+        if ( bytes != null )
+            cache.put(node, bytes);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.system;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.atlas.lib.CacheFactory;
+import org.apache.jena.atlas.logging.Log;
+import org.apache.jena.atlas.web.TypedInputStream;
+import org.apache.jena.riot.RiotNotFoundException;
+import org.apache.jena.riot.system.stream.StreamManager;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.Symbol;
+
+/**
+ * Shared cache of JSON-LD context documents, and of the results of processing them,
+ * together with a registry of local copies of context documents.
+ * <p>
+ * The registry maps a context URL to a location, a file name or a classpath
+ * resource, that is opened with the {@link StreamManager} in place of the URL. With
+ * local copies of all the contexts used, JSON-LD can be read offline.
+ * <p>
+ * The cache is size-bounded and thread-safe. Entries are kept by kind (the class of
+ * the cached object), so each JSON-LD processor keeps its own form of a context
+ * document. The cache used for a parse is the one in the {@link Context} under
+ * {@link #symContextCache}, else the global one.
+ */
+public class JsonLDContextCache {
+
+    /** Context symbol for the {@code JsonLDContextCache} to use. */
+    public static final Symbol symContextCache = Symbol.create("http://jena.apache.org/riot/jsonld#contextCache");
+
+    /** Default number of cache entries. */
+    public static final int DftCacheSize = 200;
+
+    private static JsonLDContextCache global = new JsonLDContextCache(DftCacheSize);
+
+    /** The global {@code JsonLDContextCache}. */
+    public static JsonLDContextCache get() {
+        return global;
+    }
+
+    /** Return the {@code JsonLDContextCache} set in the context, or the global one. */
+    public static JsonLDContextCache get(Context context) {
+        if ( context == null )
+            return get();
+        Object x = context.get(symContextCache);
+        if ( x == null )
+            return get();
+        if ( x instanceof JsonLDContextCache )
+            return (JsonLDContextCache)x;
+        Log.warn(JsonLDContextCache.class, "Context symbol '"+symContextCache+"' is not a JsonLDContextCache");
+        return get();
+    }
+
+    /** Set the global {@code JsonLDContextCache}. */
+    public static void setGlobal(JsonLDContextCache cache) {
+        global = Objects.requireNonNull(cache);
+    }
+
+    private final Map<String, String> registry = new ConcurrentHashMap<>();
+    private final Cache<String, Object> cache;
+
+    /** Create a {@code JsonLDContextCache} with space for {@code size} entries. Size 0 means no caching. */
+    public JsonLDContextCache(int size) {
+        this.cache = ( size > 0 ) ? CacheFactory.createCache(size) : CacheFactory.createNullCache();
+    }
+
+    /**
+     * Register a local copy of a context document: a file name or a classpath resource.
+     */
+    public JsonLDContextCache register(String contextURL, String location) {
+        registry.put(contextURL, location);
+        clear();
+        return this;
+    }
+
+    /** Remove a registration. */
+    public void unregister(String contextURL) {
+        registry.remove(contextURL);
+        clear();
+    }
+
+    /** Return the location for a context URL: the registered location if any, else the URL. */
+    public String mapURL(String contextURL) {
+        return registry.getOrDefault(contextURL, contextURL);
+    }
+
+    /**
+     * Return a context document in the form given by {@code kind}. If it is not in the
+     * cache, it is read with {@code parser} from the registered location or the URL,
+     * using the {@link StreamManager} for the {@link Context}.
+     *
+     * @throws RiotNotFoundException if the document can not be found.
+     */
+    public <X> X load(String contextURL, Class<X> kind, Function<InputStream, X> parser, Context context) {
+        return get(contextURL, kind, () -> {
+            String location = mapURL(contextURL);
+            TypedInputStream in = StreamManager.get(context).open(location);
+            if ( in == null )
+                throw new RiotNotFoundException("JSON-LD context: "+contextURL);
+            try {
+                return parser.apply(in);
+            } finally {
+                IO.close(in);
+            }
+        });
+    }
+
+    /**
+     * Return a cached object, for example a processed context. If it is not in the
+     * cache, it is created by calling {@code supplier}.
+     */
+    public <X> X get(String key, Class<X> kind, Supplier<X> supplier) {
+        String k = kind.getName()+" "+key;
+        Object x = cache.getIfPresent(k);
+        if ( x == null ) {
+            // Not atomic - two threads may both create the entry, which is harmless.
+            x = supplier.get();
+            if ( x != null )
+                cache.put(k, x);
+        }
+        return kind.cast(x);
+    }
+
+    /** Clear the cache. Registrations are kept. */
+    public void clear() {
+        cache.clear();
+    }
+}
@@ -80,6 +80,10 @@ public class ParserProfileStd implements ParserProfile {
 
     @Override
     public String resolveIRI(String uriStr, long line, long col) {
+        // Common case: an absolute IRI that resolves to itself and that checking
+        // would not comment on. Skip the full IRI machinery.
+        if ( IRIFastCheck.isSimpleAbsolute(uriStr) )
+            return uriStr;
         return internalMakeIRI(uriStr, line, col).toString();
     }
 
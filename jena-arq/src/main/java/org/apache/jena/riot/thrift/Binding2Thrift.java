@@ -35,15 +35,26 @@ import org.apache.thrift.protocol.TProtocol ;
 import org.apache.thrift.transport.TIOStreamTransport ;
 import org.apache.thrift.transport.TTransportException;
 
-/** Converted from Bindings to SPARQL result set encoded in Thrift */
+/**
+ * Converted from Bindings to SPARQL result set encoded in Thrift.
+ * <p>
+ * Optionally, a value that is the same as the value of the variable in the previous row
+ * is written as {@code REPEAT}.
+ */
 public class Binding2Thrift implements AutoCloseable {
     private final RDF_DataTuple row = new RDF_DataTuple() ;
     private final Collection<Var> vars ;
     private final OutputStream out ;
     private final TProtocol protocol ;
     private final boolean encodeValues ;
+    // Previous row, for REPEAT. Null if not encoding repeats.
+    private final Node[] lastRow ;
 
     public Binding2Thrift(OutputStream out, Collection<Var> vars, boolean encodeValues) {
+        this(out, vars, encodeValues, false) ;
+    }
+
+    public Binding2Thrift(OutputStream out, Collection<Var> vars, boolean encodeValues, boolean encodeRepeats) {
         this.out = out ;
         this.vars = vars ;
         try {
@@ -51,9 +62,15 @@ public class Binding2Thrift implements AutoCloseable {
             this.protocol = TRDF.protocol(transport) ;
         } catch (TTransportException ex) { throw new RiotThriftException(ex); }
         this.encodeValues = encodeValues ;
+        this.lastRow = lastRow(vars, encodeRepeats) ;
         varsRow() ;
     }
 
+    private static Node[] lastRow(Collection<Var> vars, boolean encodeRepeats) {
+        // Repeats need the same variables, in the same order, in every row.
+        return ( encodeRepeats && vars != null ) ? new Node[vars.size()] : null ;
+    }
+
     private void varsRow() {
         RDF_VarTuple vrow = new RDF_VarTuple(new ArrayList<>(vars.size())) ;
         for ( Var v : vars ) {
@@ -66,10 +83,15 @@ public class Binding2Thrift implements AutoCloseable {
     }
 
     public Binding2Thrift(TProtocol out, Collection<Var> vars, boolean encodeValues) {
+        this(out, vars, encodeValues, false) ;
+    }
+
+    public Binding2Thrift(TProtocol out, Collection<Var> vars, boolean encodeValues, boolean encodeRepeats) {
         this.vars = vars ;
         this.out = null ;
         this.protocol = out ;
         this.encodeValues = encodeValues ;
+        this.lastRow = lastRow(vars, encodeRepeats) ;
         varsRow() ;
     }
 
@@ -83,10 +105,18 @@ public class Binding2Thrift implements AutoCloseable {
 //            RDF_Term rt = ( n == null ) ? TRDF.tUNDEF : ThriftConvert.convert(n) ;
 //            row.addToRow(rt) ;
 //        }) ;
-        while(vIter.hasNext()) {
+        for ( int i = 0 ; vIter.hasNext() ; i++ ) {
             Var v = vIter.next();
             Node n = binding.get(v) ;
-            RDF_Term rt = ( n == null ) ? TRDF.tUNDEF : ThriftConvert.convert(n, encodeValues) ;
+            RDF_Term rt ;
+            if ( n == null )
+                rt = TRDF.tUNDEF ;
+            else if ( lastRow != null && n.equals(lastRow[i]) )
+                rt = TRDF.tREPEAT ;
+            else
+                rt = ThriftConvert.convert(n, encodeValues) ;
+            if ( lastRow != null )
+                lastRow[i] = n ;
             row.addToRow(rt) ;
         }
         try { row.write(protocol) ; }
@@ -34,16 +34,26 @@ import org.apache.thrift.protocol.TProtocol;
 
 /** Encode StreamRDF in Thrift.
  *  Usually used via {@link BinRDF} functions.
+ *  <p>
+ *  Optionally, a term that is the same as the term in the same position of the
+ *  previous triple or quad is written as {@code REPEAT}. Decoders before Jena 4.3.0
+ *  do not accept {@code REPEAT} so this is not the default.
  *
  * @see Thrift2StreamRDF (for each RDF_StreamRow) for the reverse process.
  */
 public class StreamRDF2Thrift implements StreamRDF, AutoCloseable
 {
-    // No REPEAT support.
     private final OutputStream out;
     private final TProtocol protocol;
     private PrefixMap pmap = PrefixMapFactory.create();
     private final boolean encodeValues;
+    private final boolean encodeRepeats;
+
+    // Previous row, for REPEAT.
+    private Node lastSubject   = null;
+    private Node lastPredicate = null;
+    private Node lastObject    = null;
+    private Node lastGraph     = null;
 
     public StreamRDF2Thrift(OutputStream out) {
         this(out, false);
@@ -53,15 +63,24 @@ public class StreamRDF2Thrift implements StreamRDF, AutoCloseable
         this(TRDF.protocol(out), encodeValues);
     }
 
+    public StreamRDF2Thrift(OutputStream out, boolean encodeValues, boolean encodeRepeats) {
+        this(TRDF.protocol(out), encodeValues, encodeRepeats);
+    }
+
 //    public StreamRDF2Thrift(TProtocol out) {
 //        this(out, false);
 //    }
 
     public StreamRDF2Thrift(TProtocol out, boolean encodeValues) {
+        this(out, encodeValues, false);
+    }
+
+    public StreamRDF2Thrift(TProtocol out, boolean encodeValues, boolean encodeRepeats) {
         this.out = null;
         this.protocol = out;
         this.pmap = PrefixMapFactory.create();
         this.encodeValues = encodeValues;
+        this.encodeRepeats = encodeRepeats;
     }
 
     @Override
@@ -83,9 +102,12 @@ public class StreamRDF2Thrift implements StreamRDF, AutoCloseable
     }
 
     private void doTriple(Node subject, Node predicate, Node object) {
-        ThriftConvert.toThrift(subject, pmap, tsubject, encodeValues);
-        ThriftConvert.toThrift(predicate, pmap, tpredicate, encodeValues);
-        ThriftConvert.toThrift(object, pmap, tobject, encodeValues);
+        toThrift(subject, lastSubject, tsubject);
+        toThrift(predicate, lastPredicate, tpredicate);
+        toThrift(object, lastObject, tobject);
+        lastSubject = subject;
+        lastPredicate = predicate;
+        lastObject = object;
         ttriple.setS(tsubject);
         ttriple.setP(tpredicate);
         ttriple.setO(tobject);
@@ -109,10 +131,14 @@ public class StreamRDF2Thrift implements StreamRDF, AutoCloseable
             return;
         }
 
-        ThriftConvert.toThrift(quad.getGraph(), pmap, tgraph, encodeValues);
-        ThriftConvert.toThrift(quad.getSubject(), pmap, tsubject, encodeValues);
-        ThriftConvert.toThrift(quad.getPredicate(), pmap, tpredicate, encodeValues);
-        ThriftConvert.toThrift(quad.getObject(), pmap, tobject, encodeValues);
+        toThrift(quad.getGraph(), lastGraph, tgraph);
+        toThrift(quad.getSubject(), lastSubject, tsubject);
+        toThrift(quad.getPredicate(), lastPredicate, tpredicate);
+        toThrift(quad.getObject(), lastObject, tobject);
+        lastGraph = quad.getGraph();
+        lastSubject = quad.getSubject();
+        lastPredicate = quad.getPredicate();
+        lastObject = quad.getObject();
 
         tquad.setG(tgraph);
         tquad.setS(tsubject);
@@ -132,6 +158,14 @@ public class StreamRDF2Thrift implements StreamRDF, AutoCloseable
         }
     }
 
+    private void toThrift(Node node, Node previous, RDF_Term term) {
+        if ( encodeRepeats && node.equals(previous) ) {
+            term.setRepeat(TRDF.REPEAT);
+            return;
+        }
+        ThriftConvert.toThrift(node, pmap, term, encodeValues);
+    }
+
     @Override
     public void base(String base) {
         // Ignore.
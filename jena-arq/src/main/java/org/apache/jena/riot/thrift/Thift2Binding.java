@@ -37,7 +37,10 @@ import org.apache.thrift.protocol.TProtocol ;
 import org.apache.thrift.transport.TIOStreamTransport ;
 import org.apache.thrift.transport.TTransportException ;
 
-/** Converted from SPARQL result set encoded in Thrift to Bindings */
+/**
+ * Converted from SPARQL result set encoded in Thrift to Bindings.
+ * A {@code REPEAT} is the value of the variable in the previous row.
+ */
 public class Thift2Binding extends IteratorSlotted<Binding> implements Iterator<Binding> {
 
     private List<Var> vars = new ArrayList<>() ;
@@ -46,6 +49,8 @@ public class Thift2Binding extends IteratorSlotted<Binding> implements Iterator<
     private InputStream in ;
     private TProtocol protocol ;
     private BindingBuilder b = Binding.builder() ;
+    // Previous row, for REPEAT.
+    private Node[] lastRow ;
 
     public Thift2Binding(InputStream in) {
         this.in = in ;
@@ -75,6 +80,7 @@ public class Thift2Binding extends IteratorSlotted<Binding> implements Iterator<
             }
         }
         vars = Var.varList(varNames) ;
+        lastRow = new Node[vars.size()] ;
     }
 
     public List<Var> getVars()              { return vars ; }
@@ -95,9 +101,18 @@ public class Thift2Binding extends IteratorSlotted<Binding> implements Iterator<
             // Old school
             Var v = vars.get(i) ;
             RDF_Term rt = row.getRow().get(i) ;
-            if ( rt.isSetUndefined() )
+            if ( rt.isSetUndefined() ) {
+                lastRow[i] = null ;
                 continue ;
-            Node n = ThriftConvert.convert(rt) ;
+            }
+            Node n ;
+            if ( rt.isSetRepeat() ) {
+                n = lastRow[i] ;
+                if ( n == null )
+                    throw new RiotThriftException("REPEAT without a previous value for "+v) ;
+            } else
+                n = ThriftConvert.convert(rt) ;
+            lastRow[i] = n ;
             b.add(v, n) ;
         }
         row.clear() ;
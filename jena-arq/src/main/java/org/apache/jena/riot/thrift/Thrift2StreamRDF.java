@@ -18,16 +18,20 @@
 
 package org.apache.jena.riot.thrift;
 
+import org.apache.jena.graph.Node ;
 import org.apache.jena.graph.Triple ;
 import org.apache.jena.riot.system.PrefixMap ;
 import org.apache.jena.riot.system.StreamRDF ;
 import org.apache.jena.riot.thrift.wire.RDF_PrefixDecl ;
 import org.apache.jena.riot.thrift.wire.RDF_Quad ;
+import org.apache.jena.riot.thrift.wire.RDF_Term ;
 import org.apache.jena.riot.thrift.wire.RDF_Triple ;
 import org.apache.jena.sparql.core.Quad ;
 
 /** Thrift RDF (wire format) to RDF terms (Jena java objects)
- * 
+ * <p>
+ * A {@code REPEAT} term is the term in the same position of the previous triple or quad.
+ *
  * @see StreamRDF2Thrift for the reverse process.
  */
 
@@ -36,6 +40,12 @@ public class Thrift2StreamRDF implements VisitorStreamRowTRDF {
     private final StreamRDF dest ;
     private final PrefixMap pmap ;
 
+    // Previous row, for REPEAT.
+    private Node lastSubject   = null ;
+    private Node lastPredicate = null ;
+    private Node lastObject    = null ;
+    private Node lastGraph     = null ;
+
     public Thrift2StreamRDF(PrefixMap pmap, StreamRDF stream) {
         this.pmap = pmap ; 
         this.dest = stream ;
@@ -43,15 +53,35 @@ public class Thrift2StreamRDF implements VisitorStreamRowTRDF {
     
     @Override
     public void visit(RDF_Triple rt) {
-        Triple t = ThriftConvert.convert(rt, pmap) ;
+        lastSubject = convert(rt.getS(), lastSubject) ;
+        lastPredicate = convert(rt.getP(), lastPredicate) ;
+        lastObject = convert(rt.getO(), lastObject) ;
+        Triple t = Triple.create(lastSubject, lastPredicate, lastObject) ;
         dest.triple(t) ;
     }
 
     @Override
     public void visit(RDF_Quad rq) {
-        Quad q = ThriftConvert.convert(rq, pmap) ;
+        Node g = null ;
+        if ( rq.isSetG() ) {
+            lastGraph = convert(rq.getG(), lastGraph) ;
+            g = lastGraph ;
+        }
+        lastSubject = convert(rq.getS(), lastSubject) ;
+        lastPredicate = convert(rq.getP(), lastPredicate) ;
+        lastObject = convert(rq.getO(), lastObject) ;
+        Quad q = Quad.create(g, lastSubject, lastPredicate, lastObject) ;
         dest.quad(q) ;
     }
+
+    private Node convert(RDF_Term term, Node previous) {
+        if ( term.isSetRepeat() ) {
+            if ( previous == null )
+                throw new RiotThriftException("REPEAT without a previous term") ;
+            return previous ;
+        }
+        return ThriftConvert.convert(term, pmap) ;
+    }
     
     @Override
     public void visit(RDF_PrefixDecl prefixDecl) {
@@ -303,6 +303,10 @@ public class ThriftConvert
         if ( term.isSetUndefined() )
             return null;
 
+        if ( term.isSetRepeat() )
+            // Resolved by the stream and result set decoders.
+            throw new RiotThriftException("REPEAT without a previous row: "+term.toString()) ;
+
         throw new RiotThriftException("No conversion to a Node: "+term.toString()) ;
     }
 
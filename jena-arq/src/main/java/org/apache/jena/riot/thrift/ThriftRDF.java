@@ -103,6 +103,19 @@ public class ThriftRDF {
         return new StreamRDF2Thrift(out, withValues) ;
     }
 
+    /**
+     * Create an {@link StreamRDF} for output.
+     * The {@code OutputStream} is closed when {@link StreamRDF#finish()} is called unless it is {@code System.out}.
+     * Call {@link StreamRDF#start()}...{@link StreamRDF#finish()}.
+     * @param out OutputStream
+     * @param withValues - whether to encode numeric values as values.
+     * @param withRepeats - whether to encode a term that is the same as in the previous triple or quad as {@code REPEAT}.
+     * @return StreamRDF A stream to send to.
+     */
+    public static StreamRDF streamToOutputStream(OutputStream out, boolean withValues, boolean withRepeats) {
+        return new StreamRDF2Thrift(out, withValues, withRepeats) ;
+    }
+
     /**
      * Create an {@link StreamRDF} for output.
      * The {@code OutputStream} is closed when {@link StreamRDF#finish()} is called unless it is {@code System.out}.
@@ -126,6 +139,19 @@ public class ThriftRDF {
         return new StreamRDF2Thrift(protocol, withValues) ;
     }
 
+    /**
+     * Create an {@link StreamRDF} for output.
+     * The {@code OutputStream} is closed when {@link StreamRDF#finish()} is called unless it is {@code System.out}.
+     * Call {@link StreamRDF#start()}...{@link StreamRDF#finish()}.
+     * @param protocol Output and encoding.
+     * @param withValues - whether to encode numeric values as values.
+     * @param withRepeats - whether to encode a term that is the same as in the previous triple or quad as {@code REPEAT}.
+     * @return StreamRDF A stream to send to.
+     */
+    public static StreamRDF streamToTProtocol(TProtocol protocol, boolean withValues, boolean withRepeats) {
+        return new StreamRDF2Thrift(protocol, withValues, withRepeats) ;
+    }
+
     /**
      * Decode the contents of the file and send to the {@link StreamRDF}.
      * A filename ending {@code .gz} will have a gzip decompressor added.
@@ -213,8 +239,12 @@ public class ThriftRDF {
     }
 
     public static void writeResultSet(OutputStream out, ResultSet resultSet, boolean withValues) {
+        writeResultSet(out, resultSet, withValues, false) ;
+    }
+
+    public static void writeResultSet(OutputStream out, ResultSet resultSet, boolean withValues, boolean withRepeats) {
         out = TRDF.ensureBuffered(out);
-        writeResultSet(TRDF.protocol(out), resultSet, withValues) ;
+        writeResultSet(TRDF.protocol(out), resultSet, withValues, withRepeats) ;
         IO.flush(out) ;
     }
 
@@ -223,8 +253,12 @@ public class ThriftRDF {
     }
 
     public static void writeResultSet(TProtocol protocol, ResultSet resultSet, boolean encodeValues) {
+        writeResultSet(protocol, resultSet, encodeValues, false) ;
+    }
+
+    public static void writeResultSet(TProtocol protocol, ResultSet resultSet, boolean encodeValues, boolean encodeRepeats) {
         List<Var> vars = Var.varList(resultSet.getResultVars()) ;
-        try ( Binding2Thrift b2t = new Binding2Thrift(protocol, vars, encodeValues) ) {
+        try ( Binding2Thrift b2t = new Binding2Thrift(protocol, vars, encodeValues, encodeRepeats) ) {
             for ( ; resultSet.hasNext() ; ) {
                 Binding b = resultSet.nextBinding() ;
                 b2t.output(b) ;
@@ -33,16 +33,27 @@ import org.apache.jena.sparql.util.Context ;
 /** TriG pretty writer */
 public class TriGWriter extends TriGWriterBase
 {
+    private final boolean indexLookup ;
+
+    public TriGWriter() {
+        this(false) ;
+    }
+
+    /** See {@link TriGWriterIndexed} */
+    protected TriGWriter(boolean indexLookup) {
+        this.indexLookup = indexLookup ;
+    }
+
     @Override
     protected void output(IndentedWriter iOut, DatasetGraph dsg, PrefixMap prefixMap, String baseURI, Context context) {
-        TriGWriter$ w = new TriGWriter$(iOut, prefixMap, baseURI, context) ;
+        TriGWriter$ w = new TriGWriter$(iOut, prefixMap, baseURI, context, indexLookup) ;
         w.write(dsg) ;
     }
 
     private static class TriGWriter$ extends TurtleShell
     {
-        TriGWriter$(IndentedWriter out, PrefixMap prefixMap, String baseURI, Context context) {
-            super(out, prefixMap, baseURI, context) ;
+        TriGWriter$(IndentedWriter out, PrefixMap prefixMap, String baseURI, Context context, boolean indexLookup) {
+            super(out, prefixMap, baseURI, context, indexLookup) ;
         }
 
         private void write(DatasetGraph dsg) {
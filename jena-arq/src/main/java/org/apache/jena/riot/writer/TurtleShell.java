@@ -26,6 +26,9 @@ import java.util.*;
 
 import org.apache.jena.atlas.io.IndentedWriter;
 import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorSlotted;
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.atlas.lib.CacheFactory;
 import org.apache.jena.atlas.lib.InternalErrorException;
 import org.apache.jena.atlas.lib.Pair;
 import org.apache.jena.atlas.lib.SetUtils;
@@ -58,8 +61,24 @@ public abstract class TurtleShell {
     protected final String         baseURI ;
     protected final Context        context ;
     protected final DirectiveStyle    prefixStyle;
+    // Find blank nodes and lists to nest by index lookups as each subject is written.
+    protected final boolean        indexLookup ;
+
+    /** Size of the caches of nesting decisions when using index lookups. */
+    private static final int IndexLookupCacheSize = 10_000 ;
 
     protected TurtleShell(IndentedWriter out, PrefixMap pmap, String baseURI, NodeFormatter nodeFmt, Context context) {
+        this(out, pmap, baseURI, nodeFmt, context, false) ;
+    }
+
+    /**
+     * With {@code indexLookup} true, the graph is not analysed before writing.
+     * Subjects are written in the order of {@code graph.find()}, which for TDB2 is
+     * index order, and blank nodes and lists to nest are found with index lookups,
+     * with bounded caches of the decisions. Memory use does not depend on the size of
+     * the graph. Blank nodes used inside triple terms are not detected in this mode.
+     */
+    protected TurtleShell(IndentedWriter out, PrefixMap pmap, String baseURI, NodeFormatter nodeFmt, Context context, boolean indexLookup) {
         this.out = out ;
         if ( pmap == null )
             pmap = PrefixMapFactory.emptyPrefixMap() ;
@@ -68,17 +87,29 @@ public abstract class TurtleShell {
         this.nodeFmt = nodeFmt ;
         this.context = context;
         this.prefixStyle = WriterLib.directiveStyle(context) ;
+        this.indexLookup = indexLookup ;
     }
 
     protected TurtleShell(IndentedWriter out, PrefixMap pmap, String baseURI, Context context) {
         this(out, pmap, baseURI, createNodeFormatter(pmap,baseURI,context), context) ;
     }
 
+    protected TurtleShell(IndentedWriter out, PrefixMap pmap, String baseURI, Context context, boolean indexLookup) {
+        this(out, pmap, baseURI,
+             createNodeFormatter(pmap, baseURI, context,
+                                 indexLookup ? NodeToLabel.createBNodeByLabelEncodedNoState() : NodeToLabel.createScopeByDocument()),
+             context, indexLookup) ;
+    }
+
     static public NodeFormatter createNodeFormatter(PrefixMap pmap, String baseURI, Context context) {
+        return createNodeFormatter(pmap, baseURI, context, NodeToLabel.createScopeByDocument()) ;
+    }
+
+    private static NodeFormatter createNodeFormatter(PrefixMap pmap, String baseURI, Context context, NodeToLabel nodeToLabel) {
         if ( context != null && context.isTrue(RIOT.multilineLiterals) )
-            return new NodeFormatterTTL_MultiLine(baseURI, pmap, NodeToLabel.createScopeByDocument()) ;
+            return new NodeFormatterTTL_MultiLine(baseURI, pmap, nodeToLabel) ;
         else
-            return new NodeFormatterTTL(baseURI, pmap, NodeToLabel.createScopeByDocument()) ;
+            return new NodeFormatterTTL(baseURI, pmap, nodeToLabel) ;
     }
 
     protected void writeBase(String base) {
@@ -140,6 +171,11 @@ public abstract class TurtleShell {
         private boolean allowDeepPretty = true ;
         private final boolean printTypeKeyword;
 
+        // Index lookup mode: blank node -> whether it is written nested, and
+        // list head -> whether it is a well-formed list.
+        private final Cache<Node, Boolean>  nestedCache ;
+        private final Cache<Node, Boolean>  listCache ;
+
         private ShellGraph(Graph graph, Node graphName, DatasetGraph dsg, Set<Node> graphNames) {
             this.dsg = dsg ;
             this.graphName = graphName ;
@@ -155,15 +191,22 @@ public abstract class TurtleShell {
             this.listElts = new HashSet<>() ;
             this.allowDeepPretty = true ;
 
-            // ?? Single pass?
-            // <<>> - and nested - bnodes can't be PP.
-
-            // Must be in this order.
-            findLists() ;
-            findBNodesSyntax1() ;
-            // Stop head of lists printed as triples going all the way to the
-            // good part.
-            nestedObjects.removeAll(listElts) ;
+            if ( indexLookup ) {
+                this.nestedCache = CacheFactory.createCache(IndexLookupCacheSize) ;
+                this.listCache = CacheFactory.createCache(IndexLookupCacheSize) ;
+            } else {
+                this.nestedCache = null ;
+                this.listCache = null ;
+                // ?? Single pass?
+                // <<>> - and nested - bnodes can't be PP.
+
+                // Must be in this order.
+                findLists() ;
+                findBNodesSyntax1() ;
+                // Stop head of lists printed as triples going all the way to the
+                // good part.
+                nestedObjects.removeAll(listElts) ;
+            }
             this.printTypeKeyword = ! prefixMap.getMapping().values().contains(rdfNS);
             //printDetails() ;
         }
@@ -506,6 +549,10 @@ public abstract class TurtleShell {
         // ----
 
         private void writeGraph() {
+            if ( indexLookup ) {
+                writeBySubjectIndexed() ;
+                return ;
+            }
             Iterator<Node> subjects = listSubjects() ;
             boolean somethingWritten = writeBySubject(subjects) ;
             // Write remainders
@@ -546,7 +593,7 @@ public abstract class TurtleShell {
                 writeNode(RDF_Rest) ;
                 print("  ") ;
                 x = x.subList(1, x.size()) ;
-                writeList(x) ;
+                writeList(x.iterator()) ;
                 print(" .") ;
                 out.decIndent(INDENT_PREDICATE) ;
                 println() ;
@@ -575,7 +622,7 @@ public abstract class TurtleShell {
                 print(" ") ;
                 x = x.subList(1, x.size()) ;
                 // Print remainder.
-                writeList(x) ;
+                writeList(x.iterator()) ;
                 out.println(" ] .") ;
             }
             return somethingWritten ;
@@ -637,6 +684,168 @@ public abstract class TurtleShell {
             return !first ;
         }
 
+        // Index lookup mode: triples in the order of graph.find, grouped by adjacent
+        // same subject. Nested blank nodes and list cells are skipped; they are written
+        // inside the cluster of the subject that refers to them.
+        // A free blank node is written as "[ ... ] ." so all its triples are written
+        // when it is first seen, even if graph.find does not return them together.
+        // The state is the current cluster, the free blank nodes written, and the caches.
+        private boolean writeBySubjectIndexed() {
+            boolean first = true ;
+            List<Triple> cluster = new ArrayList<>() ;
+            Set<Node> freeBnodesWritten = new HashSet<>() ;
+            ExtendedIterator<Triple> iter = find(ANY, ANY, ANY) ;
+            try {
+                while ( iter.hasNext() || !cluster.isEmpty() ) {
+                    Triple t = iter.hasNext() ? iter.next() : null ;
+                    if ( t != null && ( cluster.isEmpty() || cluster.get(0).getSubject().equals(t.getSubject()) ) ) {
+                        cluster.add(t) ;
+                        continue ;
+                    }
+                    Node subj = cluster.get(0).getSubject() ;
+                    boolean freeBnode = isFreeBnode(subj) ;
+                    if ( ! isNestable(subj) && ! ( freeBnode && freeBnodesWritten.contains(subj) ) ) {
+                        if ( !first )
+                            out.println() ;
+                        first = false ;
+                        if ( freeBnode ) {
+                            freeBnodesWritten.add(subj) ;
+                            writeNestedObject(triplesOfSubject(subj)) ;
+                            out.println(" .") ;
+                        } else
+                            writeCluster(subj, cluster) ;
+                    }
+                    cluster.clear() ;
+                    if ( t != null )
+                        cluster.add(t) ;
+                }
+            } finally { iter.close() ; }
+            return !first ;
+        }
+
+        // ---- Index lookup mode.
+
+        // A blank node that may be written nested: one incoming triple, and not used
+        // in another graph or as a graph name.
+        private boolean nestCandidate(Node node) {
+            return node.isBlank() && inLinks(node) == 1 && containedInOneGraph(node) ;
+        }
+
+        // Blank subjects not used as objects (or in another graph): "[ ... ] ."
+        private boolean isFreeBnode(Node node) {
+            return node.isBlank() && inLinks(node) == 0 && containedInOneGraph(node) ;
+        }
+
+        /**
+         * A blank node is nested if it is a candidate and following the referring
+         * triples upwards reaches a subject written at the top level. Blank node
+         * cycles are written with labels. The decision does not depend on the order of
+         * lookups so the subject being skipped and the nested writing agree.
+         */
+        private boolean isNestable(Node node) {
+            if ( ! nestCandidate(node) )
+                return false ;
+            Boolean b = nestedCache.getIfPresent(node) ;
+            if ( b == null ) {
+                b = reachesTopLevel(node) ;
+                nestedCache.put(node, b) ;
+            }
+            return b ;
+        }
+
+        // Walk up the referrers. Brent's cycle detection keeps no record of the path.
+        private boolean reachesTopLevel(Node node) {
+            Node marker = node ;
+            int power = 1 ;
+            int steps = 0 ;
+            Node x = node ;
+            for ( ;; ) {
+                Triple t = triple1(null, null, x) ;
+                if ( t == null )
+                    throw new InternalErrorException("Expected exactly one triple") ;
+                Node referrer = t.getSubject() ;
+                if ( ! nestCandidate(referrer) )
+                    return true ;
+                // Same answer as the referrer.
+                Boolean b = nestedCache.getIfPresent(referrer) ;
+                if ( b != null )
+                    return b ;
+                if ( referrer.equals(marker) )
+                    return false ;
+                if ( ++steps == power ) {
+                    marker = referrer ;
+                    power = 2 * power ;
+                    steps = 0 ;
+                }
+                x = referrer ;
+            }
+        }
+
+        // Well-formed list: each cell is a blank node with just rdf:first and rdf:rest,
+        // only used once, and the cells end in rdf:nil. Assumes the head is nestable,
+        // so the walk can not loop.
+        private boolean isListIndexed(Node head) {
+            Boolean b = listCache.getIfPresent(head) ;
+            if ( b == null ) {
+                b = wellFormedList(head) ;
+                listCache.put(head, b) ;
+            }
+            return b ;
+        }
+
+        private boolean wellFormedList(Node head) {
+            List<Triple> acc = new ArrayList<>(2) ;
+            Node x = head ;
+            for ( ;; ) {
+                acc.clear() ;
+                if ( ! validListElement(x, acc) )
+                    return false ;
+                Node next = acc.get(0).getObject() ;
+                if ( RDF_Nil.equals(next) )
+                    return true ;
+                if ( ! nestCandidate(next) )
+                    return false ;
+                x = next ;
+            }
+        }
+
+        // The elements of a well-formed list, following the cells.
+        private Iterator<Node> listElementsIndexed(Node head) {
+            return new IteratorSlotted<Node>() {
+                private Node cell = head ;
+                @Override
+                protected boolean hasMore() {
+                    return ! RDF_Nil.equals(cell) ;
+                }
+                @Override
+                protected Node moveToNext() {
+                    Node elt = triple1(cell, RDF_First, null).getObject() ;
+                    cell = triple1(cell, RDF_Rest, null).getObject() ;
+                    return elt ;
+                }
+            } ;
+        }
+
+        // ---- Nesting decisions, by mode.
+
+        private boolean isList(Node node) {
+            if ( indexLookup )
+                return isNestable(node) && isListIndexed(node) ;
+            return lists.containsKey(node) ;
+        }
+
+        private Iterator<Node> listElements(Node node) {
+            if ( indexLookup )
+                return listElementsIndexed(node) ;
+            return lists.get(node).iterator() ;
+        }
+
+        private boolean isNestedObject(Node node) {
+            if ( indexLookup )
+                return isNestable(node) ;
+            return nestedObjects.contains(node) ;
+        }
+
         // A Cluster is a collection of triples with the same subject.
         private void writeCluster(Node subject, Collection<Triple> cluster) {
             if ( cluster.isEmpty() )
@@ -816,8 +1025,10 @@ public abstract class TurtleShell {
         }
 
         private void writeNestedObject(Node node) {
-            Collection<Triple> x = triplesOfSubject(node) ;
+            writeNestedObject(triplesOfSubject(node)) ;
+        }
 
+        private void writeNestedObject(Collection<Triple> x) {
             if ( x.isEmpty() ) {
                 print("[] ") ;
                 return ;
@@ -849,15 +1060,16 @@ public abstract class TurtleShell {
         }
 
         // Write a list
-        private void writeList(List<Node> elts) {
-            if ( elts.size() == 0 ) {
+        private void writeList(Iterator<Node> elts) {
+            if ( ! elts.hasNext() ) {
                 out.print("()") ;
                 return ;
             }
 
             if ( false ) {
                 out.print("(") ;
-                for ( Node n : elts ) {
+                for ( ; elts.hasNext() ; ) {
+                    Node n = elts.next() ;
                     out.print(" ") ;
                     writeNodePretty(n) ;
                 }
@@ -881,14 +1093,15 @@ public abstract class TurtleShell {
 
                 out.print("(") ;
                 out.incIndent(2);
-                for ( Node n : elts ) {
+                for ( ; elts.hasNext() ; ) {
+                    Node n = elts.next() ;
 
                     // Print this item on a fresh line? (still to check: first line)
                     boolean thisItemFreshLine = /* multiLineAny | */ n.isBlank() ;
 
                     // Special case List in List.
                     // Start on this line if last item was on this line.
-                    if ( lists.containsKey(n) )
+                    if ( isList(n) )
                         thisItemFreshLine = lastItemFreshLine ;
 
                     // Starting point.
@@ -925,9 +1138,9 @@ public abstract class TurtleShell {
             // Maybe ought to be the same test as writePredicateObjectList
             // Order matters? - one connected objects may include list elements.
             if ( allowDeepPretty ) {
-                if ( lists.containsKey(n) )
+                if ( isList(n) )
                     return true ;
-                if ( nestedObjects.contains(n) )
+                if ( isNestedObject(n) )
                     return true ;
             }
             if ( RDF_Nil.equals(n) )
@@ -939,9 +1152,9 @@ public abstract class TurtleShell {
         private void writeNodePretty(Node obj) {
             // Assumes "isPrettyNode" is true.
             // Order matters? - one connected objects may include list elements.
-            if ( lists.containsKey(obj) )
-                writeList(lists.get(obj)) ;
-            else if ( nestedObjects.contains(obj) )
+            if ( isList(obj) )
+                writeList(listElements(obj)) ;
+            else if ( isNestedObject(obj) )
                 writeNestedObject(obj) ;
             else if ( RDF_Nil.equals(obj) )
                 out.print("()") ;
@@ -25,15 +25,26 @@ import org.apache.jena.sparql.util.Context ;
 
 public class TurtleWriter extends TurtleWriterBase {
 
+    private final boolean indexLookup;
+
+    public TurtleWriter() {
+        this(false);
+    }
+
+    /** See {@link TurtleWriterIndexed} */
+    protected TurtleWriter(boolean indexLookup) {
+        this.indexLookup = indexLookup;
+    }
+
     @Override
     protected void output(IndentedWriter iOut, Graph graph, PrefixMap prefixMap, String baseURI, Context context) {
-        TurtleWriter$ w = new TurtleWriter$(iOut, prefixMap, baseURI, context);
+        TurtleWriter$ w = new TurtleWriter$(iOut, prefixMap, baseURI, context, indexLookup);
         w.write(graph);
     }
 
     private static class TurtleWriter$ extends TurtleShell {
-        public TurtleWriter$(IndentedWriter out, PrefixMap prefixMap, String baseURI, Context context) {
-            super(out, prefixMap, baseURI, context);
+        public TurtleWriter$(IndentedWriter out, PrefixMap prefixMap, String baseURI, Context context, boolean indexLookup) {
+            super(out, prefixMap, baseURI, context, indexLookup);
         }
 
         private void write(Graph graph) {
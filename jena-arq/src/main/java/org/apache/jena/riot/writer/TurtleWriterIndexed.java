@@ -0,0 +1,37 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.writer ;
+
+/**
+ * Turtle pretty writer for large graphs.
+ * <p>
+ * Subjects are written in the order of {@code graph.find()}, which for TDB2 is index
+ * order. Blank nodes used once are nested as {@code [ ... ]} and well-formed RDF
+ * lists are written as {@code ( ... )}, both found with index lookups as the triples
+ * are written, not by examining the whole graph first. Memory use does not grow with
+ * the size of the graph.
+ * <p>
+ * Blank nodes inside triple terms (RDF-star) are not detected and such data should be
+ * written with {@link TurtleWriter}.
+ */
+public class TurtleWriterIndexed extends TurtleWriter {
+    public TurtleWriterIndexed() {
+        super(true);
+    }
+}
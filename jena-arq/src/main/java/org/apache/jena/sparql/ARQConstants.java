@@ -239,6 +239,9 @@ public class ARQConstants
     /** Context key for the algebra expression of the query execution after optimization */
     public static final Symbol sysCurrentAlgebra        = Symbol.create(systemVarNS+"algebra") ;
 
+    /** Context key for the {@link org.apache.jena.sparql.engine.PreparedQuery} of the query execution, if any */
+    public static final Symbol sysPreparedQuery         = Symbol.create(systemVarNS+"preparedQuery") ;
+
 //    /** Context key for the algebra execution engine of the query execution */
 //    public static final Symbol sysCurrentOpExec   = Symbol.create(systemVarNS+"opExec") ;
 
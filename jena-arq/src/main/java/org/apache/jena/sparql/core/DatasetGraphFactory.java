@@ -26,6 +26,7 @@ import org.apache.jena.graph.Node ;
 import org.apache.jena.query.Dataset ;
 import org.apache.jena.rdf.model.Model ;
 import org.apache.jena.sparql.core.mem.DatasetGraphInMemory;
+import org.apache.jena.sparql.core.mem.DatasetGraphInMemoryIds;
 import org.apache.jena.sparql.graph.GraphFactory ;
 import org.apache.jena.sys.JenaSystem;
 
@@ -61,6 +62,19 @@ public class DatasetGraphFactory
      */
     public static DatasetGraph createTxnMem() { return new DatasetGraphInMemory(); }
 
+    /**
+     * Create an in-memory, transactional {@link Dataset} that stores tuples as node ids
+     * in copy-on-write B+Trees.
+     * <p>
+     * This has the same transaction semantics as {@link #createTxnMem()}, with less
+     * copying on writes and faster iteration of {@code find}. Nodes are kept in a
+     * dictionary for the lifetime of the dataset, including ones no longer used by
+     * any quad.
+     *
+     * @return a transactional, in-memory, modifiable DatasetGraph
+     */
+    public static DatasetGraph createTxnMemIds() { return new DatasetGraphInMemoryIds(); }
+
     /**
      * Create a general-purpose  {@link Dataset}.<br/>
      * Any graphs needed are in-memory unless explicitly added with {@link Dataset#addNamedModel}.
@@ -67,6 +67,7 @@ public class AssemblerUtils
         registerDataset(tDatasetTxnMem,   new InMemDatasetAssembler());
 
         registerModel(tViewGraph,          new ViewGraphAssembler());
+        registerModel(tFrozenGraph,        new FrozenGraphAssembler());
     }
 
     private static Model modelExtras = ModelFactory.createDefaultModel() ;
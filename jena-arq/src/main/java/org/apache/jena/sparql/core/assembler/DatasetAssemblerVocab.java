@@ -41,6 +41,7 @@ public class DatasetAssemblerVocab
     public static final Resource tDatasetZero        = ResourceFactory.createResource(NS+"RDFDatasetZero") ;
     public static final Resource tDatasetSink        = ResourceFactory.createResource(NS+"RDFDatasetSink") ;
     public static final Resource tViewGraph          = ResourceFactory.createResource(NS+"ViewGraph") ;
+    public static final Resource tFrozenGraph        = ResourceFactory.createResource(NS+"FrozenGraph") ;
 
     public static final Property pDataset            = ResourceFactory.createProperty(NS, "dataset") ;
 
@@ -52,10 +53,15 @@ public class DatasetAssemblerVocab
     public static final Property pGraph              = ResourceFactory.createProperty(NS, "graph") ;
     public static final Property pGraphAlt           = ResourceFactory.createProperty(NS, "graphData") ;
 
+    public static final Property pSnapshot           = ResourceFactory.createProperty(NS, "snapshot") ;
+
     public static final Property pIndex              = ResourceFactory.createProperty(NS, "textIndex") ;
 
     public static final Property pTransactional      = ResourceFactory.createProperty(NS, "transactional") ;
 
+    // In-memory dataset storing node ids (ja:MemoryDataset)
+    public static final Property pNodeIds            = ResourceFactory.createProperty(NS, "nodeIds") ;
+
     public static final Property pContext            = ResourceFactory.createProperty(NS, "context") ;
     public static final Property pCxtName            = ResourceFactory.createProperty(NS, "cxtName") ;
     public static final Property pCxtValue           = ResourceFactory.createProperty(NS, "cxtValue") ;
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.core.assembler;
+
+import static org.apache.jena.assembler.JA.data;
+import static org.apache.jena.sparql.core.assembler.DatasetAssemblerVocab.pSnapshot;
+import static org.apache.jena.sparql.util.graph.GraphUtils.getAsStringValue;
+import static org.apache.jena.sparql.util.graph.GraphUtils.multiValueAsString;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.apache.jena.assembler.Assembler;
+import org.apache.jena.assembler.Mode;
+import org.apache.jena.assembler.assemblers.AssemblerBase;
+import org.apache.jena.assembler.exceptions.AssemblerException;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.sparql.graph.GraphFrozen;
+
+/** Assembler for an immutable {@link GraphFrozen}.
+ *
+ * <pre>
+ * &lt;#graph&gt; rdf:type ja:FrozenGraph ;
+ *     ja:data "vocab.ttl" ;            # One or more
+ *     ja:snapshot "vocab.frozen" ;     # Optional
+ *     .
+ * </pre>
+ * If the snapshot file exists, the graph is opened from it and {@code ja:data} is
+ * not read. Otherwise the graph is built from the {@code ja:data} files and, if
+ * {@code ja:snapshot} is given, written to the snapshot file for next time.
+ * Delete the snapshot file when the data changes.
+ */
+public class FrozenGraphAssembler extends AssemblerBase implements Assembler {
+
+    @Override
+    public Model open(Assembler a, Resource root, Mode mode)
+    {
+        String snapshot = root.hasProperty(pSnapshot) ? getAsStringValue(root, pSnapshot) : null ;
+        if ( snapshot != null && Files.exists(Paths.get(snapshot)) )
+            return ModelFactory.createModelForGraph(GraphFrozen.read(snapshot)) ;
+
+        List<String> files = multiValueAsString(root, data) ;
+        if ( files.isEmpty() && snapshot == null )
+            throw new AssemblerException(root, "No ja:data or ja:snapshot for a frozen graph") ;
+        GraphFrozen.Builder builder = GraphFrozen.builder() ;
+        files.forEach(fn -> RDFParser.source(fn).parse(builder)) ;
+        GraphFrozen graph = builder.build() ;
+        if ( snapshot != null )
+            graph.write(snapshot) ;
+        return ModelFactory.createModelForGraph(graph) ;
+    }
+}
@@ -20,10 +20,12 @@ package org.apache.jena.sparql.core.assembler;
 
 import static org.apache.jena.assembler.JA.data;
 import static org.apache.jena.query.DatasetFactory.createTxnMem;
+import static org.apache.jena.query.DatasetFactory.createTxnMemIds;
 import static org.apache.jena.riot.RDFDataMgr.read;
 import static org.apache.jena.sparql.core.assembler.AssemblerUtils.mergeContext;
 import static org.apache.jena.sparql.core.assembler.DatasetAssemblerVocab.pGraphName;
 import static org.apache.jena.sparql.core.assembler.DatasetAssemblerVocab.pNamedGraph;
+import static org.apache.jena.sparql.core.assembler.DatasetAssemblerVocab.pNodeIds;
 import static org.apache.jena.sparql.util.graph.GraphUtils.getAsStringValue;
 import static org.apache.jena.sparql.util.graph.GraphUtils.multiValueAsString;
 import static org.apache.jena.sparql.util.graph.GraphUtils.multiValueResource;
@@ -31,6 +33,8 @@ import static org.apache.jena.sparql.util.graph.GraphUtils.multiValueResource;
 import org.apache.jena.assembler.Assembler;
 import org.apache.jena.assembler.Mode;
 import org.apache.jena.assembler.assemblers.AssemblerBase;
+import org.apache.jena.assembler.exceptions.AssemblerException;
+import org.apache.jena.graph.Node;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.system.Txn;
@@ -38,6 +42,9 @@ import org.apache.jena.vocabulary.RDF;
 
 /**
  * An {@link Assembler} that creates in-memory {@link Dataset}s.
+ * <p>
+ * With {@code ja:nodeIds true}, the dataset stores tuples as node ids
+ * (see {@link org.apache.jena.query.DatasetFactory#createTxnMemIds}).
  */
 public class InMemDatasetAssembler extends AssemblerBase implements Assembler {
 
@@ -50,7 +57,7 @@ public class InMemDatasetAssembler extends AssemblerBase implements Assembler {
         // Old name : bypass.
         if ( ! root.hasProperty( RDF.type, DatasetAssemblerVocab.tDatasetTxnMem ) )
             checkType(root, DatasetAssemblerVocab.tMemoryDataset);
-        final Dataset dataset = createTxnMem();
+        final Dataset dataset = nodeIds(root) ? createTxnMemIds() : createTxnMem();
         mergeContext(root, dataset.getContext());
 
         Txn.executeWrite(dataset, ()->{ 
@@ -70,4 +77,18 @@ public class InMemDatasetAssembler extends AssemblerBase implements Assembler {
         });
         return dataset;
     }
+
+    private static boolean nodeIds(Resource root) {
+        if ( ! root.hasProperty(pNodeIds) )
+            return false;
+        // true or "true"
+        Node b = root.getProperty(pNodeIds).getObject().asNode();
+        if ( b.isLiteral() ) {
+            switch (b.getLiteralLexicalForm()) {
+                case "true":  return true;
+                case "false": return false;
+            }
+        }
+        throw new AssemblerException(root, "Not a boolean for ja:nodeIds: "+b);
+    }
 }
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.core.mem;
+
+/**
+ * A {@link DatasetGraphInMemory} that stores tuples as node ids in copy-on-write
+ * B+Trees, using an {@link IdQuadTable} and an {@link IdTripleTable} with a
+ * shared {@link NodeIdDictionary}.
+ */
+public class DatasetGraphInMemoryIds extends DatasetGraphInMemory {
+
+    public DatasetGraphInMemoryIds() {
+        this(new NodeIdDictionary());
+    }
+
+    private DatasetGraphInMemoryIds(NodeIdDictionary dictionary) {
+        super(new IdQuadTable(dictionary), new IdTripleTable(dictionary));
+    }
+}
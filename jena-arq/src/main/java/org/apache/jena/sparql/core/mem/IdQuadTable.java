@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.core.mem;
+
+import java.util.stream.Stream;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Quad;
+
+/**
+ * A {@link QuadTable} of node ids in copy-on-write B+Trees, indexed GSPO, GOPS, SPOG,
+ * OSGP, PGSO and OPSG, the same orders as {@link HexTable}.
+ *
+ * @see IdTupleTable
+ */
+public class IdQuadTable extends IdTupleTable<Quad> implements QuadTable {
+
+    // Slots: 0=G, 1=S, 2=P, 3=O
+    private static final int[][] indexes = {
+        {0, 1, 2, 3}, {0, 3, 2, 1}, {1, 2, 3, 0}, {3, 1, 0, 2}, {2, 0, 1, 3}, {3, 2, 1, 0}
+    };
+
+    public IdQuadTable() {
+        this(new NodeIdDictionary());
+    }
+
+    public IdQuadTable(NodeIdDictionary dictionary) {
+        super(dictionary, indexes);
+    }
+
+    @Override
+    public void add(Quad q) {
+        addIds(new int[]{intern(q.getGraph()), intern(q.getSubject()), intern(q.getPredicate()), intern(q.getObject())});
+    }
+
+    @Override
+    public void delete(Quad q) {
+        int g = dictionary.getId(q.getGraph());
+        int s = dictionary.getId(q.getSubject());
+        int p = dictionary.getId(q.getPredicate());
+        int o = dictionary.getId(q.getObject());
+        if ( g < 0 || s < 0 || p < 0 || o < 0 )
+            return;
+        deleteIds(new int[]{g, s, p, o});
+    }
+
+    @Override
+    public Stream<Quad> find(Node g, Node s, Node p, Node o) {
+        return find(new Node[]{g, s, p, o}, n->Quad.create(n[0], n[1], n[2], n[3]));
+    }
+
+    @Override
+    public Stream<Node> listGraphNodes() {
+        return distinctFirst(0);
+    }
+}
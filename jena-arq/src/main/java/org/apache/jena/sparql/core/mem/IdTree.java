@@ -0,0 +1,378 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.core.mem;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Persistent B+Trees of fixed width rows of ints (node ids), in lexical order.
+ * <p>
+ * A tree is given by its root page ({@code null} for the empty tree). Pages are
+ * never changed once they are visible to readers: a change copies the pages on the
+ * path from the root to the leaf ("path copying") and returns a new root.
+ * <p>
+ * To make a sequence of changes cheap, each page records the owner that created it.
+ * A change with the same owner updates pages it owns in place and only copies pages
+ * created by other owners (e.g. the last committed version). The writer must use a
+ * new owner object once the tree it has built may be seen by anyone else (commit, or
+ * an iterator in the writer's own transaction).
+ * <p>
+ * Deletes remove empty pages but do not merge under-full ones.
+ */
+final class IdTree {
+
+    static final int LeafSize   = 64;
+    static final int BranchSize = 64;
+
+    abstract static class Page {
+        final Object owner;
+        int count;
+        Page(Object owner) { this.owner = owner; }
+    }
+
+    static final class Leaf extends Page {
+        // count rows. Space for one extra row before splitting.
+        final int[] rows;
+        Leaf(Object owner, int[] rows, int count) {
+            super(owner);
+            this.rows = rows;
+            this.count = count;
+        }
+    }
+
+    static final class Branch extends Page {
+        // count children; keys[i*width...] is a lower bound for child i (i >= 1).
+        final Page[] children;
+        final int[] keys;
+        Branch(Object owner, Page[] children, int[] keys, int count) {
+            super(owner);
+            this.children = children;
+            this.keys = keys;
+            this.count = count;
+        }
+    }
+
+    private final int width;
+
+    IdTree(int width) {
+        this.width = width;
+    }
+
+    // Result of an update below a branch.
+    private static class Update {
+        boolean changed = false;
+        Page split = null;
+    }
+
+    /** Whether the tree contains the row. */
+    boolean contains(Page root, int[] row) {
+        Page page = root;
+        if ( page == null )
+            return false;
+        while ( page instanceof Branch ) {
+            Branch b = (Branch)page;
+            page = b.children[childIndex(b, row)];
+        }
+        Leaf leaf = (Leaf)page;
+        return search(leaf.rows, leaf.count, row) >= 0;
+    }
+
+    /** Add a row. Return the new root, which is {@code root} if the row was already present. */
+    Page add(Page root, int[] row, Object owner) {
+        if ( root == null ) {
+            int[] rows = new int[(LeafSize + 1) * width];
+            System.arraycopy(row, 0, rows, 0, width);
+            return new Leaf(owner, rows, 1);
+        }
+        Update update = new Update();
+        Page page = add(root, row, owner, update);
+        if ( update.split == null )
+            return page;
+        // New root.
+        Page right = update.split;
+        Page[] children = new Page[BranchSize + 1];
+        int[] keys = new int[(BranchSize + 1) * width];
+        children[0] = page;
+        children[1] = right;
+        lowKey(right, keys, width);
+        return new Branch(owner, children, keys, 2);
+    }
+
+    private Page add(Page page, int[] row, Object owner, Update update) {
+        if ( page instanceof Leaf ) {
+            Leaf leaf = (Leaf)page;
+            int idx = search(leaf.rows, leaf.count, row);
+            if ( idx >= 0 )
+                return leaf;
+            idx = -(idx + 1);
+            update.changed = true;
+            Leaf w = ( leaf.owner == owner ) ? leaf : new Leaf(owner, leaf.rows.clone(), leaf.count);
+            int[] rows = w.rows;
+            System.arraycopy(rows, idx * width, rows, (idx + 1) * width, (w.count - idx) * width);
+            System.arraycopy(row, 0, rows, idx * width, width);
+            w.count++;
+            if ( w.count > LeafSize ) {
+                int half = w.count / 2;
+                int[] rightRows = new int[(LeafSize + 1) * width];
+                System.arraycopy(rows, half * width, rightRows, 0, (w.count - half) * width);
+                update.split = new Leaf(owner, rightRows, w.count - half);
+                Arrays.fill(rows, half * width, w.count * width, 0);
+                w.count = half;
+            }
+            return w;
+        }
+        Branch branch = (Branch)page;
+        int ci = childIndex(branch, row);
+        Page child = add(branch.children[ci], row, owner, update);
+        if ( ! update.changed )
+            return branch;
+        Branch w = writable(branch, owner);
+        w.children[ci] = child;
+        if ( update.split != null ) {
+            Page right = update.split;
+            update.split = null;
+            int n = w.count;
+            System.arraycopy(w.children, ci + 1, w.children, ci + 2, n - ci - 1);
+            System.arraycopy(w.keys, (ci + 1) * width, w.keys, (ci + 2) * width, (n - ci - 1) * width);
+            w.children[ci + 1] = right;
+            lowKey(right, w.keys, (ci + 1) * width);
+            w.count++;
+            if ( w.count > BranchSize ) {
+                int half = w.count / 2;
+                Page[] rightChildren = new Page[BranchSize + 1];
+                int[] rightKeys = new int[(BranchSize + 1) * width];
+                System.arraycopy(w.children, half, rightChildren, 0, w.count - half);
+                System.arraycopy(w.keys, half * width, rightKeys, 0, (w.count - half) * width);
+                update.split = new Branch(owner, rightChildren, rightKeys, w.count - half);
+                Arrays.fill(w.children, half, w.count, null);
+                w.count = half;
+            }
+        }
+        return w;
+    }
+
+    /** Delete a row. Return the new root, which is {@code root} if the row was not present. */
+    Page delete(Page root, int[] row, Object owner) {
+        if ( root == null )
+            return null;
+        Update update = new Update();
+        Page page = delete(root, row, owner, update);
+        // Remove single child roots.
+        while ( page instanceof Branch && page.count == 1 )
+            page = ((Branch)page).children[0];
+        return page;
+    }
+
+    // Return the replacement page, or null if it is now empty.
+    private Page delete(Page page, int[] row, Object owner, Update update) {
+        if ( page instanceof Leaf ) {
+            Leaf leaf = (Leaf)page;
+            int idx = search(leaf.rows, leaf.count, row);
+            if ( idx < 0 )
+                return leaf;
+            update.changed = true;
+            if ( leaf.count == 1 )
+                return null;
+            Leaf w = ( leaf.owner == owner ) ? leaf : new Leaf(owner, leaf.rows.clone(), leaf.count);
+            System.arraycopy(w.rows, (idx + 1) * width, w.rows, idx * width, (w.count - idx - 1) * width);
+            w.count--;
+            return w;
+        }
+        Branch branch = (Branch)page;
+        int ci = childIndex(branch, row);
+        Page child = delete(branch.children[ci], row, owner, update);
+        if ( ! update.changed )
+            return branch;
+        if ( child == null && branch.count == 1 )
+            return null;
+        Branch w = writable(branch, owner);
+        if ( child != null ) {
+            w.children[ci] = child;
+            return w;
+        }
+        int n = w.count;
+        System.arraycopy(w.children, ci + 1, w.children, ci, n - ci - 1);
+        System.arraycopy(w.keys, (ci + 1) * width, w.keys, ci * width, (n - ci - 1) * width);
+        w.children[n - 1] = null;
+        w.count--;
+        return w;
+    }
+
+    private Branch writable(Branch branch, Object owner) {
+        if ( branch.owner == owner )
+            return branch;
+        return new Branch(owner, branch.children.clone(), branch.keys.clone(), branch.count);
+    }
+
+    /** Copy the lower bound key of a page into {@code dest}. */
+    private void lowKey(Page page, int[] dest, int destPosn) {
+        if ( page instanceof Leaf )
+            System.arraycopy(((Leaf)page).rows, 0, dest, destPosn, width);
+        else
+            System.arraycopy(((Branch)page).keys, 0, dest, destPosn, width);
+    }
+
+    /** The child of a branch that may contain {@code row}. */
+    private int childIndex(Branch branch, int[] row) {
+        // Last child i >= 1 with keys[i] <= row, else 0.
+        int lo = 1;
+        int hi = branch.count - 1;
+        int result = 0;
+        while ( lo <= hi ) {
+            int mid = (lo + hi) >>> 1;
+            if ( compare(branch.keys, mid, row) <= 0 ) {
+                result = mid;
+                lo = mid + 1;
+            } else
+                hi = mid - 1;
+        }
+        return result;
+    }
+
+    /** Binary search of the rows: the index if found, else -(insertion point + 1). */
+    private int search(int[] rows, int count, int[] row) {
+        int lo = 0;
+        int hi = count - 1;
+        while ( lo <= hi ) {
+            int mid = (lo + hi) >>> 1;
+            int c = compare(rows, mid, row);
+            if ( c < 0 )
+                lo = mid + 1;
+            else if ( c > 0 )
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private int compare(int[] rows, int idx, int[] row) {
+        int x = idx * width;
+        for ( int i = 0 ; i < width ; i++ ) {
+            int c = Integer.compare(rows[x + i], row[i]);
+            if ( c != 0 )
+                return c;
+        }
+        return 0;
+    }
+
+    /**
+     * Iterate over the rows, starting at the first row not less than {@code start},
+     * while the rows have the same first {@code prefixLength} ids as {@code start}.
+     * The iterator returns the same array each time, holding the current row.
+     */
+    Iterator<int[]> iterator(Page root, int[] start, int prefixLength) {
+        return new RowIterator(root, start, prefixLength);
+    }
+
+    private class RowIterator implements Iterator<int[]> {
+        private final int[] prefix;
+        private final int prefixLength;
+        private final int[] current;
+        // Path from the root: branches and the index of the child being visited.
+        private final Branch[] stack = new Branch[32];
+        private final int[] stackIdx = new int[32];
+        private int depth = 0;
+        private Leaf leaf;
+        private int idx;
+        private boolean finished = false;
+        private boolean slotFull = false;
+
+        RowIterator(Page root, int[] start, int prefixLength) {
+            this.prefix = start.clone();
+            this.prefixLength = prefixLength;
+            this.current = new int[width];
+            if ( root == null ) {
+                finished = true;
+                return;
+            }
+            Page page = root;
+            while ( page instanceof Branch ) {
+                Branch b = (Branch)page;
+                int ci = childIndex(b, start);
+                stack[depth] = b;
+                stackIdx[depth] = ci;
+                depth++;
+                page = b.children[ci];
+            }
+            leaf = (Leaf)page;
+            int i = search(leaf.rows, leaf.count, start);
+            idx = ( i >= 0 ) ? i : -(i + 1);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( slotFull )
+                return true;
+            if ( finished )
+                return false;
+            while ( idx >= leaf.count ) {
+                if ( ! nextLeaf() ) {
+                    finished = true;
+                    return false;
+                }
+            }
+            int x = idx * width;
+            for ( int i = 0 ; i < prefixLength ; i++ ) {
+                if ( leaf.rows[x + i] != prefix[i] ) {
+                    finished = true;
+                    return false;
+                }
+            }
+            System.arraycopy(leaf.rows, x, current, 0, width);
+            idx++;
+            slotFull = true;
+            return true;
+        }
+
+        private boolean nextLeaf() {
+            // Go up until there is a next child, then down to the leftmost leaf.
+            while ( depth > 0 ) {
+                Branch b = stack[depth - 1];
+                int ci = stackIdx[depth - 1] + 1;
+                if ( ci < b.count ) {
+                    stackIdx[depth - 1] = ci;
+                    Page page = b.children[ci];
+                    while ( page instanceof Branch ) {
+                        Branch b2 = (Branch)page;
+                        stack[depth] = b2;
+                        stackIdx[depth] = 0;
+                        depth++;
+                        page = b2.children[0];
+                    }
+                    leaf = (Leaf)page;
+                    idx = 0;
+                    return true;
+                }
+                depth--;
+            }
+            return false;
+        }
+
+        @Override
+        public int[] next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException();
+            slotFull = false;
+            return current;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.core.mem;
+
+import java.util.stream.Stream;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+
+/**
+ * A {@link TripleTable} of node ids in copy-on-write B+Trees, indexed SPO, POS and OSP.
+ *
+ * @see IdTupleTable
+ */
+public class IdTripleTable extends IdTupleTable<Triple> implements TripleTable {
+
+    private static final int[][] indexes = { {0, 1, 2}, {1, 2, 0}, {2, 0, 1} };
+
+    public IdTripleTable() {
+        this(new NodeIdDictionary());
+    }
+
+    public IdTripleTable(NodeIdDictionary dictionary) {
+        super(dictionary, indexes);
+    }
+
+    @Override
+    public void add(Triple t) {
+        addIds(new int[]{intern(t.getSubject()), intern(t.getPredicate()), intern(t.getObject())});
+    }
+
+    @Override
+    public void delete(Triple t) {
+        int s = dictionary.getId(t.getSubject());
+        int p = dictionary.getId(t.getPredicate());
+        int o = dictionary.getId(t.getObject());
+        if ( s < 0 || p < 0 || o < 0 )
+            return;
+        deleteIds(new int[]{s, p, o});
+    }
+
+    @Override
+    public Stream<Triple> find(Node s, Node p, Node o) {
+        return find(new Node[]{s, p, o}, n->Triple.create(n[0], n[1], n[2]));
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.core.mem;
+
+import static java.lang.ThreadLocal.withInitial;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.sparql.JenaTransactionException;
+import org.apache.jena.sparql.core.mem.IdTree.Page;
+
+/**
+ * A {@link TupleTable} that holds tuples as rows of node ids (see
+ * {@link NodeIdDictionary}) in copy-on-write B+Trees ({@link IdTree}), one tree for
+ * each index order.
+ * <p>
+ * The committed state is the array of tree roots. A transaction works on its own
+ * array of roots; a reader never sees changes made after it started and a writer
+ * only copies the pages it changes, once per transaction. Commit publishes the
+ * writer's roots.
+ *
+ * @param <TupleType> the type of tuple in which a subclass of this class transacts
+ */
+public abstract class IdTupleTable<TupleType> implements TupleTable<TupleType> {
+
+    private static class TxnState {
+        final boolean isWrite;
+        final Page[] roots;
+        // Owner of the pages that this transaction may change in-place.
+        Object owner;
+        // Changed since the owner was last set.
+        boolean dirty = false;
+
+        TxnState(boolean isWrite, Page[] roots) {
+            this.isWrite = isWrite;
+            this.roots = roots;
+            this.owner = new Object();
+        }
+    }
+
+    protected final NodeIdDictionary dictionary;
+    private final int width;
+    // Index orders: indexes[i][j] is the tuple slot in column j of index i.
+    private final int[][] indexes;
+    private final IdTree tree;
+
+    private final AtomicReference<Page[]> committed;
+    private final ThreadLocal<TxnState> txn = withInitial(()->null);
+
+    protected IdTupleTable(NodeIdDictionary dictionary, int[][] indexes) {
+        this.dictionary = dictionary;
+        this.width = indexes[0].length;
+        this.indexes = indexes;
+        this.tree = new IdTree(width);
+        this.committed = new AtomicReference<>(new Page[indexes.length]);
+    }
+
+    @Override
+    public void begin(ReadWrite readWrite) {
+        Page[] roots = committed.get().clone();
+        txn.set(new TxnState(readWrite == ReadWrite.WRITE, roots));
+    }
+
+    @Override
+    public void commit() {
+        TxnState state = txn.get();
+        if ( state.isWrite )
+            committed.set(state.roots);
+        end();
+    }
+
+    @Override
+    public void end() {
+        txn.remove();
+    }
+
+    @Override
+    public void clear() {
+        TxnState state = state();
+        for ( int i = 0 ; i < state.roots.length ; i++ )
+            state.roots[i] = null;
+        state.dirty = true;
+    }
+
+    private TxnState state() {
+        TxnState state = txn.get();
+        if ( state == null )
+            throw new JenaTransactionException("Not in a transaction");
+        return state;
+    }
+
+    /** Add the tuple given as node ids in slot order. */
+    protected void addIds(int[] tuple) {
+        TxnState state = state();
+        int[] row = new int[width];
+        toRow(tuple, indexes[0], row);
+        if ( tree.contains(state.roots[0], row) )
+            return;
+        for ( int i = 0 ; i < indexes.length ; i++ ) {
+            toRow(tuple, indexes[i], row);
+            state.roots[i] = tree.add(state.roots[i], row, state.owner);
+        }
+        state.dirty = true;
+    }
+
+    /** Delete the tuple given as node ids in slot order. */
+    protected void deleteIds(int[] tuple) {
+        TxnState state = state();
+        int[] row = new int[width];
+        toRow(tuple, indexes[0], row);
+        if ( ! tree.contains(state.roots[0], row) )
+            return;
+        for ( int i = 0 ; i < indexes.length ; i++ ) {
+            toRow(tuple, indexes[i], row);
+            state.roots[i] = tree.delete(state.roots[i], row, state.owner);
+        }
+        state.dirty = true;
+    }
+
+    /** Id for a node to add. */
+    protected int intern(Node node) {
+        return dictionary.intern(node);
+    }
+
+    /**
+     * Find the tuples matching a pattern of nodes in slot order, where {@code null}
+     * or a non-concrete node is a wildcard.
+     */
+    protected <X> Stream<X> find(Node[] pattern, Function<Node[], X> maker) {
+        TxnState state = state();
+        int[] ids = new int[width];
+        boolean[] bound = new boolean[width];
+        for ( int j = 0 ; j < width ; j++ ) {
+            Node n = pattern[j];
+            if ( n == null || ! n.isConcrete() )
+                continue;
+            int id = dictionary.getId(n);
+            if ( id < 0 )
+                return Stream.empty();
+            ids[j] = id;
+            bound[j] = true;
+        }
+        // Index with the longest leading run of bound slots.
+        int best = 0;
+        int bestLen = -1;
+        for ( int i = 0 ; i < indexes.length ; i++ ) {
+            int len = 0;
+            while ( len < width && bound[indexes[i][len]] )
+                len++;
+            if ( len > bestLen ) {
+                best = i;
+                bestLen = len;
+            }
+        }
+        final int prefixLen = bestLen;
+        int[] order = indexes[best];
+        // Start at the lowest row with the prefix (ids are not negative).
+        int[] start = new int[width];
+        for ( int j = 0 ; j < prefixLen ; j++ )
+            start[j] = ids[order[j]];
+        Page root = state.roots[best];
+        if ( state.isWrite && state.dirty ) {
+            // The iterator must not see later changes in this transaction.
+            state.owner = new Object();
+            state.dirty = false;
+        }
+        Iterator<int[]> rows = tree.iterator(root, start, prefixLen);
+        // Bound slots after the prefix.
+        Iterator<int[]> matches = Iter.filter(rows, row->{
+            for ( int j = prefixLen ; j < width ; j++ ) {
+                int slot = order[j];
+                if ( bound[slot] && row[j] != ids[slot] )
+                    return false;
+            }
+            return true;
+        });
+        Iterator<X> iter = Iter.map(matches, row->{
+            Node[] nodes = new Node[width];
+            for ( int j = 0 ; j < width ; j++ )
+                nodes[order[j]] = dictionary.getNode(row[j]);
+            return maker.apply(nodes);
+        });
+        return Iter.asStream(iter);
+    }
+
+    /** The distinct ids in the first column of an index. */
+    protected Stream<Node> distinctFirst(int index) {
+        TxnState state = state();
+        Page root = state.roots[index];
+        if ( state.isWrite && state.dirty ) {
+            state.owner = new Object();
+            state.dirty = false;
+        }
+        Iterator<Node> iter = new Iterator<Node>() {
+            private int[] prefix = new int[width];
+            private Iterator<int[]> rows = tree.iterator(root, prefix, 0);
+            @Override
+            public boolean hasNext() {
+                return rows != null && rows.hasNext();
+            }
+            @Override
+            public Node next() {
+                int id = rows.next()[0];
+                // Skip to the next first column.
+                if ( id == Integer.MAX_VALUE )
+                    rows = null;
+                else {
+                    prefix[0] = id + 1;
+                    rows = tree.iterator(root, prefix, 0);
+                }
+                return dictionary.getNode(id);
+            }
+        };
+        return Iter.asStream(iter);
+    }
+
+    private static void toRow(int[] tuple, int[] order, int[] row) {
+        for ( int j = 0 ; j < order.length ; j++ )
+            row[j] = tuple[order[j]];
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.core.mem;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jena.graph.Node;
+
+/**
+ * A dictionary of {@link Node}s to integer ids, shared by the tables of one
+ * dataset (see {@link IdTupleTable}).
+ * <p>
+ * There is one writer at a time (the write transaction) and any number of readers.
+ * A reader only sees ids in the version of the tables it is reading, and those ids
+ * were allocated, and the nodes recorded, before that version was published.
+ * <p>
+ * Ids are not reused: a node stays in the dictionary after the last tuple using it
+ * has been deleted.
+ */
+public class NodeIdDictionary {
+    private final ConcurrentHashMap<Node, Integer> ids = new ConcurrentHashMap<>();
+    private volatile Node[] nodes = new Node[1024];
+    private int size = 0;
+
+    public NodeIdDictionary() {}
+
+    /** The id of a node, or -1 if the node is not in the dictionary. */
+    public int getId(Node node) {
+        Integer x = ids.get(node);
+        return x == null ? -1 : x;
+    }
+
+    /** The id of a node, allocating a new id if necessary. Called by the writer. */
+    public synchronized int intern(Node node) {
+        Integer x = ids.get(node);
+        if ( x != null )
+            return x;
+        int id = size;
+        Node[] array = nodes;
+        if ( id == array.length ) {
+            array = Arrays.copyOf(array, 2 * array.length);
+            array[id] = node;
+            nodes = array;
+        } else
+            array[id] = node;
+        size++;
+        ids.put(node, id);
+        return id;
+    }
+
+    /** The node for an id. */
+    public Node getNode(int id) {
+        return nodes[id];
+    }
+
+    /** Number of nodes in the dictionary. */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.Syntax;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.QueryExecDatasetBuilder;
+
+/**
+ * A query that has been parsed once, and whose algebra is compiled and optimized
+ * once for each kind of query engine, then reused for each execution.
+ * <p>
+ * Parameters are given as a {@link Binding} at execution time and are substituted
+ * into the optimized algebra; the query is not parsed or optimized again.
+ * A query with a sub-SELECT is optimized again for each execution with parameters
+ * because optimization renames the variables hidden by the sub-SELECT.
+ * Parameters are returned in the results, as for an initial binding.
+ * <p>
+ * The {@link Query} object is shared between executions and must not be modified.
+ * <p>
+ * Optimization is done with the context of the first execution for each kind of
+ * query engine. Applications that change optimizer settings between executions
+ * should not use prepared queries.
+ *
+ * @see QueryCache
+ */
+public class PreparedQuery {
+    private final Query query;
+    private final String queryString;
+    private final ConcurrentHashMap<Object, Op> algebra = new ConcurrentHashMap<>();
+
+    /** Parse and prepare a query string. */
+    public static PreparedQuery create(String queryString) {
+        return create(queryString, Syntax.syntaxARQ);
+    }
+
+    /** Parse and prepare a query string. */
+    public static PreparedQuery create(String queryString, Syntax syntax) {
+        Query query = QueryFactory.create(queryString, syntax);
+        return new PreparedQuery(query, queryString);
+    }
+
+    /** Prepare a query. The query must not be modified afterwards. */
+    public static PreparedQuery create(Query query) {
+        return new PreparedQuery(query, null);
+    }
+
+    private PreparedQuery(Query query, String queryString) {
+        this.query = Objects.requireNonNull(query);
+        this.queryString = queryString;
+        // Set now, while not shared.
+        query.setResultVars();
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    /** The query string, if the query was prepared from one, else null. */
+    public String getQueryString() {
+        return queryString;
+    }
+
+    /** Execute on a dataset. */
+    public QueryExec exec(DatasetGraph dataset) {
+        return QueryExecDatasetBuilder.create().dataset(dataset).query(this).build();
+    }
+
+    /** Execute on a dataset, with parameters. */
+    public QueryExec exec(DatasetGraph dataset, Binding parameters) {
+        return QueryExecDatasetBuilder.create().dataset(dataset).query(this).substitution(parameters).build();
+    }
+
+    /**
+     * Get the algebra stored under a key, calculating it if necessary.
+     * Keys are chosen by the query engine (see {@link QueryEngineBase}).
+     */
+    /*package*/ Op algebra(Object key, Supplier<Op> maker) {
+        Op op = algebra.get(key);
+        if ( op == null ) {
+            op = maker.get();
+            Op op2 = algebra.putIfAbsent(key, op);
+            if ( op2 != null )
+                op = op2;
+        }
+        return op;
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedQuery[" + query + "]";
+    }
+}
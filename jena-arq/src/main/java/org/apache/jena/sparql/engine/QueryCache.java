@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine;
+
+import java.util.Objects;
+
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.atlas.lib.CacheFactory;
+import org.apache.jena.query.Syntax;
+
+/**
+ * A bounded cache of {@link PreparedQuery PreparedQueries} keyed by query string
+ * and syntax.
+ * <p>
+ * When the context symbol {@link org.apache.jena.query.ARQ#queryCache} is true in the
+ * global context, building a query execution from a string uses this cache so that
+ * repeated queries are not parsed or optimized again. The same query string used
+ * with different kinds of dataset is optimized once for each kind of query engine.
+ */
+public class QueryCache {
+    /** Maximum number of queries in the cache. Takes effect on the next {@link #reset()}. */
+    public static int CacheSize = 1000;
+
+    private static Cache<Key, PreparedQuery> cache = CacheFactory.createCache(CacheSize);
+
+    private static class Key {
+        final String queryString;
+        final Syntax syntax;
+        Key(String queryString, Syntax syntax) {
+            this.queryString = queryString;
+            this.syntax = syntax;
+        }
+        @Override
+        public int hashCode() {
+            return Objects.hash(queryString, syntax);
+        }
+        @Override
+        public boolean equals(Object obj) {
+            if ( this == obj )
+                return true;
+            if ( !(obj instanceof Key) )
+                return false;
+            Key other = (Key)obj;
+            return queryString.equals(other.queryString) && Objects.equals(syntax, other.syntax);
+        }
+    }
+
+    /** Get the prepared query for a query string, parsing it if necessary. */
+    public static PreparedQuery get(String queryString) {
+        return get(queryString, Syntax.syntaxARQ);
+    }
+
+    /** Get the prepared query for a query string, parsing it if necessary. */
+    public static PreparedQuery get(String queryString, Syntax syntax) {
+        Key key = new Key(normalize(queryString), syntax);
+        // Parse errors are not cached.
+        PreparedQuery pq = cache.getIfPresent(key);
+        if ( pq == null ) {
+            pq = PreparedQuery.create(queryString, syntax);
+            cache.put(key, pq);
+        }
+        return pq;
+    }
+
+    /** Remove all entries. */
+    public static void clear() {
+        cache.clear();
+    }
+
+    /** Remove all entries and create the cache again with {@link #CacheSize} slots. */
+    public static void reset() {
+        cache = CacheFactory.createCache(CacheSize);
+    }
+
+    /** Number of entries in the cache. */
+    public static long size() {
+        return cache.size();
+    }
+
+    // Remove leading and trailing white space. Inner white space may be in strings.
+    private static String normalize(String queryString) {
+        return queryString.trim();
+    }
+}
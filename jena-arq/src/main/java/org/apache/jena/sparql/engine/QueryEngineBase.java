@@ -18,6 +18,8 @@
 
 package org.apache.jena.sparql.engine;
 
+import java.util.Arrays;
+
 import org.apache.jena.atlas.lib.Closeable;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.irix.IRIs;
@@ -26,12 +28,17 @@ import org.apache.jena.query.QueryExecException;
 import org.apache.jena.sparql.ARQConstants;
 import org.apache.jena.sparql.algebra.Algebra;
 import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.OpVisitorBase;
+import org.apache.jena.sparql.algebra.op.OpModifier;
+import org.apache.jena.sparql.algebra.op.OpProject;
+import org.apache.jena.sparql.algebra.walker.Walker;
 import org.apache.jena.sparql.core.DatasetDescription;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.DynamicDatasets;
 import org.apache.jena.sparql.core.Substitute;
 import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.binding.BindingRoot;
+import org.apache.jena.sparql.expr.ExprVisitorBase;
 import org.apache.jena.sparql.mgt.Explain;
 import org.apache.jena.sparql.mgt.QueryEngineInfo;
 import org.apache.jena.sparql.util.Context;
@@ -50,13 +57,21 @@ public abstract class QueryEngineBase implements OpEval, Closeable
     private Query query = null;
     private Op queryOp = null;
     private Plan plan = null;
+    // Set if the query is a prepared query and this engine can reuse its algebra.
+    private PreparedQuery prepared = null;
 
     protected QueryEngineBase(Query query, DatasetGraph dsg, Binding input, Context cxt) {
         this(dsg, input, cxt);
         this.query = query;
         query.setResultVars();
+        PreparedQuery pq = ( context == null ) ? null : context.get(ARQConstants.sysPreparedQuery);
+        if ( pq != null && pq.getQuery() == query && cacheableOp() )
+            prepared = pq;
         // Unoptimized so far.
-        setOp(createOp(query));
+        if ( prepared != null )
+            setOp(prepared.algebra(getClass(), ()->createOp(query)));
+        else
+            setOp(createOp(query));
         dataset = prepareDataset(dsg, query);
     }
 
@@ -114,6 +129,8 @@ public abstract class QueryEngineBase implements OpEval, Closeable
     }
 
     protected Plan createPlan() {
+        if ( prepared != null && ( startBinding.isEmpty() || !hasSubSelect(queryOp) ) )
+            return createPlanPrepared();
         // Decide the algebra to actually execute.
         Op op = queryOp;
         if ( !startBinding.isEmpty() ) {
@@ -135,6 +152,64 @@ public abstract class QueryEngineBase implements OpEval, Closeable
         return new PlanOp(getOp(), this, queryIterator);
     }
 
+    // Plan for a prepared query: the optimized algebra is calculated once for each
+    // kind of engine (and dataset description) and the start binding is
+    // substituted into it.
+    // The optimizer renames variables hidden by a sub-SELECT so a start binding
+    // substituted afterwards does not reach them; queries with a sub-SELECT and
+    // a start binding are not planned this way.
+    private Plan createPlanPrepared() {
+        Object key = Arrays.asList(getClass(), isDynamicDataset());
+        Op op = prepared.algebra(key, ()->{
+            // Optimize without the start binding; it varies between executions.
+            Binding input = startBinding;
+            startBinding = BindingRoot.create();
+            try {
+                return modifyOp(queryOp);
+            } finally {
+                startBinding = input;
+            }
+        });
+        if ( !startBinding.isEmpty() )
+            op = Substitute.substitute(op, startBinding);
+        context.put(ARQConstants.sysCurrentAlgebra, op);
+        QueryIterator queryIterator = ( dataset != null )
+            ? evaluate(op, dataset, startBinding, context)
+            : evaluateNoMgt(op, dataset, startBinding, context);
+        return new PlanOp(getOp(), this, queryIterator);
+    }
+
+    /**
+     * Whether the algebra has an {@link OpProject}, other than the outermost one,
+     * including in the patterns of EXISTS and NOT EXISTS.
+     */
+    private static boolean hasSubSelect(Op op) {
+        while ( op instanceof OpModifier ) {
+            if ( op instanceof OpProject ) {
+                op = ((OpProject)op).getSubOp();
+                break;
+            }
+            op = ((OpModifier)op).getSubOp();
+        }
+        boolean[] found = { false };
+        Walker.walk(op, new OpVisitorBase() {
+            @Override
+            public void visit(OpProject opProject) { found[0] = true; }
+        }, new ExprVisitorBase());
+        return found[0];
+    }
+
+    /**
+     * Whether the algebra of this engine, compiled by {@link #createOp} and optimized
+     * by {@link #modifyOp} without a start binding, depends only on the query, the
+     * class of engine, and whether the dataset is a dynamic dataset, so it can be
+     * kept by a {@link PreparedQuery} and reused.
+     * Engines that adapt the algebra to other settings (e.g. security)
+     * must return false, which is the default.
+     */
+    protected boolean cacheableOp()
+    { return false; }
+
     protected Op modifyOp(Op op)
     { return op; }
 
@@ -77,41 +77,7 @@ public class BindingComparator implements java.util.Comparator<Binding>
     {
         for ( SortCondition sc : conditions )
         {
-            if ( sc.expression == null )
-            {
-                throw new QueryExecException( "Broken sort condition" );
-            }
-
-            NodeValue nv1 = null;
-            NodeValue nv2 = null;
-
-            try
-            {
-                nv1 = sc.expression.eval( bind1, env );
-            }
-            catch ( VariableNotBoundException ex )
-            {
-            }
-            catch ( ExprEvalException ex )
-            {
-                Log.warn( this, ex.getMessage() );
-            }
-
-            try
-            {
-                nv2 = sc.expression.eval( bind2, env );
-            }
-            catch ( VariableNotBoundException ex )
-            {
-            }
-            catch ( ExprEvalException ex )
-            {
-                Log.warn( this, ex.getMessage() );
-            }
-
-            Node n1 = NodeValue.toNode( nv1 );
-            Node n2 = NodeValue.toNode( nv2 );
-            int x = compareNodes( nv1, nv2, sc.direction );
+            int x = compare(sc, bind1, bind2) ;
             if ( x != Expr.CMP_EQUAL )
             {
                 return x;
@@ -121,7 +87,45 @@ public class BindingComparator implements java.util.Comparator<Binding>
         return compareBindingsSyntactic(bind1, bind2) ;
         //return 0 ;
     }
-    
+
+    /** Compare two bindings by one sort condition, taking the direction of the condition into account. */
+    protected int compare(SortCondition sc, Binding bind1, Binding bind2)
+    {
+        if ( sc.expression == null )
+        {
+            throw new QueryExecException( "Broken sort condition" );
+        }
+
+        NodeValue nv1 = null;
+        NodeValue nv2 = null;
+
+        try
+        {
+            nv1 = sc.expression.eval( bind1, env );
+        }
+        catch ( VariableNotBoundException ex )
+        {
+        }
+        catch ( ExprEvalException ex )
+        {
+            Log.warn( this, ex.getMessage() );
+        }
+
+        try
+        {
+            nv2 = sc.expression.eval( bind2, env );
+        }
+        catch ( VariableNotBoundException ex )
+        {
+        }
+        catch ( ExprEvalException ex )
+        {
+            Log.warn( this, ex.getMessage() );
+        }
+
+        return compareNodes( nv1, nv2, sc.direction );
+    }
+
     private static int compareNodes(NodeValue nv1, NodeValue nv2, int direction)
     {
         int x = compareNodesRaw(nv1, nv2) ;
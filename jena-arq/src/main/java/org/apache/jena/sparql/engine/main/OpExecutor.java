@@ -240,7 +240,9 @@ public class OpExecutor
 
     protected QueryIterator execute(OpConditional opCondition, QueryIterator input) {
         QueryIterator left = exec(opCondition.getLeft(), input) ;
-        QueryIterator qIter = new QueryIterOptionalIndex(left, opCondition.getRight(), execCxt) ;
+        QueryIterator qIter = execCxt.getContext().isTrueOrUndef(ARQ.optAdaptiveJoin)
+            ? new QueryIterOptionalAdaptive(left, opCondition.getRight(), execCxt)
+            : new QueryIterOptionalIndex(left, opCondition.getRight(), execCxt) ;
         return qIter ;
     }
 
@@ -61,6 +61,10 @@ public class QueryEngineMain extends QueryEngineBase
         return qIter ;
     }
     
+    @Override
+    protected boolean cacheableOp()
+    { return getClass() == QueryEngineMain.class ; }
+
     @Override
     protected Op modifyOp(Op op)
     { 
@@ -37,6 +37,10 @@ public class QueryEngineMainQuad extends QueryEngineMain
     public QueryEngineMainQuad(Query query, DatasetGraph dataset, Binding input, Context context)
     { super(query, dataset, input, context) ; }
     
+    @Override
+    protected boolean cacheableOp()
+    { return getClass() == QueryEngineMainQuad.class ; }
+
     @Override
     protected Op modifyOp(Op op)
     { 
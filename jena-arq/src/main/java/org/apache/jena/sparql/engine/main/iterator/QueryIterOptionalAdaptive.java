@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.sparql.engine.main.iterator;
+
+import java.util.ArrayList ;
+import java.util.HashSet ;
+import java.util.List ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.atlas.lib.Lib ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.sparql.algebra.Op ;
+import org.apache.jena.sparql.algebra.OpVars ;
+import org.apache.jena.sparql.algebra.op.* ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.iterator.* ;
+import org.apache.jena.sparql.engine.join.Join ;
+import org.apache.jena.sparql.engine.main.QC ;
+import org.apache.jena.sparql.expr.ExprList ;
+import org.apache.jena.sparql.serializer.SerializationContext ;
+import org.apache.jena.sparql.util.Context ;
+
+/**
+ * Index left join (OPTIONAL by substitution) that watches its own probe cost.
+ * <p>
+ * The optimizer chooses substitution for an OPTIONAL when it is safe to do so,
+ * without knowing how many rows will arrive from the left or how much work each
+ * probe into the right hand side will be. This iterator starts by probing, as
+ * {@link QueryIterOptionalIndex} does. After {@link ARQ#adaptiveJoinProbes} probes,
+ * if the average probe has cost more than {@link ARQ#adaptiveJoinProbeCost}, the
+ * right hand side is evaluated once, independently of the left, and the rest of
+ * the left input is hash left joined against it. If the right hand side turns out
+ * to have more than {@link ARQ#adaptiveJoinHashRows} rows, it is discarded and the
+ * iterator goes back to probing for the rest of the input. The decision is made once.
+ * <p>
+ * Switching is only possible when the right hand side is a join of basic patterns
+ * and paths, possibly with filters. Filters are lifted into the conditions of the
+ * hash left join where that gives the same results as evaluating them under
+ * substitution; otherwise the iterator always probes.
+ */
+public class QueryIterOptionalAdaptive extends QueryIterRepeatApply
+{
+    private final Op op ;
+    private final int probeThreshold ;
+    private final long probeCost ;
+    private final int hashRows ;
+
+    private boolean deciding = true ;
+    private int probes = 0 ;
+    // Time spent in the right hand side for the probes so far.
+    private int timedProbes = 0 ;
+    private long probeNanos = 0 ;
+
+    public QueryIterOptionalAdaptive(QueryIterator input, Op op, ExecutionContext context)
+    {
+        super(input, context) ;
+        this.op = op ;
+        Context cxt = context.getContext() ;
+        this.probeThreshold = cxt.getInt(ARQ.adaptiveJoinProbes, 1000) ;
+        this.probeCost = cxt.getLong(ARQ.adaptiveJoinProbeCost, 20_000L) ;
+        this.hashRows = cxt.getInt(ARQ.adaptiveJoinHashRows, 100_000) ;
+    }
+
+    @Override
+    protected QueryIterator nextStage(Binding binding)
+    {
+        if ( deciding && ++probes > probeThreshold ) {
+            deciding = false ;
+            if ( probeNanos / Math.max(1, timedProbes) >= probeCost ) {
+                QueryIterator hashStage = switchToHash(binding) ;
+                if ( hashStage != null )
+                    return hashStage ;
+            }
+        }
+        if ( ! deciding )
+            return probe(binding) ;
+        // Only the right hand side is timed, not the left input.
+        long start = System.nanoTime() ;
+        QueryIterator cIter = probe(binding) ;
+        probeNanos += System.nanoTime() - start ;
+        timedProbes++ ;
+        return new ProbeTimer(cIter) ;
+    }
+
+    private QueryIterator probe(Binding binding)
+    {
+        Op op2 = QC.substitute(op, binding) ;
+        QueryIterator thisStep = QueryIterSingleton.create(binding, getExecContext()) ;
+        QueryIterator cIter = QC.execute(op2, thisStep, getExecContext()) ;
+        cIter = new QueryIterDefaulting(cIter, binding, getExecContext()) ;
+        return cIter ;
+    }
+
+    /** Add the time taken by a stage to the probe time. */
+    private class ProbeTimer extends QueryIteratorWrapper
+    {
+        ProbeTimer(QueryIterator qIter) { super(qIter) ; }
+
+        @Override
+        protected boolean hasNextBinding()
+        {
+            long start = System.nanoTime() ;
+            try { return super.hasNextBinding() ; }
+            finally { probeNanos += System.nanoTime() - start ; }
+        }
+
+        @Override
+        protected Binding moveToNextBinding()
+        {
+            long start = System.nanoTime() ;
+            try { return super.moveToNextBinding() ; }
+            finally { probeNanos += System.nanoTime() - start ; }
+        }
+    }
+
+    /**
+     * Evaluate the right hand side once and make a stage that hash left joins
+     * {@code binding} and the rest of the input against it.
+     * Return null if that is not possible.
+     */
+    private QueryIterator switchToHash(Binding binding)
+    {
+        ExprList conditions = new ExprList() ;
+        Op right = liftFilters(op, conditions) ;
+        if ( right == null )
+            return null ;
+        List<Binding> rows = materialize(right) ;
+        if ( rows == null )
+            return null ;
+        ExecutionContext execCxt = getExecContext() ;
+        QueryIterConcat left = new QueryIterConcat(execCxt) ;
+        left.add(QueryIterSingleton.create(binding, execCxt)) ;
+        left.add(getInput()) ;
+        // Consumes the input: the next call of nextStage will see the input finished.
+        return Join.hashLeftJoin(left, QueryIterPlainWrapper.create(rows.iterator(), execCxt), conditions, execCxt) ;
+    }
+
+    private List<Binding> materialize(Op right)
+    {
+        ExecutionContext execCxt = getExecContext() ;
+        QueryIterator iter = QC.execute(right, QueryIterRoot.create(execCxt), execCxt) ;
+        try {
+            List<Binding> rows = new ArrayList<>() ;
+            while ( iter.hasNext() ) {
+                if ( rows.size() >= hashRows )
+                    return null ;
+                rows.add(iter.next()) ;
+            }
+            return rows ;
+        } finally { iter.close() ; }
+    }
+
+    /**
+     * Return the right hand side with its filters removed and added to
+     * {@code conditions}, or null if the filters can not be moved or the
+     * operator is not one that can be evaluated independently of the left.
+     */
+    /*package*/ static Op liftFilters(Op op, ExprList conditions)
+    {
+        Set<Var> patternVars = new HashSet<>() ;
+        patternVars(op, patternVars) ;
+        return lift(op, patternVars, conditions) ;
+    }
+
+    /** Variables used in the patterns, not the filters, of a join. */
+    private static void patternVars(Op op, Set<Var> acc)
+    {
+        if ( op instanceof OpFilter )
+            patternVars(((OpFilter)op).getSubOp(), acc) ;
+        else if ( op instanceof OpN ) {
+            for ( Op elt : ((OpN)op).getElements() )
+                patternVars(elt, acc) ;
+        } else if ( op instanceof OpJoin ) {
+            patternVars(((OpJoin)op).getLeft(), acc) ;
+            patternVars(((OpJoin)op).getRight(), acc) ;
+        } else
+            OpVars.mentionedVars(op, acc) ;
+    }
+
+    private static Op lift(Op op, Set<Var> patternVars, ExprList conditions)
+    {
+        if ( op instanceof OpBGP || op instanceof OpTriple || op instanceof OpQuadPattern
+             || op instanceof OpQuad || op instanceof OpPath )
+            return op ;
+        if ( op instanceof OpFilter ) {
+            OpFilter opFilter = (OpFilter)op ;
+            // A variable of the filter that is used in the pattern, but not bound by the
+            // filtered part, is unbound under substitution but may be bound after lifting.
+            Set<Var> fixed = OpVars.fixedVars(opFilter.getSubOp()) ;
+            for ( Var v : opFilter.getExprs().getVarsMentioned() ) {
+                if ( patternVars.contains(v) && ! fixed.contains(v) )
+                    return null ;
+            }
+            Op sub = lift(opFilter.getSubOp(), patternVars, conditions) ;
+            if ( sub == null )
+                return null ;
+            conditions.addAll(opFilter.getExprs()) ;
+            return sub ;
+        }
+        if ( op instanceof OpJoin ) {
+            OpJoin opJoin = (OpJoin)op ;
+            Op left = lift(opJoin.getLeft(), patternVars, conditions) ;
+            Op right = lift(opJoin.getRight(), patternVars, conditions) ;
+            if ( left == null || right == null )
+                return null ;
+            return OpJoin.create(left, right) ;
+        }
+        if ( op instanceof OpSequence ) {
+            OpSequence opSeq = (OpSequence)op ;
+            OpSequence seq = OpSequence.create() ;
+            for ( Op elt : opSeq.getElements() ) {
+                Op x = lift(elt, patternVars, conditions) ;
+                if ( x == null )
+                    return null ;
+                seq.add(x) ;
+            }
+            return seq ;
+        }
+        return null ;
+    }
+
+    @Override
+    protected void details(IndentedWriter out, SerializationContext sCxt)
+    {
+        out.println(Lib.className(this)) ;
+        out.incIndent() ;
+        op.output(out, sCxt) ;
+        out.decIndent() ;
+    }
+}
@@ -22,9 +22,12 @@ import static org.apache.jena.sparql.engine.optimizer.reorder.PatternElements.*
 
 import java.io.OutputStream ;
 import java.util.ArrayList ;
+import java.util.Collection ;
 import java.util.HashMap ;
+import java.util.HashSet ;
 import java.util.List ;
 import java.util.Map ;
+import java.util.Set ;
 
 import org.apache.jena.atlas.io.IndentedWriter ;
 import org.apache.jena.atlas.logging.Log ;
@@ -45,12 +48,20 @@ import org.slf4j.LoggerFactory ;
  *    (meta ...)
  *    ((S P O) weight)
  *    (<predicate uri> weight)
+ *    (<predicate uri> weight (subjects N) (objects M))
+ *    (cset count <predicate uri> ...)
  *  )</pre>
  * where <code>S</code>, <code>P</code>, <code>O</code> is a URI, variable, 
  * literal or one of the words <code>ANY</code> (matches anything), 
  * <code>VAR</code> (matches a variable), <code>TERM</code> (matches a
  * fixed URI, or literal), <code>URI</code>, <code>BNODE</code>, 
  * <code>LITERAL</code> (matches one of these types).    
+ * <p>
+ * The number of distinct subjects and objects of a predicate, if given,
+ * are used for the weights of <code>(TERM P ANY)</code> and <code>(ANY P TERM)</code>
+ * in place of a guess.
+ * A <code>cset</code> is a characteristic set: the number of subjects
+ * that have exactly the predicates listed.
  */
 
 public final class StatsMatcher
@@ -59,7 +70,10 @@ public final class StatsMatcher
     public static final String STATS    = "stats" ; 
     public static final String META     = "meta" ; 
     public static final String COUNT    = "count" ;
+    public static final String SUBJECTS = "subjects" ;
+    public static final String OBJECTS  = "objects" ;
     public static final Item OTHER      = Item.createSymbol("other") ;
+    public static final Item CSET       = Item.createSymbol("cset") ;
     private static double NOMATCH       = -1 ;
     
     private static class Match
@@ -76,6 +90,34 @@ public final class StatsMatcher
     // Map keyed by P for faster lookup (if no P available, we'll use the full list).  
     protected Map<Item, List<Pattern>> mapPatterns = new HashMap<>() ;
     
+    // Counts for predicates where the distinct subject and object counts are known.
+    private Map<Node, PredicateCounts> predicateCounts = new HashMap<>() ;
+
+    // Characteristic sets.
+    private List<CharacteristicSet> characteristicSets = new ArrayList<>() ;
+
+    private static class PredicateCounts
+    {
+        final double count ;
+        final double subjects ;
+        PredicateCounts(double count, double subjects)
+        {
+            this.count = count ;
+            this.subjects = subjects ;
+        }
+    }
+
+    private static class CharacteristicSet
+    {
+        final double count ;
+        final Set<Node> predicates ;
+        CharacteristicSet(double count, Set<Node> predicates)
+        {
+            this.count = count ;
+            this.predicates = predicates ;
+        }
+    }
+
     // Default behaviour
     double DefaultMatch = NOMATCH ;
     
@@ -148,6 +190,12 @@ public final class StatsMatcher
         } 
         else if (pat.isSymbol())
         {
+            if ( pat.equals(CSET) )
+            {
+                addCharacteristicSet(elt) ;
+                return ;
+            }
+
             if ( pat.equals(OTHER) )
             {
                 double d = elt.getList().get(1).getDouble() ;
@@ -188,12 +236,44 @@ public final class StatsMatcher
         Item predicateTerm = elt.getList().get(0) ;
         // Single node - it's a predicate abbreviate.
         double numProp = elt.getList().get(1).getDouble() ;
-        
-        if ( count < 100 )
+        double numSubjects = findCount(elt.getList(), SUBJECTS) ;
+        double numObjects = findCount(elt.getList(), OBJECTS) ;
+
+        if ( predicateTerm.isNode() && ( numSubjects > 0 || numObjects > 0 ) )
+            addPatterns(predicateTerm.getNode(), numProp, numSubjects, numObjects) ;
+        else if ( count < 100 )
             addPatternsSmall(predicateTerm, numProp) ;
         else
             addPatterns(predicateTerm, numProp) ;
     }
+
+    // (tag number) or -1
+    private static double findCount(ItemList list, String tag)
+    {
+        Item x = Item.find(list.cdr(), tag) ;
+        if ( x == null )
+            return -1 ;
+        return x.getList().get(1).getDouble() ;
+    }
+
+    private void addCharacteristicSet(Item elt)
+    {
+        // (cset count <p1> <p2> ...)
+        ItemList list = elt.getList() ;
+        double num = list.get(1).getDouble() ;
+        Set<Node> predicates = new HashSet<>() ;
+        for ( int i = 2 ; i < list.size() ; i++ )
+        {
+            Item x = list.get(i) ;
+            if ( ! x.isNodeURI() )
+            {
+                log.warn("Not a predicate URI in a characteristic set: " + x) ;
+                return ;
+            }
+            predicates.add(x.getNode()) ;
+        }
+        addCharacteristicSet(num, predicates) ;
+    }
     
     // Knowing ?PO is quite important - it ranges from IFP (1) to
     // rdf:type rdf:Resource (potentially everything).
@@ -212,6 +292,72 @@ public final class StatsMatcher
         addPatterns(Item.createNode(predicate),  numProp) ;
     }
     
+    /** Add patterns based on the predicate count and the number of distinct subjects
+     * and distinct objects of the predicate. Zero or a negative number means "not known"
+     * and a guess is used.
+     */
+    public void addPatterns(Node predicate, double numProp, double numSubjects, double numObjects)
+    {
+        boolean small = ( count < 100 ) ;
+        double wSP = ( numSubjects > 0 ) ? numProp / numSubjects : ( small ? weightSP_small : weightSP ) ;
+        double wPO = ( numObjects > 0 ) ? numProp / numObjects : ( small ? weightPO_small : weightPO ) ;
+        wSP = Math.min(numProp, wSP) ;
+        wPO = Math.min(numProp, wPO) ;
+        if ( numSubjects > 0 )
+            predicateCounts.put(predicate, new PredicateCounts(numProp, numSubjects)) ;
+        addPatterns(Item.createNode(predicate), numProp, wSP, wPO) ;
+    }
+
+    /** Add a characteristic set: the number of subjects that have exactly the given predicates. */
+    public void addCharacteristicSet(double numSubjects, Collection<Node> predicates)
+    {
+        characteristicSets.add(new CharacteristicSet(numSubjects, new HashSet<>(predicates))) ;
+    }
+
+    public boolean hasCharacteristicSets()
+    {
+        return ! characteristicSets.isEmpty() ;
+    }
+
+    /** The number of triples in the statistics (the count in the meta section), or -1 if not known. */
+    public long getCount()
+    {
+        return count ;
+    }
+
+    /** The estimated number of subjects that have all the given predicates,
+     * or -1 if there are no characteristic sets.
+     */
+    public double matchStar(Collection<Node> predicates)
+    {
+        if ( characteristicSets.isEmpty() )
+            return NOMATCH ;
+        double x = 0 ;
+        for ( CharacteristicSet cs : characteristicSets )
+        {
+            if ( cs.predicates.containsAll(predicates) )
+                x += cs.count ;
+        }
+        return x ;
+    }
+
+    /** The weight for a triple pattern with a variable subject and a fixed predicate
+     * that is one of a star of patterns with that same subject: the number of subjects
+     * with all the predicates of the star, times the average number of triples per subject
+     * for the predicate of the pattern. Return -1 if not known.
+     */
+    public double matchStar(PatternTriple pTriple, Collection<Node> predicates)
+    {
+        if ( ! pTriple.predicate.isNodeURI() )
+            return NOMATCH ;
+        double subjects = matchStar(predicates) ;
+        if ( subjects < 0 )
+            return NOMATCH ;
+        PredicateCounts pc = predicateCounts.get(pTriple.predicate.getNode()) ;
+        double perSubject = ( pc == null ) ? 1 : pc.count / pc.subjects ;
+        return subjects * perSubject ;
+    }
+
     /** Add patterns based solely on the predicate count and some guessing for a small graph
      * (less than a few thousand triples)
      */  
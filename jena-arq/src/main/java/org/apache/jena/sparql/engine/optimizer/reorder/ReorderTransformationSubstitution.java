@@ -160,7 +160,7 @@ public abstract class ReorderTransformationSubstitution implements ReorderTransf
             PatternTriple pt = pTriples.get(i) ;
             if ( pt == null )
                 continue ;
-            double x = weight(pt) ;
+            double x = weight(pt, pTriples) ;
             if ( x < 0 ) {
                 // ****
                 DefaultChoice choice = defaultChoice(pt) ;
@@ -214,6 +214,15 @@ public abstract class ReorderTransformationSubstitution implements ReorderTransf
 
     /** Return the weight of the pattern, or -1 if no knowledge for it */
     protected abstract double weight(PatternTriple pt) ;
+
+    /**
+     * Return the weight of the pattern, given the patterns not yet chosen (chosen
+     * patterns are null in the list), or -1 if no knowledge for it.
+     * The default is {@link #weight(PatternTriple)}.
+     */
+    protected double weight(PatternTriple pt, List<PatternTriple> pTriples) {
+        return weight(pt) ;
+    }
     
     protected enum DefaultChoice { ZERO, LAST, FIRST , NUMERIC ; }
     /** What to do if the {@link weight} comes back as "not found".
@@ -18,9 +18,14 @@
 
 package org.apache.jena.sparql.engine.optimizer.reorder;
 
+import java.util.HashSet ;
+import java.util.List ;
+import java.util.Set ;
+
+import org.apache.jena.graph.Node ;
 import org.apache.jena.sparql.engine.optimizer.StatsMatcher ;
 
-public final class ReorderWeighted extends ReorderTransformationSubstitution
+public class ReorderWeighted extends ReorderTransformationSubstitution
 {
     private StatsMatcher stats ;
     
@@ -28,10 +33,43 @@ public final class ReorderWeighted extends ReorderTransformationSubstitution
     {
         this.stats = stats ;
     }
+
+    /** The statistics used for the weights. */
+    public StatsMatcher getStatsMatcher()
+    {
+        return stats ;
+    }
     
     @Override
     protected double weight(PatternTriple pTriple)
     {
         return stats.match(pTriple) ;
     }
+
+    /** If there are characteristic sets in the statistics, a pattern with a variable
+     * subject that is part of a star (other patterns with the same subject) is weighted
+     * by the number of subjects that have all the predicates of the star.
+     */
+    @Override
+    protected double weight(PatternTriple pTriple, List<PatternTriple> pTriples)
+    {
+        double w = weight(pTriple) ;
+        if ( w < 0 || ! stats.hasCharacteristicSets() )
+            return w ;
+        if ( ! pTriple.subject.isVar() || ! pTriple.predicate.isNodeURI() )
+            return w ;
+        Node subj = pTriple.subject.getNode() ;
+        Set<Node> star = new HashSet<>() ;
+        for ( PatternTriple pt : pTriples )
+        {
+            if ( pt != null && subj.equals(pt.subject.getNode()) && pt.predicate.isNodeURI() )
+                star.add(pt.predicate.getNode()) ;
+        }
+        if ( star.size() < 2 )
+            return w ;
+        double w2 = stats.matchStar(pTriple, star) ;
+        if ( w2 < 0 )
+            return w ;
+        return Math.min(w, w2) ;
+    }
 }
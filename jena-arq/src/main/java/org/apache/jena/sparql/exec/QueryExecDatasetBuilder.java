@@ -32,10 +32,14 @@ import org.apache.jena.sparql.ARQConstants;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.DatasetGraphFactory;
 import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.PreparedQuery;
+import org.apache.jena.sparql.engine.QueryCache;
 import org.apache.jena.sparql.engine.QueryEngineFactory;
 import org.apache.jena.sparql.engine.QueryEngineRegistry;
 import org.apache.jena.sparql.engine.Timeouts;
 import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
 import org.apache.jena.sparql.syntax.syntaxtransform.QueryTransformOps;
 import org.apache.jena.sparql.util.Context;
 import org.apache.jena.sparql.util.ContextAccumulator;
@@ -60,6 +64,7 @@ public class QueryExecDatasetBuilder implements QueryExecMod, QueryExecBuilder {
     private DatasetGraph dataset            = null;
     private Query        query              = null;
     private String       queryString        = null;
+    private PreparedQuery preparedQuery     = null;
 
     private ContextAccumulator contextAcc =
             ContextAccumulator.newBuilder(()->ARQ.getContext(), ()->Context.fromDataset(dataset));
@@ -82,6 +87,18 @@ public class QueryExecDatasetBuilder implements QueryExecMod, QueryExecBuilder {
     @Override
     public QueryExecDatasetBuilder query(Query query) {
         this.query = query;
+        this.preparedQuery = null;
+        return this;
+    }
+
+    /**
+     * Use a {@link PreparedQuery}: the query is not parsed or optimized again and
+     * any substitution is applied to the prepared algebra.
+     */
+    public QueryExecDatasetBuilder query(PreparedQuery preparedQuery) {
+        this.preparedQuery = preparedQuery;
+        this.query = preparedQuery.getQuery();
+        this.queryString = preparedQuery.getQueryString();
         return this;
     }
 
@@ -93,8 +110,11 @@ public class QueryExecDatasetBuilder implements QueryExecMod, QueryExecBuilder {
 
     @Override
     public QueryExecDatasetBuilder query(String queryString, Syntax syntax) {
+        if ( ARQ.getContext().isTrue(ARQ.queryCache) )
+            return query(QueryCache.get(queryString, syntax));
         this.queryString = queryString;
         this.query = QueryFactory.create(queryString, syntax);
+        this.preparedQuery = null;
         return this;
     }
 
@@ -229,10 +249,18 @@ public class QueryExecDatasetBuilder implements QueryExecMod, QueryExecBuilder {
         // Initial bindings / parameterized query
         Query queryActual = query;
         String queryStringActual = queryString;
+        Binding initial = initialBinding;
 
         if ( substitutionMap != null && ! substitutionMap.isEmpty() ) {
-            queryActual = QueryTransformOps.transform(query, substitutionMap);
-            queryStringActual = null;
+            if ( preparedQuery != null ) {
+                // Substitute into the prepared algebra, as for an initial binding.
+                BindingBuilder builder = BindingFactory.builder(initial);
+                substitutionMap.forEach(builder::add);
+                initial = builder.build();
+            } else {
+                queryActual = QueryTransformOps.transform(query, substitutionMap);
+                queryStringActual = null;
+            }
         }
 
         defaultTimeoutsFromContext(this, cxt);
@@ -241,11 +269,13 @@ public class QueryExecDatasetBuilder implements QueryExecMod, QueryExecBuilder {
             cxt.set(ARQConstants.sysCurrentDataset, DatasetFactory.wrap(dataset));
         if ( queryActual != null )
             cxt.set(ARQConstants.sysCurrentQuery, queryActual);
+        if ( preparedQuery != null )
+            cxt.set(ARQConstants.sysPreparedQuery, preparedQuery);
 
         QueryExec qExec = new QueryExecDataset(queryActual, queryStringActual, dataset, cxt, qeFactory,
                                                initialTimeout, initialTimeoutUnit,
                                                overallTimeout, overallTimeoutUnit,
-                                               initialBinding);
+                                               initial);
         return qExec;
     }
 }
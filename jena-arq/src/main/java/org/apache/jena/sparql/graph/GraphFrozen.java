@@ -0,0 +1,536 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.graph;
+
+import java.io.*;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.datatypes.TypeMapper;
+import org.apache.jena.graph.*;
+import org.apache.jena.graph.impl.AllCapabilities;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.mem.NodeDictionary;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.shared.JenaException;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.shared.impl.PrefixMappingImpl;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NiceIterator;
+import org.apache.jena.util.iterator.NullIterator;
+
+/**
+ * An immutable graph, for data that is loaded once and then only read, such as
+ * reference vocabularies.
+ * <p>
+ * Nodes are held in a {@link NodeDictionary} and the triples as three sorted tables
+ * of node ids, in SPO, POS and OSP order. {@code find} is a binary search for the
+ * range of rows matching the pattern followed by a scan of that range. There is no
+ * per-triple object or hashing overhead: a triple is 36 bytes across the three
+ * tables.
+ * <p>
+ * Build with {@link #create(Graph)} or with a {@link #builder()}, which is also a
+ * {@link StreamRDF} so data can be parsed straight into it. A frozen graph can be
+ * saved with {@link #write(String)} and opened again with {@link #read(String)}; the
+ * tables are memory mapped from the file, not parsed or sorted, so opening a large
+ * graph is quick.
+ * <p>
+ * The graph uses term equality ({@link Capabilities#handlesLiteralTyping} is false).
+ * Adding or deleting triples, and changing the prefixes, are errors.
+ */
+public class GraphFrozen extends GraphBase {
+
+    private static final long MAGIC   = 0x4A454E4146525A31L; // "JENAFRZ1"
+    private static final int  VERSION = 1;
+    // Bytes before the tables: magic, version, #nodes, #triples, #prefixes.
+    private static final int  HEADER  = 8 + 4 * 4;
+
+    // Node encoding in the file.
+    private static final byte URI     = 'U';
+    private static final byte BLANK   = 'B';
+    private static final byte LITERAL = 'L';
+    private static final byte TRIPLE  = 'T';
+
+    private static final Capabilities capabilitiesFrozen = new AllCapabilities() {
+        @Override public boolean addAllowed()           { return false; }
+        @Override public boolean deleteAllowed()        { return false; }
+        @Override public boolean handlesLiteralTyping() { return false; }
+    };
+
+    private final NodeDictionary dictionary;
+    private final int size;
+    // Rows of three node ids. spo is (S,P,O), pos is (P,O,S), osp is (O,S,P).
+    private final IntBuffer spo;
+    private final IntBuffer pos;
+    private final IntBuffer osp;
+
+    private GraphFrozen(NodeDictionary dictionary, int size, IntBuffer spo, IntBuffer pos, IntBuffer osp, PrefixMapping prefixes) {
+        this.dictionary = dictionary;
+        this.size = size;
+        this.spo = spo;
+        this.pos = pos;
+        this.osp = osp;
+        this.pm = new PrefixMappingImpl().setNsPrefixes(prefixes).lock();
+    }
+
+    /** Create a frozen copy of a graph. */
+    public static GraphFrozen create(Graph graph) {
+        Builder builder = builder();
+        builder.prefixes.setNsPrefixes(graph.getPrefixMapping());
+        graph.find().forEachRemaining(builder::triple);
+        return builder.build();
+    }
+
+    /** Return a builder. */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder for a {@link GraphFrozen}.
+     * As a {@link StreamRDF}, it keeps triples and default graph quads, and the prefixes.
+     */
+    public static class Builder implements StreamRDF {
+        private final NodeDictionary dictionary = new NodeDictionary();
+        private final PrefixMapping prefixes = new PrefixMappingImpl();
+        private int[] rows = new int[3 * 1024];
+        private int count = 0;
+        private boolean built = false;
+
+        private Builder() {}
+
+        public Builder add(Triple triple) {
+            if ( built )
+                throw new JenaException("GraphFrozen.Builder: already built");
+            if ( 3 * count == rows.length ) {
+                if ( rows.length > Integer.MAX_VALUE / 2 - 3 )
+                    throw new JenaException("GraphFrozen.Builder: too many triples");
+                rows = Arrays.copyOf(rows, 2 * rows.length);
+            }
+            int x = 3 * count;
+            rows[x]     = dictionary.intern(triple.getSubject());
+            rows[x + 1] = dictionary.intern(triple.getPredicate());
+            rows[x + 2] = dictionary.intern(triple.getObject());
+            count++;
+            return this;
+        }
+
+        public GraphFrozen build() {
+            built = true;
+            // SPO, removing duplicates.
+            int[] rowsSPO = rows;
+            rows = null;
+            sortRows(rowsSPO, 0, count);
+            int n = 0;
+            for ( int i = 0 ; i < count ; i++ ) {
+                if ( n > 0 && compareRows(rowsSPO, n - 1, rowsSPO, i, 3) == 0 )
+                    continue;
+                if ( n != i )
+                    System.arraycopy(rowsSPO, 3 * i, rowsSPO, 3 * n, 3);
+                n++;
+            }
+            rowsSPO = Arrays.copyOf(rowsSPO, 3 * n);
+            int[] rowsPOS = permute(rowsSPO, n, 1, 2, 0);
+            int[] rowsOSP = permute(rowsSPO, n, 2, 0, 1);
+            return new GraphFrozen(dictionary, n, IntBuffer.wrap(rowsSPO), IntBuffer.wrap(rowsPOS), IntBuffer.wrap(rowsOSP), prefixes);
+        }
+
+        private static int[] permute(int[] rows, int n, int c0, int c1, int c2) {
+            int[] x = new int[3 * n];
+            for ( int i = 0 ; i < 3 * n ; i += 3 ) {
+                x[i]     = rows[i + c0];
+                x[i + 1] = rows[i + c1];
+                x[i + 2] = rows[i + c2];
+            }
+            sortRows(x, 0, n);
+            return x;
+        }
+
+        // StreamRDF
+
+        @Override public void start() {}
+
+        @Override public void triple(Triple triple) { add(triple); }
+
+        @Override
+        public void quad(Quad quad) {
+            if ( quad.isTriple() || quad.isDefaultGraph() )
+                add(quad.asTriple());
+        }
+
+        @Override public void base(String base) {}
+
+        @Override public void prefix(String prefix, String iri) { prefixes.setNsPrefix(prefix, iri); }
+
+        @Override public void finish() {}
+    }
+
+    // ---- Sorting rows of three ints held in an int[].
+
+    /** Sort rows [lo, hi) : three-way quicksort (many rows share a first column). */
+    private static void sortRows(int[] rows, int lo, int hi) {
+        while ( hi - lo > 16 ) {
+            swapRows(rows, lo, lo + (hi - lo) / 2);
+            int lt = lo;
+            int gt = hi - 1;
+            int i = lo + 1;
+            // Pivot is row lo, moved along as row lt.
+            while ( i <= gt ) {
+                int c = compareRows(rows, i, rows, lt, 3);
+                if ( c < 0 )
+                    swapRows(rows, lt++, i++);
+                else if ( c > 0 )
+                    swapRows(rows, i, gt--);
+                else
+                    i++;
+            }
+            // Recurse on the smaller part.
+            if ( lt - lo < hi - gt - 1 ) {
+                sortRows(rows, lo, lt);
+                lo = gt + 1;
+            } else {
+                sortRows(rows, gt + 1, hi);
+                hi = lt;
+            }
+        }
+        // Insertion sort.
+        for ( int i = lo + 1 ; i < hi ; i++ ) {
+            for ( int j = i ; j > lo && compareRows(rows, j - 1, rows, j, 3) > 0 ; j-- )
+                swapRows(rows, j - 1, j);
+        }
+    }
+
+    private static int compareRows(int[] rows1, int r1, int[] rows2, int r2, int columns) {
+        for ( int i = 0 ; i < columns ; i++ ) {
+            int c = Integer.compare(rows1[3 * r1 + i], rows2[3 * r2 + i]);
+            if ( c != 0 )
+                return c;
+        }
+        return 0;
+    }
+
+    private static void swapRows(int[] rows, int r1, int r2) {
+        int x1 = 3 * r1;
+        int x2 = 3 * r2;
+        for ( int i = 0 ; i < 3 ; i++ ) {
+            int t = rows[x1 + i];
+            rows[x1 + i] = rows[x2 + i];
+            rows[x2 + i] = t;
+        }
+    }
+
+    // ---- Graph
+
+    @Override
+    public Capabilities getCapabilities() {
+        return capabilitiesFrozen;
+    }
+
+    @Override
+    protected int graphBaseSize() {
+        return size;
+    }
+
+    @Override
+    protected boolean graphBaseContains(Triple t) {
+        if ( ! t.isConcrete() )
+            return super.graphBaseContains(t);
+        int s = dictionary.getId(t.getSubject());
+        int p = dictionary.getId(t.getPredicate());
+        int o = dictionary.getId(t.getObject());
+        if ( s < 0 || p < 0 || o < 0 )
+            return false;
+        int lo = lowerBound(spo, 3, s, p, o);
+        return lo < size && compareRow(spo, lo, 3, s, p, o) == 0;
+    }
+
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(Triple pattern) {
+        Node sm = pattern.getMatchSubject();
+        Node pm = pattern.getMatchPredicate();
+        Node om = pattern.getMatchObject();
+        // -1 for "any".
+        int s = -1;
+        int p = -1;
+        int o = -1;
+        if ( sm != null && (s = dictionary.getId(sm)) < 0 )
+            return NullIterator.instance();
+        if ( pm != null && (p = dictionary.getId(pm)) < 0 )
+            return NullIterator.instance();
+        if ( om != null && (o = dictionary.getId(om)) < 0 )
+            return NullIterator.instance();
+
+        if ( s >= 0 ) {
+            if ( p >= 0 )
+                return o >= 0 ? scan(spo, SPO, 3, s, p, o) : scan(spo, SPO, 2, s, p, 0);
+            return o >= 0 ? scan(osp, OSP, 2, o, s, 0) : scan(spo, SPO, 1, s, 0, 0);
+        }
+        if ( p >= 0 )
+            return o >= 0 ? scan(pos, POS, 2, p, o, 0) : scan(pos, POS, 1, p, 0, 0);
+        if ( o >= 0 )
+            return scan(osp, OSP, 1, o, 0, 0);
+        return new RowIterator(spo, SPO, 0, size);
+    }
+
+    // Column order of each table.
+    private static final int SPO = 0;
+    private static final int POS = 1;
+    private static final int OSP = 2;
+
+    private ExtendedIterator<Triple> scan(IntBuffer table, int order, int columns, int a, int b, int c) {
+        int lo = lowerBound(table, columns, a, b, c);
+        int hi = upperBound(table, columns, a, b, c, lo);
+        if ( lo == hi )
+            return NullIterator.instance();
+        return new RowIterator(table, order, lo, hi);
+    }
+
+    /** First row with the first {@code columns} ids at or after (a,b,c). */
+    private int lowerBound(IntBuffer table, int columns, int a, int b, int c) {
+        int lo = 0;
+        int hi = size;
+        while ( lo < hi ) {
+            int mid = (lo + hi) >>> 1;
+            if ( compareRow(table, mid, columns, a, b, c) < 0 )
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /** First row, at or after {@code start}, with the first {@code columns} ids after (a,b,c). */
+    private int upperBound(IntBuffer table, int columns, int a, int b, int c, int start) {
+        int lo = start;
+        int hi = size;
+        while ( lo < hi ) {
+            int mid = (lo + hi) >>> 1;
+            if ( compareRow(table, mid, columns, a, b, c) <= 0 )
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private static int compareRow(IntBuffer table, int row, int columns, int a, int b, int c) {
+        int x = 3 * row;
+        int r = Integer.compare(table.get(x), a);
+        if ( r != 0 || columns == 1 )
+            return r;
+        r = Integer.compare(table.get(x + 1), b);
+        if ( r != 0 || columns == 2 )
+            return r;
+        return Integer.compare(table.get(x + 2), c);
+    }
+
+    private class RowIterator extends NiceIterator<Triple> {
+        private final IntBuffer table;
+        private final int order;
+        private int row;
+        private final int limit;
+
+        RowIterator(IntBuffer table, int order, int start, int limit) {
+            this.table = table;
+            this.order = order;
+            this.row = start;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return row < limit;
+        }
+
+        @Override
+        public Triple next() {
+            if ( row >= limit )
+                throw new NoSuchElementException();
+            int x = 3 * row++;
+            Node n1 = dictionary.getNode(table.get(x));
+            Node n2 = dictionary.getNode(table.get(x + 1));
+            Node n3 = dictionary.getNode(table.get(x + 2));
+            switch (order) {
+                case SPO: return Triple.create(n1, n2, n3);
+                case POS: return Triple.create(n3, n1, n2);
+                case OSP: return Triple.create(n2, n3, n1);
+                default: throw new IllegalStateException();
+            }
+        }
+    }
+
+    // ---- Snapshot file
+    //
+    // Header: magic (long), version, #nodes, #triples, #prefixes (ints)
+    // Tables: SPO, POS, OSP, each #triples rows of three ints
+    // Prefixes: (prefix, uri) strings
+    // Nodes: in id order
+
+    /** Write the graph to a file which can be opened with {@link #read}. */
+    public void write(String filename) {
+        try ( OutputStream out = Files.newOutputStream(Paths.get(filename)) ) {
+            write(out);
+        } catch (IOException ex) { IO.exception(ex); }
+    }
+
+    /** Write the graph in the format used by {@link #read}. */
+    public void write(OutputStream output) {
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output, 128*1024));
+            Map<String, String> prefixes = pm.getNsPrefixMap();
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dictionary.size());
+            out.writeInt(size);
+            out.writeInt(prefixes.size());
+            writeTable(out, spo);
+            writeTable(out, pos);
+            writeTable(out, osp);
+            for ( Map.Entry<String, String> e : prefixes.entrySet() ) {
+                writeString(out, e.getKey());
+                writeString(out, e.getValue());
+            }
+            for ( int i = 0 ; i < dictionary.size() ; i++ )
+                writeNode(out, dictionary.getNode(i));
+            out.flush();
+        } catch (IOException ex) { IO.exception(ex); }
+    }
+
+    private void writeTable(DataOutputStream out, IntBuffer table) throws IOException {
+        for ( int i = 0 ; i < 3 * size ; i++ )
+            out.writeInt(table.get(i));
+    }
+
+    /**
+     * Open a graph written by {@link #write}.
+     * The tables are memory mapped from the file; the nodes are read into memory.
+     */
+    public static GraphFrozen read(String filename) {
+        Path path = Paths.get(filename);
+        try ( FileChannel channel = FileChannel.open(path, StandardOpenOption.READ) ) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), HEADER));
+            if ( in.readLong() != MAGIC )
+                throw new JenaException("Not a frozen graph file: "+filename);
+            int version = in.readInt();
+            if ( version != VERSION )
+                throw new JenaException("Frozen graph file: unsupported version "+version+": "+filename);
+            int numNodes = in.readInt();
+            int numTriples = in.readInt();
+            int numPrefixes = in.readInt();
+            long tableBytes = 12L * numTriples;
+            if ( tableBytes > Integer.MAX_VALUE )
+                throw new JenaException("Frozen graph file: too many triples to map: "+filename);
+            IntBuffer spo = mapTable(channel, HEADER, tableBytes);
+            IntBuffer pos = mapTable(channel, HEADER + tableBytes, tableBytes);
+            IntBuffer osp = mapTable(channel, HEADER + 2 * tableBytes, tableBytes);
+
+            channel.position(HEADER + 3 * tableBytes);
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 128*1024));
+            PrefixMapping prefixes = new PrefixMappingImpl();
+            for ( int i = 0 ; i < numPrefixes ; i++ ) {
+                String prefix = readString(in);
+                prefixes.setNsPrefix(prefix, readString(in));
+            }
+            NodeDictionary dictionary = new NodeDictionary();
+            for ( int i = 0 ; i < numNodes ; i++ ) {
+                Node n = readNode(in);
+                if ( dictionary.intern(n) != i )
+                    throw new JenaException("Frozen graph file: bad node table: "+filename);
+            }
+            return new GraphFrozen(dictionary, numTriples, spo, pos, osp, prefixes);
+        } catch (IOException ex) { IO.exception(ex); return null; }
+    }
+
+    private static IntBuffer mapTable(FileChannel channel, long start, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, length).asIntBuffer();
+    }
+
+    private static void writeNode(DataOutputStream out, Node node) throws IOException {
+        if ( node.isURI() ) {
+            out.writeByte(URI);
+            writeString(out, node.getURI());
+        } else if ( node.isBlank() ) {
+            out.writeByte(BLANK);
+            writeString(out, node.getBlankNodeLabel());
+        } else if ( node.isLiteral() ) {
+            out.writeByte(LITERAL);
+            writeString(out, node.getLiteralLexicalForm());
+            writeString(out, node.getLiteralLanguage());
+            writeString(out, node.getLiteralDatatypeURI());
+        } else if ( node.isNodeTriple() ) {
+            Triple t = node.getTriple();
+            out.writeByte(TRIPLE);
+            writeNode(out, t.getSubject());
+            writeNode(out, t.getPredicate());
+            writeNode(out, t.getObject());
+        } else
+            throw new JenaException("GraphFrozen: can't write node: "+node);
+    }
+
+    private static Node readNode(DataInputStream in) throws IOException {
+        byte b = in.readByte();
+        switch (b) {
+            case URI:
+                return NodeFactory.createURI(readString(in));
+            case BLANK:
+                return NodeFactory.createBlankNode(readString(in));
+            case LITERAL: {
+                String lex = readString(in);
+                String lang = readString(in);
+                String dtURI = readString(in);
+                if ( ! lang.isEmpty() )
+                    return NodeFactory.createLiteral(lex, lang);
+                RDFDatatype dt = TypeMapper.getInstance().getSafeTypeByName(dtURI);
+                return NodeFactory.createLiteral(lex, dt);
+            }
+            case TRIPLE: {
+                Node s = readNode(in);
+                Node p = readNode(in);
+                Node o = readNode(in);
+                return NodeFactory.createTripleNode(s, p, o);
+            }
+            default:
+                throw new JenaException("Frozen graph file: bad node tag: "+b);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -40,6 +40,7 @@ import org.junit.runners.Suite ;
     , TestLangRdfJson.class
     , TestTriXReader.class
     , TestTriXBad.class
+    , TestLangJSONLDStream.class
     // Protobuf is done in the "protobuf" package
     // Thrift is done in the "thrift" package
     , TestParserFactory.class
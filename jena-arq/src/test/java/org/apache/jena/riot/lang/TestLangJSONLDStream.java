@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RDFWriter;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.PrefixMap;
+import org.apache.jena.riot.system.PrefixMapFactory;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.junit.Test;
+
+public class TestLangJSONLDStream {
+
+    private static String PREFIXES = "PREFIX : <http://example/> PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>\n";
+
+    // Expanded
+    @Test public void jsonld_stream_01() {
+        test("[{'@id': 'http://example/s', 'http://example/p': [{'@value': 'abc'}]}]",
+             ":s :p 'abc' .");
+    }
+
+    @Test public void jsonld_stream_02() {
+        test("[{'@id': 'http://example/s', '@type': ['http://example/T'],"
+            +"  'http://example/p': [{'@id': 'http://example/o'}, {'@value': 'abc', '@language': 'en'},"
+            +"                       {'@value': '1', '@type': 'http://www.w3.org/2001/XMLSchema#int'}]}]",
+             ":s a :T ; :p :o , 'abc'@en , '1'^^xsd:int .");
+    }
+
+    @Test public void jsonld_stream_03() {
+        // Blank nodes, embedded node objects.
+        test("[{'@id': '_:b1', 'http://example/p': [{'@id': '_:b2'}]},"
+            +" {'@id': '_:b2', 'http://example/q': [{'http://example/r': [{'@value': 1}]}]}]",
+             "_:b1 :p _:b2 . _:b2 :q [ :r 1 ] .");
+    }
+
+    @Test public void jsonld_stream_04() {
+        // Native values.
+        test("[{'@id': 'http://example/s', 'http://example/p': [{'@value': 1}, {'@value': 1.5}, {'@value': true}, {'@value': 1e25}]}]",
+             ":s :p 1, '1.5E0'^^xsd:double, true, '1.0E25'^^xsd:double .");
+    }
+
+    @Test public void jsonld_stream_05() {
+        // Lists
+        test("[{'@id': 'http://example/s', 'http://example/p': [{'@list': [{'@value': 1}, {'@id': 'http://example/o'}]}],"
+            +"                              'http://example/q': [{'@list': []}]}]",
+             ":s :p (1 :o) ; :q () .");
+    }
+
+    // Flattened, with a context.
+    @Test public void jsonld_stream_10() {
+        test("{'@context': {'@vocab': 'http://example/', 'ex': 'http://example/'},"
+            +" '@graph': [ {'@id': 'ex:s', 'p': 'abc', 'q': {'@id': 'ex:o'}},"
+            +"             {'@id': 'ex:o', '@type': 'T', 'p': 2} ] }",
+             ":s :p 'abc' ; :q :o . :o a :T ; :p 2 .");
+    }
+
+    @Test public void jsonld_stream_11() {
+        // Term definitions.
+        test("{'@context': {'ex': 'http://example/', 'xsd': 'http://www.w3.org/2001/XMLSchema#',"
+            +"              'id': '@id', 'type': '@type',"
+            +"              'link': {'@id': 'ex:link', '@type': '@id'},"
+            +"              'kind': {'@id': 'ex:kind', '@type': '@vocab'},"
+            +"              'date': {'@id': 'ex:date', '@type': 'xsd:date'},"
+            +"              'items': {'@id': 'ex:items', '@container': '@list'},"
+            +"              'label': {'@id': 'ex:label', '@language': 'en'},"
+            +"              'T': 'ex:T' },"
+            +" '@graph': [ {'id': 'ex:s', 'type': 'T', 'link': 'ex:o', 'kind': 'T', 'date': '2020-01-01',"
+            +"              'items': ['a', 'b'], 'label': 'abc'} ] }",
+             ":s a :T ; :link :o ; :kind :T ; :date '2020-01-01'^^xsd:date ; :items ('a' 'b') ; :label 'abc'@en .");
+    }
+
+    @Test public void jsonld_stream_12() {
+        // Default language, relative IRIs and @base.
+        test("{'@context': {'@vocab': 'http://example/', '@language': 'fr', '@base': 'http://example/base/'},"
+            +" '@graph': [ {'@id': 's', 'p': 'abc', 'q': {'@value': 'def'}, 'r': {'@id': '../o'}} ] }",
+             "<http://example/base/s> :p 'abc'@fr ; :q 'def' ; :r :o .");
+    }
+
+    @Test public void jsonld_stream_13() {
+        // Keys that do not expand to IRIs are dropped.
+        test("{'@context': {'ex': 'http://example/', 'ignored': null},"
+            +" '@graph': [ {'@id': 'ex:s', 'ex:p': 1, 'ignored': 2, 'other': 3} ] }",
+             ":s :p 1 .");
+    }
+
+    @Test public void jsonld_stream_14() {
+        // Single top-level node object.
+        test("{'@context': {'@vocab': 'http://example/'}, '@id': 'http://example/s', 'p': 1}",
+             ":s :p 1 .");
+    }
+
+    // Named graphs
+    @Test public void jsonld_stream_20() {
+        test("{'@context': {'@vocab': 'http://example/'}, '@id': 'http://example/g',"
+            +" '@graph': [ {'@id': 'http://example/s', 'p': 1} ] }",
+             "GRAPH :g { :s :p 1 }");
+    }
+
+    @Test public void jsonld_stream_21() {
+        test("[ {'@id': 'http://example/g', 'http://example/p': 1, '@graph': [ {'@id': 'http://example/s', 'http://example/q': 2} ] },"
+            +"  {'@id': 'http://example/s', 'http://example/q': 3} ]",
+             ":g :p 1 . :s :q 3 . GRAPH :g { :s :q 2 }");
+    }
+
+    @Test public void jsonld_stream_22() {
+        // @graph before @id: not streamed.
+        test("[ {'@graph': [ {'@id': 'http://example/s', 'http://example/q': 2} ], '@id': 'http://example/g'} ]",
+             "GRAPH :g { :s :q 2 }");
+    }
+
+    @Test public void jsonld_stream_23() {
+        // Graph object without @id.
+        test("[ {'@graph': [ {'@id': 'http://example/s', 'http://example/q': 2} ] } ]",
+             "GRAPH _:g { :s :q 2 }");
+    }
+
+    @Test(expected=RiotException.class)
+    public void jsonld_stream_bad_01() {
+        // A key after a streamed top-level @graph.
+        parse(Lang.JSONLD_STREAM, "{'@graph': [ {'@id': 'http://example/s', 'http://example/q': 2} ], '@id': 'http://example/g'}", null);
+    }
+
+    @Test(expected=RiotException.class)
+    public void jsonld_stream_bad_02() {
+        parse(Lang.JSONLD_STREAM, "{'@graph': [ {'@id': 'http://example/s'} ], '@context': {}}", null);
+    }
+
+    @Test(expected=RiotException.class)
+    public void jsonld_stream_bad_03() {
+        parse(Lang.JSONLD_STREAM, "'abc'", null);
+    }
+
+    // NDJSON-LD
+    @Test public void ndjsonld_01() {
+        testND("{'@id': 'http://example/s1', 'http://example/p': 1}\n"
+              +"{'@id': 'http://example/s2', 'http://example/p': 2}\n",
+               null,
+               ":s1 :p 1 . :s2 :p 2 .");
+    }
+
+    @Test public void ndjsonld_02() {
+        // Blank node labels are scoped to the input.
+        testND("{'@context': {'@vocab': 'http://example/'}, '@id': '_:b', 'p': 1}\n"
+              +"{'@context': {'@vocab': 'http://example/'}, '@id': '_:b', 'q': 2}\n",
+               null,
+               "_:x :p 1 ; :q 2 .");
+    }
+
+    @Test public void ndjsonld_03() {
+        // Initial context.
+        testND("{'@id': 'ex:s1', 'p': 1}\n"
+              +"{'@id': 'ex:s2', 'p': 2}\n",
+               "{'@vocab': 'http://example/', 'ex': 'http://example/'}",
+               ":s1 :p 1 . :s2 :p 2 .");
+    }
+
+    @Test public void ndjsonld_04() {
+        testND("", null, "");
+    }
+
+    @Test public void ndjsonld_05() {
+        // Initial context in the JSON-LD java form.
+        Map<String, Object> initialContext = new LinkedHashMap<>();
+        initialContext.put("@vocab", "http://example/");
+        initialContext.put("ex", "http://example/");
+        DatasetGraph dsg = parse(Lang.NDJSONLD, "{'@id': 'ex:s1', 'p': 1}\n", initialContext);
+        check(dsg, ":s1 :p 1 .");
+    }
+
+    @Test public void jsonld_stream_prefixes_01() {
+        PrefixMap pmap = PrefixMapFactory.create();
+        DatasetGraph dsg = DatasetGraphFactory.createTxnMem();
+        String json = "{'@context': {'ex': 'http://example/', '@vocab': 'http://example/ns#', 'p': {'@id': 'ex:p'}}, '@graph': []}";
+        RDFParser.fromString(json.replace('\'', '"')).lang(Lang.JSONLD_STREAM)
+            .parse(new StreamRDFWrapper(StreamRDFLib.dataset(dsg)) {
+                @Override public void prefix(String prefix, String iri) { pmap.add(prefix, iri); }
+            });
+        assertEquals(2, pmap.size());
+        assertEquals("http://example/", pmap.get("ex"));
+        assertEquals("http://example/ns#", pmap.get(""));
+    }
+
+    // Fallback to the full JSON-LD processor.
+    @Test public void jsonld_stream_fallback_01() {
+        test("{'@context': {'@vocab': 'http://example/', 'parent': {'@reverse': 'http://example/child'}},"
+            +" '@graph': [ {'@id': 'http://example/s', 'p': 1, 'parent': {'@id': 'http://example/x'}},"
+            +"             {'@id': 'http://example/t', 'p': 2} ] }",
+             ":s :p 1 . :x :child :s . :t :p 2 .");
+    }
+
+    @Test public void jsonld_stream_fallback_02() {
+        // Blank nodes are shared with the streamed nodes.
+        test("[ {'@id': '_:b1', 'http://example/p': [{'@id': '_:b2'}]},"
+            +"  {'@id': '_:b2', '@reverse': {'http://example/q': [{'@id': '_:b1'}]}} ]",
+             "_:b1 :p _:b2 . _:b1 :q _:b2 .");
+    }
+
+    @Test public void jsonld_stream_fallback_03() {
+        test("{'@context': {'@vocab': 'http://example/'}, '@id': 'http://example/g',"
+            +" '@graph': [ {'@id': 'http://example/s', '@included': [{'@id': 'http://example/t', 'p': 1}]} ] }",
+             "GRAPH :g { :t :p 1 }");
+    }
+
+    private static void test(String json, String expected) {
+        DatasetGraph dsg = parse(Lang.JSONLD_STREAM, json, null);
+        check(dsg, expected);
+    }
+
+    private static void testND(String json, String initialContext, String expected) {
+        DatasetGraph dsg = parse(Lang.NDJSONLD, json, initialContext);
+        check(dsg, expected);
+    }
+
+    private static DatasetGraph parse(Lang lang, String json, String initialContext) {
+        return parse(lang, json, initialContext == null ? null : (Object)initialContext.replace('\'', '"'));
+    }
+
+    private static DatasetGraph parse(Lang lang, String json, Object initialContext) {
+        DatasetGraph dsg = DatasetGraphFactory.createTxnMem();
+        Context cxt = new Context();
+        if ( initialContext != null )
+            cxt.set(JsonLDReader.JSONLD_CONTEXT, initialContext);
+        RDFParser.fromString(json.replace('\'', '"')).lang(lang).context(cxt).parse(dsg);
+        return dsg;
+    }
+
+    private static void check(DatasetGraph dsg, String expected) {
+        DatasetGraph dsgExpected = DatasetGraphFactory.createTxnMem();
+        RDFParser.fromString(PREFIXES+expected).lang(Lang.TRIG).parse(dsgExpected);
+        boolean b = IsoMatcher.isomorphic(dsgExpected, dsg);
+        if ( b )
+            return;
+        String msg = "Not isomorphic\nExpected:\n"+RDFWriter.create(dsgExpected).lang(Lang.TRIG).asString()
+                    +"Actual:\n"+RDFWriter.create(dsg).lang(Lang.TRIG).asString();
+        assertTrue(msg, b);
+    }
+}
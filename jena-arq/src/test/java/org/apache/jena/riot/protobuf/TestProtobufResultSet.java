@@ -19,6 +19,7 @@
 package org.apache.jena.riot.protobuf;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -101,6 +102,39 @@ public class TestProtobufResultSet {
         return resultSet2 ;
     }
 
+    // Repeated values, including after an undefined value.
+    static ResultSetRewindable rs3 = make
+        ("(resultset (?x ?y ?z)"
+         , "   (row (?x 1) (?y <http://example/y>) (?z 'a'))"
+         , "   (row (?x 1) (?y <http://example/y>) (?z 'b'))"
+         , "   (row (?x 1) (?z 'b'))"
+         , "   (row (?x 1) (?y <http://example/y>) (?z 'b'))"
+         , "   (row)"
+         , "   (row (?x _:a) (?y <http://example/y>) (?z 'b'@en))"
+         , "   (row (?x _:a) (?y <http://example/y>) (?z 'b'))"
+         , ")"
+         ) ;
+
+    @Test public void resultSet_04() {
+        byte[] bytes1 = write(rs3, false) ;
+        byte[] bytes2 = write(rs3, true) ;
+        assertTrue(bytes2.length < bytes1.length) ;
+        for ( byte[] bytes : new byte[][] {bytes1, bytes2} ) {
+            ResultSetRewindable rs = ResultSetFactory.makeRewindable(ProtobufRDF.readResultSet(new ByteArrayInputStream(bytes))) ;
+            rs3.reset() ;
+            assertTrue(ResultSetCompare.equalsExact(rs3, rs)) ;
+        }
+        rs3.reset() ;
+    }
+
+    private static byte[] write(ResultSetRewindable resultSet, boolean withRepeats) {
+        resultSet.reset() ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        ProtobufRDF.writeResultSet(out, resultSet, false, withRepeats) ;
+        resultSet.reset() ;
+        return out.toByteArray() ;
+    }
+
     private static ResultSetRewindable make(String ... strings) {
         String s = StrUtils.strjoinNL(strings) ;
         Item item = SSE.parse(s) ;
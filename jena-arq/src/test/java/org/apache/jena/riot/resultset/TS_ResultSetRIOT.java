@@ -23,7 +23,8 @@ import org.junit.runners.Suite ;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
-    TestResultSetIO.class
+    TestResultSetIO.class,
+    TestResultSetWriterOutput.class
 })
 
 public class TS_ResultSetRIOT { }
@@ -19,6 +19,7 @@
 package org.apache.jena.riot.resultset;
 
 import static org.apache.jena.riot.resultset.ResultSetLang.* ;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream ;
@@ -104,5 +105,22 @@ public class TestResultSetIO {
         ResultSet rs2 = ResultSetMgr.read(in, lang) ;
         assertTrue(ResultSetCompare.equalsByTerm(rsw, rs2)) ;
     }
-}
 
+    @Test public void test_resultset_02() {
+        // Output larger than the output buffer, with repeated terms.
+        List<String> rows = new ArrayList<>() ;
+        rows.add("(resultset (?x ?y ?z)") ;
+        for ( int i = 0 ; i < 2000 ; i++ )
+            rows.add("(row (?x <http://example/s"+(i%10)+">) (?y \"caf\u00E9 \\\"<&>\\\" "+i+"\"@fr) (?z _:b"+(i%3)+"))") ;
+        rows.add(")") ;
+        ResultSetRewindable rs1 = ResultSetFactory.makeRewindable(BuilderResultSet.build(SSE.parse(String.join("\n", rows)))) ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        ResultSetMgr.write(out, rs1, lang) ;
+        rs1.reset();
+        ResultSet rs2 = ResultSetMgr.read(new ByteArrayInputStream(out.toByteArray()), lang) ;
+        if ( ! lang.equals(RS_CSV) )
+            assertTrue(ResultSetCompare.equalsByTerm(rs1, rs2)) ;
+        else
+            assertEquals(2000, ResultSetFactory.makeRewindable(rs2).size()) ;
+    }
+}
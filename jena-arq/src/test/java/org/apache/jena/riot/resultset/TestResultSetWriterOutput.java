@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.resultset;
+
+import static org.apache.jena.riot.resultset.ResultSetLang.* ;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream ;
+import java.nio.charset.StandardCharsets ;
+
+import org.apache.jena.query.ResultSet ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.ResultSetMgr ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.sparql.sse.builders.BuilderResultSet ;
+import org.junit.Test ;
+
+/** The exact output of the result set writers. */
+public class TestResultSetWriterOutput {
+
+    static String rsEmpty = "(resultset (?x ?y))" ;
+
+    static String rsPlain = String.join("\n"
+        , "(resultset (?x ?y ?z)"
+        , "   (row (?x <http://example/a>) (?y \"a\\tb\\\"c<d>&e\"@en) )"
+        , "   (row (?x _:b0)                (?z 1) )"
+        , ")") ;
+
+    static String rsTripleTerm = "(resultset (?x) (row (?x << <http://example/s> <http://example/p> 'o' >>)))" ;
+
+    @Test public void json_empty() {
+        test(RS_JSON, rsEmpty
+            , "{ \"head\": {"
+            , "    \"vars\": [ \"x\" , \"y\" ]"
+            , "  } ,"
+            , "  \"results\": {"
+            , "    \"bindings\": ["
+            , "      "
+            , "    ]"
+            , "  }"
+            , "}") ;
+    }
+
+    @Test public void json_plain() {
+        test(RS_JSON, rsPlain
+            , "{ \"head\": {"
+            , "    \"vars\": [ \"x\" , \"y\" , \"z\" ]"
+            , "  } ,"
+            , "  \"results\": {"
+            , "    \"bindings\": ["
+            , "      { "
+            , "        \"x\": { \"type\": \"uri\" , \"value\": \"http://example/a\" } ,"
+            , "        \"y\": { \"type\": \"literal\" , \"xml:lang\": \"en\" , \"value\": \"a\\tb\\\"c<d>&e\" }"
+            , "      } ,"
+            , "      { "
+            , "        \"x\": { \"type\": \"bnode\" , \"value\": \"b0\" } ,"
+            , "        \"z\": { \"type\": \"literal\" , \"datatype\": \"http://www.w3.org/2001/XMLSchema#integer\" , \"value\": \"1\" }"
+            , "      }"
+            , "    ]"
+            , "  }"
+            , "}") ;
+    }
+
+    @Test public void json_triple_term() {
+        test(RS_JSON, rsTripleTerm
+            , "{ \"head\": {"
+            , "    \"vars\": [ \"x\" ]"
+            , "  } ,"
+            , "  \"results\": {"
+            , "    \"bindings\": ["
+            , "      { "
+            , "        \"x\": {"
+            , "          \"type\": \"triple\" , "
+            , "          \"value\": {"
+            , "            \"subject\":  { \"type\": \"uri\" , \"value\": \"http://example/s\" } ,"
+            , "            \"predicate\": { \"type\": \"uri\" , \"value\": \"http://example/p\" } ,"
+            , "            \"object\":   { \"type\": \"literal\" , \"value\": \"o\" }"
+            , "          }"
+            , "        }"
+            , "      }"
+            , "    ]"
+            , "  }"
+            , "}") ;
+    }
+
+    @Test public void xml_empty() {
+        test(RS_XML, rsEmpty
+            , "<?xml version=\"1.0\"?>"
+            , "<sparql xmlns=\"http://www.w3.org/2005/sparql-results#\">"
+            , "  <head>"
+            , "    <variable name=\"x\"/>"
+            , "    <variable name=\"y\"/>"
+            , "  </head>"
+            , "  <results>"
+            , "  </results>"
+            , "</sparql>") ;
+    }
+
+    @Test public void xml_plain() {
+        test(RS_XML, rsPlain
+            , "<?xml version=\"1.0\"?>"
+            , "<sparql xmlns=\"http://www.w3.org/2005/sparql-results#\">"
+            , "  <head>"
+            , "    <variable name=\"x\"/>"
+            , "    <variable name=\"y\"/>"
+            , "    <variable name=\"z\"/>"
+            , "  </head>"
+            , "  <results>"
+            , "    <result>"
+            , "      <binding name=\"x\">"
+            , "        <uri>http://example/a</uri>"
+            , "      </binding>"
+            , "      <binding name=\"y\">"
+            , "        <literal xml:lang=\"en\">a&#x0009;b\"c&lt;d&gt;&amp;e</literal>"
+            , "      </binding>"
+            , "    </result>"
+            , "    <result>"
+            , "      <binding name=\"x\">"
+            , "        <bnode>b0</bnode>"
+            , "      </binding>"
+            , "      <binding name=\"z\">"
+            , "        <literal datatype=\"http://www.w3.org/2001/XMLSchema#integer\">1</literal>"
+            , "      </binding>"
+            , "    </result>"
+            , "  </results>"
+            , "</sparql>") ;
+    }
+
+    @Test public void xml_triple_term() {
+        test(RS_XML, rsTripleTerm
+            , "<?xml version=\"1.0\"?>"
+            , "<sparql xmlns=\"http://www.w3.org/2005/sparql-results#\">"
+            , "  <head>"
+            , "    <variable name=\"x\"/>"
+            , "  </head>"
+            , "  <results>"
+            , "    <result>"
+            , "      <binding name=\"x\">"
+            , "        <triple>"
+            , "          <subject>"
+            , "            <uri>http://example/s</uri>"
+            , "          </subject>"
+            , "          <predicate>"
+            , "            <uri>http://example/p</uri>"
+            , "          </predicate>"
+            , "          <object>"
+            , "            <literal>o</literal>"
+            , "          </object>"
+            , "        </triple>"
+            , "      </binding>"
+            , "    </result>"
+            , "  </results>"
+            , "</sparql>") ;
+    }
+
+    @Test public void csv_empty() {
+        testCRLF(RS_CSV, rsEmpty, "x,y") ;
+    }
+
+    @Test public void csv_plain() {
+        testCRLF(RS_CSV, rsPlain
+            , "x,y,z"
+            , "http://example/a,\"a\tb\"\"c<d>&e\","
+            , "_:b0,,1") ;
+    }
+
+    @Test public void tsv_empty() {
+        test(RS_TSV, rsEmpty, "?x\t?y") ;
+    }
+
+    @Test public void tsv_triple_term() {
+        test(RS_TSV, rsTripleTerm
+            , "?x"
+            , "<< <http://example/s> <http://example/p> \"o\" >>") ;
+    }
+
+    private static void test(Lang lang, String rsStr, String... lines) {
+        assertEquals(String.join("\n", lines)+"\n", write(lang, rsStr)) ;
+    }
+
+    private static void testCRLF(Lang lang, String rsStr, String... lines) {
+        assertEquals(String.join("\r\n", lines)+"\r\n", write(lang, rsStr)) ;
+    }
+
+    private static String write(Lang lang, String rsStr) {
+        ResultSet rs = BuilderResultSet.build(SSE.parse(rsStr)) ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        ResultSetMgr.write(out, rs, lang) ;
+        return new String(out.toByteArray(), StandardCharsets.UTF_8) ;
+    }
+}
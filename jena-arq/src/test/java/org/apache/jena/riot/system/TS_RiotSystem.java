@@ -44,6 +44,7 @@ import org.junit.runners.Suite.SuiteClasses;
     , TestLangRegistration.class
     , TestFormatRegistration.class
     , TestJsonLDReadWrite.class         // Some simple testing of the jsonld-java engine.
+    , TestJsonLDContextCache.class
     , TestSerializable.class
     , TestIRIxRIOT.class
     , TestRiotLib.class
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.system;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.apicatalog.jsonld.document.Document;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.RiotNotFoundException;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.Context;
+import org.junit.Test;
+
+public class TestJsonLDContextCache {
+
+    private static String DIR = "testing/RIOT/jsonld/";
+    private static String contextURL = "http://example/context1.jsonld";
+
+    @Test public void context_cache_registry_01() {
+        JsonLDContextCache cache = new JsonLDContextCache(10);
+        assertEquals(contextURL, cache.mapURL(contextURL));
+        cache.register(contextURL, DIR+"context1.jsonld");
+        assertEquals(DIR+"context1.jsonld", cache.mapURL(contextURL));
+        cache.unregister(contextURL);
+        assertEquals(contextURL, cache.mapURL(contextURL));
+    }
+
+    @Test public void context_cache_get_01() {
+        JsonLDContextCache cache = new JsonLDContextCache(10);
+        AtomicInteger counter = new AtomicInteger(0);
+        String x1 = cache.get("key", String.class, ()->"value"+counter.incrementAndGet());
+        String x2 = cache.get("key", String.class, ()->"value"+counter.incrementAndGet());
+        assertEquals("value1", x1);
+        assertSame(x1, x2);
+        assertEquals(1, counter.get());
+        // Kinds are kept apart.
+        Integer x3 = cache.get("key", Integer.class, ()->counter.incrementAndGet());
+        assertEquals(2, x3.intValue());
+        cache.clear();
+        String x4 = cache.get("key", String.class, ()->"value"+counter.incrementAndGet());
+        assertEquals("value3", x4);
+    }
+
+    @Test public void context_cache_get_02() {
+        // No caching.
+        JsonLDContextCache cache = new JsonLDContextCache(0);
+        AtomicInteger counter = new AtomicInteger(0);
+        cache.get("key", String.class, ()->"value"+counter.incrementAndGet());
+        cache.get("key", String.class, ()->"value"+counter.incrementAndGet());
+        assertEquals(2, counter.get());
+    }
+
+    @Test public void context_cache_load_01() {
+        JsonLDContextCache cache = new JsonLDContextCache(10).register(contextURL, DIR+"context1.jsonld");
+        AtomicInteger counter = new AtomicInteger(0);
+        for ( int i = 0 ; i < 3 ; i++ ) {
+            String x = cache.load(contextURL, String.class, in->{ counter.incrementAndGet(); return "context"; }, null);
+            assertEquals("context", x);
+        }
+        assertEquals(1, counter.get());
+    }
+
+    @Test(expected=RiotNotFoundException.class)
+    public void context_cache_load_02() {
+        JsonLDContextCache cache = new JsonLDContextCache(10);
+        cache.load(DIR+"no-such-context.jsonld", String.class, in->"context", null);
+    }
+
+    @Test public void context_cache_parse_01() {
+        JsonLDContextCache cache = new JsonLDContextCache(10).register(contextURL, DIR+"context1.jsonld");
+        Context cxt = new Context();
+        cxt.set(JsonLDContextCache.symContextCache, cache);
+        String json = "{'@context': '"+contextURL+"', '@id': 'ex:s', 'p': 'abc', 'link': 'ex:o'}";
+        // Parse twice - the second time uses the cache.
+        for ( int i = 0 ; i < 2 ; i++ ) {
+            DatasetGraph dsg = parse(json, cxt);
+            assertEquals(2, dsg.getDefaultGraph().size());
+            assertTrue(dsg.getDefaultGraph().contains(SSE.parseTriple("(:s :p 'abc')")));
+            assertTrue(dsg.getDefaultGraph().contains(SSE.parseTriple("(:s :link :o)")));
+        }
+    }
+
+    @Test(expected=RiotException.class)
+    public void context_cache_parse_02() {
+        // Not registered, not found.
+        JsonLDContextCache cache = new JsonLDContextCache(10);
+        Context cxt = new Context();
+        cxt.set(JsonLDContextCache.symContextCache, cache);
+        String json = "{'@context': '"+DIR+"no-such-context.jsonld', '@id': 'http://example/s', 'http://example/p': 'abc'}";
+        parse(json, cxt);
+    }
+
+    @Test public void context_cache_parse_03() {
+        // JSON-LD 1.1: the cached document is shared and is not changed by a parse.
+        String contextURL2 = "http://example/other/context1.jsonld";
+        JsonLDContextCache cache = new JsonLDContextCache(10)
+            .register(contextURL, DIR+"context1.jsonld")
+            .register(contextURL2, DIR+"context1.jsonld");
+        Context cxt = new Context();
+        cxt.set(JsonLDContextCache.symContextCache, cache);
+        for ( String url : new String[] {contextURL, contextURL2, contextURL} ) {
+            String json = "{'@context': '"+url+"', '@id': 'ex:s', 'p': 'abc', 'link': 'ex:o'}";
+            DatasetGraph dsg = parse(json, Lang.JSONLD11, cxt);
+            assertEquals(2, dsg.getDefaultGraph().size());
+            Document document = cache.load(url, Document.class, in->{ throw new RiotException("Not cached"); }, null);
+            assertNull(document.getDocumentUrl());
+        }
+    }
+
+    private static DatasetGraph parse(String json, Context cxt) {
+        return parse(json, Lang.JSONLD_STREAM, cxt);
+    }
+
+    private static DatasetGraph parse(String json, Lang lang, Context cxt) {
+        DatasetGraph dsg = DatasetGraphFactory.createTxnMem();
+        RDFParser.fromString(json.replace('\'', '"')).lang(lang).context(cxt).errorHandler(ErrorHandlerFactory.errorHandlerNoLogging).parse(dsg);
+        return dsg;
+    }
+}
@@ -24,7 +24,11 @@ import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream ;
 import java.io.ByteArrayOutputStream ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
 import java.util.Iterator ;
+import java.util.List ;
+import java.util.function.Consumer ;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.lib.StrUtils ;
@@ -33,6 +37,8 @@ import org.apache.jena.graph.Node ;
 import org.apache.jena.graph.Triple ;
 import org.apache.jena.riot.Lang ;
 import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.riot.lang.CollectorStreamQuads ;
+import org.apache.jena.riot.lang.CollectorStreamTriples ;
 import org.apache.jena.riot.system.StreamRDFOps ;
 import org.apache.jena.riot.system.StreamRDF ;
 import org.apache.jena.riot.system.StreamRDFLib ;
@@ -158,6 +164,74 @@ public class TestThriftStreamRDF {
         termAsObject(dsg1, obj) ;
     }
     
+    // Stream order, with repeated terms.
+    static List<Triple> triplesRepeats = Arrays.asList(
+        SSE.parseTriple("(:s :p 1)"),
+        SSE.parseTriple("(:s :p 2)"),
+        SSE.parseTriple("(:s :q 2)"),
+        SSE.parseTriple("(:s1 :q 'abc'@en)"),
+        SSE.parseTriple("(:s1 :q 'abc'@en)"),
+        SSE.parseTriple("(:s :p 1)")) ;
+
+    static List<Quad> quadsRepeats = Arrays.asList(
+        SSE.parseQuad("(:g :s :p 1)"),
+        SSE.parseQuad("(:g :s :p 2)"),
+        SSE.parseQuad("(:g :s :q 2)"),
+        SSE.parseQuad("(:g2 :s :q 2)"),
+        SSE.parseQuad("(:g2 :s1 :p :s)"),
+        SSE.parseQuad("(:g :s1 :p :s)")) ;
+
+    @Test public void repeats_01() {
+        byte[] bytes1 = write(s -> triplesRepeats.forEach(s::triple), false) ;
+        byte[] bytes2 = write(s -> triplesRepeats.forEach(s::triple), true) ;
+        assertTrue(bytes2.length < bytes1.length) ;
+        assertEquals(triplesRepeats, readTriples(bytes1)) ;
+        assertEquals(triplesRepeats, readTriples(bytes2)) ;
+    }
+
+    @Test public void repeats_02() {
+        byte[] bytes1 = write(s -> quadsRepeats.forEach(s::quad), false) ;
+        byte[] bytes2 = write(s -> quadsRepeats.forEach(s::quad), true) ;
+        assertTrue(bytes2.length < bytes1.length) ;
+        assertEquals(quadsRepeats, readQuads(bytes1)) ;
+        assertEquals(quadsRepeats, readQuads(bytes2)) ;
+    }
+
+    // Triples and quads in the same stream.
+    @Test public void repeats_03() {
+        byte[] bytes = write(s -> {
+            s.triple(triplesRepeats.get(0)) ;
+            quadsRepeats.forEach(s::quad) ;
+            s.triple(triplesRepeats.get(0)) ;
+            s.quad(quadsRepeats.get(0)) ;
+        }, true) ;
+        List<Quad> expected = new ArrayList<>(quadsRepeats) ;
+        expected.add(quadsRepeats.get(0)) ;
+        assertEquals(expected, readQuads(bytes)) ;
+        assertEquals(Arrays.asList(triplesRepeats.get(0), triplesRepeats.get(0)), readTriples(bytes)) ;
+    }
+
+    private static byte[] write(Consumer<StreamRDF> action, boolean withRepeats) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        StreamRDF stream = ThriftRDF.streamToOutputStream(out, false, withRepeats) ;
+        stream.start() ;
+        action.accept(stream) ;
+        stream.finish() ;
+        return out.toByteArray() ;
+    }
+
+    private static List<Triple> readTriples(byte[] bytes) {
+        CollectorStreamTriples dest = new CollectorStreamTriples() ;
+        ThriftRDF.inputStreamToStream(new ByteArrayInputStream(bytes), dest) ;
+        return dest.getCollected() ;
+    }
+
+    private static List<Quad> readQuads(byte[] bytes) {
+        CollectorStreamQuads dest = new CollectorStreamQuads() ;
+        ThriftRDF.inputStreamToStream(new ByteArrayInputStream(bytes), dest) ;
+        return dest.getCollected() ;
+    }
+
     static void sameTerms(Graph g1, Graph g2) {
         assertEquals(g1.size() , g2.size() ) ;
         // ** Java8
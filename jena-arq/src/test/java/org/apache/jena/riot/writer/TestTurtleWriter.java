@@ -22,14 +22,24 @@ import java.io.ByteArrayInputStream ;
 import java.io.ByteArrayOutputStream ;
 import java.io.IOException;
 import java.io.StringReader ;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jena.atlas.io.IO;
 import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
 import org.apache.jena.rdf.model.Model ;
 import org.apache.jena.rdf.model.ModelFactory ;
 import org.apache.jena.riot.*;
+import org.apache.jena.sparql.graph.GraphFactory;
 import org.apache.jena.sparql.util.Context;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.WrappedIterator;
 import org.junit.Assert ;
 import org.junit.Test ;
 
@@ -99,6 +109,102 @@ public class TestTurtleWriter {
     @Test
     public void bnode_cycles_08() { blankNodeLang(cycle2, RDFFormat.TURTLE_PRETTY) ; }
 
+    @Test
+    public void bnode_cycles_09() { blankNodeLang(cycle1, RDFFormat.TURTLE_INDEXED) ; }
+
+    @Test
+    public void bnode_cycles_10() { blankNodeLang(cycle2, RDFFormat.TURTLE_INDEXED) ; }
+
+    // Nesting by index lookups.
+    static String nested1 = StrUtils.strjoinNL
+        ("PREFIX : <http://example/>"
+        ,":s :p [ :q [ :r 1 ] ] ."
+        ,":s :list (1 (2 3) [ :q 4 ] ) ."
+        ,":s :empty () ."
+        ,"[ :p :o ] ."
+        );
+
+    // Structures not written nested.
+    static String nested2 = StrUtils.strjoinNL
+        ("PREFIX : <http://example/>"
+        ,"PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>"
+        // Shared list
+        ,":s1 :p _:list . :s2 :p _:list . _:list rdf:first 1 ; rdf:rest (2) ."
+        // Free list
+        ,"_:free rdf:first 1 ; rdf:rest (2 3) ."
+        // Bad list: extra property
+        ,":s :p [ rdf:first 1 ; rdf:rest [ rdf:first 2 ; rdf:rest rdf:nil ; :q 3 ] ] ."
+        // Cycle below a top level subject.
+        ,":s :q _:c1 . _:c1 :p _:c2 . _:c2 :p _:c3 . _:c3 :p _:c2 ."
+        );
+
+    private static String writeIndexed(String data) {
+        Model m = ModelFactory.createDefaultModel() ;
+        RDFParser.fromString(data).lang(Lang.TTL).parse(m);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        RDFDataMgr.write(output, m, RDFFormat.TURTLE_INDEXED);
+        Model m2 = ModelFactory.createDefaultModel();
+        RDFParser.fromString(output.toString()).lang(Lang.TTL).parse(m2);
+        Assert.assertTrue(m.isIsomorphicWith(m2));
+        return output.toString();
+    }
+
+    @Test
+    public void indexed_01() {
+        String x = writeIndexed(nested1);
+        Assert.assertFalse(x, x.contains("_:"));
+        Assert.assertFalse(x, x.contains("rdf:first"));
+        Assert.assertTrue(x, x.contains("( 2 3 )"));
+    }
+
+    @Test
+    public void indexed_02() {
+        String x = writeIndexed(nested2);
+        // Shared list: label for the first cell, then the rest as a list.
+        Assert.assertTrue(x, x.contains("( 2 )"));
+        Assert.assertTrue(x, x.contains("( 3 )") || x.contains("( 2 3 )"));
+    }
+
+    @Test
+    public void indexed_03() {
+        // Long list, deep nesting.
+        StringBuilder sb = new StringBuilder("PREFIX : <http://example/> :s :p (");
+        for ( int i = 0 ; i < 5000 ; i++ )
+            sb.append(" ").append(i);
+        sb.append(") .\n:s :q ");
+        for ( int i = 0 ; i < 50 ; i++ )
+            sb.append("[ :p ");
+        sb.append(":o");
+        for ( int i = 0 ; i < 50 ; i++ )
+            sb.append(" ]");
+        sb.append(" .");
+        String x = writeIndexed(sb.toString());
+        Assert.assertFalse(x, x.contains("_:"));
+    }
+
+    @Test
+    public void indexed_04() {
+        // find() returns the triples of a subject apart: free blank node and URI subjects.
+        Graph graph = GraphFactory.createDefaultGraph();
+        RDFParser.fromString(StrUtils.strjoinNL
+            ("PREFIX : <http://example/>"
+            ,"[ :p 1 ; :q 2 ] ."
+            ,":s :p 3 ; :q 4 ."
+            )).lang(Lang.TTL).parse(graph);
+        List<Triple> triples = new ArrayList<>(graph.find().toList());
+        triples.sort(Comparator.comparing((Triple t) -> t.getPredicate().getURI()).thenComparing(t -> t.getSubject().isBlank()));
+        Graph interleaved = new GraphBase() {
+            @Override
+            protected ExtendedIterator<Triple> graphBaseFind(Triple triplePattern) {
+                return WrappedIterator.create(triples.iterator()).filterKeep(triplePattern::matches);
+            }
+        };
+        String x = RDFWriter.create(interleaved).format(RDFFormat.TURTLE_INDEXED).asString();
+        Graph graph2 = GraphFactory.createDefaultGraph();
+        RDFParser.fromString(x).lang(Lang.TTL).parse(graph2);
+        Assert.assertTrue(x, graph.isIsomorphicWith(graph2));
+    }
+
     @Test
     public void bnode_cycles() {
         Model m = RDFDataMgr.loadModel("testing/DAWG-Final/construct/data-ident.ttl");
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.core.assembler;
+
+import static org.apache.jena.assembler.JA.data;
+import static org.apache.jena.assembler.Mode.DEFAULT;
+import static org.apache.jena.rdf.model.ModelFactory.createDefaultModel;
+import static org.apache.jena.vocabulary.RDF.type;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.jena.assembler.exceptions.AssemblerException;
+import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.graph.GraphFrozen;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FrozenGraphAssembler}
+ */
+public class TestFrozenGraphAssembler extends Assert {
+
+    private static File createTempFile(String prefix, String suffix) throws IOException {
+        Path path =  Files.createTempFile(prefix, suffix);
+        File file = path.toFile();
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static Model assemble(Resource root) {
+        FrozenGraphAssembler testAssembler = new FrozenGraphAssembler();
+        return testAssembler.open(testAssembler, root, DEFAULT);
+    }
+
+    private static File dataFile() throws IOException {
+        File file = createTempFile("frozen", ".ttl");
+        String x = StrUtils.strjoinNL("PREFIX : <http://example/>",
+                                      ":s :p :o , :o1 .");
+        Files.write(file.toPath(), x.getBytes());
+        return file;
+    }
+
+    @Test
+    public void frozenGraphData() throws IOException {
+        File file = dataFile();
+        Model model = createDefaultModel();
+        Resource root = model.createResource("test:frozen")
+            .addProperty(type, DatasetAssemblerVocab.tFrozenGraph)
+            .addProperty(data, file.getAbsolutePath());
+        Model m = assemble(root);
+        assertTrue(m.getGraph() instanceof GraphFrozen);
+        assertEquals(2, m.size());
+    }
+
+    @Test
+    public void frozenGraphSnapshot() throws IOException {
+        File file = dataFile();
+        File snapshot = createTempFile("frozen", ".dat");
+        snapshot.delete();
+        Model model = createDefaultModel();
+        Resource root = model.createResource("test:frozen")
+            .addProperty(type, DatasetAssemblerVocab.tFrozenGraph)
+            .addProperty(data, file.getAbsolutePath())
+            .addProperty(DatasetAssemblerVocab.pSnapshot, snapshot.getAbsolutePath());
+        Model m1 = assemble(root);
+        assertEquals(2, m1.size());
+        assertTrue(snapshot.exists());
+        // Second time : from the snapshot.
+        file.delete();
+        Model m2 = assemble(root);
+        assertEquals(2, m2.size());
+        // Usable in a dataset.
+        Dataset ds = DatasetFactory.create(m2);
+        assertEquals(2, ds.getDefaultModel().size());
+    }
+
+    @Test(expected=AssemblerException.class)
+    public void frozenGraphNoData() {
+        Model model = createDefaultModel();
+        Resource root = model.createResource("test:frozen")
+            .addProperty(type, DatasetAssemblerVocab.tFrozenGraph);
+        assemble(root);
+    }
+}
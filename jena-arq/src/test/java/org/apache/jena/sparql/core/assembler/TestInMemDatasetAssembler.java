@@ -38,6 +38,7 @@ import java.nio.file.Path;
 import java.util.Iterator;
 
 import org.apache.jena.assembler.JA ;
+import org.apache.jena.assembler.exceptions.AssemblerException;
 import org.apache.jena.assembler.exceptions.CannotConstructException;
 import org.apache.jena.atlas.lib.IRILib;
 import org.apache.jena.graph.Node;
@@ -48,6 +49,7 @@ import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.DatasetGraphFactory;
 import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.mem.DatasetGraphInMemoryIds;
 import org.apache.jena.sparql.sse.SSE;
 import org.apache.jena.sparql.util.IsoMatcher;
 import org.junit.Assert;
@@ -171,6 +173,54 @@ public class TestInMemDatasetAssembler extends Assert {
         assertTrue(IsoMatcher.isomorphic(dsgData, dataset.asDatasetGraph()));
     }
 
+    @Test
+    public void nodeIdsDataset() throws IOException {
+        DatasetGraph dsgData = DatasetGraphFactory.createTxnMem();
+        dsgData.add(SSE.parseQuad("(_ :s1 :p1 :o1)"));
+        dsgData.add(SSE.parseQuad("(:gn :s2 :p2 :o2)"));
+        File quads = createTempFile("quadExample3", ".nq");
+        try (OutputStream out = new FileOutputStream(quads)) {
+            write(out, dsgData, NQUADS);
+        }
+
+        Model assemblerModel = createDefaultModel();
+        Resource example = assemblerModel.createResource("test:nodeIdsExample");
+        example.addProperty(type, DatasetAssemblerVocab.tMemoryDataset);
+        example.addLiteral(DatasetAssemblerVocab.pNodeIds, true);
+        example.addProperty(data, quads.toURI().toString());
+
+        final Dataset dataset = assemble(example);
+        assertTrue(dataset.asDatasetGraph() instanceof DatasetGraphInMemoryIds);
+        assertTrue(IsoMatcher.isomorphic(dsgData, dataset.asDatasetGraph()));
+    }
+
+    @Test
+    public void nodeIdsDatasetString() {
+        Model assemblerModel = createDefaultModel();
+        Resource example = assemblerModel.createResource("test:nodeIdsExample");
+        example.addProperty(type, DatasetAssemblerVocab.tMemoryDataset);
+        example.addProperty(DatasetAssemblerVocab.pNodeIds, "true");
+        assertTrue(assemble(example).asDatasetGraph() instanceof DatasetGraphInMemoryIds);
+    }
+
+    @Test
+    public void nodeIdsDatasetFalse() {
+        Model assemblerModel = createDefaultModel();
+        Resource example = assemblerModel.createResource("test:nodeIdsExample");
+        example.addProperty(type, DatasetAssemblerVocab.tMemoryDataset);
+        example.addLiteral(DatasetAssemblerVocab.pNodeIds, false);
+        assertFalse(assemble(example).asDatasetGraph() instanceof DatasetGraphInMemoryIds);
+    }
+
+    @Test(expected = AssemblerException.class)
+    public void nodeIdsDatasetBad() {
+        Model assemblerModel = createDefaultModel();
+        Resource example = assemblerModel.createResource("test:nodeIdsExample");
+        example.addProperty(type, DatasetAssemblerVocab.tMemoryDataset);
+        example.addProperty(DatasetAssemblerVocab.pNodeIds, "yes");
+        assemble(example);
+    }
+
     @Test(expected = CannotConstructException.class)
     public void wrongKindOfAssemblerDefinition() {
         final Model model = createDefaultModel();
@@ -32,6 +32,8 @@ import org.junit.runners.Suite.SuiteClasses;
     TestTripleTableForms.class,
     TestHexTable.class,
     TestTriTable.class,
+    TestIdQuadTable.class,
+    TestIdTripleTable.class,
     TestDatasetGraphInMemoryBasic.class,
     TestDatasetGraphInMemoryViews.class,
     TestDatasetGraphInMemoryLock.class,
@@ -42,6 +44,9 @@ import org.junit.runners.Suite.SuiteClasses;
     TestDatasetGraphInMemoryFindPattern.class,
     TestDatasetGraphInMemoryIsolation.class,
     TestDatasetGraphInMemoryPromote.class,
-    TestDatasetGraphInMemoryMisc.class
+    TestDatasetGraphInMemoryMisc.class,
+
+    TestDatasetGraphInMemoryIdsFind.class,
+    TestDatasetGraphInMemoryIdsIsolation.class
  })
 public class TS_DatasetTxnMem {}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.core.mem;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.apache.jena.ext.com.google.common.collect.ImmutableSet.of;
+import static org.apache.jena.graph.Node.ANY;
+import static org.apache.jena.graph.NodeFactory.createBlankNode;
+import static org.apache.jena.graph.NodeFactory.createURI;
+import static org.apache.jena.query.ReadWrite.READ;
+import static org.apache.jena.query.ReadWrite.WRITE;
+import static org.apache.jena.sparql.core.mem.TupleSlot.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Quad;
+import org.junit.Test;
+
+public class TestIdQuadTable extends AbstractTestQuadTable {
+
+	@Test
+	public void testListGraphNodes() {
+		final int nodesToTry = 50;
+		final IdQuadTable index = new IdQuadTable();
+		final Set<Node> graphNodes = new HashSet<>(nodesToTry);
+		index.begin(WRITE);
+		for (int i = 0; i < nodesToTry; i++) {
+			final Node node = createBlankNode();
+			index.add(Quad.create(node, node, node, node));
+			index.add(Quad.create(node, sampleNode, node, node));
+			graphNodes.add(node);
+			assertEquals(graphNodes, index.listGraphNodes().collect(toSet()));
+			assertEquals(graphNodes.size(), index.listGraphNodes().count());
+		}
+		index.end();
+	}
+
+	@Test
+	public void checkConcreteQueries() {
+		queryPatterns().filter(p -> !allWildcardQuery.equals(p)).map(TestIdQuadTable::exampleFrom).forEach(testQuery -> {
+			final IdQuadTable index = new IdQuadTable();
+			index.begin(WRITE);
+			index.add(testTuple());
+			final Node node = createBlankNode();
+			final Quad noiseQuad = Quad.create(node, node, node, node);
+			index.add(noiseQuad);
+			index.commit();
+
+			index.begin(READ);
+			Set<Quad> contents = index
+					.find(testQuery.getGraph(), testQuery.getSubject(), testQuery.getPredicate(), testQuery.getObject())
+					.collect(toSet());
+			assertEquals(of(testTuple()), contents);
+			contents = index.find(null, ANY, null, ANY).collect(toSet());
+			assertEquals(of(testTuple(), noiseQuad), contents);
+			index.end();
+		});
+	}
+
+	@Test
+	public void manyQuads() {
+		// Enough to split pages several levels deep.
+		final IdQuadTable index = new IdQuadTable();
+		final List<Quad> quads = new ArrayList<>();
+		final Random random = new Random(1234);
+		final Node[] nodes = new Node[40];
+		for (int i = 0; i < nodes.length; i++)
+			nodes[i] = createURI("http://example/n" + i);
+		index.begin(WRITE);
+		for (int i = 0; i < 20000; i++) {
+			Quad quad = Quad.create(nodes[random.nextInt(4)], nodes[random.nextInt(nodes.length)],
+					nodes[random.nextInt(8)], nodes[random.nextInt(nodes.length)]);
+			index.add(quad);
+			quads.add(quad);
+		}
+		index.commit();
+		final Set<Quad> expected = new HashSet<>(quads);
+
+		index.begin(READ);
+		assertEquals(expected, index.find(ANY, ANY, ANY, ANY).collect(toSet()));
+		assertEquals(expected.size(), index.find(ANY, ANY, ANY, ANY).count());
+		checkFind(index, expected, ANY, nodes[3], ANY, nodes[7]);
+		checkFind(index, expected, ANY, ANY, nodes[2], ANY);
+		checkFind(index, expected, nodes[1], ANY, ANY, nodes[5]);
+		checkFind(index, expected, nodes[1], nodes[9], nodes[2], ANY);
+		index.end();
+
+		// Delete half, in a different transaction.
+		index.begin(WRITE);
+		Collections.shuffle(quads, random);
+		for (Quad quad : quads.subList(0, quads.size() / 2)) {
+			index.delete(quad);
+			expected.remove(quad);
+		}
+		index.commit();
+
+		index.begin(READ);
+		assertEquals(expected, index.find(ANY, ANY, ANY, ANY).collect(toSet()));
+		checkFind(index, expected, ANY, nodes[3], ANY, nodes[7]);
+		checkFind(index, expected, nodes[0], ANY, nodes[1], ANY);
+		index.end();
+	}
+
+	private static void checkFind(IdQuadTable index, Set<Quad> all, Node g, Node s, Node p, Node o) {
+		Set<Quad> expected = all.stream().filter(q -> q.matches(g, s, p, o)).collect(toSet());
+		List<Quad> found = index.find(g, s, p, o).collect(toList());
+		assertEquals(expected.size(), found.size());
+		assertEquals(expected, new HashSet<>(found));
+	}
+
+	@Test
+	public void snapshotRead() {
+		final IdQuadTable index = new IdQuadTable();
+		index.begin(WRITE);
+		for (int i = 0; i < 1000; i++)
+			index.add(quad(i));
+		index.commit();
+
+		// A reader on another thread sees the committed state throughout the writer's changes.
+		final List<Long> counts = new ArrayList<>();
+		Thread reader = new Thread(() -> {
+			index.begin(READ);
+			counts.add(index.find(ANY, ANY, ANY, ANY).count());
+			synchronized (counts) {
+				counts.notify();
+				try { counts.wait(); } catch (InterruptedException ex) {}
+			}
+			counts.add(index.find(ANY, ANY, ANY, ANY).count());
+			index.end();
+		});
+		synchronized (counts) {
+			reader.start();
+			try { counts.wait(); } catch (InterruptedException ex) {}
+			index.begin(WRITE);
+			for (int i = 0; i < 500; i++)
+				index.delete(quad(i));
+			for (int i = 1000; i < 3000; i++)
+				index.add(quad(i));
+			index.commit();
+			counts.notify();
+		}
+		try { reader.join(); } catch (InterruptedException ex) {}
+		assertEquals(Arrays.asList(1000L, 1000L), counts);
+
+		index.begin(READ);
+		assertEquals(2500, index.find(ANY, ANY, ANY, ANY).count());
+		index.end();
+	}
+
+	@Test
+	public void iteratorInWriteTransaction() {
+		// An iterator sees the state when it was created, not later changes in the same transaction.
+		final IdQuadTable index = new IdQuadTable();
+		index.begin(WRITE);
+		for (int i = 0; i < 1000; i++)
+			index.add(quad(i));
+		Iterator<Quad> iter = index.find(ANY, ANY, ANY, ANY).iterator();
+		for (int i = 1000; i < 2000; i++)
+			index.add(quad(i));
+		for (int i = 0; i < 1000; i += 2)
+			index.delete(quad(i));
+		int count = 0;
+		while (iter.hasNext()) {
+			iter.next();
+			count++;
+		}
+		assertEquals(1000, count);
+		assertEquals(1500, index.find(ANY, ANY, ANY, ANY).count());
+		index.commit();
+	}
+
+	private static Quad quad(int i) {
+		Node n = createURI("http://example/s" + i);
+		return Quad.create(sampleNode, n, sampleNode, n);
+	}
+
+	private static Quad exampleFrom(final Set<TupleSlot> pattern) {
+		return Quad.create(pattern.contains(GRAPH) ? sampleNode : ANY, pattern.contains(SUBJECT) ? sampleNode : ANY,
+				pattern.contains(PREDICATE) ? sampleNode : ANY, pattern.contains(OBJECT) ? sampleNode : ANY);
+	}
+
+	private final IdQuadTable testTable = new IdQuadTable();
+
+	@Override
+	protected QuadTable table() {
+		return testTable;
+	}
+
+	@Override
+	protected Stream<Quad> tuples() {
+		return table().find(ANY, ANY, ANY, ANY);
+	}
+}
@@ -34,6 +34,7 @@ import org.junit.runners.Suite.SuiteClasses ;
     , TestLeftJoinNestedLoop.class
     , TestHashLeftJoin_Left.class           // Left hash, stream right 
     , TestHashLeftJoin_Right.class          // Normal implementation.
+    , TestOptionalAdaptive.class
 })
 
 public class TS_Join { }
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.sparql.engine.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jena.atlas.lib.Lib;
+import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.graph.GraphWrapper;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.sparql.exec.RowSetRewindable;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Adaptive OPTIONAL execution gives the same results whichever strategy it ends up using. */
+public class TestOptionalAdaptive {
+    private static DatasetGraph dsg;
+
+    @BeforeClass public static void beforeClass() {
+        StringBuilder sb = new StringBuilder("PREFIX : <http://example/>\n");
+        for ( int i = 0 ; i < 60 ; i++ ) {
+            sb.append(String.format(":s%d :p :o%d ; :n %d .\n", i, i % 7, i % 5));
+            if ( i % 3 == 0 )
+                sb.append(String.format(":s%d :q %d .\n", i, i % 11));
+            if ( i % 4 == 0 )
+                sb.append(String.format(":s%d :r :o%d .\n", i, (i + 1) % 7));
+        }
+        for ( int i = 0 ; i < 7 ; i++ )
+            sb.append(String.format(":o%d :next :o%d ; :label \"o%d\" .\n", i, (i + 1) % 7, i));
+        dsg = DatasetGraphFactory.createTxnMem();
+        RDFParser.fromString(sb.toString()).lang(Lang.TTL).parse(dsg);
+    }
+
+    private static final String PRE = "PREFIX : <http://example/>\n";
+
+    @Test public void adaptive_optional_01() {
+        test("SELECT * { ?s :p ?o OPTIONAL { ?s :q ?v } }");
+    }
+
+    @Test public void adaptive_optional_02() {
+        // Filter mentions a variable from the left.
+        test("SELECT * { ?s :p ?o ; :n ?n OPTIONAL { ?s :q ?v FILTER(?v > ?n) } }");
+    }
+
+    @Test public void adaptive_optional_03() {
+        // Filter that is placed inside the pattern.
+        test("SELECT * { ?s :p ?o OPTIONAL { ?s :r ?x . ?x :label ?lab FILTER(?x != :o2) } }");
+    }
+
+    @Test public void adaptive_optional_04() {
+        // Left has unbound variables used on the right.
+        test("SELECT * { ?s :p ?o OPTIONAL { ?s :r ?z } OPTIONAL { ?z :label ?lab } }");
+    }
+
+    @Test public void adaptive_optional_05() {
+        test("SELECT * { ?s :p ?o OPTIONAL { ?o :next+ ?w } }");
+    }
+
+    @Test public void adaptive_optional_06() {
+        test("SELECT * { ?s :p ?o OPTIONAL { ?s :q ?v FILTER(!bound(?w)) ?o :next ?w } }");
+    }
+
+    @Test public void adaptive_optional_07() {
+        test(StrUtils.strjoinNL
+             ("SELECT * { ?s :p ?o "
+             ," OPTIONAL { ?s :q ?v OPTIONAL { ?s :r ?x } }"
+             ," OPTIONAL { ?o :label ?lab FILTER (?lab != 'o3') }"
+             ,"}"));
+    }
+
+    @Test public void adaptive_optional_slow_left() {
+        // An expensive left side does not make the probes look expensive.
+        TimedGraph graph = new TimedGraph(dsg.getDefaultGraph(), "p");
+        execTimed(graph);
+        assertFalse(graph.scanned);
+    }
+
+    @Test public void adaptive_optional_slow_right() {
+        TimedGraph graph = new TimedGraph(dsg.getDefaultGraph(), "q");
+        execTimed(graph);
+        assertTrue(graph.scanned);
+    }
+
+    private static void execTimed(TimedGraph graph) {
+        String qs = PRE+"SELECT * { ?s :p ?o OPTIONAL { ?s :q ?v } }";
+        RowSetRewindable expected = exec(qs, false, 0, 0);
+        RowSet rowSet = QueryExec.dataset(DatasetGraphFactory.wrap(graph)).query(qs)
+                .set(ARQ.optAdaptiveJoin, true)
+                .set(ARQ.adaptiveJoinProbes, 5)
+                .set(ARQ.adaptiveJoinProbeCost, 1_000_000L)
+                .set(ARQ.adaptiveJoinHashRows, 1000)
+                .select();
+        check(expected, rowSet.rewindable());
+    }
+
+    /**
+     * Graph where finding triples with one predicate is slow, and which records
+     * whether the OPTIONAL pattern {@code ?s :q ?v} was evaluated without substitution.
+     */
+    private static class TimedGraph extends GraphWrapper {
+        private final Node slow;
+        private final Node q = NodeFactory.createURI("http://example/q");
+        boolean scanned = false;
+
+        TimedGraph(Graph graph, String slowPredicate) {
+            super(graph);
+            slow = NodeFactory.createURI("http://example/"+slowPredicate);
+        }
+
+        @Override
+        public ExtendedIterator<Triple> find(Triple triple) {
+            return find(triple.getSubject(), triple.getPredicate(), triple.getObject());
+        }
+
+        @Override
+        public ExtendedIterator<Triple> find(Node s, Node p, Node o) {
+            if ( q.equals(p) && ! s.isConcrete() )
+                scanned = true;
+            if ( ! slow.equals(p) )
+                return super.find(s, p, o);
+            Lib.sleep(2);
+            return super.find(s, p, o).mapWith(t->{ Lib.sleep(2); return t; });
+        }
+    }
+
+    private static void test(String queryString) {
+        String qs = PRE + queryString;
+        RowSetRewindable expected = exec(qs, false, 0, 0);
+        assertTrue(expected.size() > 0);
+        // Switch after one probe, to a hash table big enough.
+        check(expected, exec(qs, true, 1, 1000));
+        // Switch after one probe, right hand side too big; go back to probing.
+        check(expected, exec(qs, true, 1, 1));
+        // Never switch.
+        check(expected, exec(qs, true, 10000, 1000));
+    }
+
+    private static void check(RowSetRewindable expected, RowSetRewindable actual) {
+        expected.reset();
+        assertEquals(expected.size(), actual.size());
+        assertTrue(ResultSetCompare.equalsByTerm(expected, actual));
+    }
+
+    private static RowSetRewindable exec(String qs, boolean adaptive, int probes, int hashRows) {
+        RowSet rowSet = QueryExec.dataset(dsg).query(qs)
+                .set(ARQ.optAdaptiveJoin, adaptive)
+                .set(ARQ.adaptiveJoinProbes, probes)
+                .set(ARQ.adaptiveJoinProbeCost, 0L)
+                .set(ARQ.adaptiveJoinHashRows, hashRows)
+                .select();
+        return rowSet.rewindable();
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.exec;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.QueryParseException;
+import org.apache.jena.sparql.ARQConstants;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.PreparedQuery;
+import org.apache.jena.sparql.engine.QueryCache;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.sse.SSE;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestPreparedQuery {
+    private static DatasetGraph dsg = SSE.parseDatasetGraph(String.join("\n"
+        , "(dataset"
+        , "  (graph (:s1 :p 1) (:s1 :q 'a') (:s2 :p 2) (:s2 :q 'b') (:s3 :p 3))"
+        , "  (graph :g (:s1 :p 10))"
+        , ")"));
+
+    private static Object cacheSetting;
+
+    @BeforeClass public static void beforeClass() {
+        cacheSetting = ARQ.getContext().get(ARQ.queryCache);
+        QueryCache.clear();
+    }
+
+    @AfterClass public static void afterClass() {
+        ARQ.getContext().set(ARQ.queryCache, cacheSetting);
+        QueryCache.clear();
+    }
+
+    private static Node node(String str) {
+        return SSE.parseNode(str);
+    }
+
+    @Test public void prepared_01() {
+        PreparedQuery pq = PreparedQuery.create("PREFIX : <http://example/> SELECT ?o { ?s :p ?o } ORDER BY ?o");
+        List<Node> x1 = column(pq.exec(dsg), "o");
+        List<Node> x2 = column(pq.exec(dsg), "o");
+        assertEquals(3, x1.size());
+        assertEquals(x1, x2);
+    }
+
+    @Test public void prepared_params_01() {
+        PreparedQuery pq = PreparedQuery.create("PREFIX : <http://example/> SELECT ?s ?o { ?s :p ?o }");
+        for ( int i = 1 ; i <= 3 ; i++ ) {
+            Binding params = BindingFactory.binding(Var.alloc("s"), node(":s"+i));
+            List<Node> x = column(pq.exec(dsg, params), "o");
+            assertEquals(1, x.size());
+            assertEquals(node(Integer.toString(i)), x.get(0));
+            // The parameter is in the results.
+            assertEquals(node(":s"+i), column(pq.exec(dsg, params), "s").get(0));
+        }
+    }
+
+    @Test public void prepared_params_02() {
+        // Substitution via the builder, with filters and optional.
+        PreparedQuery pq = PreparedQuery.create(String.join("\n"
+            , "PREFIX : <http://example/>"
+            , "SELECT ?s ?v { ?s :p ?o OPTIONAL { ?s :q ?v } FILTER(?o >= ?min) } ORDER BY ?s"));
+        QueryExec qExec = QueryExecDatasetBuilder.create().dataset(dsg).query(pq).substitution(Var.alloc("min"), node("2")).build();
+        assertEquals(List.of(node(":s2"), node(":s3")), column(qExec, "s"));
+        qExec = QueryExecDatasetBuilder.create().dataset(dsg).query(pq).substitution(Var.alloc("min"), node("1")).build();
+        assertEquals(3, column(qExec, "s").size());
+        // The same as parsing the query each time.
+        qExec = QueryExecDatasetBuilder.create().dataset(dsg).query(pq.getQueryString()).substitution(Var.alloc("min"), node("2")).build();
+        assertEquals(List.of(node(":s2"), node(":s3")), column(qExec, "s"));
+    }
+
+    @Test public void prepared_algebra_01() {
+        // The optimized algebra is reused.
+        PreparedQuery pq = PreparedQuery.create("PREFIX : <http://example/> SELECT * { ?s :p ?o FILTER(?o = 1) }");
+        Op op1 = algebra(pq.exec(dsg));
+        Op op2 = algebra(pq.exec(dsg));
+        assertSame(op1, op2);
+    }
+
+    @Test public void prepared_forms_01() {
+        PreparedQuery pq1 = PreparedQuery.create("PREFIX : <http://example/> ASK { ?s :q ?v }");
+        assertTrue(pq1.exec(dsg, BindingFactory.binding(Var.alloc("s"), node(":s1"))).ask());
+        assertFalse(pq1.exec(dsg, BindingFactory.binding(Var.alloc("s"), node(":s3"))).ask());
+
+        PreparedQuery pq2 = PreparedQuery.create("PREFIX : <http://example/> CONSTRUCT { ?s :r ?o } WHERE { ?s :p ?o }");
+        Graph g = pq2.exec(dsg, BindingFactory.binding(Var.alloc("s"), node(":s2"))).construct();
+        assertEquals(1, g.size());
+    }
+
+    @Test public void prepared_graph_01() {
+        PreparedQuery pq = PreparedQuery.create("PREFIX : <http://example/> SELECT ?o { GRAPH ?g { ?s :p ?o } }");
+        assertEquals(List.of(node("10")), column(pq.exec(dsg), "o"));
+        assertEquals(List.of(node("10")), column(pq.exec(dsg, BindingFactory.binding(Var.alloc("g"), node(":g"))), "o"));
+    }
+
+    @Test public void prepared_subselect_01() {
+        // A parameter for a variable that is not projected by a sub-SELECT.
+        String qs = "PREFIX : <http://example/> SELECT ?s ?o { { SELECT ?s { ?s :q ?v } } ?s :p ?o }";
+        PreparedQuery pq = PreparedQuery.create(qs);
+        Binding params = BindingFactory.binding(Var.alloc("v"), node("'a'"));
+        assertEquals(List.of(node("1")), column(pq.exec(dsg, params), "o"));
+        assertEquals(List.of(node("1")), column(pq.exec(dsg, params), "o"));
+        assertEquals(2, column(pq.exec(dsg), "o").size());
+    }
+
+    @Test public void prepared_subselect_02() {
+        // EXISTS with a sub-SELECT.
+        String qs = "PREFIX : <http://example/> SELECT ?s { ?s :p ?o FILTER EXISTS { SELECT ?s { ?s :q ?v } } }";
+        PreparedQuery pq = PreparedQuery.create(qs);
+        Binding params = BindingFactory.binding(Var.alloc("v"), node("'b'"));
+        assertEquals(List.of(node(":s2")), column(pq.exec(dsg, params), "s"));
+    }
+
+    @Test public void cache_subselect_01() {
+        String qs = "PREFIX : <http://example/> SELECT ?s ?o { { SELECT ?s { ?s :q ?v } } ?s :p ?o } ORDER BY ?s";
+        for ( String v : List.of("'a'", "'b'", "'c'") ) {
+            Binding params = BindingFactory.binding(Var.alloc("v"), node(v));
+            List<Node> expected = column(QueryExec.dataset(dsg).query(qs).substitution(params).build(), "o");
+            ARQ.getContext().set(ARQ.queryCache, true);
+            try {
+                for ( int i = 0 ; i < 2 ; i++ )
+                    assertEquals(expected, column(QueryExec.dataset(dsg).query(qs).substitution(params).build(), "o"));
+            } finally {
+                ARQ.getContext().set(ARQ.queryCache, false);
+            }
+        }
+        ARQ.getContext().set(ARQ.queryCache, true);
+        try {
+            assertEquals(List.of(node("1")),
+                         column(QueryExec.dataset(dsg).query(qs).substitution(Var.alloc("v"), node("'a'")).build(), "o"));
+        } finally {
+            ARQ.getContext().set(ARQ.queryCache, false);
+        }
+    }
+
+    @Test public void cache_01() {
+        String qs = "PREFIX : <http://example/> SELECT ?o { ?s :p ?o }";
+        assertSame(QueryCache.get(qs), QueryCache.get(qs));
+        assertSame(QueryCache.get(qs), QueryCache.get("  "+qs+"\n"));
+    }
+
+    @Test public void cache_02() {
+        String qs = "PREFIX : <http://example/> SELECT ?o { ?s :p ?o }";
+        ARQ.getContext().set(ARQ.queryCache, true);
+        try {
+            QueryExec qExec1 = QueryExec.dataset(dsg).query(qs).build();
+            QueryExec qExec2 = QueryExec.dataset(dsg).query(qs).build();
+            assertSame(qExec1.getQuery(), qExec2.getQuery());
+            assertEquals(3, column(qExec1, "o").size());
+            assertEquals(3, column(qExec2, "o").size());
+        } finally {
+            ARQ.getContext().set(ARQ.queryCache, false);
+        }
+        QueryExec qExec3 = QueryExec.dataset(dsg).query(qs).build();
+        assertNotSame(QueryCache.get(qs).getQuery(), qExec3.getQuery());
+    }
+
+    @Test public void cache_03() {
+        // Parse errors are not cached.
+        String qs = "SELECT * {";
+        for ( int i = 0 ; i < 2 ; i++ ) {
+            try {
+                QueryCache.get(qs);
+                fail("Expected a parse error");
+            } catch (QueryParseException ex) {}
+        }
+    }
+
+    private static Op algebra(QueryExec qExec) {
+        try {
+            qExec.select().forEachRemaining(b->{});
+            return (Op)qExec.getContext().get(ARQConstants.sysCurrentAlgebra);
+        } finally { qExec.close(); }
+    }
+
+    private static List<Node> column(QueryExec qExec, String varName) {
+        List<Node> x = new ArrayList<>();
+        try {
+            qExec.select().forEachRemaining(b->x.add(b.get(Var.alloc(varName))));
+        } finally { qExec.close(); }
+        return x;
+    }
+}
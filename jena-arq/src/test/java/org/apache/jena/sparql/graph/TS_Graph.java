@@ -26,6 +26,7 @@ import org.junit.runners.Suite ;
 	  TestDatasets.class
     , TestGraphsMem.class
     , TestGraphUnionRead.class
+    , TestGraphFrozen.class
     , TestPrefixMappingMem.class
     , TestPrefixMappingPrefixMap.class
 })
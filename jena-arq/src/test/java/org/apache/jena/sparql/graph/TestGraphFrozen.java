@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.shared.AddDeniedException;
+import org.apache.jena.shared.DeleteDeniedException;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.junit.Test;
+
+public class TestGraphFrozen
+{
+    private static String dataStr = StrUtils.strjoinNL(
+        "(graph",
+        "  (triple <http://example/s> <http://example/p> 'abc')",
+        "  (triple <http://example/s> <http://example/p> <http://example/o>)",
+        "  (triple <http://example/s> <http://example/q> 123)",
+        "  (triple <http://example/s1> <http://example/p> <http://example/o>)",
+        "  (triple _:b <http://example/p> 'abc'@en)",
+        "  (triple <http://example/o> <http://example/q> <<<http://example/s> <http://example/p> <http://example/o>>>)",
+        ")");
+
+    private static Node s  = SSE.parseNode("<http://example/s>");
+    private static Node s1 = SSE.parseNode("<http://example/s1>");
+    private static Node p  = SSE.parseNode("<http://example/p>");
+    private static Node q  = SSE.parseNode("<http://example/q>");
+    private static Node o  = SSE.parseNode("<http://example/o>");
+    private static Node z  = SSE.parseNode("<http://example/z>");
+
+    private static Graph data() {
+        return SSE.parseGraph(dataStr);
+    }
+
+    @Test public void frozen_01() {
+        Graph data = data();
+        Graph g = GraphFrozen.create(data);
+        assertEquals(6, g.size());
+        assertTrue(IsoMatcher.isomorphic(data, g));
+    }
+
+    @Test public void frozen_find_01() {
+        Graph g = GraphFrozen.create(data());
+        assertEquals(3, count(g, s, null, null));
+        assertEquals(4, count(g, null, p, null));
+        assertEquals(2, count(g, null, null, o));
+        assertEquals(2, count(g, s, p, null));
+        assertEquals(1, count(g, s, null, o));
+        assertEquals(2, count(g, null, p, o));
+        assertEquals(1, count(g, s, p, o));
+        assertEquals(6, count(g, null, null, null));
+        assertEquals(0, count(g, z, null, null));
+        assertEquals(0, count(g, s1, q, null));
+    }
+
+    @Test public void frozen_contains_01() {
+        Graph g = GraphFrozen.create(data());
+        assertTrue(g.contains(s, p, o));
+        assertTrue(g.contains(s, q, SSE.parseNode("123")));
+        assertFalse(g.contains(s, q, SSE.parseNode("0123")));
+        assertFalse(g.contains(s1, p, SSE.parseNode("'abc'")));
+        assertTrue(g.contains(null, q, null));
+    }
+
+    @Test public void frozen_duplicates() {
+        GraphFrozen.Builder builder = GraphFrozen.builder();
+        builder.add(SSE.parseTriple("(<http://example/s> <http://example/p> <http://example/o>)"));
+        builder.add(SSE.parseTriple("(<http://example/s> <http://example/p> <http://example/o>)"));
+        Graph g = builder.build();
+        assertEquals(1, g.size());
+    }
+
+    @Test public void frozen_parse() {
+        String x = StrUtils.strjoinNL("PREFIX : <http://example/>",
+                                      ":s :p :o , :o1 .");
+        GraphFrozen.Builder builder = GraphFrozen.builder();
+        RDFParser.fromString(x).lang(Lang.TTL).parse(builder);
+        Graph g = builder.build();
+        assertEquals(2, g.size());
+        assertEquals("http://example/", g.getPrefixMapping().getNsPrefixURI(""));
+    }
+
+    @Test(expected=AddDeniedException.class)
+    public void frozen_add() {
+        Graph g = GraphFrozen.create(data());
+        g.add(Triple.create(s, p, z));
+    }
+
+    @Test(expected=DeleteDeniedException.class)
+    public void frozen_delete() {
+        Graph g = GraphFrozen.create(data());
+        g.delete(Triple.create(s, p, o));
+    }
+
+    @Test public void frozen_large() {
+        // Enough rows to exercise the sort and range search.
+        Random random = new Random(99);
+        Graph data = GraphFactory.createPlainGraph();
+        for ( int i = 0 ; i < 5000 ; i++ ) {
+            Node s = SSE.parseNode("<http://example/s"+random.nextInt(50)+">");
+            Node p = SSE.parseNode("<http://example/p"+random.nextInt(5)+">");
+            Node o = SSE.parseNode("<http://example/o"+random.nextInt(100)+">");
+            data.add(Triple.create(s, p, o));
+        }
+        Graph g = GraphFrozen.create(data);
+        assertEquals(data.size(), g.size());
+        for ( int i = 0 ; i < 10 ; i++ ) {
+            Node s = SSE.parseNode("<http://example/s"+i+">");
+            Node p = SSE.parseNode("<http://example/p"+(i%5)+">");
+            Node o = SSE.parseNode("<http://example/o"+i+">");
+            assertEquals(count(data, s, null, null), count(g, s, null, null));
+            assertEquals(count(data, null, null, o), count(g, null, null, o));
+            assertEquals(count(data, s, p, null), count(g, s, p, null));
+            assertEquals(count(data, s, null, o), count(g, s, null, o));
+            assertEquals(count(data, null, p, o), count(g, null, p, o));
+        }
+        assertTrue(IsoMatcher.isomorphic(data, g));
+    }
+
+    @Test public void frozen_file() throws IOException {
+        Graph data = data();
+        data.getPrefixMapping().setNsPrefix("ex", "http://example/");
+        GraphFrozen g1 = GraphFrozen.create(data);
+        Path path = Files.createTempFile("frozen", ".dat");
+        // Not deleted immediately: the file is memory mapped.
+        path.toFile().deleteOnExit();
+        g1.write(path.toString());
+        Graph g2 = GraphFrozen.read(path.toString());
+        assertEquals(6, g2.size());
+        assertTrue(IsoMatcher.isomorphic(data, g2));
+        assertEquals(3, count(g2, s, null, null));
+        assertEquals(2, count(g2, null, null, o));
+        assertEquals("http://example/", g2.getPrefixMapping().getNsPrefixURI("ex"));
+    }
+
+    private static long count(Graph g, Node s, Node p, Node o) {
+        return g.find(s, p, o).toList().size();
+    }
+}
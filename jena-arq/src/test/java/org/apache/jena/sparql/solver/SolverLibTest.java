@@ -19,7 +19,9 @@
 package org.apache.jena.sparql.solver;
 
 import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.graph.Node ;
 import org.apache.jena.graph.Triple ;
+import org.apache.jena.shared.PrefixMapping ;
 import org.apache.jena.sparql.core.BasicPattern ;
 import org.apache.jena.sparql.engine.optimizer.StatsMatcher ;
 import org.apache.jena.sparql.sse.Item ;
@@ -60,4 +62,10 @@ public class SolverLibTest
         return SSE.parseTriple(s1+str+s2) ;
     }
 
+    public static Node node(String str)
+    {
+        PrefixMapping pmap = PrefixMapping.Factory.create().setNsPrefix("", "http://example/") ;
+        return SSE.parseNode(str, pmap) ;
+    }
+
 }
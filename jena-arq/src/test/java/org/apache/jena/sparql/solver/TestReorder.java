@@ -20,9 +20,12 @@ package org.apache.jena.sparql.solver;
 
 import static org.apache.jena.sparql.solver.SolverLibTest.bgp ;
 import static org.apache.jena.sparql.solver.SolverLibTest.matcher ;
+import static org.apache.jena.sparql.solver.SolverLibTest.node ;
 import static org.apache.jena.sparql.solver.SolverLibTest.triple ;
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays ;
+
 import org.apache.jena.graph.Triple ;
 import org.apache.jena.sparql.core.BasicPattern ;
 import org.apache.jena.sparql.engine.optimizer.StatsMatcher ;
@@ -191,6 +194,46 @@ public class TestReorder
         assertEquals(2, d, 0) ;
     }
 
+    // Distinct subject and object counts.
+    @Test public void match_30()
+    {
+        StatsMatcher matcher = matcher("(:p 100 (subjects 50) (objects 10))") ;
+        assertEquals(2, matcher.match(triple("(:x :p ?v)")), 0) ;
+        assertEquals(10, matcher.match(triple("(?x :p 1913)")), 0) ;
+        assertEquals(100, matcher.match(triple("(?x :p ?v)")), 0) ;
+    }
+
+    @Test public void match_31()
+    {
+        StatsMatcher matcher = matcher("(:p 100 (objects 100))") ;
+        assertEquals(1, matcher.match(triple("(?x :p 1913)")), 0) ;
+        assertEquals(StatsMatcher.weightSP_small, matcher.match(triple("(:x :p ?v)")), 0) ;
+    }
+
+    // Characteristic sets.
+    @Test public void match_32()
+    {
+        StatsMatcher matcher = matcher("(cset 5 :p :q) (cset 7 :p :q :r) (cset 20 :p)") ;
+        assertEquals(12, matcher.matchStar(Arrays.asList(node(":p"), node(":q"))), 0) ;
+        assertEquals(7, matcher.matchStar(Arrays.asList(node(":q"), node(":r"))), 0) ;
+        assertEquals(0, matcher.matchStar(Arrays.asList(node(":q"), node(":s"))), 0) ;
+        assertEquals(-1, matcher("(:p 10)").matchStar(Arrays.asList(node(":p"), node(":q"))), 0) ;
+    }
+
+    @Test public void stats_cset_01()
+    {
+        // Individually, :r and :s are the more selective but few subjects have both :p and :q.
+        String[] counts = { "(:p 100 (subjects 100)) (:q 100 (subjects 100))",
+                            "(:r 50 (subjects 50)) (:s 50 (subjects 50))" } ;
+        BasicPattern bgp1 = bgp("(bgp (?x :p ?a) (?x :q ?b) (?y :r ?c) (?y :s ?d))") ;
+
+        ReorderTransformation transform1 = new ReorderWeighted(matcher(counts)) ;
+        assertEquals(triple("(?y :r ?c)"), transform1.reorder(bgp1).get(0)) ;
+
+        ReorderTransformation transform2 = new ReorderWeighted(matcher(counts[0], counts[1], "(cset 2 :p :q) (cset 50 :r :s)")) ;
+        assertEquals(triple("(?x :p ?a)"), transform2.reorder(bgp1).get(0)) ;
+    }
+
     @Test public void reorderIndexes1() 
     { 
         ReorderProc proc = new ReorderProcIndexes(new int[]{0,1}) ;
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.jena.atlas.lib.Pool;
+import org.apache.jena.atlas.lib.PoolBase;
+import org.apache.jena.atlas.lib.PoolSync;
+
+/**
+ * Output of text, encoded as UTF-8 directly into a byte buffer, written to the
+ * {@link OutputStream} in large chunks.
+ * <p>
+ * The byte buffers are taken from a shared pool and returned by {@link #close()}.
+ * The pool keeps at most {@link #PoolSize} buffers; others are left to the garbage collector.
+ * Closing does not close the underlying {@link OutputStream}.
+ * <p>
+ * Chars are encoded as standard UTF-8: surrogate pairs become 4 byte sequences and
+ * an unpaired surrogate is written as '?', as the JDK encoder does.
+ * <p>
+ * This class is not thread safe.
+ */
+public final class BufferedOutputUTF8 implements AutoCloseable {
+
+    /** Size of the byte buffers */
+    public static final int BufferSize = 64*1024;
+
+    /** Maximum number of byte buffers kept for reuse */
+    public static final int PoolSize = 16;
+
+    private static final Pool<byte[]> pool = PoolSync.create(new PoolBase<byte[]>(PoolSize));
+
+    private final OutputStream out;
+    private byte[] buffer;
+    private int idx = 0;
+    // Bytes passed to the OutputStream.
+    private long written = 0;
+
+    public BufferedOutputUTF8(OutputStream out) {
+        this.out = out;
+        byte[] b = pool.get();
+        this.buffer = ( b != null ) ? b : new byte[BufferSize];
+    }
+
+    /** Write a byte. */
+    public void write(int b) {
+        if ( idx == buffer.length )
+            drain();
+        buffer[idx++] = (byte)b;
+    }
+
+    /** Write bytes. */
+    public void write(byte[] bytes) {
+        write(bytes, 0, bytes.length);
+    }
+
+    /** Write bytes. */
+    public void write(byte[] bytes, int off, int len) {
+        if ( len > buffer.length - idx ) {
+            drain();
+            if ( len > buffer.length ) {
+                try { out.write(bytes, off, len); }
+                catch (IOException ex) { IO.exception(ex); }
+                written += len;
+                return;
+            }
+        }
+        System.arraycopy(bytes, off, buffer, idx, len);
+        idx += len;
+    }
+
+    /** Write a string, UTF-8 encoded. */
+    public void write(CharSequence string) {
+        write(string, 0, string.length());
+    }
+
+    /** Write the chars of {@code string} from {@code start} (inclusive) to {@code end} (exclusive), UTF-8 encoded. */
+    public void write(CharSequence string, int start, int end) {
+        for ( int i = start ; i < end ; i++ ) {
+            char ch = string.charAt(i);
+            if ( ch < 0x80 ) {
+                if ( idx == buffer.length )
+                    drain();
+                buffer[idx++] = (byte)ch;
+                continue;
+            }
+            if ( idx > buffer.length - 4 )
+                drain();
+            if ( ch < 0x800 ) {
+                buffer[idx++] = (byte)(0xC0 | (ch >> 6));
+                buffer[idx++] = (byte)(0x80 | (ch & 0x3F));
+            } else if ( Character.isSurrogate(ch) ) {
+                if ( Character.isHighSurrogate(ch) && i+1 < end && Character.isLowSurrogate(string.charAt(i+1)) ) {
+                    int cp = Character.toCodePoint(ch, string.charAt(i+1));
+                    i++;
+                    buffer[idx++] = (byte)(0xF0 | (cp >> 18));
+                    buffer[idx++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+                    buffer[idx++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+                    buffer[idx++] = (byte)(0x80 | (cp & 0x3F));
+                } else
+                    buffer[idx++] = (byte)'?';
+            } else {
+                buffer[idx++] = (byte)(0xE0 | (ch >> 12));
+                buffer[idx++] = (byte)(0x80 | ((ch >> 6) & 0x3F));
+                buffer[idx++] = (byte)(0x80 | (ch & 0x3F));
+            }
+        }
+    }
+
+    /** Write a char, UTF-8 encoded. A surrogate pair must be written with {@link #write(CharSequence)}. */
+    public void write(char ch) {
+        if ( ch < 0x80 ) {
+            if ( idx == buffer.length )
+                drain();
+            buffer[idx++] = (byte)ch;
+            return;
+        }
+        write(String.valueOf(ch));
+    }
+
+    /** Write {@code n} copies of a byte. */
+    public void pad(int b, int n) {
+        for ( int i = 0 ; i < n ; i++ )
+            write(b);
+    }
+
+    /** The number of bytes written so far, to use with {@link #bytesFrom}. */
+    public long position() {
+        return written + idx;
+    }
+
+    /**
+     * Return a copy of the bytes written since {@code position}, or null if they
+     * are no longer all in the buffer.
+     */
+    public byte[] bytesFrom(long position) {
+        if ( position < written )
+            return null;
+        int start = (int)(position - written);
+        return Arrays.copyOfRange(buffer, start, idx);
+    }
+
+    /** Write the buffer to the {@code OutputStream} and flush the {@code OutputStream}. */
+    public void flush() {
+        drain();
+        try { out.flush(); }
+        catch (IOException ex) { IO.exception(ex); }
+    }
+
+    /**
+     * Flush and return the buffer to the pool, unless the pool is full.
+     * The {@code OutputStream} is not closed.
+     */
+    @Override
+    public void close() {
+        if ( buffer == null )
+            return;
+        try {
+            flush();
+        } finally {
+            pool.put(buffer);
+            buffer = null;
+        }
+    }
+
+    /**
+     * An {@link AWriter} that writes to this {@code BufferedOutputUTF8}.
+     * Closing the {@code AWriter} does not close the {@code BufferedOutputUTF8}.
+     */
+    public AWriter asAWriter() {
+        return new AWriterBase() {
+            // Surrogate pairs written one char at a time.
+            private char high = 0;
+
+            @Override
+            public void print(char ch) {
+                if ( high != 0 ) {
+                    char h = high;
+                    high = 0;
+                    if ( Character.isLowSurrogate(ch) ) {
+                        BufferedOutputUTF8.this.write(new String(new char[] {h, ch}));
+                        return;
+                    }
+                    BufferedOutputUTF8.this.write('?');
+                }
+                if ( Character.isHighSurrogate(ch) ) {
+                    high = ch;
+                    return;
+                }
+                BufferedOutputUTF8.this.write(ch);
+            }
+
+            @Override
+            public void print(char[] cbuf) {
+                for ( char ch : cbuf )
+                    print(ch);
+            }
+
+            @Override
+            public void print(String string) {
+                if ( high != 0 || string.isEmpty() ) {
+                    print(string.toCharArray());
+                    return;
+                }
+                char last = string.charAt(string.length()-1);
+                if ( Character.isHighSurrogate(last) ) {
+                    BufferedOutputUTF8.this.write(string, 0, string.length()-1);
+                    high = last;
+                    return;
+                }
+                BufferedOutputUTF8.this.write(string);
+            }
+
+            @Override
+            public void printf(String fmt, Object... args) {
+                print(String.format(fmt, args));
+            }
+
+            @Override
+            public void println(String string) {
+                print(string);
+                println();
+            }
+
+            @Override
+            public void println() {
+                print('\n');
+            }
+
+            @Override
+            public void flush() {
+                BufferedOutputUTF8.this.flush();
+            }
+
+            @Override
+            public void close() {}
+        };
+    }
+
+    private void drain() {
+        if ( idx == 0 )
+            return;
+        try { out.write(buffer, 0, idx); }
+        catch (IOException ex) { IO.exception(ex); }
+        written += idx;
+        idx = 0;
+    }
+}
@@ -21,8 +21,9 @@ package org.apache.jena.atlas.lib;
 import java.util.ArrayDeque ;
 
 /** A Pool of objects. Base implements a non-blocking pool (returns null on no entry)
- * with infinite upper bound.  Set effective size by creating the right number of
- * entries when created.
+ * with, by default, infinite upper bound.  Set effective size by creating the right number of
+ * entries when created. A pool created with a maximum size drops items put into it
+ * when it is full.
  */ 
 public class PoolBase<T> implements Pool<T>
 {
@@ -33,14 +34,14 @@ public class PoolBase<T> implements Pool<T>
     int maxSize = -1 ;  // Unbounded
     
     public PoolBase() {} 
-    //public Pool(int maxSize) { this.maxSize = maxSize ; }
+    public PoolBase(int maxSize) { this.maxSize = maxSize ; }
     
     @Override
     public void put(T item)
     {
-        // Currently, unbounded
-        if ( maxSize >= 0 && pool.size() == 0 )
-        {}
+        // Full : drop the item.
+        if ( maxSize >= 0 && pool.size() >= maxSize )
+            return ;
         pool.push(item) ;
     }
     
@@ -36,6 +36,7 @@ import org.junit.runners.Suite ;
 
     // Writers
     , TestBufferingWriter.class
+    , TestBufferedOutputUTF8.class
     // Other
     , TestFilenameExtensions.class
     , TestPrintUtils.class
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class TestBufferedOutputUTF8 {
+
+    private static void test(String string) {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try ( BufferedOutputUTF8 out = new BufferedOutputUTF8(bout) ) {
+            out.write(string);
+        }
+        assertArrayEquals(string.getBytes(StandardCharsets.UTF_8), bout.toByteArray());
+    }
+
+    private static void testAWriter(String string) {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try ( BufferedOutputUTF8 out = new BufferedOutputUTF8(bout) ) {
+            AWriter w = out.asAWriter();
+            for ( int i = 0 ; i < string.length() ; i++ )
+                w.print(string.charAt(i));
+        }
+        assertArrayEquals(string.getBytes(StandardCharsets.UTF_8), bout.toByteArray());
+    }
+
+    @Test public void utf8_01() { test(""); }
+    @Test public void utf8_02() { test("abc"); }
+    @Test public void utf8_03() { test("éß"); }
+    @Test public void utf8_04() { test("€�"); }
+    @Test public void utf8_05() { test("𐀀 😀"); }
+    // Unpaired surrogates.
+    @Test public void utf8_06() { test("a\uD800b"); }
+    @Test public void utf8_07() { test("a\uDC00"); }
+    @Test public void utf8_08() { test("\uD800"); }
+
+    @Test public void awriter_01() { testAWriter("abcé€"); }
+    @Test public void awriter_02() { testAWriter("😀x"); }
+    @Test public void awriter_03() { testAWriter("a\uD800b"); }
+
+    @Test public void awriter_04() {
+        // Surrogate pair split across calls.
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try ( BufferedOutputUTF8 out = new BufferedOutputUTF8(bout) ) {
+            AWriter w = out.asAWriter();
+            w.print("a\uD83D");
+            w.print("\uDE00b");
+        }
+        assertEquals("a😀b", bout.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test public void large_01() {
+        // Across buffer boundaries, with multibyte chars at the boundary.
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; sb.length() < 3*BufferedOutputUTF8.BufferSize ; i++ )
+            sb.append(i).append("é€😀");
+        test(sb.toString());
+    }
+
+    @Test public void large_02() {
+        byte[] bytes = new byte[BufferedOutputUTF8.BufferSize+10];
+        for ( int i = 0 ; i < bytes.length ; i++ )
+            bytes[i] = (byte)i;
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try ( BufferedOutputUTF8 out = new BufferedOutputUTF8(bout) ) {
+            out.write('a');
+            out.write(bytes);
+            out.write('z');
+        }
+        byte[] result = bout.toByteArray();
+        assertEquals(bytes.length+2, result.length);
+        assertEquals('a', result[0]);
+        assertEquals((byte)99, result[100]);
+        assertEquals('z', result[result.length-1]);
+    }
+
+    @Test public void bytesFrom_01() {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try ( BufferedOutputUTF8 out = new BufferedOutputUTF8(bout) ) {
+            out.write("abc");
+            long mark = out.position();
+            out.write("dé");
+            assertEquals(6, out.position());
+            assertArrayEquals("dé".getBytes(StandardCharsets.UTF_8), out.bytesFrom(mark));
+            out.flush();
+            assertNull(out.bytesFrom(mark));
+            assertEquals(6, out.position());
+        }
+    }
+}
@@ -18,18 +18,31 @@
 
 package tdb2;
 
+import java.nio.file.Files ;
+import java.nio.file.Path ;
+
 import arq.cmdline.ModLangOutput ;
 import org.apache.jena.system.Txn;
+import org.apache.jena.cmd.ArgDecl ;
 import org.apache.jena.cmd.CmdException;
 import org.apache.jena.riot.RDFDataMgr ;
 import org.apache.jena.riot.RDFFormat ;
 import org.apache.jena.riot.RDFLanguages ;
+import org.apache.jena.riot.system.StreamRDFWriter ;
 import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.tdb2.sys.ExportTDB ;
 import tdb2.cmdline.CmdTDB;
 
 public class tdbdump extends CmdTDB
 {
     static ModLangOutput modLangOutput = new ModLangOutput() ;
+    private static final ArgDecl argThreads  = new ArgDecl(ArgDecl.HasValue, "threads") ;
+    private static final ArgDecl argShards   = new ArgDecl(ArgDecl.HasValue, "shards") ;
+    private static final ArgDecl argCompress = new ArgDecl(ArgDecl.NoValue, "compress", "gzip") ;
+
+    private int threads = -1 ;
+    private Path shardsDir = null ;
+    private boolean compress = false ;
     
     static public void main(String... argv) {
         CmdTDB.init() ;
@@ -39,6 +52,28 @@ public class tdbdump extends CmdTDB
     protected tdbdump(String[] argv) {
         super(argv) ;
         addModule(modLangOutput) ;
+        super.add(argThreads, "--threads=N", "Export in parallel with N threads") ;
+        super.add(argShards, "--shards=DIR", "Export in parallel to one file per index range in directory DIR") ;
+        super.add(argCompress, "--compress", "Compress the output with gzip (parallel export)") ;
+    }
+
+    @Override
+    protected void processModulesAndArgs() {
+        super.processModulesAndArgs() ;
+        if ( contains(argThreads) ) {
+            try { threads = Integer.parseInt(getValue(argThreads)) ; }
+            catch (NumberFormatException ex) { throw new CmdException("Not a number: "+getValue(argThreads)) ; }
+            if ( threads < 1 )
+                throw new CmdException("Number of threads must be at least one: "+threads) ;
+        }
+        if ( contains(argShards) ) {
+            shardsDir = Path.of(getValue(argShards)) ;
+            if ( ! Files.isDirectory(shardsDir) )
+                throw new CmdException("Not a directory: "+shardsDir) ;
+        }
+        compress = contains(argCompress) ;
+        if ( compress && threads < 0 && shardsDir == null )
+            throw new CmdException("--compress applies to parallel export (--threads or --shards)") ;
     }
 
     @Override
@@ -60,6 +95,18 @@ public class tdbdump extends CmdTDB
             fmt = RDFFormat.NQUADS ;
         if ( ! RDFLanguages.isQuads(fmt.getLang() ))
             throw new CmdException("Databases can be dumped only in quad formats (e.g. Trig, N-Quads), not "+fmt.getLang()) ;
+        if ( threads > 0 || shardsDir != null ) {
+            if ( ! StreamRDFWriter.registered(fmt) )
+                throw new CmdException("Parallel export needs a streaming format (e.g. N-Quads, RDF Thrift), not "+fmt) ;
+            ExportTDB export = ExportTDB.create(dsg).format(fmt).compress(compress) ;
+            if ( threads > 0 )
+                export.threads(threads) ;
+            if ( shardsDir != null )
+                export.writeShards(shardsDir, "data") ;
+            else
+                export.write(System.out) ;
+            return ;
+        }
         RDFFormat fmtFinal = fmt ;
         Txn.executeRead(dsg, ()->RDFDataMgr.write(System.out, dsg, fmtFinal));
     }
@@ -20,6 +20,7 @@ package org.apache.jena.graph;
 
 import org.apache.jena.graph.impl.GraphBase ;
 import org.apache.jena.mem.GraphMem ;
+import org.apache.jena.mem.GraphMemCompact ;
 import org.apache.jena.util.iterator.ExtendedIterator ;
 import org.apache.jena.util.iterator.NullIterator ;
 
@@ -42,6 +43,14 @@ public class Factory
     public static Graph createGraphMem()
         { return new GraphMem(); }
 
+    /**
+        Answer a memory-based Graph that stores triples as node ids, for large
+        graphs. It has term equality, not value equality, for literals.
+        @see GraphMemCompact
+    */
+    public static Graph createGraphMemCompact()
+        { return new GraphMemCompact(); }
+
     public static Graph createGraphMemWithTransactionHandler( final TransactionHandler th )
         {
         Graph g = new GraphMem()
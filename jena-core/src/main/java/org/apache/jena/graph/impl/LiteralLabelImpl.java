@@ -53,9 +53,17 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
 	 * has not been parsed or if it is an illegal value.
 	 * For plain literals and xsd:string literals
 	 * the value is the same as the lexicalForm.
+	 * Access via {@link #ensureValue()} for literals created from a lexical form.
 	 */
 	private Object value;
 
+	/**
+	 * False if the value is still to be parsed from the lexical form.
+	 * Parsing is delayed until the value, or whether the literal is well-formed,
+	 * is needed. Many literals (e.g. from a parser or from storage) never need it.
+	 */
+	private volatile boolean valueParsed = true;
+
 	/**
 	 * The type of the literal. A null type indicates a classic "plain" literal.
 	 * The type of a literal is fixed when it is created.
@@ -88,8 +96,9 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
 
 	/**
 	 * Build a typed literal label from its lexical form. The
-	 * lexical form will be parsed now and the value stored. If
-	 * the form is not legal this will throw an exception.
+	 * lexical form is parsed when the value is first needed, unless
+	 * eager literal validation is on, in which case it is parsed now and
+	 * if the form is not legal this will throw an exception.
 	 * 
 	 * @param lex the lexical form of the literal
 	 * @param lang the optional language tag, only relevant for plain literals
@@ -108,11 +117,55 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
         this.lang = (lang == null ? "" : lang);
         if (dtype == null) {
             value = lex;
+        } else if ( delayParse(dtype) ) {
+            valueParsed = false;
+            return;
         } else {
             setValue(lex);
         }
         normalize();
     }
+
+    /**
+     * Whether parsing the lexical form can be delayed. Not if eager validation
+     * is required (the exception is thrown on creation), nor for datatypes
+     * that may change the datatype of the literal from the value.
+     */
+    private static boolean delayParse(RDFDatatype dtype) {
+        if ( JenaParameters.enableEagerLiteralValidation )
+            return false;
+        return stableSubType.get(dtype.getClass());
+    }
+
+    /**
+     * Datatype classes where {@link RDFDatatype#normalizeSubType} returns the datatype
+     * itself for a value parsed by that datatype, so parsing does not change the
+     * datatype of the literal.
+     */
+    private static final ClassValue<Boolean> stableSubType = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                Class<?> c = type.getMethod("normalizeSubType", Object.class, RDFDatatype.class).getDeclaringClass();
+                return c == BaseDatatype.class || c == XSDAbstractDateTimeType.class;
+            } catch (NoSuchMethodException | SecurityException ex) {
+                return false;
+            }
+        }
+    };
+
+    /** Parse the lexical form if that has been delayed. */
+    private void ensureValue() {
+        if ( valueParsed )
+            return;
+        synchronized(this) {
+            if ( valueParsed )
+                return;
+            parseValue(lexicalForm);
+            normalize();
+            valueParsed = true;
+        }
+    }
 	
 	/**
 	 * Build a typed literal label from its value form. If the value is a string we
@@ -162,6 +215,9 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
             lexicalForm = lex;
             if (dtype == null) {
                 this.value = lex;
+            } else if ( delayParse(dtype) ) {
+                valueParsed = false;
+                return;
             } else {
                 setValue(lex);
             }
@@ -214,17 +270,27 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
 	 * eager checking is on.
 	 */
 	private void setValue(String lex) throws DatatypeFormatException {
+		if (JenaParameters.enableEagerLiteralValidation) {
+			try {
+				value = dtype.parse(lex);
+				wellformed = true;
+			} catch (DatatypeFormatException e) {
+				e.fillInStackTrace();
+				throw e;
+			}
+		} else {
+			parseValue(lex);
+		}
+	}
+
+	/** Set the value from the lexical form, recording whether it is well-formed. */
+	private void parseValue(String lex) {
 		try {
 			value = dtype.parse(lex);
 			wellformed = true;
 		} catch (DatatypeFormatException e) {
-			if (JenaParameters.enableEagerLiteralValidation) {
-				e.fillInStackTrace();
-				throw e;
-			} else {
-				wellformed = false;
-				exceptionMsg  = e.getMessage();
-			}
+			wellformed = false;
+			exceptionMsg  = e.getMessage();
 		}
 	}
     
@@ -248,6 +314,9 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
     */
 	@Override
     public boolean isXML() {
+		if ( dtype != XMLLiteralType.theXMLLiteralType )
+			return false;
+		ensureValue();
 		return dtype == XMLLiteralType.theXMLLiteralType && this.wellformed;
 	}
     
@@ -256,11 +325,13 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
     */
 	@Override
     public boolean isWellFormed() {
+		ensureValue();
 		return dtype != null && this.wellformed;
 	}
     
     @Override
     public boolean isWellFormedRaw() {
+        ensureValue();
         return wellformed;
     }
 
@@ -315,6 +386,7 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
             return this;
         if ( !lang.equals("") )
             return getLexicalForm() + "@" + lang.toLowerCase(Locale.ROOT);
+        ensureValue();
         if ( wellformed ) {
             Object value = getValue();
             // JENA-1936
@@ -377,6 +449,7 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
     */
 	@Override
     public Object getValue() throws DatatypeFormatException {
+		ensureValue();
 		if (wellformed) {
 			return value;
 		} else {
@@ -534,7 +607,9 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
         well-formed and otherwise from its lexical form.
     */
     @Override
-    public int getDefaultHashcode()
-        { return (wellformed ? value : getLexicalForm()).hashCode(); }
+    public int getDefaultHashcode() {
+        ensureValue();
+        return (wellformed ? value : getLexicalForm()).hashCode();
+    }
 
     }
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.irix;
+
+import static org.apache.jena.irix.Chars3986.*;
+
+/**
+ * A single pass, allocation-free test for IRI strings that are certain to be
+ * acceptable: absolute {@code http:}, {@code https:} and {@code urn:} IRIs in
+ * plain ASCII with no parts that any checking would warn about.
+ * <p>
+ * A string passing the test is an absolute IRI in the form it would have after
+ * resolution (no dot segments) and would cause no errors or warnings from the
+ * checking {@code jena-iri} factory (see {@link SetupJenaIRI}). A string failing
+ * the test is not necessarily bad; it needs the full IRI parser.
+ * <p>
+ * Parsers use this to skip building a {@code jena-iri} {@code IRI} for the common
+ * case, especially for data with mostly unique IRIs where caching does not help.
+ */
+public class IRIFastCheck {
+
+    private IRIFastCheck() {}
+
+    /**
+     * Return true if the string is an absolute IRI that is known to be valid and
+     * needs no further processing. Return false if the full IRI processing is needed.
+     */
+    public static boolean isSimpleAbsolute(String iriStr) {
+        int length = iriStr.length();
+        if ( length < 6 )
+            return false;
+        // Lower case scheme only; other forms get a warning.
+        switch(iriStr.charAt(0)) {
+            case 'h':
+                if ( iriStr.startsWith("http://") )
+                    return httpRest(iriStr, 7);
+                if ( iriStr.startsWith("https://") )
+                    return httpRest(iriStr, 8);
+                return false;
+            case 'u':
+                if ( iriStr.startsWith("urn:") )
+                    return urnRest(iriStr, 4);
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    // After "http://" or "https://"
+    private static boolean httpRest(String str, int start) {
+        int x = host(str, start);
+        if ( x < 0 )
+            return false;
+        if ( x < str.length() && str.charAt(x) == ':' ) {
+            x = port(str, x + 1);
+            if ( x < 0 )
+                return false;
+        }
+        x = path(str, x);
+        if ( x < 0 )
+            return false;
+        return queryFragment(str, x);
+    }
+
+    // DNS name, lower case: labels of letters, digits and '-', not starting or ending
+    // with '-'. The last label starts with a letter (so no IPv4 addresses).
+    // Return the index after the host, or -1.
+    private static int host(String str, int start) {
+        int length = str.length();
+        int x = start;
+        int labelStart = start;
+        for ( ; x < length ; x++ ) {
+            char ch = str.charAt(x);
+            if ( range(ch, 'a', 'z') || isDigit(ch) )
+                continue;
+            if ( ch == '-' ) {
+                if ( x == labelStart )
+                    return -1;
+                continue;
+            }
+            if ( ch == '.' ) {
+                if ( x == labelStart || str.charAt(x - 1) == '-' )
+                    return -1;
+                labelStart = x + 1;
+                continue;
+            }
+            break;
+        }
+        if ( x == labelStart || str.charAt(x - 1) == '-' || ! range(str.charAt(labelStart), 'a', 'z') )
+            return -1;
+        if ( x < length ) {
+            char ch = str.charAt(x);
+            if ( ch != ':' && ch != '/' && ch != '?' && ch != '#' )
+                return -1;
+        }
+        return x;
+    }
+
+    // Port numbers 1024 to 65535, no leading zero.
+    // Default and well-known ports attract warnings.
+    private static int port(String str, int start) {
+        int length = str.length();
+        int x = start;
+        int value = 0;
+        for ( ; x < length ; x++ ) {
+            char ch = str.charAt(x);
+            if ( ! isDigit(ch) )
+                break;
+            if ( x - start >= 5 )
+                return -1;
+            value = 10 * value + (ch - '0');
+        }
+        if ( x == start || str.charAt(start) == '0' )
+            return -1;
+        if ( value < 1024 || value > 65535 )
+            return -1;
+        return x;
+    }
+
+    // path-abempty, no empty, "." or ".." segments.
+    private static int path(String str, int start) {
+        int length = str.length();
+        int x = start;
+        while ( x < length && str.charAt(x) == '/' ) {
+            int segStart = x + 1;
+            x = segStart;
+            for ( ; x < length ; x++ ) {
+                char ch = str.charAt(x);
+                if ( ch == '/' || ch == '?' || ch == '#' )
+                    break;
+                if ( ! safePChar(ch, str, x) )
+                    return -1;
+                if ( ch == '%' )
+                    x += 2;
+            }
+            int segLen = x - segStart;
+            if ( segLen == 0 && x < length && str.charAt(x) == '/' )
+                return -1;
+            if ( isDotSegment(str, segStart, segLen) )
+                return -1;
+        }
+        return x;
+    }
+
+    private static boolean isDotSegment(String str, int start, int len) {
+        if ( len == 1 )
+            return str.charAt(start) == '.';
+        if ( len == 2 )
+            return str.charAt(start) == '.' && str.charAt(start + 1) == '.';
+        return false;
+    }
+
+    // Optional query then optional fragment, to the end of the string.
+    private static boolean queryFragment(String str, int start) {
+        int length = str.length();
+        int x = start;
+        if ( x < length && str.charAt(x) == '?' ) {
+            x++;
+            for ( ; x < length ; x++ ) {
+                char ch = str.charAt(x);
+                if ( ch == '#' )
+                    break;
+                if ( ch == '/' || ch == '?' )
+                    continue;
+                if ( ! safePChar(ch, str, x) )
+                    return false;
+                if ( ch == '%' )
+                    x += 2;
+            }
+        }
+        if ( x < length && str.charAt(x) == '#' ) {
+            x++;
+            for ( ; x < length ; x++ ) {
+                char ch = str.charAt(x);
+                if ( ch == '/' || ch == '?' )
+                    continue;
+                if ( ! safePChar(ch, str, x) )
+                    return false;
+                if ( ch == '%' )
+                    x += 2;
+            }
+        }
+        return x == length;
+    }
+
+    // After "urn:" : NID ":" NSS, RFC 2141 characters, no r-, q- or f-components.
+    private static boolean urnRest(String str, int start) {
+        int length = str.length();
+        int x = start;
+        // NID: letters, digits, '-', lower case, 2 to 32 characters, not starting or ending with '-'.
+        for ( ; x < length ; x++ ) {
+            char ch = str.charAt(x);
+            if ( range(ch, 'a', 'z') || isDigit(ch) || ( ch == '-' && x != start ) )
+                continue;
+            break;
+        }
+        int nidLen = x - start;
+        if ( nidLen < 2 || nidLen > 32 || x == length || str.charAt(x) != ':' || str.charAt(x - 1) == '-' )
+            return false;
+        // "urn:uuid:" has its own checks.
+        if ( nidLen == 4 && str.startsWith("uuid", start) )
+            return false;
+        x++;
+        if ( x == length )
+            return false;
+        for ( ; x < length ; x++ ) {
+            char ch = str.charAt(x);
+            if ( isAlpha(ch) || isDigit(ch) )
+                continue;
+            switch (ch) {
+                case '(': case ')': case '+': case ',': case '-': case '.':
+                case ':': case '=': case '@': case ';': case '$': case '_':
+                case '!': case '*': case '\'':
+                    continue;
+                case '%':
+                    if ( ! pctEncoded(str, x) )
+                        return false;
+                    x += 2;
+                    continue;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    // pchar, with percent encoding restricted to upper case hex digits and
+    // not encoding an unreserved character.
+    private static boolean safePChar(char ch, String str, int x) {
+        if ( ch == '%' )
+            return pctEncoded(str, x);
+        return unreserved(ch) || subDelims(ch) || ch == ':' || ch == '@';
+    }
+
+    private static boolean pctEncoded(String str, int x) {
+        if ( x + 2 >= str.length() )
+            return false;
+        char ch1 = str.charAt(x + 1);
+        char ch2 = str.charAt(x + 2);
+        if ( ! upperHex(ch1) || ! upperHex(ch2) )
+            return false;
+        // Only ASCII reserved or unsafe characters; anything else is checked in full.
+        int value = hexValue(ch1) * 16 + hexValue(ch2);
+        if ( value >= 0x80 || value < 0x20 )
+            return false;
+        return ! unreserved((char)value);
+    }
+
+    private static boolean upperHex(char ch) {
+        return isDigit(ch) || range(ch, 'A', 'F');
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.mem;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+import org.apache.jena.graph.Capabilities;
+import org.apache.jena.graph.GraphEvents;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.AllCapabilities;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NiceIterator;
+import org.apache.jena.util.iterator.NullIterator;
+
+/**
+ * A memory-based graph that stores triples as node ids.
+ * <p>
+ * Nodes are interned in a {@link NodeDictionary}. Each triple is held in three
+ * indexes, by subject, by predicate and by object. An index is an array, indexed by
+ * node id, of sets of the other two ids packed into a {@code long} (see
+ * {@link PairBunch}), so a triple costs three {@code long}s rather than a
+ * {@link Triple} object and three hash set entries as in {@link GraphMem}.
+ * {@code Triple} objects are created as results are returned by {@code find}.
+ * <p>
+ * This graph uses term equality for {@code find} and {@code contains}: unlike
+ * {@link GraphMem}, literals with the same value but different lexical forms do
+ * not match ({@link Capabilities#handlesLiteralTyping} is false).
+ * <p>
+ * Nodes stay in the dictionary when the triples using them are deleted, until
+ * {@link #clear()}.
+ * <p>
+ * As with {@link GraphMem}, changing the graph other than through
+ * {@code Iterator.remove} while iterating over the results of {@code find} causes a
+ * {@link ConcurrentModificationException}.
+ */
+public class GraphMemCompact extends GraphBase {
+    private static final Capabilities capabilitiesCompact = new AllCapabilities() {
+        @Override public boolean handlesLiteralTyping() { return false; }
+    };
+
+    // Which index, and so how a key and a pair make a triple.
+    private static final int SPO = 0;   // key=S, pair=(P,O)
+    private static final int POS = 1;   // key=P, pair=(O,S)
+    private static final int OSP = 2;   // key=O, pair=(S,P)
+
+    private final NodeDictionary dictionary = new NodeDictionary();
+    private long[][] bySubject;
+    private long[][] byPredicate;
+    private long[][] byObject;
+    private int size;
+    private int modCount;
+
+    public GraphMemCompact() {
+        initIndexes();
+    }
+
+    private void initIndexes() {
+        bySubject = new long[16][];
+        byPredicate = new long[16][];
+        byObject = new long[16][];
+        size = 0;
+    }
+
+    @Override
+    public Capabilities getCapabilities() {
+        return capabilitiesCompact;
+    }
+
+    @Override
+    public void performAdd(Triple t) {
+        int s = dictionary.intern(t.getSubject());
+        int p = dictionary.intern(t.getPredicate());
+        int o = dictionary.intern(t.getObject());
+        ensureIndexCapacity(dictionary.size());
+        long po = PairBunch.pack(p, o);
+        if ( PairBunch.contains(bySubject[s], po) )
+            return;
+        bySubject[s] = PairBunch.add(bySubject[s], po);
+        byPredicate[p] = PairBunch.add(byPredicate[p], PairBunch.pack(o, s));
+        byObject[o] = PairBunch.add(byObject[o], PairBunch.pack(s, p));
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public void performDelete(Triple t) {
+        int s = dictionary.getId(t.getSubject());
+        int p = dictionary.getId(t.getPredicate());
+        int o = dictionary.getId(t.getObject());
+        if ( s < 0 || p < 0 || o < 0 )
+            return;
+        delete(s, p, o);
+    }
+
+    private void delete(int s, int p, int o) {
+        if ( ! PairBunch.remove(bySubject[s], PairBunch.pack(p, o)) )
+            return;
+        PairBunch.remove(byPredicate[p], PairBunch.pack(o, s));
+        PairBunch.remove(byObject[o], PairBunch.pack(s, p));
+        // Release empty sets.
+        if ( PairBunch.size(bySubject[s]) == 0 )
+            bySubject[s] = null;
+        if ( PairBunch.size(byPredicate[p]) == 0 )
+            byPredicate[p] = null;
+        if ( PairBunch.size(byObject[o]) == 0 )
+            byObject[o] = null;
+        size--;
+        modCount++;
+    }
+
+    private void ensureIndexCapacity(int n) {
+        if ( n <= bySubject.length )
+            return;
+        int len = Math.max(n, 2 * bySubject.length);
+        bySubject = Arrays.copyOf(bySubject, len);
+        byPredicate = Arrays.copyOf(byPredicate, len);
+        byObject = Arrays.copyOf(byObject, len);
+    }
+
+    @Override
+    protected int graphBaseSize() {
+        return size;
+    }
+
+    @Override
+    protected boolean graphBaseContains(Triple t) {
+        if ( ! t.isConcrete() )
+            return super.graphBaseContains(t);
+        int s = dictionary.getId(t.getSubject());
+        int p = dictionary.getId(t.getPredicate());
+        int o = dictionary.getId(t.getObject());
+        if ( s < 0 || p < 0 || o < 0 )
+            return false;
+        return PairBunch.contains(bySubject[s], PairBunch.pack(p, o));
+    }
+
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(Triple pattern) {
+        Node sm = pattern.getMatchSubject();
+        Node pm = pattern.getMatchPredicate();
+        Node om = pattern.getMatchObject();
+        // -1 for "any".
+        int s = -1;
+        int p = -1;
+        int o = -1;
+        if ( sm != null && (s = dictionary.getId(sm)) < 0 )
+            return NullIterator.instance();
+        if ( pm != null && (p = dictionary.getId(pm)) < 0 )
+            return NullIterator.instance();
+        if ( om != null && (o = dictionary.getId(om)) < 0 )
+            return NullIterator.instance();
+
+        if ( s >= 0 ) {
+            if ( p >= 0 ) {
+                if ( o >= 0 ) {
+                    long po = PairBunch.pack(p, o);
+                    if ( ! PairBunch.contains(bySubject[s], po) )
+                        return NullIterator.instance();
+                    return new PairIterator(SPO, s, new long[] {1, po});
+                }
+                // S P ?
+                if ( smaller(bySubject[s], byPredicate[p]) )
+                    return new PairIterator(SPO, s, p, -1);
+                return new PairIterator(POS, p, -1, s);
+            }
+            if ( o >= 0 ) {
+                // S ? O
+                if ( smaller(bySubject[s], byObject[o]) )
+                    return new PairIterator(SPO, s, -1, o);
+                return new PairIterator(OSP, o, s, -1);
+            }
+            return new PairIterator(SPO, s, -1, -1);
+        }
+        if ( p >= 0 ) {
+            if ( o >= 0 ) {
+                // ? P O
+                if ( smaller(byPredicate[p], byObject[o]) )
+                    return new PairIterator(POS, p, o, -1);
+                return new PairIterator(OSP, o, -1, p);
+            }
+            return new PairIterator(POS, p, -1, -1);
+        }
+        if ( o >= 0 )
+            return new PairIterator(OSP, o, -1, -1);
+        return new PairIterator();
+    }
+
+    private static boolean smaller(long[] bunch1, long[] bunch2) {
+        if ( bunch1 == null )
+            return true;
+        if ( bunch2 == null )
+            return false;
+        return PairBunch.size(bunch1) <= PairBunch.size(bunch2);
+    }
+
+    /**
+     * Clear this graph, removing all triples and all nodes from the dictionary.
+     */
+    @Override
+    public void clear() {
+        clearStore();
+        getEventManager().notifyEvent(this, GraphEvents.removeAll);
+    }
+
+    private void clearStore() {
+        dictionary.clear();
+        initIndexes();
+        modCount++;
+    }
+
+    @Override
+    public void close() {
+        clearStore();
+        super.close();
+    }
+
+    private Triple triple(int index, int key, long pair) {
+        int a = PairBunch.first(pair);
+        int b = PairBunch.second(pair);
+        switch (index) {
+            case SPO : return triple(key, a, b);
+            case POS : return triple(b, key, a);
+            case OSP : return triple(a, b, key);
+            default :
+                throw new IllegalStateException();
+        }
+    }
+
+    private Triple triple(int s, int p, int o) {
+        return Triple.create(dictionary.getNode(s), dictionary.getNode(p), dictionary.getNode(o));
+    }
+
+    /**
+     * Iterator over the pairs of one index for a range of keys, optionally
+     * restricted to pairs with a given first or second id.
+     */
+    private class PairIterator extends NiceIterator<Triple> {
+        private final int index;
+        private final long[][] keyIndex;
+        private final int firstId;
+        private final int secondId;
+        private int key;
+        private final int keyLimit;
+        private long[] bunch;
+        // Whether bunch is a private copy, not the live set in the index.
+        private boolean copied;
+        private int posn;
+        private int limit;
+        private Triple slot = null;
+        private Triple current = null;
+        private int expectedModCount;
+
+        /** All triples */
+        PairIterator() {
+            this(SPO, 0, dictionary.size(), -1, -1);
+        }
+
+        /** Triples with one key, optionally restricted by first and/or second id. */
+        PairIterator(int index, int key, int firstId, int secondId) {
+            this(index, key, key + 1, firstId, secondId);
+        }
+
+        /** A given set of pairs for one key. */
+        PairIterator(int index, int key, long[] pairs) {
+            this(index, key, key + 1, -1, -1);
+            this.key = key;
+            this.bunch = pairs;
+            this.copied = true;
+            this.posn = 1;
+            this.limit = PairBunch.limit(pairs);
+        }
+
+        private PairIterator(int index, int keyStart, int keyLimit, int firstId, int secondId) {
+            this.index = index;
+            this.keyIndex = ( index == SPO ) ? bySubject : ( index == POS ) ? byPredicate : byObject;
+            this.key = keyStart - 1;
+            this.keyLimit = keyLimit;
+            this.firstId = firstId;
+            this.secondId = secondId;
+            this.expectedModCount = modCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            checkModCount();
+            if ( slot != null )
+                return true;
+            for ( ;; ) {
+                while ( posn < limit ) {
+                    long pair = bunch[posn++];
+                    if ( pair == PairBunch.Empty )
+                        continue;
+                    if ( firstId >= 0 && PairBunch.first(pair) != firstId )
+                        continue;
+                    if ( secondId >= 0 && PairBunch.second(pair) != secondId )
+                        continue;
+                    slot = triple(index, key, pair);
+                    return true;
+                }
+                if ( ++key >= keyLimit ) {
+                    bunch = null;
+                    posn = limit = 0;
+                    copied = true;
+                    return false;
+                }
+                // The index arrays are only replaced by changes that also change modCount.
+                bunch = keyIndex[key];
+                copied = false;
+                posn = 1;
+                limit = ( bunch == null ) ? 0 : PairBunch.limit(bunch);
+            }
+        }
+
+        @Override
+        public Triple next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException();
+            current = slot;
+            slot = null;
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            if ( current == null )
+                throw new IllegalStateException("GraphMemCompact: remove() without next()");
+            checkModCount();
+            if ( ! copied ) {
+                // Deleting reorders the live set; continue from a copy of the rest of it.
+                // Slot 0 of the copy is not used.
+                bunch = Arrays.copyOfRange(bunch, posn - 1, limit);
+                posn = 1;
+                limit = bunch.length;
+                copied = true;
+            }
+            Triple t = current;
+            current = null;
+            GraphMemCompact.this.delete(dictionary.getId(t.getSubject()),
+                                        dictionary.getId(t.getPredicate()),
+                                        dictionary.getId(t.getObject()));
+            expectedModCount = modCount;
+            getEventManager().notifyDeleteTriple(GraphMemCompact.this, t);
+        }
+
+        private void checkModCount() {
+            if ( modCount != expectedModCount )
+                throw new ConcurrentModificationException();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.mem;
+
+import java.util.Arrays;
+
+import org.apache.jena.graph.Node;
+
+/**
+ * A dictionary of {@link Node}s to small, dense integer ids (0, 1, 2, ...).
+ * <p>
+ * Nodes are held in an array indexed by id and found by an open addressing hash
+ * table of ids, so a node costs one array slot and two table slots beyond the node
+ * itself. Ids are allocated in order and are not reused: a node keeps its id until
+ * {@link #clear()}.
+ * <p>
+ * Nodes are compared by term equality ({@link Node#equals}).
+ * This class is not thread-safe.
+ */
+public class NodeDictionary {
+    private static final int InitialSize = 64;
+
+    private Node[] nodes;
+    // Open addressing, linear probing. Slot holds id+1; 0 is an empty slot.
+    private int[] slots;
+    private int size;
+
+    public NodeDictionary() {
+        clear();
+    }
+
+    /** Number of nodes in the dictionary. Ids are 0 to {@code size()-1}. */
+    public int size() {
+        return size;
+    }
+
+    /** The node for an id. */
+    public Node getNode(int id) {
+        if ( id < 0 || id >= size )
+            throw new IndexOutOfBoundsException("NodeDictionary: id="+id+" size="+size);
+        return nodes[id];
+    }
+
+    /** The id for a node, or -1 if the node is not in the dictionary. */
+    public int getId(Node node) {
+        int mask = slots.length - 1;
+        for ( int i = hash(node) & mask ; ; i = (i + 1) & mask ) {
+            int x = slots[i];
+            if ( x == 0 )
+                return -1;
+            if ( nodes[x - 1].equals(node) )
+                return x - 1;
+        }
+    }
+
+    /** The id for a node, adding the node to the dictionary if it is not already present. */
+    public int intern(Node node) {
+        int mask = slots.length - 1;
+        int i = hash(node) & mask;
+        for ( ; ; i = (i + 1) & mask ) {
+            int x = slots[i];
+            if ( x == 0 )
+                break;
+            if ( nodes[x - 1].equals(node) )
+                return x - 1;
+        }
+        int id = size;
+        if ( id == nodes.length )
+            nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+        nodes[id] = node;
+        slots[i] = id + 1;
+        size++;
+        // Keep the table at most half full.
+        if ( 2 * size > slots.length )
+            rehash(2 * slots.length);
+        return id;
+    }
+
+    /** Remove all nodes. Ids start again from 0. */
+    public void clear() {
+        nodes = new Node[InitialSize];
+        slots = new int[2 * InitialSize];
+        size = 0;
+    }
+
+    private void rehash(int newLength) {
+        int[] newSlots = new int[newLength];
+        int mask = newLength - 1;
+        for ( int id = 0 ; id < size ; id++ ) {
+            int i = hash(nodes[id]) & mask;
+            while ( newSlots[i] != 0 )
+                i = (i + 1) & mask;
+            newSlots[i] = id + 1;
+        }
+        slots = newSlots;
+    }
+
+    private static int hash(Node node) {
+        int h = node.hashCode();
+        // Spread the high bits (as java.util.HashMap does).
+        return h ^ (h >>> 16);
+    }
+}
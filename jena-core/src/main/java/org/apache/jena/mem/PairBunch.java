@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.mem;
+
+import java.util.Arrays;
+
+/**
+ * Operations on a set of pairs of node ids held in a {@code long[]}.
+ * <p>
+ * Each pair is packed into one {@code long}, first id in the high 32 bits. Slot 0 of
+ * the array holds the number of pairs. A small set is an unordered array in slots
+ * {@code 1..size}; a set with more than {@link #ArrayLimit} pairs is an open
+ * addressing hash table (linear probing) over slots {@code 1..length-1}, with
+ * {@link #Empty} marking unused slots. The two layouts are told apart by the array
+ * length.
+ * <p>
+ * Adding may return a new array; the caller keeps the returned one.
+ */
+final class PairBunch {
+    private PairBunch() {}
+
+    /** Marker for an empty slot. Packed pairs of non-negative ids are never negative. */
+    static final long Empty = -1L;
+
+    /** Largest set kept as an array. Must be a power of two (array capacities are 1, 2, 4, ...). */
+    static final int ArrayLimit = 8;
+
+    private static final int InitialHashCapacity = 16;
+
+    static long pack(int a, int b) {
+        return ((long)a << 32) | (b & 0xFFFFFFFFL);
+    }
+
+    static int first(long pair) {
+        return (int)(pair >>> 32);
+    }
+
+    static int second(long pair) {
+        return (int)pair;
+    }
+
+    static int size(long[] bunch) {
+        return (int)bunch[0];
+    }
+
+    static boolean isHashed(long[] bunch) {
+        return bunch.length - 1 > ArrayLimit;
+    }
+
+    /** The slot after the last slot that may hold a pair, for iterating from slot 1. */
+    static int limit(long[] bunch) {
+        return isHashed(bunch) ? bunch.length : 1 + size(bunch);
+    }
+
+    static boolean contains(long[] bunch, long pair) {
+        if ( bunch == null )
+            return false;
+        if ( ! isHashed(bunch) ) {
+            int n = size(bunch);
+            for ( int i = 1 ; i <= n ; i++ ) {
+                if ( bunch[i] == pair )
+                    return true;
+            }
+            return false;
+        }
+        int mask = bunch.length - 2;
+        for ( int i = home(pair, mask) ; ; i = (i + 1) & mask ) {
+            long x = bunch[1 + i];
+            if ( x == Empty )
+                return false;
+            if ( x == pair )
+                return true;
+        }
+    }
+
+    /**
+     * Add a pair that is not already in the bunch (which may be null).
+     * Return the bunch, which may be a new array.
+     */
+    static long[] add(long[] bunch, long pair) {
+        if ( bunch == null ) {
+            bunch = new long[2];
+            bunch[0] = 1;
+            bunch[1] = pair;
+            return bunch;
+        }
+        int n = size(bunch);
+        if ( ! isHashed(bunch) ) {
+            if ( n < ArrayLimit ) {
+                if ( n + 1 == bunch.length )
+                    bunch = Arrays.copyOf(bunch, 2 * bunch.length - 1);
+                bunch[n + 1] = pair;
+                bunch[0] = n + 1;
+                return bunch;
+            }
+            bunch = rehash(bunch, InitialHashCapacity);
+        } else if ( 4 * (n + 1) > 3 * (bunch.length - 1) ) {
+            // Keep the table at most 3/4 full.
+            bunch = rehash(bunch, 2 * (bunch.length - 1));
+        }
+        insert(bunch, pair);
+        bunch[0] = n + 1;
+        return bunch;
+    }
+
+    /** Remove a pair, if present. Return whether the bunch changed. */
+    static boolean remove(long[] bunch, long pair) {
+        if ( bunch == null )
+            return false;
+        int n = size(bunch);
+        if ( ! isHashed(bunch) ) {
+            for ( int i = 1 ; i <= n ; i++ ) {
+                if ( bunch[i] == pair ) {
+                    bunch[i] = bunch[n];
+                    bunch[n] = 0;
+                    bunch[0] = n - 1;
+                    return true;
+                }
+            }
+            return false;
+        }
+        int mask = bunch.length - 2;
+        int i = home(pair, mask);
+        for ( ; ; i = (i + 1) & mask ) {
+            long x = bunch[1 + i];
+            if ( x == Empty )
+                return false;
+            if ( x == pair )
+                break;
+        }
+        // Backward shift deletion: move later entries of the probe sequence into the gap.
+        for ( int j = i ; ; ) {
+            j = (j + 1) & mask;
+            long x = bunch[1 + j];
+            if ( x == Empty )
+                break;
+            int k = home(x, mask);
+            boolean inPlace = ( i <= j ) ? ( i < k && k <= j ) : ( i < k || k <= j );
+            if ( inPlace )
+                continue;
+            bunch[1 + i] = x;
+            i = j;
+        }
+        bunch[1 + i] = Empty;
+        bunch[0] = n - 1;
+        return true;
+    }
+
+    private static long[] rehash(long[] bunch, int capacity) {
+        long[] newBunch = new long[1 + capacity];
+        Arrays.fill(newBunch, 1, newBunch.length, Empty);
+        int limit = limit(bunch);
+        for ( int i = 1 ; i < limit ; i++ ) {
+            long x = bunch[i];
+            if ( x != Empty )
+                insert(newBunch, x);
+        }
+        newBunch[0] = bunch[0];
+        return newBunch;
+    }
+
+    private static void insert(long[] bunch, long pair) {
+        int mask = bunch.length - 2;
+        int i = home(pair, mask);
+        while ( bunch[1 + i] != Empty )
+            i = (i + 1) & mask;
+        bunch[1 + i] = pair;
+    }
+
+    private static int home(long pair, int mask) {
+        long h = pair * 0x9E3779B97F4A7C15L;
+        return (int)(h >>> 32) & mask;
+    }
+}
@@ -21,9 +21,12 @@ package org.apache.jena.graph.test;
 import junit.framework.Test ;
 import junit.framework.TestSuite ;
 import org.apache.jena.datatypes.BaseDatatype ;
+import org.apache.jena.datatypes.DatatypeFormatException ;
 import org.apache.jena.datatypes.RDFDatatype ;
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
 import org.apache.jena.graph.impl.LiteralLabel ;
 import org.apache.jena.graph.impl.LiteralLabelFactory ;
+import org.apache.jena.shared.impl.JenaParameters ;
 
 // See also TestLiteralLabelSameValueAs, TestTypedLiterals
 public class TestLiteralLabels extends GraphTestBase
@@ -126,5 +129,64 @@ public class TestLiteralLabels extends GraphTestBase
         assertFalse(A.equals(B)) ;
         assertTrue(A.sameValueAs(B)) ;
     }
-    
+
+    // Parsing the lexical form is delayed until the value is needed.
+    public void testDelayedParse1()
+    {
+        int[] calls = { 0 } ;
+        RDFDatatype d = new BaseDatatype("eh:/CountingDataType") {
+            @Override
+            public Object parse(String lexicalForm)
+            {
+                calls[0]++ ;
+                return Integer.valueOf(lexicalForm) ;
+            }
+        } ;
+        LiteralLabel A = LiteralLabelFactory.create("17", d) ;
+        LiteralLabel B = LiteralLabelFactory.create("17", d) ;
+        assertEquals(0, calls[0]) ;
+        assertTrue(A.equals(B)) ;
+        assertEquals(0, calls[0]) ;
+        assertEquals(17, A.getValue()) ;
+        assertEquals(17, A.getValue()) ;
+        assertEquals(1, calls[0]) ;
+        assertTrue(A.sameValueAs(B)) ;
+        assertEquals(2, calls[0]) ;
+    }
+
+    public void testDelayedParse2()
+    {
+        LiteralLabel A = LiteralLabelFactory.create("abc", XSDDatatype.XSDinteger) ;
+        LiteralLabel B = LiteralLabelFactory.create("abc", XSDDatatype.XSDinteger) ;
+        assertTrue(A.equals(B)) ;
+        assertEquals(A.hashCode(), B.hashCode()) ;
+        assertFalse(A.isWellFormed()) ;
+        assertTrue(A.sameValueAs(B)) ;
+        try {
+            A.getValue() ;
+            fail("Expected DatatypeFormatException") ;
+        } catch (DatatypeFormatException ex) {}
+    }
+
+    public void testDelayedParse3()
+    {
+        LiteralLabel A = LiteralLabelFactory.create("2021-01-02", XSDDatatype.XSDdate) ;
+        LiteralLabel B = LiteralLabelFactory.createTypedLiteral(A.getValue()) ;
+        assertEquals(XSDDatatype.XSDdate, A.getDatatype()) ;
+        assertTrue(A.sameValueAs(B)) ;
+        assertTrue(A.equals(B)) ;
+    }
+
+    public void testEagerParse()
+    {
+        boolean b = JenaParameters.enableEagerLiteralValidation ;
+        try {
+            JenaParameters.enableEagerLiteralValidation = true ;
+            LiteralLabelFactory.create("abc", XSDDatatype.XSDinteger) ;
+            fail("Expected DatatypeFormatException") ;
+        } catch (DatatypeFormatException ex) {}
+        finally {
+            JenaParameters.enableEagerLiteralValidation = b ;
+        }
+    }
 }
@@ -31,6 +31,7 @@ import org.junit.runners.Suite;
     TestResolve.class,
     TestNormalize.class,
     TestRelative.class,
+    TestIRIFastCheck.class,
 } )
 
 public class TS_IRIx {
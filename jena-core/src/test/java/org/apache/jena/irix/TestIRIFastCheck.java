@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.irix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jena.iri.IRI;
+import org.junit.Test;
+
+public class TestIRIFastCheck {
+
+    @Test public void fast_http_01()    { fast("http://example.org/"); }
+    @Test public void fast_http_02()    { fast("http://example.org"); }
+    @Test public void fast_http_03()    { fast("https://www.w3.org/1999/02/22-rdf-syntax-ns#type"); }
+    @Test public void fast_http_04()    { fast("http://dbpedia.org/resource/Albert_Einstein"); }
+    @Test public void fast_http_05()    { fast("http://localhost:3030/ds/query?query=x&format=json"); }
+    @Test public void fast_http_06()    { fast("http://example.org/a%20b"); }
+    @Test public void fast_http_07()    { fast("http://example.org/~user/file.ttl#frag/ment?x"); }
+    @Test public void fast_http_08()    { fast("http://example.org/a;b=c/(x)*!$'+,"); }
+    @Test public void fast_http_09()    { fast("http://xn--bcher-kva.example/"); }
+
+    @Test public void fast_urn_01()     { fast("urn:isbn:0451450523"); }
+    @Test public void fast_urn_02()     { fast("urn:nbn:de:bvb:19-146642"); }
+    @Test public void fast_urn_03()     { fast("urn:x-local:abc"); }
+
+    // Not absolute, or other schemes.
+    @Test public void slow_01()         { slow("abc"); }
+    @Test public void slow_02()         { slow("/abc"); }
+    @Test public void slow_03()         { slow("file:///tmp/file"); }
+    @Test public void slow_04()         { slow("HTTP://example.org/"); }
+    @Test public void slow_05()         { slow("mailto:user@example.org"); }
+
+    // Resolution would change these.
+    @Test public void slow_dot_01()     { slow("http://example.org/a/./b"); }
+    @Test public void slow_dot_02()     { slow("http://example.org/a/../b"); }
+    @Test public void slow_dot_03()     { slow("http://example.org/a/.."); }
+
+    // Things to warn about, or that need full checking.
+    @Test public void slow_host_01()    { slow("http://Example.org/"); }
+    @Test public void slow_host_02()    { slow("http://127.0.0.1/"); }
+    @Test public void slow_host_03()    { slow("http://[::1]/"); }
+    @Test public void slow_host_04()    { slow("http://-example.org/"); }
+    @Test public void slow_host_05()    { slow("http://user@example.org/"); }
+    @Test public void slow_port_01()    { slow("http://example.org:80/"); }
+    @Test public void slow_port_02()    { slow("http://example.org:0808/"); }
+    @Test public void slow_port_03()    { slow("http://example.org:/"); }
+    @Test public void slow_path_01()    { slow("http://example.org/a b"); }
+    @Test public void slow_path_02()    { slow("http://example.org/a%2fb"); }
+    @Test public void slow_path_03()    { slow("http://example.org/a%41"); }
+    @Test public void slow_path_04()    { slow("http://example.org/a%2"); }
+    @Test public void slow_path_05()    { slow("http://example.org/a//b"); }
+    @Test public void slow_path_06()    { slow("http://example.org/αβγ"); }
+    @Test public void slow_path_07()    { slow("http://example.org/a#b#c"); }
+    @Test public void slow_path_08()    { slow("http://example.org/a{b}"); }
+    @Test public void slow_urn_01()     { slow("urn:x:abcd"); }
+    @Test public void slow_urn_02()     { slow("urn:ab-:abcd"); }
+    @Test public void slow_urn_03()     { slow("urn:uuid:6e8bc430-9c3a-11d9-9669-0800200c9a66"); }
+    @Test public void slow_urn_04()     { slow("urn:ab:a/b"); }
+    @Test public void slow_urn_05()     { slow("urn:ab:"); }
+
+    private static void fast(String iriStr) {
+        assertTrue(iriStr, IRIFastCheck.isSimpleAbsolute(iriStr));
+        // Agrees with the full processing.
+        IRI iri = SetupJenaIRI.iriCheckerFactory().create(iriStr);
+        assertFalse(iriStr, iri.hasViolation(true));
+        IRIx base = IRIx.create("http://base.example/dir/file");
+        assertEquals(iriStr, base.resolve(iriStr).str());
+    }
+
+    private static void slow(String iriStr) {
+        assertFalse(iriStr, IRIFastCheck.isSimpleAbsolute(iriStr));
+    }
+}
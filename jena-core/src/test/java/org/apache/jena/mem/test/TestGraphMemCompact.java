@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.mem.test;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestSuite;
+import org.apache.jena.graph.* ;
+import org.apache.jena.graph.test.AbstractTestGraph ;
+import org.apache.jena.mem.GraphMemCompact ;
+import org.apache.jena.util.iterator.ExtendedIterator ;
+
+public class TestGraphMemCompact extends AbstractTestGraph
+    {
+    public TestGraphMemCompact( String name )
+        { super( name ); }
+
+    public static TestSuite suite()
+        { return new TestSuite( TestGraphMemCompact.class ); }
+
+    @Override public Graph getGraph()
+        { return new GraphMemCompact(); }
+
+    public void testSizeAfterRemove()
+        {
+        Graph g = getGraphWith( "x p y" );
+        ExtendedIterator<Triple> it = g.find( triple( "x ?? ??" ) );
+        it.removeNext();
+        assertEquals( 0, g.size() );
+        }
+
+    public void testBrokenIndexes()
+        {
+        Graph g = getGraphWith( "x R y; x S z" );
+        ExtendedIterator<Triple> it = g.find( Node.ANY, Node.ANY, Node.ANY );
+        it.removeNext(); it.removeNext();
+        assertFalse( g.find( node( "x" ), Node.ANY, Node.ANY ).hasNext() );
+        assertFalse( g.find( Node.ANY, node( "R" ), Node.ANY ).hasNext() );
+        assertFalse( g.find( Node.ANY, Node.ANY, node( "y" ) ).hasNext() );
+        }
+
+    public void testTermEquality()
+        {
+        Graph g = getGraphWith( "x p '1'xsd:integer" );
+        assertFalse( g.getCapabilities().handlesLiteralTyping() );
+        assertTrue( g.contains( triple( "x p '1'xsd:integer" ) ) );
+        assertFalse( g.contains( triple( "x p '01'xsd:integer" ) ) );
+        assertFalse( g.find( triple( "?? ?? '01'xsd:integer" ) ).hasNext() );
+        }
+
+    public void testAddDuplicate()
+        {
+        Graph g = getGraphWith( "x p y; x p y" );
+        assertEquals( 1, g.size() );
+        }
+
+    public void testConcurrentModification()
+        {
+        Graph g = getGraphWith( "x p y; x p z" );
+        Iterator<Triple> it = g.find( triple( "x p ??" ) );
+        it.next();
+        g.add( triple( "x p w" ) );
+        try { it.hasNext(); fail( "Expected ConcurrentModificationException" ); }
+        catch ( ConcurrentModificationException ex ) {}
+        }
+
+    public void testIteratorRemoveLarge()
+        {
+        // Large enough that the index sets are hash tables.
+        Graph g = getGraph();
+        for ( int i = 0 ; i < 100 ; i++ )
+            g.add( triple( "s p o" + i ) );
+        int count = 0;
+        ExtendedIterator<Triple> it = g.find( triple( "s ?? ??" ) );
+        while ( it.hasNext() )
+            {
+            Triple t = it.next();
+            count++;
+            if ( t.getObject().getURI().endsWith( "0" ) )
+                it.remove();
+            }
+        assertEquals( 100, count );
+        assertEquals( 90, g.size() );
+        assertEquals( 90, g.find( triple( "?? p ??" ) ).toList().size() );
+        assertFalse( g.contains( triple( "s p o10" ) ) );
+        assertTrue( g.contains( triple( "s p o11" ) ) );
+        }
+
+    /** Random adds and deletes checked against a set of triples. */
+    public void testRandom()
+        {
+        Random random = new Random( 1234 );
+        Graph g = getGraph();
+        Set<Triple> expected = new HashSet<>();
+        for ( int i = 0 ; i < 20000 ; i++ )
+            {
+            Triple t = triple( "s" + random.nextInt( 5 ) + " p" + random.nextInt( 3 ) + " o" + random.nextInt( 200 ) );
+            if ( random.nextInt( 3 ) == 0 )
+                { g.delete( t ); expected.remove( t ); }
+            else
+                { g.add( t ); expected.add( t ); }
+            }
+        assertEquals( expected.size(), g.size() );
+        assertEquals( expected, g.find().toSet() );
+        for ( int i = 0 ; i < 5 ; i++ )
+            {
+            Node s = node( "s" + i );
+            Node p = node( "p" + i );
+            Node o = node( "o" + i );
+            assertEquals( count( expected, s, null, null ), g.find( s, Node.ANY, Node.ANY ).toList().size() );
+            assertEquals( count( expected, null, p, null ), g.find( Node.ANY, p, Node.ANY ).toList().size() );
+            assertEquals( count( expected, null, null, o ), g.find( Node.ANY, Node.ANY, o ).toList().size() );
+            assertEquals( count( expected, s, p, null ), g.find( s, p, Node.ANY ).toList().size() );
+            assertEquals( count( expected, s, null, o ), g.find( s, Node.ANY, o ).toList().size() );
+            assertEquals( count( expected, null, p, o ), g.find( Node.ANY, p, o ).toList().size() );
+            }
+        for ( Triple t : expected )
+            assertTrue( g.contains( t ) );
+        }
+
+    private static int count( Set<Triple> triples, Node s, Node p, Node o )
+        {
+        Triple pattern = Triple.createMatch( s, p, o );
+        int n = 0;
+        for ( Triple t : triples )
+            if ( pattern.matches( t ) )
+                n++;
+        return n;
+        }
+    }
@@ -28,6 +28,7 @@ public class TestGraphMemPackage extends TestCase
         TestSuite result = new TestSuite();
         result.addTest( TestGraphMem.suite() );
         result.addTest( TestGraphMem2.suite() );
+        result.addTest( TestGraphMemCompact.suite() );
         result.addTest( TestConcurrentModificationException.suite() );
         return result;
         }
@@ -38,6 +38,7 @@ public class TestMemPackage extends TestCase
         result.addTest( new TestSuite( TestHashedTripleBunch.class ) );
         result.addTestSuite( TestHashedBunchMap.class );
         result.addTestSuite( TestHashCommon.class );
+        result.addTestSuite( TestNodeDictionary.class );
         return result;
         }
     }
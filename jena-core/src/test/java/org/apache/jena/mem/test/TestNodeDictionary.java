@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.mem.test;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.mem.NodeDictionary ;
+import org.apache.jena.rdf.model.test.ModelTestBase ;
+
+public class TestNodeDictionary extends ModelTestBase
+    {
+    public TestNodeDictionary( String name )
+        { super( name ); }
+
+    public void testEmpty()
+        {
+        NodeDictionary dict = new NodeDictionary();
+        assertEquals( 0, dict.size() );
+        assertEquals( -1, dict.getId( node( "x" ) ) );
+        }
+
+    public void testIntern()
+        {
+        NodeDictionary dict = new NodeDictionary();
+        int x = dict.intern( node( "x" ) );
+        int y = dict.intern( node( "'y'" ) );
+        assertEquals( 0, x );
+        assertEquals( 1, y );
+        assertEquals( x, dict.intern( node( "x" ) ) );
+        assertEquals( y, dict.getId( node( "'y'" ) ) );
+        assertEquals( node( "x" ), dict.getNode( x ) );
+        assertEquals( 2, dict.size() );
+        }
+
+    public void testMany()
+        {
+        NodeDictionary dict = new NodeDictionary();
+        for ( int i = 0 ; i < 1000 ; i++ )
+            assertEquals( i, dict.intern( node( "n" + i ) ) );
+        for ( int i = 0 ; i < 1000 ; i++ )
+            {
+            Node n = node( "n" + i );
+            assertEquals( i, dict.getId( n ) );
+            assertEquals( n, dict.getNode( i ) );
+            }
+        assertEquals( -1, dict.getId( node( "n1000" ) ) );
+        }
+
+    public void testClear()
+        {
+        NodeDictionary dict = new NodeDictionary();
+        dict.intern( node( "x" ) );
+        dict.clear();
+        assertEquals( 0, dict.size() );
+        assertEquals( -1, dict.getId( node( "x" ) ) );
+        assertEquals( 0, dict.intern( node( "y" ) ) );
+        }
+    }
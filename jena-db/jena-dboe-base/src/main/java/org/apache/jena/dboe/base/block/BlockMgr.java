@@ -44,6 +44,12 @@ public interface BlockMgr extends Sync, Closeable /*UnitMgr<Block>*/
     /** Fetch a block, use for write and read - only inside "update" */
     public Block getWrite(long id);
 
+    /**
+     * Hint that a block will be read soon (e.g. by a sequential scan).
+     * The block is not fetched; the call may do nothing.
+     */
+    public default void prefetch(long id) {}
+
     /** Release a block, unmodified or already written. */
     public void release(Block block);
 
@@ -66,6 +66,13 @@ final public class BlockMgrFileAccess extends BlockMgrBase {
         return getBlock(id, false);
     }
 
+    @Override
+    public void prefetch(long id) {
+        if ( closed )
+            return;
+        file.prefetch(id);
+    }
+
     private Block getBlock(long id, boolean readOnly) {
         checkNotClosed();
         Block block = file.read(id);
@@ -89,6 +89,12 @@ public class BlockMgrLogger implements BlockMgr // extends BlockMgrWrapper
         return blockMgr.getWrite(id);
     }
 
+    @Override
+    public void prefetch(long id) {
+        info("prefetch(" + id + ")");
+        blockMgr.prefetch(id);
+    }
+
     @Override
     public Block promote(Block block) {
         info("promote(" + block.getId() + ")");
@@ -49,6 +49,12 @@ public class BlockMgrSync implements BlockMgr {
         return blockMgr.getWrite(id);
     }
 
+    // Not synchronized - a hint must not wait for other operations.
+    @Override
+    public void prefetch(long id) {
+        blockMgr.prefetch(id);
+    }
+
     @Override
     synchronized public Block promote(Block block) {
         return blockMgr.promote(block);
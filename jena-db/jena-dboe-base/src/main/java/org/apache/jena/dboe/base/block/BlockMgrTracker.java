@@ -151,6 +151,11 @@ public class BlockMgrTracker /* extends BlockMgrWrapper */ implements BlockMgr {
         return blockMgr.getWrite(id);
     }
 
+    @Override
+    public void prefetch(long id) {
+        blockMgr.prefetch(id);
+    }
+
     @Override
     public Block promote(Block block) {
         synchronized (this) {
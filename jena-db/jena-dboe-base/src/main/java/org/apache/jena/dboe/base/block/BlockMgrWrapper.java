@@ -51,6 +51,11 @@ public class BlockMgrWrapper implements BlockMgr {
         return blockMgr.getWrite(id);
     }
 
+    @Override
+    public void prefetch(long id) {
+        blockMgr.prefetch(id);
+    }
+
     @Override
     public Block promote(Block block) {
         return blockMgr.promote(block);
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.dboe.base.buffer;
+
+import static java.lang.String.format;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+import org.apache.jena.dboe.base.record.RecordException;
+import org.apache.jena.dboe.sys.SysDB;
+
+/**
+ * A LongBuffer with extra operations, used for the subtree counts of a counted B+Tree.
+ * Slots run in parallel with the slots of a {@link PtrBuffer}.
+ */
+
+final public class CountBuffer extends BufferBase {
+    public static final int SizeOfCount = Long.BYTES;
+
+    private LongBuffer lBuff;
+
+    private CountBuffer(int maxRec) {
+        this(ByteBuffer.allocate(SizeOfCount * maxRec), 0);
+    }
+
+    public CountBuffer(ByteBuffer bb, int num) {
+        super(bb, SizeOfCount, num);
+        lBuff = bb.asLongBuffer();
+
+        if ( CheckBuffer ) {
+            if ( lBuff.position() != 0 || bb.order() != SysDB.NetworkOrder )
+                throw new RecordException("Duff count buffer");
+        }
+    }
+
+    public long get(int idx) {
+        checkBounds(idx, numSlot);
+        return _get(idx);
+    }
+
+    public void add(long val) {
+        add(numSlot, val);
+    }
+
+    public void add(int idx, long val) {
+        if ( idx != numSlot ) {
+            checkBounds(idx, numSlot);
+            shiftUp(idx);
+        } else {
+            if ( numSlot >= maxSlot )
+                throw new BufferException(format("Out of bounds: idx=%d, counts=%d", idx, maxSlot));
+            numSlot++;
+        }
+        _set(idx, val);
+    }
+
+    public void set(int idx, long val) {
+        checkBounds(idx, numSlot);
+        _set(idx, val);
+    }
+
+    /** Add {@code delta} to the count at {@code idx} */
+    public void adjust(int idx, long delta) {
+        checkBounds(idx, numSlot);
+        _set(idx, _get(idx) + delta);
+    }
+
+    /** Sum of the counts in slots [0, idx) */
+    public long sum(int idx) {
+        long x = 0;
+        for ( int i = 0; i < idx ; i++ )
+            x += _get(i);
+        return x;
+    }
+
+    /** Sum of all the counts */
+    public long sum() {
+        return sum(numSlot);
+    }
+
+    private final long _get(int idx) {
+        return lBuff.get(idx);
+    }
+
+    private final void _set(int idx, long val) {
+        lBuff.put(idx, val);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        str.append(format("Len=%d Max=%d ", numSlot, maxSlot));
+
+        for ( int i = 0; i < numSlot ; i++ ) {
+            if ( i != 0 )
+                str.append(" ");
+            str.append(_get(i));
+        }
+        return str.toString();
+    }
+
+    private static void checkBounds(int idx, int len) {
+        if ( idx < 0 || idx >= len )
+            throw new BufferException(format("Out of bounds: idx=%d, counts=%d", idx, len));
+    }
+
+    /**
+     * A duplicate which does not share anything with the original - for testing
+     */
+    public CountBuffer duplicate() {
+        CountBuffer n = new CountBuffer(maxSlot);
+        copy(0, n, 0, maxSlot);
+        n.numSlot = numSlot;
+        return n;
+    }
+}
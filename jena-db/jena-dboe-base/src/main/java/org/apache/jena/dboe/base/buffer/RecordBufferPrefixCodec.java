@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.buffer;
+
+import static java.lang.String.format;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Prefix (front) compression of the sorted records of a {@link RecordBuffer}.
+ * <p>
+ * Each record is written as one unsigned byte giving the number of leading bytes
+ * it shares with the previous record, followed by the remaining bytes of the record.
+ * The first record shares nothing and is written in full.
+ * <p>
+ * Records of a B+Tree index in SPO or GSPO order have long common prefixes
+ * (same subject, same subject and predicate) so the encoded form is usually
+ * several times smaller than the fixed length layout.
+ */
+public final class RecordBufferPrefixCodec {
+    private RecordBufferPrefixCodec() {}
+
+    /** Longest record that can be encoded (the prefix length is one byte). */
+    public static final int MaxRecordLength = 255;
+
+    /**
+     * The most the encoded length of a buffer can grow by when one record
+     * is inserted or replaced. The record itself, and the record after it,
+     * can each become written in full.
+     */
+    public static int maxGrowth(int recordLength) {
+        return 2 * (recordLength + 1);
+    }
+
+    /** The number of bytes needed to encode the records of {@code rBuff}. */
+    public static int encodedLength(RecordBuffer rBuff) {
+        int slotLen = rBuff.slotLen;
+        int n = rBuff.numSlot;
+        if ( n == 0 )
+            return 0;
+        ByteBuffer bb = rBuff.bb;
+        int len = 1 + slotLen;
+        for ( int i = 1; i < n ; i++ )
+            len += 1 + slotLen - commonPrefix(bb, (i - 1) * slotLen, i * slotLen, slotLen);
+        return len;
+    }
+
+    /**
+     * Encode the records of {@code rBuff} into {@code dst}, starting at byte offset
+     * {@code start} and not going beyond {@code limit}. Return the offset after the last
+     * byte written.
+     */
+    public static int encode(RecordBuffer rBuff, ByteBuffer dst, int start, int limit) {
+        int slotLen = rBuff.slotLen;
+        int n = rBuff.numSlot;
+        ByteBuffer bb = rBuff.bb;
+        int posn = start;
+        for ( int i = 0; i < n ; i++ ) {
+            int x = i * slotLen;
+            int prefix = ( i == 0 ) ? 0 : commonPrefix(bb, x - slotLen, x, slotLen);
+            int suffix = slotLen - prefix;
+            if ( posn + 1 + suffix > limit )
+                throw new BufferException(format("Encoded records overflow: record %d of %d, limit=%d", i, n, limit - start));
+            dst.put(posn++, (byte)prefix);
+            for ( int j = prefix; j < slotLen ; j++ )
+                dst.put(posn++, bb.get(x + j));
+        }
+        return posn;
+    }
+
+    /**
+     * Decode {@code count} records from {@code src}, starting at byte offset
+     * {@code start}, into {@code rBuff}, replacing its contents.
+     */
+    public static void decode(ByteBuffer src, int start, int count, RecordBuffer rBuff) {
+        int slotLen = rBuff.slotLen;
+        if ( count > rBuff.maxSlot )
+            throw new BufferException(format("Decoded records overflow: count=%d, max=%d", count, rBuff.maxSlot));
+        ByteBuffer bb = rBuff.bb;
+        int posn = start;
+        for ( int i = 0; i < count ; i++ ) {
+            int x = i * slotLen;
+            int prefix = src.get(posn++) & 0xFF;
+            if ( prefix > slotLen || ( i == 0 && prefix != 0 ) )
+                throw new BufferException(format("Bad prefix length: record %d, prefix=%d", i, prefix));
+            for ( int j = 0; j < prefix ; j++ )
+                bb.put(x + j, bb.get(x - slotLen + j));
+            for ( int j = prefix; j < slotLen ; j++ )
+                bb.put(x + j, src.get(posn++));
+        }
+        rBuff.numSlot = count;
+    }
+
+    private static int commonPrefix(ByteBuffer bb, int idx1, int idx2, int len) {
+        for ( int i = 0; i < len ; i++ ) {
+            if ( bb.get(idx1 + i) != bb.get(idx2 + i) )
+                return i;
+        }
+        return len;
+    }
+}
@@ -40,6 +40,13 @@ public interface BlockAccess extends Sync, Closeable
 
     public Block read(long id);
 
+    /**
+     * Hint that the block will be read soon. This may start bringing the block
+     * into memory in the background. It does not change the state of the
+     * BlockAccess and may do nothing.
+     */
+    public default void prefetch(long id) {}
+
     public void write(Block block);
 
     public void overwrite(Block block);
@@ -93,6 +93,14 @@ public class BlockAccessMapped extends BlockAccessBase
         return block;
     }
 
+    @Override
+    public void prefetch(long id) {
+        if ( isClosed() || id < 0 || id >= numFileBlocks )
+            return;
+        // getByteBuffer is cheap (a slice, no I/O); the OS pages are touched in the background.
+        MappedPrefetch.touch(getByteBuffer(id));
+    }
+
     @Override
     public void write(Block block) {
         write(block, CopyContents.NoCopy);
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.dboe.base.file;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.dboe.sys.SystemIndex;
+
+/**
+ * Bring memory mapped blocks into memory in the background by touching each OS page
+ * of the block. One daemon thread does the work for all files. When more than
+ * {@link SystemIndex#PrefetchQueueSize} requests are outstanding, new requests are dropped;
+ * a prefetch is only a hint.
+ */
+class MappedPrefetch {
+    private static final int OSPageSize = 4096;
+
+    private static final ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                               new ArrayBlockingQueue<>(SystemIndex.PrefetchQueueSize),
+                               r -> {
+                                   Thread thread = new Thread(r, "BlockPrefetch");
+                                   thread.setDaemon(true);
+                                   return thread;
+                               },
+                               new ThreadPoolExecutor.DiscardPolicy());
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Written so that the reads are not optimized away.
+    private static volatile byte sink;
+
+    /** Touch the bytes of {@code bb} asynchronously. The buffer is not modified, including position and limit. */
+    static void touch(ByteBuffer bb) {
+        executor.execute(() -> touchNow(bb));
+    }
+
+    private static void touchNow(ByteBuffer bb) {
+        try {
+            byte x = 0;
+            int len = bb.capacity();
+            for ( int i = 0; i < len ; i += OSPageSize )
+                x ^= bb.get(i);
+            if ( len > 0 )
+                x ^= bb.get(len-1);
+            sink = x;
+        } catch (RuntimeException | InternalError ex) {
+            // File closed or truncated - the real read will report any problem.
+        }
+    }
+}
@@ -18,14 +18,27 @@
 
 package org.apache.jena.dboe.base.recordbuffer;
 
+import java.nio.ByteBuffer;
+
 import org.apache.jena.dboe.base.block.Block;
+import org.apache.jena.dboe.base.buffer.RecordBuffer;
+import org.apache.jena.dboe.base.buffer.RecordBufferPrefixCodec;
 import org.apache.jena.dboe.base.page.Page;
+import org.apache.jena.dboe.base.record.RecordException;
 import org.apache.jena.dboe.base.record.RecordFactory;
 import org.apache.jena.dboe.sys.SysDB;
+import org.apache.jena.dboe.sys.SystemIndex;
 
 /**
  * B+Tree records nodes and hash buckets.
  * Add link field to a RecordBufferPageBase
+ * <p>
+ * A page may be prefix compressed. The block then holds the records
+ * encoded by {@link RecordBufferPrefixCodec} and the page works on a decoded copy
+ * which is encoded back into the block when the page is written.
+ * A compressed page holds up to {@link SystemIndex#CompressedRecordsExpansion} times
+ * as many records as an uncompressed one; it is full when either the record
+ * count or the encoded bytes reach the limit.
  */
 
 public final class RecordBufferPage extends RecordBufferPageBase
@@ -40,8 +53,11 @@ public final class RecordBufferPage extends RecordBufferPageBase
     // Adds this field over RecordBufferPageBase
     final public static int LINK            = 4;
     final private static int FIELD_LENGTH   = SysDB.SizeOfInt; // Length of the space needed here (not count)
+    // Start of the records: count and link.
+    final private static int HEADER_LENGTH  = LINK + FIELD_LENGTH;
 
     private int link = Page.NO_ID;
+    private final boolean compressed;
 
     public final int getLink() { return link; }
 
@@ -50,8 +66,47 @@ public final class RecordBufferPage extends RecordBufferPageBase
         getBackingBlock().getByteBuffer().putInt(LINK, link);
     }
 
+    /** Whether the records are prefix compressed in the block. */
+    public final boolean isCompressed() { return compressed; }
+
+    /** Test whether this page has no space for another record. */
+    public boolean isFull() {
+        if ( recBuff.isFull() )
+            return true;
+        if ( !compressed )
+            return false;
+        int x = RecordBufferPrefixCodec.encodedLength(recBuff);
+        return x + RecordBufferPrefixCodec.maxGrowth(recBuff.slotLen()) > dataLength(getBackingBlock());
+    }
+
+    /**
+     * Test whether this page is at, or below, half full. Two such pages can be merged.
+     */
+    public boolean isMinSize() {
+        // If of max length 5 (i.e. odd), min size is 2. Integer division works.
+        if ( recBuff.size() > recBuff.maxSize() / 2 )
+            return false;
+        if ( !compressed )
+            return true;
+        return RecordBufferPrefixCodec.encodedLength(recBuff) <= dataLength(getBackingBlock()) / 2;
+    }
+
+    /** Write the records into the block, if compressed. Uncompressed pages are always up to date. */
+    void encode() {
+        if ( !compressed )
+            return;
+        Block block = getBackingBlock();
+        ByteBuffer bb = block.getByteBuffer();
+        RecordBufferPrefixCodec.encode(recBuff, bb, HEADER_LENGTH, HEADER_LENGTH + dataLength(block));
+    }
+
     @Override
     protected void _reset(Block block) {
+        if ( compressed ) {
+            // Reload from the (copied) block.
+            recBuff = decode(block, getRecordFactory(), this.getCount());
+            return;
+        }
         // TODO -- should this be format?
         // Print this
         super.rebuild(block, this.getCount());
@@ -66,6 +121,10 @@ public final class RecordBufferPage extends RecordBufferPageBase
     public static int calcBlockSize(RecordFactory factory, int maxRec)
     { return RecordBufferPageBase.calcBlockSize(factory, maxRec, FIELD_LENGTH); }
 
+    /** The maximum number of records in a prefix compressed page of block size {@code blkSize}. */
+    public static int calcCompressedRecordSize(RecordFactory factory, int blkSize)
+    { return SystemIndex.CompressedRecordsExpansion * calcRecordSize(factory, blkSize); }
+
     /** The construction methods */
     public static RecordBufferPage createBlank(Block block,RecordFactory factory) {
         int count = 0;
@@ -79,9 +138,52 @@ public final class RecordBufferPage extends RecordBufferPageBase
         return new RecordBufferPage(block, factory, count, linkId);
     }
 
+    public static RecordBufferPage createBlank(Block block, RecordFactory factory, boolean compressed) {
+        if ( !compressed )
+            return createBlank(block, factory);
+        RecordBuffer rb = new RecordBuffer(factory, maxCompressedRecords(block, factory));
+        return new RecordBufferPage(block, factory, rb, NO_ID);
+    }
+
+    public static RecordBufferPage format(Block block, RecordFactory factory, boolean compressed) {
+        if ( !compressed )
+            return format(block, factory);
+        int count = block.getByteBuffer().getInt(COUNT);
+        int linkId = block.getByteBuffer().getInt(LINK);
+        RecordBuffer rb = decode(block, factory, count);
+        return new RecordBufferPage(block, factory, rb, linkId);
+    }
+
     private RecordBufferPage(Block block, RecordFactory factory, int count, int linkId) {
         super(block, FIELD_LENGTH, factory, count);
         this.link = linkId;
+        this.compressed = false;
+    }
+
+    private RecordBufferPage(Block block, RecordFactory factory, RecordBuffer recBuff, int linkId) {
+        super(block, FIELD_LENGTH, factory, recBuff);
+        this.link = linkId;
+        this.compressed = true;
+    }
+
+    private static RecordBuffer decode(Block block, RecordFactory factory, int count) {
+        RecordBuffer rb = new RecordBuffer(factory, maxCompressedRecords(block, factory));
+        RecordBufferPrefixCodec.decode(block.getByteBuffer(), HEADER_LENGTH, count, rb);
+        return rb;
+    }
+
+    private static int maxCompressedRecords(Block block, RecordFactory factory) {
+        int recordLength = factory.recordLength();
+        if ( recordLength > RecordBufferPrefixCodec.MaxRecordLength )
+            throw new RecordException("Record too long for compression: "+recordLength);
+        // At least two records must fit with space to insert another so that a full page can be split.
+        if ( dataLength(block) < 2 * RecordBufferPrefixCodec.maxGrowth(recordLength) )
+            throw new RecordException("Block too small for compressed records: "+block.getByteBuffer().capacity());
+        return calcCompressedRecordSize(factory, block.getByteBuffer().capacity());
+    }
+
+    private static int dataLength(Block block) {
+        return block.getByteBuffer().capacity() - HEADER_LENGTH;
     }
 
     @Override
@@ -70,6 +70,21 @@ public abstract class RecordBufferPageBase extends PageBase // implements Page
         rebuild(block, count);
     }
 
+    /**
+     * Use a RecordBuffer that is not a view of the block.
+     * The subclass is responsible for moving records between the block and the buffer.
+     */
+    protected RecordBufferPageBase(Block block, int offset, RecordFactory factory, RecordBuffer recBuff) {
+        super(block);
+        this.headerLength = FIELD_LENGTH + offset;
+        this.factory = factory;
+        this.recBuff = recBuff;
+    }
+
+    protected final RecordFactory getRecordFactory() {
+        return factory;
+    }
+
     protected void rebuild(Block block, int count) {
         ByteBuffer bb = block.getByteBuffer();
         bb.clear();
@@ -64,6 +64,7 @@ public class Names
     /* Node files */
     public static final String extBdfState              = "bdf";           // Node state
     public static final String extObjNodeData           = "obj";
+    public static final String extNodeBloom             = "bloom";         // Node table filter
     public static final String nodeTableBaseName        = "nodes";         // Node table
 
     /** Prefixes file */
@@ -75,6 +76,10 @@ public class Names
     public static final String optNone                  = "none.opt";
     public static final String optDefault               = optFixed;
 
+    /** Incremental statistics (TDB2) */
+    public static final String statsBaseName            = "stats";
+    public static final String extStats                 = "dat";
+
     public static final String extMeta                  = "info";
     public static final String directoryMetafile        = "this";          // Root name of the directory for a metafile.
 
@@ -43,6 +43,15 @@ public class SystemIndex
 //    /** Size, in bytes, of a memory block */
 //    public static final int BlockSizeMem            = 32*8; //intValue("BlockSizeMem", 32*8 ) ;
 
+    /**
+     * Maximum number of records in a prefix compressed records block,
+     * as a multiple of the number of uncompressed records that fit in the block.
+     */
+    public static final int CompressedRecordsExpansion = 4;
+
+    /** Maximum number of outstanding background block prefetch requests (memory mapped files) */
+    public static final int PrefetchQueueSize       = 1024;
+
     /** Order of an in-memory BTree or B+Tree */
     public static final int OrderMem                = 5; // intValue("OrderMem", 5) ;
 
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.buffer;
+
+import static org.apache.jena.dboe.test.RecordLib.intToRecord;
+
+import java.nio.ByteBuffer;
+
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.test.RecordLib;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRecordBufferPrefixCodec extends Assert
+{
+    static RecordFactory recordFactory = new RecordFactory(RecordLib.TestRecordLength, 0);
+
+    @Test public void prefixCodec01() {
+        RecordBuffer rb = make();
+        assertEquals(0, RecordBufferPrefixCodec.encodedLength(rb));
+        roundTrip(rb);
+    }
+
+    @Test public void prefixCodec02() {
+        RecordBuffer rb = make(1, 2, 3, 4);
+        // First record in full, then only the last byte of each.
+        assertEquals(1+4 + 3*(1+1), RecordBufferPrefixCodec.encodedLength(rb));
+        roundTrip(rb);
+    }
+
+    @Test public void prefixCodec03() {
+        RecordBuffer rb = make(0x01020304, 0x01020305, 0x01030000, 0x7F000000);
+        assertEquals((1+4) + (1+1) + (1+3) + (1+4), RecordBufferPrefixCodec.encodedLength(rb));
+        roundTrip(rb);
+    }
+
+    @Test public void prefixCodec04() {
+        RecordBuffer rb = make(10, 20, 30);
+        ByteBuffer bb = ByteBuffer.allocate(100);
+        int x = RecordBufferPrefixCodec.encode(rb, bb, 10, 100);
+        assertEquals(10+RecordBufferPrefixCodec.encodedLength(rb), x);
+    }
+
+    @Test(expected=BufferException.class)
+    public void prefixCodec05() {
+        RecordBuffer rb = make(1, 2, 3, 4);
+        ByteBuffer bb = ByteBuffer.allocate(100);
+        RecordBufferPrefixCodec.encode(rb, bb, 0, RecordBufferPrefixCodec.encodedLength(rb)-1);
+    }
+
+    private static void roundTrip(RecordBuffer rb) {
+        int len = RecordBufferPrefixCodec.encodedLength(rb);
+        ByteBuffer bb = ByteBuffer.allocate(len+8);
+        int x = RecordBufferPrefixCodec.encode(rb, bb, 8, len+8);
+        assertEquals(len+8, x);
+        RecordBuffer rb2 = new RecordBuffer(recordFactory, 10);
+        RecordBufferPrefixCodec.decode(bb, 8, rb.size(), rb2);
+        assertEquals(rb.size(), rb2.size());
+        for ( int i = 0; i < rb.size() ; i++ )
+            assertEquals(rb.get(i), rb2.get(i));
+    }
+
+    private static RecordBuffer make(int... vals) {
+        RecordBuffer rb = new RecordBuffer(recordFactory, 10);
+        for ( int v : vals )
+            rb.add(intToRecord(v));
+        return rb;
+    }
+}
@@ -19,7 +19,9 @@
 package org.apache.jena.dboe.index;
 
 import java.util.Iterator;
+import java.util.List;
 
+import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordMapper;
 
@@ -35,4 +37,38 @@ public interface RangeIndex extends Index
 
     /** Return the record containing the greatest key - may or may not have the associated value */
     public Record maxKey();
+
+    /**
+     * Return the number of records between min (inclusive) and max (exclusive), based on the record keys.
+     * A null bound means no bound. This iterates over the records unless the index {@link #isCounted is counted}.
+     */
+    public default long count(Record recordMin, Record recordMax) {
+        return Iter.count(iterator(recordMin, recordMax));
+    }
+
+    /**
+     * Return records between min (inclusive) and max (exclusive), based on the record keys,
+     * starting after the first {@code skip} of them.
+     * This steps over the skipped records unless the index {@link #isCounted is counted}.
+     */
+    public default Iterator<Record> iterator(Record recordMin, Record recordMax, long skip) {
+        return Iter.skip(iterator(recordMin, recordMax), skip);
+    }
+
+    /**
+     * Whether the index keeps counts so that {@link #size}, {@link #count(Record, Record)}
+     * and skipping records do not need to touch every record.
+     */
+    public default boolean isCounted() {
+        return false;
+    }
+
+    /**
+     * Return up to {@code n-1} keys, in order, that divide the index into about {@code n}
+     * ranges with similar numbers of records, for example so that the ranges can be processed in parallel.
+     * The default is no keys, that is, one range.
+     */
+    public default List<Record> splitKeys(int n) {
+        return List.of();
+    }
 }
@@ -19,6 +19,7 @@
 package org.apache.jena.dboe.index;
 
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordFactory;
@@ -73,6 +74,22 @@ public class RangeIndexWrapper implements RangeIndex
     public <X> Iterator<X> iterator(Record minRec, Record maxRec, RecordMapper<X> mapper)
     { return rIndex.iterator(minRec, maxRec, mapper); }
 
+    @Override
+    public Iterator<Record> iterator(Record minRec, Record maxRec, long skip)
+    { return rIndex.iterator(minRec, maxRec, skip); }
+
+    @Override
+    public long count(Record minRec, Record maxRec)
+    { return rIndex.count(minRec, maxRec); }
+
+    @Override
+    public boolean isCounted()
+    { return rIndex.isCounted(); }
+
+    @Override
+    public List<Record> splitKeys(int n)
+    { return rIndex.splitKeys(n); }
+
     @Override
     public boolean isEmpty()
     { return rIndex.isEmpty(); }
@@ -54,6 +54,13 @@ public final class BPT {
         CheckingNode = onOrOff;
     }
 
+    /** Prefetch records blocks ahead of a range scan once the scan moves past its first records block. */
+    public static boolean ReadAhead                 = true;
+    /** Number of records blocks to prefetch ahead of a range scan. */
+    public static int ReadAheadWindow               = 8;
+    /** Maximum number of records blocks prefetched for one range scan. */
+    public static int ReadAheadBudget               = 1024;
+
     /** Dump before and after top level update operations **/
     public static boolean DumpTree = false;
 
@@ -26,11 +26,13 @@ import static org.apache.jena.dboe.trans.bplustree.BPT.*;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.apache.jena.atlas.io.IndentedLineBuffer;
 import org.apache.jena.atlas.io.IndentedWriter;
 import org.apache.jena.dboe.base.block.Block;
 import org.apache.jena.dboe.base.block.BlockMgr;
+import org.apache.jena.dboe.base.buffer.CountBuffer;
 import org.apache.jena.dboe.base.buffer.PtrBuffer;
 import org.apache.jena.dboe.base.buffer.RecordBuffer;
 import org.apache.jena.dboe.base.page.PageBlockMgr;
@@ -67,6 +69,11 @@ public final class BPTreeNode extends BPTreePage
     /*package*/ PtrBuffer ptrs;
     /*package*/ void setPtrBuffer(PtrBuffer pb) { ptrs = pb; }
 
+    // Counted B+Trees: the number of records below each pointer, slot for slot
+    // with the pointers. Null if the B+Tree is not counted.
+    /*package*/ CountBuffer counts;
+    /*package*/ void setCountBuffer(CountBuffer cb) { counts = cb; }
+
     /* B+Tree
      *
      * Two block managers :
@@ -201,6 +208,7 @@ public final class BPTreeNode extends BPTreePage
         AccessPath path = new AccessPath(root);
         // Root ready - call insert proper.
         Record result = root.internalInsert(path, record);
+        // Subtree counts are adjusted on the way back up.
 
         root.internalCheckNodeDeep();
 
@@ -232,8 +240,11 @@ public final class BPTreeNode extends BPTreePage
             trackPath(path, root, 0, page);
             Record r = page.internalDelete(path, rec);
             page.release();
-            if ( r != null )
+            if ( r != null ) {
+                if ( root.counts != null )
+                    root.counts.adjust(0, -1);
                 root.write();
+            }
             if ( BPT.DumpTree )
                 root.dump();
             return r;
@@ -263,6 +274,15 @@ public final class BPTreeNode extends BPTreePage
      * @return Iterator&lt;BPTreePage&gt;
      */
     Iterator<BPTreePage> iterator(Record minRec, Record maxRec) {
+        return iterator(minRec, maxRec, null);
+    }
+
+    /**
+     * Iterator over the child pages that may contain records in [minRec, maxRec).
+     * Child pages are fetched as the iterator reaches them. If {@code readAhead} is not null,
+     * records blocks beyond the current one are prefetched as the iterator moves on.
+     */
+    Iterator<BPTreePage> iterator(Record minRec, Record maxRec, BPTreeReadAhead readAhead) {
         if ( minRec != null && maxRec != null && Record.keyGE(minRec, maxRec) )
             return null;//throw new IllegalArgumentException("minRec >= maxRec: "+minRec+" >= "+maxRec ) ;
 
@@ -287,14 +307,43 @@ public final class BPTreeNode extends BPTreePage
         // Pages from pointer slots x1 to x2 (inc because while we exclude maxRec,
         // keys are only a max of the subtree they mark out.
 
-        // XXX Just grab them now - later, keep indexes and fetch on next().
         // XXX Epoch tracking
+        return new PageIterator(this, x1, x2, readAhead);
+    }
+
+    /** Iterator over the child pages in slots [idx, limit] of a node. */
+    private static class PageIterator implements Iterator<BPTreePage> {
+        private final BPTreeNode node;
+        private final BPTreeReadAhead readAhead;
+        private final int limit;
+        private int idx;
+
+        PageIterator(BPTreeNode node, int idx, int limit, BPTreeReadAhead readAhead) {
+            this.node = node;
+            this.idx = idx;
+            this.limit = limit;
+            this.readAhead = node.isLeaf ? readAhead : null;
+        }
 
-        List<BPTreePage> x = new ArrayList<>(x2-x1+1);
-        for ( int i = x1; i <= x2 ; i++ )
-            x.add(get(i));
+        @Override
+        public boolean hasNext() {
+            return idx <= limit;
+        }
 
-        return x.iterator();
+        @Override
+        public BPTreePage next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException();
+            int i = idx++;
+            if ( readAhead != null )
+                readAhead.step(node, i, limit);
+            node.bpTree.startReadBlkMgr();
+            try {
+                return node.get(i);
+            } finally {
+                node.bpTree.finishReadBlkMgr();
+            }
+        }
     }
 
 //    // OUT OF DATE WITH MVCC
@@ -341,6 +390,168 @@ public final class BPTreeNode extends BPTreePage
         return root.internalMaxRecord(path);
     }
 
+    // ---------- Counted B+Trees
+
+    /** The number of records in the tree. Counted B+Trees only. */
+    final static long size(BPTreeNode root) {
+        return root.counts.sum();
+    }
+
+    /**
+     * The number of records in the tree with keys less than the key of {@code rec}.
+     * Counted B+Trees only.
+     */
+    final static long rank(BPTreeNode root, Record rec) {
+        long rank = 0;
+        BPTreeNode node = root;
+        for (;;) {
+            int idx = apply(node.findSlot(rec));
+            rank += node.counts.sum(idx);
+            BPTreePage page = node.get(idx);
+            if ( node != root )
+                node.release();
+            if ( page instanceof BPTreeNode ) {
+                node = (BPTreeNode)page;
+                continue;
+            }
+            // Records block. Position of the record, or the insertion point.
+            int x = ((BPTreeRecords)page).getRecordBuffer().find(rec);
+            page.release();
+            return rank + apply(x);
+        }
+    }
+
+    /**
+     * The record with the given rank (counting from zero, in key order),
+     * or null if there are not that many records. Counted B+Trees only.
+     */
+    final static Record select(BPTreeNode root, long rank) {
+        if ( rank < 0 || rank >= size(root) )
+            return null;
+        BPTreeNode node = root;
+        for (;;) {
+            // Find the subtree holding the record.
+            int idx = 0;
+            for ( ; idx < node.count ; idx++ ) {
+                long c = node.counts.get(idx);
+                if ( rank < c )
+                    break;
+                rank -= c;
+            }
+            BPTreePage page = node.get(idx);
+            if ( node != root )
+                node.release();
+            if ( page instanceof BPTreeNode ) {
+                node = (BPTreeNode)page;
+                continue;
+            }
+            BPTreeRecords records = (BPTreeRecords)page;
+            Record r = ( rank < records.getCount() ) ? records.get((int)rank) : null;
+            page.release();
+            return r;
+        }
+    }
+
+    /**
+     * Up to {@code n-1} keys, in order, that divide the tree into about {@code n} ranges.
+     * In a counted B+Tree, the ranges have the same number of records. Otherwise, the keys
+     * are taken from the branch nodes, going down from the root until there are enough
+     * keys, so the ranges are of similar size as far as the tree is balanced.
+     */
+    final static List<Record> splitKeys(BPTreeNode root, int n) {
+        List<Record> keys = new ArrayList<>();
+        if ( n <= 1 )
+            return keys;
+        if ( root.bpTree.isCounted() ) {
+            long size = size(root);
+            Record prev = null;
+            for ( int i = 1 ; i < n ; i++ ) {
+                Record r = select(root, (size*i)/n);
+                if ( r == null )
+                    break;
+                if ( prev == null || keyGT(r, prev) ) {
+                    r = root.keyRecord(r);
+                    keys.add(r);
+                    prev = r;
+                }
+            }
+            return keys;
+        }
+        // Breadth-first, one level at a time. The keys of each level, in order,
+        // are the keys of its nodes with the keys of the levels above between them.
+        List<BPTreeNode> level = List.of(root);
+        List<Record> levelKeys = nodeKeys(root);
+        while ( levelKeys.size() < n-1 && ! level.get(0).isLeaf ) {
+            List<BPTreeNode> nextLevel = new ArrayList<>();
+            List<Record> nextKeys = new ArrayList<>();
+            int k = 0;
+            for ( BPTreeNode node : level ) {
+                for ( int i = 0 ; i <= node.count ; i++ ) {
+                    BPTreeNode child = (BPTreeNode)node.get(i);
+                    nextLevel.add(child);
+                    nextKeys.addAll(nodeKeys(child));
+                    // Key between this child and the next, if any.
+                    if ( k < levelKeys.size() )
+                        nextKeys.add(levelKeys.get(k++));
+                }
+            }
+            for ( BPTreeNode node : level ) {
+                if ( node != root )
+                    node.release();
+            }
+            level = nextLevel;
+            levelKeys = nextKeys;
+        }
+        for ( BPTreeNode node : level ) {
+            if ( node != root )
+                node.release();
+        }
+        int x = levelKeys.size();
+        if ( x <= n-1 )
+            return levelKeys;
+        // Evenly spaced keys.
+        for ( int i = 1 ; i < n ; i++ )
+            keys.add(levelKeys.get((int)(((long)x*i)/n)));
+        return keys;
+    }
+
+    private static List<Record> nodeKeys(BPTreeNode node) {
+        List<Record> keys = new ArrayList<>(node.count);
+        for ( int i = 0 ; i < node.count ; i++ )
+            keys.add(node.keyRecord(node.records.get(i)));
+        return keys;
+    }
+
+    /**
+     * Set the subtree counts of a tree that has been built directly, not by
+     * inserting records (see {@code BPlusTreeRewriter}). Counted B+Trees only.
+     * Returns the number of records in the tree.
+     */
+    public static long recount(BPTreeNode root) {
+        return root.recount();
+    }
+
+    private long recount() {
+        counts.setSize(count + 1);
+        long total = 0;
+        for ( int i = 0; i < count + 1 ; i++ ) {
+            long n;
+            if ( isLeaf ) {
+                BPTreePage page = get(i);
+                n = page.getCount();
+                page.release();
+            } else {
+                BPTreeNode node = bpTree.getNodeManager().getWrite(ptrs.get(i), id);
+                n = node.recount();
+                bpTree.getNodeManager().release(node);
+            }
+            counts.set(i, n);
+            total += n;
+        }
+        write();
+        return total;
+    }
+
     @Override
     protected Record internalMaxRecord(AccessPath path) {
         BPTreePage page = get(count);
@@ -520,6 +731,11 @@ public final class BPTreeNode extends BPTreePage
         }
 
         Record r = page.internalInsert(path, record);
+        if ( r == null && counts != null ) {
+            // New record. The path has been promoted by the insert.
+            counts.adjust(idx, 1);
+            this.write();
+        }
         page.release();
         return r;
     }
@@ -578,6 +794,10 @@ public final class BPTreeNode extends BPTreePage
         // Insert new node. "add" shuffle's up as well.
         records.add(idx, splitKey);
         ptrs.add(idx + 1, z.getId());
+        if ( counts != null ) {
+            counts.set(idx, subtreeSize(y));
+            counts.add(idx + 1, subtreeSize(z));
+        }
         count++;
 
         if ( logging(log) ) {
@@ -628,6 +848,12 @@ public final class BPTreeNode extends BPTreePage
         ptrs.clear(ix + 1, params.MaxPtr - (ix + 1));
         ptrs.setSize(ix + 1);
 
+        if ( counts != null ) {
+            counts.copy(ix + 1, z.counts, 0, params.MaxPtr - (ix + 1));
+            counts.clear(ix + 1, params.MaxPtr - (ix + 1));
+            counts.setSize(ix + 1);
+        }
+
         // Set sizes of subnodes
         setCount(ix); // Median is ix
         internalCheckNode(); // y finished
@@ -680,11 +906,15 @@ public final class BPTreeNode extends BPTreePage
         // New left
         root.records.copy(0, left.records, 0, splitIdx);
         root.ptrs.copy(0, left.ptrs, 0, splitIdx + 1);
+        if ( root.counts != null )
+            root.counts.copy(0, left.counts, 0, splitIdx + 1);
         left.count = splitIdx;
 
         // New right
         root.records.copy(splitIdx + 1, right.records, 0, root.maxRecords() - (splitIdx + 1));
         root.ptrs.copy(splitIdx + 1, right.ptrs, 0, root.params.MaxPtr - (splitIdx + 1));
+        if ( root.counts != null )
+            root.counts.copy(splitIdx + 1, right.counts, 0, root.params.MaxPtr - (splitIdx + 1));
         right.count = root.maxRecords() - (splitIdx + 1);
 
         if ( logging(log) ) {
@@ -706,6 +936,11 @@ public final class BPTreeNode extends BPTreePage
         root.ptrs.setSize(2);
         root.ptrs.set(0, left.getId()); // slot 0
         root.ptrs.set(1, right.getId()); // slot 1
+        if ( root.counts != null ) {
+            root.counts.setSize(2);
+            root.counts.set(0, left.counts.sum());
+            root.counts.set(1, right.counts.sum());
+        }
 
         if ( logging(log) ) {
             log(log, "splitRoot <<   %s", root);
@@ -770,6 +1005,10 @@ public final class BPTreeNode extends BPTreePage
         // Go to bottom
         // Need to return the deleted key/value.
         Record r2 = page.internalDelete(path, rec);
+        if ( r2 != null && counts != null ) {
+            counts.adjust(y, -1);
+            this.write();
+        }
         if ( x >= 0 ) {
             // And hence r2 != null.
             // The deleted key was in the tree as well as the records.
@@ -818,6 +1057,8 @@ public final class BPTreeNode extends BPTreePage
         BPTreeNodeMgr.formatForRoot(root, n.isLeaf);
         n.records.copy(0, root.records, 0, n.count);
         n.ptrs.copy(0, root.ptrs, 0, n.count + 1);
+        if ( root.counts != null )
+            n.counts.copy(0, root.counts, 0, n.count + 1);
         root.isLeaf = n.isLeaf;
         root.count = n.count;
         root.write();
@@ -954,6 +1195,7 @@ public final class BPTreeNode extends BPTreePage
         // /==\ + key + /==\ ==> /====\
         Record splitKey = records.get(dividingSlot);
         BPTreePage page = left.merge(right, splitKey);
+        long leftSize = ( counts != null ) ? subtreeSize(left) : 0;
         // Must release right (not done in merge)
         if ( logging(log) )
             log(log, "-- merge: %s", page);
@@ -971,7 +1213,9 @@ public final class BPTreeNode extends BPTreePage
                 // (it's already there, with its value).
                 // Size is N+N and max could be odd so N+N and N+N+1 are
                 // possible.
-                if ( left.getCount() + 1 != left.getMaxSize() && left.getCount() != left.getMaxSize() )
+                // Compressed data blocks merge on space used, not the count.
+                if ( !((BPTreeRecords)left).isCompressed()
+                     && left.getCount() + 1 != left.getMaxSize() && left.getCount() != left.getMaxSize() )
                     BPT.error("Inconsistent data node size: %d/%d", left.getCount(), left.getMaxSize());
             } else if ( !left.isFull() ) {
                 // If not two data blocks, the left side should now be full
@@ -982,6 +1226,8 @@ public final class BPTreeNode extends BPTreePage
 
         // Remove from parent (which is "this")
         shuffleDown(dividingSlot);
+        if ( counts != null )
+            counts.set(dividingSlot, leftSize);
         this.write();
         internalCheckNodeDeep();
         if ( logging(log) ) {
@@ -1006,6 +1252,8 @@ public final class BPTreeNode extends BPTreePage
         // Copy over right to top of left.
         right.records.copyToTop(left.records);
         right.ptrs.copyToTop(left.ptrs);
+        if ( left.counts != null )
+            right.counts.copyToTop(left.counts);
 
         // Update count
         left.count = left.count + right.count + 1;
@@ -1013,6 +1261,8 @@ public final class BPTreeNode extends BPTreePage
 
         right.records.clear();
         right.ptrs.clear();
+        if ( right.counts != null )
+            right.counts.clear();
         return left;
     }
 
@@ -1026,6 +1276,7 @@ public final class BPTreeNode extends BPTreePage
         Record r2 = left.shiftRight(right, r1);
         r2 = keyRecord(r2);
         this.records.set(i, r2);
+        setSubtreeSizes(left, right, i);
 
         left.write();
         right.write();
@@ -1047,6 +1298,7 @@ public final class BPTreeNode extends BPTreePage
         Record r2 = left.shiftLeft(right, r1);
         r2 = keyRecord(r2);
         this.records.set(i, r2);
+        setSubtreeSizes(left, right, i);
 
         left.write();
         right.write();
@@ -1074,6 +1326,8 @@ public final class BPTreeNode extends BPTreePage
 
         // Pointers just shift
         this.ptrs.shiftRight(node.ptrs);
+        if ( counts != null )
+            this.counts.shiftRight(node.counts);
 
         this.count--;
         node.count++;
@@ -1098,6 +1352,8 @@ public final class BPTreeNode extends BPTreePage
 
         // Pointers just shift
         this.ptrs.shiftLeft(node.ptrs);
+        if ( counts != null )
+            this.counts.shiftLeft(node.counts);
 
         this.count++;
         node.count--;
@@ -1119,6 +1375,8 @@ public final class BPTreeNode extends BPTreePage
         if ( x == count - 1 ) {
             records.removeTop();
             ptrs.removeTop();
+            if ( counts != null )
+                counts.removeTop();
 
             count--;
             if ( logging(log) ) {
@@ -1133,12 +1391,31 @@ public final class BPTreeNode extends BPTreePage
 
         records.shiftDown(x);
         ptrs.shiftDown(x + 1);
+        if ( counts != null )
+            counts.shiftDown(x + 1);
         count--;
         if ( logging(log) )
             log(log, "shuffleDown << %s", this);
         internalCheckNode();
     }
 
+    // ---- Counted B+Trees
+
+    /** Number of records in the subtree of a page. Counted B+Trees only. */
+    private static long subtreeSize(BPTreePage page) {
+        if ( page instanceof BPTreeNode )
+            return ((BPTreeNode)page).counts.sum();
+        return page.getCount();
+    }
+
+    /** Reset the counts of two adjacent subtrees, at slots i and i+1, after records moved between them. */
+    private void setSubtreeSizes(BPTreePage left, BPTreePage right, int i) {
+        if ( counts == null )
+            return;
+        counts.set(i, subtreeSize(left));
+        counts.set(i + 1, subtreeSize(right));
+    }
+
     // ---- Utilities
 
     private static final BPTreeNode cast(BPTreePage other) {
@@ -1403,9 +1680,19 @@ public final class BPTreeNode extends BPTreePage
         }
     }
 
+    private void checkSubtreeSize(int i, BPTreePage page) {
+        if ( counts == null )
+            return;
+        long x = subtreeSize(page);
+        if ( counts.get(i) != x )
+            BPT.error("Node: %d: Count %d @%d but the subtree has %d records :: %s", getId(), counts.get(i), i, x, this);
+    }
+
     private void checkNodeDeep(Record min, Record max) {
         checkNode(min, max);
         int id = getId();
+        if ( counts != null && counts.size() != count + 1 )
+            BPT.error("Inconsistent: id=%d, count+1=%d, counts.size()=%d; %s", id, count + 1, counts.size(), this);
         // Check pointers.
         int limit = (count == 0) ? 0 : count + 1;
 
@@ -1455,6 +1742,7 @@ public final class BPTreeNode extends BPTreePage
             if ( !(n instanceof BPTreeNode) ) {
                 // Records.
                 n.checkNodeDeep();
+                checkSubtreeSize(i, n);
                 n.release();
                 continue;
             }
@@ -1483,6 +1771,7 @@ public final class BPTreeNode extends BPTreePage
             // this);
 
             ((BPTreeNode)n).checkNodeDeep(min1, max1);
+            checkSubtreeSize(i, n);
             n.release();
         }
     }
@@ -44,10 +44,12 @@ class BPTreeRangeIterator implements Iterator<Record> {
     private Iterator<Record> current;
     private Record slot = null;
     private boolean finished = false;
+    final private BPTreeReadAhead readAhead;
 
     BPTreeRangeIterator(BPTreeNode node, Record minRec, Record maxRec ) {
         this.minRecord = minRec;
         this.maxRecord = maxRec;
+        this.readAhead = BPTreeReadAhead.create(node.bpTree);
         BPTreeRecords r = loadStack(node);
         current = getRecordsIterator(r, minRecord, maxRecord);
     }
@@ -112,7 +114,7 @@ class BPTreeRangeIterator implements Iterator<Record> {
         List<AccessStep> steps = path.getPath();
         for ( AccessStep step : steps ) {
             BPTreeNode n = step.node;
-            Iterator<BPTreePage> it = n.iterator(minRecord, maxRecord);
+            Iterator<BPTreePage> it = n.iterator(minRecord, maxRecord, readAhead);
             if ( it == null || ! it.hasNext() )
                 continue;
             BPTreePage p = it.next();
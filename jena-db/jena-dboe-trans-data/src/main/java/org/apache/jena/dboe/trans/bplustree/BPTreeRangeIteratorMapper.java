@@ -52,12 +52,14 @@ class BPTreeRangeIteratorMapper<X> implements Iterator<X> {
     private X slot = null;
     final private byte[] keySlot;
     private boolean finished = false;
+    final private BPTreeReadAhead readAhead;
 
     BPTreeRangeIteratorMapper(BPTreeNode node, Record minRec, Record maxRec, int keyLength, RecordMapper<X> mapper) {
         this.minRecord = minRec;
         this.maxRecord = maxRec;
         this.mapper = mapper;
         this.keySlot = new byte[keyLength];
+        this.readAhead = BPTreeReadAhead.create(node.bpTree);
 
         BPTreeRecords r = loadStack(node);
         current = getRecordsIterator(r, minRecord, maxRecord, mapper);
@@ -123,7 +125,7 @@ class BPTreeRangeIteratorMapper<X> implements Iterator<X> {
         List<AccessStep> steps = path.getPath();
         for ( AccessStep step : steps ) {
             BPTreeNode n = step.node;
-            Iterator<BPTreePage> it = n.iterator(minRecord, maxRecord);
+            Iterator<BPTreePage> it = n.iterator(minRecord, maxRecord, readAhead);
             if ( it == null || ! it.hasNext() )
                 continue;
             BPTreePage p = it.next();
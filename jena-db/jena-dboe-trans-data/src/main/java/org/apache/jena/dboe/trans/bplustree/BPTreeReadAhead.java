@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.dboe.trans.bplustree;
+
+import org.apache.jena.dboe.base.block.BlockMgr;
+
+/**
+ * Read-ahead for one range scan.
+ * <p>
+ * A scan is taken to be sequential when it moves on from its first records block.
+ * From then on, the next {@link BPT#ReadAheadWindow} records blocks under the same
+ * leaf-level node are announced to the records block manager with
+ * {@link BlockMgr#prefetch}, up to a total of {@link BPT#ReadAheadBudget} blocks for
+ * the scan. Point lookups and short scans that stay in one block do no read-ahead.
+ */
+class BPTreeReadAhead {
+    private final BlockMgr blockMgr;
+    private final int window;
+    private int budget;
+    private int steps = 0;
+    // Last node and slot announced.
+    private BPTreeNode node = null;
+    private int prefetchedTo = -1;
+
+    /** Return a BPTreeReadAhead for a scan of {@code bpTree}, or null if read-ahead is not enabled. */
+    static BPTreeReadAhead create(BPlusTree bpTree) {
+        if ( ! BPT.ReadAhead || BPT.ReadAheadWindow <= 0 || BPT.ReadAheadBudget <= 0 )
+            return null;
+        return new BPTreeReadAhead(bpTree.getRecordsMgr().getBlockMgr(), BPT.ReadAheadWindow, BPT.ReadAheadBudget);
+    }
+
+    private BPTreeReadAhead(BlockMgr blockMgr, int window, int budget) {
+        this.blockMgr = blockMgr;
+        this.window = window;
+        this.budget = budget;
+    }
+
+    /**
+     * The scan is about to fetch the records block in slot {@code idx} of the
+     * leaf-level node {@code leafNode}; {@code limit} is the last slot (inclusive) the scan will use.
+     */
+    void step(BPTreeNode leafNode, int idx, int limit) {
+        steps++;
+        if ( steps < 2 || budget <= 0 )
+            return;
+        if ( leafNode != node ) {
+            node = leafNode;
+            prefetchedTo = idx;
+        }
+        int start = Math.max(prefetchedTo, idx) + 1;
+        int end = Math.min(idx + window, limit);
+        for ( int i = start; i <= end && budget > 0 ; i++ ) {
+            blockMgr.prefetch(leafNode.ptrs.get(i));
+            budget--;
+            prefetchedTo = i;
+        }
+    }
+}
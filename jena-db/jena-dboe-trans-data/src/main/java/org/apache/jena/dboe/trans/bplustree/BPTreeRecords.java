@@ -90,9 +90,14 @@ public final class BPTreeRecords extends BPTreePage {
         return rBuffPage.getLink();
     }
 
+    boolean isCompressed() {
+        return rBuffPage.isCompressed();
+    }
+
     @Override
     public boolean isFull() {
-        return (rBuff.size() >= rBuff.maxSize());
+        // Compressed pages also consider the space used.
+        return rBuffPage.isFull();
     }
 
     @Override
@@ -103,8 +108,7 @@ public final class BPTreeRecords extends BPTreePage {
     @Override
     public boolean isMinSize() {
         // 50% packing minimum.
-        // If of max length 5 (i.e. odd), min size is 2. Integer division works.
-        return (rBuff.size() <= rBuff.maxSize() / 2);
+        return rBuffPage.isMinSize();
     }
 
     @Override
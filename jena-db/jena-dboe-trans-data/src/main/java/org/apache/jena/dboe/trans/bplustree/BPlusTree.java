@@ -20,6 +20,7 @@ package org.apache.jena.dboe.trans.bplustree;
 
 import java.nio.ByteBuffer;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.jena.atlas.io.IndentedWriter;
 import org.apache.jena.atlas.iterator.Iter;
@@ -426,10 +427,105 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
 
     @Override
     public long size() {
+        if ( isCounted() ) {
+            startReadBlkMgr();
+            BPTreeNode root = getRootRead();
+            try { return BPTreeNode.size(root); }
+            finally {
+                releaseRootRead(root);
+                finishReadBlkMgr();
+            }
+        }
         Iterator<Record> iter = iterator();
         return Iter.count(iter);
     }
 
+    @Override
+    public boolean isCounted() {
+        return bpTreeParams.isCounted();
+    }
+
+    @Override
+    public long count(Record minRec, Record maxRec) {
+        if ( ! isCounted() )
+            return RangeIndex.super.count(minRec, maxRec);
+        if ( minRec != null && maxRec != null && Record.keyGE(minRec, maxRec) )
+            return 0;
+        startReadBlkMgr();
+        BPTreeNode root = getRootRead();
+        try {
+            long high = ( maxRec == null ) ? BPTreeNode.size(root) : BPTreeNode.rank(root, maxRec);
+            long low = ( minRec == null ) ? 0 : BPTreeNode.rank(root, minRec);
+            return high - low;
+        } finally {
+            releaseRootRead(root);
+            finishReadBlkMgr();
+        }
+    }
+
+    @Override
+    public Iterator<Record> iterator(Record minRec, Record maxRec, long skip) {
+        if ( ! isCounted() || skip <= 0 )
+            return RangeIndex.super.iterator(minRec, maxRec, skip);
+        Record start = select(minRec, skip);
+        if ( start == null || ( maxRec != null && Record.keyGE(start, maxRec) ) )
+            return Iter.nullIterator();
+        return iterator(start, maxRec);
+    }
+
+    /**
+     * The number of records with keys less than the key of {@code record}.
+     * Counted B+Trees only.
+     */
+    public long rank(Record record) {
+        requireCounted();
+        startReadBlkMgr();
+        BPTreeNode root = getRootRead();
+        try { return BPTreeNode.rank(root, record); }
+        finally {
+            releaseRootRead(root);
+            finishReadBlkMgr();
+        }
+    }
+
+    /**
+     * The record with the given rank, counting from zero in key order,
+     * or null if there are not that many records. Counted B+Trees only.
+     */
+    public Record select(long rank) {
+        return select(null, rank);
+    }
+
+    /** The record {@code skip} places after the start of the records from {@code minRec} (inclusive). */
+    private Record select(Record minRec, long skip) {
+        requireCounted();
+        startReadBlkMgr();
+        BPTreeNode root = getRootRead();
+        try {
+            long rank = ( minRec == null ) ? 0 : BPTreeNode.rank(root, minRec);
+            return BPTreeNode.select(root, rank + skip);
+        } finally {
+            releaseRootRead(root);
+            finishReadBlkMgr();
+        }
+    }
+
+    @Override
+    public List<Record> splitKeys(int n) {
+        startReadBlkMgr();
+        BPTreeNode root = getRootRead();
+        try { return BPTreeNode.splitKeys(root, n); }
+        finally {
+            releaseRootRead(root);
+            finishReadBlkMgr();
+        }
+    }
+
+    private void requireCounted() {
+        if ( ! isCounted() )
+            throw new BPTreeException("Not a counted B+Tree");
+    }
+
     @Override
     public void check() {
         BPTreeNode root = getRootRead();
@@ -90,6 +90,19 @@ public class BPlusTreeFactory {
 
     /** Create a B+Tree using defaults */
     public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, RecordFactory factory) {
+        return createBPTree(cid, fileset, factory, false);
+    }
+
+    /** Create a B+Tree using defaults, with or without prefix compressed records blocks */
+    public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, RecordFactory factory, boolean leafCompression) {
+        return createBPTree(cid, fileset, factory, leafCompression, false);
+    }
+
+    /**
+     * Create a B+Tree using defaults, with or without prefix compressed records blocks,
+     * and with or without subtree counts in the branch nodes.
+     */
+    public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, RecordFactory factory, boolean leafCompression, boolean counted) {
         int readCacheSize = SystemIndex.BlockReadCacheSize;
         int writeCacheSize = SystemIndex.BlockWriteCacheSize;
         int blockSize = SystemIndex.BlockSize;
@@ -99,7 +112,7 @@ public class BPlusTreeFactory {
             blockSize = SystemIndex.BlockSizeTest;
         }
 
-        return createBPTreeByBlockSize(cid, fileset, blockSize, readCacheSize, writeCacheSize, factory);
+        return createBPTree(cid, fileset, -1, blockSize, readCacheSize, writeCacheSize, factory, leafCompression, counted);
     }
 
     /** Create a B+Tree by BlockSize */
@@ -129,11 +142,28 @@ public class BPlusTreeFactory {
     public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, int order, int blockSize,
                                          int readCacheSize, int writeCacheSize,
                                          RecordFactory factory) {
+        return createBPTree(cid, fileset, order, blockSize, readCacheSize, writeCacheSize, factory, false);
+    }
+
+    /** Knowing all the parameters, including whether records blocks are prefix compressed, create a B+Tree */
+    public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, int order, int blockSize,
+                                         int readCacheSize, int writeCacheSize,
+                                         RecordFactory factory, boolean leafCompression) {
+        return createBPTree(cid, fileset, order, blockSize, readCacheSize, writeCacheSize, factory, leafCompression, false);
+    }
+
+    /**
+     * Knowing all the parameters, including whether records blocks are prefix compressed
+     * and whether branch nodes hold subtree counts, create a B+Tree
+     */
+    public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, int order, int blockSize,
+                                         int readCacheSize, int writeCacheSize,
+                                         RecordFactory factory, boolean leafCompression, boolean counted) {
         // ---- Checking
         if (blockSize < 0 && order < 0) throw new IllegalArgumentException("Neither blocksize nor order specified");
-        if (blockSize >= 0 && order < 0) order = BPlusTreeParams.calcOrder(blockSize, factory.recordLength());
+        if (blockSize >= 0 && order < 0) order = BPlusTreeParams.calcOrder(blockSize, factory.recordLength(), counted);
         if (blockSize >= 0 && order >= 0) {
-            int order2 = BPlusTreeParams.calcOrder(blockSize, factory.recordLength());
+            int order2 = BPlusTreeParams.calcOrder(blockSize, factory.recordLength(), counted);
             if (order != order2) throw new IllegalArgumentException("Wrong order (" + order + "), calculated = "
                                                                     + order2);
         }
@@ -141,10 +171,10 @@ public class BPlusTreeFactory {
         // Iffy - does not allow for slop.
         if (blockSize < 0 && order >= 0) {
             // Only in-memory.
-            blockSize = BPlusTreeParams.calcBlockSize(order, factory);
+            blockSize = BPlusTreeParams.calcBlockSize(order, factory, counted);
         }
 
-        BPlusTreeParams params = new BPlusTreeParams(order, factory);
+        BPlusTreeParams params = new BPlusTreeParams(order, factory, leafCompression, counted);
         BufferChannel bptState = FileFactory.createBufferChannel(fileset, Names.extBptState);
         BlockMgr blkMgrNodes = BlockMgrFactory.create(fileset, Names.extBptTree, blockSize, readCacheSize, writeCacheSize);
         BlockMgr blkMgrRecords = BlockMgrFactory.create(fileset, Names.extBptRecords, blockSize, readCacheSize, writeCacheSize);
@@ -174,7 +204,7 @@ public class BPlusTreeFactory {
 
         BPTreeNodeMgr nodeManager = new BPTreeNodeMgr(bpt, blkMgrNodes);
 
-        RecordBufferPageMgr recordPageMgr = new RecordBufferPageMgr(params.getRecordFactory(), blkMgrRecords);
+        RecordBufferPageMgr recordPageMgr = new RecordBufferPageMgr(params.getRecordFactory(), blkMgrRecords, params.isLeafCompression());
         BPTreeRecordsMgr recordsMgr = new BPTreeRecordsMgr(bpt, params.getRecordFactory(), recordPageMgr);
 
         createIfAbsent(isReset, stateMgr, nodeManager, recordsMgr);
@@ -204,9 +234,19 @@ public class BPlusTreeFactory {
 
     /** (Testing mainly) Make an in-memory B+Tree, with copy-in, copy-out block managers */
     public static BPlusTree makeMem(String name, int order, int minDataRecords, int keyLength, int valueLength) {
+        return makeMem(name, order, minDataRecords, keyLength, valueLength, false);
+    }
+
+    /** (Testing mainly) Make an in-memory B+Tree, with copy-in, copy-out block managers and the choice of compressed records blocks */
+    public static BPlusTree makeMem(String name, int order, int minDataRecords, int keyLength, int valueLength, boolean leafCompression) {
+        return makeMem(name, order, minDataRecords, keyLength, valueLength, leafCompression, false);
+    }
+
+    /** (Testing mainly) Make an in-memory B+Tree, with copy-in, copy-out block managers, the choice of compressed records blocks and of subtree counts */
+    public static BPlusTree makeMem(String name, int order, int minDataRecords, int keyLength, int valueLength, boolean leafCompression, boolean counted) {
         if ( name == null )
             name = "Mem";
-        BPlusTreeParams params = new BPlusTreeParams(order, keyLength, valueLength);
+        BPlusTreeParams params = new BPlusTreeParams(order, new RecordFactory(keyLength, valueLength), leafCompression, counted);
 
         int blkSize;
         if ( minDataRecords > 0 ) {
@@ -304,6 +344,10 @@ public class BPlusTreeFactory {
             // Force to right layout.
             n.ptrs.setSize(0);                 // No pointers
             n.ptrs.add(recordsPage.getId());   // Add the page below
+            if ( n.counts != null ) {
+                n.counts.setSize(0);
+                n.counts.add(0);
+            }
 
             //n.ptrs.set(0, page.getId()); // This is the same as the size is one.
 
@@ -18,6 +18,7 @@
 
 package org.apache.jena.dboe.trans.bplustree;
 
+import static org.apache.jena.dboe.base.buffer.CountBuffer.SizeOfCount;
 import static org.apache.jena.dboe.sys.SystemIndex.SizeOfPointer;
 
 import org.apache.jena.atlas.logging.Log;
@@ -36,6 +37,8 @@ final public class BPlusTreeParams
     public static final String ParamKeyLength      = NS+".keyLength";
     public static final String ParamValueLength    = NS+".valueLength";
     public static final String ParamBlockSize      = NS+".blockSize";
+    public static final String ParamLeafCompression = NS+".leafCompression";
+    public static final String ParamCounted        = NS+".counted";
 
     /* The gap is extra space in a node - some books have node size as 2*N
      * (often for the classic insertion algorithm where it's easier to implement
@@ -60,6 +63,12 @@ final public class BPlusTreeParams
     /** Factory for key-only records */
     final RecordFactory keyFactory;
 
+    /** Whether records blocks (the leaves) are prefix compressed */
+    final boolean leafCompression;
+
+    /** Whether branch nodes hold the number of records below each pointer */
+    final boolean counted;
+
     // ---- Derived constants.
 
     /** Maximum number of keys per non-leaf block */
@@ -90,13 +99,15 @@ final public class BPlusTreeParams
 
     @Override
     public String toString() {
-        return String.format("Order=%d : Records [key=%d, value=%d] : records=[%d,%d] : pointers=[%d,%d] : split=%d",
+        return String.format("Order=%d : Records [key=%d, value=%d] : records=[%d,%d] : pointers=[%d,%d] : split=%d%s%s",
                              order,
                              keyFactory.keyLength() ,
                              recordFactory.valueLength() ,
                              MinRec, MaxRec,
                              MinPtr, MaxPtr,
-                             SplitIndex
+                             SplitIndex,
+                             leafCompression ? " : compressed" : "",
+                             counted ? " : counted" : ""
                              );
     }
 
@@ -105,7 +116,9 @@ final public class BPlusTreeParams
             int pOrder = mf.getPropertyAsInteger(ParamOrder);
             int pKeyLen = mf.getPropertyAsInteger(ParamKeyLength);
             int pRecLen = mf.getPropertyAsInteger(ParamValueLength);
-            return new BPlusTreeParams(pOrder, pKeyLen, pRecLen);
+            boolean pLeafCompression = Boolean.parseBoolean(mf.getProperty(ParamLeafCompression, "false"));
+            boolean pCounted = Boolean.parseBoolean(mf.getProperty(ParamCounted, "false"));
+            return new BPlusTreeParams(pOrder, new RecordFactory(pKeyLen, pRecLen), pLeafCompression, pCounted);
         } catch (NumberFormatException ex) {
             Log.error(BPlusTreeParams.class, "Badly formed metadata for B+Tree");
             throw new DBOpEnvException("Failed to read metadata");
@@ -116,6 +129,8 @@ final public class BPlusTreeParams
         mf.setProperty(ParamOrder, order);
         mf.setProperty(ParamKeyLength, recordFactory.keyLength());
         mf.setProperty(ParamValueLength, recordFactory.valueLength());
+        mf.setProperty(ParamLeafCompression, Boolean.toString(leafCompression));
+        mf.setProperty(ParamCounted, Boolean.toString(counted));
         mf.flush();
     }
 
@@ -124,6 +139,27 @@ final public class BPlusTreeParams
     }
 
     public BPlusTreeParams(int order, RecordFactory factory) {
+        this(order, factory, false);
+    }
+
+    /**
+     * B+Tree parameters, with the choice of prefix compressed records blocks.
+     * The order only applies to the branch nodes; compressed records blocks
+     * hold as many records as fit in the block.
+     */
+    public BPlusTreeParams(int order, RecordFactory factory, boolean leafCompression) {
+        this(order, factory, leafCompression, false);
+    }
+
+    /**
+     * B+Tree parameters, with the choice of prefix compressed records blocks
+     * and of a counted tree. A counted tree keeps, for each pointer of a branch
+     * node, the number of records in the subtree below it. This makes
+     * {@link BPlusTree#size()}, {@link BPlusTree#count(Record, Record)} and
+     * positioning by rank take time proportional to the height of the tree.
+     * Counts take space in the branch nodes so the order for a block size is lower.
+     */
+    public BPlusTreeParams(int order, RecordFactory factory, boolean leafCompression, boolean counted) {
         // BTrees of order one aren't strictly BTrees
         // Order 1 => Min size = 0 and max size = 2*N-1 = 1.
         // If there is a gap, then the code may be defensive enough
@@ -136,6 +172,8 @@ final public class BPlusTreeParams
         this.order = order;
         recordFactory = factory;
         keyFactory = factory.keyFactory();
+        this.leafCompression = leafCompression;
+        this.counted = counted;
 
         // Derived constants.
         MaxRec  = 2*order-1 + Gap;
@@ -173,8 +211,21 @@ final public class BPlusTreeParams
         return keyFactory;
     }
 
+    public boolean isLeafCompression() {
+        return leafCompression;
+    }
+
+    public boolean isCounted() {
+        return counted;
+    }
+
+    /** Length of the count of a pointer slot; zero if this is not a counted B+Tree */
+    public int getCountLength() {
+        return counted ? SizeOfCount : 0;
+    }
+
     public int getCalcBlockSize() {
-        return calcBlockSize(order, recordFactory);
+        return calcBlockSize(order, recordFactory, counted);
     }
 
     /**
@@ -190,6 +241,14 @@ final public class BPlusTreeParams
      * block header space.
      */
     public static int calcOrder(int blockSize, int recordLength)    {
+        return calcOrder(blockSize, recordLength, false);
+    }
+
+    /**
+     * Return the best fit for the blocksize and the record length, for a
+     * counted or uncounted B+Tree. Knows about block header space.
+     */
+    public static int calcOrder(int blockSize, int recordLength, boolean counted) {
         // Length = X*recordLength+(X+1)*PtrLength
         // => X = (Length-PtrLength)/(recordLength+PtrLength)
         // BTree order N
@@ -198,14 +257,23 @@ final public class BPlusTreeParams
         blockSize -= BlockHeaderSize;
 
         int X = (blockSize-recordLength)/(recordLength+SizeOfPointer);
+        if ( counted )
+            // Each pointer has a count as well.
+            X = (blockSize-SizeOfPointer-SizeOfCount)/(recordLength+SizeOfPointer+SizeOfCount);
         int order = (X+1-Gap)/2;
         return order;
     }
 
     /** return the size of a block */
     public static int calcBlockSize(int bpTreeOrder, RecordFactory factory) {
+        return calcBlockSize(bpTreeOrder, factory, false);
+    }
+
+    /** return the size of a block, for a counted or uncounted B+Tree */
+    public static int calcBlockSize(int bpTreeOrder, RecordFactory factory, boolean counted) {
         BPlusTreeParams p = new BPlusTreeParams(bpTreeOrder, factory);
-        int x = p.getMaxRec() * factory.recordLength() + p.getMaxPtr() * SizeOfPointer;
+        int ptrLength = counted ? SizeOfPointer+SizeOfCount : SizeOfPointer;
+        int x = p.getMaxRec() * factory.recordLength() + p.getMaxPtr() * ptrLength;
         x += BlockHeaderSize;
         return x;
     }
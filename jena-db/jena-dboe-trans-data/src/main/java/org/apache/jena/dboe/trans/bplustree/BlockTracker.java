@@ -165,6 +165,11 @@ public class BlockTracker implements BlockMgr {
         return blockMgr.getWrite(id);
     }
 
+    @Override
+    public void prefetch(long id) {
+        blockMgr.prefetch(id);
+    }
+
     @Override
     public Block promote(Block block) {
         synchronized (this) {
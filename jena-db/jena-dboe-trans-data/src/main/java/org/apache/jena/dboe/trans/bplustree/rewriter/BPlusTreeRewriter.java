@@ -111,6 +111,9 @@ public class BPlusTreeRewriter {
             return null;
         }
         fixupRoot(root, pair, bpt2);
+        if ( bptParams.isCounted() )
+            // Nodes were built without the subtree counts.
+            BPTreeNode.recount(root);
         // ****** Finish the tree.
         //bpt2.getStateManager().
         blkMgrNodes.sync();
@@ -177,13 +180,22 @@ public class BPlusTreeRewriter {
             RecordBufferPage page1 = mgr.getWrite(id1);
             RecordBufferPage page2 = mgr.getWrite(id2);
 
-            // Wrong calculatation.
-            for ( int i = page2.getCount(); i < page1.getMaxSize() / 2 ; i++ ) {
-                // shiftOneup(node1, node2);
-                Record r = page1.getRecordBuffer().getHigh();
-                page1.getRecordBuffer().removeTop();
-
-                page2.getRecordBuffer().add(0, r);
+            if ( page1.isCompressed() ) {
+                // Compressed pages are balanced by space used, not the count.
+                while ( page2.isMinSize() && !page1.isMinSize() ) {
+                    Record r = page1.getRecordBuffer().getHigh();
+                    page1.getRecordBuffer().removeTop();
+                    page2.getRecordBuffer().add(0, r);
+                }
+            } else {
+                // Wrong calculatation.
+                for ( int i = page2.getCount(); i < page1.getMaxSize() / 2 ; i++ ) {
+                    // shiftOneup(node1, node2);
+                    Record r = page1.getRecordBuffer().getHigh();
+                    page1.getRecordBuffer().removeTop();
+
+                    page2.getRecordBuffer().add(0, r);
+                }
             }
 
             mgr.put(page1);
@@ -63,7 +63,8 @@ class RecordBufferPagePacker implements Iterator<RecordBufferPage> {
             recordBufferPage = rbMgr.create();
 
             RecordBuffer rb = recordBufferPage.getRecordBuffer();
-            while (!rb.isFull() && records.hasNext()) {
+            // Compressed pages are full when the encoded records reach the block size.
+            while (!recordBufferPage.isFull() && records.hasNext()) {
                 Record r = records.next();
                 rb.add(r);
             }
@@ -29,7 +29,10 @@ import org.junit.runners.Suite;
     TestBPTreeRecordsNonTxn.class,
     TestBPlusTreeIndexNonTxn.class,
     TestBPlusTreeNonTxn.class,
+    TestBPlusTreeCompressedNonTxn.class,
+    TestBPlusTreeCountedNonTxn.class,
     TestBPTreeModes.class,
+    TestBPTreeReadAhead.class,
 
     // Transactional tests
     TestBPlusTreeTxn.class,
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.dboe.trans.bplustree;
+
+import static org.apache.jena.dboe.test.RecordLib.intToRecord;
+
+import java.util.Iterator;
+
+import org.apache.jena.dboe.base.block.BlockMgr;
+import org.apache.jena.dboe.base.block.BlockMgrFactory;
+import org.apache.jena.dboe.base.block.BlockMgrWrapper;
+import org.apache.jena.dboe.base.file.BufferChannelMem;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.base.recordbuffer.RecordBufferPage;
+import org.apache.jena.dboe.test.RecordLib;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Prefetching of records blocks by range scans. */
+public class TestBPTreeReadAhead extends Assert {
+    static class CountingBlockMgr extends BlockMgrWrapper {
+        int prefetches = 0;
+        CountingBlockMgr(BlockMgr blockMgr) { super(blockMgr); }
+        @Override
+        public void prefetch(long id) {
+            prefetches++;
+            super.prefetch(id);
+        }
+    }
+
+    private boolean readAhead;
+    private int budget;
+    private CountingBlockMgr recordsBlkMgr;
+    private BPlusTree bpt;
+
+    @Before public void before() {
+        readAhead = BPT.ReadAhead;
+        budget = BPT.ReadAheadBudget;
+        BPT.ReadAhead = true;
+
+        BPlusTreeParams params = new BPlusTreeParams(3, new RecordFactory(RecordLib.TestRecordLength, 0));
+        int blkSize = RecordBufferPage.calcBlockSize(params.getRecordFactory(), 4);
+        BlockMgr mgr1 = BlockMgrFactory.createMem("Nodes", params.getCalcBlockSize());
+        recordsBlkMgr = new CountingBlockMgr(BlockMgrFactory.createMem("Records", blkSize));
+        bpt = BPlusTreeFactory.create(null, params, BufferChannelMem.create("Root"), mgr1, recordsBlkMgr);
+        bpt.nonTransactional();
+        for ( int i = 0; i < 500 ; i++ )
+            bpt.insert(intToRecord(i));
+    }
+
+    @After public void after() {
+        BPT.ReadAhead = readAhead;
+        BPT.ReadAheadBudget = budget;
+    }
+
+    @Test public void readAhead_01() {
+        scan(bpt.iterator(), 0, 500);
+        assertTrue(recordsBlkMgr.prefetches > 0);
+    }
+
+    @Test public void readAhead_02() {
+        // Within one records block - no read-ahead.
+        scan(bpt.iterator(intToRecord(10), intToRecord(11)), 10, 11);
+        assertEquals(0, recordsBlkMgr.prefetches);
+    }
+
+    @Test public void readAhead_03() {
+        BPT.ReadAheadBudget = 5;
+        scan(bpt.iterator(), 0, 500);
+        assertEquals(5, recordsBlkMgr.prefetches);
+    }
+
+    @Test public void readAhead_04() {
+        BPT.ReadAhead = false;
+        scan(bpt.iterator(intToRecord(100), intToRecord(400)), 100, 400);
+        assertEquals(0, recordsBlkMgr.prefetches);
+    }
+
+    @Test public void readAhead_05() {
+        scan(bpt.iterator(intToRecord(100), intToRecord(400), RecordFactory.mapperRecord), 100, 400);
+        assertTrue(recordsBlkMgr.prefetches > 0);
+    }
+
+    private static void scan(Iterator<Record> iter, int start, int finish) {
+        for ( int i = start; i < finish ; i++ ) {
+            assertTrue(iter.hasNext());
+            assertEquals(intToRecord(i), iter.next());
+        }
+        assertFalse(iter.hasNext());
+    }
+}
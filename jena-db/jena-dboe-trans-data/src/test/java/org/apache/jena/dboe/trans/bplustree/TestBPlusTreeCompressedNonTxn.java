@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.dboe.trans.bplustree;
+
+import org.apache.jena.dboe.index.test.AbstractTestRangeIndex;
+import org.apache.jena.dboe.sys.SystemIndex;
+import org.apache.jena.dboe.test.RecordLib;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+/** Run the tests for a tree with prefix compressed records blocks in "non-transactional" mode */
+public class TestBPlusTreeCompressedNonTxn extends AbstractTestRangeIndex {
+    static boolean originalNullOut;
+    @BeforeClass
+    static public void beforeClass() {
+        BPT.CheckingNode = true;
+        originalNullOut = SystemIndex.getNullOut();
+        SystemIndex.setNullOut(true);
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        SystemIndex.setNullOut(originalNullOut);
+    }
+
+    @Override
+    protected BPlusTree makeRangeIndex(int order, int minRecords) {
+        // A compressed records block must have room for at least two worst case insertions.
+        if ( minRecords > 0 )
+            minRecords = Math.max(minRecords, 3);
+        BPlusTree bpt = BPlusTreeFactory.makeMem(null, order, minRecords, RecordLib.TestRecordLength, 0, true);
+        bpt.nonTransactional();
+        return bpt;
+    }
+}
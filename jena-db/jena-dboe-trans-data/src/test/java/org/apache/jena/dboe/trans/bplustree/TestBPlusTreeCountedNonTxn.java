@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.trans.bplustree;
+
+import static org.apache.jena.dboe.test.RecordLib.intToRecord;
+import static org.apache.jena.dboe.test.RecordLib.r;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.index.test.AbstractTestRangeIndex;
+import org.apache.jena.dboe.sys.SystemIndex;
+import org.apache.jena.dboe.test.RecordLib;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Run the tests for a tree with subtree counts in "non-transactional" mode */
+public class TestBPlusTreeCountedNonTxn extends AbstractTestRangeIndex {
+    static boolean originalNullOut;
+    @BeforeClass
+    static public void beforeClass() {
+        BPT.CheckingNode = true;
+        originalNullOut = SystemIndex.getNullOut();
+        SystemIndex.setNullOut(true);
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        SystemIndex.setNullOut(originalNullOut);
+    }
+
+    @Override
+    protected BPlusTree makeRangeIndex(int order, int minRecords) {
+        BPlusTree bpt = BPlusTreeFactory.makeMem(null, order, minRecords, RecordLib.TestRecordLength, 0, false, true);
+        bpt.nonTransactional();
+        return bpt;
+    }
+
+    @Test public void counted_01() {
+        BPlusTree bpt = makeRangeIndex(2, 2);
+        assertTrue(bpt.isCounted());
+        assertEquals(0, bpt.size());
+        assertEquals(0, bpt.count(null, null));
+        assertNull(bpt.select(0));
+        assertEquals(0, bpt.rank(intToRecord(5)));
+        assertFalse(bpt.iterator(null, null, 1).hasNext());
+    }
+
+    @Test public void counted_02() {
+        BPlusTree bpt = makeRangeIndex(2, 2);
+        for ( int i = 0 ; i < 100 ; i++ )
+            bpt.insert(intToRecord(2*i));
+        bpt.check();
+        assertEquals(100, bpt.size());
+        // Keys 10, 12, ... 48
+        assertEquals(20, bpt.count(intToRecord(10), intToRecord(50)));
+        assertEquals(20, bpt.count(intToRecord(9), intToRecord(49)));
+        assertEquals(0, bpt.count(intToRecord(11), intToRecord(12)));
+        assertEquals(0, bpt.count(intToRecord(50), intToRecord(10)));
+        assertEquals(5, bpt.rank(intToRecord(10)));
+        assertEquals(6, bpt.rank(intToRecord(11)));
+        assertEquals(100, bpt.rank(intToRecord(1000)));
+        assertEquals(0, r(bpt.select(0)));
+        assertEquals(74, r(bpt.select(37)));
+        assertEquals(198, r(bpt.select(99)));
+        assertNull(bpt.select(100));
+    }
+
+    @Test public void counted_03() {
+        BPlusTree bpt = makeRangeIndex(3, 2);
+        for ( int i = 0 ; i < 50 ; i++ )
+            bpt.insert(intToRecord(i));
+        assertEquals(List.of(45, 46, 47, 48, 49), RecordLib.toIntList(bpt.iterator(null, null, 45)));
+        assertEquals(List.of(17, 18, 19), RecordLib.toIntList(bpt.iterator(intToRecord(10), intToRecord(20), 7)));
+        assertFalse(bpt.iterator(intToRecord(10), intToRecord(20), 10).hasNext());
+        assertFalse(bpt.iterator(null, null, 50).hasNext());
+    }
+
+    @Test public void split_01() {
+        // Counted: equal ranges.
+        BPlusTree bpt = makeRangeIndex(3, 2);
+        for ( int i = 0 ; i < 1000 ; i++ )
+            bpt.insert(intToRecord(i));
+        List<Record> keys = bpt.splitKeys(4);
+        assertEquals(List.of(250, 500, 750), RecordLib.toIntList(keys.iterator()));
+        checkSplit(bpt, 7, 1000, true);
+        checkSplit(bpt, 1000, 1000, true);
+        checkSplit(bpt, 5000, 1000, true);
+    }
+
+    @Test public void split_02() {
+        // Not counted: ranges from the branch nodes.
+        BPlusTree bpt = BPlusTreeFactory.makeMem(3, 2, RecordLib.TestRecordLength, 0);
+        bpt.nonTransactional();
+        for ( int i = 0 ; i < 1000 ; i++ )
+            bpt.insert(intToRecord(i));
+        checkSplit(bpt, 2, 1000, false);
+        checkSplit(bpt, 10, 1000, false);
+        checkSplit(bpt, 100, 1000, false);
+        checkSplit(bpt, 5000, 1000, false);
+    }
+
+    @Test public void split_03() {
+        BPlusTree bpt = makeRangeIndex(3, 2);
+        assertTrue(bpt.splitKeys(4).isEmpty());
+        bpt.insert(intToRecord(1));
+        assertTrue(bpt.splitKeys(1).isEmpty());
+        checkSplit(bpt, 4, 1, true);
+    }
+
+    // The split keys are in order and divide the records into at most n ranges.
+    private static void checkSplit(BPlusTree bpt, int n, int size, boolean even) {
+        List<Record> keys = bpt.splitKeys(n);
+        assertTrue(keys.size() < n);
+        long total = 0;
+        Record lo = null;
+        for ( int i = 0 ; i <= keys.size() ; i++ ) {
+            Record hi = ( i < keys.size() ) ? keys.get(i) : null;
+            if ( lo != null && hi != null )
+                assertTrue(Record.keyLT(lo, hi));
+            long c = Iter.count(bpt.iterator(lo, hi));
+            if ( even )
+                assertTrue(Math.abs(c - size/(keys.size()+1)) <= 1);
+            total += c;
+            lo = hi;
+        }
+        assertEquals(size, total);
+    }
+
+    // Random inserts and deletes, checking counts against a reference set.
+    @Test public void counted_04() { randomCounted(2, 2, 500, 1); }
+    @Test public void counted_05() { randomCounted(3, 4, 2000, 2); }
+    @Test public void counted_06() { randomCounted(5, 10, 5000, 3); }
+
+    private void randomCounted(int order, int minRecords, int N, long seed) {
+        BPlusTree bpt = makeRangeIndex(order, minRecords);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(seed);
+        for ( int i = 0 ; i < N ; i++ ) {
+            int k = random.nextInt(N/2);
+            if ( random.nextInt(3) == 0 ) {
+                boolean b = bpt.delete(intToRecord(k));
+                assertEquals(expected.remove(k), b);
+            } else {
+                boolean b = bpt.insert(intToRecord(k));
+                assertEquals(expected.add(k), b);
+            }
+            if ( i % 50 == 0 )
+                checkCounts(bpt, expected, random, N/2);
+        }
+        checkCounts(bpt, expected, random, N/2);
+        // Empty it.
+        for ( Integer k : new ArrayList<>(expected) ) {
+            bpt.delete(intToRecord(k));
+            expected.remove(k);
+        }
+        checkCounts(bpt, expected, random, N/2);
+        assertTrue(bpt.isEmpty());
+    }
+
+    private static void checkCounts(BPlusTree bpt, TreeSet<Integer> expected, Random random, int range) {
+        bpt.check();
+        assertEquals(expected.size(), bpt.size());
+        List<Integer> keys = new ArrayList<>(expected);
+        for ( int j = 0 ; j < 10 ; j++ ) {
+            int lo = random.nextInt(range);
+            int hi = lo + random.nextInt(range/4+1);
+            assertEquals(expected.subSet(lo, hi).size(), bpt.count(intToRecord(lo), intToRecord(hi)));
+            assertEquals(expected.headSet(lo).size(), bpt.rank(intToRecord(lo)));
+            if ( ! keys.isEmpty() ) {
+                int i = random.nextInt(keys.size());
+                assertEquals(keys.get(i).intValue(), r(bpt.select(i)));
+            }
+        }
+    }
+}
@@ -18,6 +18,8 @@
 
 package org.apache.jena.dboe.trans.bplustree;
 
+import java.util.stream.IntStream;
+
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.dboe.index.test.IndexTestLib;
 import org.apache.jena.system.Txn;
@@ -26,6 +28,9 @@ import org.apache.jena.dboe.transaction.Transactional;
 import org.apache.jena.dboe.transaction.TransactionalFactory;
 import org.apache.jena.dboe.transaction.txn.TransactionalComponent;
 import org.apache.jena.query.ReadWrite;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.system.ThreadAction;
+import org.apache.jena.system.ThreadTxn;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -202,4 +207,73 @@ public class TestBPlusTreeTxn extends Assert {
         } );
     }
 
+    // Counted B+Tree: the counts follow the transaction.
+    @Test public void bptree_txn_20() {
+        BPlusTree bpt = BPlusTreeFactory.makeMem(null, 2, 2, RecordLib.TestRecordLength, 0, false, true);
+        Transactional thing = transactional(bpt);
+        Txn.executeWrite(thing, () -> {
+            IndexTestLib.add(bpt, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+            assertEquals(10, bpt.size());
+        });
+        thing.begin(ReadWrite.WRITE);
+        IndexTestLib.add(bpt, 11, 12, 13);
+        IndexTestLib.delete(bpt, 1, 2);
+        assertEquals(11, bpt.size());
+        thing.abort();
+        thing.end();
+        Txn.executeRead(thing, ()->{
+            assertEquals(10, bpt.size());
+            assertEquals(4, bpt.count(RecordLib.intToRecord(3), RecordLib.intToRecord(7)));
+            bpt.check();
+        });
+        Txn.executeWrite(thing, () -> {
+            IndexTestLib.delete(bpt, 1, 2, 3);
+        });
+        Txn.executeRead(thing, ()->{
+            assertEquals(7, bpt.size());
+            assertEquals(4, RecordLib.r(bpt.select(0)));
+            bpt.check();
+        });
+    }
+
+    // Compressed records blocks: readers see the committed leaves while a writer
+    // changes them, after an abort, and across a promote and commit.
+    @Test public void bptree_txn_21() {
+        BPlusTree bpt = BPlusTreeFactory.makeMem(null, 2, 3, RecordLib.TestRecordLength, 0, true);
+        assertTrue(bpt.getParams().isLeafCompression());
+        Transactional thing = transactional(bpt);
+        int[] keys1 = IntStream.rangeClosed(1, 30).toArray();
+        int[] keys2 = IntStream.rangeClosed(11, 40).toArray();
+        Txn.executeWrite(thing, () -> IndexTestLib.add(bpt, keys1));
+
+        // Abort
+        ThreadAction reader1 = ThreadTxn.threadTxnRead(thing, () -> IndexTestLib.testIndexContents(bpt, keys1));
+        thing.begin(ReadWrite.WRITE);
+        IndexTestLib.delete(bpt, IntStream.rangeClosed(1, 10).toArray());
+        IndexTestLib.add(bpt, IntStream.rangeClosed(31, 40).toArray());
+        IndexTestLib.testIndexContents(bpt, keys2);
+        reader1.run();
+        thing.abort();
+        thing.end();
+        Txn.executeRead(thing, ()->{
+            IndexTestLib.testIndexContents(bpt, keys1);
+            bpt.check();
+        });
+
+        // Promote and commit
+        ThreadAction reader2 = ThreadTxn.threadTxnRead(thing, () -> IndexTestLib.testIndexContents(bpt, keys1));
+        thing.begin(TxnType.READ_PROMOTE);
+        IndexTestLib.testIndexContents(bpt, keys1);
+        assertTrue(thing.promote());
+        IndexTestLib.delete(bpt, IntStream.rangeClosed(1, 10).toArray());
+        IndexTestLib.add(bpt, IntStream.rangeClosed(31, 40).toArray());
+        thing.commit();
+        thing.end();
+        // Started before the commit.
+        reader2.run();
+        Txn.executeRead(thing, ()->{
+            IndexTestLib.testIndexContents(bpt, keys2);
+            bpt.check();
+        });
+    }
 }
@@ -66,11 +66,37 @@ public class TestBPlusTreeRewriterNonTxn extends Assert
 
     @Test public void bpt_rewrite_99()  { runTest(5, 1000); }
 
+    // Prefix compressed leaves.
+    @Test public void bpt_rewrite_compressed_01()  { runTestCompressed(3, 0); }
+    @Test public void bpt_rewrite_compressed_02()  { runTestCompressed(3, 1); }
+    @Test public void bpt_rewrite_compressed_03()  { runTestCompressed(3, 100); }
+    @Test public void bpt_rewrite_compressed_99()  { runTestCompressed(5, 1000); }
+
+    // Subtree counts.
+    @Test public void bpt_rewrite_counted_01()  { runTestCounted(2, 0); }
+    @Test public void bpt_rewrite_counted_02()  { runTestCounted(2, 1); }
+    @Test public void bpt_rewrite_counted_03()  { runTestCounted(3, 100); }
+    @Test public void bpt_rewrite_counted_99()  { runTestCounted(5, 1000); }
+
     static void runTest(int order, int N)
     { runOneTest(order, N , recordFactory, false); }
 
+    static void runTestCompressed(int order, int N)
+    { runOneTest(order, N , recordFactory, true, false); }
+
+    static void runTestCounted(int order, int N)
+    { runOneTest(order, N , recordFactory, false, true, false); }
+
     public static void runOneTest(int order, int N, RecordFactory recordFactory, boolean debug) {
-        BPlusTreeParams bptParams = new BPlusTreeParams(order, recordFactory);
+        runOneTest(order, N, recordFactory, false, debug);
+    }
+
+    public static void runOneTest(int order, int N, RecordFactory recordFactory, boolean leafCompression, boolean debug) {
+        runOneTest(order, N, recordFactory, leafCompression, false, debug);
+    }
+
+    public static void runOneTest(int order, int N, RecordFactory recordFactory, boolean leafCompression, boolean counted, boolean debug) {
+        BPlusTreeParams bptParams = new BPlusTreeParams(order, recordFactory, leafCompression, counted);
         BPlusTreeRewriter.debug = debug;
 
         // ---- Test data
@@ -99,6 +125,8 @@ public class TestBPlusTreeRewriterNonTxn extends Assert
         scanComparision(originaldata, bpt2);
         findComparison(originaldata, bpt2);
         sizeComparison(originaldata, bpt2);
+        if ( counted )
+            assertEquals(N, bpt2.size());
     }
 
     public static void scanComparision(List<Record> originaldata, BPlusTree bpt2) {
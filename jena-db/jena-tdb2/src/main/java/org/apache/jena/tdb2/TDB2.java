@@ -92,6 +92,27 @@ public class TDB2 {
      */
     public static final Symbol  symUnionDefaultGraph             = symUnionDefaultGraph2;
 
+    /**
+     * Symbol to control whether cyclic basic graph patterns are executed by a leapfrog
+     * triejoin over the indexes (see {@link org.apache.jena.tdb2.solver.LeapfrogTDB}).
+     * Default: true.
+     */
+    public static final Symbol  symLeapfrogJoin                  = SystemTDB.allocSymbol("leapfrogJoin");
+
+    /**
+     * Symbol to control whether range filters, such as {@code FILTER(?x > 30)}, on a basic graph
+     * pattern are used to limit index scans (see {@link org.apache.jena.tdb2.store.NodeIdRange}).
+     * Default: true.
+     */
+    public static final Symbol  symRangeFilter                   = SystemTDB.allocSymbol("rangeFilter");
+
+    /**
+     * Symbol to control whether subject-star basic graph patterns with low selectivity are
+     * executed by a merge join of subject ordered index scans (see {@link org.apache.jena.tdb2.solver.StarJoinTDB}).
+     * Default: true.
+     */
+    public static final Symbol  symStarJoin                      = SystemTDB.allocSymbol("starJoin");
+
     public static Context getContext() {
         return ARQ.getContext();
     }
@@ -77,6 +77,11 @@ import org.apache.jena.riot.system.StreamRDF;
  *     .. optionally rethrow exception ..
  *   }
  * </pre>
+ * <p>
+ * The basic and sequential loaders can also be used inside a write transaction
+ * started by the caller. The loader does not commit or abort that transaction;
+ * the caller does. The phased and parallel loaders manage transactions themselves
+ * and can not be used inside a transaction.
  *
  * @see LoaderFactory LoaderFactory for creating DataLoaders.
  * @see Loader Loader for convenience operations to invoke the default loader.
@@ -22,17 +22,22 @@ import java.util.List;
 
 import org.apache.jena.atlas.lib.Timer;
 import org.apache.jena.graph.Node;
+import org.apache.jena.query.ReadWrite;
 import org.apache.jena.query.TxnType;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.system.progress.MonitorOutput;
 import org.apache.jena.system.progress.ProgressMonitor;
+import org.apache.jena.tdb2.loader.BulkLoaderException;
 import org.apache.jena.tdb2.loader.DataLoader;
 
 /**
  * Bulk loader framework.
  * <p>
  * It puts a write-transaction around the whole process if {@link #bulkUseTransaction}
- * returns true. It calls {@link #loadOne} for each file.
+ * returns true. If the dataset is already in a write transaction when
+ * {@link #startBulk} is called, the loader works in that transaction and the caller
+ * is responsible for committing or aborting it.
+ * It calls {@link #loadOne} for each file.
  * <p>
  * If a graph name is provided, it converts triples to quads in that named graph.
  */
@@ -42,6 +47,10 @@ public abstract class LoaderBase implements DataLoader {
     protected final Node graphName;
     private Timer timer;
     protected final MonitorOutput output;
+    // Whether this loader began the transaction, and so ends it.
+    private boolean ownTransaction = false;
+    // Whether this loader is working in a write transaction started by the caller.
+    private boolean callerTransaction = false;
 
     protected LoaderBase(DatasetGraph dsg, Node graphName, MonitorOutput output) {
         this.dsg = dsg;
@@ -53,15 +62,24 @@ public abstract class LoaderBase implements DataLoader {
     public void startBulk() {
         this.timer = new Timer();
         timer.startTimer();
-        if ( bulkUseTransaction() )
+        if ( bulkUseTransaction() ) {
+            if ( dsg.isInTransaction() ) {
+                if ( dsg.transactionMode() != ReadWrite.WRITE )
+                    throw new BulkLoaderException("Dataset is in a read transaction");
+                callerTransaction = true;
+                return;
+            }
             dsg.begin(TxnType.WRITE);
+            ownTransaction = true;
+        }
     }
 
     @Override
     public void finishBulk() {
-        if ( bulkUseTransaction() ) {
+        if ( ownTransaction ) {
             dsg.commit();
             dsg.end();
+            ownTransaction = false;
         }
         long totalElapsed = timer.endTimer();
         outputSummary(totalElapsed);
@@ -69,9 +87,10 @@ public abstract class LoaderBase implements DataLoader {
 
     @Override
     public void finishException(Exception ex) {
-        if ( bulkUseTransaction() ) {
+        if ( ownTransaction ) {
             dsg.abort();
             dsg.end();
+            ownTransaction = false;
         }
     }
 
@@ -116,6 +135,15 @@ public abstract class LoaderBase implements DataLoader {
         }
     }
 
+    /**
+     * Whether the loader is working in a write transaction started by the caller.
+     * The dataset may be in use, for example by readers on a live server, so the
+     * loader must not drop and rebuild indexes.
+     */
+    protected boolean isCallerTransaction() {
+        return callerTransaction;
+    }
+
     protected abstract ProgressMonitor createProgressMonitor(MonitorOutput output);
 
     /** Subclasses must provide a setting. */
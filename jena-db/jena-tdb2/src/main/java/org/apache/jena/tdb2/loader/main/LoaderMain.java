@@ -31,10 +31,12 @@ import org.apache.jena.query.TxnType;
 import org.apache.jena.riot.lang.StreamRDFCounting;
 import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.tdb2.loader.BulkLoaderException;
 import org.apache.jena.tdb2.loader.DataLoader;
 import org.apache.jena.tdb2.loader.base.*;
 import org.apache.jena.system.progress.MonitorOutput;
 import org.apache.jena.system.progress.ProgressMonitor;
+import org.apache.jena.system.Txn;
 import org.apache.jena.system.progress.ProgressMonitorOutput;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
@@ -108,6 +110,9 @@ public class LoaderMain extends LoaderBase implements DataLoader {
 
     private final StreamRDFCounting dataInput;
     private final List<BulkStartFinish> dataProcess = new ArrayList<>();
+    // For the incremental statistics: whether the tables were empty at the start.
+    private boolean triplesEmpty = false;
+    private boolean quadsEmpty = false;
 
     public LoaderMain(LoaderPlan loaderPlan, DatasetGraph dsg, MonitorOutput output) {
         this(loaderPlan, dsg, null, output);
@@ -240,8 +245,15 @@ public class LoaderMain extends LoaderBase implements DataLoader {
 
     @Override
     public void startBulk() {
+        // Transactions are managed directly, by component.
+        if ( dsg.isInTransaction() )
+            throw new BulkLoaderException("Can not use this loader inside a transaction");
         // Lock everyone else out while we multithread.
         dsgtdb.getTxnSystem().getTxnMgr().startExclusiveMode();
+        if ( dsgtdb.getStats() != null ) {
+            triplesEmpty = Txn.calculateRead(dsgtdb, ()->dsgtdb.getTripleTable().getNodeTupleTable().isEmpty());
+            quadsEmpty = Txn.calculateRead(dsgtdb, ()->dsgtdb.getQuadTable().getNodeTupleTable().isEmpty());
+        }
         super.startBulk();
         // Set the data pipeline
         BulkProcesses.start(dataProcess);
@@ -266,10 +278,29 @@ public class LoaderMain extends LoaderBase implements DataLoader {
             TupleIndex[][] indexSets4 = PhasedOps.indexSetsFromNames(loaderPlan.secondaryIndex4(), indexMap);
             executeSecondary(srcIdx4, indexSets4, dsgtdb, output);
         }
+        // Still in exclusive mode so no other changes are counted.
+        if ( dsgtdb.getStats() != null )
+            Txn.executeWrite(dsgtdb, ()->updateStats(doTriples, doQuads));
         super.finishBulk();
         dsgtdb.getTxnSystem().getTxnMgr().finishExclusiveMode();
     }
 
+    /**
+     * The indexes were written directly, not through the incremental statistics.
+     * A table that was empty has the statistics of its contents added. Loading into a
+     * table with existing data means calculating the statistics from scratch.
+     */
+    private void updateStats(boolean doTriples, boolean doQuads) {
+        if ( ( doTriples && ! triplesEmpty ) || ( doQuads && ! quadsEmpty ) ) {
+            dsgtdb.rebuildStats();
+            return;
+        }
+        if ( doTriples )
+            dsgtdb.getStats().addTable(dsgtdb.getTripleTable().getNodeTupleTable());
+        if ( doQuads )
+            dsgtdb.getStats().addTable(dsgtdb.getQuadTable().getNodeTupleTable());
+    }
+
     /** Execute secondary index building of a {@link LoaderPlan} */
     private static void executeSecondary(TupleIndex srcIdx, TupleIndex[][] indexSets, DatasetGraphTDB dsgtdb, MonitorOutput output) {
         if ( indexSets.length == 0 )
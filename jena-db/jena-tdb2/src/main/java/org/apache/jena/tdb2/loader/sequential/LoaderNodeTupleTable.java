@@ -18,11 +18,21 @@
 
 package org.apache.jena.tdb2.loader.sequential;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
 import org.apache.jena.atlas.lib.ArrayUtils;
 import org.apache.jena.atlas.lib.Closeable;
 import org.apache.jena.atlas.lib.Sync;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
 import org.apache.jena.graph.Node;
 import org.apache.jena.system.progress.MonitorOutput;
+import org.apache.jena.tdb2.solver.stats.TransStats;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
 import org.apache.jena.tdb2.store.tupletable.TupleIndex;
 
@@ -39,8 +49,16 @@ public class LoaderNodeTupleTable implements Closeable, Sync
     private TupleIndex[] secondaryIndexes;
 
     private NodeTupleTable nodeTupleTable;
+    // Incremental statistics, or null.
+    private final TransStats stats;
+
+    /** Number of rows added together to a table with existing data. */
+    public static final int BatchSize = 10_000;
 
+    private boolean allowDropIndexes = true;
     private boolean dropAndRebuildIndexes;
+    // Rows for a table with existing data.
+    private final List<Node[]> batch = new ArrayList<>();
     //private Timer timer;
     private long count = 0;
     private long countTriples = 0;
@@ -51,16 +69,33 @@ public class LoaderNodeTupleTable implements Closeable, Sync
     private static Object lock = new Object();
 
     public LoaderNodeTupleTable(NodeTupleTable nodeTupleTable, MonitorOutput output, String itemsName)
+    {
+        this(nodeTupleTable, null, output, itemsName);
+    }
+
+    /**
+     * Loader that keeps the statistics up to date. Rows added to a table with
+     * existing data go through the statistics; a table that was empty is loaded
+     * directly and the caller adds its statistics afterwards
+     * (see {@link #isLoadIntoEmpty}).
+     */
+    public LoaderNodeTupleTable(NodeTupleTable nodeTupleTable, TransStats stats, MonitorOutput output, String itemsName)
     {
         this.nodeTupleTable = nodeTupleTable;
+        this.stats = stats;
         this.itemsName = itemsName;
         this.output = output;
     }
 
+    /** Whether the table was empty at the start and has been loaded directly. */
+    public boolean isLoadIntoEmpty() {
+        return dropAndRebuildIndexes;
+    }
+
     // -- LoaderFramework
 
     protected void loadPrepare() {
-        dropAndRebuildIndexes = nodeTupleTable.isEmpty();
+        dropAndRebuildIndexes = allowDropIndexes && nodeTupleTable.isEmpty();
 
         if ( dropAndRebuildIndexes ) {
             //output.print("** Load empty %s table", itemsName);
@@ -88,6 +123,15 @@ public class LoaderNodeTupleTable implements Closeable, Sync
 
     /** Notify start of loading process */
     public void loadDataStart() {
+        loadDataStart(true);
+    }
+
+    /**
+     * Notify start of loading process. If {@code allowDropIndexes} is false, the
+     * secondary indexes are kept even if the table is empty.
+     */
+    public void loadDataStart(boolean allowDropIndexes) {
+        this.allowDropIndexes = allowDropIndexes;
         loadPrepare();
     }
 
@@ -96,6 +140,7 @@ public class LoaderNodeTupleTable implements Closeable, Sync
      */
     public void loadDataFinish()
     {
+        flushBatch();
         if ( count > 0 ) {
             // Do index phase only if any items seen.
            // monitor.startIndexPhase();
@@ -104,6 +149,12 @@ public class LoaderNodeTupleTable implements Closeable, Sync
         loadSecondaryIndexes();
     }
 
+    /** Notify the load has been abandoned - the secondary indexes are reattached but not built. */
+    public void loadDataAbort() {
+        batch.clear();
+        attachSecondaryIndexes();
+    }
+
     /** Stream in items to load ... */
     public void load(Node...nodes) {
         if ( nodes.length == 3 )
@@ -111,9 +162,53 @@ public class LoaderNodeTupleTable implements Closeable, Sync
         if ( nodes.length == 4 )
             countQuads++;
         count++;
-        nodeTupleTable.addRow(nodes);
+        if ( dropAndRebuildIndexes ) {
+            // Primary index only.
+            nodeTupleTable.addRow(nodes);
+            return;
+        }
+        batch.add(nodes);
+        if ( batch.size() >= BatchSize )
+            flushBatch();
     }
 
+    /**
+     * Add the batched rows. Each index is updated with the rows in the order of
+     * that index so that the changes to the B+Tree are to adjacent blocks.
+     */
+    private void flushBatch() {
+        if ( batch.isEmpty() )
+            return;
+        NodeTable nodeTable = nodeTupleTable.getNodeTable();
+        List<Tuple<NodeId>> tuples = new ArrayList<>(batch.size());
+        for ( Node[] row : batch ) {
+            NodeId[] ids = new NodeId[row.length];
+            for ( int i = 0 ; i < row.length ; i++ )
+                ids[i] = nodeTable.getAllocateNodeId(row[i]);
+            tuples.add(TupleFactory.create(ids));
+        }
+        batch.clear();
+        if ( stats == null ) {
+            nodeTupleTable.getTupleTable().addAll(tuples);
+            return;
+        }
+        // Through the statistics, in primary index order.
+        TupleMap primary = nodeTupleTable.getTupleTable().getIndex(0).getMapping();
+        tuples.sort((t1, t2) -> {
+            for ( int i = 0 ; i < t1.len() ; i++ ) {
+                int x = order.compare(primary.mapSlot(i, t1), primary.mapSlot(i, t2));
+                if ( x != 0 )
+                    return x;
+            }
+            return 0;
+        });
+        for ( Tuple<NodeId> t : tuples )
+            stats.add(nodeTupleTable, t);
+    }
+
+    private static final Comparator<NodeId> order =
+        Comparator.comparingInt(NodeId::getTypeValue).thenComparingLong(NodeId::getPtrLocation);
+
     public void sync(boolean force) {}
 
     @Override
@@ -31,6 +31,7 @@ import org.apache.jena.tdb2.loader.base.LoaderOps;
 import org.apache.jena.system.progress.MonitorOutput;
 import org.apache.jena.system.progress.ProgressMonitor;
 import org.apache.jena.system.progress.ProgressMonitorOutput;
+import org.apache.jena.tdb2.solver.stats.TransStats;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.sys.TDBInternal;
 
@@ -61,8 +62,9 @@ public class LoaderSequential extends LoaderBase {
             throw new BulkLoaderException("Not a TDB2 database");
 
         this.dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
-        this.triplesLoader = new LoaderNodeTupleTable(dsgtdb.getTripleTable().getNodeTupleTable(), output, "Triples");
-        this.quadsLoader = new LoaderNodeTupleTable(dsgtdb.getQuadTable().getNodeTupleTable(), output, "Quads");
+        TransStats stats = dsgtdb.getStats();
+        this.triplesLoader = new LoaderNodeTupleTable(dsgtdb.getTripleTable().getNodeTupleTable(), stats, output, "Triples");
+        this.quadsLoader = new LoaderNodeTupleTable(dsgtdb.getQuadTable().getNodeTupleTable(), stats, output, "Quads");
         StreamRDF s = StreamRDFLib.dataset(dsg);
         s = new StreamRDFWrapper(s) {
             @Override
@@ -85,20 +87,34 @@ public class LoaderSequential extends LoaderBase {
         //Not in a transaction.
         //dsgtdb.getTxnSystem().getTxnMgr().startExclusiveMode();
         super.startBulk();
-        triplesLoader.loadDataStart();
-        quadsLoader.loadDataStart();
+        // Indexes are shared with other transactions.
+        boolean dropIndexes = ! isCallerTransaction();
+        triplesLoader.loadDataStart(dropIndexes);
+        quadsLoader.loadDataStart(dropIndexes);
     }
 
     @Override
     public void finishBulk() {
         triplesLoader.loadDataFinish();
         quadsLoader.loadDataFinish();
+        // Tables that were empty were written directly; add their statistics.
+        // Rows added to tables with existing data have already been counted.
+        TransStats stats = dsgtdb.getStats();
+        if ( stats != null ) {
+            if ( triplesLoader.isLoadIntoEmpty() )
+                stats.addTable(dsgtdb.getTripleTable().getNodeTupleTable());
+            if ( quadsLoader.isLoadIntoEmpty() )
+                stats.addTable(dsgtdb.getQuadTable().getNodeTupleTable());
+        }
         super.finishBulk();
         //dsgtdb.getTxnSystem().getTxnMgr().finishExclusiveMode();
     }
 
     @Override
     public void finishException(Exception ex) {
+        // Put back any secondary indexes dropped for loading.
+        triplesLoader.loadDataAbort();
+        quadsLoader.loadDataAbort();
         super.finishException(ex);
         //dsgtdb.getTxnSystem().getTxnMgr().finishExclusiveMode();
     }
@@ -50,6 +50,7 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
     /*package*/ final Item<Integer>            Node2NodeIdCacheSize;
     /*package*/ final Item<Integer>            NodeId2NodeCacheSize;
     /*package*/ final Item<Integer>            NodeMissCacheSize;
+    /*package*/ final Item<Boolean>            nodeBloomFilter;
 
     /* These are items affect database layout and
      * only can be applied when a database is created.
@@ -70,6 +71,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
     /*package*/ final Item<String>             primaryIndexPrefix;
     /*package*/ final Item<String[]>           prefixIndexes;
 
+    /*package*/ final Item<Boolean>            indexLeafCompression;
+    /*package*/ final Item<Boolean>            statsIncremental;
+    /*package*/ final Item<Integer>            nodeIdInlineFormat;
+    /*package*/ final Item<Boolean>            indexCounted;
+
     /** Build StoreParams, starting from system defaults.
      *
      * @return StoreParamsBuilder
@@ -92,7 +98,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                             Item<String> primaryIndexQuads, Item<String[]> quadIndexes,
 
                             Item<String> prefixTableBasename,
-                            Item<String> primaryIndexPrefix, Item<String[]> prefixIndexes) {
+                            Item<String> primaryIndexPrefix, Item<String[]> prefixIndexes,
+
+                            Item<Boolean> indexLeafCompression, Item<Boolean> statsIncremental,
+                            Item<Boolean> nodeBloomFilter, Item<Integer> nodeIdInlineFormat,
+                            Item<Boolean> indexCounted) {
         this.fileMode               = fileMode;
         this.blockSize              = blockSize;
         this.blockReadCacheSize     = blockReadCacheSize;
@@ -111,6 +121,12 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         this.prefixIndexes          = prefixIndexes;
 
         this.prefixTableBaseName         = prefixTableBasename;
+
+        this.indexLeafCompression   = indexLeafCompression;
+        this.statsIncremental       = statsIncremental;
+        this.nodeBloomFilter        = nodeBloomFilter;
+        this.nodeIdInlineFormat     = nodeIdInlineFormat;
+        this.indexCounted           = indexCounted;
     }
 
     /** The system default settings. This is the normal set to use.
@@ -240,6 +256,60 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return prefixIndexes.value;
     }
 
+    /** Whether the records blocks of the triple, quad and prefix indexes are prefix compressed. */
+    public boolean isIndexLeafCompression() {
+        return indexLeafCompression.value;
+    }
+
+    public boolean isSetIndexLeafCompression() {
+        return indexLeafCompression.isSet;
+    }
+
+    /** Whether the statistics for query optimization are maintained as the data changes. */
+    public boolean isStatsIncremental() {
+        return statsIncremental.value;
+    }
+
+    public boolean isSetStatsIncremental() {
+        return statsIncremental.isSet;
+    }
+
+    /**
+     * The format of literal values inlined in NodeIds.
+     * @see org.apache.jena.tdb2.store.NodeIdInline
+     */
+    public int getNodeIdInlineFormat() {
+        return nodeIdInlineFormat.value;
+    }
+
+    public boolean isSetNodeIdInlineFormat() {
+        return nodeIdInlineFormat.isSet;
+    }
+
+    /**
+     * Whether the B+Trees of the triple, quad and prefix indexes keep subtree counts,
+     * so that counting a range of an index does not need to scan it.
+     * SPARQL {@code COUNT(*)} of a single pattern then uses the counts.
+     */
+    public boolean isIndexCounted() {
+        return indexCounted.value;
+    }
+
+    public boolean isSetIndexCounted() {
+        return indexCounted.isSet;
+    }
+
+    /** Whether the node table keeps a Bloom filter of its nodes to skip index lookups for new nodes. */
+    @Override
+    public boolean isNodeBloomFilter() {
+        return nodeBloomFilter.value;
+    }
+
+    @Override
+    public boolean isSetNodeBloomFilter() {
+        return nodeBloomFilter.isSet;
+    }
+
     @Override
     public String toString() {
         StringBuilder buff = new StringBuilder();
@@ -261,6 +331,12 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         fmt(buff, "primaryIndexPrefix", getPrimaryIndexPrefix(), primaryIndexPrefix.isSet);
         fmt(buff, "prefixIndexes", getPrefixIndexes(), prefixIndexes.isSet);
 
+        fmt(buff, "indexLeafCompression", Boolean.toString(isIndexLeafCompression()), indexLeafCompression.isSet);
+        fmt(buff, "statsIncremental", Boolean.toString(isStatsIncremental()), statsIncremental.isSet);
+        fmt(buff, "nodeBloomFilter", Boolean.toString(isNodeBloomFilter()), nodeBloomFilter.isSet);
+        fmt(buff, "nodeIdInlineFormat", getNodeIdInlineFormat(), nodeIdInlineFormat.isSet);
+        fmt(buff, "indexCounted", Boolean.toString(isIndexCounted()), indexCounted.isSet);
+
         return buff.toString();
     }
 
@@ -323,6 +399,16 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
             return false;
         if ( !sameValues(params1.prefixIndexes, params2.prefixIndexes) )
             return false;
+        if ( !sameValues(params1.indexLeafCompression, params2.indexLeafCompression) )
+            return false;
+        if ( !sameValues(params1.statsIncremental, params2.statsIncremental) )
+            return false;
+        if ( !sameValues(params1.nodeBloomFilter, params2.nodeBloomFilter) )
+            return false;
+        if ( !sameValues(params1.nodeIdInlineFormat, params2.nodeIdInlineFormat) )
+            return false;
+        if ( !sameValues(params1.indexCounted, params2.indexCounted) )
+            return false;
         return true;
     }
 
@@ -349,6 +435,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         result = prime * result + ((primaryIndexTriples == null) ? 0 : primaryIndexTriples.hashCode());
         result = prime * result + ((quadIndexes == null) ? 0 : quadIndexes.hashCode());
         result = prime * result + ((tripleIndexes == null) ? 0 : tripleIndexes.hashCode());
+        result = prime * result + ((indexLeafCompression == null) ? 0 : indexLeafCompression.hashCode());
+        result = prime * result + ((statsIncremental == null) ? 0 : statsIncremental.hashCode());
+        result = prime * result + ((nodeBloomFilter == null) ? 0 : nodeBloomFilter.hashCode());
+        result = prime * result + ((nodeIdInlineFormat == null) ? 0 : nodeIdInlineFormat.hashCode());
+        result = prime * result + ((indexCounted == null) ? 0 : indexCounted.hashCode());
         return result;
     }
 
@@ -436,6 +527,31 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false;
         } else if ( !tripleIndexes.equals(other.tripleIndexes) )
             return false;
+        if ( indexLeafCompression == null ) {
+            if ( other.indexLeafCompression != null )
+                return false;
+        } else if ( !indexLeafCompression.equals(other.indexLeafCompression) )
+            return false;
+        if ( statsIncremental == null ) {
+            if ( other.statsIncremental != null )
+                return false;
+        } else if ( !statsIncremental.equals(other.statsIncremental) )
+            return false;
+        if ( nodeBloomFilter == null ) {
+            if ( other.nodeBloomFilter != null )
+                return false;
+        } else if ( !nodeBloomFilter.equals(other.nodeBloomFilter) )
+            return false;
+        if ( nodeIdInlineFormat == null ) {
+            if ( other.nodeIdInlineFormat != null )
+                return false;
+        } else if ( !nodeIdInlineFormat.equals(other.nodeIdInlineFormat) )
+            return false;
+        if ( indexCounted == null ) {
+            if ( other.indexCounted != null )
+                return false;
+        } else if ( !indexCounted.equals(other.indexCounted) )
+            return false;
         return true;
     }
 }
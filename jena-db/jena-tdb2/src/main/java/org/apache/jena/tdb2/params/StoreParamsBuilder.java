@@ -94,6 +94,16 @@ public class StoreParamsBuilder {
 
     private Item<String[]>           prefixIndexes         = new Item<>(StoreParamsConst.prefixIndexes, false);
 
+    private Item<Boolean>            indexLeafCompression  = new Item<>(StoreParamsConst.indexLeafCompression, false);
+
+    private Item<Boolean>            statsIncremental      = new Item<>(StoreParamsConst.statsIncremental, false);
+
+    private Item<Boolean>            nodeBloomFilter       = new Item<>(StoreParamsConst.nodeBloomFilter, false);
+
+    private Item<Integer>            nodeIdInlineFormat    = new Item<>(StoreParamsConst.nodeIdInlineFormat, false);
+
+    private Item<Boolean>            indexCounted          = new Item<>(StoreParamsConst.indexCounted, false);
+
     public static StoreParamsBuilder create() {
         return new StoreParamsBuilder();
     }
@@ -130,6 +140,9 @@ public class StoreParamsBuilder {
         if ( additionalParams.isSetNodeMissCacheSize() )
             b.nodeMissCacheSize(additionalParams.getNodeMissCacheSize());
 
+        if ( additionalParams.isSetNodeBloomFilter() )
+            b.nodeBloomFilter(additionalParams.isNodeBloomFilter());
+
         return b.build();
     }
 
@@ -157,6 +170,12 @@ public class StoreParamsBuilder {
         this.prefixTableBaseName    = other.prefixTableBaseName;
         this.primaryIndexPrefix     = other.primaryIndexPrefix;
         this.prefixIndexes          = other.prefixIndexes;
+
+        this.indexLeafCompression   = other.indexLeafCompression;
+        this.statsIncremental       = other.statsIncremental;
+        this.nodeBloomFilter        = other.nodeBloomFilter;
+        this.nodeIdInlineFormat     = other.nodeIdInlineFormat;
+        this.indexCounted           = other.indexCounted;
     }
 
     public StoreParams build() {
@@ -167,7 +186,10 @@ public class StoreParamsBuilder {
                  primaryIndexTriples, tripleIndexes,
                  primaryIndexQuads, quadIndexes,
                  prefixTableBaseName, primaryIndexPrefix,
-                 prefixIndexes);
+                 prefixIndexes,
+                 indexLeafCompression, statsIncremental,
+                 nodeBloomFilter, nodeIdInlineFormat,
+                 indexCounted);
     }
 
     public FileMode getFileMode() {
@@ -305,5 +327,50 @@ public class StoreParamsBuilder {
        this.prefixIndexes = new Item<>(prefixIndexes, true);
        return this;
    }
+
+    public boolean getIndexLeafCompression() {
+        return indexLeafCompression.value;
+    }
+
+   public StoreParamsBuilder indexLeafCompression(boolean indexLeafCompression) {
+       this.indexLeafCompression = new Item<>(indexLeafCompression, true);
+       return this;
+   }
+
+    public boolean getStatsIncremental() {
+        return statsIncremental.value;
+    }
+
+   public StoreParamsBuilder statsIncremental(boolean statsIncremental) {
+       this.statsIncremental = new Item<>(statsIncremental, true);
+       return this;
+   }
+
+    public boolean getNodeBloomFilter() {
+        return nodeBloomFilter.value;
+    }
+
+   public StoreParamsBuilder nodeBloomFilter(boolean nodeBloomFilter) {
+       this.nodeBloomFilter = new Item<>(nodeBloomFilter, true);
+       return this;
+   }
+
+    public int getNodeIdInlineFormat() {
+        return nodeIdInlineFormat.value;
+    }
+
+   public StoreParamsBuilder nodeIdInlineFormat(int nodeIdInlineFormat) {
+       this.nodeIdInlineFormat = new Item<>(nodeIdInlineFormat, true);
+       return this;
+   }
+
+    public boolean getIndexCounted() {
+        return indexCounted.value;
+    }
+
+   public StoreParamsBuilder indexCounted(boolean indexCounted) {
+       this.indexCounted = new Item<>(indexCounted, true);
+       return this;
+   }
 }
 
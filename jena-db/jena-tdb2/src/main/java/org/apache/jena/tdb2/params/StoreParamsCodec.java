@@ -101,6 +101,11 @@ public class StoreParamsCodec {
         encode(builder, key(fPrefixTableBaseName),      params.getPrefixTableBaseName());
         encode(builder, key(fPrimaryIndexPrefix),       params.getPrimaryIndexPrefix());
         encode(builder, key(fPrefixIndexes),            params.getPrefixIndexes());
+        encode(builder, key(fIndexLeafCompression),     params.isIndexLeafCompression());
+        encode(builder, key(fStatsIncremental),         params.isStatsIncremental());
+        encode(builder, key(fNodeBloomFilter),          params.isNodeBloomFilter());
+        encode(builder, key(fNodeIdInlineFormat),       params.getNodeIdInlineFormat());
+        encode(builder, key(fIndexCounted),             params.isIndexCounted());
 
         builder.finishObject("StoreParams");
         return (JsonObject)builder.build();
@@ -144,6 +149,12 @@ public class StoreParamsCodec {
                 case fPrimaryIndexPrefix:      builder.primaryIndexPrefix(getString(json, key));           break ;
                 case fPrefixIndexes:           builder.prefixIndexes(getStringArray(json, key));           break ;
 
+                case fIndexLeafCompression:    builder.indexLeafCompression(getBoolean(json, key));        break ;
+                case fStatsIncremental:        builder.statsIncremental(getBoolean(json, key));            break ;
+                case fNodeBloomFilter:         builder.nodeBloomFilter(getBoolean(json, key));             break ;
+                case fNodeIdInlineFormat:      builder.nodeIdInlineFormat(getInt(json, key));              break ;
+                case fIndexCounted:            builder.indexCounted(getBoolean(json, key));                break ;
+
                 default:
                     throw new TDBException("StoreParams key no recognized: "+key);
             }
@@ -167,6 +178,13 @@ public class StoreParamsCodec {
         return x;
     }
 
+    private static Boolean getBoolean(JsonObject json, String key) {
+        if ( ! json.hasKey(key) )
+            throw new TDBException("StoreParamsCodec.getBoolean: no such key: "+key);
+        Boolean x = json.get(key).getAsBoolean().value();
+        return x;
+    }
+
     private static String[] getStringArray(JsonObject json, String key) {
         if ( ! json.hasKey(key) )
             throw new TDBException("StoreParamsCodec.getStringArray: no such key: "+key);
@@ -189,6 +207,10 @@ public class StoreParamsCodec {
             builder.key(name).value(value.toString());
             return;
         }
+        if ( value instanceof Boolean ) {
+            builder.key(name).value(((Boolean)value).booleanValue());
+            return;
+        }
         if ( value instanceof String[] ) {
             String[] x = (String[])value;
             builder.key(name);
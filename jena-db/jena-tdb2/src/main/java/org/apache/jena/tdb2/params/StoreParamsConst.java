@@ -75,6 +75,21 @@ public class StoreParamsConst {
     public static final String   fPrefixIndexes        = "prefix_indexes";
     public static final String[] prefixIndexes         = Names.prefixIndexes;
 
+    public static final String   fIndexLeafCompression = "index_leaf_compression";
+    public static final boolean  indexLeafCompression  = false;
+
+    public static final String   fStatsIncremental     = "stats_incremental";
+    public static final boolean  statsIncremental      = false;
+
+    public static final String   fNodeBloomFilter      = "node_bloom_filter";
+    public static final boolean  nodeBloomFilter       = false;
+
+    public static final String   fNodeIdInlineFormat   = "nodeid_inline_format";
+    public static final int      nodeIdInlineFormat    = 1;
+
+    public static final String   fIndexCounted         = "index_counted";
+    public static final boolean  indexCounted          = false;
+
     // Must be after the constants above to get initialization order right
     // because StoreParamsBuilder uses these constants.
 
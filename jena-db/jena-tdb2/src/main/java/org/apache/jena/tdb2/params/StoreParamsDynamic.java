@@ -50,5 +50,9 @@ public interface StoreParamsDynamic {
     /** Node cache for recording known misses */
     public Integer getNodeMissCacheSize();
     public boolean isSetNodeMissCacheSize();
+
+    /** Bloom filter of the nodes in the node table, for skipping the index lookup of new nodes. */
+    public boolean isNodeBloomFilter();
+    public boolean isSetNodeBloomFilter();
 }
 
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.List;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.SortCondition;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingComparator;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdInline;
+
+/**
+ * {@link BindingComparator} for bindings from TDB2 that compares sort conditions
+ * that are a variable using the NodeIds in {@link BindingTDB}s.
+ * Inline values (numbers, dates and dateTimes, booleans) are compared without
+ * going to the node table; otherwise, the comparison is done on nodes as usual.
+ * The resulting order is the same as for {@link BindingComparator}.
+ */
+public class BindingComparatorTDB extends BindingComparator
+{
+    public BindingComparatorTDB(List<SortCondition> conditions, ExecutionContext execCxt) {
+        super(conditions, execCxt);
+    }
+
+    @Override
+    protected int compare(SortCondition sc, Binding bind1, Binding bind2) {
+        if ( sc.expression != null && sc.expression.isVariable()
+             && bind1 instanceof BindingTDB && bind2 instanceof BindingTDB ) {
+            Var var = sc.expression.asVar();
+            NodeId id1 = ((BindingTDB)bind1).getNodeId(var);
+            NodeId id2 = ((BindingTDB)bind2).getNodeId(var);
+            if ( id1 != null && id2 != null ) {
+                int x = NodeIdInline.compareInline(id1, id2);
+                if ( x != Expr.CMP_INDETERMINATE ) {
+                    if ( sc.direction == Query.ORDER_DESCENDING )
+                        x = -x;
+                    return x;
+                }
+            }
+        }
+        return super.compare(sc, bind1, bind2);
+    }
+}
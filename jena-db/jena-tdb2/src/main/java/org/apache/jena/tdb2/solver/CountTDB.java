@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.op.OpBGP;
+import org.apache.jena.sparql.algebra.op.OpGroup;
+import org.apache.jena.sparql.algebra.op.OpQuadPattern;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.iterator.QueryIterSingleton;
+import org.apache.jena.sparql.expr.ExprAggregator;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.expr.aggregate.AggCount;
+import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.GraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+
+/**
+ * {@code COUNT(*)} of a single triple or quad pattern, with no {@code GROUP BY}, from the
+ * counts kept in the tuple indexes of a database with counted indexes
+ * ({@link StoreParams#isIndexCounted}). The matches of the pattern are not read.
+ * <p>
+ * This is used for {@code (group () ((?c (count))) pattern)} at the start of a query,
+ * when an index has the constants of the pattern as its leading columns. Patterns with a
+ * repeated variable, with blank nodes or RDF-star triple terms, with a variable graph or
+ * over the union graph, or when there is a tuple filter, are counted as usual.
+ */
+class CountTDB {
+
+    /** The variable for the count, if the group is {@code COUNT(*)} with no {@code GROUP BY}, else null. */
+    static Var countVar(OpGroup opGroup) {
+        if ( ! opGroup.getGroupVars().isEmpty() || opGroup.getAggregators().size() != 1 )
+            return null;
+        ExprAggregator agg = opGroup.getAggregators().get(0);
+        if ( ! ( agg.getAggregator() instanceof AggCount ) )
+            return null;
+        return agg.getVar();
+    }
+
+    /** Execute the group from the index counts, or return null if that is not possible. */
+    static QueryIterator execute(OpGroup opGroup, QueryIterator input, ExecutionContext execCxt) {
+        if ( ! input.isJoinIdentity() || QC2.getFilter(execCxt.getContext()) != null )
+            return null;
+        Var var = countVar(opGroup);
+        if ( var == null )
+            return null;
+        Op subOp = opGroup.getSubOp();
+        BasicPattern pattern;
+        NodeTupleTable ntt;
+        Node graphNode;
+        if ( subOp instanceof OpBGP ) {
+            pattern = ((OpBGP)subOp).getPattern();
+            GraphTDB graph = (GraphTDB)execCxt.getActiveGraph();
+            ntt = graph.getNodeTupleTable();
+            graphNode = ( ntt.getTupleLen() == 3 ) ? null : graph.getGraphName();
+        } else if ( subOp instanceof OpQuadPattern ) {
+            OpQuadPattern quadPattern = (OpQuadPattern)subOp;
+            pattern = quadPattern.getBasicPattern();
+            graphNode = OpExecutorTDB2.decideGraphNode(quadPattern.getGraphNode(), execCxt);
+            if ( graphNode != null && ( Node.ANY.equals(graphNode) || Var.isVar(graphNode) ) )
+                return null;
+            DatasetGraphTDB ds = (DatasetGraphTDB)execCxt.getDataset();
+            ntt = ds.chooseNodeTupleTable(graphNode);
+        } else
+            return null;
+        if ( pattern.size() != 1 || ( graphNode != null && Quad.isUnionGraph(graphNode) ) )
+            return null;
+        long count = count(ntt, graphNode, pattern.get(0));
+        if ( count < 0 )
+            return null;
+        input.close();
+        Binding binding = BindingFactory.binding(var, NodeValue.makeInteger(count).asNode());
+        return QueryIterSingleton.create(binding, execCxt);
+    }
+
+    /** The number of matches of a triple pattern, or -1 if the indexes can not count it. */
+    static long count(NodeTupleTable ntt, Node graphNode, Triple triple) {
+        Node[] nodes = ( graphNode == null )
+            ? new Node[] {triple.getSubject(), triple.getPredicate(), triple.getObject()}
+            : new Node[] {graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject()};
+        NodeTable nodeTable = ntt.getNodeTable();
+        NodeId[] ids = new NodeId[nodes.length];
+        Set<Node> vars = new HashSet<>();
+        boolean missing = false;
+        for ( int i = 0 ; i < nodes.length ; i++ ) {
+            Node n = nodes[i];
+            if ( Var.isVar(n) ) {
+                if ( ! vars.add(n) )
+                    return -1;
+                ids[i] = NodeId.NodeIdAny;
+                continue;
+            }
+            if ( n.isBlank() || n.isNodeTriple() )
+                return -1;
+            ids[i] = nodeTable.getNodeIdForNode(n);
+            if ( NodeId.isDoesNotExist(ids[i]) )
+                missing = true;
+        }
+        if ( missing )
+            return 0;
+        return ntt.getTupleTable().count(TupleFactory.create(ids));
+    }
+}
@@ -0,0 +1,664 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver;
+
+import static org.apache.jena.tdb2.sys.SystemTDB.SizeOfNodeId;
+
+import java.util.*;
+import java.util.function.Function;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorSlotted;
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.index.RangeIndex;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.engine.iterator.QueryIterRepeatApply;
+import org.apache.jena.sparql.engine.iterator.QueryIterSingleton;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.GraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+
+/**
+ * Evaluation of basic graph patterns by leapfrog triejoin over the TDB2 indexes.
+ * <p>
+ * {@link PatternMatchTDB2} evaluates a basic graph pattern as a chain of index
+ * lookups, one triple pattern at a time. For cyclic patterns, such as triangles,
+ * the intermediate results can be far larger than the final results. Leapfrog
+ * triejoin (Veldhuizen, ICDT 2014) binds one variable at a time, in a fixed order, by
+ * intersecting the sorted values of the variable from every triple pattern that uses
+ * it, so the work done is bounded by the size of the output, not by the size of
+ * the intermediate joins.
+ * <p>
+ * Each triple pattern is read from an index where its variables come in the chosen
+ * variable order. The values for a variable come from a range iterator on the index
+ * and moving forward to a value is a new range iterator, not a scan. The indexes are
+ * only the rotations of SPO (and of GSPO, SPOG) so a constant may be between two
+ * variables of a triple pattern in the index; the values of the first variable are
+ * then a superset, and are checked when the next variable is reached.
+ * <p>
+ * This is used for cyclic basic graph patterns unless the context setting
+ * {@link TDB2#symLeapfrogJoin} is false. Patterns with RDF-star triple terms,
+ * with a variable used twice in one triple pattern, over the union graph, or when
+ * there is a tuple filter, are executed by {@link PatternMatchTDB2}.
+ */
+public class LeapfrogTDB {
+    // Limit on the number of variables. Finding the variable order is a search.
+    private static final int MaxVars        = 10;
+    // Limit on the steps in the search for the variable order.
+    private static final int MaxSteps       = 10000;
+    // Records read before moving to a key with a new range iterator.
+    private static final int ScanSteps      = 4;
+
+    /**
+     * Whether a basic graph pattern is one to execute by leapfrog triejoin. The
+     * graph node is null for the default graph storage.
+     */
+    public static boolean isLeapfrogPattern(Node graphNode, BasicPattern pattern, Context context) {
+        if ( context.isFalse(TDB2.symLeapfrogJoin) || QC2.getFilter(context) != null )
+            return false;
+        if ( graphNode != null && ( Node.ANY.equals(graphNode) || Quad.isUnionGraph(graphNode) ) )
+            return false;
+        if ( pattern.size() < 2 )
+            return false;
+        Set<Var> vars = new HashSet<>();
+        for ( Triple triple : pattern ) {
+            Set<Var> tripleVars = new HashSet<>();
+            if ( Var.isVar(graphNode) )
+                tripleVars.add(Var.alloc(graphNode));
+            for ( Node n : nodes(triple) ) {
+                if ( n.isNodeTriple() )
+                    return false;
+                if ( Var.isVar(n) && !tripleVars.add(Var.alloc(n)) )
+                    return false;
+            }
+            vars.addAll(tripleVars);
+        }
+        if ( vars.size() > MaxVars )
+            return false;
+        return isCyclic(pattern);
+    }
+
+    /** Whether the triple patterns, as edges between their variables, have a cycle. */
+    static boolean isCyclic(BasicPattern pattern) {
+        // Union-find.
+        Map<Var, Var> parent = new HashMap<>();
+        for ( Triple triple : pattern ) {
+            Var first = null;
+            for ( Node n : nodes(triple) ) {
+                if ( !Var.isVar(n) )
+                    continue;
+                Var v = Var.alloc(n);
+                if ( first == null ) {
+                    first = v;
+                    continue;
+                }
+                Var r1 = root(parent, first);
+                Var r2 = root(parent, v);
+                if ( r1.equals(r2) )
+                    return true;
+                parent.put(r2, r1);
+            }
+        }
+        return false;
+    }
+
+    private static Var root(Map<Var, Var> parent, Var v) {
+        for ( Var p = parent.get(v) ; p != null ; p = parent.get(v) )
+            v = p;
+        return v;
+    }
+
+    private static Node[] nodes(Triple triple) {
+        return new Node[] {triple.getSubject(), triple.getPredicate(), triple.getObject()};
+    }
+
+    /** Execute a basic graph pattern on a graph, for each binding of the input. */
+    public static QueryIterator execute(GraphTDB graph, BasicPattern pattern, QueryIterator input, ExecutionContext execCxt) {
+        NodeTupleTable ntt = graph.getNodeTupleTable();
+        Node graphNode = ( ntt.getTupleLen() == 3 ) ? null : graph.getGraphName();
+        return new QueryIterLeapfrog(ntt, graphNode, pattern, input,
+                                     in -> PatternMatchTDB2.execute(graph, pattern, in, null, execCxt), execCxt);
+    }
+
+    /** Execute a quad pattern (not the union graph), for each binding of the input. */
+    public static QueryIterator execute(DatasetGraphTDB ds, Node graphNode, BasicPattern pattern, QueryIterator input, ExecutionContext execCxt) {
+        NodeTupleTable ntt = ds.chooseNodeTupleTable(graphNode);
+        return new QueryIterLeapfrog(ntt, graphNode, pattern, input,
+                                     in -> PatternMatchTDB2.execute(ds, graphNode, pattern, in, null, execCxt), execCxt);
+    }
+
+    private static class QueryIterLeapfrog extends QueryIterRepeatApply {
+        private final NodeTable nodeTable;
+        private final TupleTable tupleTable;
+        private final Node graphNode;
+        private final BasicPattern pattern;
+        private final Function<QueryIterator, QueryIterator> fallback;
+
+        QueryIterLeapfrog(NodeTupleTable ntt, Node graphNode, BasicPattern pattern, QueryIterator input,
+                          Function<QueryIterator, QueryIterator> fallback, ExecutionContext execCxt) {
+            super(input, execCxt);
+            this.nodeTable = ntt.getNodeTable();
+            this.tupleTable = ntt.getTupleTable();
+            this.graphNode = graphNode;
+            this.pattern = pattern;
+            this.fallback = fallback;
+        }
+
+        @Override
+        protected QueryIterator nextStage(Binding binding) {
+            Iterator<BindingNodeId> iter = leapfrog(binding);
+            if ( iter == null )
+                // No variable order fits the indexes.
+                return fallback.apply(QueryIterSingleton.create(binding, getExecContext()));
+            return QueryIterPlainWrapper.create(SolverLibTDB.convertToNodes(iter, nodeTable), getExecContext());
+        }
+
+        private Iterator<BindingNodeId> leapfrog(Binding binding) {
+            int N = tupleTable.getTupleLen();
+            BindingNodeId parent = SolverLibTDB.convert(binding, nodeTable);
+            List<Var> vars = new ArrayList<>();
+            List<NodeId[]> patternIds = new ArrayList<>();
+            List<int[]> patternVars = new ArrayList<>();
+
+            for ( Triple triple : pattern ) {
+                Node[] tuple = ( N == 3 ) ? nodes(triple)
+                    : new Node[] {graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject()};
+                NodeId[] ids = new NodeId[N];
+                int[] slotVars = new int[N];
+                boolean ground = true;
+                for ( int i = 0 ; i < N ; i++ ) {
+                    Node n = Var.lookup(binding, tuple[i]);
+                    if ( Var.isVar(n) ) {
+                        Var var = Var.alloc(n);
+                        int idx = vars.indexOf(var);
+                        if ( idx < 0 ) {
+                            idx = vars.size();
+                            vars.add(var);
+                        }
+                        slotVars[i] = idx;
+                        ground = false;
+                        continue;
+                    }
+                    NodeId id = nodeTable.getNodeIdForNode(n);
+                    if ( NodeId.isDoesNotExist(id) )
+                        return Iter.nullIterator();
+                    ids[i] = id;
+                    slotVars[i] = -1;
+                }
+                if ( ground ) {
+                    if ( !tupleTable.find(TupleFactory.create(ids)).hasNext() )
+                        return Iter.nullIterator();
+                    continue;
+                }
+                patternIds.add(ids);
+                patternVars.add(slotVars);
+            }
+            if ( vars.isEmpty() )
+                return Iter.singleton(parent);
+
+            List<TupleIndexRecord> indexes = new ArrayList<>();
+            for ( TupleIndex index : tupleTable.getIndexes() ) {
+                if ( index.baseTupleIndex() instanceof TupleIndexRecord )
+                    indexes.add((TupleIndexRecord)index.baseTupleIndex());
+            }
+            TupleMap[] maps = new TupleMap[indexes.size()];
+            for ( int i = 0 ; i < maps.length ; i++ )
+                maps[i] = indexes.get(i).getMapping();
+
+            Planner planner = new Planner(patternVars.toArray(new int[0][]), vars.size(), maps);
+            if ( !planner.plan() )
+                return null;
+
+            // One trie per triple pattern, and the tries for each variable in order.
+            int numVars = vars.size();
+            List<List<Trie>> levels = new ArrayList<>();
+            for ( int i = 0 ; i < numVars ; i++ )
+                levels.add(new ArrayList<>());
+            for ( int t = 0 ; t < patternIds.size() ; t++ ) {
+                TupleIndexRecord index = indexes.get(planner.bestIndexes[t]);
+                Trie trie = new Trie(index.getRangeIndex(), index.getMapping(), patternIds.get(t), patternVars.get(t));
+                for ( int slot : patternVars.get(t) ) {
+                    if ( slot >= 0 )
+                        levels.get(planner.position(slot)).add(trie);
+                }
+            }
+            Var[] orderVars = new Var[numVars];
+            Trie[][] orderTries = new Trie[numVars][];
+            for ( int i = 0 ; i < numVars ; i++ ) {
+                orderVars[i] = vars.get(planner.bestOrder[i]);
+                orderTries[i] = levels.get(i).toArray(new Trie[0]);
+            }
+            return new LeapfrogJoin(parent, orderVars, orderTries);
+        }
+    }
+
+    /**
+     * Choose the order of the variables. Each triple pattern needs an index where
+     * the constants are before its variables or between them, and its variables are
+     * in the order. The cost is the number of triple patterns with a constant between
+     * variables.
+     */
+    private static class Planner {
+        // For each triple pattern, the variable in each tuple slot, or -1 for a constant.
+        private final int[][] patternVars;
+        private final int numVars;
+        private final TupleMap[] maps;
+        private final int[] degree;
+        private final int[] order;
+        private final int[] position;
+        private final int[] choice;
+
+        private int[] bestOrder = null;
+        private int[] bestIndexes = null;
+        private int bestCost = Integer.MAX_VALUE;
+        private int steps = 0;
+
+        Planner(int[][] patternVars, int numVars, TupleMap[] maps) {
+            this.patternVars = patternVars;
+            this.numVars = numVars;
+            this.maps = maps;
+            this.degree = new int[numVars];
+            for ( int[] slotVars : patternVars ) {
+                for ( int v : slotVars ) {
+                    if ( v >= 0 )
+                        degree[v]++;
+                }
+            }
+            this.order = new int[numVars];
+            this.position = new int[numVars];
+            Arrays.fill(position, -1);
+            this.choice = new int[patternVars.length];
+        }
+
+        boolean plan() {
+            search(0);
+            if ( bestOrder == null )
+                return false;
+            Arrays.fill(position, -1);
+            for ( int i = 0 ; i < numVars ; i++ )
+                position[bestOrder[i]] = i;
+            return true;
+        }
+
+        int position(int var) {
+            return position[var];
+        }
+
+        private void search(int depth) {
+            if ( ++steps > MaxSteps || bestCost == 0 )
+                return;
+            // The cost can only go up as more variables are placed.
+            int cost = 0;
+            for ( int t = 0 ; t < patternVars.length ; t++ ) {
+                int c = chooseIndex(t);
+                if ( c < 0 )
+                    return;
+                cost += c;
+            }
+            if ( cost >= bestCost )
+                return;
+            if ( depth == numVars ) {
+                bestCost = cost;
+                bestOrder = order.clone();
+                bestIndexes = choice.clone();
+                return;
+            }
+            for ( int v : candidates() ) {
+                order[depth] = v;
+                position[v] = depth;
+                search(depth+1);
+                position[v] = -1;
+            }
+        }
+
+        // Variables not yet placed that are in a triple pattern with a placed variable,
+        // so there are no cross products unless the pattern is not connected.
+        // Variables used by more triple patterns first.
+        private Integer[] candidates() {
+            List<Integer> x = new ArrayList<>();
+            List<Integer> others = new ArrayList<>();
+            for ( int v = 0 ; v < numVars ; v++ ) {
+                if ( position[v] < 0 )
+                    ( connected(v) ? x : others ).add(v);
+            }
+            Integer[] vars = ( x.isEmpty() ? others : x ).toArray(new Integer[0]);
+            Arrays.sort(vars, Comparator.comparing(v -> -degree[v]));
+            return vars;
+        }
+
+        private boolean connected(int v) {
+            for ( int[] slotVars : patternVars ) {
+                boolean hasV = false;
+                boolean hasPlaced = false;
+                for ( int x : slotVars ) {
+                    if ( x == v )
+                        hasV = true;
+                    else if ( x >= 0 && position[x] >= 0 )
+                        hasPlaced = true;
+                }
+                if ( hasV && hasPlaced )
+                    return true;
+            }
+            return false;
+        }
+
+        // Choose the least cost index for a triple pattern, given the variables placed so far.
+        private int chooseIndex(int t) {
+            int cost = -1;
+            for ( int i = 0 ; i < maps.length ; i++ ) {
+                int c = cost(patternVars[t], maps[i]);
+                if ( c >= 0 && ( cost < 0 || c < cost ) ) {
+                    cost = c;
+                    choice[t] = i;
+                }
+            }
+            return cost;
+        }
+
+        // Cost of using an index for a triple pattern: -1 if it can not be used,
+        // 1 if there is a constant between variables, else 0.
+        private int cost(int[] slotVars, TupleMap map) {
+            int N = map.length();
+            // The constant after the last variable would not be checked.
+            if ( slotVars[map.mapIdx(N-1)] < 0 )
+                return -1;
+            int cost = 0;
+            boolean seenVar = false;
+            boolean seenUnplaced = false;
+            int last = -1;
+            for ( int col = 0 ; col < N ; col++ ) {
+                int v = slotVars[map.mapIdx(col)];
+                if ( v < 0 ) {
+                    if ( seenVar )
+                        cost = 1;
+                    continue;
+                }
+                seenVar = true;
+                int p = position[v];
+                if ( p < 0 ) {
+                    // Placed later than all placed variables.
+                    seenUnplaced = true;
+                    continue;
+                }
+                if ( seenUnplaced || p < last )
+                    return -1;
+                last = p;
+            }
+            return cost;
+        }
+    }
+
+    /**
+     * The trie for one triple pattern, over one index. The levels of the trie are the
+     * variables of the triple pattern in index order. At each level, the keys are the
+     * NodeIds, in the index sort order, of the variable given the keys of the levels above.
+     */
+    private static class Trie {
+        private final RangeIndex index;
+        private final RecordFactory factory;
+        // Index order key bytes: the constants, and the keys of the levels above.
+        private final byte[] prefix;
+        // The index column of each level.
+        private final int[] columns;
+
+        private int level = -1;
+        private int column = -1;
+        private Record maxRecord = null;
+        private boolean checkPrefix = false;
+        private Iterator<Record> iter = null;
+        private Record record = null;
+        private long key;
+        private boolean atEnd = false;
+
+        Trie(RangeIndex index, TupleMap map, NodeId[] ids, int[] slotVars) {
+            this.index = index;
+            this.factory = index.getRecordFactory();
+            int N = map.length();
+            this.prefix = new byte[N*SizeOfNodeId];
+            int[] cols = new int[N];
+            int numLevels = 0;
+            for ( int col = 0 ; col < N ; col++ ) {
+                int slot = map.mapIdx(col);
+                if ( slotVars[slot] < 0 )
+                    NodeIdFactory.set(ids[slot], prefix, col*SizeOfNodeId);
+                else
+                    cols[numLevels++] = col;
+            }
+            this.columns = Arrays.copyOf(cols, numLevels);
+        }
+
+        /** Go down a level, to the first key under the current key. */
+        void open() {
+            if ( level >= 0 )
+                Bytes.setLong(key, prefix, column*SizeOfNodeId);
+            level++;
+            column = columns[level];
+            maxRecord = upperBound();
+            positionAt(0);
+        }
+
+        /** Go back up a level, to the key that was current. */
+        void up() {
+            level--;
+            iter = null;
+            atEnd = false;
+            if ( level >= 0 ) {
+                column = columns[level];
+                key = Bytes.getLong(prefix, column*SizeOfNodeId);
+                maxRecord = upperBound();
+            }
+        }
+
+        /** Move to the next key. */
+        void next() {
+            if ( scanTo(key, false) )
+                return;
+            if ( key == -1L ) {
+                atEnd = true;
+                return;
+            }
+            positionAt(key+1);
+        }
+
+        /** Move to the least key that is equal to or greater than {@code x}. */
+        void seek(long x) {
+            if ( Long.compareUnsigned(x, key) <= 0 )
+                return;
+            if ( scanTo(x, true) )
+                return;
+            positionAt(x);
+        }
+
+        // Read a few records looking for a key after x (or equal to x).
+        // Return true if done, which includes reaching the end.
+        private boolean scanTo(long x, boolean inclusive) {
+            if ( iter == null )
+                return false;
+            for ( int i = 0 ; i < ScanSteps ; i++ ) {
+                if ( !step() )
+                    return true;
+                long k = Bytes.getLong(record.getKey(), column*SizeOfNodeId);
+                int c = Long.compareUnsigned(k, x);
+                if ( c > 0 || ( inclusive && c == 0 ) ) {
+                    key = k;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void positionAt(long x) {
+            Record minRecord = factory.createKeyOnly();
+            System.arraycopy(prefix, 0, minRecord.getKey(), 0, column*SizeOfNodeId);
+            Bytes.setLong(x, minRecord.getKey(), column*SizeOfNodeId);
+            iter = index.iterator(minRecord, maxRecord);
+            if ( step() )
+                key = Bytes.getLong(record.getKey(), column*SizeOfNodeId);
+        }
+
+        private boolean step() {
+            if ( iter.hasNext() ) {
+                record = iter.next();
+                if ( !checkPrefix || TupleIndexRecord.hasPrefix(record, prefix, column*SizeOfNodeId) ) {
+                    atEnd = false;
+                    return true;
+                }
+            }
+            atEnd = true;
+            iter = null;
+            return false;
+        }
+
+        // The least key after all the keys starting with the prefix (exclusive limit),
+        // or null, when the records have to be checked for the prefix.
+        private Record upperBound() {
+            int len = column*SizeOfNodeId;
+            Record r = TupleIndexRecord.prefixEnd(factory, prefix, len);
+            checkPrefix = ( r == null && len > 0 );
+            return r;
+        }
+    }
+
+    /** The leapfrog triejoin, one level for each variable. */
+    private static class LeapfrogJoin extends IteratorSlotted<BindingNodeId> {
+        private final BindingNodeId parent;
+        private final Var[] vars;
+        // The tries with the variable, at each level.
+        private final Trie[][] tries;
+        // The trie to move next, at each level.
+        private final int[] p;
+        private final long[] keys;
+        private final byte[] bytes = new byte[SizeOfNodeId];
+        private int depth = -1;
+
+        LeapfrogJoin(BindingNodeId parent, Var[] vars, Trie[][] tries) {
+            this.parent = parent;
+            this.vars = vars;
+            this.tries = tries;
+            this.p = new int[vars.length];
+            this.keys = new long[vars.length];
+        }
+
+        @Override
+        protected boolean hasMore() {
+            return true;
+        }
+
+        @Override
+        protected BindingNodeId moveToNext() {
+            if ( !advance() )
+                return null;
+            BindingNodeId b = new BindingNodeId(parent);
+            for ( int i = 0 ; i < vars.length ; i++ ) {
+                Bytes.setLong(keys[i], bytes, 0);
+                b.put(vars[i], NodeIdFactory.get(bytes, 0));
+            }
+            return b;
+        }
+
+        // Move to the next solution, searching depth first.
+        private boolean advance() {
+            int last = vars.length-1;
+            boolean found;
+            if ( depth < 0 ) {
+                depth = 0;
+                found = openLevel(0);
+            } else
+                found = nextAt(last);
+            for (;;) {
+                if ( found ) {
+                    if ( depth == last )
+                        return true;
+                    depth++;
+                    found = openLevel(depth);
+                } else {
+                    for ( Trie t : tries[depth] )
+                        t.up();
+                    if ( depth == 0 )
+                        return false;
+                    depth--;
+                    found = nextAt(depth);
+                }
+            }
+        }
+
+        private boolean openLevel(int level) {
+            Trie[] ts = tries[level];
+            for ( Trie t : ts )
+                t.open();
+            for ( Trie t : ts ) {
+                if ( t.atEnd )
+                    return false;
+            }
+            Arrays.sort(ts, (t1, t2) -> Long.compareUnsigned(t1.key, t2.key));
+            p[level] = 0;
+            return search(level);
+        }
+
+        private boolean nextAt(int level) {
+            Trie[] ts = tries[level];
+            Trie t = ts[p[level]];
+            t.next();
+            if ( t.atEnd )
+                return false;
+            p[level] = (p[level]+1) % ts.length;
+            return search(level);
+        }
+
+        // Leapfrog: move each trie in turn to the key of the one before, until they agree.
+        private boolean search(int level) {
+            Trie[] ts = tries[level];
+            int k = ts.length;
+            long max = ts[(p[level]+k-1) % k].key;
+            for (;;) {
+                Trie t = ts[p[level]];
+                if ( t.key == max ) {
+                    keys[level] = max;
+                    return true;
+                }
+                t.seek(max);
+                if ( t.atEnd )
+                    return false;
+                max = t.key;
+                p[level] = (p[level]+1) % k;
+            }
+        }
+    }
+}
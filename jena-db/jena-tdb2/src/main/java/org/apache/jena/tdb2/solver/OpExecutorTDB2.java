@@ -18,6 +18,8 @@
 
 package org.apache.jena.tdb2.solver;
 
+import java.util.Comparator;
+import java.util.Map;
 import java.util.function.Predicate;
 
 import org.apache.jena.atlas.lib.tuple.Tuple;
@@ -34,18 +36,26 @@ import org.apache.jena.sparql.core.Substitute;
 import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIterFilterExpr;
 import org.apache.jena.sparql.engine.iterator.QueryIterPeek;
+import org.apache.jena.sparql.engine.iterator.QueryIterSort;
+import org.apache.jena.sparql.engine.iterator.QueryIterTopN;
 import org.apache.jena.sparql.engine.main.OpExecutor;
 import org.apache.jena.sparql.engine.main.OpExecutorFactory;
 import org.apache.jena.sparql.engine.main.QC;
 import org.apache.jena.sparql.engine.main.iterator.QueryIterGraph;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderProc;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import org.apache.jena.sparql.expr.Expr;
 import org.apache.jena.sparql.expr.ExprList;
 import org.apache.jena.sparql.mgt.Explain;
+import org.apache.jena.tdb2.solver.stats.ReorderStatsTDB;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.GraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdRange;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -103,6 +113,59 @@ public class OpExecutorTDB2 extends OpExecutor
         return super.execute(opReduced, input);
     }
 
+    // ORDER BY and (top N) compare NodeIds where possible.
+    // Bindings stay as NodeIds and are turned into nodes later, when needed.
+
+    @Override
+    protected QueryIterator execute(OpOrder opOrder, QueryIterator input)
+    {
+        if ( ! isForTDB )
+            return super.execute(opOrder, input);
+        QueryIterator qIter = exec(opOrder.getSubOp(), input);
+        Comparator<Binding> comparator = new BindingComparatorTDB(opOrder.getConditions(), execCxt);
+        return new QueryIterSort(qIter, comparator, execCxt);
+    }
+
+    @Override
+    protected QueryIterator execute(OpTopN opTop, QueryIterator input)
+    {
+        if ( ! isForTDB )
+            return super.execute(opTop, input);
+        Comparator<Binding> comparator = new BindingComparatorTDB(opTop.getConditions(), execCxt);
+        if ( opTop.getSubOp() instanceof OpDistinct ) {
+            OpDistinct opDistinct = (OpDistinct)opTop.getSubOp();
+            QueryIterator qIter = exec(opDistinct.getSubOp(), input);
+            return new QueryIterTopN(qIter, comparator, opTop.getLimit(), true, execCxt);
+        }
+        QueryIterator qIter = exec(opTop.getSubOp(), input);
+        return new QueryIterTopN(qIter, comparator, opTop.getLimit(), false, execCxt);
+    }
+
+    // COUNT(*) of one pattern is read from counted indexes, if the database has them.
+
+    @Override
+    protected QueryIterator execute(OpGroup opGroup, QueryIterator input)
+    {
+        if ( isForTDB ) {
+            QueryIterator qIter = CountTDB.execute(opGroup, input, execCxt);
+            if ( qIter != null )
+                return qIter;
+        }
+        return super.execute(opGroup, input);
+    }
+
+    // Transitive paths over a single property are evaluated on NodeIds.
+
+    @Override
+    protected QueryIterator execute(OpPath opPath, QueryIterator input)
+    {
+        if ( ! isForTDB || ! PathLibTDB.isTransitiveLink(opPath.getTriplePath().getPath(), execCxt.getContext()) )
+            return super.execute(opPath, input);
+        GraphTDB graph = (GraphTDB)execCxt.getActiveGraph();
+        Predicate<Tuple<NodeId>> filter = QC2.getFilter(execCxt.getContext());
+        return PathLibTDB.execute(graph, opPath.getTriplePath(), filter, input, execCxt);
+    }
+
     @Override
     protected QueryIterator execute(OpFilter opFilter, QueryIterator input)
     {
@@ -195,6 +258,15 @@ public class OpExecutorTDB2 extends OpExecutor
         if ( ! input.hasNext() )
             return input;
 
+        // Cyclic patterns: leapfrog triejoin.
+        if ( LeapfrogTDB.isLeapfrogPattern(null, pattern, execCxt.getContext()) )
+            return filter(LeapfrogTDB.execute(graph, pattern, input, execCxt), exprs, execCxt);
+
+        // Subject stars with low selectivity: merge join of subject ordered scans.
+        if ( StarJoinTDB.isStarPattern(null, pattern, execCxt.getContext())
+             && StarJoinTDB.isLowSelectivity(pattern, graph.getDSG().getReorderTransform()) )
+            return filter(StarJoinTDB.execute(graph, pattern, input, execCxt), exprs, execCxt);
+
         // -- Input
         // Must pass this iterator into the next stage.
         if ( pattern.size() >= 2 )
@@ -205,7 +277,7 @@ public class OpExecutorTDB2 extends OpExecutor
             {
                 QueryIterPeek peek = QueryIterPeek.create(input, execCxt);
                 input = peek; // Must pass on
-                pattern = reorder(pattern, peek, transform);
+                pattern = reorder(pattern, peek, transform, exprs, graph.getNodeTupleTable().getNodeTable());
             }
         }
         // -- Filter placement
@@ -234,6 +306,15 @@ public class OpExecutorTDB2 extends OpExecutor
         if ( gn == null )
             return optimizeExecuteTriples(ds.getDefaultGraphTDB(), input, bgp, exprs, execCxt);
 
+        // Cyclic patterns: leapfrog triejoin.
+        if ( LeapfrogTDB.isLeapfrogPattern(gn, bgp, execCxt.getContext()) )
+            return filter(LeapfrogTDB.execute(ds, gn, bgp, input, execCxt), exprs, execCxt);
+
+        // Subject stars with low selectivity: merge join of subject ordered scans.
+        if ( StarJoinTDB.isStarPattern(gn, bgp, execCxt.getContext())
+             && StarJoinTDB.isLowSelectivity(bgp, ds.getReorderTransform()) )
+            return filter(StarJoinTDB.execute(ds, gn, bgp, input, execCxt), exprs, execCxt);
+
         // ---- Execute quads+filters
         if ( bgp.size() >= 2 )
         {
@@ -243,7 +324,7 @@ public class OpExecutorTDB2 extends OpExecutor
             {
                 QueryIterPeek peek = QueryIterPeek.create(input, execCxt);
                 input = peek; // Original input now invalid.
-                bgp = reorder(bgp, peek, transform);
+                bgp = reorder(bgp, peek, transform, exprs, ds.getQuadTable().getNodeTupleTable().getNodeTable());
             }
         }
         // -- Filter placement
@@ -256,6 +337,16 @@ public class OpExecutorTDB2 extends OpExecutor
         return plainExecute(op, input, execCxt);
     }
 
+    /** Apply the filter expressions, if any, to the results */
+    private static QueryIterator filter(QueryIterator qIter, ExprList exprs, ExecutionContext execCxt)
+    {
+        if ( exprs == null )
+            return qIter;
+        for ( Expr expr : exprs )
+            qIter = new QueryIterFilterExpr(qIter, expr, execCxt);
+        return qIter;
+    }
+
     /** Execute without modification of the op - does <b>not</b> apply special graph name translations */
     private static QueryIterator plainExecute(Op op, QueryIterator input, ExecutionContext execCxt)
     {
@@ -274,7 +365,8 @@ public class OpExecutorTDB2 extends OpExecutor
         return QC.execute(op, input, ec2);
     }
 
-    private static BasicPattern reorder(BasicPattern pattern, QueryIterPeek peek, ReorderTransformation transform)
+    private static BasicPattern reorder(BasicPattern pattern, QueryIterPeek peek, ReorderTransformation transform,
+                                        ExprList exprs, NodeTable nodeTable)
     {
         if ( transform != null )
         {
@@ -289,13 +381,22 @@ public class OpExecutorTDB2 extends OpExecutor
 
             BasicPattern pattern2 = Substitute.substitute(pattern, peek.peek() );
             // Calculate the reordering based on the substituted pattern.
-            ReorderProc proc = transform.reorderIndexes(pattern2);
+            ReorderProc proc = reorderIndexes(transform, pattern2, exprs, nodeTable);
             // Then reorder original patten
             pattern = proc.reorder(pattern);
         }
         return pattern;
     }
 
+    // The TDB2 statistics also use the numeric bounds of variables in the filters.
+    private static ReorderProc reorderIndexes(ReorderTransformation transform, BasicPattern pattern,
+                                              ExprList exprs, NodeTable nodeTable)
+    {
+        if ( exprs != null && transform instanceof ReorderStatsTDB )
+            return ((ReorderStatsTDB)transform).reorderIndexes(pattern, RangeFilterTDB.numericBounds(exprs), nodeTable);
+        return transform.reorderIndexes(pattern);
+    }
+
     /** Handle special graph node names.
      * Returns null for default graph in storage (use the triple table).
      * Returns Node.ANY for the union graph
@@ -377,8 +478,30 @@ public class OpExecutorTDB2 extends OpExecutor
             filter = QC2.getFilter(execCxt.getContext());
         }
 
+        // (filter (bgp ...)) or (filter (quadpattern ...)) as placed by TransformFilterPlacement.
+        // Range filters limit the index scans; all the filter expressions are still applied.
+        @Override
+        protected QueryIterator execute(OpFilter opFilter, QueryIterator input)
+        {
+            Op subOp = opFilter.getSubOp();
+            if ( ! ( subOp instanceof OpBGP ) && ! ( subOp instanceof OpQuadPattern ) )
+                return super.execute(opFilter, input);
+            Map<Var, NodeIdRange> ranges = RangeFilterTDB.ranges(opFilter.getExprs(), execCxt.getContext());
+            if ( ranges.isEmpty() )
+                return super.execute(opFilter, input);
+            QueryIterator qIter = ( subOp instanceof OpBGP )
+                ? execute((OpBGP)subOp, input, ranges)
+                : execute((OpQuadPattern)subOp, input, ranges);
+            return filter(qIter, opFilter.getExprs(), execCxt);
+        }
+
         @Override
         public QueryIterator execute(OpBGP opBGP, QueryIterator input)
+        {
+            return execute(opBGP, input, null);
+        }
+
+        private QueryIterator execute(OpBGP opBGP, QueryIterator input, Map<Var, NodeIdRange> ranges)
         {
             Graph g = execCxt.getActiveGraph();
 
@@ -390,7 +513,7 @@ public class OpExecutorTDB2 extends OpExecutor
                 //return SolverLib.execute((GraphTDB)g, bgp, input, filter, execCxt);
                 GraphTDB gtdb = (GraphTDB)g;
                 Node gn = decideGraphNode(gtdb.getGraphName(), execCxt);
-                return PatternMatchTDB2.execute(gtdb.getDSG(), gn, bgp, input, filter, execCxt);
+                return PatternMatchTDB2.execute(gtdb.getDSG(), gn, bgp, input, filter, ranges, execCxt);
             }
             Log.warn(this, "Non-GraphTDB passed to OpExecutorPlainTDB: "+g.getClass().getSimpleName());
             return super.execute(opBGP, input);
@@ -398,6 +521,11 @@ public class OpExecutorTDB2 extends OpExecutor
 
         @Override
         public QueryIterator execute(OpQuadPattern opQuadPattern, QueryIterator input)
+        {
+            return execute(opQuadPattern, input, null);
+        }
+
+        private QueryIterator execute(OpQuadPattern opQuadPattern, QueryIterator input, Map<Var, NodeIdRange> ranges)
         {
             Node gn = opQuadPattern.getGraphNode();
             gn = decideGraphNode(gn, execCxt);
@@ -407,7 +535,7 @@ public class OpExecutorTDB2 extends OpExecutor
                 DatasetGraphTDB ds = (DatasetGraphTDB)execCxt.getDataset();
                 Explain.explain("Execute", opQuadPattern.getPattern(), execCxt.getContext());
                 BasicPattern bgp = opQuadPattern.getBasicPattern();
-                return PatternMatchTDB2.execute(ds, gn, bgp, input, filter, execCxt);
+                return PatternMatchTDB2.execute(ds, gn, bgp, input, filter, ranges, execCxt);
             }
             // Maybe a TDB named graph inside a non-TDB dataset.
             Graph g = execCxt.getActiveGraph();
@@ -418,7 +546,7 @@ public class OpExecutorTDB2 extends OpExecutor
                 BasicPattern bgp = opQuadPattern.getBasicPattern();
                 Explain.explain("Execute", bgp, execCxt.getContext());
                 // Don't pass in G -- gn may be different.
-                return PatternMatchTDB2.execute(((GraphTDB)g).getDSG(), gn, bgp, input, filter, execCxt);
+                return PatternMatchTDB2.execute(((GraphTDB)g).getDSG(), gn, bgp, input, filter, ranges, execCxt);
             }
             Log.warn(this, "Non-DatasetGraphTDB passed to OpExecutorPlainTDB");
             return super.execute(opQuadPattern, input);
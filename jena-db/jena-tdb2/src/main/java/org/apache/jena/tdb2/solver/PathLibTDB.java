@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.TriplePath;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.engine.iterator.QueryIterRepeatApply;
+import org.apache.jena.sparql.engine.iterator.QueryIterYieldN;
+import org.apache.jena.sparql.mgt.Explain;
+import org.apache.jena.sparql.path.*;
+import org.apache.jena.sparql.pfunction.PropertyFunctionRegistry;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.tdb2.store.GraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdSet;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+
+/**
+ * Evaluation of transitive paths over one property, {@code :p+}, {@code :p*},
+ * {@code (^:p)+} and {@code (^:p)*}, for TDB2 storage.
+ * <p>
+ * The closure is calculated on NodeIds, with finds on the tuple table, and
+ * the results are {@link BindingTDB BindingTDBs} so nodes are only retrieved
+ * from the node table when needed. When both ends of the path are fixed, the search
+ * is done from both ends, expanding the smaller frontier each time.
+ * <p>
+ * Results are the same as {@link PathLib} with SPARQL semantics
+ * although the order of results may be different.
+ * Cases not covered are passed to {@link PathLib}.
+ */
+public class PathLibTDB {
+
+    /** Whether the path is one that {@link #execute} evaluates on NodeIds. */
+    public static boolean isTransitiveLink(Path path, Context context) {
+        return analyse(path, context) != null;
+    }
+
+    /**
+     * Execute a triple path for each binding of the input.
+     * The path should be one for which {@link #isTransitiveLink} is true.
+     */
+    public static QueryIterator execute(GraphTDB graph, TriplePath triplePath, Predicate<Tuple<NodeId>> filter,
+                                        QueryIterator input, ExecutionContext execCxt) {
+        return new QueryIterPathTDB(graph, triplePath, filter, input, execCxt);
+    }
+
+    private static class QueryIterPathTDB extends QueryIterRepeatApply {
+        private final GraphTDB graph;
+        private final TriplePath triplePath;
+        private final Predicate<Tuple<NodeId>> filter;
+
+        QueryIterPathTDB(GraphTDB graph, TriplePath triplePath, Predicate<Tuple<NodeId>> filter,
+                         QueryIterator input, ExecutionContext execCxt) {
+            super(input, execCxt);
+            this.graph = graph;
+            this.triplePath = triplePath;
+            this.filter = filter;
+        }
+
+        @Override
+        protected QueryIterator nextStage(Binding binding) {
+            return execTriplePath(graph, binding, triplePath, filter, getExecContext());
+        }
+    }
+
+    /** The steps of a path that is a transitive path over one property. */
+    private static class PathStep {
+        final Node property;
+        final boolean forwards;
+        final boolean zeroLength;
+        PathStep(Node property, boolean forwards, boolean zeroLength) {
+            this.property = property;
+            this.forwards = forwards;
+            this.zeroLength = zeroLength;
+        }
+    }
+
+    // Only the SPARQL forms (not the counting forms, P_OneOrMoreN, P_ZeroOrMoreN).
+    private static PathStep analyse(Path path, Context context) {
+        boolean zeroLength;
+        if ( path instanceof P_OneOrMore1 )
+            zeroLength = false;
+        else if ( path instanceof P_ZeroOrMore1 )
+            zeroLength = true;
+        else
+            return null;
+        Path subPath = ((P_Path1)path).getSubPath();
+        boolean forwards = true;
+        if ( subPath instanceof P_Inverse ) {
+            forwards = false;
+            subPath = ((P_Inverse)subPath).getSubPath();
+        }
+        if ( !(subPath instanceof P_Link) )
+            return null;
+        Node property = ((P_Link)subPath).getNode();
+        if ( !property.isURI() || PropertyFunctionRegistry.chooseRegistry(context).isRegistered(property.getURI()) )
+            return null;
+        return new PathStep(property, forwards, zeroLength);
+    }
+
+    private static QueryIterator execTriplePath(GraphTDB graph, Binding binding, TriplePath triplePath,
+                                                Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt) {
+        PathStep pathStep = analyse(triplePath.getPath(), execCxt.getContext());
+        Node s = Var.lookup(binding, triplePath.getSubject());
+        Node o = Var.lookup(binding, triplePath.getObject());
+        boolean sVar = Var.isVar(s);
+        boolean oVar = Var.isVar(o);
+
+        // Cases not handled:
+        //   No start: :p* is every node in the graph.
+        //   Both ends fixed, object a literal: PathLib counts the results with the same value.
+        if ( pathStep == null || ( sVar && oVar && pathStep.zeroLength ) || ( !sVar && !oVar && o.isLiteral() ) )
+            return PathLib.execTriplePath(binding, triplePath, execCxt);
+
+        Explain.explain(s, triplePath.getPath(), o, execCxt.getContext());
+        Closure closure = new Closure(graph, pathStep, filter);
+        NodeTable nodeTable = closure.nodeTable;
+        BindingNodeId parent = SolverLibTDB.convert(binding, nodeTable);
+
+        if ( !sVar && !oVar ) {
+            boolean b = closure.connected(s, nodeId(parent, s, nodeTable), o, nodeId(parent, o, nodeTable));
+            return new QueryIterYieldN(b ? 1 : 0, binding, execCxt);
+        }
+
+        if ( sVar && oVar ) {
+            Var var1 = Var.alloc(s);
+            Var var2 = Var.alloc(o);
+            Iterator<NodeId> starts = closure.starts();
+            Iterator<BindingNodeId> iter;
+            if ( var1.equals(var2) )
+                // Cycles.
+                iter = Iter.map(Iter.filter(starts, n -> closure.connected(n, n)), n -> extend(parent, var1, n));
+            else
+                iter = Iter.flatMap(starts, n -> {
+                    BindingNodeId b = extend(parent, var1, n);
+                    return Iter.map(closure.reachable(n).iterator(), n2 -> extend(b, var2, n2));
+                });
+            return QueryIterPlainWrapper.create(SolverLibTDB.convertToNodes(iter, nodeTable), execCxt);
+        }
+
+        // One end fixed.
+        Node start = sVar ? o : s;
+        Var endVar = Var.alloc(sVar ? s : o);
+        boolean forwards = ( sVar != pathStep.forwards );
+        NodeId startId = nodeId(parent, start, nodeTable);
+        if ( NodeId.isDoesNotExist(startId) ) {
+            // Not in the data. Only the zero length path.
+            if ( pathStep.zeroLength )
+                return QueryIterPlainWrapper.create(Iter.singleton(BindingFactory.binding(binding, endVar, start)), execCxt);
+            return QueryIterPlainWrapper.create(Iter.nullIterator(), execCxt);
+        }
+        List<NodeId> results = closure.reachable(startId, forwards);
+        Iterator<BindingNodeId> iter = Iter.map(results.iterator(), n -> extend(parent, endVar, n));
+        return QueryIterPlainWrapper.create(SolverLibTDB.convertToNodes(iter, nodeTable), execCxt);
+    }
+
+    private static NodeId nodeId(BindingNodeId binding, Node node, NodeTable nodeTable) {
+        // The binding has been looked up already (or has NodeIds from TDB2) but this may be a constant.
+        NodeId id = null;
+        if ( node.isVariable() )
+            id = binding.get(Var.alloc(node));
+        if ( id == null )
+            id = nodeTable.getNodeIdForNode(node);
+        return id;
+    }
+
+    private static BindingNodeId extend(BindingNodeId binding, Var var, NodeId nodeId) {
+        BindingNodeId b = new BindingNodeId(binding);
+        b.put(var, nodeId);
+        return b;
+    }
+
+    /** Transitive closure over one property. */
+    private static class Closure {
+        private final NodeTupleTable ntt;
+        private final NodeTable nodeTable;
+        private final Predicate<Tuple<NodeId>> filter;
+        private final boolean forwards;
+        private final boolean zeroLength;
+        // Null for the default graph (triples).
+        private final NodeId graphId;
+        private final NodeId propertyId;
+
+        Closure(GraphTDB graph, PathStep pathStep, Predicate<Tuple<NodeId>> filter) {
+            this.ntt = graph.getNodeTupleTable();
+            this.nodeTable = ntt.getNodeTable();
+            this.filter = filter;
+            this.forwards = pathStep.forwards;
+            this.zeroLength = pathStep.zeroLength;
+            Node gn = graph.getGraphName();
+            if ( gn == null || Quad.isDefaultGraph(gn) )
+                graphId = null;
+            else if ( Quad.isUnionGraph(gn) )
+                graphId = NodeId.NodeIdAny;
+            else
+                graphId = nodeTable.getNodeIdForNode(gn);
+            this.propertyId = nodeTable.getNodeIdForNode(pathStep.property);
+        }
+
+        /** Nodes one step away along the property, in the direction given. */
+        private Iterator<NodeId> step(NodeId nodeId, boolean fwd) {
+            NodeId any = NodeId.NodeIdAny;
+            NodeId s = fwd ? nodeId : any;
+            NodeId o = fwd ? any : nodeId;
+            Tuple<NodeId> pattern = ( graphId == null )
+                ? TupleFactory.create3(s, propertyId, o)
+                : TupleFactory.create4(graphId, s, propertyId, o);
+            Iterator<Tuple<NodeId>> iter = ntt.find(pattern);
+            if ( filter != null )
+                iter = Iter.filter(iter, filter);
+            int idx = ( fwd ? 2 : 0 ) + ( graphId == null ? 0 : 1 );
+            return Iter.map(iter, t -> t.get(idx));
+        }
+
+        /** Possible starting points when neither end is fixed, for a path with at least one step. */
+        Iterator<NodeId> starts() {
+            Iterator<NodeId> iter = step(NodeId.NodeIdAny, !forwards);
+            NodeIdSet seen = new NodeIdSet();
+            return Iter.filter(iter, seen::add);
+        }
+
+        /** Nodes reachable from {@code start}, in the direction of the path. */
+        List<NodeId> reachable(NodeId start) {
+            return reachable(start, forwards);
+        }
+
+        /** Nodes reachable from {@code start}, in the given direction (breadth first). */
+        List<NodeId> reachable(NodeId start, boolean fwd) {
+            NodeIdSet visited = new NodeIdSet();
+            List<NodeId> results = new ArrayList<>();
+            if ( zeroLength ) {
+                visited.add(start);
+                results.add(start);
+            } else
+                addStep(start, fwd, visited, results);
+            // results is also the queue.
+            for ( int i = 0 ; i < results.size() ; i++ )
+                addStep(results.get(i), fwd, visited, results);
+            return results;
+        }
+
+        private void addStep(NodeId nodeId, boolean fwd, NodeIdSet visited, List<NodeId> acc) {
+            step(nodeId, fwd).forEachRemaining(n -> {
+                if ( visited.add(n) )
+                    acc.add(n);
+            });
+        }
+
+        /** Whether there is a path from {@code start} to {@code end}. */
+        boolean connected(Node start, NodeId startId, Node end, NodeId endId) {
+            if ( zeroLength && start.equals(end) )
+                return true;
+            if ( NodeId.isDoesNotExist(startId) || NodeId.isDoesNotExist(endId) )
+                return false;
+            return connected(startId, endId);
+        }
+
+        /** Whether there is a path from {@code start} to {@code end}, searching from both ends. */
+        boolean connected(NodeId start, NodeId end) {
+            NodeIdSet visitedFwd = new NodeIdSet();
+            NodeIdSet visitedBwd = new NodeIdSet();
+            List<NodeId> frontierFwd = new ArrayList<>();
+            List<NodeId> frontierBwd = new ArrayList<>();
+            if ( zeroLength ) {
+                visitedFwd.add(start);
+                frontierFwd.add(start);
+            } else
+                // At least one step.
+                addStep(start, forwards, visitedFwd, frontierFwd);
+            visitedBwd.add(end);
+            frontierBwd.add(end);
+            for ( NodeId n : frontierFwd ) {
+                if ( visitedBwd.contains(n) )
+                    return true;
+            }
+            while ( !frontierFwd.isEmpty() && !frontierBwd.isEmpty() ) {
+                boolean fwd = frontierFwd.size() <= frontierBwd.size();
+                List<NodeId> frontier = fwd ? frontierFwd : frontierBwd;
+                NodeIdSet visited = fwd ? visitedFwd : visitedBwd;
+                NodeIdSet other = fwd ? visitedBwd : visitedFwd;
+                List<NodeId> next = new ArrayList<>();
+                for ( NodeId n : frontier )
+                    addStep(n, fwd == forwards, visited, next);
+                for ( NodeId n : next ) {
+                    if ( other.contains(n) )
+                        return true;
+                }
+                if ( fwd )
+                    frontierFwd = next;
+                else
+                    frontierBwd = next;
+            }
+            return false;
+        }
+    }
+}
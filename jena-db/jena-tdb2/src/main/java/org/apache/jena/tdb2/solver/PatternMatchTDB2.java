@@ -23,6 +23,7 @@ import static org.apache.jena.sparql.engine.main.solver.SolverLib.makeAbortable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 
 import org.apache.jena.atlas.iterator.Iter;
@@ -32,6 +33,7 @@ import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.sparql.core.BasicPattern;
 import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
 import org.apache.jena.sparql.engine.binding.Binding;
@@ -41,6 +43,7 @@ import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.GraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdRange;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
 
@@ -57,7 +60,7 @@ public class PatternMatchTDB2 {
     {
         // Maybe default graph or named graph.
         NodeTupleTable ntt = graph.getNodeTupleTable();
-        return execute(ntt, graph.getGraphName(), pattern, input, filter, execCxt);
+        return execute(ntt, graph.getGraphName(), pattern, input, filter, null, execCxt);
     }
 
     /** Non-reordering execution of a quad pattern, given an iterator of bindings as input.
@@ -67,9 +70,20 @@ public class PatternMatchTDB2 {
     public static QueryIterator execute(DatasetGraphTDB ds, Node graphNode, BasicPattern pattern,
                                         QueryIterator input, Predicate<Tuple<NodeId>> filter,
                                         ExecutionContext execCxt)
+    {
+        return execute(ds, graphNode, pattern, input, filter, null, execCxt);
+    }
+
+    /** Non-reordering execution of a quad pattern, with ranges for variables
+     *  (see {@link RangeFilterTDB}), given an iterator of bindings as input.
+     *  Ranges may be null.
+     */
+    public static QueryIterator execute(DatasetGraphTDB ds, Node graphNode, BasicPattern pattern,
+                                        QueryIterator input, Predicate<Tuple<NodeId>> filter,
+                                        Map<Var, NodeIdRange> ranges, ExecutionContext execCxt)
     {
         NodeTupleTable ntt = ds.chooseNodeTupleTable(graphNode);
-        return execute(ntt, graphNode, pattern, input, filter, execCxt);
+        return execute(ntt, graphNode, pattern, input, filter, ranges, execCxt);
     }
 
     // The worker.  Callers choose the NodeTupleTable.
@@ -78,7 +92,7 @@ public class PatternMatchTDB2 {
 
     private static QueryIterator execute(NodeTupleTable nodeTupleTable, Node graphNode, BasicPattern pattern,
                                          QueryIterator input, Predicate<Tuple<NodeId>> filter,
-                                         ExecutionContext execCxt)
+                                         Map<Var, NodeIdRange> ranges, ExecutionContext execCxt)
     {
         if ( Quad.isUnionGraph(graphNode) )
             graphNode = Node.ANY;
@@ -114,7 +128,7 @@ public class PatternMatchTDB2 {
             // chain = solve(nodeTupleTable, tuple, anyGraph, chain, filter, execCxt)
             // ;
             // RDF-star SA
-            chain = matchQuadPattern(chain, graphNode, triple, nodeTupleTable, patternTuple, anyGraph, filter, execCxt);
+            chain = matchQuadPattern(chain, graphNode, triple, nodeTupleTable, patternTuple, anyGraph, filter, ranges, execCxt);
 
             chain = makeAbortable(chain, killList);
         }
@@ -128,7 +142,8 @@ public class PatternMatchTDB2 {
 
     private static Iterator<BindingNodeId> matchQuadPattern(Iterator<BindingNodeId> chain, Node graphNode, Triple tPattern,
                                                             NodeTupleTable nodeTupleTable, Tuple<Node> patternTuple, boolean anyGraph,
-                                                            Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt) {
-        return SolverRX.matchQuadPattern(chain, graphNode, tPattern, nodeTupleTable, patternTuple, anyGraph, filter, execCxt);
+                                                            Predicate<Tuple<NodeId>> filter, Map<Var, NodeIdRange> ranges,
+                                                            ExecutionContext execCxt) {
+        return SolverRX.matchQuadPattern(chain, graphNode, tPattern, nodeTupleTable, patternTuple, anyGraph, filter, ranges, execCxt);
     }
 }
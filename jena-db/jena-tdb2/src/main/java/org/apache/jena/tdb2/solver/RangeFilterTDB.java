@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.expr.*;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.store.NodeIdRange;
+
+/**
+ * Range filters, such as {@code FILTER(?x > 30)}, as {@link NodeIdRange NodeIdRanges}
+ * for the variables.
+ * <p>
+ * A variable with a range is matched by scanning only the parts of an index for the
+ * range, when the variable is first bound in a basic graph pattern. Inline integers,
+ * dates and dateTimes outside the range, and inline values of other kinds, are then
+ * never read. The filter is still applied to the results.
+ * <p>
+ * This is used unless the context setting {@link TDB2#symRangeFilter} is false.
+ */
+class RangeFilterTDB {
+
+    /** The ranges for variables from the filter expressions; the map is empty if there are none. */
+    static Map<Var, NodeIdRange> ranges(ExprList exprs, Context context) {
+        Map<Var, NodeIdRange> ranges = new HashMap<>();
+        if ( exprs == null || context.isFalse(TDB2.symRangeFilter) )
+            return ranges;
+        bounds(exprs, (var, value, lower, inclusive) -> {
+            NodeIdRange range = lower ? NodeIdRange.lowerBound(value, inclusive) : NodeIdRange.upperBound(value, inclusive);
+            if ( range == null )
+                return;
+            NodeIdRange current = ranges.get(var);
+            ranges.put(var, current == null ? range : current.intersect(range));
+        });
+        return ranges;
+    }
+
+    /**
+     * The numeric bounds, as {@code {low, high}}, for variables from the filter expressions,
+     * for estimating the number of matches. The map is empty if there are none.
+     */
+    static Map<Var, double[]> numericBounds(ExprList exprs) {
+        Map<Var, double[]> bounds = new HashMap<>();
+        bounds(exprs, (var, value, lower, inclusive) -> {
+            if ( ! value.isNumber() || Double.isNaN(value.getDouble()) )
+                return;
+            double[] x = bounds.computeIfAbsent(var, v -> new double[] {Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY});
+            if ( lower )
+                x[0] = Math.max(x[0], value.getDouble());
+            else
+                x[1] = Math.min(x[1], value.getDouble());
+        });
+        return bounds;
+    }
+
+    // "lower" is for (?var > value) and (?var >= value).
+    private interface Bound {
+        void accept(Var var, NodeValue value, boolean lower, boolean inclusive);
+    }
+
+    private static void bounds(ExprList exprs, Bound action) {
+        for ( Expr expr : exprs )
+            bounds(expr, action);
+    }
+
+    private static void bounds(Expr expr, Bound action) {
+        if ( expr instanceof E_LogicalAnd ) {
+            E_LogicalAnd and = (E_LogicalAnd)expr;
+            bounds(and.getArg1(), action);
+            bounds(and.getArg2(), action);
+            return;
+        }
+        if ( expr instanceof E_GreaterThan )
+            bound((ExprFunction2)expr, true, false, action);
+        else if ( expr instanceof E_GreaterThanOrEqual )
+            bound((ExprFunction2)expr, true, true, action);
+        else if ( expr instanceof E_LessThan )
+            bound((ExprFunction2)expr, false, false, action);
+        else if ( expr instanceof E_LessThanOrEqual )
+            bound((ExprFunction2)expr, false, true, action);
+    }
+
+    private static void bound(ExprFunction2 expr, boolean lower, boolean inclusive, Bound action) {
+        Expr arg1 = expr.getArg1();
+        Expr arg2 = expr.getArg2();
+        if ( arg2.isVariable() && arg1.isConstant() ) {
+            // (value < ?var) is (?var > value).
+            Expr x = arg1;
+            arg1 = arg2;
+            arg2 = x;
+            lower = !lower;
+        }
+        if ( ! arg1.isVariable() || ! arg2.isConstant() )
+            return;
+        action.accept(arg1.asVar(), arg2.getConstant(), lower, inclusive);
+    }
+}
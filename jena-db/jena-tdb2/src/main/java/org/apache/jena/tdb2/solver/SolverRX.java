@@ -23,6 +23,7 @@ import static org.apache.jena.sparql.engine.main.solver.SolverLib.tripleHasEmbTr
 import static org.apache.jena.tdb2.solver.SolverLibTDB.convFromBinding;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -34,12 +35,14 @@ import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.sparql.core.Substitute;
+import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.binding.BindingFactory;
 import org.apache.jena.sparql.engine.main.solver.SolverRX4;
 import org.apache.jena.tdb2.lib.TupleLib;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdRange;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
 
@@ -58,10 +61,20 @@ public class SolverRX {
     static Iterator<BindingNodeId> matchQuadPattern(Iterator<BindingNodeId> chain, Node graphNode, Triple tPattern,
                                                     NodeTupleTable nodeTupleTable, Tuple<Node> patternTuple,
                                                     boolean anyGraph, Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt) {
+        return matchQuadPattern(chain, graphNode, tPattern, nodeTupleTable, patternTuple, anyGraph, filter, null, execCxt);
+    }
+
+    // Entry point from SolverLib, with ranges for variables, which may be null.
+    // Ranges are not used for patterns with RDF-star triple terms with variables.
+    /*package*/
+    static Iterator<BindingNodeId> matchQuadPattern(Iterator<BindingNodeId> chain, Node graphNode, Triple tPattern,
+                                                    NodeTupleTable nodeTupleTable, Tuple<Node> patternTuple,
+                                                    boolean anyGraph, Predicate<Tuple<NodeId>> filter,
+                                                    Map<Var, NodeIdRange> ranges, ExecutionContext execCxt) {
         if ( DATAPATH ) {
             if ( ! tripleHasEmbTripleWithVars(tPattern) )
                 // No RDF-star <<>> with variables.
-                return StageMatchTuple.access(nodeTupleTable, chain, patternTuple, filter, anyGraph, execCxt);
+                return StageMatchTuple.access(nodeTupleTable, chain, patternTuple, filter, ranges, anyGraph, execCxt);
         }
 
         // RDF-star <<>> with variables.
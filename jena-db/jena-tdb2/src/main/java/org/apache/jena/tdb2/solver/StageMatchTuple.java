@@ -20,6 +20,7 @@ package org.apache.jena.tdb2.solver;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -31,6 +32,7 @@ import org.apache.jena.graph.Node;
 import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdRange;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
 
@@ -39,13 +41,22 @@ class StageMatchTuple {
     /* Entry point */
     static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, Tuple<Node> patternTuple,
                                                  Predicate<Tuple<NodeId>> filter, boolean anyGraph, ExecutionContext execCxt) {
+        return access(nodeTupleTable, input, patternTuple, filter, null, anyGraph, execCxt);
+    }
+
+    /* Entry point, with ranges for variables, which may be null. */
+    static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, Tuple<Node> patternTuple,
+                                          Predicate<Tuple<NodeId>> filter, Map<Var, NodeIdRange> ranges,
+                                          boolean anyGraph, ExecutionContext execCxt) {
+        Map<Var, NodeIdRange> ranges2 = ( ranges == null || ranges.isEmpty() ) ? null : ranges;
         return Iter.flatMap(input, bnid -> {
-            return StageMatchTuple.access(nodeTupleTable, bnid, patternTuple, filter, anyGraph, execCxt);
+            return StageMatchTuple.access(nodeTupleTable, bnid, patternTuple, filter, ranges2, anyGraph, execCxt);
         });
     }
 
     private static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, BindingNodeId input, Tuple<Node> patternTuple,
-                                                  Predicate<Tuple<NodeId>> filter, boolean anyGraph, ExecutionContext execCxt) {
+                                                  Predicate<Tuple<NodeId>> filter, Map<Var, NodeIdRange> ranges,
+                                                  boolean anyGraph, ExecutionContext execCxt) {
         // ---- Convert to NodeIds
         NodeId ids[] = new NodeId[patternTuple.len()];
         // Variables for this tuple after substitution
@@ -56,7 +67,20 @@ class StageMatchTuple {
             // Short cut - known unknown NodeId
             return Iter.nullIterator();
 
-        Iterator<Tuple<NodeId>> iterMatches = nodeTupleTable.find(TupleFactory.create(ids));
+        // A range for a variable first bound by this pattern limits the index scan.
+        int rangeSlot = -1;
+        if ( ranges != null ) {
+            for ( int i = 0 ; i < vars.length ; i++ ) {
+                if ( vars[i] != null && ranges.containsKey(vars[i]) ) {
+                    rangeSlot = i;
+                    break;
+                }
+            }
+        }
+
+        Iterator<Tuple<NodeId>> iterMatches = ( rangeSlot < 0 )
+            ? nodeTupleTable.find(TupleFactory.create(ids))
+            : nodeTupleTable.find(TupleFactory.create(ids), rangeSlot, ranges.get(vars[rangeSlot]));
         if ( false ) {
             List<Tuple<NodeId>> x = Iter.toList(iterMatches);
             System.out.println(x);
@@ -0,0 +1,754 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.apache.jena.tdb2.sys.SystemTDB.SizeOfNodeId;
+
+import java.util.*;
+import java.util.function.Function;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorSlotted;
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.index.RangeIndex;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.engine.iterator.QueryIterRepeatApply;
+import org.apache.jena.sparql.engine.iterator.QueryIterSingleton;
+import org.apache.jena.sparql.engine.optimizer.StatsMatcher;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderWeighted;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.solver.stats.ReorderStatsTDB;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.GraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+
+/**
+ * Evaluation of subject-star basic graph patterns, such as
+ * {@code ?s :p1 ?a ; :p2 ?b ; :p3 ?c}, by a merge join of index scans in subject order.
+ * <p>
+ * {@link PatternMatchTDB2} evaluates a star as a chain of index lookups: for each match
+ * of one triple pattern, a lookup for the next triple pattern with the subject bound.
+ * When each triple pattern matches many triples, that is many random accesses to the
+ * indexes. Here, each triple pattern is read in subject order and the scans are merged
+ * on the subject, each scan moving forward to the subject of the others. Moving forward
+ * reads a few records and then starts a new range iterator, so parts of an index with
+ * subjects that can not match are skipped.
+ * <p>
+ * A triple pattern is read on its own from an index where its constants are the leading
+ * columns followed by the subject, such as POS for {@code ?s :p :o}, or PSO if the
+ * database has that index. The other triple patterns are read together, one subject at a
+ * time, from an index that starts with the subject (SPO, or GSPO for a named graph). If
+ * there are no scans of the first kind, the subjects of the most selective triple pattern
+ * are collected and sorted first (a semi-join) so that the subject scan only reads
+ * subjects that may match. If there are too many subjects for the semi-join, the star
+ * is executed by {@link PatternMatchTDB2} rather than by a scan of the whole index.
+ * <p>
+ * This is used for stars where the statistics show the triple patterns have low
+ * selectivity (see {@link #isLowSelectivity}), unless the context setting
+ * {@link TDB2#symStarJoin} is false. Stars with a variable predicate, with RDF-star
+ * triple terms, with a variable graph or over the union graph, or when there is a tuple
+ * filter, are executed by {@link PatternMatchTDB2}, as are stars where the subject is
+ * bound by the input.
+ */
+public class StarJoinTDB {
+    // Cost of an index lookup relative to reading the next record of a scan.
+    private static final int LookupCost     = 4;
+    // Records read before moving to a subject with a new range iterator.
+    private static final int ScanSteps      = 4;
+    // Limit on the number of subjects collected for the semi-join (not final, for testing).
+    /*package*/ static int MaxSemiJoin      = 1_000_000;
+
+    /**
+     * Whether a basic graph pattern is a star: at least two triple patterns, all with the
+     * same subject variable and a constant predicate, and with different object variables.
+     * The graph node is null for the default graph storage.
+     */
+    public static boolean isStarPattern(Node graphNode, BasicPattern pattern, Context context) {
+        if ( context.isFalse(TDB2.symStarJoin) || QC2.getFilter(context) != null )
+            return false;
+        if ( graphNode != null && ( Node.ANY.equals(graphNode) || Quad.isUnionGraph(graphNode) || Var.isVar(graphNode) ) )
+            return false;
+        if ( pattern.size() < 2 )
+            return false;
+        Node subject = pattern.get(0).getSubject();
+        if ( !Var.isVar(subject) )
+            return false;
+        Set<Node> objects = new HashSet<>();
+        for ( Triple triple : pattern ) {
+            Node p = triple.getPredicate();
+            Node o = triple.getObject();
+            if ( !subject.equals(triple.getSubject()) )
+                return false;
+            if ( Var.isVar(p) || p.isNodeTriple() || o.isNodeTriple() )
+                return false;
+            if ( Var.isVar(o) && ( subject.equals(o) || !objects.add(o) ) )
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Whether the statistics show that the triple patterns of a star have low selectivity:
+     * reading all the matches of every triple pattern is less work than an index lookup of
+     * each of the other triple patterns for each match of the most selective one.
+     * If the most selective triple pattern has too many matches for the semi-join, the
+     * star join may have to read the whole subject index, so the size of the index (the
+     * count in the statistics) is included in the work.
+     * This is false if there are no statistics.
+     */
+    public static boolean isLowSelectivity(BasicPattern pattern, ReorderTransformation transform) {
+        StatsMatcher stats = statsMatcher(transform);
+        if ( stats == null )
+            return false;
+        double min = Double.MAX_VALUE;
+        double sum = 0;
+        for ( Triple triple : pattern ) {
+            double w = stats.match(triple);
+            if ( w < 0 )
+                return false;
+            min = Math.min(min, w);
+            sum += w;
+        }
+        double work = sum;
+        if ( min > MaxSemiJoin ) {
+            long size = stats.getCount();
+            if ( size < 0 )
+                return false;
+            work = Math.max(sum, size);
+        }
+        return work <= LookupCost * min * (pattern.size()-1);
+    }
+
+    private static StatsMatcher statsMatcher(ReorderTransformation transform) {
+        if ( transform instanceof ReorderWeighted )
+            return ((ReorderWeighted)transform).getStatsMatcher();
+        if ( transform instanceof ReorderStatsTDB )
+            return ((ReorderStatsTDB)transform).getStatsMatcher();
+        return null;
+    }
+
+    /** Execute a star on a graph, for each binding of the input. */
+    public static QueryIterator execute(GraphTDB graph, BasicPattern pattern, QueryIterator input, ExecutionContext execCxt) {
+        NodeTupleTable ntt = graph.getNodeTupleTable();
+        Node graphNode = ( ntt.getTupleLen() == 3 ) ? null : graph.getGraphName();
+        StatsMatcher stats = statsMatcher(graph.getDSG().getReorderTransform());
+        return new QueryIterStarJoin(ntt, graphNode, pattern, stats, input,
+                                     in -> PatternMatchTDB2.execute(graph, pattern, in, null, execCxt), execCxt);
+    }
+
+    /** Execute a star quad pattern (not the union graph), for each binding of the input. */
+    public static QueryIterator execute(DatasetGraphTDB ds, Node graphNode, BasicPattern pattern, QueryIterator input, ExecutionContext execCxt) {
+        NodeTupleTable ntt = ds.chooseNodeTupleTable(graphNode);
+        StatsMatcher stats = statsMatcher(ds.getReorderTransform());
+        return new QueryIterStarJoin(ntt, graphNode, pattern, stats, input,
+                                     in -> PatternMatchTDB2.execute(ds, graphNode, pattern, in, null, execCxt), execCxt);
+    }
+
+    private static class QueryIterStarJoin extends QueryIterRepeatApply {
+        private final NodeTable nodeTable;
+        private final TupleTable tupleTable;
+        private final Node graphNode;
+        private final BasicPattern pattern;
+        // Estimated matches of each triple pattern, or -1.
+        private final double[] weights;
+        private final Function<QueryIterator, QueryIterator> fallback;
+
+        QueryIterStarJoin(NodeTupleTable ntt, Node graphNode, BasicPattern pattern, StatsMatcher stats, QueryIterator input,
+                          Function<QueryIterator, QueryIterator> fallback, ExecutionContext execCxt) {
+            super(input, execCxt);
+            this.nodeTable = ntt.getNodeTable();
+            this.tupleTable = ntt.getTupleTable();
+            this.graphNode = graphNode;
+            this.pattern = pattern;
+            this.weights = new double[pattern.size()];
+            for ( int i = 0 ; i < weights.length ; i++ )
+                weights[i] = ( stats == null ) ? -1 : stats.match(pattern.get(i));
+            this.fallback = fallback;
+        }
+
+        @Override
+        protected QueryIterator nextStage(Binding binding) {
+            Iterator<BindingNodeId> iter = starJoin(binding);
+            if ( iter == null )
+                // Subject bound, no index for the subject scan, or no semi-join to limit it.
+                return fallback.apply(QueryIterSingleton.create(binding, getExecContext()));
+            return QueryIterPlainWrapper.create(SolverLibTDB.convertToNodes(iter, nodeTable), getExecContext());
+        }
+
+        private Iterator<BindingNodeId> starJoin(Binding binding) {
+            int N = tupleTable.getTupleLen();
+            int subjectSlot = N-3;
+            int objectSlot = N-1;
+            Node s = Var.lookup(binding, pattern.get(0).getSubject());
+            if ( !Var.isVar(s) )
+                return null;
+            Var subjectVar = Var.alloc(s);
+            BindingNodeId parent = SolverLibTDB.convert(binding, nodeTable);
+
+            int numPatterns = pattern.size();
+            NodeId[][] patternIds = new NodeId[numPatterns][];
+            Var[] objectVars = new Var[numPatterns];
+            for ( int i = 0 ; i < numPatterns ; i++ ) {
+                Triple triple = pattern.get(i);
+                Node[] tuple = ( N == 3 ) ? new Node[] {s, triple.getPredicate(), triple.getObject()}
+                    : new Node[] {graphNode, s, triple.getPredicate(), triple.getObject()};
+                NodeId[] ids = new NodeId[N];
+                for ( int j = 0 ; j < N ; j++ ) {
+                    if ( j == subjectSlot )
+                        continue;
+                    Node n = Var.lookup(binding, tuple[j]);
+                    if ( Var.isVar(n) ) {
+                        objectVars[i] = Var.alloc(n);
+                        continue;
+                    }
+                    NodeId id = nodeTable.getNodeIdForNode(n);
+                    if ( NodeId.isDoesNotExist(id) )
+                        return Iter.nullIterator();
+                    ids[j] = id;
+                }
+                patternIds[i] = ids;
+            }
+
+            List<TupleIndexRecord> indexes = new ArrayList<>();
+            for ( TupleIndex index : tupleTable.getIndexes() ) {
+                if ( index.baseTupleIndex() instanceof TupleIndexRecord )
+                    indexes.add((TupleIndexRecord)index.baseTupleIndex());
+            }
+
+            List<Scan> scans = new ArrayList<>();
+            List<Integer> others = new ArrayList<>();
+            for ( int i = 0 ; i < numPatterns ; i++ ) {
+                TupleIndexRecord index = constantsFirst(indexes, patternIds[i], subjectSlot, true);
+                if ( index != null )
+                    scans.add(new PatternScan(index, patternIds[i], i, objectVars[i] == null ? -1 : objectSlot));
+                else
+                    others.add(i);
+            }
+            if ( !others.isEmpty() ) {
+                TupleIndexRecord index = subjectFirst(indexes, subjectSlot);
+                if ( index == null )
+                    return null;
+                if ( scans.isEmpty() ) {
+                    // Without the semi-join, the subject scan would read the whole index.
+                    Scan semiJoin = semiJoin(indexes, patternIds, others, subjectSlot);
+                    if ( semiJoin == null )
+                        return null;
+                    scans.add(semiJoin);
+                }
+                scans.add(new SubjectScan(index, patternIds, others, objectVars, subjectSlot, objectSlot));
+            }
+            return new StarJoin(parent, subjectVar, objectVars, scans.toArray(new Scan[0]));
+        }
+
+        // The sorted subjects of the most selective triple pattern that can be read by its constants.
+        private Scan semiJoin(List<TupleIndexRecord> indexes, NodeId[][] patternIds, List<Integer> candidates, int subjectSlot) {
+            int best = -1;
+            TupleIndexRecord bestIndex = null;
+            for ( int i : candidates ) {
+                TupleIndexRecord index = constantsFirst(indexes, patternIds[i], subjectSlot, false);
+                if ( index == null || weights[i] > MaxSemiJoin )
+                    continue;
+                if ( best < 0 || ( weights[i] >= 0 && weights[i] < weights[best] ) ) {
+                    best = i;
+                    bestIndex = index;
+                }
+            }
+            if ( best < 0 )
+                return null;
+            long[] subjects = subjects(bestIndex, patternIds[best], subjectSlot);
+            return ( subjects == null ) ? null : new SortedScan(subjects);
+        }
+    }
+
+    private static int numConstants(NodeId[] ids) {
+        int c = 0;
+        for ( NodeId id : ids ) {
+            if ( id != null )
+                c++;
+        }
+        return c;
+    }
+
+    // An index with the constants as the leading columns, and then the subject if subjectNext.
+    private static TupleIndexRecord constantsFirst(List<TupleIndexRecord> indexes, NodeId[] ids, int subjectSlot, boolean subjectNext) {
+        int c = numConstants(ids);
+        for ( TupleIndexRecord index : indexes ) {
+            TupleMap map = index.getMapping();
+            boolean ok = true;
+            for ( int col = 0 ; col < c && ok ; col++ )
+                ok = ( ids[map.mapIdx(col)] != null );
+            if ( ok && ( !subjectNext || map.mapIdx(c) == subjectSlot ) )
+                return index;
+        }
+        return null;
+    }
+
+    // An index that starts with the subject, after the graph for quads.
+    private static TupleIndexRecord subjectFirst(List<TupleIndexRecord> indexes, int subjectSlot) {
+        TupleIndexRecord result = null;
+        for ( TupleIndexRecord index : indexes ) {
+            TupleMap map = index.getMapping();
+            int col = map.unmapIdx(subjectSlot);
+            if ( col == 1 && map.mapIdx(0) == 0 )
+                // Graph, subject.
+                return index;
+            if ( col == 0 && result == null )
+                result = index;
+        }
+        return result;
+    }
+
+    // The subjects of the matches of a triple pattern, sorted in NodeId order, or null if too many.
+    private static long[] subjects(TupleIndexRecord tupleIndex, NodeId[] ids, int subjectSlot) {
+        RangeIndex index = tupleIndex.getRangeIndex();
+        TupleMap map = tupleIndex.getMapping();
+        int c = numConstants(ids);
+        int subjectCol = map.unmapIdx(subjectSlot);
+        byte[] prefix = prefix(map, ids, c);
+        Record minRecord = index.getRecordFactory().createKeyOnly();
+        System.arraycopy(prefix, 0, minRecord.getKey(), 0, prefix.length);
+        Record maxRecord = TupleIndexRecord.prefixEnd(index.getRecordFactory(), prefix, prefix.length);
+        boolean checkPrefix = ( maxRecord == null && prefix.length > 0 );
+
+        long[] subjects = new long[1024];
+        int n = 0;
+        Iterator<Record> iter = index.iterator(minRecord, maxRecord);
+        while ( iter.hasNext() ) {
+            Record r = iter.next();
+            if ( checkPrefix && !TupleIndexRecord.hasPrefix(r, prefix, prefix.length) )
+                break;
+            if ( n == MaxSemiJoin )
+                return null;
+            if ( n == subjects.length )
+                subjects = Arrays.copyOf(subjects, 2*n);
+            // Flip the sign bit so the sort is in unsigned order.
+            subjects[n++] = Bytes.getLong(r.getKey(), subjectCol*SizeOfNodeId) ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(subjects, 0, n);
+        int len = 0;
+        for ( int i = 0 ; i < n ; i++ ) {
+            if ( len == 0 || subjects[i] != subjects[len-1] )
+                subjects[len++] = subjects[i];
+        }
+        for ( int i = 0 ; i < len ; i++ )
+            subjects[i] ^= Long.MIN_VALUE;
+        return Arrays.copyOf(subjects, len);
+    }
+
+    // Key bytes for the first columns of an index, from the constants.
+    private static byte[] prefix(TupleMap map, NodeId[] ids, int columns) {
+        byte[] prefix = new byte[columns*SizeOfNodeId];
+        for ( int col = 0 ; col < columns ; col++ )
+            NodeIdFactory.set(ids[map.mapIdx(col)], prefix, col*SizeOfNodeId);
+        return prefix;
+    }
+
+    /** Subjects in NodeId order, one at a time. */
+    private static abstract class Scan {
+        protected long key;
+        protected boolean atEnd = false;
+
+        /** Move to the first subject. */
+        abstract void first();
+
+        /** Move to the next subject. */
+        abstract void next();
+
+        /** Move to the least subject that is equal to or greater than {@code x}. */
+        abstract void seek(long x);
+
+        /** Add the objects for the current subject, for each triple pattern with an object variable. */
+        void objects(List<List<NodeId>> objects) {}
+    }
+
+    /** The subjects of the semi-join. */
+    private static class SortedScan extends Scan {
+        private final long[] keys;
+        private int idx = 0;
+
+        SortedScan(long[] keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        void first() {
+            idx = 0;
+            set();
+        }
+
+        @Override
+        void next() {
+            idx++;
+            set();
+        }
+
+        @Override
+        void seek(long x) {
+            while ( idx < keys.length && Long.compareUnsigned(keys[idx], x) < 0 )
+                idx++;
+            set();
+        }
+
+        private void set() {
+            if ( idx < keys.length )
+                key = keys[idx];
+            else
+                atEnd = true;
+        }
+    }
+
+    /**
+     * The records of an index, after a prefix of constants, with the subject in the
+     * next column. The records for the current subject are read together.
+     */
+    private static abstract class IndexScan extends Scan {
+        private final RangeIndex index;
+        private final RecordFactory factory;
+        private final byte[] prefix;
+        private final int subjectCol;
+        private final Record maxRecord;
+        private final boolean checkPrefix;
+        private Iterator<Record> iter = null;
+        // The next record after the records of the current subject.
+        private Record record = null;
+        // The records of the current subject.
+        protected final List<Record> records = new ArrayList<>();
+
+        IndexScan(TupleIndexRecord tupleIndex, NodeId[] ids, int prefixLen) {
+            this.index = tupleIndex.getRangeIndex();
+            this.factory = index.getRecordFactory();
+            this.prefix = prefix(tupleIndex.getMapping(), ids, prefixLen);
+            this.subjectCol = prefixLen;
+            this.maxRecord = TupleIndexRecord.prefixEnd(factory, prefix, prefix.length);
+            this.checkPrefix = ( maxRecord == null && prefix.length > 0 );
+        }
+
+        /** Whether the records of the current subject are a match. */
+        protected boolean accept() {
+            return true;
+        }
+
+        @Override
+        void first() {
+            positionAt(0);
+        }
+
+        @Override
+        void next() {
+            readSubject();
+        }
+
+        @Override
+        void seek(long x) {
+            if ( Long.compareUnsigned(key, x) >= 0 )
+                return;
+            for ( int i = 0 ; i < ScanSteps ; i++ ) {
+                if ( record == null ) {
+                    atEnd = true;
+                    return;
+                }
+                if ( Long.compareUnsigned(subject(record), x) >= 0 ) {
+                    readSubject();
+                    return;
+                }
+                step();
+            }
+            positionAt(x);
+        }
+
+        private void positionAt(long x) {
+            Record minRecord = factory.createKeyOnly();
+            System.arraycopy(prefix, 0, minRecord.getKey(), 0, prefix.length);
+            Bytes.setLong(x, minRecord.getKey(), subjectCol*SizeOfNodeId);
+            iter = index.iterator(minRecord, maxRecord);
+            step();
+            readSubject();
+        }
+
+        // Read the records of the next subject that is accepted.
+        private void readSubject() {
+            for (;;) {
+                if ( record == null ) {
+                    atEnd = true;
+                    return;
+                }
+                key = subject(record);
+                records.clear();
+                while ( record != null && subject(record) == key ) {
+                    records.add(record);
+                    step();
+                }
+                if ( accept() )
+                    return;
+            }
+        }
+
+        private void step() {
+            record = null;
+            if ( iter.hasNext() ) {
+                Record r = iter.next();
+                if ( !checkPrefix || TupleIndexRecord.hasPrefix(r, prefix, prefix.length) )
+                    record = r;
+            }
+        }
+
+        private long subject(Record r) {
+            return Bytes.getLong(r.getKey(), subjectCol*SizeOfNodeId);
+        }
+    }
+
+    /** One triple pattern, from an index with its constants then the subject. */
+    private static class PatternScan extends IndexScan {
+        private final int pattern;
+        private final int objectCol;
+
+        PatternScan(TupleIndexRecord tupleIndex, NodeId[] ids, int pattern, int objectSlot) {
+            super(tupleIndex, ids, numConstants(ids));
+            this.pattern = pattern;
+            this.objectCol = ( objectSlot < 0 ) ? -1 : tupleIndex.getMapping().unmapIdx(objectSlot);
+        }
+
+        @Override
+        void objects(List<List<NodeId>> objects) {
+            if ( objectCol < 0 )
+                return;
+            for ( Record r : records )
+                objects.get(pattern).add(NodeIdFactory.get(r.getKey(), objectCol*SizeOfNodeId));
+        }
+    }
+
+    /**
+     * Triple patterns from an index that starts with the subject (after the graph).
+     * A subject is accepted if there is a match of each triple pattern.
+     */
+    private static class SubjectScan extends IndexScan {
+        private final int[] patterns;
+        // For each triple pattern, the columns of the constants not in the prefix, and their values.
+        private final int[][] checkCols;
+        private final long[][] checkValues;
+        private final int[] objectCols;
+
+        SubjectScan(TupleIndexRecord tupleIndex, NodeId[][] patternIds, List<Integer> patterns, Var[] objectVars,
+                    int subjectSlot, int objectSlot) {
+            // The prefix is the graph, if any, which is the same for all the triple patterns.
+            super(tupleIndex, patternIds[patterns.get(0)], tupleIndex.getMapping().unmapIdx(subjectSlot));
+            TupleMap map = tupleIndex.getMapping();
+            int prefixLen = map.unmapIdx(subjectSlot);
+            int n = patterns.size();
+            this.patterns = new int[n];
+            this.checkCols = new int[n][];
+            this.checkValues = new long[n][];
+            this.objectCols = new int[n];
+            byte[] bytes = new byte[SizeOfNodeId];
+            for ( int j = 0 ; j < n ; j++ ) {
+                int i = patterns.get(j);
+                this.patterns[j] = i;
+                NodeId[] ids = patternIds[i];
+                int[] cols = new int[ids.length];
+                long[] values = new long[ids.length];
+                int k = 0;
+                for ( int col = prefixLen+1 ; col < ids.length ; col++ ) {
+                    NodeId id = ids[map.mapIdx(col)];
+                    if ( id == null )
+                        continue;
+                    NodeIdFactory.set(id, bytes, 0);
+                    cols[k] = col;
+                    values[k] = Bytes.getLong(bytes, 0);
+                    k++;
+                }
+                checkCols[j] = Arrays.copyOf(cols, k);
+                checkValues[j] = Arrays.copyOf(values, k);
+                objectCols[j] = ( objectVars[i] == null ) ? -1 : map.unmapIdx(objectSlot);
+            }
+        }
+
+        @Override
+        protected boolean accept() {
+            for ( int j = 0 ; j < patterns.length ; j++ ) {
+                boolean found = false;
+                for ( Record r : records ) {
+                    if ( matches(j, r) ) {
+                        found = true;
+                        break;
+                    }
+                }
+                if ( !found )
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        void objects(List<List<NodeId>> objects) {
+            for ( int j = 0 ; j < patterns.length ; j++ ) {
+                if ( objectCols[j] < 0 )
+                    continue;
+                for ( Record r : records ) {
+                    if ( matches(j, r) )
+                        objects.get(patterns[j]).add(NodeIdFactory.get(r.getKey(), objectCols[j]*SizeOfNodeId));
+                }
+            }
+        }
+
+        private boolean matches(int j, Record r) {
+            byte[] k = r.getKey();
+            for ( int x = 0 ; x < checkCols[j].length ; x++ ) {
+                if ( Bytes.getLong(k, checkCols[j][x]*SizeOfNodeId) != checkValues[j][x] )
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /** Merge the scans on the subject, and for each subject, all the combinations of the objects. */
+    private static class StarJoin extends IteratorSlotted<BindingNodeId> {
+        private final BindingNodeId parent;
+        private final Var subjectVar;
+        private final Var[] objectVars;
+        private final Scan[] scans;
+        private final List<List<NodeId>> objects = new ArrayList<>();
+        private final int[] choice;
+        private final byte[] bytes = new byte[SizeOfNodeId];
+        private boolean started = false;
+        private boolean inSubject = false;
+        private NodeId subject = null;
+
+        StarJoin(BindingNodeId parent, Var subjectVar, Var[] objectVars, Scan[] scans) {
+            this.parent = parent;
+            this.subjectVar = subjectVar;
+            this.objectVars = objectVars;
+            this.scans = scans;
+            for ( int i = 0 ; i < objectVars.length ; i++ )
+                objects.add(new ArrayList<>());
+            this.choice = new int[objectVars.length];
+        }
+
+        @Override
+        protected boolean hasMore() {
+            return true;
+        }
+
+        @Override
+        protected BindingNodeId moveToNext() {
+            if ( inSubject && nextChoice() )
+                return binding();
+            inSubject = false;
+            for (;;) {
+                if ( !nextSubject() )
+                    return null;
+                for ( List<NodeId> x : objects )
+                    x.clear();
+                for ( Scan scan : scans )
+                    scan.objects(objects);
+                if ( hasObjects() )
+                    break;
+            }
+            Arrays.fill(choice, 0);
+            inSubject = true;
+            return binding();
+        }
+
+        private boolean hasObjects() {
+            for ( int i = 0 ; i < objectVars.length ; i++ ) {
+                if ( objectVars[i] != null && objects.get(i).isEmpty() )
+                    return false;
+            }
+            return true;
+        }
+
+        // The next combination of objects for the current subject.
+        private boolean nextChoice() {
+            for ( int i = objectVars.length-1 ; i >= 0 ; i-- ) {
+                if ( objectVars[i] == null )
+                    continue;
+                if ( ++choice[i] < objects.get(i).size() )
+                    return true;
+                choice[i] = 0;
+            }
+            return false;
+        }
+
+        private BindingNodeId binding() {
+            BindingNodeId b = new BindingNodeId(parent);
+            b.put(subjectVar, subject);
+            for ( int i = 0 ; i < objectVars.length ; i++ ) {
+                if ( objectVars[i] != null )
+                    b.put(objectVars[i], objects.get(i).get(choice[i]));
+            }
+            return b;
+        }
+
+        // Move every scan to the next subject they all have.
+        private boolean nextSubject() {
+            if ( !started ) {
+                started = true;
+                for ( Scan scan : scans ) {
+                    scan.first();
+                    if ( scan.atEnd )
+                        return false;
+                }
+            } else {
+                scans[0].next();
+                if ( scans[0].atEnd )
+                    return false;
+            }
+            for (;;) {
+                long max = scans[0].key;
+                for ( Scan scan : scans ) {
+                    if ( Long.compareUnsigned(scan.key, max) > 0 )
+                        max = scan.key;
+                }
+                boolean agree = true;
+                for ( Scan scan : scans ) {
+                    if ( scan.key == max )
+                        continue;
+                    scan.seek(max);
+                    if ( scan.atEnd )
+                        return false;
+                    if ( scan.key != max )
+                        agree = false;
+                }
+                if ( agree ) {
+                    Bytes.setLong(max, bytes, 0);
+                    subject = NodeIdFactory.get(bytes, 0);
+                    return true;
+                }
+            }
+        }
+    }
+}
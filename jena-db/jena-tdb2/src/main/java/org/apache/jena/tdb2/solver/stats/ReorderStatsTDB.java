@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver.stats;
+
+import java.util.Map;
+
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.optimizer.StatsMatcher;
+import org.apache.jena.sparql.engine.optimizer.reorder.PatternTriple;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderProc;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderWeighted;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+
+/**
+ * Reorder basic graph patterns using the statistics maintained by {@link TransStats}.
+ * The weighted reorder is rebuilt, when next used, after the planning statistics
+ * change ({@link TransStats#getPlanningMatcher}), not on every commit.
+ */
+public class ReorderStatsTDB implements ReorderTransformation {
+
+    private final TransStats stats;
+
+    // Statistics and the reorder made from them, replaced together.
+    private static class Cached {
+        final StatsMatcher matcher;
+        final StatsTDB stats;
+        final ReorderTransformation reorder;
+        Cached(StatsMatcher matcher, StatsTDB stats) {
+            this.matcher = matcher;
+            this.stats = stats;
+            this.reorder = new ReorderWeighted(matcher);
+        }
+    }
+    private volatile Cached cached = null;
+
+    public ReorderStatsTDB(TransStats stats) {
+        this.stats = stats;
+    }
+
+    private Cached cached() {
+        StatsMatcher matcher = stats.getPlanningMatcher();
+        Cached c = cached;
+        if ( c == null || c.matcher != matcher ) {
+            c = new Cached(matcher, stats.getPlanningStats());
+            cached = c;
+        }
+        return c;
+    }
+
+    private ReorderTransformation reorder() {
+        return cached().reorder;
+    }
+
+    /** The statistics, as used for the reorder weights. */
+    public StatsMatcher getStatsMatcher() {
+        return cached().matcher;
+    }
+
+    @Override
+    public ReorderProc reorderIndexes(BasicPattern pattern) {
+        return reorder().reorderIndexes(pattern);
+    }
+
+    @Override
+    public BasicPattern reorder(BasicPattern pattern) {
+        return reorder().reorder(pattern);
+    }
+
+    /**
+     * Reorder, with numeric bounds, {@code {low, high}}, for variables from filters.
+     * A pattern {@code (?s <p> ?o)} where {@code ?o} has bounds is weighted by the
+     * estimate from the histogram of numeric values of {@code <p>}, if that is less.
+     */
+    public ReorderProc reorderIndexes(BasicPattern pattern, Map<Var, double[]> bounds, NodeTable nodeTable) {
+        if ( bounds.isEmpty() )
+            return reorderIndexes(pattern);
+        Cached c = cached();
+        return new ReorderBounds(c.matcher, c.stats, bounds, nodeTable).reorderIndexes(pattern);
+    }
+
+    private static class ReorderBounds extends ReorderWeighted {
+        private final StatsTDB stats;
+        private final Map<Var, double[]> bounds;
+        private final NodeTable nodeTable;
+
+        ReorderBounds(StatsMatcher matcher, StatsTDB stats, Map<Var, double[]> bounds, NodeTable nodeTable) {
+            super(matcher);
+            this.stats = stats;
+            this.bounds = bounds;
+            this.nodeTable = nodeTable;
+        }
+
+        @Override
+        protected double weight(PatternTriple pTriple) {
+            double w = super.weight(pTriple);
+            if ( w < 0 || ! pTriple.predicate.isNodeURI() || ! pTriple.object.isNode() || ! pTriple.object.isVar() )
+                return w;
+            double[] b = bounds.get(Var.alloc(pTriple.object.getNode()));
+            if ( b == null )
+                return w;
+            NodeId p = nodeTable.getNodeIdForNode(pTriple.predicate.getNode());
+            if ( NodeId.isDoesNotExist(p) )
+                return w;
+            double x = stats.estimateRange(p, b[0], b[1]);
+            return x < 0 ? w : Math.min(w, x);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.jena.atlas.lib.DateTimeUtils;
 import org.apache.jena.atlas.logging.Log;
@@ -47,28 +48,18 @@ public class Stats
 
     /** Write statistics */
     static public void write(String filename, StatsResults stats)
-    {
-        write(filename, stats.getPredicates(), stats.getTypes(), stats.getCount());
-    }
-
-    /** Write statistics */
-    static public void write(OutputStream output, StatsResults stats)
-    {
-        write(output, stats.getPredicates(), stats.getTypes(), stats.getCount());
-    }
-
-    static private void write(String filename, Map<Node, Integer> predicateStats, Map<Node, Integer> typeStats, long statsTotal)
     {
         // Write out the stats
         try (OutputStream statsOut = new BufferedOutputStream(new FileOutputStream(filename))) {
-            write(statsOut, predicateStats, typeStats, statsTotal);
+            write(statsOut, stats);
         } catch (IOException ex)
         { Log.warn(Stats.class, "Problem when writing stats file", ex); }
     }
 
-    static private void write(OutputStream output, Map<Node, Integer> predicateStats, Map<Node, Integer> typeStats, long statsTotal)
+    /** Write statistics */
+    static public void write(OutputStream output, StatsResults stats)
     {
-        Item item = format(predicateStats, typeStats, statsTotal);
+        Item item = format(stats);
         ItemWriter.write(output, item);
     }
 
@@ -88,13 +79,12 @@ public class Stats
         return stats;
     }
 
-    public static Item format(StatsResults stats)
+    public static Item format(StatsResults results)
     {
-        return format(stats.getPredicates(), stats.getTypes(), stats.getCount());
-    }
+        Map<Node, Integer> predicates = results.getPredicates();
+        Map<Node, Integer> types = results.getTypes();
+        long count = results.getCount();
 
-    private static Item format(Map<Node, Integer> predicates, Map<Node, Integer> types, long count)
-    {
         Item stats = Item.createList();
         ItemList statsList = stats.getList();
         statsList.add("stats");
@@ -118,7 +108,34 @@ public class Stats
             // Skip these - they just clog things up!
             if ( node.getURI().startsWith("http://www.w3.org/1999/02/22-rdf-syntax-ns#_") )
                 continue;
-            addPair(statsList, node, NodeFactoryExtra.intToNode(entry.getValue()));
+            Long subjects = results.getSubjects().get(node);
+            Long objects = results.getObjects().get(node);
+            if ( subjects == null && objects == null ) {
+                addPair(statsList, node, NodeFactoryExtra.intToNode(entry.getValue()));
+                continue;
+            }
+            // (<p> count (subjects N) (objects M))
+            Item elt = Item.createList();
+            elt.getList().add(node);
+            elt.getList().add(NodeFactoryExtra.intToNode(entry.getValue()));
+            if ( subjects != null )
+                addPair(elt.getList(), StatsMatcher.SUBJECTS, NodeFactoryExtra.intToNode(subjects.longValue()));
+            if ( objects != null )
+                addPair(elt.getList(), StatsMatcher.OBJECTS, NodeFactoryExtra.intToNode(objects.longValue()));
+            statsList.add(elt);
+        }
+
+        for ( Entry<Set<Node>, Long> entry : results.getCharacteristicSets().entrySet() )
+        {
+            // Only sets of two or more predicates are used.
+            if ( entry.getKey().size() < 2 )
+                continue;
+            // (cset count <p1> <p2> ...)
+            Item elt = Item.createList();
+            elt.getList().add(StatsMatcher.CSET);
+            elt.getList().add(NodeFactoryExtra.intToNode(entry.getValue().longValue()));
+            entry.getKey().forEach(p->elt.getList().add(p));
+            statsList.add(elt);
         }
 
         // Add a default rule.
@@ -18,7 +18,9 @@
 
 package org.apache.jena.tdb2.solver.stats;
 
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.jena.graph.Node;
 
@@ -28,12 +30,25 @@ public class StatsResults
     private final Map<Node, Integer> predicates;
     private final Map<Node, Integer> types;
     private final long count;
+    // Optional: empty if not calculated.
+    private final Map<Node, Long> subjects;
+    private final Map<Node, Long> objects;
+    private final Map<Set<Node>, Long> characteristicSets;
 
     StatsResults(Map<Node, Integer> predicates, Map<Node, Integer> types, long count)
+    {
+        this(predicates, types, count, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    StatsResults(Map<Node, Integer> predicates, Map<Node, Integer> types, long count,
+                 Map<Node, Long> subjects, Map<Node, Long> objects, Map<Set<Node>, Long> characteristicSets)
     {
         this.count = count;
         this.predicates = predicates;
         this.types = types;
+        this.subjects = subjects;
+        this.objects = objects;
+        this.characteristicSets = characteristicSets;
     }
 
     public Map<Node, Integer> getPredicates()
@@ -50,4 +65,22 @@ public class StatsResults
     {
         return count;
     }
+
+    /** Number of distinct subjects for each predicate. */
+    public Map<Node, Long> getSubjects()
+    {
+        return subjects;
+    }
+
+    /** Number of distinct objects for each predicate. */
+    public Map<Node, Long> getObjects()
+    {
+        return objects;
+    }
+
+    /** Characteristic sets: the number of subjects with exactly the set of predicates. */
+    public Map<Set<Node>, Long> getCharacteristicSets()
+    {
+        return characteristicSets;
+    }
 }
@@ -0,0 +1,483 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver.stats;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.Map.Entry;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.NodeIdInline;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.sys.SystemTDB;
+
+/**
+ * Statistics of a TDB2 database, kept in terms of NodeIds.
+ * <ul>
+ * <li>The total number of triples and quads.
+ * <li>For each predicate: the number of triples, the number of distinct subjects,
+ *     the number of distinct objects and, if there are any inline numbers as objects,
+ *     a histogram of the numeric values.
+ * <li>The number of instances of each {@code rdf:type} class.
+ * <li>Characteristic sets: the number of subjects with exactly a given set of predicates.
+ * </ul>
+ * The same class is used for the changes made by a write transaction,
+ * when the counts can be negative.
+ * <p>
+ * At most {@link #MaxCharacteristicSets} characteristic sets are kept; when there
+ * are more, the ones with the fewest subjects are dropped.
+ * <p>
+ * The histogram buckets are on a log scale: zero, then, for each sign,
+ * magnitudes (0,1), [1,2), [2,4), ... up to 2<sup>62</sup> and above.
+ */
+public class StatsTDB {
+    /** The maximum number of characteristic sets kept. */
+    public static final int MaxCharacteristicSets = 10_000;
+    // Prune to this size so that pruning is not done on every commit.
+    private static final int PruneCharacteristicSets = MaxCharacteristicSets - MaxCharacteristicSets/10;
+    // A change of more than 1/MaterialChange of a count is a material change.
+    private static final int MaterialChange = 10;
+    /** Number of buckets in a numeric histogram. */
+    public static final int HistogramSize = 129;
+    private static final int ZeroBucket = 64;
+    private static final int MaxMagnitude = 63;
+    // Version 2 is without histograms.
+    private static final int FormatVersion = 3;
+
+    /** Counts for one predicate */
+    static class PredicateStats {
+        long count;
+        long subjects;
+        long objects;
+        // Null until there is a numeric object.
+        long[] histogram;
+
+        PredicateStats copy() {
+            PredicateStats ps = new PredicateStats();
+            ps.add(this);
+            return ps;
+        }
+
+        void add(PredicateStats other) {
+            count += other.count;
+            subjects += other.subjects;
+            objects += other.objects;
+            if ( other.histogram != null ) {
+                if ( histogram == null )
+                    histogram = new long[HistogramSize];
+                for ( int i = 0; i < HistogramSize ; i++ )
+                    histogram[i] += other.histogram[i];
+            }
+        }
+
+        boolean isEmpty() {
+            return count == 0 && subjects == 0 && objects == 0
+                && ( histogram == null || Arrays.stream(histogram).allMatch(x -> x == 0) );
+        }
+    }
+
+    /** A set of predicates, as NodeIds in sorted order. */
+    static final class PredicateSet {
+        // Order by type, then value.
+        private static final Comparator<NodeId> order =
+            Comparator.comparingInt(NodeId::getTypeValue).thenComparingLong(NodeId::getPtrLocation);
+        private final NodeId[] predicates;
+        private final int hash;
+
+        static PredicateSet create(Collection<NodeId> predicates) {
+            NodeId[] x = predicates.toArray(new NodeId[predicates.size()]);
+            Arrays.sort(x, order);
+            return new PredicateSet(x);
+        }
+
+        private PredicateSet(NodeId[] predicates) {
+            this.predicates = predicates;
+            this.hash = Arrays.hashCode(predicates);
+        }
+
+        int size() { return predicates.length; }
+
+        @Override
+        public int hashCode() { return hash; }
+
+        @Override
+        public boolean equals(Object obj) {
+            if ( this == obj )
+                return true;
+            if ( !(obj instanceof PredicateSet) )
+                return false;
+            PredicateSet other = (PredicateSet)obj;
+            return hash == other.hash && Arrays.equals(predicates, other.predicates);
+        }
+
+        @Override
+        public String toString() { return Arrays.toString(predicates); }
+    }
+
+    private long count = 0;
+    private final Map<NodeId, PredicateStats> predicates = new HashMap<>();
+    private final Map<NodeId, Long> types = new HashMap<>();
+    private final Map<PredicateSet, Long> characteristicSets = new HashMap<>();
+
+    public StatsTDB() {}
+
+    /** The total number of triples and quads. */
+    public long getCount() {
+        return count;
+    }
+
+    /** The number of triples and quads with predicate {@code p}. */
+    public long getCount(NodeId p) {
+        PredicateStats ps = predicates.get(p);
+        return ps == null ? 0 : ps.count;
+    }
+
+    /** The number of distinct subjects of predicate {@code p}. */
+    public long getSubjects(NodeId p) {
+        PredicateStats ps = predicates.get(p);
+        return ps == null ? 0 : ps.subjects;
+    }
+
+    /** The number of distinct objects of predicate {@code p}. */
+    public long getObjects(NodeId p) {
+        PredicateStats ps = predicates.get(p);
+        return ps == null ? 0 : ps.objects;
+    }
+
+    /** The number of instances of a class (triples and quads {@code rdf:type} the class). */
+    public long getTypeCount(NodeId type) {
+        return types.getOrDefault(type, 0L);
+    }
+
+    /** The number of subjects that have exactly the given set of predicates. */
+    public long getCharacteristicSetCount(Collection<NodeId> predicates) {
+        return characteristicSets.getOrDefault(PredicateSet.create(predicates), 0L);
+    }
+
+    /** The number of different characteristic sets. */
+    public int getCharacteristicSetsSize() {
+        return characteristicSets.size();
+    }
+
+    /**
+     * Estimate of the number of triples and quads with predicate {@code p} and an
+     * inline numeric object in the range {@code low} to {@code high} (inclusive).
+     * Values are assumed to be evenly spread within a bucket of the histogram.
+     * Return -1 if there is no histogram for the predicate.
+     */
+    public double estimateRange(NodeId p, double low, double high) {
+        PredicateStats ps = predicates.get(p);
+        if ( ps == null || ps.histogram == null )
+            return -1;
+        double x = 0;
+        for ( int i = 0; i < HistogramSize ; i++ ) {
+            long c = ps.histogram[i];
+            if ( c <= 0 )
+                continue;
+            if ( i == ZeroBucket ) {
+                if ( low <= 0 && 0 <= high )
+                    x += c;
+                continue;
+            }
+            double bucketLow = bucketLow(i);
+            double bucketHigh = bucketHigh(i);
+            double a = Math.max(low, bucketLow);
+            double b = Math.min(high, bucketHigh);
+            if ( a > b )
+                continue;
+            x += c * (b - a) / (bucketHigh - bucketLow);
+        }
+        return x;
+    }
+
+    /** The histogram bucket for a number, or -1 for NaN. */
+    static int bucket(double v) {
+        if ( Double.isNaN(v) )
+            return -1;
+        if ( v == 0 )
+            return ZeroBucket;
+        int m = magnitude(Math.abs(v));
+        return v > 0 ? ZeroBucket + 1 + m : ZeroBucket - 1 - m;
+    }
+
+    // 0 is (0,1); m is [2^(m-1), 2^m); MaxMagnitude is [2^62, infinity)
+    private static int magnitude(double x) {
+        if ( x < 1 )
+            return 0;
+        return Math.min(MaxMagnitude, Math.getExponent(x) + 1);
+    }
+
+    private static double magnitudeLow(int m) {
+        return m == 0 ? 0 : Math.scalb(1.0, m - 1);
+    }
+
+    private static double magnitudeHigh(int m) {
+        return m == MaxMagnitude ? Double.MAX_VALUE : Math.scalb(1.0, m);
+    }
+
+    private static double bucketLow(int bucket) {
+        if ( bucket > ZeroBucket )
+            return magnitudeLow(bucket - ZeroBucket - 1);
+        return -magnitudeHigh(ZeroBucket - 1 - bucket);
+    }
+
+    private static double bucketHigh(int bucket) {
+        if ( bucket > ZeroBucket )
+            return magnitudeHigh(bucket - ZeroBucket - 1);
+        return -magnitudeLow(ZeroBucket - 1 - bucket);
+    }
+
+    // ---- Changes
+
+    /**
+     * Record adding ({@code delta} is 1) or removing ({@code delta} is -1) a triple or quad,
+     * with changes to the number of distinct subjects and objects for the predicate.
+     */
+    void record(NodeId p, NodeId o, boolean isType, int delta, int deltaSubjects, int deltaObjects) {
+        count += delta;
+        PredicateStats ps = predicates.computeIfAbsent(p, x->new PredicateStats());
+        ps.count += delta;
+        ps.subjects += deltaSubjects;
+        ps.objects += deltaObjects;
+        if ( isType )
+            types.merge(o, (long)delta, Long::sum);
+        if ( NodeId.isInline(o) ) {
+            int b = bucket(NodeIdInline.numericValue(o));
+            if ( b >= 0 ) {
+                if ( ps.histogram == null )
+                    ps.histogram = new long[HistogramSize];
+                ps.histogram[b] += delta;
+            }
+        }
+    }
+
+    /** Record a change of the number of distinct subjects and objects for a predicate. */
+    void recordDistinct(NodeId p, long deltaSubjects, long deltaObjects) {
+        PredicateStats ps = predicates.computeIfAbsent(p, x->new PredicateStats());
+        ps.subjects += deltaSubjects;
+        ps.objects += deltaObjects;
+    }
+
+    /** Record a subject changing from having the predicates {@code before} to the predicates {@code after}. */
+    void recordCharacteristicSet(PredicateSet before, PredicateSet after) {
+        if ( before.equals(after) )
+            return;
+        if ( before.size() > 0 )
+            characteristicSets.merge(before, -1L, Long::sum);
+        if ( after.size() > 0 )
+            characteristicSets.merge(after, 1L, Long::sum);
+    }
+
+    /** Return new statistics: these statistics with the changes applied. */
+    StatsTDB merge(StatsTDB changes) {
+        StatsTDB stats = new StatsTDB();
+        stats.add(this);
+        if ( changes != null )
+            stats.add(changes);
+        stats.predicates.values().removeIf(PredicateStats::isEmpty);
+        stats.types.values().removeIf(x -> x == 0);
+        // Negative after changes to a set that had been pruned.
+        stats.characteristicSets.values().removeIf(x -> x <= 0);
+        if ( stats.characteristicSets.size() > MaxCharacteristicSets )
+            stats.pruneCharacteristicSets();
+        return stats;
+    }
+
+    // Keep the characteristic sets with the most subjects.
+    private void pruneCharacteristicSets() {
+        List<Entry<PredicateSet, Long>> entries = new ArrayList<>(characteristicSets.entrySet());
+        entries.sort(Entry.<PredicateSet, Long>comparingByValue().reversed());
+        for ( Entry<PredicateSet, Long> e : entries.subList(PruneCharacteristicSets, entries.size()) )
+            characteristicSets.remove(e.getKey());
+    }
+
+    /**
+     * Whether {@code changes}, which lead from {@code other} to these statistics,
+     * change any count by more than a tenth, or add or remove a predicate, class or
+     * characteristic set. Only the entries in {@code changes} are looked at.
+     */
+    boolean isMaterialChange(StatsTDB other, StatsTDB changes) {
+        if ( isMaterial(other.count, count) )
+            return true;
+        for ( NodeId p : changes.predicates.keySet() ) {
+            if ( isMaterial(other.getCount(p), getCount(p)) )
+                return true;
+        }
+        for ( NodeId t : changes.types.keySet() ) {
+            if ( isMaterial(other.getTypeCount(t), getTypeCount(t)) )
+                return true;
+        }
+        for ( PredicateSet cs : changes.characteristicSets.keySet() ) {
+            if ( isMaterial(other.characteristicSets.getOrDefault(cs, 0L), characteristicSets.getOrDefault(cs, 0L)) )
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isMaterial(long before, long after) {
+        if ( (before == 0) != (after == 0) )
+            return true;
+        return Math.abs(after - before) * MaterialChange > before;
+    }
+
+    /** Add the counts of {@code other} to these statistics. */
+    void add(StatsTDB other) {
+        count += other.count;
+        other.predicates.forEach((p, ps) -> {
+            PredicateStats ps2 = predicates.get(p);
+            if ( ps2 == null )
+                predicates.put(p, ps.copy());
+            else
+                ps2.add(ps);
+        });
+        other.types.forEach((t, c) -> types.merge(t, c, Long::sum));
+        other.characteristicSets.forEach((cs, c) -> characteristicSets.merge(cs, c, Long::sum));
+    }
+
+    /** Convert to {@link StatsResults}, using the node table to get the nodes for NodeIds. */
+    public StatsResults results(NodeTable nodeTable) {
+        Map<Node, Integer> predicateCounts = new HashMap<>();
+        Map<Node, Long> subjects = new HashMap<>();
+        Map<Node, Long> objects = new HashMap<>();
+        predicates.forEach((p, ps) -> {
+            Node n = nodeTable.getNodeForNodeId(p);
+            predicateCounts.put(n, (int)Math.min(ps.count, Integer.MAX_VALUE));
+            if ( ps.subjects > 0 )
+                subjects.put(n, ps.subjects);
+            if ( ps.objects > 0 )
+                objects.put(n, ps.objects);
+        });
+        Map<Node, Integer> typeCounts = new HashMap<>();
+        types.forEach((t, c) -> typeCounts.put(nodeTable.getNodeForNodeId(t), (int)Math.min(c, Integer.MAX_VALUE)));
+        Map<Set<Node>, Long> sets = new HashMap<>();
+        characteristicSets.forEach((cs, c) -> {
+            Set<Node> x = new HashSet<>();
+            for ( NodeId p : cs.predicates )
+                x.add(nodeTable.getNodeForNodeId(p));
+            sets.put(x, c);
+        });
+        return new StatsResults(predicateCounts, typeCounts, count, subjects, objects, sets);
+    }
+
+    // ---- Encoding
+
+    private static final int SizeOfNodeId = SystemTDB.SizeOfNodeId;
+
+    /** Encode as bytes. The returned ByteBuffer is ready for reading. */
+    ByteBuffer encode() {
+        int size = 4 + 8 + 4;
+        for ( PredicateStats ps : predicates.values() )
+            size += SizeOfNodeId + 3 * 8 + 4 + (ps.histogram == null ? 0 : 8 * HistogramSize);
+        size += 4 + types.size() * (SizeOfNodeId + 8);
+        size += 4;
+        for ( PredicateSet cs : characteristicSets.keySet() )
+            size += 8 + 4 + cs.size() * SizeOfNodeId;
+
+        ByteBuffer bb = ByteBuffer.allocate(size);
+        bb.putInt(FormatVersion);
+        bb.putLong(count);
+        bb.putInt(predicates.size());
+        for ( Entry<NodeId, PredicateStats> e : predicates.entrySet() ) {
+            PredicateStats ps = e.getValue();
+            putNodeId(bb, e.getKey());
+            bb.putLong(ps.count);
+            bb.putLong(ps.subjects);
+            bb.putLong(ps.objects);
+            if ( ps.histogram == null )
+                bb.putInt(0);
+            else {
+                bb.putInt(HistogramSize);
+                for ( long x : ps.histogram )
+                    bb.putLong(x);
+            }
+        }
+        bb.putInt(types.size());
+        for ( Entry<NodeId, Long> e : types.entrySet() ) {
+            putNodeId(bb, e.getKey());
+            bb.putLong(e.getValue());
+        }
+        bb.putInt(characteristicSets.size());
+        for ( Entry<PredicateSet, Long> e : characteristicSets.entrySet() ) {
+            bb.putLong(e.getValue());
+            bb.putInt(e.getKey().size());
+            for ( NodeId p : e.getKey().predicates )
+                putNodeId(bb, p);
+        }
+        bb.flip();
+        return bb;
+    }
+
+    /** Decode from bytes, as written by {@link #encode()}. */
+    static StatsTDB decode(ByteBuffer bb) {
+        StatsTDB stats = new StatsTDB();
+        int version = bb.getInt();
+        if ( version != FormatVersion && version != 2 )
+            throw new TDBException("Statistics: unrecognized format version: "+version);
+        stats.count = bb.getLong();
+        int numPredicates = bb.getInt();
+        for ( int i = 0; i < numPredicates ; i++ ) {
+            NodeId p = getNodeId(bb);
+            PredicateStats ps = new PredicateStats();
+            ps.count = bb.getLong();
+            ps.subjects = bb.getLong();
+            ps.objects = bb.getLong();
+            int len = version == 2 ? 0 : bb.getInt();
+            if ( len > 0 ) {
+                if ( len != HistogramSize )
+                    throw new TDBException("Statistics: bad histogram length: "+len);
+                ps.histogram = new long[HistogramSize];
+                for ( int j = 0; j < HistogramSize ; j++ )
+                    ps.histogram[j] = bb.getLong();
+            }
+            stats.predicates.put(p, ps);
+        }
+        int numTypes = bb.getInt();
+        for ( int i = 0; i < numTypes ; i++ ) {
+            NodeId t = getNodeId(bb);
+            stats.types.put(t, bb.getLong());
+        }
+        int numSets = bb.getInt();
+        for ( int i = 0; i < numSets ; i++ ) {
+            long c = bb.getLong();
+            int len = bb.getInt();
+            NodeId[] x = new NodeId[len];
+            for ( int j = 0; j < len ; j++ )
+                x[j] = getNodeId(bb);
+            stats.characteristicSets.put(new PredicateSet(x), c);
+        }
+        return stats;
+    }
+
+    private static void putNodeId(ByteBuffer bb, NodeId nodeId) {
+        NodeIdFactory.set(nodeId, bb);
+    }
+
+    private static NodeId getNodeId(ByteBuffer bb) {
+        return NodeIdFactory.get(bb);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StatsTDB[count=%d, predicates=%d, types=%d, characteristicSets=%d]",
+                             count, predicates.size(), types.size(), characteristicSets.size());
+    }
+}
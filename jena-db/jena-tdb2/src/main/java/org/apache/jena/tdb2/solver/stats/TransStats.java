@@ -0,0 +1,601 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver.stats;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.jena.atlas.RuntimeIOException;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.base.file.BufferChannel;
+import org.apache.jena.dboe.transaction.txn.ComponentId;
+import org.apache.jena.dboe.transaction.txn.TransactionalComponentLifecycle;
+import org.apache.jena.dboe.transaction.txn.TxnId;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.sparql.engine.optimizer.StatsMatcher;
+import org.apache.jena.sparql.graph.NodeConst;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.solver.stats.StatsTDB.PredicateSet;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+
+/**
+ * Transactional component for the statistics of a TDB2 database ({@link StatsTDB}).
+ * <p>
+ * Changes to the triple and quad tables made through {@link #add} and {@link #delete}
+ * update the statistics. Each change looks in the indexes to see whether the
+ * subject-predicate and predicate-object pairs are new (or gone) so that the distinct
+ * counts are exact. The predicates of each subject touched by a transaction are
+ * tracked for the characteristic sets.
+ * <p>
+ * For quads, subjects and objects are counted over all named graphs together.
+ * <p>
+ * On commit, the changes are written to the journal, in the same way as
+ * {@link org.apache.jena.dboe.trans.data.TransBlob}, and appended to the statistics
+ * file, so the statistics are consistent with the data after recovery. Each commit is
+ * a new generation of the statistics. The file is a snapshot followed by the changes
+ * since; it is rewritten as a snapshot when the changes become larger than the
+ * snapshot. The statistics are calculated from scratch by {@link #rebuild}.
+ * <p>
+ * Query planning uses {@link #getPlanningStats}, which only moves on to the latest
+ * statistics when a commit makes a material change to them. The {@link StatsMatcher}
+ * for them is built by the writer, when it commits: a reader may use statistics
+ * committed after it started, which refer to nodes its view of the node table does
+ * not have.
+ */
+public class TransStats extends TransactionalComponentLifecycle<TransStats.StatsState> {
+
+    // When this many subjects are being tracked in a transaction,
+    // apply the characteristic set changes so far and start again.
+    private static final int MaxTrackedSubjects = 100_000;
+
+    // Record kinds, in the journal and the file.
+    private static final byte Snapshot = 1;
+    private static final byte Delta    = 2;
+    // Do not rewrite the file while the changes since the snapshot are smaller than this.
+    private static final int MinCompact = 64*1024;
+
+    // The last committed state. Null for "not initialized".
+    private final AtomicReference<StatsTDB> statsRef = new AtomicReference<>();
+    // The statistics used for query planning.
+    private volatile Planning planning = null;
+    // Generation of the committed state, and the file layout.
+    // Only changed by the writer, in commit, and by recovery.
+    private long generation = 0;
+    private long snapshotBytes = 0;
+    private long deltaBytes = 0;
+    private final BufferChannel file;
+    private final NodeTable nodeTable;
+
+    /** Statistics for query planning, and the matcher, with nodes, for them. */
+    private static class Planning {
+        final StatsTDB stats;
+        // Null for the statistics read when opened, or recovered, where all
+        // the nodes are visible to any reader; set when first used.
+        volatile StatsMatcher matcher;
+        Planning(StatsTDB stats, StatsMatcher matcher) {
+            this.stats = stats;
+            this.matcher = matcher;
+        }
+    }
+
+    static class StatsState {
+        private StatsTDB base;
+        // Changes - write transaction only.
+        private StatsTDB changes = null;
+        private final Map<NodeId, SubjectPredicates> subjectsTriples = new HashMap<>();
+        private final Map<NodeId, SubjectPredicates> subjectsQuads = new HashMap<>();
+        // Set by rebuild: changes are from nothing, not from base.
+        private boolean rebuilt = false;
+        // Prepared for commit.
+        private StatsTDB newStats = null;
+        private Planning newPlanning = null;
+        private ByteBuffer newRecord = null;
+        private boolean newIsSnapshot = false;
+
+        StatsState(StatsTDB base) {
+            this.base = base;
+        }
+
+        StatsTDB changes() {
+            if ( changes == null )
+                changes = new StatsTDB();
+            return changes;
+        }
+
+        Map<NodeId, SubjectPredicates> subjects(int tupleLen) {
+            return tupleLen == 3 ? subjectsTriples : subjectsQuads;
+        }
+
+        /** Apply characteristic set changes. */
+        void flushSubjects() {
+            flushSubjects(subjectsTriples);
+            flushSubjects(subjectsQuads);
+        }
+
+        private void flushSubjects(Map<NodeId, SubjectPredicates> subjects) {
+            if ( subjects.isEmpty() )
+                return;
+            StatsTDB stats = changes();
+            subjects.values().forEach(sp -> stats.recordCharacteristicSet(sp.before, PredicateSet.create(sp.current)));
+            subjects.clear();
+        }
+    }
+
+    /** The predicates of a subject before the transaction and now. */
+    private static class SubjectPredicates {
+        final PredicateSet before;
+        final Set<NodeId> current;
+        SubjectPredicates(Set<NodeId> predicates) {
+            this.before = PredicateSet.create(predicates);
+            this.current = predicates;
+        }
+    }
+
+    public TransStats(ComponentId cid, BufferChannel file, NodeTable nodeTable) {
+        super(cid);
+        this.file = file;
+        this.nodeTable = nodeTable;
+        read();
+    }
+
+    private void read() {
+        statsRef.set(null);
+        generation = 0;
+        snapshotBytes = 0;
+        deltaBytes = 0;
+        long x = file.size();
+        if ( x > 0 ) {
+            ByteBuffer bb = ByteBuffer.allocate((int)x);
+            int len = file.read(bb, 0);
+            if ( len != x )
+                throw new RuntimeIOException("Short read: "+len+" of "+x);
+            bb.rewind();
+            while ( bb.remaining() >= 4 ) {
+                int recordLen = bb.getInt();
+                // An incomplete last record is recovered from the journal.
+                if ( recordLen > bb.remaining() )
+                    break;
+                ByteBuffer record = bb.slice();
+                record.limit(recordLen);
+                bb.position(bb.position()+recordLen);
+                if ( applyRecord(record) ) {
+                    if ( record.get(0) == Snapshot ) {
+                        snapshotBytes = 4 + recordLen;
+                        deltaBytes = 0;
+                    } else
+                        deltaBytes += 4 + recordLen;
+                }
+            }
+        }
+        planning = new Planning(current(), null);
+    }
+
+    /** Encode a record: length, kind, generation, statistics. Ready for reading. */
+    private static ByteBuffer record(byte kind, long gen, StatsTDB stats) {
+        ByteBuffer bytes = stats.encode();
+        ByteBuffer bb = ByteBuffer.allocate(4 + 1 + 8 + bytes.remaining());
+        bb.putInt(1 + 8 + bytes.remaining());
+        bb.put(kind);
+        bb.putLong(gen);
+        bb.put(bytes);
+        bb.flip();
+        return bb;
+    }
+
+    /**
+     * Apply a record, without its length, to the committed statistics.
+     * A change record is skipped unless it follows on from the current generation.
+     */
+    private boolean applyRecord(ByteBuffer record) {
+        record = record.duplicate();
+        byte kind = record.get();
+        long gen = record.getLong();
+        StatsTDB stats = StatsTDB.decode(record);
+        switch (kind) {
+            case Snapshot :
+                statsRef.set(stats);
+                generation = gen;
+                return true;
+            case Delta :
+                if ( statsRef.get() == null || gen != generation+1 )
+                    return false;
+                statsRef.set(statsRef.get().merge(stats));
+                generation = gen;
+                return true;
+            default :
+                throw new TDBException("Statistics: unrecognized record: "+kind);
+        }
+    }
+
+    private void writeSnapshot(ByteBuffer bb) {
+        file.truncate(0);
+        write(bb, 0);
+        snapshotBytes = bb.remaining();
+        deltaBytes = 0;
+    }
+
+    private void appendDelta(ByteBuffer bb) {
+        write(bb, file.size());
+        deltaBytes += bb.remaining();
+    }
+
+    private void write(ByteBuffer bb, long loc) {
+        bb.rewind();
+        int x = bb.remaining();
+        int len = file.write(bb, loc);
+        if ( len != x )
+            throw new RuntimeIOException("Short write: "+len+" of "+x);
+        file.sync();
+        bb.rewind();
+    }
+
+    /**
+     * Whether there are statistics. If not, they need to be calculated with {@link #rebuild},
+     * which is done when the database is opened.
+     */
+    public boolean isInitialized() {
+        return statsRef.get() != null;
+    }
+
+    /**
+     * The statistics, as of the start of the transaction if in a transaction,
+     * else the last committed statistics.
+     */
+    public StatsTDB getStats() {
+        if ( isActiveTxn() )
+            return getDataState().base;
+        return current();
+    }
+
+    /**
+     * The committed statistics for query planning. These are replaced by the latest
+     * committed statistics only when a commit has changed a count by more than a tenth,
+     * or added or removed a predicate, class or characteristic set.
+     */
+    public StatsTDB getPlanningStats() {
+        return planning.stats;
+    }
+
+    /**
+     * The {@link StatsMatcher} for the {@linkplain #getPlanningStats planning statistics}.
+     * This is the same object until the planning statistics change.
+     */
+    public StatsMatcher getPlanningMatcher() {
+        Planning p = planning;
+        StatsMatcher matcher = p.matcher;
+        if ( matcher == null ) {
+            // Statistics from open or recovery. A race builds the same matcher twice.
+            matcher = matcher(p.stats);
+            p.matcher = matcher;
+        }
+        return matcher;
+    }
+
+    private StatsMatcher matcher(StatsTDB stats) {
+        return new StatsMatcher(Stats.format(stats.results(nodeTable)));
+    }
+
+    private StatsTDB current() {
+        StatsTDB stats = statsRef.get();
+        return stats == null ? new StatsTDB() : stats;
+    }
+
+    // ---- Changes
+
+    /** Add a row to a table and update the statistics. */
+    public void add(NodeTupleTable table, Node... nodes) {
+        NodeTable nodeTable = table.getNodeTable();
+        NodeId[] n = new NodeId[nodes.length];
+        for ( int i = 0; i < nodes.length ; i++ )
+            n[i] = nodeTable.getAllocateNodeId(nodes[i]);
+        add(table, TupleFactory.create(n));
+    }
+
+    /** Add a tuple of NodeIds to a table and update the statistics. */
+    public void add(NodeTupleTable table, Tuple<NodeId> tuple) {
+        requireWriteTxn();
+        TupleTable tupleTable = table.getTupleTable();
+        if ( tupleTable.find(tuple).hasNext() )
+            return;
+        int len = tuple.len();
+        NodeId s = tuple.get(len-3);
+        NodeId p = tuple.get(len-2);
+        NodeId o = tuple.get(len-1);
+        boolean newSP = count(tupleTable, len, s, p, null, 1) == 0;
+        boolean newPO = count(tupleTable, len, null, p, o, 1) == 0;
+        StatsState state = getDataState();
+        // Before the change.
+        SubjectPredicates sp = newSP ? subjectPredicates(state, tupleTable, len, s) : null;
+        tupleTable.add(tuple);
+        if ( sp != null )
+            sp.current.add(p);
+        state.changes().record(p, o, isType(table.getNodeTable(), p), 1, newSP ? 1 : 0, newPO ? 1 : 0);
+    }
+
+    /** Delete a row from a table and update the statistics. */
+    public void delete(NodeTupleTable table, Node... nodes) {
+        NodeTable nodeTable = table.getNodeTable();
+        NodeId[] n = new NodeId[nodes.length];
+        for ( int i = 0; i < nodes.length ; i++ ) {
+            NodeId id = nodeTable.getNodeIdForNode(nodes[i]);
+            if ( NodeId.isDoesNotExist(id) )
+                return;
+            n[i] = id;
+        }
+        delete(table, TupleFactory.create(n));
+    }
+
+    /** Delete a tuple of NodeIds from a table and update the statistics. */
+    public void delete(NodeTupleTable table, Tuple<NodeId> tuple) {
+        requireWriteTxn();
+        TupleTable tupleTable = table.getTupleTable();
+        if ( ! tupleTable.find(tuple).hasNext() )
+            return;
+        int len = tuple.len();
+        NodeId s = tuple.get(len-3);
+        NodeId p = tuple.get(len-2);
+        NodeId o = tuple.get(len-1);
+        // This tuple is one of them.
+        boolean lastSP = count(tupleTable, len, s, p, null, 2) == 1;
+        boolean lastPO = count(tupleTable, len, null, p, o, 2) == 1;
+        StatsState state = getDataState();
+        SubjectPredicates sp = lastSP ? subjectPredicates(state, tupleTable, len, s) : null;
+        tupleTable.delete(tuple);
+        if ( sp != null )
+            sp.current.remove(p);
+        state.changes().record(p, o, isType(table.getNodeTable(), p), -1, lastSP ? -1 : 0, lastPO ? -1 : 0);
+    }
+
+    private static boolean isType(NodeTable nodeTable, NodeId p) {
+        return p.equals(nodeTable.getNodeIdForNode(NodeConst.nodeRDFType));
+    }
+
+    /** Count matches of (s,p,o) or (any,s,p,o), stopping at {@code limit}. Null is "any". */
+    private static int count(TupleTable tupleTable, int len, NodeId s, NodeId p, NodeId o, int limit) {
+        Tuple<NodeId> pattern = ( len == 3 )
+            ? TupleFactory.create3(s, p, o)
+            : TupleFactory.create4(NodeId.NodeIdAny, s, p, o);
+        Iterator<Tuple<NodeId>> iter = tupleTable.find(pattern);
+        int x = 0;
+        while ( x < limit && iter.hasNext() ) {
+            iter.next();
+            x++;
+        }
+        return x;
+    }
+
+    private static SubjectPredicates subjectPredicates(StatsState state, TupleTable tupleTable, int len, NodeId s) {
+        Map<NodeId, SubjectPredicates> subjects = state.subjects(len);
+        SubjectPredicates sp = subjects.get(s);
+        if ( sp != null )
+            return sp;
+        if ( subjects.size() >= MaxTrackedSubjects )
+            state.flushSubjects();
+        Set<NodeId> predicates = new HashSet<>();
+        Tuple<NodeId> pattern = ( len == 3 )
+            ? TupleFactory.create3(s, NodeId.NodeIdAny, NodeId.NodeIdAny)
+            : TupleFactory.create4(NodeId.NodeIdAny, s, NodeId.NodeIdAny, NodeId.NodeIdAny);
+        tupleTable.find(pattern).forEachRemaining(t -> predicates.add(t.get(len-2)));
+        sp = new SubjectPredicates(predicates);
+        subjects.put(s, sp);
+        return sp;
+    }
+
+    // ---- Rebuild
+
+    /**
+     * Calculate the statistics from the tables, replacing any current statistics.
+     * This must be called in a write transaction.
+     * <p>
+     * The distinct subject counts and characteristic sets need an index in
+     * SPO (or SPOG) order; the distinct object counts need an index in POS (or POSG) order.
+     */
+    public void rebuild(NodeTupleTable... tables) {
+        requireWriteTxn();
+        StatsTDB stats = new StatsTDB();
+        for ( NodeTupleTable table : tables )
+            rebuild(stats, table);
+        StatsState state = getDataState();
+        state.subjectsTriples.clear();
+        state.subjectsQuads.clear();
+        state.base = new StatsTDB();
+        state.changes = stats;
+        state.rebuilt = true;
+    }
+
+    /**
+     * Add the statistics of a table that was empty at the start of the transaction
+     * and has been loaded directly, not through {@link #add}. Only the table is read.
+     * This must be called in a write transaction.
+     */
+    public void addTable(NodeTupleTable table) {
+        requireWriteTxn();
+        StatsTDB stats = new StatsTDB();
+        rebuild(stats, table);
+        getDataState().changes().add(stats);
+    }
+
+    private static void rebuild(StatsTDB stats, NodeTupleTable table) {
+        TupleTable tupleTable = table.getTupleTable();
+        int len = tupleTable.getTupleLen();
+        NodeId typeId = table.getNodeTable().getNodeIdForNode(NodeConst.nodeRDFType);
+        TupleIndex indexSP = findIndex(tupleTable, len == 3 ? "SPO" : "SPOG");
+        TupleIndex indexPO = findIndex(tupleTable, len == 3 ? "POS" : "POSG");
+
+        if ( indexSP == null ) {
+            tupleTable.find(TupleFactory.create(new NodeId[len])).forEachRemaining(t -> {
+                NodeId p = t.get(len-2);
+                stats.record(p, t.get(len-1), p.equals(typeId), 1, 0, 0);
+            });
+        } else {
+            // Subject-predicate order: (s,p) pairs and subjects are adjacent.
+            NodeId lastS = null;
+            NodeId lastP = null;
+            Set<NodeId> predicates = new HashSet<>();
+            Iterator<Tuple<NodeId>> iter = indexSP.all();
+            while ( iter.hasNext() ) {
+                Tuple<NodeId> t = iter.next();
+                NodeId s = t.get(len-3);
+                NodeId p = t.get(len-2);
+                stats.record(p, t.get(len-1), p.equals(typeId), 1, 0, 0);
+                if ( ! s.equals(lastS) ) {
+                    if ( lastS != null )
+                        stats.recordCharacteristicSet(PredicateSet.create(Collections.emptySet()), PredicateSet.create(predicates));
+                    predicates.clear();
+                    lastS = s;
+                    lastP = null;
+                }
+                if ( ! p.equals(lastP) ) {
+                    stats.recordDistinct(p, 1, 0);
+                    predicates.add(p);
+                    lastP = p;
+                }
+            }
+            if ( lastS != null )
+                stats.recordCharacteristicSet(PredicateSet.create(Collections.emptySet()), PredicateSet.create(predicates));
+        }
+
+        if ( indexPO != null ) {
+            // Predicate-object order: (p,o) pairs are adjacent.
+            NodeId lastP = null;
+            NodeId lastO = null;
+            Iterator<Tuple<NodeId>> iter = indexPO.all();
+            while ( iter.hasNext() ) {
+                Tuple<NodeId> t = iter.next();
+                NodeId p = t.get(len-2);
+                NodeId o = t.get(len-1);
+                if ( ! p.equals(lastP) || ! o.equals(lastO) ) {
+                    stats.recordDistinct(p, 0, 1);
+                    lastP = p;
+                    lastO = o;
+                }
+            }
+        }
+    }
+
+    private static TupleIndex findIndex(TupleTable tupleTable, String name) {
+        for ( TupleIndex index : tupleTable.getIndexes() ) {
+            if ( index != null && name.equals(index.getName()) )
+                return index;
+        }
+        return null;
+    }
+
+    // ---- Transaction lifecycle
+
+    private boolean recoveryChange = false;
+    @Override
+    public void startRecovery() {
+        recoveryChange = false;
+    }
+
+    @Override
+    public void recover(ByteBuffer ref) {
+        // Skip the length.
+        ByteBuffer record = ref.duplicate();
+        record.position(record.position()+4);
+        if ( applyRecord(record.slice()) )
+            recoveryChange = true;
+    }
+
+    @Override
+    public void finishRecovery() {
+        if ( recoveryChange ) {
+            writeSnapshot(record(Snapshot, generation, statsRef.get()));
+            planning = new Planning(current(), null);
+        }
+    }
+
+    @Override
+    public void cleanStart() { }
+
+    @Override
+    protected StatsState _begin(ReadWrite readWrite, TxnId txnId) {
+        return new StatsState(current());
+    }
+
+    @Override
+    protected StatsState _promote(TxnId txnId, StatsState state) {
+        return new StatsState(current());
+    }
+
+    @Override
+    protected ByteBuffer _commitPrepare(TxnId txnId, StatsState state) {
+        state.flushSubjects();
+        if ( state.changes == null )
+            return null;
+        state.newStats = state.base.merge(state.changes);
+        // Resolve the nodes now, in the writer, which can see any new nodes.
+        Planning current = planning;
+        if ( state.rebuilt || statsRef.get() == null || state.newStats.isMaterialChange(current.stats, state.changes) )
+            state.newPlanning = new Planning(state.newStats, matcher(state.newStats));
+        // There is only one writer so the generation does not change before commit.
+        long gen = generation+1;
+        boolean snapshot = state.rebuilt || statsRef.get() == null;
+        ByteBuffer record = null;
+        if ( ! snapshot ) {
+            record = record(Delta, gen, state.changes);
+            // Rewrite the file when the changes in it become larger than the snapshot.
+            snapshot = deltaBytes + record.remaining() > Math.max(snapshotBytes, MinCompact);
+        }
+        if ( snapshot )
+            record = record(Snapshot, gen, state.newStats);
+        state.newRecord = record;
+        state.newIsSnapshot = snapshot;
+        return record;
+    }
+
+    @Override
+    protected void _commit(TxnId txnId, StatsState state) {
+        if ( state.newStats == null )
+            return;
+        statsRef.set(state.newStats);
+        generation++;
+        if ( state.newPlanning != null )
+            planning = state.newPlanning;
+        // It's in the journal already, and is rewritten from the journal
+        // if there is a crash at this point.
+        if ( state.newIsSnapshot )
+            writeSnapshot(state.newRecord);
+        else
+            appendDelta(state.newRecord);
+    }
+
+    @Override
+    protected void _commitEnd(TxnId txnId, StatsState state) {}
+
+    @Override
+    protected void _abort(TxnId txnId, StatsState state) {}
+
+    @Override
+    protected void _complete(TxnId txnId, StatsState state) {}
+
+    @Override
+    protected void _shutdown() {}
+
+    @Override
+    public String toString()    { return getComponentId().label(); }
+}
@@ -33,6 +33,7 @@ import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.lib.NodeLib;
 import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.solver.stats.TransStats;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
 
 final
@@ -79,6 +80,21 @@ public class DatasetGraphTDB extends DatasetGraphStorage
         return storageTDB.getTripleTable();
     }
 
+    /** The incremental statistics, or null if they are not being maintained. */
+    public TransStats getStats() {
+        checkNotClosed();
+        return storageTDB.getStats();
+    }
+
+    /**
+     * Calculate the incremental statistics from the data, if they are being maintained.
+     * Must be called in a write transaction.
+     */
+    public void rebuildStats() {
+        checkNotClosed();
+        storageTDB.rebuildStats();
+    }
+
     public TransactionalSystem getTxnSystem() {
         return txnSystem;
     }
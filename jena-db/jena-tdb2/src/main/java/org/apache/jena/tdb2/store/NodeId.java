@@ -126,6 +126,7 @@ public class NodeId implements Comparable<NodeId>
 
     // Migration
     public static NodeId inline(Node node) { return NodeIdInline.inline(node); }
+    public static NodeId inline(Node node, int format) { return NodeIdInline.inline(node, format); }
     public static boolean hasInlineDatatype(Node node) { return NodeIdInline.hasInlineDatatype(node); }
     public static Node extract(NodeId nodeId) { return NodeIdInline.extract(nodeId); }
 
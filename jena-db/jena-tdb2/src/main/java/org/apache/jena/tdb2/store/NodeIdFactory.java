@@ -140,7 +140,7 @@ public class NodeIdFactory
         Bytes.setLong(v2, b, 0);
     }
 
-    private static long encode(NodeId nodeId) {
+    /*package*/ static long encode(NodeId nodeId) {
         long x = nodeId.value2;
         switch(nodeId.type()) {
             case PTR:
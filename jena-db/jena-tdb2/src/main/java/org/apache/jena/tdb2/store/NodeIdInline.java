@@ -32,6 +32,7 @@ import org.apache.jena.ext.com.google.common.collect.EnumHashBiMap;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.graph.impl.LiteralLabel;
+import org.apache.jena.sparql.expr.Expr;
 import org.apache.jena.sparql.graph.NodeConst;
 import org.apache.jena.sparql.util.NodeUtils;
 import org.apache.jena.sparql.util.Utils;
@@ -57,14 +58,36 @@ import org.apache.jena.tdb2.store.value.*;
  * <li>Boolean
  * <li>Float
  * </ul>
+ * Inline format 2 adds:
+ * <ul>
+ * <li>Time and gYear, packed as for dateTime.
+ * <li>Duration as months and milliseconds. See {@link DurationNode}.
+ * <li>Strings of up to 7 bytes in UTF-8. See {@link StringNode}.
+ * <li>Language tagged strings of up to 5 bytes in UTF-8 with a two letter, lower case language tag.
+ * </ul>
+ * The inline format is a property of a database, set when it is created
+ * (see {@link org.apache.jena.tdb2.params.StoreParams#getNodeIdInlineFormat()}),
+ * because a node that is inlined is not in the node table.
  *
  * @see IntegerNode
  * @see DecimalNode56
  * @see DoubleNode62
  * @see DateTimeNode DateTimeNode for xsd:date and xsd:DateTime
  * @see FloatNode
+ * @see DurationNode
+ * @see StringNode
  */
 public class NodeIdInline {
+    /** Numbers, date, dateTime and boolean. */
+    public static final int FORMAT_V1 = 1;
+    /** Format 1 and time, gYear, duration, short strings and short language tagged strings. */
+    public static final int FORMAT_V2 = 2;
+
+    // Bytes of UTF-8 in inline strings.
+    private static final int ShortStringLength = 7;
+    private static final int ShortLangStringLength = 5;
+
+
     /** Datatypes that are candidates for inlining */
     private static Set<RDFDatatype> datatypes = new HashSet<>();
     static {
@@ -93,6 +116,20 @@ public class NodeIdInline {
         datatypes.add(XSDDatatype.XSDboolean);
     };
 
+    /** Additional datatypes that are candidates for inlining in format 2. */
+    private static Set<RDFDatatype> datatypesV2 = new HashSet<>();
+    static {
+        datatypesV2.add(XSDDatatype.XSDtime);
+        datatypesV2.add(XSDDatatype.XSDgYear);
+        datatypesV2.add(XSDDatatype.XSDduration);
+    }
+
+    /** Check the inline format is one this system can read and write. */
+    public static void checkFormat(int format) {
+        if ( format != FORMAT_V1 && format != FORMAT_V2 )
+            throw new TDBException("Unsupported NodeId inline format: "+format);
+    }
+
     // Integer derived types.
     private static BiMap<NodeIdType, RDFDatatype> derivedTypeMap = EnumHashBiMap.create(NodeIdType.class);
     static {
@@ -112,8 +149,13 @@ public class NodeIdInline {
         derivedTypeMap.put(NodeIdType.XSD_UNSIGNEDBYTE, XSDDatatype.XSDunsignedByte);
     }
 
-    /** Encode a node as an inline literal.  Return null if it can't be done */
+    /** Encode a node as an inline literal, in format 1.  Return null if it can't be done */
     public static NodeId inline(Node node) {
+        return inline(node, FORMAT_V1);
+    }
+
+    /** Encode a node as an inline literal in the given format.  Return null if it can't be done */
+    public static NodeId inline(Node node, int format) {
         if ( node == null ) {
             Log.warn(NodeId.class, "Null node: " + node);
             return null;
@@ -125,10 +167,13 @@ public class NodeIdInline {
         if ( !node.isLiteral() )
             return null;
 
-        if ( NodeUtils.isSimpleString(node) || NodeUtils.isLangString(node) )
-            return null;
+        if ( NodeUtils.isSimpleString(node) || NodeUtils.isLangString(node) ) {
+            if ( format < FORMAT_V2 )
+                return null;
+            return inlineString(node);
+        }
 
-        try { return inline$(node); }
+        try { return inline$(node, format); }
         catch (Throwable th) {
             Log.warn(NodeId.class, "Failed to process "+node);
             return null;
@@ -140,16 +185,51 @@ public class NodeIdInline {
      * Only inline(Node){@literal ->}NodeId can determine that.
      */
     public static boolean hasInlineDatatype(Node node) {
+        return hasInlineDatatype(node, FORMAT_V1);
+    }
+
+    /** As {@link #hasInlineDatatype(Node)}, for the given inline format. */
+    public static boolean hasInlineDatatype(Node node, int format) {
         if ( ! node.isLiteral() )
             return false;
         RDFDatatype dtn = node.getLiteralDatatype();
-        return datatypes.contains(dtn);
+        if ( datatypes.contains(dtn) )
+            return true;
+        if ( format < FORMAT_V2 )
+            return false;
+        return datatypesV2.contains(dtn) || NodeUtils.isSimpleString(node) || NodeUtils.isLangString(node);
+    }
+
+    private static NodeId inlineString(Node node) {
+        String lex = node.getLiteralLexicalForm();
+        String lang = node.getLiteralLanguage();
+        if ( lang == null || lang.isEmpty() ) {
+            long v = StringNode.pack(lex, ShortStringLength);
+            if ( v == -1 )
+                return null;
+            return NodeId.createRaw(XSD_SHORTSTRING, v);
+        }
+        // Two lower case letters, most significant, so the order is by language tag then string.
+        if ( lang.length() != 2 || ! isLowerCaseLetter(lang.charAt(0)) || ! isLowerCaseLetter(lang.charAt(1)) )
+            return null;
+        long v = StringNode.pack(lex, ShortLangStringLength);
+        if ( v == -1 )
+            return null;
+        long tag = (lang.charAt(0) << 8) | lang.charAt(1);
+        v = v | (tag << 8*ShortLangStringLength);
+        return NodeId.createRaw(RDF_SHORTLANGSTRING, v);
     }
 
-    private static NodeId inline$(Node node) {
-        if ( ! hasInlineDatatype(node) )
+    private static boolean isLowerCaseLetter(char ch) {
+        return ch >= 'a' && ch <= 'z';
+    }
+
+    private static NodeId inline$(Node node, int format) {
+        if ( ! hasInlineDatatype(node, format) )
             return null;
         LiteralLabel lit = node.getLiteral();
+        if ( datatypesV2.contains(lit.getDatatype()) )
+            return inlineV2$(lit);
         // Decimal is a valid supertype of integer but we handle integers and decimals
         // differently.
 
@@ -249,6 +329,131 @@ public class NodeIdInline {
         return null;
     }
 
+    private static NodeId inlineV2$(LiteralLabel lit) {
+        RDFDatatype dt = lit.getDatatype();
+        if ( ! dt.isValidLiteral(lit) )
+            return null;
+        String lex = lit.getLexicalForm();
+        long v = -1;
+        NodeIdType type = null;
+        if ( dt.equals(XSDDatatype.XSDtime) ) {
+            v = DateTimeNode.packTime(lex);
+            type = XSD_TIME;
+        } else if ( dt.equals(XSDDatatype.XSDgYear) ) {
+            v = DateTimeNode.packGYear(lex);
+            type = XSD_GYEAR;
+        } else if ( dt.equals(XSDDatatype.XSDduration) ) {
+            v = DurationNode.pack(lex);
+            type = XSD_DURATION;
+        }
+        if ( v == -1 )
+            return null;
+        return NodeId.createRaw(type, v);
+    }
+
+    /**
+     * Compare two NodeIds by the value of inline literals, without decoding them to nodes.
+     * The order is the same as {@link org.apache.jena.sparql.expr.NodeValue#compareAlways}.
+     * <p>
+     * Returns {@link Expr#CMP_INDETERMINATE} when the order can not be decided from the NodeIds:
+     * one is not inline, they are values of kinds that do not compare directly, or
+     * they are different terms for the same value (the order is then by RDF term).
+     */
+    public static int compareInline(NodeId nodeId1, NodeId nodeId2) {
+        NodeIdType type1 = nodeId1.type();
+        NodeIdType type2 = nodeId2.type();
+        // NodeId.equals does not include the type of inline values.
+        if ( type1 == type2 && nodeId1.equals(nodeId2) )
+            return Expr.CMP_EQUAL;
+        if ( ! NodeIdType.isInline(type1) || ! NodeIdType.isInline(type2) )
+            return Expr.CMP_INDETERMINATE;
+        int x = compareInline$(type1, nodeId1.value2, type2, nodeId2.value2);
+        // Same value, different terms.
+        if ( x == Expr.CMP_EQUAL )
+            return Expr.CMP_INDETERMINATE;
+        return x;
+    }
+
+    private static int compareInline$(NodeIdType type1, long v1, NodeIdType type2, long v2) {
+        if ( NodeIdType.isInteger(type1) && NodeIdType.isInteger(type2) )
+            return Long.compare(IntegerNode.unpack56(v1), IntegerNode.unpack56(v2));
+        if ( isIntegerOrDecimal(type1) && isIntegerOrDecimal(type2) )
+            return decimalValue(type1, v1).compareTo(decimalValue(type2, v2));
+        if ( type1 != type2 )
+            return Expr.CMP_INDETERMINATE;
+        switch (type1) {
+            case XSD_DOUBLE:
+                return compareStrict(DoubleNode62.unpack(v1), DoubleNode62.unpack(v2));
+            case XSD_FLOAT:
+                return compareStrict(FloatNode.unpack(v1), FloatNode.unpack(v2));
+            case XSD_BOOLEAN:
+                return Long.compare(v1, v2);
+            case XSD_DATETIME:
+            case XSD_DATETIMESTAMP:
+            case XSD_DATE:
+            case XSD_TIME:
+            case XSD_GYEAR:
+                // Fields are packed most significant first, below the timezone.
+                // Values with the same timezone (or both without) compare as their bits.
+                if ( DateTimeNode.timezoneBits(v1) != DateTimeNode.timezoneBits(v2) )
+                    return Expr.CMP_INDETERMINATE;
+                return Long.compare(v1, v2);
+            case XSD_DURATION:
+                return DurationNode.compare(v1, v2);
+            case XSD_SHORTSTRING:
+                // Java string order, except where that differs from UTF-8 byte order.
+                if ( ! StringNode.isJavaOrder(v1, ShortStringLength) || ! StringNode.isJavaOrder(v2, ShortStringLength) )
+                    return Expr.CMP_INDETERMINATE;
+                return Long.compare(v1, v2);
+            case RDF_SHORTLANGSTRING:
+                // By language tag then string.
+                if ( ! StringNode.isJavaOrder(v1, ShortLangStringLength) || ! StringNode.isJavaOrder(v2, ShortLangStringLength) )
+                    return Expr.CMP_INDETERMINATE;
+                return Long.compare(v1, v2);
+            default:
+                return Expr.CMP_INDETERMINATE;
+        }
+    }
+
+    private static boolean isIntegerOrDecimal(NodeIdType type) {
+        return NodeIdType.isInteger(type) || NodeIdType.isDecimal(type);
+    }
+
+    private static BigDecimal decimalValue(NodeIdType type, long v) {
+        if ( NodeIdType.isDecimal(type) )
+            return DecimalNode56.unpackAsBigDecimal(v);
+        return BigDecimal.valueOf(IntegerNode.unpack56(v));
+    }
+
+    // NaN and equal values are left to the general comparison.
+    private static int compareStrict(double d1, double d2) {
+        if ( d1 < d2 )
+            return Expr.CMP_LESS;
+        if ( d1 > d2 )
+            return Expr.CMP_GREATER;
+        return Expr.CMP_INDETERMINATE;
+    }
+
+    /**
+     * The value of an inline number (integer, decimal, double or float) as a double,
+     * or NaN if the NodeId is not an inline number.
+     */
+    public static double numericValue(NodeId nodeId) {
+        NodeIdType type = nodeId.type();
+        if ( NodeIdType.isInteger(type) )
+            return IntegerNode.unpack56(nodeId.value2);
+        switch (type) {
+            case XSD_DECIMAL:
+                return DecimalNode56.unpackAsBigDecimal(nodeId.value2).doubleValue();
+            case XSD_DOUBLE:
+                return DoubleNode62.unpack(nodeId.value2);
+            case XSD_FLOAT:
+                return FloatNode.unpack(nodeId.value2);
+            default:
+                return Double.NaN;
+        }
+    }
+
     /** Decode an inline nodeID, return null if not an inline node */
     public static Node extract(NodeId nodeId) {
         if ( nodeId == NodeId.NodeDoesNotExist )
@@ -317,6 +522,29 @@ public class NodeIdInline {
                     return NodeConst.nodeTrue;
                 throw new TDBException("Unrecognized boolean node id : " + val);
             }
+            case XSD_TIME : {
+                String lex = DateTimeNode.unpackTime(nodeId.getValue2());
+                return NodeFactory.createLiteral(lex, XSDDatatype.XSDtime);
+            }
+            case XSD_GYEAR : {
+                String lex = DateTimeNode.unpackGYear(nodeId.getValue2());
+                return NodeFactory.createLiteral(lex, XSDDatatype.XSDgYear);
+            }
+            case XSD_DURATION : {
+                String lex = DurationNode.unpack(nodeId.getValue2());
+                return NodeFactory.createLiteral(lex, XSDDatatype.XSDduration);
+            }
+            case XSD_SHORTSTRING : {
+                String lex = StringNode.unpack(nodeId.getValue2(), ShortStringLength);
+                return NodeFactory.createLiteral(lex);
+            }
+            case RDF_SHORTLANGSTRING : {
+                long val = nodeId.getValue2();
+                String lex = StringNode.unpack(val, ShortLangStringLength);
+                int tag = (int)(val >>> 8*ShortLangStringLength);
+                String lang = new String(new char[] {(char)(tag >>> 8), (char)(tag & 0xFF)});
+                return NodeFactory.createLiteral(lex, lang);
+            }
             default :
                 throw new TDBException("Unrecognized node id type: " + type);
         }
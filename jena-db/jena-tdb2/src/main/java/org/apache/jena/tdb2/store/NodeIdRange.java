@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import static org.apache.jena.tdb2.store.NodeIdType.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.tdb2.store.value.DateTimeNode;
+import org.apache.jena.tdb2.store.value.IntegerNode;
+
+/**
+ * A set of {@link NodeId NodeIds} as intervals in the order of NodeIds in the indexes.
+ * <p>
+ * A range is worked out from a comparison with a value, such as {@code ?x > 30}, and
+ * contains all the NodeIds for which the comparison may be true. It contains all
+ * NodeIds for nodes in the node table, because their values are not known from the
+ * NodeId. It does not contain NodeIds for inline values that can not compare with
+ * the value (the comparison is an error), nor inline integers, dates and dateTimes
+ * that are outside the bound. Other inline numbers are included whatever their value.
+ * <p>
+ * Because a range can contain NodeIds that do not satisfy the comparison, the
+ * comparison must still be applied to the results.
+ */
+public final class NodeIdRange {
+    // Inclusive intervals of encoded NodeIds, in unsigned order, sorted and not overlapping.
+    private final long[] lows;
+    private final long[] highs;
+
+    private static final NodeIdType[] integerTypes = {
+        XSD_INTEGER, XSD_POSITIVE_INTEGER, XSD_NEGATIVE_INTEGER, XSD_NON_NEGATIVE_INTEGER, XSD_NON_POSITIVE_INTEGER,
+        XSD_LONG, XSD_INT, XSD_SHORT, XSD_BYTE,
+        XSD_UNSIGNEDLONG, XSD_UNSIGNEDINT, XSD_UNSIGNEDSHORT, XSD_UNSIGNEDBYTE
+    };
+
+    private static final long MaxValue56 = (1L << 56) - 1;
+
+    private NodeIdRange(long[] lows, long[] highs) {
+        this.lows = lows;
+        this.highs = highs;
+    }
+
+    /**
+     * The range of NodeIds that may be greater than (or equal to, if {@code inclusive}) the value.
+     * Returns null if there is no range for values of this kind.
+     */
+    public static NodeIdRange lowerBound(NodeValue value, boolean inclusive) {
+        return create(value, true, inclusive);
+    }
+
+    /**
+     * The range of NodeIds that may be less than (or equal to, if {@code inclusive}) the value.
+     * Returns null if there is no range for values of this kind.
+     */
+    public static NodeIdRange upperBound(NodeValue value, boolean inclusive) {
+        return create(value, false, inclusive);
+    }
+
+    private static NodeIdRange create(NodeValue value, boolean lower, boolean inclusive) {
+        Builder builder = new Builder();
+        // Node table entries.
+        builder.add(0, Long.MAX_VALUE);
+        if ( value.isNumber() ) {
+            BigDecimal bound = decimal(value);
+            for ( NodeIdType type : integerTypes ) {
+                if ( bound == null )
+                    builder.addType(type);
+                else
+                    builder.addIntegers(type, integerBound(bound, lower, inclusive), lower);
+            }
+            builder.addType(XSD_DECIMAL);
+            builder.addType(XSD_FLOAT);
+            // The double encoding uses the top two bits, so doubles are the last NodeIds.
+            builder.add(NodeIdFactory.encode(NodeId.createRaw(XSD_DOUBLE, 0)), -1L);
+            return builder.build();
+        }
+        if ( value.isDateTime() || value.isDate() ) {
+            XMLGregorianCalendar cal = value.getDateTime();
+            int year = cal.getYear();
+            if ( year == DatatypeConstants.FIELD_UNDEFINED || year < 0 || year >= 8000 )
+                return null;
+            // Bound by days, widely enough for timezones, and for the
+            // comparison of values with and without a timezone.
+            LocalDate day = LocalDate.of(year, cal.getMonth(), cal.getDay());
+            NodeIdType[] types = value.isDate()
+                ? new NodeIdType[] {XSD_DATE}
+                : new NodeIdType[] {XSD_DATETIME, XSD_DATETIMESTAMP};
+            for ( NodeIdType type : types )
+                builder.addDates(type, lower ? day.minusDays(2) : day.plusDays(3), lower);
+            return builder.build();
+        }
+        return null;
+    }
+
+    private static BigDecimal decimal(NodeValue value) {
+        if ( value.isInteger() )
+            return new BigDecimal(value.getInteger());
+        if ( value.isDecimal() )
+            return value.getDecimal();
+        double d = value.getDouble();
+        if ( Double.isNaN(d) || Double.isInfinite(d) )
+            return null;
+        return new BigDecimal(d);
+    }
+
+    // The least (lower) or greatest (upper) integer that satisfies the bound.
+    private static BigDecimal integerBound(BigDecimal bound, boolean lower, boolean inclusive) {
+        if ( lower )
+            return inclusive ? bound.setScale(0, RoundingMode.CEILING) : bound.setScale(0, RoundingMode.FLOOR).add(BigDecimal.ONE);
+        return inclusive ? bound.setScale(0, RoundingMode.FLOOR) : bound.setScale(0, RoundingMode.CEILING).subtract(BigDecimal.ONE);
+    }
+
+    /** The intersection of this range and another range. */
+    public NodeIdRange intersect(NodeIdRange other) {
+        Builder builder = new Builder();
+        int i = 0;
+        int j = 0;
+        while ( i < lows.length && j < other.lows.length ) {
+            long lo = Long.compareUnsigned(lows[i], other.lows[j]) >= 0 ? lows[i] : other.lows[j];
+            long hi = Long.compareUnsigned(highs[i], other.highs[j]) <= 0 ? highs[i] : other.highs[j];
+            if ( Long.compareUnsigned(lo, hi) <= 0 )
+                builder.add(lo, hi);
+            if ( Long.compareUnsigned(highs[i], other.highs[j]) <= 0 )
+                i++;
+            else
+                j++;
+        }
+        return builder.build();
+    }
+
+    /** Whether the NodeId is in the range. */
+    public boolean contains(NodeId nodeId) {
+        return find(nodeId, 0) >= 0;
+    }
+
+    /**
+     * Find the interval for a NodeId, starting at interval {@code start}.
+     * Returns the interval number if the NodeId is in an interval, or {@code -(i+1)} where
+     * {@code i} is the next interval after the NodeId, which is {@link #size()} if there
+     * are no more intervals.
+     */
+    public int find(NodeId nodeId, int start) {
+        long x = NodeIdFactory.encode(nodeId);
+        int i = start;
+        while ( i < lows.length && Long.compareUnsigned(highs[i], x) < 0 )
+            i++;
+        if ( i < lows.length && Long.compareUnsigned(lows[i], x) <= 0 )
+            return i;
+        return -(i+1);
+    }
+
+    /** Number of intervals. */
+    public int size() {
+        return lows.length;
+    }
+
+    public boolean isEmpty() {
+        return lows.length == 0;
+    }
+
+    /** The first NodeId of an interval, as encoded in index records. */
+    public long low(int i) {
+        return lows[i];
+    }
+
+    /** The last NodeId of an interval, as encoded in index records. */
+    public long high(int i) {
+        return highs[i];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("NodeIdRange[");
+        for ( int i = 0 ; i < lows.length ; i++ ) {
+            if ( i > 0 )
+                sb.append(", ");
+            sb.append(String.format("%016X-%016X", lows[i], highs[i]));
+        }
+        return sb.append("]").toString();
+    }
+
+    private static class Builder {
+        private final List<long[]> intervals = new ArrayList<>();
+
+        void add(long lo, long hi) {
+            intervals.add(new long[] {lo, hi});
+        }
+
+        void addType(NodeIdType type) {
+            add(encode(type, 0), encode(type, MaxValue56));
+        }
+
+        // Integers are 56 bit twos-complement so negative numbers come after positive ones.
+        void addIntegers(NodeIdType type, BigDecimal bound, boolean lower) {
+            if ( bound.compareTo(BigDecimal.valueOf(IntegerNode.MAX)) > 0 ) {
+                if ( ! lower )
+                    addType(type);
+                return;
+            }
+            if ( bound.compareTo(BigDecimal.valueOf(IntegerNode.MIN)) < 0 ) {
+                if ( lower )
+                    addType(type);
+                return;
+            }
+            long v = bound.longValueExact();
+            long lo = lower ? v : IntegerNode.MIN;
+            long hi = lower ? IntegerNode.MAX : v;
+            if ( lo < 0 && hi >= 0 ) {
+                add(encode(type, 0), encode(type, IntegerNode.pack56(hi)));
+                add(encode(type, IntegerNode.pack56(lo)), encode(type, MaxValue56));
+            } else
+                add(encode(type, IntegerNode.pack56(lo)), encode(type, IntegerNode.pack56(hi)));
+        }
+
+        // Each timezone is a block of NodeIds, ordered by date and time.
+        void addDates(NodeIdType type, LocalDate day, boolean lower) {
+            boolean inYears = day.getYear() >= 0 && day.getYear() < 8000;
+            for ( int tz = 0 ; tz < DateTimeNode.TZ_VALUES ; tz++ ) {
+                long first = DateTimeNode.packDayStart(tz, 0, 0, 0);
+                long last = DateTimeNode.packTimezoneLast(tz);
+                if ( inYears ) {
+                    long x = DateTimeNode.packDayStart(tz, day.getYear(), day.getMonthValue(), day.getDayOfMonth());
+                    if ( lower )
+                        first = x;
+                    else
+                        last = x-1;
+                } else if ( lower == ( day.getYear() >= 8000 ) )
+                    continue;
+                add(encode(type, first), encode(type, last));
+            }
+        }
+
+        private static long encode(NodeIdType type, long v) {
+            return NodeIdFactory.encode(NodeId.createRaw(type, v));
+        }
+
+        NodeIdRange build() {
+            intervals.sort((a, b) -> Long.compareUnsigned(a[0], b[0]));
+            List<long[]> merged = new ArrayList<>();
+            for ( long[] x : intervals ) {
+                long[] prev = merged.isEmpty() ? null : merged.get(merged.size()-1);
+                if ( prev != null && prev[1] != -1L && Long.compareUnsigned(x[0], prev[1]+1) <= 0 ) {
+                    if ( Long.compareUnsigned(x[1], prev[1]) > 0 )
+                        prev[1] = x[1];
+                } else
+                    merged.add(new long[] {x[0], x[1]});
+            }
+            long[] lows = new long[merged.size()];
+            long[] highs = new long[merged.size()];
+            for ( int i = 0 ; i < lows.length ; i++ ) {
+                lows[i] = merged.get(i)[0];
+                highs[i] = merged.get(i)[1];
+            }
+            return new NodeIdRange(lows, highs);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import java.util.Arrays;
+
+/**
+ * A set of {@link NodeId NodeIds}.
+ * Each NodeId is held as its 64 bit encoding in an open addressing hash table of {@code long}s
+ * so there is no object per entry.
+ */
+public final class NodeIdSet {
+    private static final int MinCapacity = 16;
+    // Unused slot. The encoding zero is a NodeId (PTR 0) so it is recorded separately.
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private int mask;
+    private int size = 0;
+    private boolean containsZero = false;
+
+    public NodeIdSet() {
+        this(MinCapacity);
+    }
+
+    public NodeIdSet(int expectedSize) {
+        int capacity = MinCapacity;
+        while ( capacity < 2 * expectedSize )
+            capacity <<= 1;
+        allocate(capacity);
+    }
+
+    /** Add a NodeId; return true if it was not already in the set. */
+    public boolean add(NodeId nodeId) {
+        long x = NodeIdFactory.encode(nodeId);
+        if ( x == EMPTY ) {
+            if ( containsZero )
+                return false;
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int idx = slot(x);
+        if ( table[idx] == x )
+            return false;
+        table[idx] = x;
+        size++;
+        if ( 2 * size > table.length )
+            resize();
+        return true;
+    }
+
+    public boolean contains(NodeId nodeId) {
+        long x = NodeIdFactory.encode(nodeId);
+        if ( x == EMPTY )
+            return containsZero;
+        return table[slot(x)] == x;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        containsZero = false;
+        size = 0;
+    }
+
+    // The slot holding x, or the empty slot where it would go.
+    private int slot(long x) {
+        int idx = hash(x) & mask;
+        for ( ;; ) {
+            long v = table[idx];
+            if ( v == EMPTY || v == x )
+                return idx;
+            idx = (idx + 1) & mask;
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private void resize() {
+        long[] oldTable = table;
+        allocate(2 * oldTable.length);
+        for ( long x : oldTable ) {
+            if ( x != EMPTY )
+                table[slot(x)] = x;
+        }
+    }
+
+    private static int hash(long x) {
+        // MurmurHash3 64 bit finalizer.
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return (int)x;
+    }
+
+    @Override
+    public String toString() {
+        return "NodeIdSet[size=" + size + "]";
+    }
+}
@@ -57,6 +57,12 @@ public enum NodeIdType {
     XSD_UNSIGNEDSHORT(T_UNSIGNEDSHORT, "UnsignedShort"),
     XSD_UNSIGNEDBYTE(T_UNSIGNEDBYTE, "UnsignedByte"),
 
+    // Inline format 2 and later.
+    XSD_TIME(T_TIME, "Time"),
+    XSD_GYEAR(T_GYEAR, "GYear"),
+    XSD_DURATION(T_DURATION, "Duration"),
+    RDF_SHORTLANGSTRING(T_SHORTLANGSTRING, "ShortLangString"),
+
     // Never stored.
     SPECIAL(T_SPECIAL, "Special"),
     // Used here only.
@@ -107,6 +113,12 @@ public enum NodeIdType {
         public static final int T_UNSIGNEDBYTE = enc(21);
         // 21 is 00010101
 
+        // Inline format 2 and later. T_SHORTSTRING is also only used from format 2.
+        public static final int T_TIME = enc(22);
+        public static final int T_GYEAR = enc(23);
+        public static final int T_DURATION = enc(24);
+        public static final int T_SHORTLANGSTRING = enc(25);
+
         // Never stored : bits 1011 0000 so as not to look like a double.
         public static final int T_SPECIAL = enc(0x30);
         public static final int T_INVALID = enc(0x31);
@@ -192,6 +204,11 @@ public enum NodeIdType {
             case XSD_UNSIGNEDINT:
             case XSD_UNSIGNEDSHORT:
             case XSD_UNSIGNEDBYTE:
+
+            case XSD_TIME:
+            case XSD_GYEAR:
+            case XSD_DURATION:
+            case RDF_SHORTLANGSTRING:
                 return true;
             default:
                 return false;
@@ -254,6 +271,11 @@ public enum NodeIdType {
         if (x == XSD_UNSIGNEDINT.value )            return XSD_UNSIGNEDINT;
         if (x == XSD_UNSIGNEDSHORT.value )          return XSD_UNSIGNEDSHORT;
         if (x == XSD_UNSIGNEDBYTE.value )           return XSD_UNSIGNEDBYTE;
+
+        if (x == XSD_TIME.value )                   return XSD_TIME;
+        if (x == XSD_GYEAR.value )                  return XSD_GYEAR;
+        if (x == XSD_DURATION.value )               return XSD_DURATION;
+        if (x == RDF_SHORTLANGSTRING.value )        return RDF_SHORTLANGSTRING;
         //if (x == EXTENSION.value )                  return EXTENSION;
         return INVALID$;
     }
@@ -29,6 +29,8 @@ import org.apache.jena.dboe.transaction.txn.TransactionalSystem;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.tdb2.solver.stats.TransStats;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
 
 /** {@link StorageRDF} for TDB2 */
 public class StorageTDB implements StorageRDF {
@@ -37,6 +39,8 @@ public class StorageTDB implements StorageRDF {
     private QuadTable                   quadTable;
     private TransactionalSystem         txnSystem;
     // SWITCHING.
+    // Incremental statistics; null if not maintained.
+    private final TransStats            stats;
 
     // In notifyAdd and notifyDelete,  check whether the change is a real change or not.
     // e.g. Adding a quad already present is not a real change.
@@ -46,9 +50,27 @@ public class StorageTDB implements StorageRDF {
     private boolean                     closed         = false;
 
     public StorageTDB(TransactionalSystem txnSystem, TripleTable tripleTable, QuadTable quadTable) {
+        this(txnSystem, tripleTable, quadTable, null);
+    }
+
+    public StorageTDB(TransactionalSystem txnSystem, TripleTable tripleTable, QuadTable quadTable, TransStats stats) {
         this.txnSystem = txnSystem;
         this.tripleTable = tripleTable;
         this.quadTable = quadTable;
+        this.stats = stats;
+    }
+
+    /** The incremental statistics, or null if they are not being maintained. */
+    public TransStats getStats() {
+        return stats;
+    }
+
+    /** Calculate the incremental statistics from the data. Must be called in a write transaction. */
+    public void rebuildStats() {
+        if ( stats == null )
+            return;
+        ensureWriteTxn();
+        stats.rebuild(tripleTable.getNodeTupleTable(), quadTable.getNodeTupleTable());
     }
 
     public QuadTable getQuadTable() {
@@ -72,7 +94,10 @@ public class StorageTDB implements StorageRDF {
         checkActive();
         ensureWriteTxn();
         notifyAdd(null, s, p, o);
-        getTripleTable().add(s, p, o);
+        if ( stats != null )
+            stats.add(getTripleTable().getNodeTupleTable(), s, p, o);
+        else
+            getTripleTable().add(s, p, o);
     }
 
     @Override
@@ -80,7 +105,10 @@ public class StorageTDB implements StorageRDF {
         checkActive();
         ensureWriteTxn();
         notifyAdd(g, s, p, o);
-        getQuadTable().add(g, s, p, o);
+        if ( stats != null )
+            stats.add(getQuadTable().getNodeTupleTable(), g, s, p, o);
+        else
+            getQuadTable().add(g, s, p, o);
     }
 
     @Override
@@ -88,7 +116,10 @@ public class StorageTDB implements StorageRDF {
         checkActive();
         ensureWriteTxn();
         notifyDelete(null, s, p, o);
-        getTripleTable().delete(s, p, o);
+        if ( stats != null )
+            stats.delete(getTripleTable().getNodeTupleTable(), s, p, o);
+        else
+            getTripleTable().delete(s, p, o);
     }
 
     @Override
@@ -96,7 +127,10 @@ public class StorageTDB implements StorageRDF {
         checkActive();
         ensureWriteTxn();
         notifyDelete(g, s, p, o);
-        getQuadTable().delete(g, s, p, o);
+        if ( stats != null )
+            stats.delete(getQuadTable().getNodeTupleTable(), g, s, p, o);
+        else
+            getQuadTable().delete(g, s, p, o);
     }
 
     @Override
@@ -104,7 +138,7 @@ public class StorageTDB implements StorageRDF {
         checkActive();
         ensureWriteTxn();
         removeWorker(() -> tripleTable.getNodeTupleTable().findAsNodeIds(s,p,o),
-                     x  -> tripleTable.getNodeTupleTable().getTupleTable().delete(x) );
+                     x  -> deleteTuple(tripleTable.getNodeTupleTable(), x) );
     }
 
     @Override
@@ -112,7 +146,14 @@ public class StorageTDB implements StorageRDF {
         checkActive();
         ensureWriteTxn();
         removeWorker(() -> quadTable.getNodeTupleTable().findAsNodeIds(g,s,p,o),
-                     x  -> quadTable.getNodeTupleTable().getTupleTable().delete(x) );
+                     x  -> deleteTuple(quadTable.getNodeTupleTable(), x) );
+    }
+
+    private void deleteTuple(NodeTupleTable table, Tuple<NodeId> tuple) {
+        if ( stats != null )
+            stats.delete(table, tuple);
+        else
+            table.getTupleTable().delete(tuple);
     }
 
     private static final int DeleteBufferSize = 1000;
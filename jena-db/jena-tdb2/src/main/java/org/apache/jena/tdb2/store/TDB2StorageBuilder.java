@@ -43,12 +43,16 @@ import org.apache.jena.sparql.engine.main.QC;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
 import org.apache.jena.sparql.sse.SSEParseException;
+import org.apache.jena.system.Txn;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.params.StoreParams;
 import org.apache.jena.tdb2.params.StoreParamsCodec;
 import org.apache.jena.tdb2.params.StoreParamsFactory;
 import org.apache.jena.tdb2.solver.OpExecutorTDB2;
+import org.apache.jena.tdb2.solver.stats.ReorderStatsTDB;
+import org.apache.jena.tdb2.solver.stats.TransStats;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetable.NodeTableBloomFilter;
 import org.apache.jena.tdb2.store.nodetable.NodeTableCache;
 import org.apache.jena.tdb2.store.nodetable.NodeTableInline;
 import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF;
@@ -110,6 +114,14 @@ public class TDB2StorageBuilder {
         // Freezes the TransactionCoordinator components
         txnCoord.start();
         ReorderTransformation reorderTranform = chooseReorderTransformation(location);
+        TransStats stats = storage.getStats();
+        if ( stats != null ) {
+            if ( ! stats.isInitialized() )
+                Txn.executeWrite(txnSystem, storage::rebuildStats);
+            // A statistics file or optimizer setting in the database directory takes precedence.
+            if ( ! hasOptimizerFile(location) )
+                reorderTranform = new ReorderStatsTDB(stats);
+        }
         DatasetGraphTDB dsg = new DatasetGraphTDB(location, params, reorderTranform,
                                                   storage, prefixes, txnSystem);
 
@@ -207,10 +219,21 @@ public class TDB2StorageBuilder {
         NodeTable nodeTable = buildNodeTable(params.getNodeTableBaseName());
         TripleTable tripleTable = buildTripleTable(nodeTable);
         QuadTable quadTable = buildQuadTable(nodeTable);
-        StorageTDB dsg = new StorageTDB(txnSystem, tripleTable, quadTable);
+        TransStats stats = params.isStatsIncremental() ? buildStats(nodeTable) : null;
+        StorageTDB dsg = new StorageTDB(txnSystem, tripleTable, quadTable, stats);
         return dsg;
     }
 
+    private TransStats buildStats(NodeTable nodeTable) {
+        String name = Names.statsBaseName;
+        ComponentId cid = componentIdMgr.getComponentId(name);
+        FileSet fs = new FileSet(location, name);
+        BufferChannel file = FileFactory.createBufferChannel(fs, Names.extStats);
+        TransStats stats = new TransStats(cid, file, nodeTable);
+        components.add(stats);
+        return stats;
+    }
+
     private StoragePrefixes buildPrefixes() {
         NodeTable nodeTablePrefixes = buildNodeTable(params.getPrefixTableBaseName());
         StoragePrefixesTDB prefixes = buildPrefixTable(nodeTablePrefixes);
@@ -286,15 +309,15 @@ public class TDB2StorageBuilder {
     private TupleIndex makeTupleIndex(String primary, String index, String name) {
         TupleMap cmap = TupleMap.create(primary, index);
         RecordFactory rf = new RecordFactory(SystemTDB.SizeOfNodeId * cmap.length(), 0);
-        RangeIndex rIdx = makeRangeIndex(rf, index);
+        RangeIndex rIdx = makeRangeIndex(rf, index, params.isIndexLeafCompression(), params.isIndexCounted());
         TupleIndex tIdx = new TupleIndexRecord(primary.length(), cmap, index, rf, rIdx);
         return tIdx;
     }
 
-    private RangeIndex makeRangeIndex(RecordFactory recordFactory, String name) {
+    private RangeIndex makeRangeIndex(RecordFactory recordFactory, String name, boolean leafCompression, boolean counted) {
         ComponentId cid = componentIdMgr.getComponentId(name);
         FileSet fs = new FileSet(location, name);
-        BPlusTree bpt = BPlusTreeFactory.createBPTree(cid, fs, recordFactory);
+        BPlusTree bpt = BPlusTreeFactory.createBPTree(cid, fs, recordFactory, leafCompression, counted);
         components.add(bpt);
         return bpt;
     }
@@ -309,18 +332,26 @@ public class TDB2StorageBuilder {
             listeners.add(nodeTableCache);
         }
 
-        nodeTable = NodeTableInline.create(nodeTable);
+        nodeTable = NodeTableInline.create(nodeTable, params.getNodeIdInlineFormat());
         return nodeTable;
     }
 
     private NodeTable buildBaseNodeTable(String name) {
         RecordFactory recordFactory = new RecordFactory(SystemTDB.LenNodeHash, SystemTDB.SizeOfNodeId);
-        Index index = makeRangeIndex(recordFactory, name);
+        // Node hashes do not share prefixes - never compressed - and are only looked up by key - never counted.
+        Index index = makeRangeIndex(recordFactory, name, false, false);
 
         String dataname = name+"-data";
         TransBinaryDataFile transBinFile = makeBinaryDataFile(dataname);
         components.add(transBinFile);
-        return new NodeTableTRDF(index, transBinFile);
+
+        NodeTableBloomFilter filter = null;
+        if ( params.isNodeBloomFilter() && name.equals(params.getNodeTableBaseName()) ) {
+            FileSet fs = new FileSet(location, name);
+            filter = new NodeTableBloomFilter(FileFactory.createBufferChannel(fs, Names.extNodeBloom));
+            listeners.add(filter);
+        }
+        return new NodeTableTRDF(index, transBinFile, filter);
     }
 
     private TransBinaryDataFile makeBinaryDataFile(String name) {
@@ -333,6 +364,12 @@ public class TDB2StorageBuilder {
         return transBinFile;
     }
 
+    private static boolean hasOptimizerFile(Location location) {
+        if ( location == null || location.isMem() )
+            return false;
+        return location.exists(Names.optStats) || location.exists(Names.optFixed) || location.exists(Names.optNone);
+    }
+
     private static boolean warnAboutOptimizer = true ;
     public static ReorderTransformation chooseReorderTransformation(Location location) {
         if ( location == null )
@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.apache.jena.atlas.RuntimeIOException;
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.dboe.base.file.BufferChannel;
+import org.apache.jena.dboe.transaction.txn.Transaction;
+import org.apache.jena.dboe.transaction.txn.TransactionListener;
+
+/**
+ * A Bloom filter over the node hashes of a {@link NodeTableNative}.
+ * <p>
+ * When the filter says a node is definitely not in the node table, the lookup in the
+ * node hash index can be skipped. This is the common case when loading new data.
+ * The filter can give false positives but not false negatives.
+ * <p>
+ * The filter is blocked: the bits for one node hash are all in one 512 bit block,
+ * so a test touches one cache line.
+ * <p>
+ * The filter is kept in a file, together with the length of the node data file it
+ * covers. The changed parts of the filter are written when a write transaction
+ * prepares to commit, before the commit is durable. Bits are only ever set, so a
+ * filter that covers at least the committed node data is valid, even if it has bits
+ * for nodes from a transaction that did not commit. Otherwise, the node table
+ * rebuilds the filter from the node hash index.
+ * <p>
+ * When more nodes have been added than the filter is sized for, it is {@link #isFull full}:
+ * it no longer excludes any node until the node table rebuilds it at a larger size.
+ * <p>
+ * Lookups do not take a lock. A rebuilt filter is filled before it replaces the
+ * current one.
+ */
+public class NodeTableBloomFilter implements TransactionListener {
+    private static final long MAGIC         = 0x5444424E6F646542L;
+    private static final int  VERSION       = 1;
+    private static final int  HeaderLength  = 40;
+
+    // 512 bit blocks, of 8 longs.
+    private static final int  BlockLongs    = 8;
+    private static final int  BlockBits     = 64*BlockLongs;
+    // Bits set per node, each taken from 9 bits of the node hash.
+    private static final int  NumHashes     = 7;
+    private static final int  BitsPerNode   = 10;
+    // Unit of writing changes to the file, in longs (4 kbytes).
+    private static final int  ChunkLongs    = 512;
+
+    private static final long MinCapacity   = 64*1024;
+    // Used to size a new filter: nodes take at least this many bytes in the node data file.
+    private static final int  MinNodeBytes  = 16;
+
+    private final BufferChannel file;
+
+    // The number of blocks is bits.length/BlockLongs.
+    private volatile long[] bits = null;
+    private volatile boolean full = false;
+    private long count          = 0;
+    // All nodes in the node data file before this point are in the filter.
+    private long covered        = 0;
+    // The value of covered to go back to if a write transaction aborts, or -1.
+    private long coveredTxnStart = -1;
+    private final BitSet dirty  = new BitSet();
+    private boolean rewrite     = false;
+
+    public NodeTableBloomFilter(BufferChannel file) {
+        this.file = file;
+    }
+
+    public boolean isInitialized() {
+        return bits != null;
+    }
+
+    /**
+     * Load the filter for a node data file of the given length.
+     * Return false if the filter needs to be rebuilt with {@link #reset}.
+     */
+    public synchronized boolean load(long dataLength) {
+        long size = file.size();
+        if ( size < HeaderLength )
+            return false;
+        ByteBuffer header = ByteBuffer.allocate(HeaderLength);
+        file.read(header, 0);
+        header.flip();
+        if ( header.getLong() != MAGIC || header.getInt() != VERSION )
+            return false;
+        int fileBlocks = header.getInt();
+        long fileCount = header.getLong();
+        long fileCovered = header.getLong();
+        if ( size != HeaderLength + 8L*BlockLongs*fileBlocks )
+            return false;
+        count = fileCount;
+        if ( fileCovered < dataLength || fileCount > capacity(fileBlocks) )
+            return false;
+        long[] fileBits = new long[BlockLongs*fileBlocks];
+        ByteBuffer bb = ByteBuffer.allocate(8*ChunkLongs);
+        for ( int i = 0 ; i < fileBits.length ; i += ChunkLongs ) {
+            int n = Math.min(ChunkLongs, fileBits.length-i);
+            bb.clear().limit(8*n);
+            readFully(bb, HeaderLength + 8L*i);
+            bb.flip();
+            bb.asLongBuffer().get(fileBits, i, n);
+        }
+        covered = fileCovered;
+        dirty.clear();
+        rewrite = false;
+        full = false;
+        bits = fileBits;
+        return true;
+    }
+
+    /**
+     * Start a new, empty filter for a node data file of the given length.
+     * The caller then adds all the nodes of the node table.
+     */
+    public synchronized void reset(long dataLength) {
+        rebuild(dataLength, Collections.emptyIterator());
+    }
+
+    /**
+     * Replace the filter with one for a node data file of the given length,
+     * containing the node hashes. The size allows for at least twice the
+     * number of nodes in the current filter.
+     */
+    public synchronized void rebuild(long dataLength, Iterator<byte[]> hashes) {
+        long capacity = Math.max(MinCapacity, Math.max(dataLength/MinNodeBytes, 2*count));
+        int blocks = (int)Math.min(Integer.MAX_VALUE/BlockLongs, (capacity*BitsPerNode+BlockBits-1)/BlockBits);
+        long[] newBits = new long[BlockLongs*blocks];
+        long newCount = 0;
+        while ( hashes.hasNext() ) {
+            set(newBits, hashes.next());
+            newCount++;
+        }
+        count = newCount;
+        // The data may include nodes of a write transaction that later aborts.
+        if ( coveredTxnStart < 0 )
+            coveredTxnStart = covered;
+        covered = dataLength;
+        dirty.clear();
+        rewrite = true;
+        full = count > capacity(blocks);
+        bits = newBits;
+    }
+
+    private static long capacity(int blocks) {
+        return (long)blocks*BlockBits/BitsPerNode;
+    }
+
+    /** Whether the node with this hash may be in the node table. */
+    public boolean mightContain(byte[] hash) {
+        long[] b = bits;
+        if ( b == null || full )
+            return true;
+        long h2 = Bytes.getLong(hash, 8);
+        int base = BlockLongs*block(b, hash);
+        for ( int i = 0 ; i < NumHashes ; i++ ) {
+            int bit = (int)(h2 >>> (9*i)) & (BlockBits-1);
+            if ( (b[base + (bit>>>6)] & (1L << bit)) == 0 )
+                return false;
+        }
+        return true;
+    }
+
+    /** Add a node hash. */
+    public synchronized void add(byte[] hash) {
+        int base = set(bits, hash);
+        count++;
+        if ( count > capacity(bits.length/BlockLongs) )
+            full = true;
+        if ( ! rewrite )
+            dirty.set(base/ChunkLongs);
+    }
+
+    /**
+     * Whether more nodes have been added than the filter is sized for.
+     * A full filter does not exclude any node.
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    // Set the bits for a hash, and return the start of its block.
+    private static int set(long[] b, byte[] hash) {
+        long h2 = Bytes.getLong(hash, 8);
+        int base = BlockLongs*block(b, hash);
+        for ( int i = 0 ; i < NumHashes ; i++ ) {
+            int bit = (int)(h2 >>> (9*i)) & (BlockBits-1);
+            b[base + (bit>>>6)] |= (1L << bit);
+        }
+        return base;
+    }
+
+    private static int block(long[] b, byte[] hash) {
+        return (int)Long.remainderUnsigned(Bytes.getLong(hash, 0), b.length/BlockLongs);
+    }
+
+    /** The length of node data file that the filter covers. */
+    public synchronized long covered() {
+        return covered;
+    }
+
+    /**
+     * Record that the filter covers a node data file of this length, after adding
+     * nodes in a write transaction. If the transaction aborts, the filter goes back
+     * to the length it covered before.
+     */
+    public synchronized void covers(long dataLength) {
+        if ( coveredTxnStart < 0 )
+            coveredTxnStart = covered;
+        covered = dataLength;
+    }
+
+    /** Write the changes to the file. */
+    public synchronized void save() {
+        if ( bits == null || ( ! rewrite && dirty.isEmpty() ) )
+            return;
+        ByteBuffer bb = ByteBuffer.allocate(8*ChunkLongs);
+        LongBuffer lb = bb.asLongBuffer();
+        if ( rewrite ) {
+            // No valid header until all the bits are written.
+            file.truncate(0);
+            writeFully(ByteBuffer.allocate(HeaderLength), 0);
+            dirty.set(0, (bits.length+ChunkLongs-1)/ChunkLongs);
+        }
+        for ( int c = dirty.nextSetBit(0) ; c >= 0 ; c = dirty.nextSetBit(c+1) ) {
+            int i = c*ChunkLongs;
+            int n = Math.min(ChunkLongs, bits.length-i);
+            lb.clear();
+            lb.put(bits, i, n);
+            bb.clear().limit(8*n);
+            writeFully(bb, HeaderLength + 8L*i);
+        }
+        file.sync();
+        ByteBuffer header = ByteBuffer.allocate(HeaderLength);
+        header.putLong(MAGIC).putInt(VERSION).putInt(bits.length/BlockLongs).putLong(count).putLong(covered).putLong(0);
+        header.flip();
+        writeFully(header, 0);
+        file.sync();
+        dirty.clear();
+        rewrite = false;
+    }
+
+    private void readFully(ByteBuffer bb, long posn) {
+        while ( bb.hasRemaining() ) {
+            int x = file.read(bb, posn);
+            if ( x <= 0 )
+                throw new RuntimeIOException("Short read: "+file.getLabel());
+            posn += x;
+        }
+    }
+
+    private void writeFully(ByteBuffer bb, long posn) {
+        while ( bb.hasRemaining() ) {
+            int x = file.write(bb, posn);
+            posn += x;
+        }
+    }
+
+    @Override
+    public void notifyPrepareFinish(Transaction transaction) {
+        if ( transaction.isWriteTxn() )
+            save();
+    }
+
+    @Override
+    public synchronized void notifyCommitFinish(Transaction transaction) {
+        if ( transaction.isWriteTxn() )
+            coveredTxnStart = -1;
+    }
+
+    @Override
+    public synchronized void notifyAbortFinish(Transaction transaction) {
+        // The node data file is back to its length before the transaction.
+        if ( transaction.isWriteTxn() && coveredTxnStart >= 0 ) {
+            covered = coveredTxnStart;
+            coveredTxnStart = -1;
+        }
+    }
+
+    public synchronized void close() {
+        save();
+        file.close();
+    }
+}
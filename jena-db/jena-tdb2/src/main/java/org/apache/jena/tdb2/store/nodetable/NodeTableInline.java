@@ -20,11 +20,15 @@ package org.apache.jena.tdb2.store.nodetable;
 
 import org.apache.jena.graph.Node;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdInline;
 
 /** NodeTable wrapper to handle inline node ids.
  * If a node can be made inline, then the underlying table never sees it.
  * If an inline Nodeid is seen, it is decoded and returned without
  * the underlying table being called.
+ * <p>
+ * Which nodes are inline depends on the inline format of the database.
+ * @see NodeIdInline
  */
 
 public class NodeTableInline extends NodeTableWrapper
@@ -33,18 +37,27 @@ public class NodeTableInline extends NodeTableWrapper
 
     public static NodeTable create(NodeTable nodeTable)
     {
-        return new NodeTableInline(nodeTable);
+        return create(nodeTable, NodeIdInline.FORMAT_V1);
     }
 
-    private NodeTableInline(NodeTable nodeTable)
+    public static NodeTable create(NodeTable nodeTable, int inlineFormat)
+    {
+        NodeIdInline.checkFormat(inlineFormat);
+        return new NodeTableInline(nodeTable, inlineFormat);
+    }
+
+    private final int inlineFormat;
+
+    private NodeTableInline(NodeTable nodeTable, int inlineFormat)
     {
         super(nodeTable);
+        this.inlineFormat = inlineFormat;
     }
 
     @Override
     public final NodeId getAllocateNodeId(Node node)
     {
-        NodeId nid = NodeId.inline(node);
+        NodeId nid = NodeId.inline(node, inlineFormat);
         if ( nid != null ) return nid;
         return super.getAllocateNodeId(node);
     }
@@ -52,7 +65,7 @@ public class NodeTableInline extends NodeTableWrapper
     @Override
     public final NodeId getNodeIdForNode(Node node)
     {
-        NodeId nid = NodeId.inline(node);
+        NodeId nid = NodeId.inline(node, inlineFormat);
         if ( nid != null ) return nid;
         return super.getNodeIdForNode(node);
     }
@@ -39,10 +39,17 @@ import org.apache.jena.tdb2.store.NodeIdFactory;
 public abstract class NodeTableNative implements NodeTable
 {
     protected Index nodeHashToId;        // hash -> int
+    // Optional filter of the hashes in nodeHashToId.
+    private final NodeTableBloomFilter filter;
     private boolean syncNeeded = false;
 
     public NodeTableNative(Index nodeToId) {
+        this(nodeToId, null);
+    }
+
+    public NodeTableNative(Index nodeToId, NodeTableBloomFilter filter) {
         this.nodeHashToId = nodeToId;
+        this.filter = filter;
     }
     // ---- Public interface for Node <==> NodeId
 
@@ -127,7 +134,7 @@ public abstract class NodeTableNative implements NodeTable
         synchronized (this)  // Pair to readNodeFromTable.
         {
             // Key and value, or null
-            Record r2 = nodeHashToId.find(r);
+            Record r2 = definitelyNotPresent(k) ? null : nodeHashToId.find(r);
             if ( r2 != null )
             {
                 // Found.  Get the NodeId.
@@ -141,6 +148,10 @@ public abstract class NodeTableNative implements NodeTable
             // Write the node, which allocates an id for it.
             syncNeeded = true;
             NodeId id = writeNodeToTable(node);
+            if ( filter != null ) {
+                filter.add(k);
+                filter.covers(dataLength());
+            }
 
             // Update the r record with the new id.
             // r.value := id bytes;
@@ -149,10 +160,41 @@ public abstract class NodeTableNative implements NodeTable
             // Put in index - may appear because of concurrency
             if ( ! nodeHashToId.insert(r) )
                 throw new TDBException("NodeTableBase::nodeToId - record mysteriously appeared");
+            if ( filter != null && filter.isFull() )
+                // Grow the filter.
+                rebuildFilter(dataLength());
             return id;
         }
     }
 
+    // Called inside synchronized(this) in accessIndex.
+    private boolean definitelyNotPresent(byte[] hash) {
+        if ( filter == null )
+            return false;
+        if ( ! filter.isInitialized() ) {
+            long dataLength = dataLength();
+            if ( ! filter.load(dataLength) )
+                rebuildFilter(dataLength);
+        }
+        if ( filter.mightContain(hash) )
+            return false;
+        // Nodes have been added without going through this class (e.g. a bulk loader).
+        long dataLength = dataLength();
+        if ( dataLength > filter.covered() ) {
+            rebuildFilter(dataLength);
+            return ! filter.mightContain(hash);
+        }
+        return true;
+    }
+
+    /*package*/ NodeTableBloomFilter getFilter() {
+        return filter;
+    }
+
+    private void rebuildFilter(long dataLength) {
+        filter.rebuild(dataLength, Iter.map(nodeHashToId.iterator(), Record::getKey));
+    }
+
     // -------- NodeId<->Node
     // Synchronization:
     //   write: in accessIndex
@@ -161,6 +203,8 @@ public abstract class NodeTableNative implements NodeTable
 
     abstract protected NodeId writeNodeToTable(Node node);
     abstract protected Node readNodeFromTable(NodeId id);
+    /** Length of the node storage, as seen by the current transaction. */
+    abstract protected long dataLength();
     abstract protected void syncSub();
     abstract protected void closeSub();
 
@@ -170,6 +214,8 @@ public abstract class NodeTableNative implements NodeTable
     public synchronized void close() {
         // Close once. This may be shared (e.g. triples table and quads table).
         if ( nodeHashToId != null ) {
+            if ( filter != null )
+                filter.close();
             nodeHashToId.close();
             closeSub();
             nodeHashToId = null;
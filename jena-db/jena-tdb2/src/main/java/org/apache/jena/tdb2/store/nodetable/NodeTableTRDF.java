@@ -42,7 +42,11 @@ public class NodeTableTRDF extends NodeTableNative {
     private final TProtocol protocol;
 
     public NodeTableTRDF(Index nodeToId, BinaryDataFile objectFile) {
-        super(nodeToId);
+        this(nodeToId, objectFile, null);
+    }
+
+    public NodeTableTRDF(Index nodeToId, BinaryDataFile objectFile, NodeTableBloomFilter filter) {
+        super(nodeToId, filter);
         try {
             this.diskFile = objectFile;
             transport = new TReadAppendFileTransport(diskFile);
@@ -92,6 +96,11 @@ public class NodeTableTRDF extends NodeTableNative {
         }
     }
 
+    @Override
+    protected long dataLength() {
+        return diskFile.length();
+    }
+
     @Override
     protected void syncSub() {
         try { transport.flush(); }
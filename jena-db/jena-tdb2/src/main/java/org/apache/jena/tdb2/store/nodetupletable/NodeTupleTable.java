@@ -25,6 +25,7 @@ import org.apache.jena.atlas.lib.Sync;
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.graph.Node;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdRange;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.tupletable.TupleTable;
 
@@ -49,6 +50,9 @@ public interface NodeTupleTable extends Sync, Closeable
     /** Find by NodeId. */
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> ids);
 
+    /** Find by NodeId, with the NodeId in {@code slot}, which is any in the pattern, in a range. */
+    public Iterator<Tuple<NodeId>> find(Tuple<NodeId> ids, int slot, NodeIdRange range);
+
     /** Find all tuples */
     public Iterator<Tuple<NodeId>> findAll();
 
@@ -29,6 +29,7 @@ import org.apache.jena.graph.Node;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.lib.TupleLib;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdRange;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.tupletable.TupleIndex;
 import org.apache.jena.tdb2.store.tupletable.TupleTable;
@@ -168,6 +169,17 @@ public class NodeTupleTableConcrete implements NodeTupleTable
         } finally { finishRead(); }
     }
 
+    /** Find by NodeId, with a range for one slot. */
+    @Override
+    public Iterator<Tuple<NodeId>> find(Tuple<NodeId> tuple, int slot, NodeIdRange range)
+    {
+        try {
+            startRead();
+            Iterator<Tuple<NodeId>> iter = tupleTable.find(tuple, slot, range);
+            return iteratorControl(iter);
+        } finally { finishRead(); }
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> findAll()
     {
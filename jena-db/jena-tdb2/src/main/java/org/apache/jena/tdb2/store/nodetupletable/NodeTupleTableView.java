@@ -22,8 +22,10 @@ import java.util.Iterator;
 
 import org.apache.jena.atlas.lib.ArrayUtils;
 import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
 import org.apache.jena.graph.Node;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdRange;
 import org.apache.jena.tdb2.store.tupletable.TupleTable;
 
 /** (Read-only?) projection of another NodeTupleTable.
@@ -93,6 +95,13 @@ public class NodeTupleTableView extends NodeTupleTableWrapper
         return nodeTupleTable.find(ids2);
     }
 
+    @Override
+    public Iterator<Tuple<NodeId>> find(Tuple<NodeId> ids, int slot, NodeIdRange range)
+    {
+        NodeId[] ids2 = push(NodeId.class, prefixId, ids);
+        return nodeTupleTable.find(TupleFactory.create(ids2), slot+1, range);
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> findAsNodeIds(Node... nodes)
     {
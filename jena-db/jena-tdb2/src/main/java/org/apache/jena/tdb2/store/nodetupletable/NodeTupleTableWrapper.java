@@ -23,6 +23,7 @@ import java.util.Iterator;
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.graph.Node;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdRange;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.tupletable.TupleTable;
 
@@ -64,6 +65,10 @@ public class NodeTupleTableWrapper implements NodeTupleTable
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> tuple)
     { return nodeTupleTable.find(tuple); }
 
+    @Override
+    public Iterator<Tuple<NodeId>> find(Tuple<NodeId> tuple, int slot, NodeIdRange range)
+    { return nodeTupleTable.find(tuple, slot, range); }
+
     @Override
     public Iterator<Tuple<NodeId>> findAsNodeIds(Node... nodes)
     { return nodeTupleTable.findAsNodeIds(nodes); }
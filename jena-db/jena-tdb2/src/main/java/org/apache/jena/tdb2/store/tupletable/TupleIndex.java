@@ -68,6 +68,14 @@ public interface TupleIndex extends Sync, Closeable
     /** Size of index (number of slots). May be an estimate and not exact. -1 for unknown.  */
     public long size();
 
+    /**
+     * The number of tuples matching a pattern, specified in normal order (not index order),
+     * without reading the tuples. Returns -1 if the index can not do this for the pattern.
+     */
+    public default long count(Tuple<NodeId> pattern) {
+        return -1;
+    }
+
     /** Answer whether empty or not */
     public boolean isEmpty();
 
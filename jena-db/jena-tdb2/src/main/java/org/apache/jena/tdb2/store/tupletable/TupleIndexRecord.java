@@ -21,13 +21,19 @@ package org.apache.jena.tdb2.store.tupletable;
 import static java.lang.String.format;
 import static org.apache.jena.tdb2.sys.SystemTDB.SizeOfNodeId;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorSlotted;
 import org.apache.jena.atlas.iterator.NullIterator;
 import org.apache.jena.atlas.iterator.SingletonIterator;
+import org.apache.jena.atlas.lib.Bytes;
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.lib.tuple.TupleFactory;
 import org.apache.jena.atlas.lib.tuple.TupleMap;
@@ -39,6 +45,7 @@ import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.lib.TupleLib;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.NodeIdRange;
 
 public class TupleIndexRecord extends TupleIndexBase
 {
@@ -104,8 +111,13 @@ public class TupleIndexRecord extends TupleIndexBase
     /** Insert tuples */
     @Override
     public void addAll(Collection<Tuple<NodeId>> tuples) {
+        // In index order, so that inserts go to adjacent blocks.
+        List<Record> records = new ArrayList<>(tuples.size());
         for ( Tuple<NodeId> t : tuples )
-            add(t);
+            records.add(TupleLib.record(factory, t, tupleMap));
+        records.sort(Record::compareByKeyValue);
+        for ( Record r : records )
+            index.insert(r);
     }
 
     /** Delete tuples */
@@ -243,6 +255,165 @@ public class TupleIndexRecord extends TupleIndexBase
         return tuples;
     }
 
+    /**
+     * Find all tuples matching the pattern with the NodeId in {@code slot} in the range.
+     * The slot, in natural order, must be unbound in the pattern. Return null if the slot
+     * does not come straight after the leading bound slots of the pattern in this
+     * index, when the index can not be used for the range.
+     */
+    public Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> patternNaturalOrder, int slot, NodeIdRange range) {
+        int rangeIdx = tupleMap.unmapIdx(slot);
+        if ( weight(patternNaturalOrder) != rangeIdx )
+            return null;
+        if ( range.isEmpty() )
+            return Iter.nullIterator();
+
+        // Convert to index order.
+        Tuple<NodeId> pattern = tupleMap.map(patternNaturalOrder);
+        byte[] prefix = new byte[rangeIdx*SizeOfNodeId];
+        for ( int i = 0; i < rangeIdx ; i++ )
+            NodeIdFactory.set(pattern.get(i), prefix, i*SizeOfNodeId);
+
+        Iterator<Tuple<NodeId>> tuples = new RangeScan(prefix, slot, range);
+        for ( int i = rangeIdx+1; i < pattern.len() ; i++ ) {
+            if ( ! NodeId.isAny(pattern.get(i)) ) {
+                // Defined slots after the range.
+                tuples = scan(tuples, patternNaturalOrder);
+                break;
+            }
+        }
+        return tuples;
+    }
+
+    /**
+     * Iterate over the intervals of a range, for one prefix.
+     * The scan continues past the end of an interval, and moves to the start
+     * of the next interval if there are records between intervals.
+     */
+    private class RangeScan extends IteratorSlotted<Tuple<NodeId>> {
+        private final byte[] prefix;
+        private final int slot;
+        private final NodeIdRange range;
+        private final Record maxRec;
+        private final boolean checkPrefix;
+        private Iterator<Tuple<NodeId>> current = null;
+        private int interval = 0;
+
+        RangeScan(byte[] prefix, int slot, NodeIdRange range) {
+            this.prefix = prefix;
+            this.slot = slot;
+            this.range = range;
+            this.maxRec = prefixEnd(factory, prefix, prefix.length);
+            this.checkPrefix = ( maxRec == null && prefix.length > 0 );
+        }
+
+        @Override
+        protected boolean hasMore() {
+            return interval < range.size();
+        }
+
+        @Override
+        protected Tuple<NodeId> moveToNext() {
+            for ( ;; ) {
+                if ( current == null ) {
+                    if ( interval >= range.size() )
+                        return null;
+                    current = iterator(record(prefix, range.low(interval)));
+                }
+                if ( ! current.hasNext() ) {
+                    interval = range.size();
+                    return null;
+                }
+                Tuple<NodeId> tuple = current.next();
+                int x = range.find(tuple.get(slot), interval);
+                if ( x >= 0 ) {
+                    interval = x;
+                    return tuple;
+                }
+                // Between intervals: go to the start of the next one.
+                interval = -(x+1);
+                Iter.close(current);
+                current = null;
+            }
+        }
+
+        @Override
+        protected void closeIterator() {
+            Iter.close(current);
+        }
+
+        private Iterator<Tuple<NodeId>> iterator(Record minRec) {
+            if ( ! checkPrefix )
+                return index.iterator(minRec, maxRec, recordMapper);
+            // No limit record: stop at the first record without the prefix.
+            Iterator<Record> records = Iter.takeWhile(index.iterator(minRec, null), r -> hasPrefix(r, prefix, prefix.length));
+            return Iter.map(records, r -> TupleLib.tuple(r, tupleMap));
+        }
+    }
+
+    /**
+     * The number of tuples matching a pattern, from the counts kept in a counted index.
+     * Returns -1 if the index is not counted or the defined slots of the pattern are not
+     * the leading slots of this index.
+     */
+    @Override
+    public long count(Tuple<NodeId> patternNaturalOrder) {
+        if ( ! index.isCounted() )
+            return -1;
+        int numSlots = 0;
+        for ( int i = 0; i < patternNaturalOrder.len() ; i++ ) {
+            if ( ! NodeId.isAny(patternNaturalOrder.get(i)) )
+                numSlots++;
+        }
+        if ( weight(patternNaturalOrder) != numSlots )
+            return -1;
+        if ( numSlots == 0 )
+            return index.size();
+        Tuple<NodeId> pattern = tupleMap.map(patternNaturalOrder);
+        Record minRec = factory.createKeyOnly();
+        for ( int i = 0; i < numSlots ; i++ )
+            NodeIdFactory.set(pattern.get(i), minRec.getKey(), i*SizeOfNodeId);
+        if ( numSlots == tupleLength )
+            return index.contains(minRec) ? 1 : 0;
+        // No limit if the prefix has all bits set: no keys are greater.
+        Record maxRec = prefixEnd(factory, minRec.getKey(), numSlots*SizeOfNodeId);
+        return index.count(minRec, maxRec);
+    }
+
+    // The prefix followed by a NodeId, encoded as a long, then zeros.
+    private Record record(byte[] prefix, long nodeId) {
+        Record r = factory.createKeyOnly();
+        System.arraycopy(prefix, 0, r.getKey(), 0, prefix.length);
+        Bytes.setLong(nodeId, r.getKey(), prefix.length);
+        return r;
+    }
+
+    /**
+     * The least key after all the keys that start with the first {@code len} bytes of
+     * {@code prefix}, for use as the exclusive limit of an index iterator. Returns null
+     * if there is no such key, which is when {@code len} is zero or all the bits of the
+     * prefix are set. An iterator with no limit must then check the records with
+     * {@link #hasPrefix}.
+     */
+    public static Record prefixEnd(RecordFactory factory, byte[] prefix, int len) {
+        if ( len == 0 )
+            return null;
+        Record r = factory.createKeyOnly();
+        byte[] key = r.getKey();
+        System.arraycopy(prefix, 0, key, 0, len);
+        // Unsigned add of one, with carry.
+        for ( int i = len-1 ; i >= 0 ; i-- ) {
+            if ( ++key[i] != 0 )
+                return r;
+        }
+        return null;
+    }
+
+    /** Whether the key of the record starts with the first {@code len} bytes of {@code prefix}. */
+    public static boolean hasPrefix(Record record, byte[] prefix, int len) {
+        return Arrays.equals(record.getKey(), 0, len, prefix, 0, len);
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> all()
     {
@@ -254,6 +425,25 @@ public class TupleIndexRecord extends TupleIndexBase
         return Iter.map(iter, item -> TupleLib.tuple(item, tupleMap));
     }
 
+    /**
+     * Divide the index into about {@code n} ranges of similar size, in index order.
+     * Each range is returned as a supplier of an iterator over its tuples so that the
+     * iterators can be created later, including on other threads reading the same
+     * state of the database.
+     */
+    public List<Supplier<Iterator<Tuple<NodeId>>>> partition(int n) {
+        List<Record> keys = index.splitKeys(n);
+        List<Supplier<Iterator<Tuple<NodeId>>>> ranges = new ArrayList<>(keys.size()+1);
+        Record min = null;
+        for ( int i = 0 ; i <= keys.size() ; i++ ) {
+            Record lo = min;
+            Record hi = ( i < keys.size() ) ? keys.get(i) : null;
+            ranges.add(()->index.iterator(lo, hi, recordMapper));
+            min = hi;
+        }
+        return ranges;
+    }
+
     private Iterator<Tuple<NodeId>> scan(Iterator<Tuple<NodeId>> iter, Tuple<NodeId> pattern) {
         Predicate<Tuple<NodeId>> filter = (item) -> {
             // Check on pattern and item (both in natural order)
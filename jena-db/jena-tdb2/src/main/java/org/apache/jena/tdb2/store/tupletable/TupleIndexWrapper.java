@@ -96,6 +96,11 @@ public class TupleIndexWrapper implements TupleIndex
         return index.size();
     }
 
+    @Override
+    public long count(Tuple<NodeId> pattern) {
+        return index.count(pattern);
+    }
+
     @Override
     public boolean isEmpty() {
         return index.isEmpty();
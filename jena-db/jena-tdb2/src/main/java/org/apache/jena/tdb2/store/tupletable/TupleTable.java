@@ -30,6 +30,7 @@ import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdRange;
 import org.apache.jena.tdb2.sys.SystemTDB;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -165,6 +166,48 @@ public class TupleTable implements Sync, Closeable
         return index.find(pattern);
     }
 
+    /**
+     * Find all matching tuples with the NodeId in {@code slot}, which must be
+     * {@code NodeId.NodeIdAny} in the pattern, in the range.
+     * The range is used to limit the scan of an index if there is an index with the
+     * slot straight after the leading slots set in the pattern; otherwise the tuples found
+     * are tested against the range.
+     */
+    public Iterator<Tuple<NodeId>> find(Tuple<NodeId> pattern, int slot, NodeIdRange range) {
+        if ( tupleLen != pattern.len() )
+            throw new TDBException(format("Mismatch: finding tuple of length %d in a table of tuples of length %d", pattern.len(), tupleLen));
+        for ( int i = 0; i < tupleLen ; i++ ) {
+            if ( NodeId.isDoesNotExist(pattern.get(i)) )
+                return Iter.nullIterator();
+        }
+
+        int indexNumSlots = 0;
+        for ( TupleIndex idx : indexes ) {
+            if ( idx != null )
+                indexNumSlots = Math.max(indexNumSlots, idx.weight(pattern));
+        }
+
+        // With any graph, quads must be from an index ending in G (see TupleTable.find).
+        boolean anyGraph = ( tupleLen == 4 && NodeId.isAny(pattern.get(0)) );
+        TupleIndexRecord rangeIndex = null;
+        int rangeNumSlots = -1;
+        for ( TupleIndex idx : indexes ) {
+            if ( idx == null || ! ( idx.baseTupleIndex() instanceof TupleIndexRecord ) )
+                continue;
+            if ( anyGraph && idx.getMapping().unmapIdx(0) != tupleLen-1 )
+                continue;
+            int w = idx.weight(pattern);
+            if ( idx.getMapping().unmapIdx(slot) == w && w > rangeNumSlots ) {
+                rangeNumSlots = w;
+                rangeIndex = (TupleIndexRecord)idx.baseTupleIndex();
+            }
+        }
+
+        if ( rangeIndex != null && rangeNumSlots >= indexNumSlots )
+            return rangeIndex.findRange(pattern, slot, range);
+        return Iter.filter(find(pattern), t->range.contains(t.get(slot)));
+    }
+
     @Override
     final public void close() {
         for ( TupleIndex idx : indexes ) {
@@ -198,6 +241,19 @@ public class TupleTable implements Sync, Closeable
         return indexes[0].size();
     }
 
+    /**
+     * The number of tuples matching a pattern, from an index that can count them
+     * without reading them. Returns -1 if there is no such index.
+     */
+    public long count(Tuple<NodeId> pattern) {
+        for ( TupleIndex idx : indexes ) {
+            long x = idx.count(pattern);
+            if ( x >= 0 )
+                return x;
+        }
+        return -1;
+    }
+
     /** Get i'th index */
     public TupleIndex getIndex(int i)                   { return indexes[i]; }
 
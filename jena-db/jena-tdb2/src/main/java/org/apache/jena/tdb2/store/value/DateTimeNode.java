@@ -44,6 +44,7 @@ public class DateTimeNode
     // Layout:
     // Hi: TZ YYYY MM DD HH MM SS.sss Lo:
     // Looses the distinction between 00:00:00 vs 24:00:00 (of the day before).
+    // xsd:time uses the time fields with the date as zero; xsd:gYear uses the year only.
 
     // Const-ize
     // 13 bits year, 4 bits month, 5 bits day => 22 bits
@@ -126,22 +127,14 @@ public class DateTimeNode
         // Whitespace facet processing.
         lex = lex.trim();
 
-        boolean containsZ = (lex.indexOf('Z') > 0);
-
         // Bug in Java 1.6 (build 5 at least)
         // T24:00:00 not accepted.
         // See also TestNodeId.nodeId_date_time_7
 
         XMLGregorianCalendar xcal = datatypeFactory.newXMLGregorianCalendar(lex);
 
-        if ( xcal.getFractionalSecond() != null ) {
-            BigDecimal fs = xcal.getFractionalSecond();
-            // Were there sub-millisecond resolution fractional seconds?
-            // This isn't perfect but it needs a very long fractional part to break it,
-            // less than observable quantum of time.
-            if ( fs.doubleValue() != xcal.getMillisecond() / 1000.0 )
-                return -1;
-        }
+        if ( ! millisecondPrecision(xcal) )
+            return -1;
 
         int y = xcal.getYear();
 
@@ -150,7 +143,55 @@ public class DateTimeNode
 
         v = date(v, xcal.getYear(), xcal.getMonth(), xcal.getDay());
         v = time(v, xcal.getHour(), xcal.getMinute(), xcal.getSecond() * 1000 + xcal.getMillisecond());
+        return timezone(v, lex, xcal);
+    }
 
+    /** Pack an xsd:time. The date fields are zero. Returns -1 for unpackable. */
+    public static long packTime(String lex) {
+        try {
+            lex = lex.trim();
+            XMLGregorianCalendar xcal = datatypeFactory.newXMLGregorianCalendar(lex);
+            if ( ! millisecondPrecision(xcal) )
+                return -1;
+            // 24:00:00 is the same value as 00:00:00 and would not order correctly.
+            if ( xcal.getHour() == 24 )
+                return -1;
+            long v = time(0, xcal.getHour(), xcal.getMinute(), xcal.getSecond() * 1000 + xcal.getMillisecond());
+            return timezone(v, lex, xcal);
+        }
+        catch (Exception ex) {
+            return -1;
+        }
+    }
+
+    /** Pack an xsd:gYear. The month, day and time fields are zero. Returns -1 for unpackable. */
+    public static long packGYear(String lex) {
+        try {
+            lex = lex.trim();
+            XMLGregorianCalendar xcal = datatypeFactory.newXMLGregorianCalendar(lex);
+            int y = xcal.getYear();
+            if ( y < 0 || y >= 8000 )
+                return -1;
+            long v = date(0, y, 0, 0);
+            return timezone(v, lex, xcal);
+        }
+        catch (Exception ex) {
+            return -1;
+        }
+    }
+
+    // Were there sub-millisecond resolution fractional seconds?
+    private static boolean millisecondPrecision(XMLGregorianCalendar xcal) {
+        if ( xcal.getFractionalSecond() == null )
+            return true;
+        BigDecimal fs = xcal.getFractionalSecond();
+        // This isn't perfect but it needs a very long fractional part to break it,
+        // less than observable quantum of time.
+        return fs.doubleValue() == xcal.getMillisecond() / 1000.0;
+    }
+
+    private static long timezone(long v, String lex, XMLGregorianCalendar xcal) {
+        boolean containsZ = (lex.indexOf('Z') > 0);
         if ( containsZ )
             return tz(v, TZ_Z);
 
@@ -166,65 +207,111 @@ public class DateTimeNode
         return tz(v, tz);
     }
 
+    /** The number of values of the timezone field. */
+    public static final int TZ_VALUES = 1 << TZ_LEN;
+
+    /**
+     * The packed value for the start of a day, with the timezone field {@code tzBits}.
+     * Used to work out ranges of packed values; the year must be 0 to 7999.
+     */
+    public static long packDayStart(int tzBits, int year, int month, int day) {
+        return tz(date(0, year, month, day), tzBits);
+    }
+
+    /** The largest packed value with the timezone field {@code tzBits}. */
+    public static long packTimezoneLast(int tzBits) {
+        return tz((1L << TZ) - 1, tzBits);
+    }
+
+    /** The timezone field of a packed date or dateTime. */
+    public static int timezoneBits(long v) {
+        return (int)BitsLong.unpack(v, TZ, TZ + TZ_LEN);
+    }
+
     public static String unpackDateTime(long v) {
-        return unpack(v, true);
+        StringBuilder sb = new StringBuilder(50);
+        formatDate(sb, v);
+        sb.append('T');
+        formatTime(sb, v);
+        formatTimezone(sb, v);
+        return sb.toString();
     }
 
     public static String unpackDate(long v) {
-        return unpack(v, false);
+        StringBuilder sb = new StringBuilder(20);
+        formatDate(sb, v);
+        formatTimezone(sb, v);
+        return sb.toString();
+    }
+
+    public static String unpackTime(long v) {
+        StringBuilder sb = new StringBuilder(30);
+        formatTime(sb, v);
+        formatTimezone(sb, v);
+        return sb.toString();
+    }
+
+    public static String unpackGYear(long v) {
+        int years = (int)BitsLong.unpack(v, YEAR, YEAR + YEAR_LEN);
+        StringBuilder sb = new StringBuilder(20);
+        NumberUtils.formatInt(sb, years, 4);
+        formatTimezone(sb, v);
+        return sb.toString();
     }
 
     // Avoid calls to String.format
-    private static String unpack(long v, boolean isDateTime) {
+
+    private static void formatDate(StringBuilder sb, long v) {
         // YYYY:MM:DD => 13 bits year, 4 bits month, 5 bits day => 22 bits
         int years = (int)BitsLong.unpack(v, YEAR, YEAR + YEAR_LEN);
         int months = (int)BitsLong.unpack(v, MONTH, MONTH + MONTH_LEN);
         int days = (int)BitsLong.unpack(v, DAY, DAY + DAY_LEN);
 
+        NumberUtils.formatInt(sb, years, 4);
+        sb.append('-');
+        NumberUtils.formatInt(sb, months, 2);
+        sb.append('-');
+        NumberUtils.formatInt(sb, days, 2);
+    }
+
+    private static void formatTime(StringBuilder sb, long v) {
         // Hours: 5, mins 6, milli 16, TZ 7 => 34 bits
         int hours = (int)BitsLong.unpack(v, HOUR, HOUR + HOUR_LEN);
         int minutes = (int)BitsLong.unpack(v, MINUTES, MINUTES + MINUTES_LEN);
         int milliSeconds = (int)BitsLong.unpack(v, MILLI, MILLI + MILLI_LEN);
 
-        int tz = (int)BitsLong.unpack(v, TZ, TZ + TZ_LEN);
-
         int sec = milliSeconds / 1000;
         int fractionSec = milliSeconds % 1000;
 
-        StringBuilder sb = new StringBuilder(50);
-        NumberUtils.formatInt(sb, years, 4);
-        sb.append('-');
-        NumberUtils.formatInt(sb, months, 2);
-        sb.append('-');
-        NumberUtils.formatInt(sb, days, 2);
-        if ( isDateTime ) {
-            sb.append('T');
-            NumberUtils.formatInt(sb, hours, 2);
-            sb.append(':');
-            NumberUtils.formatInt(sb, minutes, 2);
-            sb.append(':');
-            NumberUtils.formatInt(sb, sec, 2);
-
-            // Formatting needed : int->any
-            if ( fractionSec != 0 ) {
-                sb.append(".");
-                if ( fractionSec % 100 == 0 )
-                    NumberUtils.formatInt(sb, fractionSec / 100, 1);
-                else if ( fractionSec % 10 == 0 )
-                    NumberUtils.formatInt(sb, fractionSec / 10, 2);
-                else
-                    NumberUtils.formatInt(sb, fractionSec, 3);
-            }
+        NumberUtils.formatInt(sb, hours, 2);
+        sb.append(':');
+        NumberUtils.formatInt(sb, minutes, 2);
+        sb.append(':');
+        NumberUtils.formatInt(sb, sec, 2);
+
+        // Formatting needed : int->any
+        if ( fractionSec != 0 ) {
+            sb.append(".");
+            if ( fractionSec % 100 == 0 )
+                NumberUtils.formatInt(sb, fractionSec / 100, 1);
+            else if ( fractionSec % 10 == 0 )
+                NumberUtils.formatInt(sb, fractionSec / 10, 2);
+            else
+                NumberUtils.formatInt(sb, fractionSec, 3);
         }
+    }
+
+    private static void formatTimezone(StringBuilder sb, long v) {
+        int tz = (int)BitsLong.unpack(v, TZ, TZ + TZ_LEN);
         // tz in 15min units
         // Special values.
         if ( tz == TZ_Z ) {
             sb.append("Z");
-            return sb.toString();
+            return;
         }
 
         if ( tz == TZ_NONE )
-            return sb.toString();
+            return;
 
         // Sign extend.
         if ( BitsLong.isSet(v, TZ + TZ_LEN - 1) )
@@ -241,6 +328,5 @@ public class DateTimeNode
         NumberUtils.formatUnsignedInt(sb, tzH, 2);
         sb.append(':');
         NumberUtils.formatUnsignedInt(sb, tzM, 2);
-        return sb.toString();
     }
 }
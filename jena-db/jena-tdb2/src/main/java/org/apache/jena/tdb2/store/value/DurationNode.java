@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.store.value;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.Duration;
+
+import org.apache.jena.atlas.lib.BitsLong;
+import org.apache.jena.atlas.lib.NumberUtils;
+import org.apache.jena.ext.xerces.DatatypeFactoryInst;
+import org.apache.jena.sparql.expr.Expr;
+
+/**
+ * Packing of xsd:duration as the XSD 1.1 value: a number of months and a number of
+ * seconds, here to millisecond precision, with one sign.
+ * <p>
+ * The lexical form on decoding is the canonical one, for example "P14M" becomes "P1Y2M".
+ */
+public class DurationNode
+{
+    // Layout:
+    // Bits 56-63 : type
+    // Bit  55              : sign, 1 for negative
+    // Bits 40-54 (15 bits) : months, up to 2730 years
+    // Bits 0-39  (40 bits) : milliseconds, up to 12725 days
+
+    static final int       MILLIS          = 0;
+    static final int       MILLIS_LEN      = 40;
+    static final int       MONTHS          = MILLIS_LEN;
+    static final int       MONTHS_LEN      = 15;
+    static final int       SIGN            = MONTHS + MONTHS_LEN;
+
+    private static final long MAX_MONTHS   = (1L << MONTHS_LEN) - 1;
+    private static final long MAX_MILLIS   = (1L << MILLIS_LEN) - 1;
+
+    private static final long MS_SECOND    = 1000;
+    private static final long MS_MINUTE    = 60 * MS_SECOND;
+    private static final long MS_HOUR      = 60 * MS_MINUTE;
+    private static final long MS_DAY       = 24 * MS_HOUR;
+
+    static DatatypeFactory datatypeFactory = DatatypeFactoryInst.newDatatypeFactory();
+
+    /** Pack a duration, given by its lexical form. Returns -1 for unpackable. */
+    public static long pack(String lex) {
+        try {
+            return pack$(lex.trim());
+        }
+        catch (Exception ex) {
+            return -1;
+        }
+    }
+
+    private static long pack$(String lex) {
+        Duration duration = datatypeFactory.newDuration(lex);
+        long years = field(duration, DatatypeConstants.YEARS);
+        long months = field(duration, DatatypeConstants.MONTHS);
+        long days = field(duration, DatatypeConstants.DAYS);
+        long hours = field(duration, DatatypeConstants.HOURS);
+        long minutes = field(duration, DatatypeConstants.MINUTES);
+        BigDecimal seconds = (BigDecimal)duration.getField(DatatypeConstants.SECONDS);
+        if ( years < 0 || months < 0 || days < 0 || hours < 0 || minutes < 0 )
+            return -1;
+
+        long totalMonths = 12 * years + months;
+        if ( totalMonths > MAX_MONTHS )
+            return -1;
+
+        long millis = 0;
+        if ( seconds != null ) {
+            BigDecimal ms = seconds.movePointRight(3);
+            // Sub-millisecond or too large.
+            if ( ms.signum() < 0 || ms.compareTo(BigDecimal.valueOf(MAX_MILLIS)) > 0 || ms.stripTrailingZeros().scale() > 0 )
+                return -1;
+            millis = ms.longValueExact();
+        }
+        // Range check before converting to milliseconds.
+        if ( days > MAX_MILLIS / MS_DAY || hours > MAX_MILLIS / MS_HOUR || minutes > MAX_MILLIS / MS_MINUTE )
+            return -1;
+        millis += days * MS_DAY + hours * MS_HOUR + minutes * MS_MINUTE;
+        if ( millis > MAX_MILLIS )
+            return -1;
+
+        long v = 0;
+        v = BitsLong.pack(v, totalMonths, MONTHS, MONTHS + MONTHS_LEN);
+        v = BitsLong.pack(v, millis, MILLIS, MILLIS + MILLIS_LEN);
+        // No negative zero.
+        if ( duration.getSign() < 0 && v != 0 )
+            v = BitsLong.set(v, SIGN);
+        return v;
+    }
+
+    // Field as a long, -1 if it does not fit in an int.
+    private static long field(Duration duration, DatatypeConstants.Field field) {
+        Number n = duration.getField(field);
+        if ( n == null )
+            return 0;
+        BigInteger x = (BigInteger)n;
+        if ( x.bitLength() >= 32 )
+            return -1;
+        return x.longValue();
+    }
+
+    /** The months part of a packed duration, with the sign. */
+    public static long months(long v) {
+        long months = BitsLong.unpack(v, MONTHS, MONTHS + MONTHS_LEN);
+        return BitsLong.isSet(v, SIGN) ? -months : months;
+    }
+
+    /** The seconds part of a packed duration, in milliseconds, with the sign. */
+    public static long millis(long v) {
+        long millis = BitsLong.unpack(v, MILLIS, MILLIS + MILLIS_LEN);
+        return BitsLong.isSet(v, SIGN) ? -millis : millis;
+    }
+
+    /**
+     * Compare two packed durations. Durations are only partially ordered:
+     * this returns {@link Expr#CMP_INDETERMINATE} unless the months
+     * or the seconds are the same.
+     */
+    public static int compare(long v1, long v2) {
+        long months1 = months(v1);
+        long months2 = months(v2);
+        long millis1 = millis(v1);
+        long millis2 = millis(v2);
+        if ( months1 == months2 )
+            return Long.compare(millis1, millis2);
+        if ( millis1 == millis2 )
+            return Long.compare(months1, months2);
+        return Expr.CMP_INDETERMINATE;
+    }
+
+    /** The canonical lexical form of a packed duration. */
+    public static String unpack(long v) {
+        long months = BitsLong.unpack(v, MONTHS, MONTHS + MONTHS_LEN);
+        long millis = BitsLong.unpack(v, MILLIS, MILLIS + MILLIS_LEN);
+        if ( months == 0 && millis == 0 )
+            return "PT0S";
+        StringBuilder sb = new StringBuilder(30);
+        if ( BitsLong.isSet(v, SIGN) )
+            sb.append('-');
+        sb.append('P');
+        if ( months / 12 != 0 )
+            sb.append(months / 12).append('Y');
+        if ( months % 12 != 0 )
+            sb.append(months % 12).append('M');
+        if ( millis / MS_DAY != 0 )
+            sb.append(millis / MS_DAY).append('D');
+        millis = millis % MS_DAY;
+        if ( millis != 0 ) {
+            sb.append('T');
+            if ( millis / MS_HOUR != 0 )
+                sb.append(millis / MS_HOUR).append('H');
+            millis = millis % MS_HOUR;
+            if ( millis / MS_MINUTE != 0 )
+                sb.append(millis / MS_MINUTE).append('M');
+            millis = millis % MS_MINUTE;
+            if ( millis != 0 ) {
+                sb.append(millis / MS_SECOND);
+                long fraction = millis % MS_SECOND;
+                if ( fraction != 0 ) {
+                    sb.append('.');
+                    if ( fraction % 100 == 0 )
+                        sb.append(fraction / 100);
+                    else if ( fraction % 10 == 0 )
+                        NumberUtils.formatInt(sb, (int)(fraction / 10), 2);
+                    else
+                        NumberUtils.formatInt(sb, (int)fraction, 3);
+                }
+                sb.append('S');
+            }
+        }
+        return sb.toString();
+    }
+}
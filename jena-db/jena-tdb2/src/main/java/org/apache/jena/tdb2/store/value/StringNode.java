@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.store.value;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Packing of short strings as their UTF-8 bytes, first byte in the most significant
+ * position, padded with zero bytes. Strings containing U+0000 are not packed, so the
+ * padding marks the end of the string.
+ * <p>
+ * Packed strings compare as unsigned numbers in UTF-8 byte order; the padding puts a
+ * prefix first. That is the order of the strings by code point which is the same as the
+ * order of Java strings unless one has characters from U+E000 to U+FFFF and the other has
+ * characters outside the Basic Multilingual Plane.
+ */
+public class StringNode
+{
+    /** Pack a string into the low {@code 8*len} bits. Returns -1 for unpackable. */
+    public static long pack(String str, int len) {
+        // Quick check: every character takes at least one byte.
+        if ( str.length() > len )
+            return -1;
+        long v = 0;
+        int n = 0;
+        for ( int i = 0 ; i < str.length() ; i++ ) {
+            char ch = str.charAt(i);
+            if ( ch == 0 )
+                return -1;
+            if ( ch >= 0x80 )
+                return packUTF8(str, len);
+            v = (v << 8) | ch;
+            n++;
+        }
+        return v << 8*(len-n);
+    }
+
+    private static long packUTF8(String str, int len) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        if ( bytes.length > len )
+            return -1;
+        // Unpaired surrogates do not encode.
+        if ( ! str.equals(new String(bytes, StandardCharsets.UTF_8)) )
+            return -1;
+        long v = 0;
+        for ( byte b : bytes )
+            v = (v << 8) | (b & 0xFF);
+        return v << 8*(len-bytes.length);
+    }
+
+    /** Unpack a string from the low {@code 8*len} bits. */
+    public static String unpack(long v, int len) {
+        byte[] bytes = new byte[len];
+        int n = 0;
+        for ( int i = len-1 ; i >= 0 ; i-- ) {
+            byte b = (byte)(v >>> 8*i);
+            if ( b == 0 )
+                break;
+            bytes[n++] = b;
+        }
+        return new String(bytes, 0, n, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether packed strings compare as unsigned numbers in the same order as the
+     * Java strings: true when there is no UTF-8 byte for a character from U+E000.
+     */
+    public static boolean isJavaOrder(long v, int len) {
+        for ( int i = 0 ; i < len ; i++ ) {
+            int b = (int)(v >>> 8*i) & 0xFF;
+            if ( b >= 0xEE )
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.jena.atlas.io.IOX;
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.system.PrefixMap;
+import org.apache.jena.riot.system.PrefixMapFactory;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFOps;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.lib.TupleLib;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.TableBase;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+
+/**
+ * Export a TDB2 database using several threads.
+ * <p>
+ * The primary indexes of the triple table (the default graph) and of the quad table
+ * (the named graphs) are divided into ranges of keys. Worker threads take ranges in
+ * turn, and decode and write the triples and quads of each range. All the workers read
+ * the same state of the database: each has a read transaction, and these are started
+ * while writers are blocked. Writers are blocked only for the start of the export.
+ * <p>
+ * The output is either one stream in index order, see {@link #write(OutputStream)}, or
+ * one file per range, see {@link #writeShards(Path, String)}. For one stream, the ranges
+ * are written to temporary files which are copied to the output in order. Output can be
+ * gzip-compressed; compressed files can be concatenated and remain valid gzip.
+ * <p>
+ * The format must be a streaming format for quads, such as N-Quads (the default) or RDF
+ * Thrift.
+ * <pre>
+ *    ExportTDB.create(dsg).threads(8).compress(true).writeShards(dir, "data");
+ * </pre>
+ */
+public class ExportTDB {
+
+    /** Default number of ranges for each index, per thread. */
+    public static final int DftRangesPerThread = 4;
+
+    private final DatasetGraphTDB dsg;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int ranges = -1;
+    private RDFFormat format = RDFFormat.NQUADS;
+    private boolean compress = false;
+    private Path tmpDirectory = null;
+
+    /** Create an export for a TDB2 database. */
+    public static ExportTDB create(DatasetGraph dsg) {
+        return new ExportTDB(TDBInternal.requireStorage(dsg));
+    }
+
+    private ExportTDB(DatasetGraphTDB dsg) {
+        this.dsg = dsg;
+    }
+
+    /** Number of worker threads. The default is the number of processors. */
+    public ExportTDB threads(int threads) {
+        if ( threads < 1 )
+            throw new IllegalArgumentException("Number of threads must be at least one: "+threads);
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Number of ranges to divide each index into. This is an upper bound; small indexes
+     * may give fewer ranges. The default is {@value #DftRangesPerThread} per thread.
+     */
+    public ExportTDB ranges(int ranges) {
+        if ( ranges < 1 )
+            throw new IllegalArgumentException("Number of ranges must be at least one: "+ranges);
+        this.ranges = ranges;
+        return this;
+    }
+
+    /** Output format. This must be a streaming format for quads. The default is N-Quads. */
+    public ExportTDB format(RDFFormat format) {
+        Objects.requireNonNull(format);
+        Lang lang = format.getLang();
+        if ( ! RDFLanguages.isQuads(lang) )
+            throw new TDBException("Not a quads format: "+format);
+        if ( ! StreamRDFWriter.registered(format) )
+            throw new TDBException("Not a streaming format: "+format);
+        this.format = format;
+        return this;
+    }
+
+    /** Whether to gzip-compress the output. */
+    public ExportTDB compress(boolean compress) {
+        this.compress = compress;
+        return this;
+    }
+
+    /** Directory for the temporary files of {@link #write(OutputStream)}. The default is the system temporary directory. */
+    public ExportTDB tmpDirectory(Path tmpDirectory) {
+        this.tmpDirectory = tmpDirectory;
+        return this;
+    }
+
+    /**
+     * Write the database to the output stream, default graph first, then the named
+     * graphs, each in the order of its primary index. The output is the same whatever
+     * the number of threads and ranges. The output stream is not closed.
+     */
+    public void write(OutputStream output) {
+        Path dir = ( tmpDirectory != null ) ? tmpDirectory : Path.of(System.getProperty("java.io.tmpdir"));
+        Path tmpDir;
+        try {
+            tmpDir = Files.createTempDirectory(dir, "tdb2-export-");
+        } catch (IOException ex) { throw IOX.exception(ex); }
+        try {
+            Export export = new Export(idx->tmpDir.resolve(String.format("part-%06d", idx)), false);
+            try {
+                for ( CompletableFuture<Path> part : export.parts ) {
+                    Path path = export.join(part);
+                    Files.copy(path, output);
+                    IOX.delete(path);
+                }
+                output.flush();
+            } catch (IOException ex) {
+                throw IOX.exception(ex);
+            } finally {
+                export.finish();
+            }
+        } finally {
+            IOX.deleteAll(tmpDir);
+        }
+    }
+
+    /**
+     * Write the database to files in the given directory, one for each range, named
+     * {@code basename-NNNNNN.ext}. The files are numbered in the order of the
+     * output of {@link #write(OutputStream)}. Return the file paths in that order.
+     * <p>
+     * Blank nodes have the same label in all the files, so the files should be read as
+     * one document (for example, concatenated) to keep blank nodes shared between them.
+     */
+    public List<Path> writeShards(Path directory, String basename) {
+        if ( ! Files.isDirectory(directory) )
+            throw new TDBException("Not a directory: "+directory);
+        String ext = format.getLang().getFileExtensions().get(0);
+        if ( compress )
+            ext = ext+".gz";
+        String fileExt = ext;
+        Export export = new Export(idx->directory.resolve(String.format("%s-%06d.%s", basename, idx, fileExt)), true);
+        try {
+            List<Path> shards = new ArrayList<>(export.parts.size());
+            for ( CompletableFuture<Path> part : export.parts )
+                shards.add(export.join(part));
+            return shards;
+        } finally {
+            export.finish();
+        }
+    }
+
+    /** A range of the triple table or of the quad table. */
+    private static class Range {
+        final NodeTable nodeTable;
+        final boolean quads;
+        final Supplier<Iterator<Tuple<NodeId>>> tuples;
+        Range(NodeTable nodeTable, boolean quads, Supplier<Iterator<Tuple<NodeId>>> tuples) {
+            this.nodeTable = nodeTable;
+            this.quads = quads;
+            this.tuples = tuples;
+        }
+    }
+
+    /** One run of the export: the worker threads and the parts written. */
+    private class Export {
+        private final IntFunction<Path> destination;
+        private final boolean shards;
+        private final List<Range> work = new ArrayList<>();
+        private final List<CompletableFuture<Path>> parts = new ArrayList<>();
+        private final List<Thread> workers = new ArrayList<>();
+        private final AtomicInteger next = new AtomicInteger(0);
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private final AtomicReference<Throwable> firstError = new AtomicReference<>(null);
+        private PrefixMap prefixes;
+
+        Export(IntFunction<Path> destination, boolean shards) {
+            this.destination = destination;
+            this.shards = shards;
+            if ( dsg.isInTransaction() )
+                throw new TDBException("Export must be called outside a transaction");
+            int n = ( ranges > 0 ) ? ranges : threads * DftRangesPerThread;
+            TransactionCoordinator coordinator = dsg.getTxnSystem().getTxnMgr();
+            CountDownLatch ready = new CountDownLatch(threads);
+            coordinator.blockWriters();
+            try {
+                // Writers are blocked: all the read transactions see the same database state.
+                dsg.begin(TxnType.READ);
+                try {
+                    prefixes = PrefixMapFactory.create(dsg.prefixes());
+                    ranges(dsg.getTripleTable(), false, n);
+                    ranges(dsg.getQuadTable(), true, n);
+                } finally { dsg.end(); }
+                for ( int i = 0 ; i < work.size() ; i++ )
+                    parts.add(new CompletableFuture<>());
+                for ( int i = 0 ; i < threads ; i++ ) {
+                    Thread thread = new Thread(()->worker(ready), "TDB2-export-"+(i+1));
+                    thread.setDaemon(true);
+                    workers.add(thread);
+                    thread.start();
+                }
+                awaitUninterruptibly(ready);
+            } finally {
+                coordinator.enableWriters();
+            }
+        }
+
+        private void ranges(TableBase table, boolean quads, int n) {
+            NodeTupleTable nodeTupleTable = table.getNodeTupleTable();
+            if ( nodeTupleTable.isEmpty() )
+                return;
+            NodeTable nodeTable = nodeTupleTable.getNodeTable();
+            TupleIndex primary = nodeTupleTable.getTupleTable().getIndex(0);
+            if ( primary.baseTupleIndex() instanceof TupleIndexRecord ) {
+                TupleIndexRecord index = (TupleIndexRecord)primary.baseTupleIndex();
+                index.partition(n).forEach(tuples->work.add(new Range(nodeTable, quads, tuples)));
+            } else {
+                work.add(new Range(nodeTable, quads, primary::all));
+            }
+        }
+
+        private void worker(CountDownLatch ready) {
+            try {
+                dsg.begin(TxnType.READ);
+            } catch (RuntimeException ex) {
+                failed(ex);
+                parts.forEach(p->p.completeExceptionally(ex));
+                return;
+            } finally {
+                ready.countDown();
+            }
+            try {
+                for ( ;; ) {
+                    int idx = next.getAndIncrement();
+                    if ( idx >= work.size() )
+                        break;
+                    if ( cancelled.get() ) {
+                        parts.get(idx).cancel(false);
+                        continue;
+                    }
+                    try {
+                        Path path = destination.apply(idx);
+                        writeRange(work.get(idx), path, idx == 0);
+                        parts.get(idx).complete(path);
+                    } catch (Throwable ex) {
+                        failed(ex);
+                        parts.get(idx).completeExceptionally(ex);
+                    }
+                }
+            } finally {
+                dsg.end();
+            }
+        }
+
+        private void writeRange(Range range, Path path, boolean first) throws IOException {
+            try ( OutputStream out = output(path) ) {
+                StreamRDF stream = StreamRDFWriter.getWriterStream(out, format);
+                stream.start();
+                // Prefixes once for the single output, and in each shard.
+                if ( first || shards )
+                    StreamRDFOps.sendPrefixesToStream(prefixes, stream);
+                Iterator<Tuple<NodeId>> iter = range.tuples.get();
+                try {
+                    while ( iter.hasNext() ) {
+                        if ( cancelled.get() )
+                            throw new TDBException("Export cancelled");
+                        Tuple<NodeId> tuple = iter.next();
+                        if ( range.quads )
+                            stream.quad(TupleLib.quad(range.nodeTable, tuple));
+                        else
+                            stream.triple(TupleLib.triple(range.nodeTable, tuple));
+                    }
+                } finally { Iter.close(iter); }
+                stream.finish();
+            }
+        }
+
+        private OutputStream output(Path path) throws IOException {
+            OutputStream out = Files.newOutputStream(path);
+            if ( compress )
+                out = new GZIPOutputStream(out, 8 * 1024);
+            return new BufferedOutputStream(out, 128 * 1024);
+        }
+
+        private void failed(Throwable ex) {
+            firstError.compareAndSet(null, ex);
+            cancelled.set(true);
+        }
+
+        /** Wait for a part. If the export failed, throw the first error. */
+        Path join(CompletableFuture<Path> part) {
+            try {
+                return part.join();
+            } catch (CompletionException | CancellationException ex) {
+                Throwable th = firstError.get();
+                if ( th == null )
+                    th = ( ex.getCause() != null ) ? ex.getCause() : ex;
+                if ( th instanceof RuntimeException )
+                    throw (RuntimeException)th;
+                if ( th instanceof Error )
+                    throw (Error)th;
+                throw new TDBException("Export failed", th);
+            }
+        }
+
+        /** Stop the workers if still running and wait for them to finish. */
+        void finish() {
+            if ( parts.stream().anyMatch(p->!p.isDone() || p.isCompletedExceptionally()) )
+                cancelled.set(true);
+            for ( Thread thread : workers ) {
+                for ( ;; ) {
+                    try { thread.join(); break; }
+                    catch (InterruptedException ex) { /* Keep waiting: the thread has a transaction. */ }
+                }
+            }
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        for ( ;; ) {
+            try { latch.await(); return; }
+            catch (InterruptedException ex) { /* Keep waiting */ }
+        }
+    }
+}
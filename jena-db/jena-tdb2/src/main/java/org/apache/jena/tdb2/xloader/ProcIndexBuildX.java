@@ -220,8 +220,11 @@ public class ProcIndexBuildX
         int blockSize = SystemTDB.BlockSize;
         RecordFactory recordFactory = new RecordFactory(dftKeyLength, dftValueLength);
 
-        int order = BPlusTreeParams.calcOrder(blockSize, recordFactory);
-        BPlusTreeParams bptParams = new BPlusTreeParams(order, recordFactory);
+        // Blocks are built in the layout the database expects.
+        boolean leafCompression = dsgtdb.getStoreParams().isIndexLeafCompression();
+        boolean counted = dsgtdb.getStoreParams().isIndexCounted();
+        int order = BPlusTreeParams.calcOrder(blockSize, recordFactory.recordLength(), counted);
+        BPlusTreeParams bptParams = new BPlusTreeParams(order, recordFactory, leafCompression, counted);
 
         int blockSizeNodes = blockSize;
         int blockSizeRecords = blockSize;
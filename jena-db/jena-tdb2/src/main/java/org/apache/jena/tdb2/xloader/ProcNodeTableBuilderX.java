@@ -135,7 +135,7 @@ public class ProcNodeTableBuilderX {
             ProgressMonitorOutput monitor = ProgressMonitorOutput.create(LOG, "Nodes", tickPoint, superTick);
             OutputStream output = IO.ensureBuffered(toSortOutputStream);
             // Counting.
-            StreamRDF worker = new NodeHashTmpStream(output);
+            StreamRDF worker = new NodeHashTmpStream(output, dsgtdb.getStoreParams().getNodeIdInlineFormat());
             ProgressStreamRDF stream = new ProgressStreamRDF(worker, monitor);
             monitor.start();
             String label = monitor.getLabel();
@@ -336,10 +336,12 @@ public class ProcNodeTableBuilderX {
     static class NodeHashTmpStream implements StreamRDF {
 
         private final OutputStream outputData;
+        private final int inlineFormat;
         private CacheSet<Node> cache = CacheFactory.createCacheSet(100_000);
 
-        NodeHashTmpStream(OutputStream outputFile) {
+        NodeHashTmpStream(OutputStream outputFile, int inlineFormat) {
             this.outputData = outputFile;
+            this.inlineFormat = inlineFormat;
         }
 
         @Override
@@ -371,7 +373,7 @@ public class ProcNodeTableBuilderX {
         }
 
         private void node(Node node) {
-            NodeId nid = NodeId.inline(node);
+            NodeId nid = NodeId.inline(node, inlineFormat);
             if ( nid != null )
                 return ;
             if ( cache.contains(node) )
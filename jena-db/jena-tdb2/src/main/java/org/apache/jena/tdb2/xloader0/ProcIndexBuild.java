@@ -36,6 +36,7 @@ import org.apache.jena.dboe.trans.bplustree.BPlusTree;
 import org.apache.jena.dboe.trans.bplustree.BPlusTreeParams;
 import org.apache.jena.dboe.trans.bplustree.rewriter.BPlusTreeRewriter;
 import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.sys.SystemTDB;
 import org.apache.jena.tdb2.sys.TDBInternal;
 import org.apache.jena.dboe.base.record.Record;
@@ -45,7 +46,8 @@ public class ProcIndexBuild
 {
     public static void exec(DatasetGraph dsg, String indexName, String dataFile) {
         // Location of storage, not the DB.
-        Location location = TDBInternal.getDatasetGraphTDB(dsg).getLocation();
+        DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+        Location location = dsgtdb.getLocation();
         //System.out.printf("ProcIndexBuild: location=%s index=%s\n", location, indexName);
         // Argument processing
 
@@ -89,8 +91,11 @@ public class ProcIndexBuild
         int blockSize = SystemTDB.BlockSize;
         RecordFactory recordFactory = new RecordFactory(dftKeyLength, dftValueLength);
 
-        int order = BPlusTreeParams.calcOrder(blockSize, recordFactory);
-        BPlusTreeParams bptParams = new BPlusTreeParams(order, recordFactory);
+        // Blocks are built in the layout the database expects.
+        boolean leafCompression = dsgtdb.getStoreParams().isIndexLeafCompression();
+        boolean counted = dsgtdb.getStoreParams().isIndexCounted();
+        int order = BPlusTreeParams.calcOrder(blockSize, recordFactory.recordLength(), counted);
+        BPlusTreeParams bptParams = new BPlusTreeParams(order, recordFactory, leafCompression, counted);
 
         int blockSizeNodes = blockSize;
         int blockSizeRecords = blockSize;
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.system.progress.MonitorOutput;
+import org.apache.jena.system.progress.MonitorOutputs;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.loader.sequential.LoaderNodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.Test;
+
+/** Loaders used within a transaction started by the caller. */
+public class TestLoaderInTransaction {
+    private static MonitorOutput output = MonitorOutputs.nullOutput();
+    private static String DIR = "testing/Loader/";
+
+    private static final Node s  = SSE.parseNode("<http://example/s>");
+    private static final Node p  = SSE.parseNode("<http://example/p>");
+    private static final Node o1 = SSE.parseNode("<http://example/o1>");
+    private static final Node o2 = SSE.parseNode("<http://example/o2>");
+    private static final Node gn = SSE.parseNode("<http://example/g>");
+
+    @Test public void sequential_txn_01() {
+        // Empty table : indexes are not dropped in the caller's transaction.
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        dsg.begin(TxnType.WRITE);
+        DataLoader loader = LoaderFactory.sequentialLoader(dsg, output);
+        loader.startBulk();
+        loader.stream().triple(SSE.parseTriple("(<http://example/s> <http://example/p> <http://example/o1>)"));
+        assertNotNull(tripleTable(dsg).getIndex(1));
+        loader.finishBulk();
+        assertTrue(dsg.isInTransaction());
+        // Secondary index in use.
+        assertEquals(1, Iter.count(dsg.find(null, null, null, o1)));
+        dsg.commit();
+        dsg.end();
+        Txn.executeRead(dsg, ()->assertEquals(1, dsg.getDefaultGraph().size()));
+    }
+
+    @Test public void sequential_txn_02() {
+        // Existing data.
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        Txn.executeWrite(dsg, ()->dsg.add(gn, s, p, o1));
+        Txn.executeWrite(dsg, ()->{
+            DataLoader loader = LoaderFactory.sequentialLoader(dsg, gn, output);
+            loader.startBulk();
+            loader.stream().triple(SSE.parseTriple("(<http://example/s> <http://example/p> <http://example/o2>)"));
+            loader.finishBulk();
+        });
+        Txn.executeRead(dsg, ()->{
+            assertEquals(2, dsg.getGraph(gn).size());
+            assertEquals(1, Iter.count(dsg.find(null, null, null, o2)));
+        });
+    }
+
+    @Test public void sequential_txn_03() {
+        // Existing data, more than one batch.
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        Txn.executeWrite(dsg, ()->dsg.add(Quad.defaultGraphIRI, s, p, o1));
+        int N = 2*LoaderNodeTupleTable.BatchSize+10;
+        Txn.executeWrite(dsg, ()->{
+            DataLoader loader = LoaderFactory.sequentialLoader(dsg, output);
+            loader.startBulk();
+            StreamRDF stream = loader.stream();
+            for ( int i = 0 ; i < N ; i++ )
+                stream.triple(Triple.create(NodeFactory.createURI("http://example/s"+(i%97)), p,
+                                            NodeFactory.createLiteral(Integer.toString(i))));
+            loader.finishBulk();
+        });
+        Txn.executeRead(dsg, ()->{
+            assertEquals(N+1, dsg.getDefaultGraph().size());
+            assertEquals(1, Iter.count(dsg.find(null, null, null, o1)));
+            assertEquals(1, Iter.count(dsg.find(null, null, null, NodeFactory.createLiteral("123"))));
+            assertEquals(N+1, Iter.count(dsg.find(null, null, p, null)));
+        });
+    }
+
+    @Test public void sequential_txn_reader() throws Exception {
+        // A reader while loading into an empty table in the caller's transaction.
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        dsg.begin(TxnType.WRITE);
+        DataLoader loader = LoaderFactory.sequentialLoader(dsg, output);
+        loader.startBulk();
+        loader.stream().triple(SSE.parseTriple("(<http://example/s> <http://example/p> <http://example/o1>)"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            long x = executor.submit(()->Txn.calculateRead(dsg, ()->Iter.count(dsg.find(null, null, null, o1)))).get();
+            assertEquals(0, x);
+        } finally {
+            executor.shutdown();
+        }
+        loader.finishBulk();
+        dsg.commit();
+        dsg.end();
+        Txn.executeRead(dsg, ()->assertEquals(1, Iter.count(dsg.find(null, null, null, o1))));
+    }
+
+    @Test public void sequential_txn_abort() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        dsg.begin(TxnType.WRITE);
+        DataLoader loader = LoaderFactory.sequentialLoader(dsg, output);
+        loader.startBulk();
+        StreamRDF stream = loader.stream();
+        stream.triple(SSE.parseTriple("(<http://example/s> <http://example/p> <http://example/o1>)"));
+        loader.finishException(new RuntimeException());
+        assertTrue(dsg.isInTransaction());
+        dsg.abort();
+        dsg.end();
+
+        Txn.executeRead(dsg, ()->assertTrue(dsg.isEmpty()));
+        // Indexes have been put back.
+        Txn.executeWrite(dsg, ()->dsg.add(gn, s, p, o2));
+        Txn.executeRead(dsg, ()->{
+            assertEquals(1, Iter.count(dsg.find(null, null, null, o2)));
+            assertFalse(dsg.contains(null, null, null, o1));
+        });
+    }
+
+    @Test public void basic_txn_01() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        Txn.executeWrite(dsg, ()->{
+            DataLoader loader = LoaderFactory.basicLoader(dsg, output);
+            loader.startBulk();
+            loader.load(DIR + "data-1.nq", DIR + "data-2.nt");
+            loader.finishBulk();
+        });
+        Txn.executeRead(dsg, ()->assertEquals(2, dsg.getDefaultGraph().size()));
+    }
+
+    private static TupleTable tripleTable(DatasetGraph dsg) {
+        return TDBInternal.getDatasetGraphTDB(dsg).getTripleTable().getNodeTupleTable().getTupleTable();
+    }
+
+    @Test(expected=BulkLoaderException.class)
+    public void sequential_txn_read() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        Txn.executeRead(dsg, ()->LoaderFactory.sequentialLoader(dsg, output).startBulk());
+    }
+
+    @Test(expected=BulkLoaderException.class)
+    public void phased_txn() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        Txn.executeWrite(dsg, ()->LoaderFactory.phasedLoader(dsg, output).startBulk());
+    }
+}
@@ -95,6 +95,51 @@ public class TestStoreParams {
         assertArrayEquals(expected, params.getTripleIndexes());
     }
 
+    @Test public void store_params_15() {
+        String xs = "{ \"tdb.index_leaf_compression\": true }";
+        JsonObject x = JSON.parse(xs);
+        StoreParams params = StoreParamsCodec.decode(x);
+        assertTrue(params.isSetIndexLeafCompression());
+        assertTrue(params.isIndexLeafCompression());
+    }
+
+    @Test public void store_params_16() {
+        StoreParams params = StoreParams.builder().indexLeafCompression(true).build();
+        StoreParams params2 = roundTrip(params);
+        assertEqualsStoreParams(params, params2);
+        assertTrue(params2.isIndexLeafCompression());
+        assertFalse(StoreParams.getDftStoreParams().isIndexLeafCompression());
+    }
+
+    @Test public void store_params_17() {
+        String xs = "{ \"tdb.stats_incremental\": true }";
+        JsonObject x = JSON.parse(xs);
+        StoreParams params = StoreParamsCodec.decode(x);
+        assertTrue(params.isSetStatsIncremental());
+        assertTrue(params.isStatsIncremental());
+        assertFalse(params.isSetIndexLeafCompression());
+    }
+
+    @Test public void store_params_18() {
+        StoreParams params = StoreParams.builder().statsIncremental(true).build();
+        StoreParams params2 = roundTrip(params);
+        assertEqualsStoreParams(params, params2);
+        assertTrue(params2.isStatsIncremental());
+        assertFalse(StoreParams.getDftStoreParams().isStatsIncremental());
+    }
+
+    @Test public void store_params_19() {
+        String xs = "{ \"tdb.node_bloom_filter\": true }";
+        StoreParams params = StoreParamsCodec.decode(JSON.parse(xs));
+        assertTrue(params.isSetNodeBloomFilter());
+        assertTrue(params.isNodeBloomFilter());
+        assertEqualsStoreParams(params, roundTrip(params));
+        assertFalse(StoreParams.getDftStoreParams().isNodeBloomFilter());
+        // Can be changed for an existing database.
+        StoreParams params2 = StoreParamsBuilder.modify(StoreParams.getDftStoreParams(), params);
+        assertTrue(params2.isNodeBloomFilter());
+    }
+
     // Check that setting gets recorded and propagated.
 
     @Test public void store_params_20() {
@@ -131,6 +176,30 @@ public class TestStoreParams {
 
     }
 
+    @Test public void store_params_23() {
+        String xs = "{ \"tdb.nodeid_inline_format\": 2 }";
+        StoreParams params = StoreParamsCodec.decode(JSON.parse(xs));
+        assertTrue(params.isSetNodeIdInlineFormat());
+        assertEquals(2, params.getNodeIdInlineFormat());
+        assertEqualsStoreParams(params, roundTrip(params));
+        assertEquals(1, StoreParams.getDftStoreParams().getNodeIdInlineFormat());
+        // Fixed when the database is created.
+        StoreParams params2 = StoreParamsBuilder.modify(StoreParams.getDftStoreParams(), params);
+        assertEquals(1, params2.getNodeIdInlineFormat());
+    }
+
+    @Test public void store_params_24() {
+        String xs = "{ \"tdb.index_counted\": true }";
+        StoreParams params = StoreParamsCodec.decode(JSON.parse(xs));
+        assertTrue(params.isSetIndexCounted());
+        assertTrue(params.isIndexCounted());
+        assertEqualsStoreParams(params, roundTrip(params));
+        assertFalse(StoreParams.getDftStoreParams().isIndexCounted());
+        // Fixed when the database is created.
+        StoreParams params2 = StoreParamsBuilder.modify(StoreParams.getDftStoreParams(), params);
+        assertFalse(params2.isIndexCounted());
+    }
+
 
     // --------
 
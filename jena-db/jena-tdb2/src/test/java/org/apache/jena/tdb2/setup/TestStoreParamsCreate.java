@@ -31,10 +31,20 @@ import org.apache.jena.atlas.json.JSON;
 import org.apache.jena.atlas.json.JsonObject;
 import org.apache.jena.atlas.lib.FileOps;
 import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.index.RangeIndex;
 import org.apache.jena.dboe.sys.Names;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.system.Txn;
 import org.apache.jena.tdb2.ConfigTest;
 import org.apache.jena.tdb2.params.StoreParams;
 import org.apache.jena.tdb2.params.StoreParamsCodec;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
 import org.apache.jena.tdb2.sys.StoreConnection;
 import org.apache.jena.tdb2.sys.TDBInternal;
 import org.junit.After;
@@ -156,6 +166,51 @@ public class TestStoreParamsCreate {
         assertEquals(pApp.getBlockSize(), pDB.getBlockSize());
     }
 
+    // Inline format is recorded with the database.
+    @Test public void params_create_03() {
+        StoreParams params = StoreParams.builder(pApp).nodeIdInlineFormat(2).build();
+        Node s = NodeFactory.createURI("http://example/s");
+        Node p = NodeFactory.createURI("http://example/p");
+        Node o = NodeFactory.createLiteral("abc");
+        Triple triple = Triple.create(s, p, o);
+        DatasetGraphTDB dsg1 = StoreConnection.connectCreate(loc, params).getDatasetGraphTDB();
+        Txn.executeWrite(dsg1, ()->dsg1.getDefaultGraph().add(triple));
+        expel();
+
+        DatasetGraphTDB dsg2 = StoreConnection.connectCreate(loc, null).getDatasetGraphTDB();
+        assertEquals(2, dsg2.getStoreParams().getNodeIdInlineFormat());
+        Txn.executeRead(dsg2, ()->{
+            assertTrue(dsg2.getDefaultGraph().contains(triple));
+            NodeTable nodeTable = dsg2.getTripleTable().getNodeTupleTable().getNodeTable();
+            assertTrue(nodeTable.getNodeIdForNode(o).isInline());
+            assertEquals(NodeId.NodeDoesNotExist, nodeTable.baseNodeTable().getNodeIdForNode(o));
+            assertFalse(nodeTable.getNodeIdForNode(s).isInline());
+        });
+    }
+
+    @Test public void params_create_04() {
+        StoreParams params = StoreParams.builder(pApp).indexCounted(true).build();
+        Node p = NodeFactory.createURI("http://example/p");
+        int N = 2000;
+        DatasetGraphTDB dsg1 = StoreConnection.connectCreate(loc, params).getDatasetGraphTDB();
+        Txn.executeWrite(dsg1, ()->{
+            for ( int i = 0 ; i < N ; i++ )
+                dsg1.getDefaultGraph().add(NodeFactory.createURI("http://example/s"+i), p, NodeFactory.createLiteral("o"+i));
+        });
+        expel();
+
+        DatasetGraphTDB dsg2 = StoreConnection.connectCreate(loc, null).getDatasetGraphTDB();
+        assertTrue(dsg2.getStoreParams().isIndexCounted());
+        Txn.executeRead(dsg2, ()->{
+            assertEquals(N, dsg2.getDefaultGraph().size());
+            for ( TupleIndex index : dsg2.getTripleTable().getNodeTupleTable().getTupleTable().getIndexes() ) {
+                RangeIndex rIndex = ((TupleIndexRecord)index).getRangeIndex();
+                assertTrue(rIndex.isCounted());
+                assertEquals(N, rIndex.size());
+            }
+        });
+    }
+
 
 //    // Custom then modified.
 //    @Test public void params_reconnect_03() {
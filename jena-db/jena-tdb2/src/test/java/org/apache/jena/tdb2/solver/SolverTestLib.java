@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.jena.sparql.exec.RowSetOps;
+import org.apache.jena.sparql.exec.RowSetRewindable;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+
+/** Support for the solver tests that compare TDB2 execution with the in-memory dataset. */
+class SolverTestLib {
+
+    /**
+     * Assert that two results are the same, by term. On failure, the message
+     * has the pattern and both results.
+     */
+    static void checkSame(String pattern, RowSetRewindable expected, RowSetRewindable actual) {
+        expected.reset();
+        actual.reset();
+        boolean b = ResultSetCompare.equalsByTerm(expected, actual);
+        if ( b )
+            return;
+        String msg = "Different: "+pattern+"\nExpected:\n"+asText(expected)+"Actual:\n"+asText(actual);
+        assertTrue(msg, b);
+    }
+
+    private static String asText(RowSetRewindable rowSet) {
+        rowSet.reset();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RowSetOps.out(out, rowSet);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
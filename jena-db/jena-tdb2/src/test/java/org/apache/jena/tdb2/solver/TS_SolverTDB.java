@@ -25,6 +25,12 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses( {
     TestSolverTDB.class
     , TestStats.class
+    , TestPathLibTDB.class
+    , TestStatsIncremental.class
+    , TestLeapfrogTDB.class
+    , TestRangeFilterTDB.class
+    , TestStarJoinTDB.class
+    , TestCountTDB.class
 })
 
 public class TS_SolverTDB
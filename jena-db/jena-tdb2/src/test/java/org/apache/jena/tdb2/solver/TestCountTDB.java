@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.RowSetRewindable;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.TDB2StorageBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** {@code COUNT(*)} from counted indexes ({@link CountTDB}) gives the same results as the general engine. */
+public class TestCountTDB {
+    static DatasetGraph dsgMem = null;
+    // Counted indexes.
+    static DatasetGraphTDB dsgTDB1 = null;
+    // Counted indexes, and PSO in place of POS.
+    static DatasetGraphTDB dsgTDB2 = null;
+
+    @BeforeClass
+    static public void beforeClass() {
+        dsgMem = SSE.parseDatasetGraph(String.join("\n"
+            , "(prefix ((: <http://example/>))"
+            , "  (dataset"
+            , "    (graph (:s1 :p 1) (:s1 :q 1) (:s1 :r :s1)"
+            , "           (:s2 :p 2) (:s2 :q 2) (:s2 :q 3)"
+            , "           (:s3 :p 3) (:s3 :p 4) (:s3 :r :s1))"
+            , "    (graph :g1 (:s1 :p 1) (:s1 :q 1) (:s2 :p 2) (:s3 :q 3))"
+            , "    (graph :g2 (:s1 :p 1) (:s2 :q 2))"
+            , "))"));
+        dsgTDB1 = create(StoreParams.builder().indexCounted(true).build());
+        dsgTDB2 = create(StoreParams.builder().indexCounted(true)
+                                    .tripleIndexes(new String[] {"SPO", "PSO", "OSP"})
+                                    .quadIndexes(new String[] {"GSPO", "GPSO", "GOSP", "SPOG", "POSG", "OSPG"})
+                                    .build());
+    }
+
+    private static DatasetGraphTDB create(StoreParams params) {
+        DatasetGraphTDB dsg = TDB2StorageBuilder.build(Location.mem(), params);
+        Txn.executeWrite(dsg, ()->dsg.addAll(dsgMem));
+        return dsg;
+    }
+
+    @Test public void count_01() { test("?s ?p ?o"); }
+    @Test public void count_02() { test("?s :p ?o"); }
+    @Test public void count_03() { test(":s1 ?p ?o"); }
+    @Test public void count_04() { test("?s ?p 1"); }
+    @Test public void count_05() { test(":s2 :q ?o"); }
+    @Test public void count_06() { test("?s :p 1"); }
+    @Test public void count_07() { test(":s1 :p 1"); }
+    @Test public void count_08() { test(":s1 ?p 1"); }
+    @Test public void count_09() { test("?s :notHere ?o"); }
+    @Test public void count_10() { test(":s1 :p :notHere"); }
+    @Test public void count_11() { test("?s :p [] "); }
+
+    // Not read from the index counts.
+    @Test public void count_20() { test("?s :r ?s"); }
+    @Test public void count_21() { test("?s :p ?o FILTER(?o > 1)"); }
+    @Test public void count_22() { test("?s :p ?o . ?s :q ?x"); }
+
+    // Named graphs.
+    @Test public void count_30() { test("GRAPH :g1 { ?s ?p ?o }"); }
+    @Test public void count_31() { test("GRAPH :g1 { ?s :p ?o }"); }
+    @Test public void count_32() { test("GRAPH :g1 { ?s ?p 1 }"); }
+    @Test public void count_33() { test("GRAPH :notHere { ?s ?p ?o }"); }
+    @Test public void count_34() { test("GRAPH ?g { ?s ?p ?o }"); }
+    @Test public void count_35() { test("GRAPH <urn:x-arq:UnionGraph> { ?s :p ?o }"); }
+
+    // Other aggregates and grouping.
+    @Test public void count_40() { test("SELECT (COUNT(DISTINCT *) AS ?c) { ?s :p ?o }"); }
+    @Test public void count_41() { test("SELECT (COUNT(?o) AS ?c) { ?s :p ?o }"); }
+    @Test public void count_42() { test("SELECT ?s (COUNT(*) AS ?c) { ?s :p ?o } GROUP BY ?s"); }
+    @Test public void count_43() { test("SELECT (COUNT(*) AS ?c) (SUM(?o) AS ?x) { ?s :p ?o }"); }
+    @Test public void count_44() { test("SELECT * { :s1 :p ?z { SELECT (COUNT(*) AS ?c) { ?s :p ?o } } }"); }
+
+    @Test public void index_count_01() {
+        // The counts are from the indexes.
+        Txn.executeRead(dsgTDB1, ()->{
+            NodeId p = dsgTDB1.getTripleTable().getNodeTupleTable().getNodeTable().getNodeIdForNode(SSE.parseNode("<http://example/p>"));
+            long x = dsgTDB1.getTripleTable().getNodeTupleTable().getTupleTable().count(TupleFactory.tuple(NodeId.NodeIdAny, p, NodeId.NodeIdAny));
+            assertEquals(4, x);
+        });
+        DatasetGraphTDB dsg = TDB2StorageBuilder.build(Location.mem());
+        Txn.executeRead(dsg, ()->{
+            long x = dsg.getTripleTable().getNodeTupleTable().getTupleTable().count(TupleFactory.tuple(NodeId.NodeIdAny, NodeId.NodeIdAny, NodeId.NodeIdAny));
+            assertEquals(-1, x);
+        });
+    }
+
+    @Test public void index_count_02() {
+        // Changes in the transaction.
+        DatasetGraphTDB dsg = create(StoreParams.builder().indexCounted(true).build());
+        Txn.executeWrite(dsg, ()->{
+            dsg.add(SSE.parseQuad("(_ <http://example/s9> <http://example/p> 9)"));
+            dsg.delete(SSE.parseQuad("(_ <http://example/s1> <http://example/p> 1)"));
+            dsg.delete(SSE.parseQuad("(_ <http://example/s2> <http://example/p> 2)"));
+            assertEquals(3, count(dsg, "SELECT (COUNT(*) AS ?c) { ?s <http://example/p> ?o }"));
+        });
+        Txn.executeRead(dsg, ()->assertEquals(3, count(dsg, "SELECT (COUNT(*) AS ?c) { ?s <http://example/p> ?o }")));
+    }
+
+    private static void test(String pattern) {
+        String qs = pattern.startsWith("SELECT") ? pattern : "SELECT (COUNT(*) AS ?c) { " + pattern + " }";
+        qs = "PREFIX : <http://example/> " + qs;
+        Query query = QueryFactory.create(qs);
+        RowSetRewindable rs1 = QueryExec.dataset(dsgMem).query(query).select().rewindable();
+        for ( DatasetGraph dsg : new DatasetGraph[] {dsgTDB1, dsgTDB2} ) {
+            RowSetRewindable rs2 = Txn.calculateRead(dsg, ()->QueryExec.dataset(dsg).query(query).select().rewindable());
+            SolverTestLib.checkSame(pattern, rs1, rs2);
+        }
+    }
+
+    private static long count(DatasetGraph dsg, String qs) {
+        Number x = (Number)QueryExec.dataset(dsg).query(qs).select().next().get("c").getLiteralValue();
+        return x.longValue();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.RowSetRewindable;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.junit.TL;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Patterns evaluated by {@link LeapfrogTDB} give the same results as the general engine. */
+public class TestLeapfrogTDB {
+    static DatasetGraph dsgMem = null;
+    static DatasetGraph dsgTDB = null;
+    static PrefixMapping prefixes = PrefixMapping.Factory.create().setNsPrefix("", "http://example/");
+
+    @BeforeClass
+    static public void beforeClass() {
+        dsgMem = SSE.parseDatasetGraph(String.join("\n"
+            , "(prefix ((: <http://example/>))"
+            , "  (dataset"
+            , "    (graph (:a :p :b) (:b :p :c) (:c :p :a) (:c :p :d) (:d :p :e) (:e :p :c) (:e :p :a)"
+            , "           (:a :q :b) (:c :q :a) (:d :q :d) (:x :p :x)"
+            , "           (:a :n 1) (:b :n 2) (:c :n 3) (:d :n 1) (:e :n 2) (:a :n \"a\")"
+            , "           (:a :r 1) (:b :r 2) (:c :r 3) (:d :r 3))"
+            , "    (graph :g1 (:a :p :b) (:b :p :c) (:c :p :a) (:a :p :z) (:z :p :a))"
+            , "    (graph :g2 (:a :p :b) (:b :p :c) (:c :p :b) (:b :q :c))"
+            , "))"));
+        dsgTDB = TL.createTestDatasetGraphMem();
+        Txn.executeWrite(dsgTDB, ()->dsgTDB.addAll(dsgMem));
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dsgTDB);
+    }
+
+    @Test public void cyclic_01() { cyclic(true,  "(bgp (?a :p ?b) (?b :p ?c) (?c :p ?a))"); }
+    @Test public void cyclic_02() { cyclic(true,  "(bgp (?a :p ?b) (?a :q ?b))"); }
+    @Test public void cyclic_03() { cyclic(false, "(bgp (?a :p ?b) (?b :p ?c) (?c :p ?d))"); }
+    @Test public void cyclic_04() { cyclic(false, "(bgp (?s :p ?o1) (?s :q ?o2) (?s :n ?o3))"); }
+    @Test public void cyclic_05() { cyclic(false, "(bgp (?a :p :b) (:b :p ?a))"); }
+
+    @Test public void leapfrog_01() { isLeapfrog(true,  "(bgp (?a :p ?b) (?b :p ?c) (?c :p ?a))"); }
+    @Test public void leapfrog_02() { isLeapfrog(false, "(bgp (?a :p ?b) (?b :p ?c))"); }
+    @Test public void leapfrog_03() { isLeapfrog(false, "(bgp (?a :p ?a) (?a :p ?b) (?b :p ?a))"); }
+    @Test public void leapfrog_04() { isLeapfrog(false, "(bgp (?a :p ?b) (?b :p ?c) (<< ?c :p ?a >> :q ?z))"); }
+
+    // Triangles and other cycles.
+    @Test public void join_01() { test("?a :p ?b . ?b :p ?c . ?c :p ?a"); }
+    @Test public void join_02() { test("?a :p ?b . ?a :q ?b"); }
+    @Test public void join_03() { test("?a :p ?b . ?b :p ?c . ?c :q ?a"); }
+    // No variable order fits the indexes: executed by PatternMatchTDB2.
+    @Test public void join_04() { test("?a ?p ?b . ?b ?p ?c . ?c ?p ?a"); }
+    @Test public void join_05() { test("?a ?p ?b . ?b ?q ?c . ?c ?r ?a"); }
+    @Test public void join_06() { test("?a :p ?b . ?b :p ?c . ?c :p ?d . ?d :p ?a"); }
+    @Test public void join_07() { test("?a :p ?b . ?b :p ?c . ?c :p ?a . ?a :n ?n . ?b :n ?m"); }
+    @Test public void join_08() { test("?a :p ?b . ?b :p ?c . ?c :p ?a . ?a :n ?n . ?b :n ?n"); }
+    @Test public void join_09() { test("?a :n ?n . ?a :r ?n"); }
+    @Test public void join_10() { test("?a :p ?b . ?b :p ?c . ?c :p ?a . ?a :p ?c"); }
+
+    // Constants, including ones not in the data.
+    @Test public void join_20() { test(":a :p ?b . ?b :p ?c . ?c :p :a"); }
+    @Test public void join_21() { test("?a :p ?b . ?b :p ?c . ?c :p ?a . ?a :n 1"); }
+    @Test public void join_22() { test("?a :p ?b . ?b :p ?c . ?c :p ?a . ?a :notHere ?z"); }
+    @Test public void join_23() { test("?a :p ?b . ?b :p ?c . ?c :p ?a . :c :p :a"); }
+    @Test public void join_24() { test("?a :p ?b . ?b :p ?c . ?c :p ?a . :a :p :notHere"); }
+    @Test public void join_25() { test("?a :p ?b . ?b :p ?c . ?c :p ?a . :a :p :e"); }
+
+    // Bound by other patterns, filters.
+    @Test public void join_30() { test("VALUES ?a { :a :c :notHere } ?a :p ?b . ?b :p ?c . ?c :p ?a"); }
+    @Test public void join_31() { test("VALUES (?a ?c) { (:a :c) (:c :a) (:x :x) } ?a :p ?b . ?b :p ?c . ?c :p ?a"); }
+    @Test public void join_32() { test("?a :p ?b . ?b :p ?c . ?c :p ?a FILTER(?a != :a)"); }
+    @Test public void join_33() { test("?a :p ?b . ?b :p ?c . ?c :p ?a . ?a :n ?n FILTER(?n > 1)"); }
+    @Test public void join_34() { test("?a :p ?b OPTIONAL { ?b :p ?c . ?c :p ?a . ?a :p ?b }"); }
+
+    // Named graphs.
+    @Test public void join_40() { test("GRAPH :g1 { ?a :p ?b . ?b :p ?c . ?c :p ?a }"); }
+    @Test public void join_41() { test("GRAPH ?g { ?a :p ?b . ?b :p ?c . ?c :p ?a }"); }
+    @Test public void join_42() { test("GRAPH ?g { ?a :p ?b . ?b :p ?c . ?c :p ?b }"); }
+    @Test public void join_43() { test("GRAPH :notHere { ?a :p ?b . ?b :p ?c . ?c :p ?a }"); }
+    @Test public void join_44() { test("GRAPH <urn:x-arq:UnionGraph> { ?a :p ?b . ?b :p ?c . ?c :p ?a }"); }
+    @Test public void join_45() { test("GRAPH ?g { ?a :p ?b . ?b :q ?c . ?c :p ?b }"); }
+
+    private static void cyclic(boolean expected, String bgpStr) {
+        BasicPattern bgp = pattern(bgpStr);
+        assertTrue(bgpStr, expected == LeapfrogTDB.isCyclic(bgp));
+    }
+
+    private static void isLeapfrog(boolean expected, String bgpStr) {
+        BasicPattern bgp = pattern(bgpStr);
+        assertTrue(bgpStr, expected == LeapfrogTDB.isLeapfrogPattern(null, bgp, new Context()));
+        // Can be turned off.
+        Context cxt = new Context();
+        cxt.set(TDB2.symLeapfrogJoin, false);
+        assertFalse(bgpStr, LeapfrogTDB.isLeapfrogPattern(null, bgp, cxt));
+    }
+
+    private static BasicPattern pattern(String bgpStr) {
+        return SSE.parseBGP(bgpStr, prefixes);
+    }
+
+    private static void test(String pattern) {
+        String qs = "PREFIX : <http://example/> SELECT * { " + pattern + " }";
+        Query query = QueryFactory.create(qs);
+        RowSetRewindable rs1 = QueryExec.dataset(dsgMem).query(query).select().rewindable();
+        RowSetRewindable rs2 = Txn.calculateRead(dsgTDB, ()->QueryExec.dataset(dsgTDB).query(query).select().rewindable());
+        RowSetRewindable rs3 = Txn.calculateRead(dsgTDB, ()->QueryExec.dataset(dsgTDB).query(query)
+                                                         .set(TDB2.symLeapfrogJoin, false).select().rewindable());
+        SolverTestLib.checkSame(pattern, rs1, rs2);
+        SolverTestLib.checkSame(pattern, rs1, rs3);
+    }
+
+}
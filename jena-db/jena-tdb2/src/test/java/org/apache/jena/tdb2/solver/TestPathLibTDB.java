@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.RowSetRewindable;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.junit.TL;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Paths evaluated by {@link PathLibTDB} give the same results as the general path engine. */
+public class TestPathLibTDB {
+    static DatasetGraph dsgMem = null;
+    static DatasetGraph dsgTDB = null;
+
+    @BeforeClass
+    static public void beforeClass() {
+        dsgMem = SSE.parseDatasetGraph(String.join("\n"
+            , "(prefix ((: <http://example/>))"
+            , "  (dataset"
+            , "    (graph (:a :p :b) (:b :p :c) (:c :p :a) (:c :p :d) (:d :q :e) (:e :p :f) (:f :p 1) (:x :p :x))"
+            , "    (graph :g1 (:a :p :b) (:b :p :z) (:z :p :z2))"
+            , "    (graph :g2 (:z2 :p :z3) (:b :p :c))"
+            , "))"));
+        dsgTDB = TL.createTestDatasetGraphMem();
+        Txn.executeWrite(dsgTDB, ()->dsgTDB.addAll(dsgMem));
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dsgTDB);
+    }
+
+    @Test public void path_01() { test("?x :p+ ?y"); }
+    @Test public void path_02() { test(":a :p+ ?y"); }
+    @Test public void path_03() { test(":a :p* ?y"); }
+    @Test public void path_04() { test("?x :p+ :a"); }
+    @Test public void path_05() { test("?x :p* :a"); }
+    @Test public void path_06() { test("?x ^:p+ :a"); }
+    @Test public void path_07() { test(":a ^:p* ?y"); }
+    @Test public void path_08() { test("?x :p+ ?x"); }
+    @Test public void path_09() { test("?x ^:p+ ?y"); }
+
+    @Test public void path_10() { test(":a :p+ :d"); }
+    @Test public void path_11() { test(":a :p+ :f"); }
+    @Test public void path_12() { test(":a :p* :a"); }
+    @Test public void path_13() { test(":x :p+ :x"); }
+    @Test public void path_14() { test(":d :p+ :d"); }
+    @Test public void path_15() { test(":d :p* :d"); }
+
+    // Not in the data.
+    @Test public void path_20() { test(":notHere :p* ?y"); }
+    @Test public void path_21() { test(":notHere :p+ ?y"); }
+    @Test public void path_22() { test(":notHere :p* :notHere"); }
+    @Test public void path_23() { test(":a :notHere+ ?y"); }
+    @Test public void path_24() { test(":a :notHere* ?y"); }
+
+    // Literals
+    @Test public void path_30() { test(":e :p+ 1"); }
+    @Test public void path_31() { test("1 :p* ?y"); }
+
+    // Bound by other patterns.
+    @Test public void path_40() { test("?x :p+ ?y . ?y :q ?z"); }
+    @Test public void path_41() { test("VALUES ?s { :a :notHere 1 :x } ?s :p* ?y"); }
+    @Test public void path_42() { test("VALUES (?s ?o) { (:a :d) (:a :notHere) (:x :x) (1 1) } ?s :p* ?o"); }
+    @Test public void path_43() { test("?s :q ?o OPTIONAL { ?o :p+ ?z }"); }
+
+    // Named graphs and the union graph.
+    @Test public void path_50() { test("GRAPH :g1 { :a :p+ ?y }"); }
+    @Test public void path_51() { test("GRAPH ?g { ?x :p+ ?y }"); }
+    @Test public void path_52() { test("GRAPH <urn:x-arq:UnionGraph> { :a :p+ ?y }"); }
+    @Test public void path_53() { test("GRAPH <urn:x-arq:UnionGraph> { :a :p+ :z3 }"); }
+    @Test public void path_54() { test("GRAPH <urn:x-arq:UnionGraph> { ?x :p+ ?x }"); }
+
+    private static void test(String pattern) {
+        String qs = "PREFIX : <http://example/> SELECT * { " + pattern + " }";
+        Query query = QueryFactory.create(qs);
+        RowSetRewindable rs1 = QueryExec.dataset(dsgMem).query(query).select().rewindable();
+        RowSetRewindable rs2 = Txn.calculateRead(dsgTDB, ()->QueryExec.dataset(dsgTDB).query(query).select().rewindable());
+        SolverTestLib.checkSame(pattern, rs1, rs2);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.RowSetRewindable;
+import org.apache.jena.sparql.expr.ExprList;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.store.NodeIdRange;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Filters evaluated with {@link RangeFilterTDB} give the same results as the general engine. */
+public class TestRangeFilterTDB {
+    static DatasetGraph dsgMem = null;
+    static DatasetGraph dsgTDB = null;
+
+    @BeforeClass
+    static public void beforeClass() {
+        dsgMem = SSE.parseDatasetGraph(String.join("\n"
+            , "(prefix ((: <http://example/>) (xsd: <http://www.w3.org/2001/XMLSchema#>))"
+            , "  (dataset"
+            , "    (graph (:a :n 1) (:b :n 30) (:c :n 31) (:d :n -5) (:e :n 100) (:f :n \"45\"^^xsd:int)"
+            , "           (:g :n 30.5) (:h :n 25.0e0) (:i :n \"40.0\"^^xsd:float) (:j :n 99999999999999999999)"
+            , "           (:k :n -99999999999999999999) (:l :n \"abc\") (:m :n :x) (:n :n true)"
+            , "           (:o :n \"-40\"^^xsd:short) (:p :n \"31\"^^xsd:unsignedByte) (:q :n 0)"
+            , "           (:a :d \"2020-01-01\"^^xsd:date) (:b :d \"2019-12-31+14:00\"^^xsd:date)"
+            , "           (:c :d \"2020-06-15Z\"^^xsd:date) (:d :d \"2021-01-01-05:00\"^^xsd:date)"
+            , "           (:a :t \"2020-01-01T00:00:00Z\"^^xsd:dateTime) (:b :t \"2019-12-31T20:00:00-05:00\"^^xsd:dateTime)"
+            , "           (:c :t \"2020-01-01T10:00:00\"^^xsd:dateTime) (:d :t \"2020-01-01T10:00:00+14:00\"^^xsd:dateTime)"
+            , "           (:e :t \"2020-01-02T00:00:00Z\"^^xsd:dateTimeStamp) (:f :t \"2020-01-02\"^^xsd:date)"
+            , "           (:a :p :b) (:b :p :c) (:c :p :e))"
+            , "    (graph :g1 (:a :n 5) (:b :n 50) (:c :n \"50\"^^xsd:long))"
+            , "    (graph :g2 (:a :n 5) (:b :n 60) (:c :n -60))"
+            , "))"));
+        dsgTDB = TL.createTestDatasetGraphMem();
+        Txn.executeWrite(dsgTDB, ()->dsgTDB.addAll(dsgMem));
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dsgTDB);
+    }
+
+    @Test public void ranges_01() { ranges("(> ?x 30)", 1); }
+    @Test public void ranges_02() { ranges("(&& (> ?x 30) (< ?x 50))", 1); }
+    @Test public void ranges_03() { ranges("(< 30 ?x)", 1); }
+    @Test public void ranges_04() { ranges("(exprlist (> ?x 30) (<= ?y 5))", 2); }
+    @Test public void ranges_05() { ranges("(> ?x ?y)", 0); }
+    @Test public void ranges_06() { ranges("(> ?x 'abc')", 0); }
+    @Test public void ranges_07() { ranges("(|| (> ?x 30) (< ?x 5))", 0); }
+    @Test public void ranges_08() { ranges("(= ?x 30)", 0); }
+
+    @Test public void filter_01() { test("?s :n ?x FILTER(?x > 30)"); }
+    @Test public void filter_02() { test("?s :n ?x FILTER(?x >= 30)"); }
+    @Test public void filter_03() { test("?s :n ?x FILTER(?x < 30)"); }
+    @Test public void filter_04() { test("?s :n ?x FILTER(?x <= 30)"); }
+    @Test public void filter_05() { test("?s :n ?x FILTER(?x > -10 && ?x < 40)"); }
+    @Test public void filter_06() { test("?s :n ?x FILTER(30 < ?x)"); }
+    @Test public void filter_07() { test("?s :n ?x FILTER(?x > 30.2)"); }
+    @Test public void filter_08() { test("?s :n ?x FILTER(?x < 2.5e1)"); }
+    @Test public void filter_09() { test("?s :n ?x FILTER(?x > 99999999999999999998)"); }
+    @Test public void filter_10() { test("?s :n ?x FILTER(?x > 50 && ?x < 10)"); }
+    @Test public void filter_11() { test("?s ?p ?x FILTER(?x >= 0)"); }
+    @Test public void filter_12() { test("?s :n ?x FILTER(?x > 30 && ?x != 100)"); }
+
+    @Test public void filter_20() { test("?s :d ?x FILTER(?x > '2020-01-01'^^xsd:date)"); }
+    @Test public void filter_21() { test("?s :d ?x FILTER(?x <= '2020-01-01'^^xsd:date)"); }
+    @Test public void filter_22() { test("?s :t ?x FILTER(?x >= '2020-01-01T00:00:00Z'^^xsd:dateTime)"); }
+    @Test public void filter_23() { test("?s :t ?x FILTER(?x < '2020-01-01T12:00:00Z'^^xsd:dateTime)"); }
+    @Test public void filter_24() { test("?s ?p ?x FILTER(?x > '2019-01-01T00:00:00'^^xsd:dateTime)"); }
+
+    // Joins: the range is used where the variable is first bound.
+    @Test public void filter_30() { test("?s :p ?o . ?o :n ?x FILTER(?x > 30)"); }
+    @Test public void filter_31() { test("?s :n ?x . ?s :p ?o FILTER(?x > 30)"); }
+    @Test public void filter_32() { test("?s :n ?x . ?o :n ?x FILTER(?x > 30)"); }
+    @Test public void filter_33() { test(":c :n ?x FILTER(?x > 30)"); }
+    @Test public void filter_34() { test("VALUES ?x { 31 1 'abc' } ?s :n ?x FILTER(?x > 30)"); }
+    @Test public void filter_35() { test("?s ?p ?x FILTER(?x > 30)"); }
+
+    // Named graphs.
+    @Test public void filter_40() { test("GRAPH :g1 { ?s :n ?x FILTER(?x > 30) }"); }
+    @Test public void filter_41() { test("GRAPH ?g { ?s :n ?x FILTER(?x > 30) }"); }
+    @Test public void filter_42() { test("GRAPH <urn:x-arq:UnionGraph> { ?s :n ?x FILTER(?x > 30) }"); }
+    @Test public void filter_43() { test("GRAPH ?g { ?s :n ?x FILTER(?x < 0) }"); }
+
+    private static void ranges(String exprStr, int expected) {
+        ExprList exprs = SSE.parseExprList(exprStr);
+        Map<Var, NodeIdRange> ranges = RangeFilterTDB.ranges(exprs, new Context());
+        assertEquals(exprStr, expected, ranges.size());
+        // Can be turned off.
+        Context cxt = new Context();
+        cxt.set(TDB2.symRangeFilter, false);
+        assertTrue(RangeFilterTDB.ranges(exprs, cxt).isEmpty());
+    }
+
+    private static void test(String pattern) {
+        String qs = "PREFIX : <http://example/> PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> SELECT * { " + pattern + " }";
+        Query query = QueryFactory.create(qs);
+        RowSetRewindable rs1 = QueryExec.dataset(dsgMem).query(query).select().rewindable();
+        RowSetRewindable rs2 = Txn.calculateRead(dsgTDB, ()->QueryExec.dataset(dsgTDB).query(query).select().rewindable());
+        RowSetRewindable rs3 = Txn.calculateRead(dsgTDB, ()->QueryExec.dataset(dsgTDB).query(query)
+                                                         .set(TDB2.symRangeFilter, false).select().rewindable());
+        SolverTestLib.checkSame(pattern, rs1, rs2);
+        SolverTestLib.checkSame(pattern, rs1, rs3);
+    }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.engine.optimizer.StatsMatcher;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderWeighted;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.RowSetRewindable;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.TDB2StorageBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Patterns evaluated by {@link StarJoinTDB} give the same results as the general engine. */
+public class TestStarJoinTDB {
+    static DatasetGraph dsgMem = null;
+    // Statistics, default indexes.
+    static DatasetGraphTDB dsgTDB1 = null;
+    // Statistics, and PSO in place of POS.
+    static DatasetGraphTDB dsgTDB2 = null;
+    static PrefixMapping prefixes = PrefixMapping.Factory.create().setNsPrefix("", "http://example/");
+
+    @BeforeClass
+    static public void beforeClass() {
+        dsgMem = SSE.parseDatasetGraph(String.join("\n"
+            , "(prefix ((: <http://example/>))"
+            , "  (dataset"
+            , "    (graph (:s1 :p 1) (:s1 :q 1) (:s1 :r 1) (:s1 :t :A)"
+            , "           (:s2 :p 2) (:s2 :q 2) (:s2 :q 3) (:s2 :t :B)"
+            , "           (:s3 :p 3) (:s3 :p 4) (:s3 :r 3) (:s3 :t :A)"
+            , "           (:s4 :p 4) (:s4 :q 4) (:s4 :r 4) (:s4 :t :A) (:s4 :t :B)"
+            , "           (:s5 :q 5) (:s5 :r 5)"
+            , "           (:s6 :p 6) (:s6 :q 6) (:s6 :r 6) (:s6 :t :B)"
+            , "           (:x :link :s1) (:x :link :s2) (:x :link :s5))"
+            , "    (graph :g1 (:s1 :p 1) (:s1 :q 1) (:s2 :p 2) (:s3 :q 3) (:s4 :p 4) (:s4 :q 4) (:s4 :q 5))"
+            , "    (graph :g2 (:s1 :p 1) (:s2 :q 2))"
+            , "))"));
+        dsgTDB1 = create(StoreParams.builder().statsIncremental(true).build());
+        dsgTDB2 = create(StoreParams.builder().statsIncremental(true)
+                                    .tripleIndexes(new String[] {"SPO", "PSO", "OSP"})
+                                    .quadIndexes(new String[] {"GSPO", "GPSO", "GOSP", "SPOG", "POSG", "OSPG"})
+                                    .build());
+    }
+
+    private static DatasetGraphTDB create(StoreParams params) {
+        DatasetGraphTDB dsg = TDB2StorageBuilder.build(Location.mem(), params);
+        Txn.executeWrite(dsg, ()->dsg.addAll(dsgMem));
+        return dsg;
+    }
+
+    @Test public void star_01() { isStar(true,  "(bgp (?s :p ?a) (?s :q ?b))"); }
+    @Test public void star_02() { isStar(true,  "(bgp (?s :p ?a) (?s :q :o) (?s :r 1))"); }
+    @Test public void star_03() { isStar(false, "(bgp (?s :p ?a))"); }
+    @Test public void star_04() { isStar(false, "(bgp (?s :p ?a) (?a :q ?b))"); }
+    @Test public void star_05() { isStar(false, "(bgp (?s :p ?a) (?s ?q ?b))"); }
+    @Test public void star_06() { isStar(false, "(bgp (?s :p ?a) (?s :q ?a))"); }
+    @Test public void star_07() { isStar(false, "(bgp (?s :p ?a) (?s :q ?s))"); }
+    @Test public void star_08() { isStar(false, "(bgp (:s :p ?a) (:s :q ?b))"); }
+    @Test public void star_09() { isStar(false, "(bgp (?s :p ?a) (?s :q << :x :y :z >>))"); }
+
+    @Test public void selectivity_01() { selectivity(true,  "(bgp (?s :p ?a) (?s :q ?b))"); }
+    @Test public void selectivity_02() { selectivity(true,  "(bgp (?s :p ?a) (?s :q ?b) (?s :r ?c))"); }
+    @Test public void selectivity_03() { selectivity(false, "(bgp (?s :p ?a) (?s :rare ?b))"); }
+    @Test public void selectivity_04() { selectivity(false, "(bgp (?s :p ?a) (?s :notInStats ?b))"); }
+
+    @Test public void selectivity_05() {
+        BasicPattern bgp = pattern("(bgp (?s :p ?a) (?s :q ?b))");
+        assertFalse(StarJoinTDB.isLowSelectivity(bgp, ReorderLib.fixed()));
+        assertFalse(StarJoinTDB.isLowSelectivity(bgp, null));
+    }
+
+    // The test data has statistics that lead to the star join.
+    @Test public void selectivity_06() {
+        BasicPattern bgp = pattern("(bgp (?s :p ?a) (?s :q ?b) (?s :r ?c))");
+        assertTrue(StarJoinTDB.isLowSelectivity(bgp, dsgTDB1.getReorderTransform()));
+        assertTrue(StarJoinTDB.isLowSelectivity(bgp, dsgTDB2.getReorderTransform()));
+    }
+
+    // The most selective triple pattern has too many matches for the semi-join: bounded by the index size.
+    @Test public void selectivity_07() {
+        String bgpStr = "(bgp (?s :p ?a) (?s :q ?b))";
+        assertFalse(StarJoinTDB.isLowSelectivity(pattern(bgpStr), largeStats(-1)));
+        assertFalse(StarJoinTDB.isLowSelectivity(pattern(bgpStr), largeStats(1_000_000_000)));
+        assertTrue(StarJoinTDB.isLowSelectivity(pattern(bgpStr), largeStats(6_000_000)));
+    }
+
+    private static ReorderTransformation largeStats(long count) {
+        String meta = ( count < 0 ) ? "" : "(meta (count "+count+"))";
+        StatsMatcher stats = new StatsMatcher(SSE.parseItem("(stats "+meta+" (:p 2000000) (:q 3000000))", prefixes));
+        return new ReorderWeighted(stats);
+    }
+
+    @Test public void join_01() { test("?s :p ?a . ?s :q ?b"); }
+    @Test public void join_02() { test("?s :p ?a . ?s :q ?b . ?s :r ?c"); }
+    @Test public void join_03() { test("?s :p ?a . ?s :p ?b"); }
+    @Test public void join_04() { test("?s :p ?a . ?s :t :A"); }
+    @Test public void join_05() { test("?s :p ?a . ?s :q ?b . ?s :t ?t"); }
+    @Test public void join_06() { test("?s :t :A . ?s :t :B"); }
+    @Test public void join_07() { test("?s :p ?a . ?s :q 2"); }
+    @Test public void join_08() { test("?s :p ?a . ?s :r ?c . ?s :t :A"); }
+
+    // Constants not in the data.
+    @Test public void join_10() { test("?s :p ?a . ?s :notHere ?b"); }
+    @Test public void join_11() { test("?s :p ?a . ?s :q :notHere"); }
+
+    // Bound by other patterns, filters.
+    @Test public void join_20() { test("?s :p ?a . ?s :q ?b FILTER(?a > 1)"); }
+    @Test public void join_21() { test("VALUES ?s { :s1 :s3 :notHere } ?s :p ?a . ?s :q ?b"); }
+    @Test public void join_22() { test("VALUES ?b { 2 3 9 } ?s :p ?a . ?s :q ?b"); }
+    @Test public void join_23() { test(":x :link ?s OPTIONAL { ?s :p ?a . ?s :q ?b }"); }
+    @Test public void join_24() { test("?s :p ?a . ?s :q ?b . ?s :r ?c FILTER(?b != 4)"); }
+
+    // No semi-join: too many subjects, or over the limit when collecting them.
+    @Test public void join_25() { testMaxSemiJoin(0, "?s :p ?a . ?s :q ?b"); }
+    @Test public void join_26() { testMaxSemiJoin(1, "?s :p ?a . ?s :q ?b . ?s :r ?c"); }
+    @Test public void join_27() { testMaxSemiJoin(0, "GRAPH :g1 { ?s :p ?a . ?s :q ?b }"); }
+
+    // Named graphs.
+    @Test public void join_30() { test("GRAPH :g1 { ?s :p ?a . ?s :q ?b }"); }
+    @Test public void join_31() { test("GRAPH ?g { ?s :p ?a . ?s :q ?b }"); }
+    @Test public void join_32() { test("GRAPH :notHere { ?s :p ?a . ?s :q ?b }"); }
+    @Test public void join_33() { test("GRAPH <urn:x-arq:UnionGraph> { ?s :p ?a . ?s :q ?b }"); }
+    @Test public void join_34() { test("GRAPH :g2 { ?s :p ?a . ?s :q ?b }"); }
+
+    private static void isStar(boolean expected, String bgpStr) {
+        BasicPattern bgp = pattern(bgpStr);
+        assertTrue(bgpStr, expected == StarJoinTDB.isStarPattern(null, bgp, new Context()));
+        // Can be turned off.
+        Context cxt = new Context();
+        cxt.set(TDB2.symStarJoin, false);
+        assertFalse(bgpStr, StarJoinTDB.isStarPattern(null, bgp, cxt));
+    }
+
+    private static void selectivity(boolean expected, String bgpStr) {
+        StatsMatcher stats = new StatsMatcher();
+        stats.addPatterns(SSE.parseNode(":p", prefixes), 1000);
+        stats.addPatterns(SSE.parseNode(":q", prefixes), 800);
+        stats.addPatterns(SSE.parseNode(":r", prefixes), 1200);
+        stats.addPatterns(SSE.parseNode(":rare", prefixes), 5);
+        ReorderTransformation transform = new ReorderWeighted(stats);
+        BasicPattern bgp = pattern(bgpStr);
+        assertTrue(bgpStr, expected == StarJoinTDB.isLowSelectivity(bgp, transform));
+    }
+
+    private static BasicPattern pattern(String bgpStr) {
+        return SSE.parseBGP(bgpStr, prefixes);
+    }
+
+    private static void test(String pattern) {
+        String qs = "PREFIX : <http://example/> SELECT * { " + pattern + " }";
+        Query query = QueryFactory.create(qs);
+        RowSetRewindable rs1 = QueryExec.dataset(dsgMem).query(query).select().rewindable();
+        for ( DatasetGraph dsg : new DatasetGraph[] {dsgTDB1, dsgTDB2} ) {
+            RowSetRewindable rs2 = Txn.calculateRead(dsg, ()->QueryExec.dataset(dsg).query(query).select().rewindable());
+            RowSetRewindable rs3 = Txn.calculateRead(dsg, ()->QueryExec.dataset(dsg).query(query)
+                                                           .set(TDB2.symStarJoin, false).select().rewindable());
+            SolverTestLib.checkSame(pattern, rs1, rs2);
+            SolverTestLib.checkSame(pattern, rs1, rs3);
+        }
+    }
+
+    private static void testMaxSemiJoin(int max, String pattern) {
+        int x = StarJoinTDB.MaxSemiJoin;
+        try {
+            StarJoinTDB.MaxSemiJoin = max;
+            test(pattern);
+        } finally {
+            StarJoinTDB.MaxSemiJoin = x;
+        }
+    }
+
+}
@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.system.progress.MonitorOutputs;
+import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.loader.DataLoader;
+import org.apache.jena.tdb2.loader.LoaderFactory;
+import org.apache.jena.tdb2.solver.stats.ReorderStatsTDB;
+import org.apache.jena.tdb2.solver.stats.StatsTDB;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.TDB2StorageBuilder;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.junit.Test;
+
+/** Statistics maintained as the data changes ({@link StoreParams#isStatsIncremental}). */
+public class TestStatsIncremental {
+
+    private static StoreParams params = StoreParams.builder().statsIncremental(true).build();
+
+    private static DatasetGraphTDB create() {
+        return TDB2StorageBuilder.build(Location.mem(), params);
+    }
+
+    private static void add(DatasetGraphTDB dsg, String... quads) {
+        Txn.executeWrite(dsg, ()->Arrays.stream(quads).forEach(q->dsg.add(SSE.parseQuad(q))));
+    }
+
+    private static void delete(DatasetGraphTDB dsg, String... quads) {
+        Txn.executeWrite(dsg, ()->Arrays.stream(quads).forEach(q->dsg.delete(SSE.parseQuad(q))));
+    }
+
+    private static NodeId id(DatasetGraphTDB dsg, String str) {
+        NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable();
+        Node n = SSE.parseNode(str);
+        return Txn.calculateRead(dsg, ()->nodeTable.getNodeIdForNode(n));
+    }
+
+    private static <X> X stats(DatasetGraphTDB dsg, Function<StatsTDB, X> function) {
+        return function.apply(dsg.getStats().getStats());
+    }
+
+    @Test public void stats_incr_01() {
+        DatasetGraphTDB dsg = create();
+        assertEquals(0L, (long)stats(dsg, StatsTDB::getCount));
+        add(dsg, "(_ <s1> <p> <o1>)", "(_ <s1> <p> <o2>)", "(_ <s2> <p> <o1>)", "(_ <s2> <q> 'x')");
+        NodeId p = id(dsg, "<p>");
+        NodeId q = id(dsg, "<q>");
+        assertEquals(4L, (long)stats(dsg, StatsTDB::getCount));
+        assertEquals(3L, (long)stats(dsg, s->s.getCount(p)));
+        assertEquals(2L, (long)stats(dsg, s->s.getSubjects(p)));
+        assertEquals(2L, (long)stats(dsg, s->s.getObjects(p)));
+        assertEquals(1L, (long)stats(dsg, s->s.getCount(q)));
+    }
+
+    @Test public void stats_incr_02() {
+        DatasetGraphTDB dsg = create();
+        add(dsg, "(_ <s1> <p> <o1>)", "(_ <s1> <p> <o2>)", "(_ <s2> <p> <o1>)");
+        // Already present.
+        add(dsg, "(_ <s1> <p> <o1>)");
+        // Not present.
+        delete(dsg, "(_ <s1> <p> <o9>)", "(_ <s9> <p> <o1>)");
+        NodeId p = id(dsg, "<p>");
+        assertEquals(3L, (long)stats(dsg, s->s.getCount(p)));
+
+        delete(dsg, "(_ <s2> <p> <o1>)");
+        assertEquals(2L, (long)stats(dsg, s->s.getCount(p)));
+        assertEquals(1L, (long)stats(dsg, s->s.getSubjects(p)));
+        assertEquals(2L, (long)stats(dsg, s->s.getObjects(p)));
+
+        delete(dsg, "(_ <s1> <p> <o1>)");
+        assertEquals(1L, (long)stats(dsg, s->s.getSubjects(p)));
+        assertEquals(1L, (long)stats(dsg, s->s.getObjects(p)));
+    }
+
+    @Test public void stats_incr_03() {
+        DatasetGraphTDB dsg = create();
+        add(dsg, "(_ <s1> <p> 1)", "(_ <s1> <q> 2)", "(_ <s2> <p> 3)", "(_ <s2> <q> 4)", "(_ <s3> <p> 5)");
+        NodeId p = id(dsg, "<p>");
+        NodeId q = id(dsg, "<q>");
+        assertEquals(2L, (long)stats(dsg, s->s.getCharacteristicSetCount(Arrays.asList(p, q))));
+        assertEquals(1L, (long)stats(dsg, s->s.getCharacteristicSetCount(Arrays.asList(p))));
+
+        add(dsg, "(_ <s3> <q> 6)");
+        assertEquals(3L, (long)stats(dsg, s->s.getCharacteristicSetCount(Arrays.asList(q, p))));
+        assertEquals(0L, (long)stats(dsg, s->s.getCharacteristicSetCount(Arrays.asList(p))));
+        assertEquals(1, (int)stats(dsg, StatsTDB::getCharacteristicSetsSize));
+
+        // Remove all for a subject.
+        Txn.executeWrite(dsg, ()->dsg.deleteAny(Quad.defaultGraphIRI, SSE.parseNode("<s1>"), Node.ANY, Node.ANY));
+        assertEquals(2L, (long)stats(dsg, s->s.getCharacteristicSetCount(Arrays.asList(p, q))));
+        assertEquals(4L, (long)stats(dsg, StatsTDB::getCount));
+    }
+
+    @Test public void stats_incr_04() {
+        // Abort.
+        DatasetGraphTDB dsg = create();
+        add(dsg, "(_ <s1> <p> <o1>)");
+        dsg.begin();
+        dsg.add(SSE.parseQuad("(_ <s1> <p> <o2>)"));
+        dsg.abort();
+        dsg.end();
+        assertEquals(1L, (long)stats(dsg, StatsTDB::getCount));
+    }
+
+    @Test public void stats_incr_05() {
+        // Quads - counted over all named graphs together.
+        DatasetGraphTDB dsg = create();
+        add(dsg, "(<g1> <s> <p> <o>)", "(<g2> <s> <p> <o>)", "(<g2> <s> <q> <o>)");
+        NodeId p = id(dsg, "<p>");
+        NodeId q = id(dsg, "<q>");
+        assertEquals(2L, (long)stats(dsg, s->s.getCount(p)));
+        assertEquals(1L, (long)stats(dsg, s->s.getSubjects(p)));
+        assertEquals(1L, (long)stats(dsg, s->s.getObjects(p)));
+        assertEquals(1L, (long)stats(dsg, s->s.getCharacteristicSetCount(Arrays.asList(p, q))));
+        delete(dsg, "(<g1> <s> <p> <o>)");
+        assertEquals(1L, (long)stats(dsg, s->s.getSubjects(p)));
+        delete(dsg, "(<g2> <s> <p> <o>)");
+        assertEquals(0L, (long)stats(dsg, s->s.getSubjects(p)));
+        assertEquals(1L, (long)stats(dsg, s->s.getCharacteristicSetCount(Arrays.asList(q))));
+    }
+
+    @Test public void stats_incr_06() {
+        DatasetGraphTDB dsg = create();
+        add(dsg, "(_ <s1> <p> 1)", "(_ <s1> <p> 2)", "(_ <s2> <p> 3)", "(_ <s2> <q> <o>)",
+                 "(_ <s1> rdf:type <T>)", "(_ <s2> rdf:type <T>)");
+        StatsTDB stats1 = dsg.getStats().getStats();
+        Txn.executeWrite(dsg, dsg::rebuildStats);
+        StatsTDB stats2 = dsg.getStats().getStats();
+        assertNotSame(stats1, stats2);
+        for ( String str : new String[] {"<p>", "<q>", "rdf:type"} ) {
+            NodeId p = id(dsg, str);
+            assertEquals(stats1.getCount(p), stats2.getCount(p));
+            assertEquals(stats1.getSubjects(p), stats2.getSubjects(p));
+            assertEquals(stats1.getObjects(p), stats2.getObjects(p));
+        }
+        NodeId t = id(dsg, "<T>");
+        assertEquals(2L, stats2.getTypeCount(t));
+        assertEquals(stats1.getTypeCount(t), stats2.getTypeCount(t));
+        assertEquals(stats1.getCharacteristicSetsSize(), stats2.getCharacteristicSetsSize());
+        assertEquals(stats1.toString(), stats2.toString());
+    }
+
+    @Test public void stats_incr_07() {
+        // Planning statistics only change on a material change.
+        DatasetGraphTDB dsg = create();
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < 100 ; i++ )
+                dsg.add(SSE.parseQuad("(_ <s"+i+"> <p> "+i+")"));
+        });
+        StatsTDB stats1 = dsg.getStats().getPlanningStats();
+        add(dsg, "(_ <s1> <p> 1000)");
+        assertSame(stats1, dsg.getStats().getPlanningStats());
+        assertEquals(101L, (long)stats(dsg, StatsTDB::getCount));
+        // New predicate.
+        add(dsg, "(_ <s1> <q> 1000)");
+        StatsTDB stats2 = dsg.getStats().getPlanningStats();
+        assertNotSame(stats1, stats2);
+        assertEquals(102L, stats2.getCount());
+        // Total change more than a tenth, over several commits.
+        for ( int i = 0 ; i < 10 ; i++ )
+            add(dsg, "(_ <s"+i+"> <p> 'x')");
+        assertSame(stats2, dsg.getStats().getPlanningStats());
+        add(dsg, "(_ <s10> <p> 'x')");
+        assertNotSame(stats2, dsg.getStats().getPlanningStats());
+        assertEquals(113L, dsg.getStats().getPlanningStats().getCount());
+    }
+
+    @Test public void stats_incr_08() {
+        // Persistent.
+        String dir = ConfigTest.getCleanDir();
+        // Other tests may leave database directories here.
+        FileOps.clearAll(dir);
+        Location location = Location.create(dir);
+        DatasetGraphTDB dsg1 = TDB2StorageBuilder.build(location, params);
+        add(dsg1, "(_ <s1> <p> <o1>)", "(_ <s1> <q> <o2>)", "(_ <s2> <p> 3)");
+        String x1 = dsg1.getStats().getStats().toString();
+        dsg1.shutdown();
+
+        DatasetGraphTDB dsg2 = TDB2StorageBuilder.build(location, params);
+        assertTrue(dsg2.getStats().isInitialized());
+        assertEquals(x1, dsg2.getStats().getStats().toString());
+        assertEquals(3L, (long)stats(dsg2, StatsTDB::getCount));
+        dsg2.shutdown();
+    }
+
+    @Test public void stats_incr_09() {
+        DatasetGraphTDB dsg = create();
+        assertTrue(dsg.getReorderTransform() instanceof ReorderStatsTDB);
+        assertNull(TDB2StorageBuilder.build(Location.mem()).getStats());
+    }
+
+    @Test public void stats_incr_10() {
+        // Persistent, many commits: the file is snapshots and changes.
+        String dir = ConfigTest.getCleanDir();
+        FileOps.clearAll(dir);
+        Location location = Location.create(dir);
+        DatasetGraphTDB dsg1 = TDB2StorageBuilder.build(location, params);
+        // Enough commits for the file to be rewritten.
+        for ( int i = 0 ; i < 500 ; i++ ) {
+            add(dsg1, "(_ <s"+i+"> <p"+(i%7)+"> <o"+i+">)", "(<g> <s"+i+"> <q> "+i+")");
+            if ( i % 3 == 0 )
+                delete(dsg1, "(_ <s"+(i/2)+"> <p"+((i/2)%7)+"> <o"+(i/2)+">)");
+        }
+        String x1 = dsg1.getStats().getStats().toString();
+        NodeId q = id(dsg1, "<q>");
+        dsg1.shutdown();
+
+        DatasetGraphTDB dsg2 = TDB2StorageBuilder.build(location, params);
+        assertEquals(x1, dsg2.getStats().getStats().toString());
+        assertEquals(500L, (long)stats(dsg2, s->s.getCount(q)));
+        StatsTDB stats1 = dsg2.getStats().getStats();
+        Txn.executeWrite(dsg2, dsg2::rebuildStats);
+        assertEquals(stats1.toString(), dsg2.getStats().getStats().toString());
+        dsg2.shutdown();
+    }
+
+    @Test public void stats_incr_11() {
+        // Bulk loading, into empty and non-empty tables, in the caller's transaction.
+        DatasetGraphTDB dsg = create();
+        add(dsg, "(_ <s1> <p> <o1>)");
+        Txn.executeWrite(dsg, ()->{
+            DataLoader loader = LoaderFactory.sequentialLoader(dsg, MonitorOutputs.nullOutput());
+            loader.startBulk();
+            loader.stream().triple(SSE.parseTriple("(<s1> <q> <o2>)"));
+            loader.stream().triple(SSE.parseTriple("(<s2> <p> <o1>)"));
+            loader.stream().quad(SSE.parseQuad("(<g> <s1> <p> <o1>)"));
+            loader.finishBulk();
+        });
+        NodeId p = id(dsg, "<p>");
+        NodeId q = id(dsg, "<q>");
+        StatsTDB stats1 = dsg.getStats().getStats();
+        assertEquals(4L, stats1.getCount());
+        assertEquals(3L, stats1.getCount(p));
+        assertEquals(1L, stats1.getCharacteristicSetCount(Arrays.asList(p, q)));
+        Txn.executeWrite(dsg, dsg::rebuildStats);
+        assertEquals(stats1.toString(), dsg.getStats().getStats().toString());
+    }
+
+    @Test public void stats_incr_12() {
+        // The number of characteristic sets is limited.
+        DatasetGraphTDB dsg = create();
+        int N = StatsTDB.MaxCharacteristicSets + 10;
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < N ; i++ )
+                dsg.add(SSE.parseQuad("(_ <s"+i+"> <p"+i+"> <o>)"));
+            // The set (p0) has two subjects.
+            dsg.add(SSE.parseQuad("(_ <x> <p0> <o>)"));
+        });
+        int size = stats(dsg, StatsTDB::getCharacteristicSetsSize);
+        assertTrue(size <= StatsTDB.MaxCharacteristicSets);
+        NodeId p0 = id(dsg, "<p0>");
+        assertEquals(2L, (long)stats(dsg, s->s.getCharacteristicSetCount(Arrays.asList(p0))));
+        assertEquals(N+1L, (long)stats(dsg, StatsTDB::getCount));
+    }
+
+    @Test public void stats_incr_13() {
+        // A reader plans with statistics committed after it started,
+        // which include nodes that are not in its view of the node table.
+        // No node cache, which would hide the nodes the reader can not see.
+        StoreParams params2 = StoreParams.builder(params).node2NodeIdCacheSize(0).nodeId2NodeCacheSize(0).build();
+        DatasetGraphTDB dsg = TDB2StorageBuilder.build(Location.mem(), params2);
+        add(dsg, "(_ <s1> <p> <o1>)");
+        dsg.begin(ReadWrite.READ);
+        try {
+            Thread thread = new Thread(()->add(dsg, "(_ <s1> <q1> <o2>)", "(_ <s2> <q2> <o3>)"));
+            thread.start();
+            thread.join();
+            assertEquals(3L, dsg.getStats().getPlanningStats().getCount());
+            BasicPattern pattern = SSE.parseBGP("(bgp (?s <q1> ?o) (?s <q2> ?x) (?s <p> ?y))");
+            assertEquals(3, dsg.getReorderTransform().reorder(pattern).size());
+            assertFalse(dsg.find(null, null, SSE.parseNode("<q1>"), null).hasNext());
+        } catch (InterruptedException ex) {
+            fail("Interrupted");
+        } finally { dsg.end(); }
+    }
+
+    @Test public void stats_incr_14() {
+        // Histogram of inline numbers.
+        DatasetGraphTDB dsg = create();
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 1 ; i <= 100 ; i++ )
+                dsg.add(SSE.parseQuad("(_ <s"+i+"> <p> "+i+")"));
+            dsg.add(SSE.parseQuad("(_ <s1> <q> 'x')"));
+        });
+        NodeId p = id(dsg, "<p>");
+        NodeId q = id(dsg, "<q>");
+        StatsTDB stats = dsg.getStats().getStats();
+        assertEquals(100, stats.estimateRange(p, 0, 1000), 0.001);
+        assertEquals(0, stats.estimateRange(p, 1000, 2000), 0.001);
+        assertEquals(0, stats.estimateRange(p, -10, -1), 0.001);
+        double x = stats.estimateRange(p, 10, 20);
+        assertTrue(x > 5 && x < 20);
+        assertEquals(-1, stats.estimateRange(q, 0, 1000), 0);
+        // Deletes.
+        delete(dsg, "(_ <s1> <p> 1)", "(_ <s2> <p> 2)");
+        assertEquals(0, dsg.getStats().getStats().estimateRange(p, 0, 1.5), 0.001);
+        assertEquals(98, dsg.getStats().getStats().estimateRange(p, 0, 1000), 0.001);
+        // Rebuilt from the data.
+        double x1 = dsg.getStats().getStats().estimateRange(p, 10, 20);
+        Txn.executeWrite(dsg, dsg::rebuildStats);
+        assertEquals(x1, dsg.getStats().getStats().estimateRange(p, 10, 20), 0.001);
+    }
+
+    @Test public void stats_incr_15() {
+        // The reorder uses the histogram for a variable with numeric bounds.
+        DatasetGraphTDB dsg = create();
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < 1000 ; i++ )
+                dsg.add(SSE.parseQuad("(_ <s"+i+"> <p> "+i+")"));
+            for ( int i = 0 ; i < 100 ; i++ )
+                dsg.add(SSE.parseQuad("(_ <s"+i+"> <q> <o>)"));
+        });
+        ReorderStatsTDB reorder = (ReorderStatsTDB)dsg.getReorderTransform();
+        NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable();
+        BasicPattern pattern = SSE.parseBGP("(bgp (?s <q> <o>) (?s <p> ?v))");
+        Txn.executeRead(dsg, ()->{
+            assertEquals(pattern, reorder.reorderIndexes(pattern).reorder(pattern));
+            Map<Var, double[]> bounds = new HashMap<>();
+            bounds.put(Var.alloc("v"), new double[] {Double.NEGATIVE_INFINITY, 4});
+            BasicPattern pattern2 = reorder.reorderIndexes(pattern, bounds, nodeTable).reorder(pattern);
+            assertEquals(SSE.parseTriple("(?s <p> ?v)"), pattern2.get(0));
+            // Bounds on another variable.
+            bounds.clear();
+            bounds.put(Var.alloc("x"), new double[] {0, 4});
+            assertEquals(pattern, reorder.reorderIndexes(pattern, bounds, nodeTable).reorder(pattern));
+        });
+    }
+}
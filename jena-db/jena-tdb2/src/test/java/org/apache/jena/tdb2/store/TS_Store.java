@@ -22,6 +22,7 @@ import org.apache.jena.dboe.base.block.FileMode;
 import org.apache.jena.tdb2.store.value.TestDoubleNode62;
 import org.apache.jena.tdb2.store.value.TestFloatNode;
 import org.apache.jena.tdb2.store.value.TestNodeIdInline;
+import org.apache.jena.tdb2.store.value.TestNodeIdInlineCompare;
 import org.apache.jena.tdb2.sys.SystemTDB;
 import org.apache.jena.tdb2.sys.TestOps;
 import org.junit.AfterClass;
@@ -33,6 +34,7 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses( {
     TestNodeId.class
     , TestNodeIdInline.class
+    , TestNodeIdInlineCompare.class
     , TestDoubleNode62.class
     , TestFloatNode.class
     , TestTripleTable.class
@@ -52,6 +54,7 @@ import org.junit.runners.Suite;
     , TestTransPromoteTDB.class
     , TestQuadFilter.class
     , TestGraphView_Prefixes.class
+    , TestNodeIdRange.class
 } )
 public class TS_Store
 {
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.util.NodeFactoryExtra;
+import org.junit.Test;
+
+public class TestNodeIdRange
+{
+    @Test public void nodeId_range_int_01()     { test(">", "30", "31", true); }
+    @Test public void nodeId_range_int_02()     { test(">", "30", "30", false); }
+    @Test public void nodeId_range_int_03()     { test(">=", "30", "30", true); }
+    @Test public void nodeId_range_int_04()     { test("<", "30", "-5", true); }
+    @Test public void nodeId_range_int_05()     { test(">", "30", "-5", false); }
+    @Test public void nodeId_range_int_06()     { test(">", "-10", "-5", true); }
+    @Test public void nodeId_range_int_07()     { test(">", "-10", "5", true); }
+    @Test public void nodeId_range_int_08()     { test("<=", "-10", "-11", true); }
+    @Test public void nodeId_range_int_09()     { test("<=", "-10", "0", false); }
+    @Test public void nodeId_range_int_10()     { test(">", "30", "'31'^^xsd:byte", true); }
+    @Test public void nodeId_range_int_11()     { test(">", "30", "'29'^^xsd:unsignedLong", false); }
+    @Test public void nodeId_range_int_12()     { test(">", "30.5", "30", false); }
+    @Test public void nodeId_range_int_13()     { test(">", "30.5", "31", true); }
+    @Test public void nodeId_range_int_14()     { test("<", "1.0e1", "9", true); }
+    @Test public void nodeId_range_int_15()     { test("<", "1.0e1", "10", false); }
+    // Outside the range of inline integers.
+    @Test public void nodeId_range_int_16()     { test(">", "99999999999999999999", "30", false); }
+    @Test public void nodeId_range_int_17()     { test("<", "99999999999999999999", "30", true); }
+    @Test public void nodeId_range_int_18()     { test(">", "-99999999999999999999", "-30", true); }
+
+    // Other numbers are not limited by value.
+    @Test public void nodeId_range_number_01()  { test(">", "30", "1.5", true); }
+    @Test public void nodeId_range_number_02()  { test(">", "30", "1.5e0", true); }
+    @Test public void nodeId_range_number_03()  { test(">", "30", "'1.5'^^xsd:float", true); }
+    // In the node table.
+    @Test public void nodeId_range_number_04()  { test(">", "30", "99999999999999999999", true); }
+
+    // Values that do not compare with numbers.
+    @Test public void nodeId_range_other_01()   { test(">", "30", "'abc'", false); }
+    @Test public void nodeId_range_other_02()   { test(">", "30", "true", false); }
+    @Test public void nodeId_range_other_03()   { test(">", "30", "'2020-01-01'^^xsd:date", false); }
+    @Test public void nodeId_range_other_04()   { test(">", "30", "<http://example/x>", true); }
+
+    @Test public void nodeId_range_date_01()    { test(">", "'2020-01-01'^^xsd:date", "'2021-06-01'^^xsd:date", true); }
+    @Test public void nodeId_range_date_02()    { test(">", "'2020-01-01'^^xsd:date", "'2019-06-01'^^xsd:date", false); }
+    @Test public void nodeId_range_date_03()    { test(">", "'2020-01-01'^^xsd:date", "'2019-12-31+14:00'^^xsd:date", true); }
+    @Test public void nodeId_range_date_04()    { test("<", "'2020-01-01Z'^^xsd:date", "'2019-06-01-05:00'^^xsd:date", true); }
+    @Test public void nodeId_range_date_05()    { test(">", "'2020-01-01'^^xsd:date", "'2021-06-01T00:00:00'^^xsd:dateTime", false); }
+
+    @Test public void nodeId_range_dateTime_01() { test(">=", "'2020-01-01T12:00:00Z'^^xsd:dateTime", "'2020-01-01T12:00:00Z'^^xsd:dateTime", true); }
+    @Test public void nodeId_range_dateTime_02() { test(">=", "'2020-01-01T12:00:00Z'^^xsd:dateTime", "'2010-01-01T12:00:00+01:00'^^xsd:dateTime", false); }
+    @Test public void nodeId_range_dateTime_03() { test("<", "'2020-01-01T12:00:00Z'^^xsd:dateTime", "'2010-01-01T12:00:00'^^xsd:dateTime", true); }
+    @Test public void nodeId_range_dateTime_04() { test("<", "'2020-01-01T12:00:00Z'^^xsd:dateTime", "'2030-01-01T12:00:00'^^xsd:dateTime", false); }
+    @Test public void nodeId_range_dateTime_05() { test(">", "'2020-01-01T12:00:00Z'^^xsd:dateTime", "'2020-01-02T00:00:00Z'^^xsd:dateTimeStamp", true); }
+    @Test public void nodeId_range_dateTime_06() { test(">", "'2020-01-01T12:00:00Z'^^xsd:dateTime", "'2020-01-02'^^xsd:date", false); }
+
+    // No range.
+    @Test public void nodeId_range_none_01()    { assertNull(NodeIdRange.lowerBound(NodeValue.makeString("abc"), true)); }
+    @Test public void nodeId_range_none_02()    { assertNull(NodeIdRange.upperBound(NodeValue.makeBoolean(true), true)); }
+
+    @Test public void nodeId_range_intersect_01() {
+        NodeIdRange range = range(">", "10").intersect(range("<", "20"));
+        assertTrue(contains(range, "15"));
+        assertTrue(contains(range, "'15'^^xsd:int"));
+        assertTrue( ! contains(range, "5"));
+        assertTrue( ! contains(range, "25"));
+        assertTrue( ! contains(range, "-15"));
+        assertTrue(contains(range, "15.5"));
+    }
+
+    @Test public void nodeId_range_intersect_02() {
+        NodeIdRange range = range(">", "20").intersect(range("<", "10"));
+        assertTrue( ! contains(range, "15"));
+        // Node table entries are always included.
+        assertTrue(contains(range, "99999999999999999999"));
+    }
+
+    @Test public void nodeId_range_find_01() {
+        NodeIdRange range = range(">", "-10");
+        // Non-negative then negative integers, for each integer type, then decimals, floats and doubles.
+        int i = range.find(nodeId("-5"), 0);
+        assertTrue(i >= 0);
+        assertTrue(range.find(nodeId("5"), 0) < i);
+        assertTrue(range.find(nodeId("-20"), 0) < 0);
+        assertEquals(-(range.size()+1), range.find(nodeId("-20"), range.size()));
+    }
+
+    // The range must include every NodeId that satisfies the comparison.
+    @Test public void nodeId_range_all_01() {
+        String[] values = {
+            "-100", "-1", "0", "1", "7", "100", "'5'^^xsd:int", "'-3'^^xsd:short", "'200'^^xsd:unsignedByte",
+            "99999999999999999999", "-99999999999999999999",
+            "1.5", "-1.5", "7.0", "1.0e0", "-7.5e2", "'2.5'^^xsd:float", "'NaN'^^xsd:double", "'INF'^^xsd:double",
+            "'2019-12-31'^^xsd:date", "'2020-01-01'^^xsd:date", "'2020-01-02+13:00'^^xsd:date", "'2019-12-31-12:00'^^xsd:date",
+            "'2020-01-01T00:00:00Z'^^xsd:dateTime", "'2019-12-31T23:00:00-05:00'^^xsd:dateTime",
+            "'2020-01-01T10:00:00'^^xsd:dateTime", "'2020-01-01T10:00:00+14:00'^^xsd:dateTime",
+            "'2020-01-01T00:00:00Z'^^xsd:dateTimeStamp", "'abc'", "true"
+        };
+        String[] ops = { "<", "<=", ">", ">=" };
+        for ( String bound : values ) {
+            for ( String op : ops ) {
+                NodeIdRange range = range(op, bound);
+                if ( range == null )
+                    continue;
+                for ( String value : values ) {
+                    if ( compare(op, value, bound) )
+                        assertTrue(value+" "+op+" "+bound, contains(range, value));
+                }
+            }
+        }
+    }
+
+    private static void test(String op, String bound, String value, boolean expected) {
+        NodeIdRange range = range(op, bound);
+        assertEquals(value+" "+op+" "+bound, expected, contains(range, value));
+        // Consistent with the comparison.
+        if ( compare(op, value, bound) )
+            assertTrue(contains(range, value));
+    }
+
+    private static NodeIdRange range(String op, String bound) {
+        NodeValue nv = NodeValue.makeNode(NodeFactoryExtra.parseNode(bound));
+        switch (op) {
+            case "<" :  return NodeIdRange.upperBound(nv, false);
+            case "<=" : return NodeIdRange.upperBound(nv, true);
+            case ">" :  return NodeIdRange.lowerBound(nv, false);
+            case ">=" : return NodeIdRange.lowerBound(nv, true);
+        }
+        throw new IllegalArgumentException(op);
+    }
+
+    private static boolean compare(String op, String value, String bound) {
+        NodeValue nv1 = NodeValue.makeNode(NodeFactoryExtra.parseNode(value));
+        NodeValue nv2 = NodeValue.makeNode(NodeFactoryExtra.parseNode(bound));
+        try {
+            int x = NodeValue.compare(nv1, nv2);
+            switch (op) {
+                case "<" :  return x == Expr.CMP_LESS;
+                case "<=" : return x == Expr.CMP_LESS || x == Expr.CMP_EQUAL;
+                case ">" :  return x == Expr.CMP_GREATER;
+                case ">=" : return x == Expr.CMP_GREATER || x == Expr.CMP_EQUAL;
+            }
+        } catch (ExprEvalException ex) {}
+        return false;
+    }
+
+    private static boolean contains(NodeIdRange range, String value) {
+        return range.contains(nodeId(value));
+    }
+
+    // Inline if possible, else a node table NodeId.
+    private static NodeId nodeId(String value) {
+        Node n = NodeFactoryExtra.parseNode(value);
+        NodeId nodeId = NodeIdInline.inline(n, NodeIdInline.FORMAT_V2);
+        return nodeId != null ? nodeId : NodeIdFactory.createPtr(99);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.dboe.base.file.BufferChannel;
+import org.apache.jena.dboe.base.file.FileFactory;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.sys.Names;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.lib.NodeLib;
+import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.TDB2StorageBuilder;
+import org.junit.Test;
+
+public class TestNodeTableBloomFilter {
+
+    private static StoreParams paramsFilter = StoreParams.builder().nodeBloomFilter(true).build();
+    private static StoreParams paramsNoFilter = StoreParams.builder().nodeBloomFilter(false).build();
+
+    private static byte[] hash(int i) {
+        return NodeLib.hash(NodeFactory.createURI("http://example/n"+i)).getBytes();
+    }
+
+    @Test public void bloom_filter_01() {
+        NodeTableBloomFilter filter = new NodeTableBloomFilter(FileFactory.createBufferChannelMem());
+        assertFalse(filter.isInitialized());
+        assertFalse(filter.load(0));
+        filter.reset(0);
+        assertTrue(filter.isInitialized());
+        for ( int i = 0 ; i < 10_000 ; i++ )
+            filter.add(hash(i));
+        for ( int i = 0 ; i < 10_000 ; i++ )
+            assertTrue(filter.mightContain(hash(i)));
+        int falsePositives = 0;
+        for ( int i = 10_000 ; i < 20_000 ; i++ ) {
+            if ( filter.mightContain(hash(i)) )
+                falsePositives++;
+        }
+        // Sized for more nodes than this so should be well under 1%.
+        assertTrue("False positives: "+falsePositives, falsePositives < 100);
+    }
+
+    @Test public void bloom_filter_02() {
+        BufferChannel file = FileFactory.createBufferChannelMem();
+        NodeTableBloomFilter filter1 = new NodeTableBloomFilter(file);
+        filter1.reset(100);
+        for ( int i = 0 ; i < 1000 ; i++ )
+            filter1.add(hash(i));
+        filter1.save();
+        filter1.add(hash(5000));
+        filter1.covers(200);
+        filter1.save();
+
+        NodeTableBloomFilter filter2 = new NodeTableBloomFilter(file);
+        // Node data file has changed since the filter was saved.
+        assertFalse(filter2.load(201));
+        assertTrue(filter2.load(200));
+        assertEquals(200, filter2.covered());
+        for ( int i = 0 ; i < 1000 ; i++ )
+            assertTrue(filter2.mightContain(hash(i)));
+        assertTrue(filter2.mightContain(hash(5000)));
+    }
+
+    @Test public void bloom_filter_03() {
+        DatasetGraphTDB dsg = TDB2StorageBuilder.build(Location.mem(), paramsFilter);
+        add(dsg, 0, 1000);
+        add(dsg, 500, 1500);
+        Txn.executeRead(dsg, ()->assertEquals(1500, dsg.getDefaultGraph().size()));
+        NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable();
+        Txn.executeRead(dsg, ()->{
+            assertNotEquals(NodeId.NodeDoesNotExist, nodeTable.getNodeIdForNode(subject(10)));
+            assertEquals(NodeId.NodeDoesNotExist, nodeTable.getNodeIdForNode(subject(10_000)));
+        });
+    }
+
+    @Test public void bloom_filter_04() {
+        // Nodes from an aborted transaction.
+        DatasetGraphTDB dsg = TDB2StorageBuilder.build(Location.mem(), paramsFilter);
+        add(dsg, 0, 100);
+        dsg.begin();
+        dsg.add(quad(100));
+        dsg.add(quad(101));
+        dsg.abort();
+        dsg.end();
+        add(dsg, 50, 200);
+        Txn.executeRead(dsg, ()->assertEquals(200, dsg.getDefaultGraph().size()));
+    }
+
+    @Test public void bloom_filter_05() {
+        // Persistent.
+        Location location = Location.create(ConfigTest.getCleanDir());
+        DatasetGraphTDB dsg1 = TDB2StorageBuilder.build(location, paramsFilter);
+        add(dsg1, 0, 100);
+        dsg1.shutdown();
+        assertTrue(location.exists(Names.nodeTableBaseName+"."+Names.extNodeBloom));
+
+        DatasetGraphTDB dsg2 = TDB2StorageBuilder.build(location, paramsFilter);
+        add(dsg2, 50, 150);
+        Txn.executeRead(dsg2, ()->assertEquals(150, dsg2.getDefaultGraph().size()));
+        dsg2.shutdown();
+    }
+
+    @Test public void bloom_filter_06() {
+        // Nodes added while the filter was not in use.
+        Location location = Location.create(ConfigTest.getCleanDir());
+        DatasetGraphTDB dsg1 = TDB2StorageBuilder.build(location, paramsFilter);
+        add(dsg1, 0, 100);
+        dsg1.shutdown();
+
+        DatasetGraphTDB dsg2 = TDB2StorageBuilder.build(location, paramsNoFilter);
+        add(dsg2, 100, 200);
+        dsg2.shutdown();
+
+        DatasetGraphTDB dsg3 = TDB2StorageBuilder.build(location, paramsFilter);
+        add(dsg3, 0, 300);
+        Txn.executeRead(dsg3, ()->assertEquals(300, dsg3.getDefaultGraph().size()));
+        dsg3.shutdown();
+    }
+
+    @Test public void bloom_filter_07() {
+        // More nodes than the filter is sized for.
+        NodeTableBloomFilter filter = new NodeTableBloomFilter(FileFactory.createBufferChannelMem());
+        filter.reset(0);
+        int N = 70_000;
+        for ( int i = 0 ; i < N ; i++ )
+            filter.add(hash(i));
+        assertTrue(filter.isFull());
+        assertTrue(filter.mightContain(hash(1_000_000)));
+
+        List<byte[]> hashes = new ArrayList<>();
+        for ( int i = 0 ; i < N ; i++ )
+            hashes.add(hash(i));
+        filter.rebuild(0, hashes.iterator());
+        assertFalse(filter.isFull());
+        for ( int i = 0 ; i < N ; i++ )
+            assertTrue(filter.mightContain(hash(i)));
+        int falsePositives = 0;
+        for ( int i = N ; i < N+10_000 ; i++ ) {
+            if ( filter.mightContain(hash(i)) )
+                falsePositives++;
+        }
+        assertTrue("False positives: "+falsePositives, falsePositives < 100);
+    }
+
+    @Test public void bloom_filter_08() {
+        // The node table grows the filter.
+        DatasetGraphTDB dsg = TDB2StorageBuilder.build(Location.mem(), paramsFilter);
+        add(dsg, 0, 40_000);
+        NodeTableBloomFilter filter = filter(dsg);
+        assertFalse(filter.isFull());
+        NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable();
+        Txn.executeRead(dsg, ()->{
+            assertNotEquals(NodeId.NodeDoesNotExist, nodeTable.getNodeIdForNode(subject(39_999)));
+            assertEquals(NodeId.NodeDoesNotExist, nodeTable.getNodeIdForNode(subject(50_000)));
+        });
+    }
+
+    @Test public void bloom_filter_09() {
+        // Coverage goes back after an abort.
+        DatasetGraphTDB dsg = TDB2StorageBuilder.build(Location.mem(), paramsFilter);
+        add(dsg, 0, 100);
+        NodeTableBloomFilter filter = filter(dsg);
+        long covered = filter.covered();
+        dsg.begin();
+        dsg.add(quad(100));
+        assertTrue(filter.covered() > covered);
+        dsg.abort();
+        dsg.end();
+        assertEquals(covered, filter.covered());
+        add(dsg, 100, 110);
+        assertTrue(filter.covered() > covered);
+        Txn.executeRead(dsg, ()->assertEquals(110, dsg.getDefaultGraph().size()));
+    }
+
+    private static NodeTableBloomFilter filter(DatasetGraphTDB dsg) {
+        NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable().baseNodeTable();
+        return ((NodeTableNative)nodeTable).getFilter();
+    }
+
+    private static Node subject(int i) {
+        return NodeFactory.createURI("http://example/s"+i);
+    }
+
+    private static Quad quad(int i) {
+        return Quad.create(Quad.defaultGraphIRI, subject(i), NodeFactory.createURI("http://example/p"), NodeFactory.createLiteral("o"+i));
+    }
+
+    // Add quads i, start <= i < finish.
+    private static void add(DatasetGraphTDB dsg, int start, int finish) {
+        List<Quad> quads = new ArrayList<>();
+        for ( int i = start ; i < finish ; i++ )
+            quads.add(quad(i));
+        Txn.executeWrite(dsg, ()->quads.forEach(dsg::add));
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.jena.tdb2.store.tupletable;
 import static org.apache.jena.atlas.lib.tuple.TupleFactory.tuple;
 import static org.apache.jena.tdb2.store.tupletable.NData.*;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -29,12 +30,16 @@ import static org.junit.Assert.*;
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.lib.tuple.TupleMap;
 import org.apache.jena.dboe.base.file.FileSet;
+import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordFactory;
 import org.apache.jena.dboe.index.IndexParams;
 import org.apache.jena.dboe.index.RangeIndex;
 import org.apache.jena.tdb2.junit.BuildTestLib;
 import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.sparql.expr.NodeValue;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.NodeIdRange;
 import org.apache.jena.tdb2.sys.SystemTDB;
 import org.junit.Test;
 
@@ -311,5 +316,46 @@ public class TestTupleIndexRecordDirect
         assertFalse(iter.hasNext());
    }
 
+    // A NodeId with all bits set in the encoding (an inline double).
+    static NodeId nMax = NodeIdFactory.get(new byte[] {-1, -1, -1, -1, -1, -1, -1, -1});
 
+    static NodeIdRange rangeAll = NodeIdRange.lowerBound(NodeValue.makeInteger(0), true);
+
+    @Test public void prefixEnd_1()
+    {
+        byte[] prefix = new byte[2*SystemTDB.SizeOfNodeId];
+        prefix[7] = 1;
+        Arrays.fill(prefix, 8, 16, (byte)0xFF);
+        Record r = TupleIndexRecord.prefixEnd(factory, prefix, prefix.length);
+        byte[] expected = new byte[factory.keyLength()];
+        expected[7] = 2;
+        assertArrayEquals(expected, r.getKey());
+    }
+
+    @Test public void prefixEnd_2()
+    {
+        byte[] prefix = new byte[SystemTDB.SizeOfNodeId];
+        Arrays.fill(prefix, (byte)0xFF);
+        assertNull(TupleIndexRecord.prefixEnd(factory, prefix, prefix.length));
+        assertNull(TupleIndexRecord.prefixEnd(factory, prefix, 0));
+    }
+
+    @Test public void findRange_1()
+    {
+        TupleIndexRecord index = create("SPO");
+        add(index, nMax, n2, n3);
+        add(index, nMax, n4, n5);
+        Iterator<Tuple<NodeId>> iter = index.findRange(tuple(nMax, NodeId.NodeIdAny, NodeId.NodeIdAny), 1, rangeAll);
+        assertEquals(2, Iter.count(iter));
+    }
+
+    @Test public void findRange_2()
+    {
+        TupleIndexRecord index = create("SPO");
+        add(index, n1, nMax, n3);
+        add(index, n1, nMax, n4);
+        add(index, n2, nMax, n3);
+        Iterator<Tuple<NodeId>> iter = index.findRange(tuple(n1, nMax, NodeId.NodeIdAny), 2, rangeAll);
+        assertEquals(2, Iter.count(iter));
+    }
 }
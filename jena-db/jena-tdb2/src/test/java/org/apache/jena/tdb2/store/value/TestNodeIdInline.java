@@ -25,6 +25,7 @@ import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.sparql.expr.NodeValue;
 import org.apache.jena.sparql.util.NodeFactoryExtra;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdInline;
 import org.junit.Test;
 
 public class TestNodeIdInline
@@ -275,6 +276,133 @@ public class TestNodeIdInline
     @Test public void nodeId_float_11()
     { test("'NaN'^^xsd:float"); }
 
+    // Inline format 2.
+
+    @Test public void nodeId_v2_string_1()
+    { testNoInline("'abc'"); test2("'abc'"); }
+
+    @Test public void nodeId_v2_string_2()
+    { test2("''"); }
+
+    @Test public void nodeId_v2_string_3()
+    { test2("'1234567'"); }
+
+    @Test public void nodeId_v2_string_4()
+    { testNoInline2("'12345678'"); }
+
+    @Test public void nodeId_v2_string_5()
+    { test2("'abc'^^xsd:string", "'abc'"); }
+
+    // 3 bytes, 2 bytes and 2 bytes of UTF-8.
+    @Test public void nodeId_v2_string_6()
+    { test2("'\u20ACé\u00FF'"); }
+
+    @Test public void nodeId_v2_string_7()
+    { testNoInline2("'\u20AC\u20AC\u20AC'"); }
+
+    // Supplementary character: 4 bytes of UTF-8.
+    @Test public void nodeId_v2_string_8()
+    { test2("'a\\U0001F600'"); }
+
+    @Test public void nodeId_v2_string_9() {
+        Node n = NodeFactory.createLiteral("a\u0000b");
+        assertNull(NodeId.inline(n, NodeIdInline.FORMAT_V2));
+    }
+
+    @Test public void nodeId_v2_langstring_1()
+    { testNoInline("'abc'@en"); test2("'abc'@en"); }
+
+    @Test public void nodeId_v2_langstring_2()
+    { test2("'12345'@de"); }
+
+    @Test public void nodeId_v2_langstring_3()
+    { testNoInline2("'123456'@de"); }
+
+    @Test public void nodeId_v2_langstring_4()
+    { testNoInline2("'abc'@en-GB"); }
+
+    @Test public void nodeId_v2_langstring_5()
+    { testNoInline2("'abc'@EN"); }
+
+    @Test public void nodeId_v2_langstring_6()
+    { test2("''@fr"); }
+
+    @Test public void nodeId_v2_time_1()
+    { testNoInline("'12:34:56'^^xsd:time"); test2("'12:34:56'^^xsd:time"); }
+
+    @Test public void nodeId_v2_time_2()
+    { test2("'00:00:00Z'^^xsd:time"); }
+
+    @Test public void nodeId_v2_time_3()
+    { test2("'23:59:59.123-05:00'^^xsd:time"); }
+
+    @Test public void nodeId_v2_time_4()
+    { test2("'10:00:00.50'^^xsd:time", "'10:00:00.5'^^xsd:time"); }
+
+    @Test public void nodeId_v2_time_5()
+    { testNoInline2("'10:00:00.0001'^^xsd:time"); }
+
+    @Test public void nodeId_v2_time_6()
+    { testNoInline2("'12:00'^^xsd:time"); }
+
+    @Test public void nodeId_v2_gYear_1()
+    { testNoInline("'2021'^^xsd:gYear"); test2("'2021'^^xsd:gYear"); }
+
+    @Test public void nodeId_v2_gYear_2()
+    { test2("'0099Z'^^xsd:gYear"); }
+
+    @Test public void nodeId_v2_gYear_3()
+    { test2("'1999+01:00'^^xsd:gYear"); }
+
+    @Test public void nodeId_v2_gYear_4()
+    { testNoInline2("'-0044'^^xsd:gYear"); }
+
+    @Test public void nodeId_v2_gYear_5()
+    { testNoInline2("'12345'^^xsd:gYear"); }
+
+    @Test public void nodeId_v2_duration_1()
+    { testNoInline("'P1Y2M'^^xsd:duration"); test2("'P1Y2M'^^xsd:duration"); }
+
+    @Test public void nodeId_v2_duration_2()
+    { test2("'P14M'^^xsd:duration", "'P1Y2M'^^xsd:duration"); }
+
+    @Test public void nodeId_v2_duration_3()
+    { test2("'P1DT2H3M4.5S'^^xsd:duration"); }
+
+    @Test public void nodeId_v2_duration_4()
+    { test2("'PT36H'^^xsd:duration", "'P1DT12H'^^xsd:duration"); }
+
+    @Test public void nodeId_v2_duration_5()
+    { test2("'-P3D'^^xsd:duration"); }
+
+    @Test public void nodeId_v2_duration_6()
+    { test2("'PT0S'^^xsd:duration"); }
+
+    @Test public void nodeId_v2_duration_7()
+    { test2("'-P0D'^^xsd:duration", "'PT0S'^^xsd:duration"); }
+
+    @Test public void nodeId_v2_duration_8()
+    { test2("'PT0.05S'^^xsd:duration"); }
+
+    @Test public void nodeId_v2_duration_9()
+    { testNoInline2("'PT0.0001S'^^xsd:duration"); }
+
+    @Test public void nodeId_v2_duration_10()
+    { testNoInline2("'P5000Y'^^xsd:duration"); }
+
+    @Test public void nodeId_v2_duration_11()
+    { testNoInline2("'P20000D'^^xsd:duration"); }
+
+    // Format 1 values are the same in format 2.
+    @Test public void nodeId_v2_int_1()
+    { test2("123"); }
+
+    @Test public void nodeId_v2_date_1()
+    { test2("'2021-01-01'^^xsd:date"); }
+
+    @Test public void nodeId_v2_uri_1()
+    { testNoInline2("<http://example/abc>"); }
+
     private void test(String x) { test(x, x); }
 
     private void test(String x, String expected) {
@@ -287,12 +415,28 @@ public class TestNodeIdInline
         assertNull("Converted NodeId but expected no inline form: "+x, nodeId);
     }
 
+    private void test2(String x) { test2(x, x); }
+
+    private void test2(String x, String expected) {
+        test(x, NodeFactoryExtra.parseNode(expected), NodeIdInline.FORMAT_V2);
+    }
+
+    private void testNoInline2(String x) {
+        Node n = NodeFactoryExtra.parseNode(x);
+        NodeId nodeId = NodeId.inline(n, NodeIdInline.FORMAT_V2);
+        assertNull("Converted NodeId but expected no inline form: "+x, nodeId);
+    }
+
     private void test(String x, Node correct) {
+        test(x, correct, NodeIdInline.FORMAT_V1);
+    }
+
+    private void test(String x, Node correct, int format) {
         Node n = NodeFactoryExtra.parseNode(x);
-        NodeId nodeId = NodeId.inline(n);
+        NodeId nodeId = NodeId.inline(n, format);
         assertNotNull("Expected inlining: "+x, nodeId);
 
-        boolean b = NodeId.hasInlineDatatype(n);
+        boolean b = NodeIdInline.hasInlineDatatype(n, format);
         assertTrue("Converted NodeId but datatype test was false", b);
         Node n2 = NodeId.extract(nodeId);
         assertNotNull("Expected recovery", n2);
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.value;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.util.NodeFactoryExtra;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.NodeIdInline;
+import org.junit.Test;
+
+public class TestNodeIdInlineCompare
+{
+    private static final int LT = Expr.CMP_LESS;
+    private static final int EQ = Expr.CMP_EQUAL;
+    private static final int GT = Expr.CMP_GREATER;
+    private static final int NONE = Expr.CMP_INDETERMINATE;
+
+    @Test public void nodeId_compare_int_01()   { test("1", "2", LT); }
+    @Test public void nodeId_compare_int_02()   { test("2", "1", GT); }
+    @Test public void nodeId_compare_int_03()   { test("-5", "3", LT); }
+    @Test public void nodeId_compare_int_04()   { test("7", "7", EQ); }
+    @Test public void nodeId_compare_int_05()   { test("'3'^^xsd:int", "4", LT); }
+    // Same value, different terms: order is by term.
+    @Test public void nodeId_compare_int_06()   { test("'3'^^xsd:int", "3", NONE); }
+
+    @Test public void nodeId_compare_decimal_01()   { test("1.5", "2.5", LT); }
+    @Test public void nodeId_compare_decimal_02()   { test("-1.5", "-2.5", GT); }
+    @Test public void nodeId_compare_decimal_03()   { test("1.5", "1", GT); }
+    @Test public void nodeId_compare_decimal_04()   { test("1", "1.5", LT); }
+    @Test public void nodeId_compare_decimal_05()   { test("1.0", "1", NONE); }
+
+    @Test public void nodeId_compare_double_01()   { test("1.0e0", "2.0e0", LT); }
+    @Test public void nodeId_compare_double_02()   { test("-1.0e0", "-2.0e0", GT); }
+    @Test public void nodeId_compare_double_03()   { test("'NaN'^^xsd:double", "1.0e0", NONE); }
+    // Different kinds of number.
+    @Test public void nodeId_compare_double_04()   { test("1.0e0", "2", NONE); }
+
+    @Test public void nodeId_compare_float_01()   { test("'1.5'^^xsd:float", "'2.5'^^xsd:float", LT); }
+
+    @Test public void nodeId_compare_boolean_01()   { test("false", "true", LT); }
+    @Test public void nodeId_compare_boolean_02()   { test("true", "false", GT); }
+
+    @Test public void nodeId_compare_datetime_01()
+    { test("'2021-01-01T00:00:00Z'^^xsd:dateTime", "'2021-01-01T00:00:01Z'^^xsd:dateTime", LT); }
+
+    @Test public void nodeId_compare_datetime_02()
+    { test("'2021-02-01T00:00:00'^^xsd:dateTime", "'2021-01-31T23:59:59.999'^^xsd:dateTime", GT); }
+
+    @Test public void nodeId_compare_datetime_03()
+    { test("'2021-01-01T10:00:00+01:00'^^xsd:dateTime", "'2021-01-01T09:00:00+01:00'^^xsd:dateTime", GT); }
+
+    // Different timezones
+    @Test public void nodeId_compare_datetime_04()
+    { test("'2021-01-01T10:00:00+01:00'^^xsd:dateTime", "'2021-01-01T10:00:00Z'^^xsd:dateTime", NONE); }
+
+    @Test public void nodeId_compare_datetime_05()
+    { test("'2021-01-01T10:00:00'^^xsd:dateTime", "'2021-01-01T10:00:00Z'^^xsd:dateTime", NONE); }
+
+    @Test public void nodeId_compare_date_01()
+    { test("'2020-12-31'^^xsd:date", "'2021-01-01'^^xsd:date", LT); }
+
+    @Test public void nodeId_compare_date_02()
+    { test("'2020-12-31'^^xsd:date", "'2020-12-31T00:00:00'^^xsd:dateTime", NONE); }
+
+    @Test public void nodeId_compare_mixed_01()   { test("1", "true", NONE); }
+
+    // Inline format 2
+
+    @Test public void nodeId_compare_string_01()   { test2("'abc'", "'abd'", LT); }
+    @Test public void nodeId_compare_string_02()   { test2("'abc'", "'ab'", GT); }
+    @Test public void nodeId_compare_string_03()   { test2("''", "'a'", LT); }
+    @Test public void nodeId_compare_string_04()   { test2("'Z'", "'a'", LT); }
+    @Test public void nodeId_compare_string_05()   { test2("'é'", "'z'", GT); }
+    // UTF-8 byte order is not Java string order.
+    @Test public void nodeId_compare_string_06()   { test2("'\uFF21'", "'\\U0001F600'", NONE); }
+
+    @Test public void nodeId_compare_langstring_01()   { test2("'abc'@en", "'abd'@en", LT); }
+    // By language tag first.
+    @Test public void nodeId_compare_langstring_02()   { test2("'b'@de", "'a'@en", LT); }
+    @Test public void nodeId_compare_langstring_03()   { test2("'a'@en", "'a'", NONE); }
+
+    @Test public void nodeId_compare_time_01()
+    { test2("'10:00:00'^^xsd:time", "'10:00:00.001'^^xsd:time", LT); }
+
+    @Test public void nodeId_compare_time_02()
+    { test2("'23:00:00Z'^^xsd:time", "'01:00:00Z'^^xsd:time", GT); }
+
+    @Test public void nodeId_compare_time_03()
+    { test2("'10:00:00Z'^^xsd:time", "'10:00:00'^^xsd:time", NONE); }
+
+    @Test public void nodeId_compare_gYear_01()
+    { test2("'1999'^^xsd:gYear", "'2000'^^xsd:gYear", LT); }
+
+    @Test public void nodeId_compare_duration_01()
+    { test2("'P1Y'^^xsd:duration", "'P1Y1M'^^xsd:duration", LT); }
+
+    @Test public void nodeId_compare_duration_02()
+    { test2("'P1D'^^xsd:duration", "'PT23H'^^xsd:duration", GT); }
+
+    @Test public void nodeId_compare_duration_03()
+    { test2("'-P1D'^^xsd:duration", "'PT1S'^^xsd:duration", LT); }
+
+    // Partial order.
+    @Test public void nodeId_compare_duration_04()
+    { test2("'P1M'^^xsd:duration", "'P30D'^^xsd:duration", NONE); }
+
+    @Test public void nodeId_compare_mixed_02()   { test2("'1'", "1", NONE); }
+
+    @Test public void nodeId_compare_ptr_01() {
+        NodeId id1 = NodeIdFactory.createPtr(1);
+        NodeId id2 = NodeIdFactory.createPtr(2);
+        assertEquals(NONE, NodeIdInline.compareInline(id1, id2));
+        assertEquals(EQ, NodeIdInline.compareInline(id1, NodeIdFactory.createPtr(1)));
+        assertEquals(NONE, NodeIdInline.compareInline(id1, inline("1")));
+    }
+
+    private static NodeId inline(String x) {
+        return inline(x, NodeIdInline.FORMAT_V1);
+    }
+
+    private static NodeId inline(String x, int format) {
+        Node n = NodeFactoryExtra.parseNode(x);
+        NodeId nodeId = NodeId.inline(n, format);
+        assertNotNull("Expected inlining: "+x, nodeId);
+        return nodeId;
+    }
+
+    private static void test(String x1, String x2, int expected) {
+        test(x1, x2, expected, NodeIdInline.FORMAT_V1);
+    }
+
+    private static void test2(String x1, String x2, int expected) {
+        test(x1, x2, expected, NodeIdInline.FORMAT_V2);
+    }
+
+    private static void test(String x1, String x2, int expected, int format) {
+        NodeId id1 = inline(x1, format);
+        NodeId id2 = inline(x2, format);
+        int x = NodeIdInline.compareInline(id1, id2);
+        assertEquals("compareInline("+x1+", "+x2+")", expected, x);
+        if ( x == NONE )
+            return;
+        // Same order as the general comparison.
+        NodeValue nv1 = NodeValue.makeNode(NodeId.extract(id1));
+        NodeValue nv2 = NodeValue.makeNode(NodeId.extract(id2));
+        assertEquals("NodeValue.compareAlways("+x1+", "+x2+")", expected, Integer.signum(NodeValue.compareAlways(nv1, nv2)));
+    }
+}
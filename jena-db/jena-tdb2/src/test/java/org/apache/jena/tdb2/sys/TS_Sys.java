@@ -27,6 +27,7 @@ import org.junit.runners.Suite;
     TestDatabaseOps.class
     , TestDatabaseConnection.class
     , TestSys.class
+    , TestExportTDB.class
     //, TestOps.class
 })
 
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.jena.atlas.io.IOX;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.TDBException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestExportTDB {
+
+    private DatasetGraph dsg;
+    private Path dir;
+
+    @Before public void before() throws IOException {
+        dsg = DatabaseMgr.createDatasetGraph();
+        dir = Files.createTempDirectory("tdb2-export-test");
+        Txn.executeWrite(dsg, ()->{
+            Node b = NodeFactory.createBlankNode();
+            for ( int i = 0 ; i < 3000 ; i++ ) {
+                Node s = NodeFactory.createURI("http://example/s"+i);
+                Node p = NodeFactory.createURI("http://example/p"+(i%7));
+                Node g = NodeFactory.createURI("http://example/g"+(i%3));
+                dsg.add(Quad.defaultGraphIRI, s, p, NodeFactory.createLiteral("v"+i));
+                dsg.add(g, s, p, b);
+                dsg.add(g, b, p, s);
+            }
+            dsg.prefixes().add("ex", "http://example/");
+        });
+    }
+
+    @After public void after() {
+        IOX.deleteAll(dir);
+    }
+
+    @Test public void export_01() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportTDB.create(dsg).threads(3).ranges(5).write(out);
+        check(List.of(out.toByteArray()));
+        // Same output as one range.
+        ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+        ExportTDB.create(dsg).threads(1).ranges(1).write(out1);
+        assertEquals(out1.toString(), out.toString());
+    }
+
+    @Test public void export_02() {
+        // Default settings. Same triples and quads as a single-threaded dump.
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportTDB.create(dsg).write(out);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Txn.executeRead(dsg, ()->RDFDataMgr.write(expected, dsg, Lang.NQUADS));
+        assertEquals(lines(expected), lines(out));
+    }
+
+    @Test public void export_03() throws IOException {
+        List<Path> shards = ExportTDB.create(dsg).threads(4).ranges(10).compress(true).writeShards(dir, "data");
+        assertTrue(shards.size() > 2);
+        byte[][] contents = new byte[shards.size()][];
+        for ( int i = 0 ; i < shards.size() ; i++ ) {
+            assertTrue(shards.get(i).getFileName().toString().endsWith(".nq.gz"));
+            try ( InputStream in = new GZIPInputStream(Files.newInputStream(shards.get(i))) ) {
+                contents[i] = in.readAllBytes();
+            }
+        }
+        check(List.of(contents));
+    }
+
+    @Test(expected=TDBException.class)
+    public void export_04() {
+        Txn.executeRead(dsg, ()->ExportTDB.create(dsg).write(new ByteArrayOutputStream()));
+    }
+
+    private static Set<String> lines(ByteArrayOutputStream out) {
+        return new HashSet<>(List.of(out.toString().split("\n")));
+    }
+
+    private void check(List<byte[]> parts) {
+        // One parse: blank node labels are shared across the parts.
+        StringBuilder sb = new StringBuilder();
+        for ( byte[] part : parts )
+            sb.append(new String(part));
+        DatasetGraph dsg2 = DatasetGraphFactory.createTxnMem();
+        RDFParser.fromString(sb.toString()).lang(Lang.NQUADS).parse(dsg2);
+        Txn.executeRead(dsg, ()->assertTrue(IsoMatcher.isomorphic(dsg, dsg2)));
+    }
+}
@@ -29,6 +29,7 @@ import org.apache.jena.fuseki.system.FusekiNetLib;
 import org.apache.jena.fuseki.system.Upload;
 import org.apache.jena.fuseki.system.UploadDetails;
 import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
 import org.apache.jena.riot.RiotException;
 import org.apache.jena.riot.RiotParseException;
 import org.apache.jena.riot.system.StreamRDF;
@@ -171,8 +172,14 @@ public class GSP_RW extends GSP_R {
             Graph g = target.graph();
             if ( overwrite && existedBefore )
                 clearGraph(target);
-            StreamRDF sink = StreamRDFLib.graph(g);
-            UploadDetails upload = Upload.incomingData(action, sink);
+            UploadDetails upload;
+            if ( Upload.useBulkLoader(action, dsg) ) {
+                Node gn = target.isDefault() ? null : target.graphName();
+                upload = Upload.incomingDataBulk(action, dsg, gn, true);
+            } else {
+                StreamRDF sink = StreamRDFLib.graph(g);
+                upload = Upload.incomingData(action, sink);
+            }
             upload.setExistedBefore(existedBefore);
             action.commit();
             return upload;
@@ -295,8 +302,12 @@ public class GSP_RW extends GSP_R {
             DatasetGraph dsg = decideDataset(action);
             if ( clearFirst )
                 dsg.clear();
-            StreamRDF dest = StreamRDFLib.dataset(dsg);
-            details = Upload.incomingData(action, dest);
+            if ( Upload.useBulkLoader(action, dsg) )
+                details = Upload.incomingDataBulk(action, dsg, null, false);
+            else {
+                StreamRDF dest = StreamRDFLib.dataset(dsg);
+                details = Upload.incomingData(action, dest);
+            }
             action.commit();
             ServletOps.success(action);
         } catch (RiotException ex) {
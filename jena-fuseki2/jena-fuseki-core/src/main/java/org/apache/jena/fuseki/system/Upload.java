@@ -36,6 +36,7 @@ import org.apache.jena.fuseki.servlets.ActionErrorException;
 import org.apache.jena.fuseki.servlets.ActionLib;
 import org.apache.jena.fuseki.servlets.HttpAction;
 import org.apache.jena.fuseki.servlets.ServletOps;
+import org.apache.jena.graph.Node;
 import org.apache.jena.irix.IRIException;
 import org.apache.jena.irix.IRIx;
 import org.apache.jena.riot.Lang;
@@ -44,12 +45,78 @@ import org.apache.jena.riot.RiotParseException;
 import org.apache.jena.riot.lang.StreamRDFCounting;
 import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWrapper;
 import org.apache.jena.riot.web.HttpNames;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.progress.MonitorOutputs;
+import org.apache.jena.tdb2.loader.DataLoader;
+import org.apache.jena.tdb2.loader.LoaderFactory;
+import org.apache.jena.tdb2.sys.TDBInternal;
 
 public class Upload {
 
+    /**
+     * Request bodies of at least this many bytes, or of unknown length, sent to a TDB2
+     * dataset are loaded with the TDB2 bulk loader inside the request transaction.
+     * Set to -1 to always use the normal graph/dataset update path.
+     */
+    public static long BulkLoadThreshold = 10*1024*1024;
+
+    /**
+     * Whether to use {@link #incomingDataBulk} for the request.
+     * The dataset must be TDB2 (not wrapped, e.g. for access control)
+     * and the body large or of unknown size.
+     */
+    public static boolean useBulkLoader(HttpAction action, DatasetGraph dsg) {
+        if ( BulkLoadThreshold < 0 )
+            return false;
+        if ( ! TDBInternal.isTDB2(dsg) )
+            return false;
+        long len = action.getRequestContentLengthLong();
+        return len < 0 || len >= BulkLoadThreshold;
+    }
+
+    /**
+     * Parse the body contents into a TDB2 dataset using the sequential bulk loader.
+     * The caller must be in a write transaction on the dataset; the loader
+     * works within that transaction and the caller commits or aborts it.
+     * <p>
+     * If {@code graphTarget} is true, the data goes to the graph {@code graphName}, or
+     * the default graph if it is null. Quads in the default graph of the body are loaded
+     * as triples and other quads are ignored, as for {@link StreamRDFLib#graph}.
+     * If {@code graphName} is null and {@code graphTarget} is false, the body is loaded
+     * into the dataset, as for {@link StreamRDFLib#dataset}.
+     * @throws RiotParseException
+     */
+    public static UploadDetails incomingDataBulk(HttpAction action, DatasetGraph dsg, Node graphName, boolean graphTarget) {
+        DataLoader loader = LoaderFactory.sequentialLoader(dsg, graphName, MonitorOutputs.nullOutput());
+        loader.startBulk();
+        try {
+            // The loader stream puts triples into the named graph, if any, and drops quads.
+            StreamRDF dest = loader.stream();
+            if ( graphTarget )
+                dest = defaultGraphOnly(dest);
+            UploadDetails details = incomingData(action, dest);
+            loader.finishBulk();
+            return details;
+        } catch (RuntimeException ex) {
+            loader.finishException(ex);
+            throw ex;
+        }
+    }
+
+    private static StreamRDF defaultGraphOnly(StreamRDF dest) {
+        return new StreamRDFWrapper(dest) {
+            @Override
+            public void quad(Quad quad) {
+                if ( quad.isTriple() || quad.isDefaultGraph() )
+                    super.triple(quad.asTriple());
+            }
+        };
+    }
+
     /** Parse the body contents to the {@link StreamRDF}.
      *  This function is used by GSP_RW.
      *  @throws RiotParseException
@@ -25,7 +25,8 @@ import org.junit.runners.Suite.SuiteClasses;
 // Most testing needs a server.
 @RunWith(Suite.class)
 @SuiteClasses({
-    TestValidators.class
+    TestValidators.class,
+    TestGSPBulkLoad.class
 })
 public class TS_FusekiCore {}
 
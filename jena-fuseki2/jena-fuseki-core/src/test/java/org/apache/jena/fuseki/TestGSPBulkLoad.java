@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.fuseki;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
+import org.apache.jena.fuseki.metrics.MetricsProviderRegistry;
+import org.apache.jena.fuseki.server.DataAccessPoint;
+import org.apache.jena.fuseki.server.DataAccessPointRegistry;
+import org.apache.jena.fuseki.server.DataService;
+import org.apache.jena.fuseki.server.OperationRegistry;
+import org.apache.jena.fuseki.servlets.FusekiFilter;
+import org.apache.jena.fuseki.system.Upload;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** GSP PUT and POST to a TDB2 dataset through the bulk loader path of {@link Upload}. */
+public class TestGSPBulkLoad {
+    private static final Node s  = NodeFactory.createURI("http://example/s");
+    private static final Node p  = NodeFactory.createURI("http://example/p");
+    private static final Node o0 = NodeFactory.createURI("http://example/o0");
+    private static final String gn = "http://example/g";
+
+    // More than LoaderNodeTupleTable.BatchSize
+    private static final int N = 25_000;
+
+    private long threshold;
+    private DatasetGraph dsg;
+    private Server server;
+    private String dataURL;
+    private String queryURL;
+    private HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Before public void before() throws Exception {
+        threshold = Upload.BulkLoadThreshold;
+        // Any size of request body.
+        Upload.BulkLoadThreshold = 0;
+
+        dsg = DatabaseMgr.createDatasetGraph();
+        Txn.executeWrite(dsg, ()->{
+            dsg.add(Quad.defaultGraphIRI, s, p, o0);
+            dsg.add(NodeFactory.createURI(gn), s, p, o0);
+        });
+
+        DataAccessPointRegistry registry = new DataAccessPointRegistry(MetricsProviderRegistry.get().getMeterRegistry());
+        DataService dataService = DataService.newBuilder(dsg).withStdServices(true).build();
+        registry.register(new DataAccessPoint("/ds", dataService));
+
+        ServletContextHandler handler = new ServletContextHandler();
+        handler.setContextPath("/");
+        OperationRegistry operationRegistry = OperationRegistry.createStd();
+        OperationRegistry.set(handler.getServletContext(), operationRegistry);
+        DataAccessPointRegistry.set(handler.getServletContext(), registry);
+        handler.addFilter(new FilterHolder(new FusekiFilter()), "/*", null);
+        registry.forEach((name, dap)->{
+            dap.getDataService().setEndpointProcessors(operationRegistry);
+            dap.getDataService().goActive();
+        });
+
+        server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        connector.setHost("localhost");
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(handler);
+        server.start();
+        String base = "http://localhost:"+connector.getLocalPort()+"/ds";
+        dataURL = base+"/data";
+        queryURL = base+"/query";
+    }
+
+    @After public void after() throws Exception {
+        Upload.BulkLoadThreshold = threshold;
+        if ( server != null )
+            server.stop();
+    }
+
+    @Test public void gsp_bulk_put_default() throws Exception {
+        int status = upload("PUT", dataURL+"?default", N);
+        assertTrue(""+status, status == 200 || status == 201 || status == 204);
+        Txn.executeRead(dsg, ()->{
+            assertEquals(N, dsg.getDefaultGraph().size());
+            assertFalse(dsg.getDefaultGraph().contains(s, p, o0));
+            assertEquals(1, Iter.count(dsg.find(Quad.defaultGraphIRI, null, null, NodeFactory.createLiteral("v"+(N-1)))));
+        });
+        assertTrue(ask("ASK { ?s <http://example/p> "+literal(N/2)+" }"));
+    }
+
+    @Test public void gsp_bulk_post_named() throws Exception {
+        String target = dataURL+"?graph="+URLEncoder.encode(gn, StandardCharsets.UTF_8);
+        int status = upload("POST", target, N);
+        assertTrue(""+status, status == 200 || status == 201 || status == 204);
+        Txn.executeRead(dsg, ()->{
+            Node g = NodeFactory.createURI(gn);
+            assertEquals(N+1, dsg.getGraph(g).size());
+            assertEquals(1, Iter.count(dsg.find(g, null, null, o0)));
+            assertEquals(1, Iter.count(dsg.find(g, null, null, NodeFactory.createLiteral("v"+(N-1)))));
+        });
+        assertTrue(ask("ASK { GRAPH <"+gn+"> { ?s <http://example/p> "+literal(N/2)+" } }"));
+    }
+
+    @Test public void gsp_bulk_put_named_trig() throws Exception {
+        // The default graph of the body goes to the target graph; other graphs are ignored.
+        String target = dataURL+"?graph="+URLEncoder.encode(gn, StandardCharsets.UTF_8);
+        String trig = "<http://example/s> <http://example/p> \"d\" .\n"
+                    + "<http://example/other> { <http://example/s> <http://example/p> \"n\" }\n";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target))
+            .header("Content-Type", "application/trig")
+            .PUT(BodyPublishers.ofString(trig))
+            .build();
+        HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
+        int status = response.statusCode();
+        assertTrue(""+status, status == 200 || status == 201 || status == 204);
+        Txn.executeRead(dsg, ()->{
+            Node g = NodeFactory.createURI(gn);
+            assertEquals(1, dsg.getGraph(g).size());
+            assertTrue(dsg.contains(g, s, p, NodeFactory.createLiteral("d")));
+            assertFalse(dsg.containsGraph(NodeFactory.createURI("http://example/other")));
+        });
+    }
+
+    @Test public void gsp_bulk_post_known_length() throws Exception {
+        Upload.BulkLoadThreshold = 10;
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < 100 ; i++ )
+            sb.append(line(i));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(dataURL+"?default"))
+            .header("Content-Type", "application/n-triples")
+            .POST(BodyPublishers.ofString(sb.toString()))
+            .build();
+        HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
+        int status = response.statusCode();
+        assertTrue(""+status, status == 200 || status == 204);
+        Txn.executeRead(dsg, ()->assertEquals(101, dsg.getDefaultGraph().size()));
+    }
+
+    /**
+     * Send triples in a request body of unknown length. Half way through the
+     * upload, when the request write transaction is active, check that the
+     * secondary indexes are still in place and that a query on the server
+     * sees the state before the upload.
+     */
+    private int upload(String method, String url, int n) throws Exception {
+        CountDownLatch halfway = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        BodyPublisher body = BodyPublishers.ofInputStream(()->new DataStream(n, halfway, proceed));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .header("Content-Type", "application/n-triples")
+            .method(method, body)
+            .build();
+        CompletableFuture<HttpResponse<String>> response = httpClient.sendAsync(request, BodyHandlers.ofString());
+        try {
+            assertTrue(halfway.await(10, TimeUnit.SECONDS));
+            TransactionCoordinator coordinator = TDBInternal.getTransactionCoordinator(dsg);
+            for ( int i = 0 ; coordinator.countActiveWriter() == 0 && i < 1000 ; i++ )
+                Thread.sleep(10);
+            assertEquals(1, coordinator.countActiveWriter());
+            DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+            assertNotNull(dsgtdb.getTripleTable().getNodeTupleTable().getTupleTable().getIndex(1));
+            assertNotNull(dsgtdb.getQuadTable().getNodeTupleTable().getTupleTable().getIndex(1));
+            // Concurrent read: the committed data, using an index other than the primary one.
+            assertTrue(ask("ASK { ?s ?p <http://example/o0> }"));
+            assertFalse(ask("ASK { ?s ?p "+literal(0)+" }"));
+        } finally {
+            proceed.countDown();
+        }
+        return response.get(60, TimeUnit.SECONDS).statusCode();
+    }
+
+    /** N-Triples data, pausing half way. */
+    private static class DataStream extends InputStream {
+        private final int n;
+        private final CountDownLatch halfway;
+        private final CountDownLatch proceed;
+        private int i = 0;
+        private byte[] bytes = new byte[0];
+        private int idx = 0;
+
+        DataStream(int n, CountDownLatch halfway, CountDownLatch proceed) {
+            this.n = n;
+            this.halfway = halfway;
+            this.proceed = proceed;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if ( idx >= bytes.length ) {
+                if ( i >= n )
+                    return -1;
+                if ( i == n/2 ) {
+                    halfway.countDown();
+                    try { proceed.await(); }
+                    catch (InterruptedException ex) { throw new IOException(ex); }
+                }
+                bytes = line(i++).getBytes(StandardCharsets.UTF_8);
+                idx = 0;
+            }
+            return bytes[idx++] & 0xFF;
+        }
+    }
+
+    private boolean ask(String queryString) throws Exception {
+        String url = queryURL+"?query="+URLEncoder.encode(queryString, StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .header("Accept", "application/sparql-results+json")
+            .GET()
+            .build();
+        HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        return response.body().matches("(?s).*\"boolean\"\\s*:\\s*true.*");
+    }
+
+    private static String line(int i) {
+        return "<http://example/s"+(i%97)+"> <http://example/p> "+literal(i)+" .\n";
+    }
+
+    private static String literal(int i) {
+        return "\"v"+i+"\"";
+    }
+}
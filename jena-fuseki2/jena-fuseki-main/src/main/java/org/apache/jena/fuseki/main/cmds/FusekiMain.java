@@ -63,6 +63,7 @@ public class FusekiMain extends CmdARQ {
     private static int defaultHttpsPort     = 3043;
 
     private static ArgDecl  argMem          = new ArgDecl(ArgDecl.NoValue,  "mem");
+    private static ArgDecl  argMemIds       = new ArgDecl(ArgDecl.NoValue,  "memIds", "memids", "mem-ids");
     private static ArgDecl  argUpdate       = new ArgDecl(ArgDecl.NoValue,  "update", "allowUpdate");
     private static ArgDecl  argFile         = new ArgDecl(ArgDecl.HasValue, "file");
 
@@ -137,6 +138,8 @@ public class FusekiMain extends CmdARQ {
         // Control the order!
         add(argMem, "--mem",
             "Create an in-memory, non-persistent dataset for the server");
+        add(argMemIds, "--memIds",
+            "Create an in-memory, non-persistent dataset for the server that stores node ids");
         add(argFile, "--file=FILE",
             "Create an in-memory, non-persistent dataset for the server, initialised with the contents of the file");
         add(argTDB2mode, "--tdb2",
@@ -216,6 +219,8 @@ public class FusekiMain extends CmdARQ {
 
         if ( contains(argMem) )
             numDefinitions++;
+        if ( contains(argMemIds) )
+            numDefinitions++;
         if ( contains(argFile) )
             numDefinitions++;
         if ( contains(assemblerDescDecl) )
@@ -315,6 +320,12 @@ public class FusekiMain extends CmdARQ {
             serverConfig.allowUpdate = true;
         }
 
+        if ( contains(argMemIds) ) {
+            serverConfig.datasetDescription = "in-memory, node ids";
+            serverConfig.dsg = DatasetGraphFactory.createTxnMemIds();
+            serverConfig.allowUpdate = true;
+        }
+
         if ( contains(argFile) ) {
             List<String> filenames = getValues(argFile);
             serverConfig.datasetDescription = "in-memory, with files loaded";
@@ -21,6 +21,7 @@ package org.apache.jena.fuseki.main;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -34,6 +35,8 @@ import org.apache.jena.fuseki.system.FusekiLogging;
 import org.apache.jena.http.HttpOp;
 import org.apache.jena.query.ResultSetFormatter;
 import org.apache.jena.rdfconnection.RDFConnection;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.mem.DatasetGraphInMemoryIds;
 import org.junit.After;
 import org.junit.Test;
 
@@ -53,7 +56,7 @@ public class TestFusekiMainCmd {
             Arrays.stream(cmdline))
             .toArray(String[]::new);
 
-        FusekiServer server = FusekiMain.build(a);
+        server = FusekiMain.build(a);
         server.start();
         int port = server.getPort();
         serverURL = "http://localhost:"+port;
@@ -75,6 +78,18 @@ public class TestFusekiMainCmd {
         }
     }
 
+    @Test public void memIds_01() {
+        server("--memIds", "/ds");
+        DatasetGraph dsg = server.getDataAccessPointRegistry().get("/ds").getDataService().getDataset();
+        assertTrue(dsg instanceof DatasetGraphInMemoryIds);
+        try ( RDFConnection conn = RDFConnection.connect(serverURL+"/ds") ) {
+            conn.update("INSERT DATA { <http://example/s> <http://example/p> 1 . GRAPH <http://example/g> { <http://example/s> <http://example/p> 2 } }");
+            conn.querySelect("SELECT (count(*) AS ?c) { { ?s ?p ?o } UNION { GRAPH ?g { ?s ?p ?o } } }", row->{
+                assertEquals(2, row.getLiteral("c").getInt());
+            });
+        }
+    }
+
     @Test public void ping_01() {
         server("--mem", "--ping", "/ds");
         String x = HttpOp.httpGetString(serverURL+"/$/ping");
@@ -69,6 +69,13 @@ public class QueryEngineTDB extends QueryEngineMain
         return DynamicDatasets.dynamicDataset(dsDesc, dataset, union ) ;
     }
     
+    // The algebra depends only on the query and whether the dataset is dynamic.
+    @Override
+    protected boolean cacheableOp()
+    {
+        return getClass() == QueryEngineTDB.class ;
+    }
+
     // Choose the algebra-level optimizations to invoke. 
     @Override
     protected Op modifyOp(Op op)